@@ -20,9 +20,10 @@
 
 package moa.streams;
 
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
 import com.github.javacliparser.StringOption;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
@@ -32,37 +33,54 @@ import moa.core.InstanceExample;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
+import moa.util.InstanceCodec;
 import moa.util.KafkaUtils;
-import moa.util.ObjectDeserializer;
 import moa.util.ObjectSerializer;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.LongDeserializer;
 
 import java.io.Closeable;
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Instance stream which consumes instances from a Kafka topic.
  *
+ * The records are fetched and decoded by a background thread into a
+ * bounded ring buffer, while the instances already in the buffer are
+ * being processed. The fetcher stops when the buffer holds the high
+ * watermark number of instances, and starts again once it is drained
+ * down to the low watermark.
+ *
+ * For every partition, the offset following the last instance returned
+ * by {@link #nextInstance()} is kept, so a restarted stream can resume
+ * from there instead of consuming the topic again from the beginning.
+ *
  * Assumptions:
  *   - The ordering of the instances in the topic is unimportant,
  *     or if it is important, it is ensured by a topic with only one
  *     partition.
- *   - The stream is considered ended when a record with a null
- *     value is found.
- *   - The serialised form of the instances is using Java's own
- *     serialisation tools (i.e. {@link ObjectSerializer}).
+ *   - The instances are encoded by an {@link InstanceCodec}, after a
+ *     header record at the start of every partition, or serialised
+ *     using Java's own serialisation tools (i.e. {@link ObjectSerializer}).
+ *   - The end of a partition is marked by a record with a null value.
+ *     The stream is considered ended once every partition has ended, or,
+ *     for topics without header records, when the first such record is
+ *     found.
  *
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  */
@@ -72,6 +90,9 @@ public class KafkaStream extends AbstractOptionHandler implements
   // Serialisation UID#
   private static final long serialVersionUID = 671271388371039247L;
 
+  // Length of a single park while waiting for the other thread
+  protected static final long PARK_NANOS = 1000000L;
+
   // -- OPTIONS -- //
 
   // The topic to consume
@@ -86,19 +107,39 @@ public class KafkaStream extends AbstractOptionHandler implements
   public StringOption portOption = new StringOption("port", 'p',
     "The Kafka broker port", "9092");
 
-  // -- TRANSIENTS -- //
+  // The number of buffered instances at which fetching pauses
+  public IntOption highWatermarkOption = new IntOption("highWatermark", 'w',
+    "The number of buffered instances at which fetching pauses",
+    10000, 1, Integer.MAX_VALUE);
+
+  // The number of buffered instances at which fetching resumes
+  public IntOption lowWatermarkOption = new IntOption("lowWatermark", 'l',
+    "The number of buffered instances at which fetching resumes",
+    5000, 0, Integer.MAX_VALUE);
 
-  // The consumer which will retrieve records from the Kafka stream
-  protected transient KafkaConsumer<Long, Instance> m_Consumer = null;
+  // Whether restarting resumes after the last consumed instances
+  public FlagOption resumeOption = new FlagOption("resume", 'r',
+    "Resume after the last consumed instance of every partition when "
+      + "restarted, instead of starting from the beginning of the topic");
 
-  // A buffer of instances retrieved from the Kafka stream
-  protected transient Queue<Instance> m_InstanceBuffer = null;
+  // -- CHECKPOINT -- //
 
-  // Whether we have reached the end of the stream
-  protected transient boolean m_EndOfStreamReached = false;
+  // The offset after the last consumed instance, per partition (-1 if none)
+  protected long[] m_NextOffsets = new long[0];
 
   // The header for the instances
-  protected transient InstancesHeader m_Header = null;
+  protected InstancesHeader m_Header = null;
+
+  // Whether the topic has header records, so every partition has its own end
+  protected boolean m_HeaderRecordsFound = false;
+
+  // -- TRANSIENTS -- //
+
+  // The background fetcher filling the buffer
+  protected transient Fetcher m_Fetcher = null;
+
+  // The monitor of the task using the stream
+  protected transient TaskMonitor m_Monitor = null;
 
   @Override
   public String getPurposeString() {
@@ -107,24 +148,34 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    m_Monitor = monitor;
     restart();
   }
 
   @Override
   public InstancesHeader getHeader() {
-    fillBufferIfNecessary();
+    Fetcher fetcher = establishFetcher();
+
+    // Wait for the header to be decoded
+    while (m_Header == null) {
+      m_Header = fetcher.m_Header;
+      if (m_Header != null || fetcher.isFinished())
+        break;
+      fetcher.await();
+    }
+    fetcher.checkFailure();
 
     return m_Header;
   }
 
   @Override
   public long estimatedRemainingInstances() {
-    fillBufferIfNecessary();
+    Fetcher fetcher = establishFetcher();
 
     // If we've reached the end of the stream, what's in the buffer is all
     // that remain
-    if (m_EndOfStreamReached)
-      return m_InstanceBuffer.size();
+    if (fetcher.m_EndOfStreamReached)
+      return fetcher.size();
 
     // Other than that we can't know this
     return -1;
@@ -132,22 +183,24 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public boolean hasMoreInstances() {
-    fillBufferIfNecessary();
+    Fetcher fetcher = establishFetcher();
 
-    return !m_EndOfStreamReached || !bufferIsEmpty();
+    // Wait until an instance is buffered or no more can come
+    while (fetcher.size() == 0 && !fetcher.isFinished())
+      fetcher.await();
+    fetcher.checkFailure();
+
+    return fetcher.size() > 0;
   }
 
   @Override
   public Example<Instance> nextInstance() {
-    // Retrieve more instances from Kafka if the buffer is empty
-    fillBufferIfNecessary();
-
-    // If the buffer is empty, return null
-    if (bufferIsEmpty())
+    // If the buffer is empty and stays empty, return null
+    if (!hasMoreInstances())
       return null;
 
-    // Return the next instance from the buffer
-    return new InstanceExample(m_InstanceBuffer.remove());
+    // Return the next instance from the buffer, remembering its offset
+    return new InstanceExample(m_Fetcher.take());
   }
 
   @Override
@@ -157,14 +210,12 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public void restart() {
-    // Get the consumer in a usable state and restart it
-    restartConsumer();
+    // Stop fetching and throw away any buffered instances
+    close();
 
-    // Throw away any buffered instances
-    m_InstanceBuffer = null;
-
-    // Mark the stream as not complete
-    m_EndOfStreamReached = false;
+    // Unless resuming, start again from the beginning of the topic
+    if (!resumeOption.isSet())
+      m_NextOffsets = new long[0];
   }
 
   @Override
@@ -189,31 +240,68 @@ public class KafkaStream extends AbstractOptionHandler implements
 
   @Override
   public void close() {
-    if (m_Consumer != null) {
-      m_Consumer.unsubscribe();
-      m_Consumer.close();
+    if (m_Fetcher != null) {
+      m_Fetcher.stop();
+
+      // Keep the header, as resuming skips the header records
+      if (m_Header == null)
+        m_Header = m_Fetcher.m_Header;
+      m_HeaderRecordsFound |= m_Fetcher.m_HeaderRecordsFound;
     }
 
-    m_Consumer = null;
+    m_Fetcher = null;
   }
 
   /**
-   * Makes sure the Kafka consumer is available and ready to
-   * retrieve instances.
+   * Gets the number of instances currently buffered.
    */
-  protected void establishConsumer() {
-    // If the consumer is already resident, abort
-    if (m_Consumer != null)
-      return;
+  public int getQueueDepth() {
+    Fetcher fetcher = m_Fetcher;
+    return fetcher == null ? 0 : fetcher.size();
+  }
+
+  /**
+   * Gets the duration of the last poll of Kafka which returned records,
+   * in milliseconds.
+   */
+  public double getLastFetchLatency() {
+    Fetcher fetcher = m_Fetcher;
+    return fetcher == null ? 0 : fetcher.m_LastFetchNanos / 1e6;
+  }
 
-    // Create the consumer
-    m_Consumer = new KafkaConsumer<>(createConsumerConfiguration());
+  /**
+   * Gets the mean duration of the polls of Kafka which returned records,
+   * in milliseconds.
+   */
+  public double getMeanFetchLatency() {
+    Fetcher fetcher = m_Fetcher;
+    if (fetcher == null || fetcher.m_NumFetches == 0)
+      return 0;
+    return fetcher.m_TotalFetchNanos / 1e6 / fetcher.m_NumFetches;
+  }
 
-    // Subscribe to the given topic
-    m_Consumer.subscribe(Collections.singletonList(topicOption.getValue()));
+  /**
+   * Makes sure the background fetcher is running.
+   */
+  protected Fetcher establishFetcher() {
+    // If the fetcher is already running, nothing to do
+    if (m_Fetcher != null)
+      return m_Fetcher;
+
+    // Create the fetcher, starting at the checkpoint
+    int high = highWatermarkOption.getValue();
+    int low = Math.min(lowWatermarkOption.getValue(), high - 1);
+    m_Fetcher = new Fetcher(high, low, m_NextOffsets.clone(), m_Header);
+    m_Fetcher.start();
+
+    return m_Fetcher;
+  }
 
-    // Make sure the consumer starts from the beginning of the topic
-    restartConsumer();
+  /**
+   * Creates the consumer which retrieves the records from Kafka.
+   */
+  protected Consumer<Long, byte[]> createConsumer() {
+    return new KafkaConsumer<>(createConsumerConfiguration());
   }
 
   /**
@@ -223,14 +311,14 @@ public class KafkaStream extends AbstractOptionHandler implements
     Map<String, Object> config = new HashMap<>();
 
     config.put("key.deserializer", LongDeserializer.class);
-    config.put("value.deserializer", ObjectDeserializer.class);
+    config.put("value.deserializer", ByteArrayDeserializer.class);
     config.put("bootstrap.servers", broker());
     config.put("fetch.min.bytes", 1);
     config.put("group.id", KafkaUtils.uniqueGroupIDString(this));
     config.put("max.partition.fetch.bytes", 1 << 20); // 1MB
     config.put("allow.auto.create.topics", false);
     config.put("auto.offset.reset", "earliest");
-    config.put("enable.auto.commit", true);
+    config.put("enable.auto.commit", false);
     config.put("fetch.max.bytes", 1 << 24); // 16MB
     config.put("isolation.level", "read_committed");
     config.put("client.id", this.getClass().getName());
@@ -246,112 +334,344 @@ public class KafkaStream extends AbstractOptionHandler implements
   }
 
   /**
-   * Directs the consumer to the beginning of the Kafka stream.
+   * Records the consumption of an instance for resuming.
+   */
+  protected void checkpoint(int partition, long offset) {
+    if (partition >= m_NextOffsets.length) {
+      int oldLength = m_NextOffsets.length;
+      m_NextOffsets = Arrays.copyOf(m_NextOffsets, partition + 1);
+      Arrays.fill(m_NextOffsets, oldLength, m_NextOffsets.length, -1);
+    }
+    m_NextOffsets[partition] = offset + 1;
+  }
+
+  /**
+   * Reports on the monitor that the stream waits for Kafka.
    */
-  protected void restartConsumer() {
-    // Can't restart a non-resident consumer
-    if (m_Consumer == null)
+  protected void reportWaiting(Fetcher fetcher) {
+    if (m_Monitor == null)
       return;
 
-    // Seek all partitions back to the zero-record
-    m_Consumer.seekToBeginning(Collections.emptyList());
+    m_Monitor.setCurrentActivityDescription(String.format(
+      "Waiting for Kafka topic '%s' (queue depth %d, last fetch %.1f ms, mean fetch %.1f ms)",
+      topicOption.getValue(), fetcher.size(), fetcher.m_LastFetchNanos / 1e6,
+      fetcher.m_NumFetches == 0 ? 0 : fetcher.m_TotalFetchNanos / 1e6 / fetcher.m_NumFetches));
   }
 
   /**
-   * Gets a list of all topic partitions the consumer is consuming.
+   * Background thread owning the Kafka consumer, which decodes the records
+   * into a single-producer/single-consumer ring buffer.
    */
-  protected List<TopicPartition> getPartitions() {
-    // Create a buffer for the results
-    List<TopicPartition> result = new LinkedList<>();
+  protected class Fetcher implements Runnable {
 
-    // If the consumer isn't established, return the empty list
-    if (m_Consumer == null)
-      return result;
+    // The buffered instances
+    protected final Instance[] m_Instances;
 
-    // Iterate through the topics and partitions, adding them to the result
-    for (Entry<String, List<PartitionInfo>> topicPartitions : m_Consumer.listTopics().entrySet()) {
-      String topic = topicPartitions.getKey();
-      for (PartitionInfo info : topicPartitions.getValue()) {
-        int partition = info.partition();
+    // The partition of each buffered instance
+    protected final int[] m_Partitions;
 
-        result.add(new TopicPartition(topic, partition));
-      }
-    }
+    // The offset of each buffered instance
+    protected final long[] m_Offsets;
 
-    return result;
-  }
+    // The number of buffered instances at which fetching resumes
+    protected final int m_LowWatermark;
 
-  /**
-   * Retrieves more instances from Kafka and places them in the buffer.
-   */
-  protected void fillBufferIfNecessary() {
-    // If we've reached the end of stream, we can't fill the buffer
-    if (m_EndOfStreamReached)
-      return;
+    // The offsets to start from, per partition (-1 for the beginning)
+    protected final long[] m_StartOffsets;
 
-    // If the buffer isn't empty, no need to fill it yet
-    if (!bufferIsEmpty())
-      return;
+    // The header known before starting, if any
+    protected final InstancesHeader m_KnownHeader;
 
-    // Make sure we have a consumer instance to use
-    establishConsumer();
+    // Next slot to be consumed, written by the consuming thread only
+    protected volatile long m_Head;
 
-    // If the buffer isn't there, create it
-    if (m_InstanceBuffer == null)
-      m_InstanceBuffer = new LinkedList<>();
+    // Next slot to be filled, written by the fetcher only
+    protected volatile long m_Tail;
 
-    // Get some records from Kafka
-    ConsumerRecords<Long, Instance> records = m_Consumer.poll(KafkaUtils.WAIT_AS_LONG_AS_POSSIBLE);
+    // The header for the instances, once decoded
+    protected volatile InstancesHeader m_Header;
 
-    // Add each instance to the buffer
-    for (ConsumerRecord<Long, Instance> record : records) {
-      // Extract the instance from the record
-      Instance instance = record.value();
+    // Whether the end-of-stream sentinel has been reached
+    protected volatile boolean m_EndOfStreamReached;
 
-      // If it's null, this is the sentinel that the end of stream has been reached
-      if (instance == null) {
-        m_EndOfStreamReached = true;
-        close();
-        break;
+    // Whether a header record has been found, now or before resuming
+    protected volatile boolean m_HeaderRecordsFound;
+
+    // Whether the fetcher thread has terminated
+    protected volatile boolean m_Done;
+
+    // Whether the fetcher has been asked to stop
+    protected volatile boolean m_Stopped;
+
+    // The exception which stopped the fetcher, if any
+    protected volatile Throwable m_Failure;
+
+    // The consumer which retrieves records from the Kafka stream
+    protected volatile Consumer<Long, byte[]> m_Consumer;
+
+    // The fetcher thread
+    protected volatile Thread m_Thread;
+
+    // The thread waiting for instances, if any
+    protected volatile Thread m_Waiter;
+
+    // Duration of the last poll which returned records
+    protected volatile long m_LastFetchNanos;
+
+    // Total duration of the polls which returned records
+    protected volatile long m_TotalFetchNanos;
+
+    // Number of polls which returned records
+    protected volatile long m_NumFetches;
+
+    protected Fetcher(int highWatermark, int lowWatermark, long[] startOffsets,
+                      InstancesHeader knownHeader) {
+      m_Instances = new Instance[highWatermark];
+      m_Partitions = new int[highWatermark];
+      m_Offsets = new long[highWatermark];
+      m_LowWatermark = lowWatermark;
+      m_StartOffsets = startOffsets;
+      m_KnownHeader = knownHeader;
+      m_HeaderRecordsFound = KafkaStream.this.m_HeaderRecordsFound;
+    }
+
+    /**
+     * Starts the fetcher thread.
+     */
+    protected void start() {
+      Thread thread = new Thread(this, "moa-kafka-fetcher-" + topicOption.getValue());
+      thread.setDaemon(true);
+      m_Thread = thread;
+      thread.start();
+    }
+
+    /**
+     * Stops the fetcher thread and waits for it to close the consumer.
+     */
+    protected void stop() {
+      m_Stopped = true;
+      Consumer<Long, byte[]> consumer = m_Consumer;
+      if (consumer != null && !m_Done)
+        consumer.wakeup();
+      LockSupport.unpark(m_Thread);
+
+      try {
+        m_Thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
+    }
 
-      // Add the instance to the buffer
-      m_InstanceBuffer.add(record.value());
+    /**
+     * The number of buffered instances.
+     */
+    protected int size() {
+      return (int) (m_Tail - m_Head);
     }
 
-    // Save the header if we can and need to
-    cacheHeaderIfNecessary();
-  }
+    /**
+     * Whether no more instances will be buffered.
+     */
+    protected boolean isFinished() {
+      return m_EndOfStreamReached || m_Done;
+    }
 
-  /**
-   * Caches the header for these instances if it hasn't already.
-   */
-  protected void cacheHeaderIfNecessary() {
-    // Skip if we've already cached a header
-    if (m_Header != null)
-      return;
+    /**
+     * Rethrows the exception which stopped the fetcher, if any.
+     */
+    protected void checkFailure() {
+      Throwable t = m_Failure;
+      if (t instanceof RuntimeException)
+        throw (RuntimeException) t;
+      if (t instanceof Error)
+        throw (Error) t;
+      if (t != null)
+        throw new RuntimeException("Failed to consume from Kafka", t);
+    }
 
-    // Get one of the instances
-    Instance instance = m_InstanceBuffer.peek();
+    /**
+     * Waits a little for the fetcher, from the consuming thread.
+     */
+    protected void await() {
+      reportWaiting(this);
+      m_Waiter = Thread.currentThread();
+      if (size() == 0 && !isFinished())
+        LockSupport.parkNanos(this, PARK_NANOS);
+      m_Waiter = null;
+    }
 
-    // If there isn't one (should always be at this point), abort
-    if (instance == null)
-      return;
+    /**
+     * Removes the next instance from the buffer, which must not be empty.
+     */
+    protected Instance take() {
+      long head = m_Head;
+      int slot = (int) (head % m_Instances.length);
+      Instance instance = m_Instances[slot];
+      m_Instances[slot] = null;
+      checkpoint(m_Partitions[slot], m_Offsets[slot]);
+      m_Head = head + 1;
+
+      // Wake the fetcher once the buffer is drained to the low watermark
+      if (m_Tail - (head + 1) == m_LowWatermark)
+        LockSupport.unpark(m_Thread);
+
+      return instance;
+    }
+
+    /**
+     * Adds an instance to the buffer, waiting while the buffer is full
+     * until it is drained to the low watermark.
+     *
+     * @return Whether the instance was added, false if stopped.
+     */
+    protected boolean put(Instance instance, int partition, long offset) {
+      long tail = m_Tail;
+      if (tail - m_Head >= m_Instances.length) {
+        while (m_Tail - m_Head > m_LowWatermark) {
+          if (m_Stopped)
+            return false;
+          LockSupport.parkNanos(this, PARK_NANOS);
+        }
+      }
+      int slot = (int) (tail % m_Instances.length);
+      m_Instances[slot] = instance;
+      m_Partitions[slot] = partition;
+      m_Offsets[slot] = offset;
+      m_Tail = tail + 1;
+      wakeWaiter();
+      return true;
+    }
 
-    // Get it's dataset
-    Instances dataset = instance.dataset();
+    /**
+     * Wakes up the consuming thread if it is waiting.
+     */
+    protected void wakeWaiter() {
+      Thread waiter = m_Waiter;
+      if (waiter != null)
+        LockSupport.unpark(waiter);
+    }
 
-    // Save it for future reference
-    if (dataset instanceof InstancesHeader)
-      m_Header = (InstancesHeader) dataset;
-    else
-      m_Header = new InstancesHeader(dataset);
-  }
+    /**
+     * Assigns all the partitions of the topic to the consumer, and seeks
+     * each one to its start offset.
+     *
+     * @return The assigned partitions.
+     */
+    protected List<TopicPartition> assignPartitions(Consumer<Long, byte[]> consumer) {
+      List<TopicPartition> partitions = new ArrayList<>();
+      for (PartitionInfo info : consumer.partitionsFor(topicOption.getValue()))
+        partitions.add(new TopicPartition(info.topic(), info.partition()));
+      consumer.assign(partitions);
+
+      for (TopicPartition partition : partitions) {
+        int index = partition.partition();
+        if (index < m_StartOffsets.length && m_StartOffsets[index] >= 0)
+          consumer.seek(partition, m_StartOffsets[index]);
+        else
+          consumer.seekToBeginning(Collections.singletonList(partition));
+      }
 
-  /**
-   * Whether the instance buffer is empty.
-   */
-  protected boolean bufferIsEmpty() {
-    return m_InstanceBuffer == null || m_InstanceBuffer.peek() == null;
+      return partitions;
+    }
+
+    @Override
+    public void run() {
+      Consumer<Long, byte[]> consumer = null;
+      try {
+        // Create the consumer and direct it to the start offsets
+        consumer = createConsumer();
+        m_Consumer = consumer;
+        if (m_Stopped)
+          return;
+        List<TopicPartition> partitions = assignPartitions(consumer);
+        Set<Integer> endedPartitions = new HashSet<>();
+
+        // Instance records found before any header record
+        List<ConsumerRecord<Long, byte[]>> pending = new ArrayList<>();
+
+        // Header records are skipped when resuming, so reuse the known header
+        InstanceCodec codec = (m_KnownHeader != null)
+          ? new InstanceCodec(m_KnownHeader)
+          : new InstanceCodec();
+        m_Header = m_KnownHeader;
+
+        while (!m_Stopped) {
+          // Get some records from Kafka
+          long start = System.nanoTime();
+          ConsumerRecords<Long, byte[]> records = consumer.poll(KafkaUtils.WAIT_AS_LONG_AS_POSSIBLE);
+          if (!records.isEmpty()) {
+            m_LastFetchNanos = System.nanoTime() - start;
+            m_TotalFetchNanos += m_LastFetchNanos;
+            m_NumFetches++;
+          }
+
+          // Add each instance to the buffer
+          for (ConsumerRecord<Long, byte[]> record : records) {
+            // Skip anything after the end of a partition
+            if (endedPartitions.contains(record.partition()))
+              continue;
+
+            // Extract the encoded instance from the record
+            byte[] value = record.value();
+
+            // If it's null, this is the sentinel that the partition has ended
+            if (value == null) {
+              endedPartitions.add(record.partition());
+              consumer.pause(Collections.singletonList(
+                new TopicPartition(record.topic(), record.partition())));
+
+              // Without header records, there is only the one sentinel
+              if (!m_HeaderRecordsFound || endedPartitions.size() >= partitions.size()) {
+                if (!pending.isEmpty())
+                  throw new IllegalStateException("Instance records found without a header");
+                m_EndOfStreamReached = true;
+                return;
+              }
+              continue;
+            }
+
+            // Header records only configure the decoder
+            if (InstanceCodec.isHeaderRecord(value)) {
+              m_HeaderRecordsFound = true;
+              if (codec.getHeader() == null) {
+                m_Header = codec.decodeHeader(value);
+
+                // Decode the instances which came before the header
+                for (ConsumerRecord<Long, byte[]> early : pending) {
+                  if (!put(codec.decode(early.value()), early.partition(), early.offset()))
+                    return;
+                }
+                pending.clear();
+              }
+              continue;
+            }
+
+            // Hold back instance records until there is a header to decode them
+            if (codec.getHeader() == null && !InstanceCodec.isSerialisedRecord(value)) {
+              pending.add(record);
+              continue;
+            }
+
+            // Decode the instance, picking up the header of serialised ones
+            Instance instance = codec.decode(value);
+            if (m_Header == null)
+              m_Header = codec.getHeader();
+
+            // Add the instance to the buffer
+            if (!put(instance, record.partition(), record.offset()))
+              return;
+          }
+        }
+      } catch (WakeupException e) {
+        // Stopped while polling
+      } catch (Throwable t) {
+        m_Failure = t;
+      } finally {
+        if (consumer != null)
+          consumer.close();
+        m_Done = true;
+        wakeWaiter();
+      }
+    }
   }
 }
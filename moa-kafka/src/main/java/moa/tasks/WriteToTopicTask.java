@@ -21,6 +21,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.github.javacliparser.StringOption;
 import com.yahoo.labs.samoa.instances.Instance;
 import moa.capabilities.CapabilitiesHandler;
@@ -30,10 +31,13 @@ import moa.core.Example;
 import moa.core.ObjectRepository;
 import moa.options.ClassOption;
 import moa.streams.InstanceStream;
+import moa.util.InstanceCodec;
 import moa.util.KafkaUtils;
 import moa.util.ObjectSerializer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.LongSerializer;
 
 import java.util.HashMap;
@@ -89,6 +93,19 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
         ""
   );
 
+  // The format to write the instances in
+  public MultiChoiceOption formatOption = new MultiChoiceOption(
+        "format",
+        'f',
+        "The format to write the instances in",
+        new String[]{"Binary", "Java"},
+        new String[]{
+              "Compact binary records, after a header record in every partition",
+              "Java serialisation of every instance (for older consumers)"
+        },
+        0
+  );
+
   /**
    * Creates the configuration for the Kakfa producer.
    *
@@ -100,7 +117,7 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
     Map<String, Object> config = new HashMap<>();
 
     config.put("key.serializer", LongSerializer.class);
-    config.put("value.serializer", ObjectSerializer.class);
+    config.put("value.serializer", ByteArraySerializer.class);
     config.put("bootstrap.servers", KafkaUtils.broker(host, port));
     config.put("fetch.min.bytes", 1);
     config.put("group.id", KafkaUtils.uniqueGroupIDString(this));
@@ -123,12 +140,30 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
     String topic = topicOption.getValue();
     String host = hostOption.getValue();
     String port = portOption.getValue();
+    boolean binary = formatOption.getChosenIndex() == 0;
 
     // Create the Kakfa producer
-    KafkaProducer<Long, Instance> producer = new KafkaProducer<>(
+    KafkaProducer<Long, byte[]> producer = new KafkaProducer<>(
           getProducerConfig(host, port)
     );
 
+    // Create the encoder for the instances
+    InstanceCodec codec = new InstanceCodec();
+    ObjectSerializer<Instance> serializer = new ObjectSerializer<>();
+
+    // Publish the header once at the start of every partition, so that
+    // consumers know it before the first instance of any partition
+    if (binary) {
+      byte[] header = codec.encodeHeader(stream.getHeader());
+      for (PartitionInfo partition : producer.partitionsFor(topic)) {
+        producer.send(
+              new ProducerRecord<>(
+                    topic, partition.partition(), null, header
+              )
+        );
+      }
+    }
+
     int i = 0;
     while (i < maxInstances) {
       // If the stream is depleted, finalise the topic
@@ -137,16 +172,24 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
       // Get the next instance from the stream
       Example<Instance> inst = stream.nextInstance();
 
+      // Encode the instance
+      byte[] value = binary
+            ? codec.encode(inst.getData())
+            : serializer.serialize(topic, inst.getData());
+
       // Create a record of the instance for the topic
-      ProducerRecord<Long, Instance> record = new ProducerRecord<>(
-            topic, (long) i++, inst.getData()
+      ProducerRecord<Long, byte[]> record = new ProducerRecord<>(
+            topic, (long) i++, value
       );
 
       // Send the record to the Kafka instance
       producer.send(record);
 
       // Abort if the task is cancelled (leaves the topic unfinished)
-      if (monitor.isCancelled()) return null;
+      if (monitor.isCancelled()) {
+        producer.close();
+        return null;
+      }
 
       // Estimate the number of instances left in the source stream
       long remainingInstances = stream.estimatedRemainingInstances();
@@ -160,12 +203,18 @@ public class WriteToTopicTask extends AuxiliarMainTask implements CapabilitiesHa
       monitor.setCurrentActivityFractionComplete(((double) i) / totalInstances);
     }
 
-    // Send the null-terminator instance to the topic
-    producer.send(
-          new ProducerRecord<>(
-                topic, (long) i, null
-          )
-    );
+    // Send the null-terminator instance to every partition, so that
+    // consumers of any partition see the end of the stream
+    for (PartitionInfo partition : producer.partitionsFor(topic)) {
+      producer.send(
+            new ProducerRecord<>(
+                  topic, partition.partition(), (long) i, null
+            )
+      );
+    }
+
+    // Make sure the terminators are sent before the task ends
+    producer.close();
 
     return null;
   }
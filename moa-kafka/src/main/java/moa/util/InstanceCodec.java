@@ -0,0 +1,370 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceCodec.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of instances for Kafka records.
+ *
+ * The header of the instances is encoded once, in a record of its own
+ * (using Java's serialisation tools). Every instance is then encoded as a
+ * record of primitive values only:
+ *   - a tag byte saying whether the instance is dense or sparse, and
+ *     whether its weight differs from 1,
+ *   - the weight (8 bytes), if it differs from 1,
+ *   - for sparse instances, the number of stored values (varint),
+ *   - for every stored value: for sparse instances, the gap to the
+ *     previous index (varint), then the value itself, as the index of the
+ *     value plus one (varint, 0 for missing) for nominal attributes, or as
+ *     the 8 bytes of the double for all others.
+ *
+ * Records written by {@link ObjectSerializer} start with the magic number
+ * of Java's serialisation streams, so they can be told apart from the
+ * records of this codec and are still decoded.
+ *
+ * Codecs keep the header and a buffer for encoding, so they are not
+ * thread-safe.
+ */
+public class InstanceCodec {
+
+  // Tag of header records
+  public static final byte HEADER_RECORD = 0x01;
+
+  // Tag of dense instance records
+  public static final byte DENSE_RECORD = 0x02;
+
+  // Tag of sparse instance records
+  public static final byte SPARSE_RECORD = 0x03;
+
+  // Flag added to the tag of instances with a weight other than 1
+  public static final byte WEIGHTED_FLAG = 0x10;
+
+  // First byte of records written with Java's serialisation tools
+  protected static final byte JAVA_SERIALISATION_MAGIC = (byte) 0xAC;
+
+  // The header of the instances
+  protected InstancesHeader m_Header = null;
+
+  // Whether each attribute is nominal
+  protected boolean[] m_Nominal = null;
+
+  // The buffer records are encoded into
+  protected byte[] m_Buffer = new byte[256];
+
+  // The number of bytes used in the buffer
+  protected int m_Length;
+
+  // The record being decoded
+  protected byte[] m_Input;
+
+  // The position of the next byte to decode
+  protected int m_Position;
+
+  /**
+   * Creates a codec which has yet to see the header, either by
+   * {@link #encodeHeader(InstancesHeader)} or {@link #decodeHeader(byte[])}.
+   */
+  public InstanceCodec() {
+  }
+
+  /**
+   * Creates a codec for instances of the given header.
+   */
+  public InstanceCodec(InstancesHeader header) {
+    setHeader(header);
+  }
+
+  /**
+   * Gets the header of the instances, or null if not known yet.
+   */
+  public InstancesHeader getHeader() {
+    return m_Header;
+  }
+
+  /**
+   * Whether the given record holds a header.
+   */
+  public static boolean isHeaderRecord(byte[] bytes) {
+    return bytes != null && bytes.length > 0 && bytes[0] == HEADER_RECORD;
+  }
+
+  /**
+   * Whether the given record holds an instance written by
+   * {@link ObjectSerializer}, which needs no header record.
+   */
+  public static boolean isSerialisedRecord(byte[] bytes) {
+    return bytes != null && bytes.length > 0 && bytes[0] == JAVA_SERIALISATION_MAGIC;
+  }
+
+  /**
+   * Encodes the header, which becomes the header of the instances
+   * encoded by this codec.
+   *
+   * @param header The header of the instances.
+   * @return The header record.
+   */
+  public byte[] encodeHeader(InstancesHeader header) {
+    setHeader(header);
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      bytes.write(HEADER_RECORD);
+      ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+      objectStream.writeObject(header);
+      objectStream.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to serialise header for Kafka", e);
+    }
+  }
+
+  /**
+   * Decodes a header record, which becomes the header of the instances
+   * decoded by this codec.
+   *
+   * @param bytes The header record.
+   * @return The header.
+   */
+  public InstancesHeader decodeHeader(byte[] bytes) {
+    if (!isHeaderRecord(bytes))
+      throw new IllegalArgumentException("Not a header record");
+
+    try {
+      ObjectInputStream objectStream = new ObjectInputStream(
+        new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+      setHeader((InstancesHeader) objectStream.readObject());
+      return m_Header;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      throw new RuntimeException("Failed to deserialise header from Kafka", e);
+    }
+  }
+
+  /**
+   * Encodes an instance of the header of this codec.
+   *
+   * @param instance The instance to encode.
+   * @return The instance record.
+   */
+  public byte[] encode(Instance instance) {
+    if (m_Header == null)
+      throw new IllegalStateException("The header has to be encoded before the instances");
+
+    m_Length = 0;
+    boolean sparse = instance instanceof SparseInstance;
+    double weight = instance.weight();
+    byte tag = sparse ? SPARSE_RECORD : DENSE_RECORD;
+    if (weight != 1.0)
+      tag |= WEIGHTED_FLAG;
+    writeByte(tag);
+    if (weight != 1.0)
+      writeDouble(weight);
+
+    if (sparse) {
+      int numValues = instance.numValues();
+      writeVarInt(numValues);
+      int previous = -1;
+      for (int p = 0; p < numValues; p++) {
+        int index = instance.index(p);
+        writeVarInt(index - previous - 1);
+        writeValue(index, instance.valueSparse(p));
+        previous = index;
+      }
+    } else {
+      for (int i = 0; i < m_Nominal.length; i++)
+        writeValue(i, instance.value(i));
+    }
+
+    return Arrays.copyOf(m_Buffer, m_Length);
+  }
+
+  /**
+   * Decodes an instance record, or a record written by
+   * {@link ObjectSerializer}.
+   *
+   * @param bytes The record.
+   * @return The instance, with the header of this codec as its dataset.
+   */
+  public Instance decode(byte[] bytes) {
+    if (isSerialisedRecord(bytes))
+      return decodeSerialised(bytes);
+
+    if (m_Header == null)
+      throw new IllegalStateException("Instance record found before its header");
+
+    m_Input = bytes;
+    m_Position = 0;
+    try {
+      byte tag = readByte();
+      int kind = tag & ~WEIGHTED_FLAG;
+      if (kind != DENSE_RECORD && kind != SPARSE_RECORD)
+        throw new IllegalArgumentException("Unknown record tag: " + tag);
+      double weight = ((tag & WEIGHTED_FLAG) != 0) ? readDouble() : 1.0;
+      Instance instance;
+      switch (kind) {
+        case DENSE_RECORD:
+          double[] values = new double[m_Nominal.length];
+          for (int i = 0; i < values.length; i++)
+            values[i] = readValue(i);
+          instance = new DenseInstance(weight, values);
+          break;
+
+        case SPARSE_RECORD:
+          int numValues = readVarInt();
+          double[] sparseValues = new double[numValues];
+          int[] indices = new int[numValues];
+          int index = -1;
+          for (int p = 0; p < numValues; p++) {
+            index += readVarInt() + 1;
+            indices[p] = index;
+            sparseValues[p] = readValue(index);
+          }
+          instance = new SparseInstance(weight, sparseValues, indices, m_Nominal.length);
+          break;
+
+        default:
+          throw new IllegalArgumentException("Unknown record tag: " + tag);
+      }
+      instance.setDataset(m_Header);
+      return instance;
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new RuntimeException("Truncated instance record from Kafka", e);
+    } finally {
+      m_Input = null;
+    }
+  }
+
+  /**
+   * Decodes a record written by {@link ObjectSerializer}, adopting the
+   * dataset of the instance as header if none is known yet.
+   */
+  protected Instance decodeSerialised(byte[] bytes) {
+    Instance instance = new ObjectDeserializer<Instance>().deserialize(null, bytes);
+    if (m_Header == null && instance.dataset() != null) {
+      if (instance.dataset() instanceof InstancesHeader)
+        setHeader((InstancesHeader) instance.dataset());
+      else
+        setHeader(new InstancesHeader(instance.dataset()));
+    }
+    return instance;
+  }
+
+  /**
+   * Sets the header and caches the types of the attributes.
+   */
+  protected void setHeader(InstancesHeader header) {
+    m_Header = header;
+    m_Nominal = new boolean[header.numAttributes()];
+    for (int i = 0; i < m_Nominal.length; i++)
+      m_Nominal[i] = header.attribute(i).isNominal();
+  }
+
+  /**
+   * Writes a value of the given attribute.
+   */
+  protected void writeValue(int attribute, double value) {
+    if (m_Nominal[attribute])
+      writeVarInt(Double.isNaN(value) ? 0 : (int) value + 1);
+    else
+      writeDouble(value);
+  }
+
+  /**
+   * Reads a value of the given attribute.
+   */
+  protected double readValue(int attribute) {
+    if (m_Nominal[attribute]) {
+      int value = readVarInt();
+      return (value == 0) ? Double.NaN : value - 1;
+    }
+    return readDouble();
+  }
+
+  /**
+   * Writes a single byte, growing the buffer if necessary.
+   */
+  protected void writeByte(int b) {
+    if (m_Length == m_Buffer.length)
+      m_Buffer = Arrays.copyOf(m_Buffer, 2 * m_Buffer.length);
+    m_Buffer[m_Length++] = (byte) b;
+  }
+
+  /**
+   * Writes a non-negative integer in 7-bit groups, least significant
+   * first.
+   */
+  protected void writeVarInt(int value) {
+    while ((value & ~0x7F) != 0) {
+      writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  /**
+   * Writes the 8 bytes of a double, most significant first.
+   */
+  protected void writeDouble(double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    for (int shift = 56; shift >= 0; shift -= 8)
+      writeByte((int) (bits >>> shift));
+  }
+
+  /**
+   * Reads a single byte.
+   */
+  protected byte readByte() {
+    return m_Input[m_Position++];
+  }
+
+  /**
+   * Reads an integer written by {@link #writeVarInt(int)}.
+   */
+  protected int readVarInt() {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+    }
+  }
+
+  /**
+   * Reads a double written by {@link #writeDouble(double)}.
+   */
+  protected double readDouble() {
+    long bits = 0;
+    for (int i = 0; i < 8; i++)
+      bits = (bits << 8) | (readByte() & 0xFF);
+    return Double.longBitsToDouble(bits);
+  }
+}
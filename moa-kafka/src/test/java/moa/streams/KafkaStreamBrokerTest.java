@@ -0,0 +1,201 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaStreamBrokerTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.generators.RandomTreeGenerator;
+import moa.tasks.WriteToTopicTask;
+import moa.util.EmbeddedKafka;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link KafkaStream} against a broker, on topics written by
+ * {@link WriteToTopicTask}.
+ */
+public class KafkaStreamBrokerTest {
+
+  protected static EmbeddedKafka m_Kafka;
+
+  @BeforeClass
+  public static void startKafka() throws Exception {
+    m_Kafka = new EmbeddedKafka();
+  }
+
+  @AfterClass
+  public static void stopKafka() {
+    m_Kafka.close();
+  }
+
+  protected static RandomTreeGenerator createGenerator() {
+    RandomTreeGenerator generator = new RandomTreeGenerator();
+    generator.prepareForUse();
+    return generator;
+  }
+
+  /**
+   * Writes the instances of a generator to a new topic.
+   */
+  protected static void writeTopic(String topic, int numPartitions, int numInstances, boolean binary)
+    throws Exception {
+    m_Kafka.createTopic(topic, numPartitions);
+    WriteToTopicTask task = new WriteToTopicTask();
+    task.streamOption.setCurrentObject(createGenerator());
+    task.maxInstancesOption.setValue(numInstances);
+    task.topicOption.setValue(topic);
+    task.hostOption.setValue(m_Kafka.getHost());
+    task.portOption.setValue(m_Kafka.getPort());
+    task.formatOption.setChosenIndex(binary ? 0 : 1);
+    task.prepareForUse();
+    task.doTask();
+  }
+
+  protected static KafkaStream createStream(String topic, int highWatermark, int lowWatermark, boolean resume) {
+    KafkaStream stream = new KafkaStream();
+    stream.topicOption.setValue(topic);
+    stream.hostOption.setValue(m_Kafka.getHost());
+    stream.portOption.setValue(m_Kafka.getPort());
+    stream.highWatermarkOption.setValue(highWatermark);
+    stream.lowWatermarkOption.setValue(lowWatermark);
+    stream.resumeOption.setValue(resume);
+    stream.prepareForUse();
+    return stream;
+  }
+
+  protected static String key(Instance instance) {
+    return Arrays.toString(instance.toDoubleArray()) + "/" + instance.weight();
+  }
+
+  /**
+   * The instances of the generator, in the order they were written.
+   */
+  protected static List<String> generated(int numInstances) {
+    RandomTreeGenerator generator = createGenerator();
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < numInstances; i++)
+      keys.add(key(generator.nextInstance().getData()));
+    return keys;
+  }
+
+  protected static String next(KafkaStream stream) {
+    return key(stream.nextInstance().getData());
+  }
+
+  protected static List<String> drain(KafkaStream stream, int highWatermark) {
+    List<String> keys = new ArrayList<>();
+    while (stream.hasMoreInstances()) {
+      assertTrue(stream.getQueueDepth() <= highWatermark);
+      keys.add(next(stream));
+    }
+    return keys;
+  }
+
+  protected static void waitFor(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 30000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline)
+        fail("Timed out");
+      Thread.yield();
+    }
+  }
+
+  protected static List<String> sorted(List<String> keys) {
+    List<String> result = new ArrayList<>(keys);
+    Collections.sort(result);
+    return result;
+  }
+
+  @Test(timeout = 120000)
+  public void testWatermarks() throws Exception {
+    writeTopic("watermarks", 3, 2000, true);
+    KafkaStream stream = createStream("watermarks", 50, 10, false);
+    assertEquals(createGenerator().getHeader().numAttributes(), stream.getHeader().numAttributes());
+
+    assertTrue(stream.hasMoreInstances());
+    waitFor(() -> stream.getQueueDepth() == 50);
+    Thread.sleep(500);
+    assertEquals(50, stream.getQueueDepth());
+
+    // Above the low watermark, the fetcher keeps waiting
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 39; i++)
+      keys.add(next(stream));
+    Thread.sleep(500);
+    assertEquals(11, stream.getQueueDepth());
+
+    // At the low watermark, it fills the buffer again
+    keys.add(next(stream));
+    waitFor(() -> stream.getQueueDepth() == 50);
+    Thread.sleep(500);
+    assertEquals(50, stream.getQueueDepth());
+
+    keys.addAll(drain(stream, 50));
+    assertEquals(sorted(generated(2000)), sorted(keys));
+    assertEquals(0, stream.estimatedRemainingInstances());
+    stream.close();
+  }
+
+  @Test(timeout = 120000)
+  public void testResume() throws Exception {
+    writeTopic("resume", 2, 300, true);
+    List<String> expected = sorted(generated(300));
+
+    KafkaStream stream = createStream("resume", 16, 4, true);
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 70; i++)
+      keys.add(next(stream));
+
+    // The buffered instances are thrown away, and fetched again
+    stream.restart();
+    keys.addAll(drain(stream, 16));
+    assertEquals(expected, sorted(keys));
+
+    // Once all is consumed, resuming finds just the ends of the partitions
+    stream.restart();
+    assertFalse(stream.hasMoreInstances());
+    stream.close();
+
+    // Without resuming, restarting goes back to the beginning
+    KafkaStream fresh = createStream("resume", 16, 4, false);
+    for (int i = 0; i < 70; i++)
+      next(fresh);
+    fresh.restart();
+    assertEquals(expected, sorted(drain(fresh, 16)));
+    fresh.close();
+  }
+
+  @Test(timeout = 120000)
+  public void testSerialisedTopic() throws Exception {
+    writeTopic("serialised", 1, 500, false);
+    KafkaStream stream = createStream("serialised", 16, 4, false);
+    assertEquals(generated(500), drain(stream, 16));
+    stream.close();
+  }
+}
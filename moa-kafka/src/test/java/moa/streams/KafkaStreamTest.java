@@ -0,0 +1,316 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KafkaStreamTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package moa.streams;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.util.InstanceCodec;
+import moa.util.ObjectSerializer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the fetching of {@link KafkaStream} against Kafka's
+ * {@link MockConsumer}.
+ */
+public class KafkaStreamTest {
+
+  protected static final String TOPIC = "instances";
+
+  protected final InstancesHeader m_Header = createHeader();
+
+  protected final InstanceCodec m_Codec = new InstanceCodec(m_Header);
+
+  /**
+   * Stream consuming from the given mock consumers, one per fetcher.
+   */
+  protected static class MockStream extends KafkaStream {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Deque<MockConsumer<Long, byte[]>> m_Consumers = new ArrayDeque<>();
+
+    protected MockStream(int highWatermark, int lowWatermark, boolean resume) {
+      topicOption.setValue(TOPIC);
+      highWatermarkOption.setValue(highWatermark);
+      lowWatermarkOption.setValue(lowWatermark);
+      resumeOption.setValue(resume);
+      prepareForUse();
+    }
+
+    @Override
+    protected Consumer<Long, byte[]> createConsumer() {
+      return m_Consumers.remove();
+    }
+  }
+
+  protected static InstancesHeader createHeader() {
+    ArrayList<Attribute> attributes = new ArrayList<>();
+    attributes.add(new Attribute("id"));
+    attributes.add(new Attribute("class", Arrays.asList("a", "b")));
+    Instances dataset = new Instances("test", attributes, 0);
+    dataset.setClassIndex(1);
+    return new InstancesHeader(dataset);
+  }
+
+  /**
+   * Creates a mock consumer of the topic with the given number of
+   * partitions, which returns each batch of records on its own poll.
+   */
+  @SafeVarargs
+  protected static MockConsumer<Long, byte[]> createConsumer(int numPartitions,
+                                                            List<ConsumerRecord<Long, byte[]>>... polls) {
+    MockConsumer<Long, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    List<PartitionInfo> partitions = new ArrayList<>();
+    Map<TopicPartition, Long> beginnings = new HashMap<>();
+    for (int i = 0; i < numPartitions; i++) {
+      partitions.add(new PartitionInfo(TOPIC, i, null, new Node[0], new Node[0]));
+      beginnings.put(new TopicPartition(TOPIC, i), 0L);
+    }
+    consumer.updatePartitions(TOPIC, partitions);
+    consumer.updateBeginningOffsets(beginnings);
+    for (List<ConsumerRecord<Long, byte[]>> poll : polls)
+      consumer.schedulePollTask(() -> poll.forEach(consumer::addRecord));
+    return consumer;
+  }
+
+  protected static ConsumerRecord<Long, byte[]> record(int partition, long offset, byte[] value) {
+    return new ConsumerRecord<>(TOPIC, partition, offset, offset, value);
+  }
+
+  protected Instance instance(double id) {
+    Instance instance = new DenseInstance(1.0, new double[]{id, id % 2});
+    instance.setDataset(m_Header);
+    return instance;
+  }
+
+  /**
+   * The records of a partition written by WriteToTopicTask: the header
+   * record, the instances with the given ids, and the end of the partition.
+   */
+  protected List<ConsumerRecord<Long, byte[]>> partition(int partition, int... ids) {
+    List<ConsumerRecord<Long, byte[]>> records = new ArrayList<>();
+    records.add(record(partition, 0, m_Codec.encodeHeader(m_Header)));
+    for (int id : ids)
+      records.add(record(partition, records.size(), m_Codec.encode(instance(id))));
+    records.add(record(partition, records.size(), null));
+    return records;
+  }
+
+  protected static int[] range(int from, int to) {
+    int[] ids = new int[to - from];
+    for (int i = 0; i < ids.length; i++)
+      ids[i] = from + i;
+    return ids;
+  }
+
+  protected static int nextId(KafkaStream stream) {
+    return (int) stream.nextInstance().getData().value(0);
+  }
+
+  protected static List<Integer> drain(KafkaStream stream) {
+    List<Integer> ids = new ArrayList<>();
+    while (stream.hasMoreInstances())
+      ids.add(nextId(stream));
+    return ids;
+  }
+
+  protected static void waitFor(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline)
+        fail("Timed out");
+      Thread.yield();
+    }
+  }
+
+  protected static List<Integer> sorted(List<Integer> ids) {
+    List<Integer> result = new ArrayList<>(ids);
+    Collections.sort(result);
+    return result;
+  }
+
+  protected static List<Integer> list(int... ids) {
+    List<Integer> result = new ArrayList<>();
+    for (int id : ids)
+      result.add(id);
+    return result;
+  }
+
+  @Test(timeout = 20000)
+  public void testWatermarks() throws Exception {
+    MockStream stream = new MockStream(10, 4, false);
+    stream.m_Consumers.add(createConsumer(1, partition(0, range(0, 100))));
+
+    assertTrue(stream.hasMoreInstances());
+    waitFor(() -> stream.getQueueDepth() == 10);
+    Thread.sleep(50);
+    assertEquals(10, stream.getQueueDepth());
+
+    // Above the low watermark, the fetcher keeps waiting
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+      ids.add(nextId(stream));
+    Thread.sleep(50);
+    assertEquals(5, stream.getQueueDepth());
+
+    // At the low watermark, it fills the buffer again
+    ids.add(nextId(stream));
+    waitFor(() -> stream.getQueueDepth() == 10);
+    Thread.sleep(50);
+    assertEquals(10, stream.getQueueDepth());
+
+    ids.addAll(drain(stream));
+    assertEquals(list(range(0, 100)), ids);
+    assertEquals(0, stream.estimatedRemainingInstances());
+    stream.close();
+  }
+
+  @Test(timeout = 20000)
+  public void testResume() {
+    List<ConsumerRecord<Long, byte[]>> first = partition(0, range(0, 20));
+    List<ConsumerRecord<Long, byte[]>> second = partition(1, range(100, 110));
+    List<ConsumerRecord<Long, byte[]>> all = new ArrayList<>(first);
+    all.addAll(second);
+    List<Integer> expected = list(range(0, 20));
+    expected.addAll(list(range(100, 110)));
+
+    MockStream stream = new MockStream(10, 5, true);
+    stream.m_Consumers.add(createConsumer(2, all));
+    stream.m_Consumers.add(createConsumer(2, all));
+    assertEquals(m_Header.numAttributes(), stream.getHeader().numAttributes());
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 7; i++)
+      ids.add(nextId(stream));
+
+    // The buffered instances are thrown away, and fetched again
+    stream.restart();
+    ids.addAll(drain(stream));
+    assertEquals(expected, sorted(ids));
+    assertTrue(stream.m_Consumers.isEmpty());
+
+    // Once all is consumed, resuming finds just the ends of the partitions
+    stream.m_Consumers.add(createConsumer(2, all));
+    stream.restart();
+    assertFalse(stream.hasMoreInstances());
+    assertTrue(stream.m_Consumers.isEmpty());
+
+    // Without resuming, restarting goes back to the beginning
+    MockStream fresh = new MockStream(10, 5, false);
+    fresh.m_Consumers.add(createConsumer(2, all));
+    fresh.m_Consumers.add(createConsumer(2, all));
+    for (int i = 0; i < 7; i++)
+      nextId(fresh);
+    fresh.restart();
+    assertEquals(expected, sorted(drain(fresh)));
+  }
+
+  @Test(timeout = 20000)
+  public void testHeaderAfterData() {
+    // The first poll returns instances of a partition before its header
+    MockStream stream = new MockStream(100, 50, false);
+    stream.m_Consumers.add(createConsumer(1,
+      Arrays.asList(
+        record(0, 0, m_Codec.encode(instance(0))),
+        record(0, 1, m_Codec.encode(instance(1)))),
+      Arrays.asList(
+        record(0, 2, m_Codec.encodeHeader(m_Header)),
+        record(0, 3, m_Codec.encode(instance(2))),
+        record(0, 4, null))));
+
+    assertEquals(list(0, 1, 2), drain(stream));
+    assertEquals("id", stream.getHeader().attribute(0).name());
+  }
+
+  @Test(timeout = 20000)
+  public void testEveryPartitionEnds() {
+    // The first partition ends before the second is fetched
+    MockStream stream = new MockStream(100, 50, false);
+    stream.m_Consumers.add(createConsumer(2,
+      partition(0, 0, 1),
+      Collections.emptyList(),
+      partition(1, 2, 3, 4)));
+
+    assertEquals(list(0, 1, 2, 3, 4), drain(stream));
+  }
+
+  @Test(timeout = 20000)
+  public void testSerialisedTopicEndsAtFirstSentinel() {
+    ObjectSerializer<Instance> serializer = new ObjectSerializer<>();
+    MockStream stream = new MockStream(100, 50, false);
+    stream.m_Consumers.add(createConsumer(2,
+      Arrays.asList(record(0, 0, serializer.serialize(TOPIC, instance(0))), record(0, 1, null)),
+      Collections.singletonList(record(1, 0, serializer.serialize(TOPIC, instance(1))))));
+
+    assertEquals(list(0), drain(stream));
+    assertEquals(0, stream.estimatedRemainingInstances());
+  }
+
+  @Test(timeout = 20000)
+  public void testCloseWhileBufferIsFull() {
+    MockConsumer<Long, byte[]> consumer = createConsumer(1, partition(0, range(0, 100)));
+    MockStream stream = new MockStream(2, 1, false);
+    stream.m_Consumers.add(consumer);
+
+    assertTrue(stream.hasMoreInstances());
+    waitFor(() -> stream.getQueueDepth() == 2);
+    Thread thread = stream.m_Fetcher.m_Thread;
+    stream.close();
+    assertFalse(thread.isAlive());
+    assertTrue(consumer.closed());
+    assertEquals(0, stream.getQueueDepth());
+  }
+
+  @Test(timeout = 20000)
+  public void testCloseWhilePolling() {
+    MockConsumer<Long, byte[]> consumer = createConsumer(1);
+    MockStream stream = new MockStream(10, 5, false);
+    stream.m_Consumers.add(consumer);
+
+    KafkaStream.Fetcher fetcher = stream.establishFetcher();
+    waitFor(() -> !consumer.closed() && !consumer.assignment().isEmpty());
+    stream.close();
+    assertFalse(fetcher.m_Thread.isAlive());
+    assertTrue(consumer.closed());
+    assertNull(fetcher.m_Failure);
+  }
+}
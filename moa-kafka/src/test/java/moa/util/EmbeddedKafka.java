@@ -0,0 +1,144 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EmbeddedKafka.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import kafka.metrics.KafkaMetricsReporter;
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaServer;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.network.ListenerName;
+import org.apache.kafka.common.utils.Time;
+import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import scala.Option;
+import scala.collection.JavaConverters;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A single Kafka broker with its ZooKeeper, running in the test's JVM on
+ * free ports, for the tests against a real Kafka.
+ */
+public class EmbeddedKafka implements Closeable {
+
+  // The directory of the ZooKeeper snapshots and logs
+  protected final File m_ZooKeeperDir;
+
+  // The directory of the broker's logs
+  protected final File m_LogDir;
+
+  // The ZooKeeper server
+  protected final ZooKeeperServer m_ZooKeeper;
+
+  // The connections to the ZooKeeper server
+  protected final ServerCnxnFactory m_ZooKeeperConnections;
+
+  // The Kafka broker
+  protected final KafkaServer m_Broker;
+
+  // The port the broker listens on
+  protected final int m_Port;
+
+  /**
+   * Starts ZooKeeper and the broker.
+   */
+  public EmbeddedKafka() throws IOException, InterruptedException {
+    m_ZooKeeperDir = Files.createTempDirectory("zookeeper").toFile();
+    m_LogDir = Files.createTempDirectory("kafka").toFile();
+
+    m_ZooKeeper = new ZooKeeperServer(m_ZooKeeperDir, m_ZooKeeperDir, 2000);
+    m_ZooKeeperConnections = NIOServerCnxnFactory.createFactory(new InetSocketAddress("localhost", 0), 16);
+    m_ZooKeeperConnections.startup(m_ZooKeeper);
+
+    Properties props = new Properties();
+    props.put("broker.id", "0");
+    props.put("zookeeper.connect", "localhost:" + m_ZooKeeperConnections.getLocalPort());
+    props.put("listeners", "PLAINTEXT://localhost:0");
+    props.put("log.dirs", m_LogDir.getAbsolutePath());
+    props.put("auto.create.topics.enable", "false");
+    props.put("offsets.topic.replication.factor", "1");
+    props.put("offsets.topic.num.partitions", "1");
+    props.put("transaction.state.log.replication.factor", "1");
+    props.put("transaction.state.log.min.isr", "1");
+    props.put("group.initial.rebalance.delay.ms", "0");
+    m_Broker = new KafkaServer(KafkaConfig.fromProps(props), Time.SYSTEM, Option.<String>empty(),
+      JavaConverters.asScalaBuffer(Collections.<KafkaMetricsReporter>emptyList()));
+    m_Broker.startup();
+    m_Port = m_Broker.boundPort(ListenerName.normalised("PLAINTEXT"));
+  }
+
+  /**
+   * Gets the host of the broker.
+   */
+  public String getHost() {
+    return "localhost";
+  }
+
+  /**
+   * Gets the port of the broker, as for the port options.
+   */
+  public String getPort() {
+    return Integer.toString(m_Port);
+  }
+
+  /**
+   * Creates a topic with the given number of partitions.
+   */
+  public void createTopic(String topic, int numPartitions) throws ExecutionException, InterruptedException {
+    Map<String, Object> config = new HashMap<>();
+    config.put("bootstrap.servers", KafkaUtils.broker(getHost(), getPort()));
+    try (AdminClient admin = AdminClient.create(config)) {
+      admin.createTopics(Collections.singletonList(new NewTopic(topic, numPartitions, (short) 1))).all().get();
+    }
+  }
+
+  /**
+   * Stops the broker and ZooKeeper, and deletes their directories.
+   */
+  @Override
+  public void close() {
+    m_Broker.shutdown();
+    m_Broker.awaitShutdown();
+    m_ZooKeeperConnections.shutdown();
+    m_ZooKeeper.shutdown();
+    delete(m_LogDir);
+    delete(m_ZooKeeperDir);
+  }
+
+  protected static void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null)
+      for (File child : files)
+        delete(child);
+    file.delete();
+  }
+}
@@ -0,0 +1,109 @@
+package moa.util;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Round trips of instances through InstanceCodec and a broker, with the
+ * serialisers of the producer and the consumer of the Kafka tasks.
+ */
+public class InstanceCodecBrokerTest {
+
+  protected static EmbeddedKafka m_Kafka;
+
+  @BeforeClass
+  public static void startKafka() throws Exception {
+    m_Kafka = new EmbeddedKafka();
+  }
+
+  @AfterClass
+  public static void stopKafka() {
+    m_Kafka.close();
+  }
+
+  protected static Map<String, Object> producerConfig() {
+    Map<String, Object> config = new HashMap<>();
+    config.put("key.serializer", LongSerializer.class);
+    config.put("value.serializer", ByteArraySerializer.class);
+    config.put("bootstrap.servers", KafkaUtils.broker(m_Kafka.getHost(), m_Kafka.getPort()));
+    return config;
+  }
+
+  protected static Map<String, Object> consumerConfig() {
+    Map<String, Object> config = new HashMap<>();
+    config.put("key.deserializer", LongDeserializer.class);
+    config.put("value.deserializer", ByteArrayDeserializer.class);
+    config.put("bootstrap.servers", KafkaUtils.broker(m_Kafka.getHost(), m_Kafka.getPort()));
+    config.put("enable.auto.commit", false);
+    config.put("auto.offset.reset", "earliest");
+    return config;
+  }
+
+  @Test(timeout = 60000)
+  public void testThroughBroker() throws Exception {
+    String topic = "codec";
+    m_Kafka.createTopic(topic, 1);
+    InstancesHeader header = InstanceCodecTest.newHeader();
+    Random random = new Random(1);
+    List<Instance> instances = new ArrayList<Instance>();
+    for (int i = 0; i < 500; i++)
+      instances.add(InstanceCodecTest.newInstance(header, random, random.nextBoolean()));
+
+    InstanceCodec encoder = new InstanceCodec();
+    try (KafkaProducer<Long, byte[]> producer = new KafkaProducer<>(producerConfig())) {
+      producer.send(new ProducerRecord<>(topic, 0, null, encoder.encodeHeader(header)));
+      for (int i = 0; i < instances.size(); i++)
+        producer.send(new ProducerRecord<>(topic, 0, (long) i, encoder.encode(instances.get(i))));
+    }
+
+    List<ConsumerRecord<Long, byte[]>> records = new ArrayList<>();
+    try (KafkaConsumer<Long, byte[]> consumer = new KafkaConsumer<>(consumerConfig())) {
+      consumer.assign(Collections.singletonList(new TopicPartition(topic, 0)));
+      long deadline = System.currentTimeMillis() + 30000;
+      while (records.size() < instances.size() + 1) {
+        if (System.currentTimeMillis() > deadline)
+          fail("Timed out after " + records.size() + " records");
+        for (ConsumerRecord<Long, byte[]> record : consumer.poll(Duration.ofMillis(100)))
+          records.add(record);
+      }
+    }
+    assertEquals(instances.size() + 1, records.size());
+
+    InstanceCodec decoder = new InstanceCodec();
+    assertTrue(InstanceCodec.isHeaderRecord(records.get(0).value()));
+    assertNull(records.get(0).key());
+    InstancesHeader decodedHeader = decoder.decodeHeader(records.get(0).value());
+    assertEquals(header.numAttributes(), decodedHeader.numAttributes());
+    assertEquals(header.classIndex(), decodedHeader.classIndex());
+    for (int i = 0; i < instances.size(); i++) {
+      ConsumerRecord<Long, byte[]> record = records.get(i + 1);
+      assertEquals(Long.valueOf(i), record.key());
+      Instance decoded = decoder.decode(record.value());
+      assertSame(decodedHeader, decoded.dataset());
+      InstanceCodecTest.assertSameInstance(instances.get(i), decoded);
+    }
+  }
+}
@@ -0,0 +1,307 @@
+package moa.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Round trips of instances and headers through InstanceCodec, and decoding
+ * of legacy, truncated and unknown records.
+ */
+public class InstanceCodecTest {
+
+  // The number of numeric attributes of the test header
+  private static final int NUM_NUMERIC = 300;
+
+  // The number of values of the large nominal attribute
+  private static final int NUM_VALUES = 300;
+
+  /**
+   * Creates a header with many numeric attributes (for index gaps of 128
+   * and more), a nominal attribute with many values (for nominal values of
+   * 128 and more), a small nominal attribute and a nominal class.
+   */
+  static InstancesHeader newHeader() {
+    ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+    for (int i = 0; i < NUM_NUMERIC; i++)
+      attributes.add(new Attribute("num" + i));
+    List<String> values = new ArrayList<String>();
+    for (int i = 0; i < NUM_VALUES; i++)
+      values.add("v" + i);
+    attributes.add(new Attribute("large", values));
+    attributes.add(new Attribute("small", Arrays.asList("a", "b")));
+    attributes.add(new Attribute("class", Arrays.asList("p", "q", "r")));
+    InstancesHeader header = new InstancesHeader(new Instances("test", attributes, 0));
+    header.setClassIndex(NUM_NUMERIC + 2);
+    return header;
+  }
+
+  /**
+   * Creates a random instance, dense or sparse, with some missing values.
+   */
+  static Instance newInstance(InstancesHeader header, Random random, boolean sparse) {
+    int numAttributes = header.numAttributes();
+    double[] values = new double[numAttributes];
+    for (int j = 0; j < NUM_NUMERIC; j++)
+      if (random.nextInt(sparse ? 50 : 2) == 0)
+        values[j] = random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian();
+    values[NUM_NUMERIC] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(NUM_VALUES);
+    values[NUM_NUMERIC + 1] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(2);
+    values[NUM_NUMERIC + 2] = random.nextInt(3);
+    double weight = random.nextBoolean() ? 1.0 : random.nextDouble() * 5;
+
+    Instance instance;
+    if (sparse) {
+      int n = 0;
+      for (double value : values)
+        if (value != 0)
+          n++;
+      double[] stored = new double[n];
+      int[] indices = new int[n];
+      n = 0;
+      for (int j = 0; j < numAttributes; j++) {
+        if (values[j] != 0) {
+          stored[n] = values[j];
+          indices[n++] = j;
+        }
+      }
+      instance = new SparseInstance(weight, stored, indices, numAttributes);
+    } else {
+      instance = new DenseInstance(weight, values);
+    }
+    instance.setDataset(header);
+    return instance;
+  }
+
+  static void assertSameInstance(Instance expected, Instance actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    assertEquals(expected.numAttributes(), actual.numAttributes());
+    assertEquals(expected.numValues(), actual.numValues());
+    assertEquals(expected.weight(), actual.weight(), 0.0);
+    for (int j = 0; j < expected.numAttributes(); j++) {
+      assertEquals("attribute " + j, expected.isMissing(j), actual.isMissing(j));
+      if (!expected.isMissing(j))
+        assertEquals("attribute " + j, expected.value(j), actual.value(j), 0.0);
+    }
+    for (int p = 0; p < expected.numValues(); p++)
+      assertEquals(expected.index(p), actual.index(p));
+  }
+
+  /**
+   * Encodes the instances and decodes them with a codec which only knows
+   * the header record.
+   */
+  private static void roundTrip(InstancesHeader header, List<Instance> instances) {
+    InstanceCodec encoder = new InstanceCodec();
+    byte[] headerRecord = encoder.encodeHeader(header);
+    assertTrue(InstanceCodec.isHeaderRecord(headerRecord));
+
+    InstanceCodec decoder = new InstanceCodec();
+    InstancesHeader decodedHeader = decoder.decodeHeader(headerRecord);
+    assertEquals(header.numAttributes(), decodedHeader.numAttributes());
+    assertEquals(header.classIndex(), decodedHeader.classIndex());
+    for (int j = 0; j < header.numAttributes(); j++) {
+      assertEquals(header.attribute(j).name(), decodedHeader.attribute(j).name());
+      assertEquals(header.attribute(j).numValues(), decodedHeader.attribute(j).numValues());
+    }
+
+    for (Instance instance : instances) {
+      byte[] record = encoder.encode(instance);
+      assertFalse(InstanceCodec.isHeaderRecord(record));
+      Instance decoded = decoder.decode(record);
+      assertSame(decodedHeader, decoded.dataset());
+      assertSameInstance(instance, decoded);
+    }
+  }
+
+  @Test
+  public void testDenseAndSparse() {
+    InstancesHeader header = newHeader();
+    Random random = new Random(1);
+    List<Instance> instances = new ArrayList<Instance>();
+    for (int i = 0; i < 500; i++)
+      instances.add(newInstance(header, random, random.nextBoolean()));
+    roundTrip(header, instances);
+  }
+
+  @Test
+  public void testGenerators() {
+    RandomRBFGenerator rbf = new RandomRBFGenerator();
+    rbf.prepareForUse();
+    AgrawalGenerator agrawal = new AgrawalGenerator();
+    agrawal.prepareForUse();
+    for (InstanceStream stream : new InstanceStream[]{rbf, agrawal}) {
+      List<Instance> instances = new ArrayList<Instance>();
+      for (int i = 0; i < 500; i++)
+        instances.add(stream.nextInstance().getData());
+      roundTrip(stream.getHeader(), instances);
+    }
+  }
+
+  @Test
+  public void testTagsAndWeights() {
+    InstancesHeader header = newHeader();
+    InstanceCodec codec = new InstanceCodec(header);
+    Instance dense = new DenseInstance(header.numAttributes());
+    dense.setDataset(header);
+    assertEquals(InstanceCodec.DENSE_RECORD, codec.encode(dense)[0]);
+    dense.setWeight(2.5);
+    byte[] weighted = codec.encode(dense);
+    assertEquals(InstanceCodec.DENSE_RECORD | InstanceCodec.WEIGHTED_FLAG, weighted[0]);
+    assertEquals(2.5, codec.decode(weighted).weight(), 0.0);
+
+    Instance sparse = new SparseInstance(1.0, new double[0], new int[0], header.numAttributes());
+    sparse.setDataset(header);
+    byte[] record = codec.encode(sparse);
+    // the tag and the number of stored values
+    assertArrayEquals(new byte[]{InstanceCodec.SPARSE_RECORD, 0}, record);
+    assertSameInstance(sparse, codec.decode(record));
+  }
+
+  @Test
+  public void testMissingValues() {
+    InstancesHeader header = newHeader();
+    InstanceCodec codec = new InstanceCodec(header);
+    double[] values = new double[header.numAttributes()];
+    Arrays.fill(values, Double.NaN);
+    values[header.classIndex()] = 1;
+    Instance dense = new DenseInstance(1.0, values);
+    dense.setDataset(header);
+    Instance decoded = codec.decode(codec.encode(dense));
+    for (int j = 0; j < header.numAttributes(); j++)
+      assertEquals(j != header.classIndex(), decoded.isMissing(j));
+
+    Instance sparse = new SparseInstance(1.0, new double[]{Double.NaN, Double.NaN, Double.NaN},
+      new int[]{5, NUM_NUMERIC, NUM_NUMERIC + 1}, header.numAttributes());
+    sparse.setDataset(header);
+    decoded = codec.decode(codec.encode(sparse));
+    assertTrue(decoded.isMissing(5));
+    assertTrue(decoded.isMissing(NUM_NUMERIC));
+    assertTrue(decoded.isMissing(NUM_NUMERIC + 1));
+    assertFalse(decoded.isMissing(6));
+  }
+
+  @Test
+  public void testLargeVarInts() {
+    InstancesHeader header = newHeader();
+    InstanceCodec codec = new InstanceCodec(header);
+
+    // index gaps of 127, 128 and more, and nominal values of 127 and more
+    for (int gap : new int[]{126, 127, 128, 200, NUM_NUMERIC - 1}) {
+      for (int value : new int[]{0, 126, 127, 128, NUM_VALUES - 1}) {
+        Instance sparse = new SparseInstance(1.0, new double[]{1.5, value},
+          new int[]{0, NUM_NUMERIC}, header.numAttributes());
+        sparse.setDataset(header);
+        assertSameInstance(sparse, codec.decode(codec.encode(sparse)));
+
+        Instance gapped = new SparseInstance(1.0, new double[]{2.5}, new int[]{gap},
+          header.numAttributes());
+        gapped.setDataset(header);
+        byte[] record = codec.encode(gapped);
+        // tag, number of values, gap (one byte below 128), double
+        assertEquals(1 + 1 + (gap < 128 ? 1 : 2) + 8, record.length);
+        assertSameInstance(gapped, codec.decode(record));
+      }
+    }
+
+    // more than 127 stored values
+    double[] stored = new double[NUM_NUMERIC];
+    int[] indices = new int[NUM_NUMERIC];
+    for (int j = 0; j < NUM_NUMERIC; j++) {
+      stored[j] = j + 1;
+      indices[j] = j;
+    }
+    Instance full = new SparseInstance(1.0, stored, indices, header.numAttributes());
+    full.setDataset(header);
+    assertSameInstance(full, codec.decode(codec.encode(full)));
+  }
+
+  @Test
+  public void testLegacyRecords() {
+    InstancesHeader header = newHeader();
+    Random random = new Random(2);
+    ObjectSerializer<Instance> serializer = new ObjectSerializer<Instance>();
+    InstanceCodec codec = new InstanceCodec();
+    for (int i = 0; i < 20; i++) {
+      Instance instance = newInstance(header, random, random.nextBoolean());
+      byte[] record = serializer.serialize("topic", instance);
+      assertEquals((byte) 0xAC, record[0]);
+      assertSameInstance(instance, codec.decode(record));
+    }
+    // the header is picked up from the serialised instances
+    assertNotNull(codec.getHeader());
+    assertEquals(header.numAttributes(), codec.getHeader().numAttributes());
+    Instance instance = newInstance(header, random, false);
+    assertSameInstance(instance, codec.decode(new InstanceCodec(header).encode(instance)));
+  }
+
+  @Test
+  public void testTruncatedRecords() {
+    InstancesHeader header = newHeader();
+    Random random = new Random(3);
+    InstanceCodec codec = new InstanceCodec(header);
+    for (int i = 0; i < 20; i++) {
+      byte[] record = codec.encode(newInstance(header, random, i % 2 == 0));
+      for (int length = 0; length < record.length; length++) {
+        try {
+          codec.decode(Arrays.copyOf(record, length));
+          fail("decoded a record truncated to " + length + " of " + record.length + " bytes");
+        } catch (RuntimeException e) {
+          assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated"));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnknownTags() {
+    InstanceCodec codec = new InstanceCodec(newHeader());
+    for (byte tag : new byte[]{0x00, InstanceCodec.HEADER_RECORD, 0x04, 0x7F, (byte) 0x80}) {
+      try {
+        codec.decode(new byte[]{tag, 0, 0, 0});
+        fail("decoded a record with tag " + tag);
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().startsWith("Unknown record tag"));
+      }
+    }
+  }
+
+  @Test
+  public void testHeaderFirst() {
+    InstanceCodec codec = new InstanceCodec();
+    try {
+      codec.decode(new byte[]{InstanceCodec.DENSE_RECORD});
+      fail("decoded an instance before the header");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      codec.encode(new DenseInstance(1));
+      fail("encoded an instance before the header");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      codec.decodeHeader(new byte[]{InstanceCodec.DENSE_RECORD});
+      fail("decoded an instance record as header");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceCodecTiming.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package moa.util;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.options.AbstractOptionHandler;
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+/**
+ * Record size and encoding speed of the instances of some generators,
+ * encoded by an {@link InstanceCodec} and by the {@link ObjectSerializer}
+ * used before. The instances are encoded and decoded in-process, without a
+ * broker, so this measures the codecs only.
+ *
+ * Usage, with the test classpath: InstanceCodecTiming [numInstances]
+ */
+public class InstanceCodecTiming {
+
+  public static void main(String[] args) {
+    int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+    System.out.println("stream\tJava (bytes/record)\tbinary (bytes/record)"
+      + "\tJava (inst/s)\tbinary (inst/s)");
+    InstanceStream[] streams = {
+      new RandomRBFGenerator(), new AgrawalGenerator(), new RandomTreeGenerator()
+    };
+    for (InstanceStream stream : streams) {
+      ((AbstractOptionHandler) stream).prepareForUse();
+      Instance[] instances = new Instance[numInstances];
+      for (int i = 0; i < numInstances; i++)
+        instances[i] = stream.nextInstance().getData();
+
+      // The first round warms up
+      double[] java = null;
+      double[] binary = null;
+      for (int round = 0; round < 3; round++) {
+        java = runJava(instances);
+        binary = runBinary(stream.getHeader(), instances);
+      }
+      System.out.println(stream.getClass().getSimpleName()
+        + "\t" + String.format("%.1f", java[0])
+        + "\t" + String.format("%.1f", binary[0])
+        + "\t" + String.format("%.0f", java[1])
+        + "\t" + String.format("%.0f", binary[1]));
+    }
+  }
+
+  /**
+   * Encodes and decodes the instances with Java's serialisation tools.
+   *
+   * @return The mean record size and the instances per second.
+   */
+  protected static double[] runJava(Instance[] instances) {
+    ObjectSerializer<Instance> serializer = new ObjectSerializer<>();
+    ObjectDeserializer<Instance> deserializer = new ObjectDeserializer<>();
+    long bytes = 0;
+    long start = System.nanoTime();
+    for (Instance instance : instances) {
+      byte[] record = serializer.serialize("topic", instance);
+      bytes += record.length;
+      deserializer.deserialize("topic", record);
+    }
+    double seconds = (System.nanoTime() - start) / 1.0e9;
+    return new double[]{(double) bytes / instances.length, instances.length / seconds};
+  }
+
+  /**
+   * Encodes and decodes the instances with an {@link InstanceCodec}, not
+   * counting the header record, which is sent once per topic.
+   *
+   * @return The mean record size and the instances per second.
+   */
+  protected static double[] runBinary(InstancesHeader header, Instance[] instances) {
+    InstanceCodec encoder = new InstanceCodec(header);
+    InstanceCodec decoder = new InstanceCodec(header);
+    long bytes = 0;
+    long start = System.nanoTime();
+    for (Instance instance : instances) {
+      byte[] record = encoder.encode(instance);
+      bytes += record.length;
+      decoder.decode(record);
+    }
+    double seconds = (System.nanoTime() - start) / 1.0e9;
+    return new double[]{(double) bytes / instances.length, instances.length / seconds};
+  }
+}
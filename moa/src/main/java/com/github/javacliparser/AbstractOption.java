@@ -23,7 +23,7 @@ package com.github.javacliparser;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public abstract class AbstractOption implements Option {
+public abstract class AbstractOption implements Option, Cloneable {
 
     /** Array of characters not valid to use in option names. */
     public static final char[] illegalNameCharacters = new char[]{' ', '-',
@@ -98,18 +98,37 @@ public abstract class AbstractOption implements Option {
    
     @Override
     public Option copy() {
+        return serializedCopy();
+    }
+
+    /**
+     * Copies this option by serialising it, the copy used by default.
+     *
+     * @return the copy of this option
+     */
+    protected Option serializedCopy() {
         try {
             return (Option) SerializeUtils.copyObject(this);
         } catch (Exception e) {
             throw new RuntimeException("Object copy failed.", e);
         }
     }
-    
-    //@Override
-    //public Option copy() {
-    //    return (Option) super.copy();
-    //}
 
+    /**
+     * Copies this option with a shallow clone. Only options whose values are
+     * primitives, strings or arrays that are replaced rather than modified
+     * may use this in copy(); options holding other objects copy them
+     * afterwards.
+     *
+     * @return the shallow copy of this option
+     */
+    protected Option shallowCopy() {
+        try {
+            return (Option) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException("Object copy failed.", e);
+        }
+    }
     
     //@Override
     //public void getDescription(StringBuilder sb, int indent) {
@@ -73,4 +73,9 @@ public class FlagOption extends AbstractOption {
     //public JComponent getEditComponent() {
     //    return new FlagOptionEditComponent(this);
     //}
+
+    @Override
+    public Option copy() {
+        return shallowCopy();
+    }
 }
@@ -103,4 +103,9 @@ public class FloatOption extends AbstractOption {
     //public JComponent getEditComponent() {
     //    return new FloatOptionEditComponent(this);
     //}
+
+    @Override
+    public Option copy() {
+        return shallowCopy();
+    }
 }
@@ -102,4 +102,9 @@ public class IntOption extends AbstractOption {
     //public JComponent getEditComponent() {
     //    return new IntOptionEditComponent(this);
     //}
+
+    @Override
+    public Option copy() {
+        return shallowCopy();
+    }
 }
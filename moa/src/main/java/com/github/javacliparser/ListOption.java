@@ -97,4 +97,24 @@ public class ListOption extends AbstractOption {
         }
         return sb.toString();
     }
+
+    @Override
+    public Option copy() {
+        ListOption copy = (ListOption) shallowCopy();
+        copy.expectedType = this.expectedType.copy();
+        copy.currentList = copyList(this.currentList);
+        copy.defaultList = copyList(this.defaultList);
+        return copy;
+    }
+
+    protected static Option[] copyList(Option[] list) {
+        if (list == null) {
+            return null;
+        }
+        Option[] copy = new Option[list.length];
+        for (int i = 0; i < list.length; i++) {
+            copy[i] = list[i].copy();
+        }
+        return copy;
+    }
 }
@@ -109,4 +109,9 @@ public class MultiChoiceOption extends AbstractOption {
     //public JComponent getEditComponent() {
     //    return new MultiChoiceOptionEditComponent(this);
     //}
+
+    @Override
+    public Option copy() {
+        return shallowCopy();
+    }
 }
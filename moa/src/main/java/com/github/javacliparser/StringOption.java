@@ -60,4 +60,9 @@ public class StringOption extends AbstractOption {
     public void setValueViaCLIString(String s) {
         setValue(s);
     }
+
+    @Override
+    public Option copy() {
+        return shallowCopy();
+    }
 }
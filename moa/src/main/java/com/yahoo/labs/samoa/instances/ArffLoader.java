@@ -15,11 +15,10 @@
  */
 package com.yahoo.labs.samoa.instances;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,9 +36,21 @@ public class ArffLoader {
     protected InstancesHeader streamHeader;
 
     /**
-     * The stream tokenizer.
+     * The tokenizer.
      */
-    protected StreamTokenizer streamTokenizer;
+    protected ArffTokenizer tokenizer;
+
+    /**
+     * The values of the nominal attributes already looked up, by attribute.
+     */
+    protected NominalValueCache[] nominalValueCaches;
+
+    /**
+     * The indices and values of the sparse instance being read.
+     */
+    protected int[] sparseIndices = new int[16];
+
+    protected double[] sparseValues = new double[16];
 
     /**
      * Instantiates a new arff loader.
@@ -78,22 +89,10 @@ public class ArffLoader {
      */
     public ArffLoader(Reader reader, Range range) {
         this.range = range;
-        BufferedReader br = new BufferedReader(reader);
-
-        //Init streamTokenizer
-        streamTokenizer = new StreamTokenizer(br);
-        streamTokenizer.resetSyntax();
-        streamTokenizer.whitespaceChars(0, ' ');
-        streamTokenizer.wordChars(' ' + 1, '\u00FF');
-        streamTokenizer.whitespaceChars(',', ',');
-        streamTokenizer.commentChar('%');
-        streamTokenizer.quoteChar('"');
-        streamTokenizer.quoteChar('\'');
-        streamTokenizer.ordinaryChar('{');
-        streamTokenizer.ordinaryChar('}');
-        streamTokenizer.eolIsSignificant(true);
+        this.tokenizer = new ArffTokenizer(reader);
 
         this.instanceInformation = this.getHeader();
+        this.nominalValueCaches = new NominalValueCache[this.instanceInformation.numAttributes()];
 
         if (range != null) { //is MultiLabel
             this.instanceInformation.setRangeOutputIndices(range);
@@ -116,14 +115,14 @@ public class ArffLoader {
      * @return the instance
      */
     public Instance readInstance() {
-        while (streamTokenizer.ttype == StreamTokenizer.TT_EOL) {
+        while (tokenizer.ttype == ArffTokenizer.TT_EOL) {
             try {
-                streamTokenizer.nextToken();
+                tokenizer.nextToken();
             } catch (IOException ex) {
                 Logger.getLogger(ArffLoader.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
-        if (streamTokenizer.ttype == '{') {
+        if (tokenizer.ttype == '{') {
             return readInstanceSparse();
             // return readDenseInstanceSparse();
         } else {
@@ -142,35 +141,29 @@ public class ArffLoader {
         //System.out.println(this.instanceInformation.numAttributes());
         int numAttribute = 0;
         try {
-            while (numAttribute == 0 && streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
+            while (numAttribute == 0 && tokenizer.ttype != ArffTokenizer.TT_EOF) {
                 //For each line
-                while (streamTokenizer.ttype != StreamTokenizer.TT_EOL
-                        && streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
+                while (tokenizer.ttype != ArffTokenizer.TT_EOL
+                        && tokenizer.ttype != ArffTokenizer.TT_EOF) {
                     //For each item
-                    if (streamTokenizer.ttype == StreamTokenizer.TT_NUMBER) {
-                        //System.out.println(streamTokenizer.nval + "Num ");
-                        this.setValue(instance, numAttribute, streamTokenizer.nval, true);
-                        numAttribute++;
-
-                    } else if (streamTokenizer.sval != null && (streamTokenizer.ttype == StreamTokenizer.TT_WORD
-                            || streamTokenizer.ttype == 34 || streamTokenizer.ttype == 39)) {
-                        //System.out.println(streamTokenizer.sval + "Str");
+                    if (tokenizer.ttype == ArffTokenizer.TT_WORD
+                            || tokenizer.ttype == 34 || tokenizer.ttype == 39) {
                         boolean isNumeric = this.instanceInformation.attribute(numAttribute).isNumeric();
                         double value;
-                        if ("?".equals(streamTokenizer.sval)) {
+                        if (tokenizer.isMissing()) {
                             value = Double.NaN; //Utils.missingValue();
                         } else if (isNumeric == true) {
-                            value = Double.valueOf(streamTokenizer.sval).doubleValue();
+                            value = tokenizer.numberValue();
                         } else {
-                            value = this.instanceInformation.attribute(numAttribute).indexOfValue(streamTokenizer.sval);
+                            value = this.indexOfNominalValue(numAttribute);
                         }
 
                         this.setValue(instance, numAttribute, value, isNumeric);
                         numAttribute++;
                     }
-                    streamTokenizer.nextToken();
+                    tokenizer.nextToken();
                 }
-                streamTokenizer.nextToken();
+                tokenizer.nextToken();
                 //System.out.println("EOL");
             }
 
@@ -211,64 +204,49 @@ public class ArffLoader {
         Instance instance = newSparseInstance(1.0); //, null); //(this.instanceInformation.numAttributes() + 1);
         //System.out.println(this.instanceInformation.numAttributes());
         int numAttribute;
-        ArrayList<Double> attributeValues = new ArrayList<Double>();
-        List<Integer> indexValues = new ArrayList<Integer>();
+        int numValues = 0;
         try {
-            //while (streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
-            streamTokenizer.nextToken(); // Remove the '{' char
+            //while (tokenizer.ttype != ArffTokenizer.TT_EOF) {
+            tokenizer.nextToken(); // Remove the '{' char
             //For each line
-            while (streamTokenizer.ttype != StreamTokenizer.TT_EOL
-                    && streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
-                while (streamTokenizer.ttype != '}') {
+            while (tokenizer.ttype != ArffTokenizer.TT_EOL
+                    && tokenizer.ttype != ArffTokenizer.TT_EOF) {
+                while (tokenizer.ttype != '}') {
                     //For each item
-                    //streamTokenizer.nextToken();
-                    //while (streamTokenizer.ttype != '}'){
-                    //System.out.println(streamTokenizer.nval +"-"+ streamTokenizer.sval);
-                    //numAttribute = (int) streamTokenizer.nval;
-                    if (streamTokenizer.ttype == StreamTokenizer.TT_NUMBER) {
-                        numAttribute = (int) streamTokenizer.nval;
-                    } else {
-                        numAttribute = Integer.parseInt(streamTokenizer.sval);
-                    }
-                    streamTokenizer.nextToken();
-
-                    if (streamTokenizer.ttype == StreamTokenizer.TT_NUMBER) {
-                        //System.out.print(streamTokenizer.nval + " ");
-                        this.setSparseValue(instance, indexValues, attributeValues, numAttribute, streamTokenizer.nval, true);
-                        //numAttribute++;
-
-                    } else if (streamTokenizer.sval != null && (streamTokenizer.ttype == StreamTokenizer.TT_WORD
-                            || streamTokenizer.ttype == 34)) {
-                        //System.out.print(streamTokenizer.sval + "-");
+                    //tokenizer.nextToken();
+                    //while (tokenizer.ttype != '}'){
+                    //System.out.println(tokenizer.nval +"-"+ tokenizer.stringValue());
+                    //numAttribute = (int) tokenizer.nval;
+                    numAttribute = tokenizer.intValue();
+                    tokenizer.nextToken();
+
+                    if (tokenizer.ttype == ArffTokenizer.TT_WORD
+                            || tokenizer.ttype == 34) {
                         if (this.auxAttributes.get(numAttribute).isNumeric()) {
-                            this.setSparseValue(instance, indexValues, attributeValues, numAttribute, Double.valueOf(streamTokenizer.sval).doubleValue(), true);
+                            numValues = this.setSparseValue(numValues, numAttribute, tokenizer.numberValue(), true);
                         } else {
-                            this.setSparseValue(instance, indexValues, attributeValues, numAttribute, this.instanceInformation.attribute(numAttribute).indexOfValue(streamTokenizer.sval), false);
+                            numValues = this.setSparseValue(numValues, numAttribute, this.indexOfNominalValue(numAttribute), false);
                         }
                     }
-                    streamTokenizer.nextToken();
+                    tokenizer.nextToken();
                 }
-                streamTokenizer.nextToken(); //Remove the '}' char
+                tokenizer.nextToken(); //Remove the '}' char
             }
-            streamTokenizer.nextToken();
+            tokenizer.nextToken();
             //System.out.println("EOL");
             //}
 
         } catch (IOException ex) {
             Logger.getLogger(ArffLoader.class.getName()).log(Level.SEVERE, null, ex);
         }
-        int[] arrayIndexValues = new int[attributeValues.size()];
-        double[] arrayAttributeValues = new double[attributeValues.size()];
-        for (int i = 0; i < arrayIndexValues.length; i++) {
-            arrayIndexValues[i] = indexValues.get(i).intValue();
-            arrayAttributeValues[i] = attributeValues.get(i).doubleValue();
-        }
+        int[] arrayIndexValues = Arrays.copyOf(this.sparseIndices, numValues);
+        double[] arrayAttributeValues = Arrays.copyOf(this.sparseValues, numValues);
         instance.addSparseValues(arrayIndexValues, arrayAttributeValues, this.instanceInformation.numAttributes());
         return instance;
 
     }
 
-    private void setSparseValue(Instance instance, List<Integer> indexValues, List<Double> attributeValues, int numAttribute, double value, boolean isNumber) {
+    private int setSparseValue(int numValues, int numAttribute, double value, boolean isNumber) {
         double valueAttribute;
         if (isNumber && this.instanceInformation.attribute(numAttribute).isNominal) {
             valueAttribute = this.instanceInformation.attribute(numAttribute).indexOfValue(Double.toString(value));
@@ -279,10 +257,15 @@ public class ArffLoader {
         //    setClassValue(instance, valueAttribute);
         //} else {
             //instance.setValue(numAttribute, valueAttribute);
-            indexValues.add(numAttribute);
-            attributeValues.add(valueAttribute);
+        if (numValues == this.sparseIndices.length) {
+            this.sparseIndices = Arrays.copyOf(this.sparseIndices, 2 * numValues);
+            this.sparseValues = Arrays.copyOf(this.sparseValues, 2 * numValues);
+        }
+        this.sparseIndices[numValues] = numAttribute;
+        this.sparseValues[numValues] = valueAttribute;
         //}
         //System.out.println(numAttribute+":"+valueAttribute+","+this.instanceInformation.classIndex()+","+value);
+        return numValues + 1;
     }
 
     /**
@@ -296,39 +279,33 @@ public class ArffLoader {
         //System.out.println(this.instanceInformation.numAttributes());
         int numAttribute;
         try {
-            //while (streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
-            streamTokenizer.nextToken(); // Remove the '{' char
+            //while (tokenizer.ttype != ArffTokenizer.TT_EOF) {
+            tokenizer.nextToken(); // Remove the '{' char
             //For each line
-            while (streamTokenizer.ttype != StreamTokenizer.TT_EOL
-                    && streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
-                while (streamTokenizer.ttype != '}') {
+            while (tokenizer.ttype != ArffTokenizer.TT_EOL
+                    && tokenizer.ttype != ArffTokenizer.TT_EOF) {
+                while (tokenizer.ttype != '}') {
                     //For each item
-                    //streamTokenizer.nextToken();
-                    //while (streamTokenizer.ttype != '}'){
-                    //System.out.print(streamTokenizer.nval+":");
-                    numAttribute = (int) streamTokenizer.nval;
-                    streamTokenizer.nextToken();
-
-                    if (streamTokenizer.ttype == StreamTokenizer.TT_NUMBER) {
-                        //System.out.print(streamTokenizer.nval + " ");
-                        this.setValue(instance, numAttribute, streamTokenizer.nval, true);
-                        //numAttribute++;
-
-                    } else if (streamTokenizer.sval != null && (streamTokenizer.ttype == StreamTokenizer.TT_WORD
-                            || streamTokenizer.ttype == 34)) {
-                        //System.out.print(streamTokenizer.sval + "/"+this.instanceInformation.attribute(numAttribute).indexOfValue(streamTokenizer.sval)+" ");
+                    //tokenizer.nextToken();
+                    //while (tokenizer.ttype != '}'){
+                    //System.out.print(tokenizer.nval+":");
+                    numAttribute = tokenizer.intValue();
+                    tokenizer.nextToken();
+
+                    if (tokenizer.ttype == ArffTokenizer.TT_WORD
+                            || tokenizer.ttype == 34) {
                         if (this.auxAttributes.get(numAttribute).isNumeric()) {
-                            this.setValue(instance, numAttribute, Double.valueOf(streamTokenizer.sval).doubleValue(), true);
+                            this.setValue(instance, numAttribute, tokenizer.numberValue(), true);
                         } else {
-                            this.setValue(instance, numAttribute, this.instanceInformation.attribute(numAttribute).indexOfValue(streamTokenizer.sval), false);
+                            this.setValue(instance, numAttribute, this.indexOfNominalValue(numAttribute), false);
                             //numAttribute++;
                         }
                     }
-                    streamTokenizer.nextToken();
+                    tokenizer.nextToken();
                 }
-                streamTokenizer.nextToken(); //Remove the '}' char
+                tokenizer.nextToken(); //Remove the '}' char
             }
-            streamTokenizer.nextToken();
+            tokenizer.nextToken();
             //System.out.println("EOL");
             //}
 
@@ -354,41 +331,35 @@ public class ArffLoader {
         auxAttributes = new ArrayList<Attribute>();//JD
         int numAttributes = 0;
         try {
-            streamTokenizer.nextToken();
-            while (streamTokenizer.ttype != StreamTokenizer.TT_EOF) {
+            tokenizer.nextToken();
+            while (tokenizer.ttype != ArffTokenizer.TT_EOF) {
                 //For each line
-                //if (streamTokenizer.ttype == '@') {
-                if (streamTokenizer.ttype == StreamTokenizer.TT_WORD && streamTokenizer.sval.startsWith("@") == true) {
-                    //streamTokenizer.nextToken();
-                    String token = streamTokenizer.sval.toUpperCase();
+                //if (tokenizer.ttype == '@') {
+                if (tokenizer.ttype == ArffTokenizer.TT_WORD && tokenizer.stringValue().startsWith("@") == true) {
+                    //tokenizer.nextToken();
+                    String token = tokenizer.stringValue().toUpperCase();
                     if (token.startsWith("@RELATION")) {
-                        streamTokenizer.nextToken();
-                        relation = streamTokenizer.sval;
+                        tokenizer.nextToken();
+                        relation = tokenizer.stringValue();
                       //  System.out.println("RELATION " + relation);
                     } else if (token.startsWith("@ATTRIBUTE")) {
-                        streamTokenizer.nextToken();
-                        String name = streamTokenizer.sval;
+                        tokenizer.nextToken();
+                        String name = tokenizer.stringValue();
                         //System.out.println("* " + name);
-                        if (name == null) {
-                            name = Double.toString(streamTokenizer.nval);
-                        }
-                        streamTokenizer.nextToken();
-                        String type = streamTokenizer.sval;
+                        tokenizer.nextToken();
+                        String type = tokenizer.stringValue();
                        // System.out.println("* " + name + ":" + type + " ");
-                        if (streamTokenizer.ttype == '{') {
-                            streamTokenizer.nextToken();
+                        if (tokenizer.ttype == '{') {
+                            tokenizer.nextToken();
                             List<String> attributeLabels = new ArrayList<String>();
-                            while (streamTokenizer.ttype != '}') {
-
-                                if (streamTokenizer.sval != null) {
-                                    attributeLabels.add(streamTokenizer.sval);
-                                   // System.out.print(streamTokenizer.sval + ",");
-                                } else {
-                                    attributeLabels.add(Double.toString(streamTokenizer.nval));
-                                    //System.out.print(streamTokenizer.nval + ",");
+                            while (tokenizer.ttype != '}') {
+
+                                if (tokenizer.stringValue() != null) {
+                                    attributeLabels.add(tokenizer.stringValue());
+                                   // System.out.print(tokenizer.stringValue() + ",");
                                 }
 
-                                streamTokenizer.nextToken();
+                                tokenizer.nextToken();
                             }
                            // System.out.println();
                             //attributes.add(new Attribute(name, attributeLabels));
@@ -414,11 +385,11 @@ public class ArffLoader {
 
                     } else if (token.startsWith("@DATA")) {
                         //System.out.print("END");
-                        streamTokenizer.nextToken();
+                        tokenizer.nextToken();
                         break;
                     }
                 }
-                streamTokenizer.nextToken();
+                tokenizer.nextToken();
             }
             if (range != null) {
                 this.range.setUpper(numAttributes);
@@ -467,4 +438,85 @@ public class ArffLoader {
         instance.setValue(this.instanceInformation.classIndex(), valueAttribute);
     }
 
+    /**
+     * Gets the index of the value of the current token for a nominal
+     * attribute, as Attribute.indexOfValue does, without creating a string for
+     * the values already looked up.
+     *
+     * @param numAttribute the index of the attribute
+     * @return the index of the value
+     */
+    protected int indexOfNominalValue(int numAttribute) {
+        Attribute attribute = this.instanceInformation.attribute(numAttribute);
+        NominalValueCache cache = this.nominalValueCaches[numAttribute];
+        if (cache == null || cache.attribute != attribute) {
+            cache = new NominalValueCache(attribute);
+            this.nominalValueCaches[numAttribute] = cache;
+        }
+        return cache.indexOfValue(this.tokenizer);
+    }
+
+    /**
+     * Open addressing table from the values of a nominal attribute to their
+     * indices, looked up with the characters of the tokens. Values not in the
+     * table yet are looked up with Attribute.indexOfValue, which adds the
+     * values it does not know to the attribute.
+     */
+    protected static class NominalValueCache {
+
+        protected final Attribute attribute;
+
+        protected String[] values = new String[16];
+
+        protected int[] indices = new int[16];
+
+        protected int size;
+
+        public NominalValueCache(Attribute attribute) {
+            this.attribute = attribute;
+        }
+
+        public int indexOfValue(ArffTokenizer tokenizer) {
+            int mask = this.values.length - 1;
+            int slot = tokenizer.textHashCode() & mask;
+            while (this.values[slot] != null) {
+                if (tokenizer.textEquals(this.values[slot])) {
+                    return this.indices[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            String value = tokenizer.stringValue();
+            int index = this.attribute.indexOfValue(value);
+            if (2 * (this.size + 1) > this.values.length) {
+                rehash(2 * this.values.length);
+            }
+            put(value, index);
+            return index;
+        }
+
+        protected void put(String value, int index) {
+            int mask = this.values.length - 1;
+            int slot = value.hashCode() & mask;
+            while (this.values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            this.values[slot] = value;
+            this.indices[slot] = index;
+            this.size++;
+        }
+
+        protected void rehash(int capacity) {
+            String[] oldValues = this.values;
+            int[] oldIndices = this.indices;
+            this.values = new String[capacity];
+            this.indices = new int[capacity];
+            this.size = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldValues[i], oldIndices[i]);
+                }
+            }
+        }
+    }
+
 }
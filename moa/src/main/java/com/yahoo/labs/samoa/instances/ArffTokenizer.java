@@ -0,0 +1,435 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The Class ArffTokenizer. Splits an Arff file into tokens, as the
+ * StreamTokenizer previously used by ArffLoader did with its Arff syntax:
+ * words are separated by whitespace and commas, strings are quoted with " or ',
+ * % starts a comment, { and } are tokens by themselves and line ends are
+ * significant.
+ *
+ * The tokens are scanned in a large character buffer and are not turned into
+ * strings unless asked: numbers are parsed and nominal values are looked up
+ * from the characters directly.
+ */
+public class ArffTokenizer {
+
+    /** A constant indicating that the end of the stream has been read. */
+    public static final int TT_EOF = -1;
+
+    /** A constant indicating that the end of the line has been read. */
+    public static final int TT_EOL = '\n';
+
+    /** A constant indicating that a word token has been read. */
+    public static final int TT_WORD = -3;
+
+    /** A constant indicating that no token has been read yet. */
+    public static final int TT_NOTHING = -4;
+
+    protected static final int BUFFER_SIZE = 1 << 16;
+
+    /** Largest exponent for which the powers of ten are exact doubles. */
+    protected static final int MAX_EXACT_EXPONENT = 22;
+
+    protected static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    /**
+     * The type of the current token: TT_WORD, TT_EOL, TT_EOF, the quote
+     * character for quoted strings, or the character { or }.
+     */
+    public int ttype = TT_NOTHING;
+
+    protected Reader reader;
+
+    protected char[] buffer = new char[BUFFER_SIZE];
+
+    protected int position;
+
+    protected int limit;
+
+    /** Whether the last line ended with '\r', so that a '\n' must be skipped. */
+    protected boolean skipLineFeed;
+
+    protected char[] quoted = new char[64];
+
+    protected char[] tokenChars;
+
+    protected int tokenStart;
+
+    protected int tokenLength;
+
+    protected String stringValue;
+
+    /**
+     * Instantiates a new tokenizer.
+     *
+     * @param reader the reader
+     */
+    public ArffTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return the type of the token
+     * @throws IOException if the reader fails
+     */
+    public int nextToken() throws IOException {
+        this.stringValue = null;
+        int c = read();
+        if (this.skipLineFeed) {
+            this.skipLineFeed = false;
+            if (c == '\n') {
+                c = read();
+            }
+        }
+        while (true) {
+            if (c < 0) {
+                return this.ttype = TT_EOF;
+            }
+            if (c == '\n') {
+                return this.ttype = TT_EOL;
+            }
+            if (c == '\r') {
+                this.skipLineFeed = true;
+                return this.ttype = TT_EOL;
+            }
+            if (c == '%') {
+                do {
+                    c = read();
+                } while (c >= 0 && c != '\n' && c != '\r');
+            } else if (c <= ' ' || c == ',') {
+                c = read();
+            } else {
+                break;
+            }
+        }
+        if (c == '"' || c == '\'') {
+            return readQuoted(c);
+        }
+        if (c == '{' || c == '}') {
+            return this.ttype = c;
+        }
+        return readWord();
+    }
+
+    /**
+     * Gets the text of the current token.
+     *
+     * @return the text of the word or quoted string, or null for other tokens
+     */
+    public String stringValue() {
+        if (this.stringValue == null && hasText()) {
+            this.stringValue = new String(this.tokenChars, this.tokenStart, this.tokenLength);
+        }
+        return this.stringValue;
+    }
+
+    /**
+     * Whether the current token is the missing value, ?.
+     *
+     * @return true if the token is ?
+     */
+    public boolean isMissing() {
+        return hasText() && this.tokenLength == 1 && this.tokenChars[this.tokenStart] == '?';
+    }
+
+    /**
+     * Parses the current token as Double.valueOf does. Plain decimal numbers
+     * that can be parsed exactly with double arithmetic are parsed from the
+     * characters; other numbers are left to Double.parseDouble.
+     *
+     * @return the value of the token
+     * @throws NumberFormatException if the token is not a number
+     */
+    public double numberValue() {
+        char[] chars = this.tokenChars;
+        int i = this.tokenStart;
+        int end = i + this.tokenLength;
+        if (!hasText() || i == end) {
+            return Double.parseDouble(stringValue());
+        }
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+            hasDigits = true;
+            if (mantissa != 0 || chars[i] != '0') {
+                if (++numDigits > 18) {
+                    return Double.parseDouble(stringValue());
+                }
+                mantissa = mantissa * 10 + (chars[i] - '0');
+            }
+        }
+        if (i < end && chars[i] == '.') {
+            for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                hasDigits = true;
+                if (mantissa != 0 || chars[i] != '0') {
+                    if (++numDigits > 18) {
+                        return Double.parseDouble(stringValue());
+                    }
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                }
+                exponent--;
+            }
+        }
+        if (!hasDigits) {
+            return Double.parseDouble(stringValue());
+        }
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && chars[i] == '-';
+            if (i < end && (negativeExponent || chars[i] == '+')) {
+                i++;
+            }
+            int explicitExponent = 0;
+            int expStart = i;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9' && i - expStart < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (chars[i] - '0');
+            }
+            if (i == expStart) {
+                return Double.parseDouble(stringValue());
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) {
+            return Double.parseDouble(stringValue());
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (mantissa > (1L << 53) || exponent > MAX_EXACT_EXPONENT
+                || exponent < -MAX_EXACT_EXPONENT) {
+            return Double.parseDouble(stringValue());
+        }
+        // both operands are exact, so the single rounding gives the nearest double
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the current token as Integer.parseInt does.
+     *
+     * @return the value of the token
+     * @throws NumberFormatException if the token is not an integer
+     */
+    public int intValue() {
+        if (hasText() && this.tokenLength > 0 && this.tokenLength < 10) {
+            int value = 0;
+            int end = this.tokenStart + this.tokenLength;
+            for (int i = this.tokenStart; i < end; i++) {
+                char c = this.tokenChars[i];
+                if (c < '0' || c > '9') {
+                    return Integer.parseInt(stringValue());
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+        return Integer.parseInt(stringValue());
+    }
+
+    /**
+     * Computes the hash code that String.hashCode() would give for the text
+     * of the current token.
+     *
+     * @return the hash code
+     */
+    public int textHashCode() {
+        int hash = 0;
+        int end = this.tokenStart + this.tokenLength;
+        for (int i = this.tokenStart; i < end; i++) {
+            hash = 31 * hash + this.tokenChars[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Whether the text of the current token equals the given string.
+     *
+     * @param string the string
+     * @return true if they are equal
+     */
+    public boolean textEquals(String string) {
+        if (string.length() != this.tokenLength) {
+            return false;
+        }
+        for (int i = 0; i < this.tokenLength; i++) {
+            if (string.charAt(i) != this.tokenChars[this.tokenStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected boolean hasText() {
+        return this.ttype == TT_WORD || this.ttype == '"' || this.ttype == '\'';
+    }
+
+    protected static boolean isWordChar(int c) {
+        return c > ' ' && c != ',' && c != '%' && c != '"' && c != '\''
+                && c != '{' && c != '}';
+    }
+
+    protected int readWord() throws IOException {
+        // the first character has been read already
+        int start = this.position - 1;
+        int i = this.position;
+        while (true) {
+            if (i == this.limit) {
+                this.position = i;
+                boolean more = fill(start);
+                i -= start;
+                start = 0;
+                if (!more) {
+                    break;
+                }
+            }
+            if (!isWordChar(this.buffer[i])) {
+                break;
+            }
+            i++;
+        }
+        this.position = i;
+        this.tokenChars = this.buffer;
+        this.tokenStart = start;
+        this.tokenLength = i - start;
+        return this.ttype = TT_WORD;
+    }
+
+    protected int readQuoted(int quote) throws IOException {
+        // same escapes and ends of string as StreamTokenizer
+        int length = 0;
+        int d = read();
+        while (d >= 0 && d != quote && d != '\n' && d != '\r') {
+            int c;
+            if (d == '\\') {
+                c = read();
+                int first = c;
+                if (c >= '0' && c <= '7') {
+                    c = c - '0';
+                    int c2 = read();
+                    if ('0' <= c2 && c2 <= '7') {
+                        c = (c << 3) + (c2 - '0');
+                        c2 = read();
+                        if ('0' <= c2 && c2 <= '7' && first <= '3') {
+                            c = (c << 3) + (c2 - '0');
+                            d = read();
+                        } else {
+                            d = c2;
+                        }
+                    } else {
+                        d = c2;
+                    }
+                } else {
+                    switch (c) {
+                        case 'a':
+                            c = 0x7;
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = 0xC;
+                            break;
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'v':
+                            c = 0xB;
+                            break;
+                    }
+                    d = read();
+                }
+            } else {
+                c = d;
+                d = read();
+            }
+            if (length == this.quoted.length) {
+                char[] larger = new char[2 * length];
+                System.arraycopy(this.quoted, 0, larger, 0, length);
+                this.quoted = larger;
+            }
+            this.quoted[length++] = (char) c;
+        }
+        if (d >= 0 && d != quote) {
+            // the line end is the next token
+            this.position--;
+        }
+        this.tokenChars = this.quoted;
+        this.tokenStart = 0;
+        this.tokenLength = length;
+        return this.ttype = quote;
+    }
+
+    protected int read() throws IOException {
+        if (this.position == this.limit && !fill(this.limit)) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * Reads more characters into the buffer, keeping the ones from the given
+     * position on, which are moved to the start of the buffer.
+     *
+     * @param keep the position of the first character to keep
+     * @return false if the end of the stream has been reached
+     * @throws IOException if the reader fails
+     */
+    protected boolean fill(int keep) throws IOException {
+        int kept = this.limit - keep;
+        if (kept == this.buffer.length) {
+            char[] larger = new char[2 * this.buffer.length];
+            System.arraycopy(this.buffer, 0, larger, 0, kept);
+            this.buffer = larger;
+        } else if (kept > 0) {
+            System.arraycopy(this.buffer, keep, this.buffer, 0, kept);
+        }
+        this.position -= keep;
+        this.limit = kept;
+        int read = this.reader.read(this.buffer, kept, this.buffer.length - kept);
+        if (read <= 0) {
+            return false;
+        }
+        this.limit += read;
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * The Class InstanceProjection.
+ *
+ * A subspace of the attributes of a stream: the selected features, in order,
+ * followed by a class attribute. The header of the subspace is built once,
+ * and the instances of the stream are then presented in the subspace as
+ * ProjectedInstance views, without copying their values.
+ *
+ * With one-hot encoding, every nominal feature with more than two values is
+ * replaced by one numeric attribute per value, set to 1 for the value of the
+ * instance and to 0 otherwise, and every binary nominal feature by a numeric
+ * attribute holding the index of the value.
+ */
+public class InstanceProjection implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The header of the projected instances. */
+    protected InstancesHeader header;
+
+    /** The index in the source instances of every projected attribute but the class. */
+    protected int[] sourceIndexes;
+
+    /** For every projected attribute, the value it encodes with one-hot encoding, or -1. */
+    protected int[] oneHotValues;
+
+    /**
+     * Instantiates a projection.
+     *
+     * @param relationName the name of the relation of the projected instances
+     * @param sourceHeader the header of the source instances
+     * @param featureIndexes the indices of the selected features in the source instances
+     * @param oneHotEncoding whether to encode the nominal features as numeric attributes
+     * @param classAttribute the class attribute of the projected instances, or
+     * null for the class attribute of the source instances
+     */
+    public InstanceProjection(String relationName, Instances sourceHeader, int[] featureIndexes,
+            boolean oneHotEncoding, Attribute classAttribute) {
+        ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+        int numAttributes = 0;
+        for (int featureIndex : featureIndexes) {
+            Attribute attribute = sourceHeader.attribute(featureIndex);
+            numAttributes += oneHotEncoding && attribute.isNominal() && attribute.numValues() > 2
+                    ? attribute.numValues() : 1;
+        }
+        this.sourceIndexes = new int[numAttributes];
+        this.oneHotValues = new int[numAttributes + 1];
+        int i = 0;
+        for (int featureIndex : featureIndexes) {
+            Attribute attribute = sourceHeader.attribute(featureIndex);
+            if (oneHotEncoding && attribute.isNominal()) {
+                if (attribute.numValues() > 2) {
+                    for (int j = 0; j < attribute.numValues(); j++) {
+                        attributes.add(new Attribute(""));
+                        this.sourceIndexes[i] = featureIndex;
+                        this.oneHotValues[i++] = j;
+                    }
+                } else {
+                    // binary feature, as a numeric attribute holding the index
+                    attributes.add(new Attribute(""));
+                    this.sourceIndexes[i] = featureIndex;
+                    this.oneHotValues[i++] = -1;
+                }
+            } else {
+                attributes.add(attribute);
+                this.sourceIndexes[i] = featureIndex;
+                this.oneHotValues[i++] = -1;
+            }
+        }
+        this.oneHotValues[i] = -1;
+        attributes.add(classAttribute != null ? classAttribute : sourceHeader.classAttribute());
+        Instances dataset = new Instances(relationName, attributes, 0);
+        dataset.setClassIndex(numAttributes);
+        this.header = new InstancesHeader(dataset);
+    }
+
+    /**
+     * Gets the header of the projected instances.
+     *
+     * @return the header
+     */
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Num attributes of the projected instances, with the class.
+     *
+     * @return the int
+     */
+    public int numAttributes() {
+        return this.oneHotValues.length;
+    }
+
+    /**
+     * Index of the class attribute in the projected instances, the last one.
+     *
+     * @return the int
+     */
+    public int classIndex() {
+        return this.sourceIndexes.length;
+    }
+
+    /**
+     * Index in the source instances of a projected attribute other than the class.
+     *
+     * @param i the index of the projected attribute
+     * @return the index of the source attribute
+     */
+    public int sourceIndex(int i) {
+        return this.sourceIndexes[i];
+    }
+
+    /**
+     * Value of the source attribute that a projected attribute encodes.
+     *
+     * @param i the index of the projected attribute
+     * @return the index of the nominal value, or -1 if the attribute is not
+     * one-hot encoded
+     */
+    public int oneHotValue(int i) {
+        return this.oneHotValues[i];
+    }
+
+    /**
+     * Presents an instance in the subspace, with the class value of the
+     * instance. Every call allocates a view; a caller projecting every
+     * instance of a stream can instead re-point a single view with
+     * ProjectedInstance.setSource.
+     *
+     * @param instance the source instance
+     * @param weight the weight of the projected instance
+     * @return the projected instance
+     */
+    public Instance project(Instance instance, double weight) {
+        return new ProjectedInstance(this, instance, weight, instance.classValue());
+    }
+
+    /**
+     * Presents an instance in the subspace, with the given class value.
+     *
+     * @param instance the source instance
+     * @param weight the weight of the projected instance
+     * @param classValue the class value of the projected instance
+     * @return the projected instance
+     */
+    public Instance project(Instance instance, double weight, double classValue) {
+        return new ProjectedInstance(this, instance, weight, classValue);
+    }
+}
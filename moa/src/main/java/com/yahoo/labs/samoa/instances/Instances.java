@@ -131,7 +131,6 @@ public class Instances implements Serializable {
             capacity = 0;
         }
         this.instances = new ArrayList<Instance>(capacity);
-        this.computeAttributesIndices();
         if(chunk.indicesRelevants != null) {
             this.indicesRelevants = chunk.indicesRelevants.clone();
             this.indicesIrrelevants = chunk.indicesIrrelevants.clone();
@@ -618,6 +617,10 @@ public class Instances implements Serializable {
      * @param att, the attribute.
      */
     protected int indexOf(Attribute att) {
+        if (this.hsAttributesIndices == null) {
+            // copies, such as the header of every instance read, compute it on first use
+            this.computeAttributesIndices();
+        }
         return this.hsAttributesIndices.get(att.name());
     }
 
@@ -0,0 +1,96 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ProjectedInstance.
+ *
+ * A view of an instance, either in the subspace of an InstanceProjection or
+ * with all its attributes and another weight. The values are read from the
+ * source instance, which is never modified: setting the class value of a
+ * projection only changes the view, and any other change copies the values
+ * first. The source instance must not be modified while the view is in use.
+ */
+public class ProjectedInstance extends InstanceImpl {
+
+    /**
+     * Instantiates a view of an instance in a subspace.
+     *
+     * @param projection the projection
+     * @param source the source instance
+     * @param weight the weight
+     * @param classValue the class value
+     */
+    public ProjectedInstance(InstanceProjection projection, Instance source, double weight, double classValue) {
+        super(weight, new ProjectedInstanceData(projection, source, classValue));
+        this.instanceHeader = projection.getHeader();
+    }
+
+    /**
+     * Instantiates a view of all the attributes of an instance, with another weight.
+     *
+     * @param source the source instance
+     * @param weight the weight
+     */
+    public ProjectedInstance(Instance source, double weight) {
+        super(weight, new ProjectedInstanceData(source));
+        if (source.dataset() != null) {
+            setDataset(source.dataset());
+        }
+    }
+
+    /**
+     * Re-points the view to another source instance, dropping any changes,
+     * so that a single view can be reused for every instance of a stream.
+     * A learner given the view must then not keep a reference to it.
+     *
+     * @param source the source instance
+     * @param weight the weight
+     * @param classValue the class value, ignored by a view of all the
+     * attributes, which reads the class value of the source
+     */
+    public void setSource(Instance source, double weight, double classValue) {
+        ProjectedInstanceData data = (ProjectedInstanceData) this.instanceData;
+        data.setSource(source, classValue);
+        this.weight = weight;
+        if (!data.isProjection() && source.dataset() != null) {
+            setDataset(source.dataset());
+        }
+    }
+
+    /**
+     * Re-points the view to another source instance, with the class value
+     * of that instance.
+     *
+     * @param source the source instance
+     * @param weight the weight
+     */
+    public void setSource(Instance source, double weight) {
+        boolean projection = ((ProjectedInstanceData) this.instanceData).isProjection();
+        setSource(source, weight, projection ? source.classValue() : 0.0);
+    }
+
+    /**
+     * Copies the values, so that the copy is independent of the source
+     * instance and of later changes to this view.
+     *
+     * @return the copy
+     */
+    @Override
+    public Instance copy() {
+        return new InstanceImpl(this);
+    }
+}
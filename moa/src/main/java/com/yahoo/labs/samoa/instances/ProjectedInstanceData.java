@@ -0,0 +1,235 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class ProjectedInstanceData.
+ *
+ * Values of an instance read through the attribute mapping of an
+ * InstanceProjection, or through the identity mapping, without copying them.
+ * The value of the class attribute of a projection is held by the data
+ * itself, so that it can be set without touching the source instance. Any
+ * other change copies the values first, so the source instance is never
+ * modified.
+ */
+public class ProjectedInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The instance whose values are read. */
+    protected Instance source;
+
+    /** The projection, or null for the identity mapping. */
+    protected InstanceProjection projection;
+
+    /** The value of the class attribute of the projection. */
+    protected double classValue;
+
+    /** The values once copied by a change, or null while they are read from the source. */
+    protected InstanceData data;
+
+    /**
+     * Instantiates the data of a projected instance.
+     *
+     * @param projection the projection
+     * @param source the source instance
+     * @param classValue the value of the class attribute of the projection
+     */
+    public ProjectedInstanceData(InstanceProjection projection, Instance source, double classValue) {
+        this.projection = projection;
+        this.source = source;
+        this.classValue = classValue;
+    }
+
+    /**
+     * Instantiates data reading all the values of an instance.
+     *
+     * @param source the source instance
+     */
+    public ProjectedInstanceData(Instance source) {
+        this.source = source;
+    }
+
+    /**
+     * Reads the values of another source instance, dropping any changes.
+     *
+     * @param source the source instance
+     * @param classValue the value of the class attribute of the projection
+     */
+    public void setSource(Instance source, double classValue) {
+        this.source = source;
+        this.classValue = classValue;
+        this.data = null;
+    }
+
+    /**
+     * Whether the values are read through a projection, rather than the
+     * identity mapping.
+     *
+     * @return true for a projection
+     */
+    public boolean isProjection() {
+        return this.projection != null;
+    }
+
+    @Override
+    public int numAttributes() {
+        if (this.data != null) {
+            return this.data.numAttributes();
+        }
+        if (this.projection == null) {
+            return this.source.numAttributes();
+        }
+        return this.projection.numAttributes();
+    }
+
+    @Override
+    public double value(int instAttIndex) {
+        if (this.data != null) {
+            return this.data.value(instAttIndex);
+        }
+        if (this.projection == null) {
+            return this.source.value(instAttIndex);
+        }
+        if (instAttIndex == this.projection.classIndex()) {
+            return this.classValue;
+        }
+        double value = this.source.value(this.projection.sourceIndex(instAttIndex));
+        int oneHotValue = this.projection.oneHotValue(instAttIndex);
+        if (oneHotValue < 0) {
+            return value;
+        }
+        return (int) value == oneHotValue ? 1.0 : 0.0;
+    }
+
+    @Override
+    public boolean isMissing(int instAttIndex) {
+        return Double.isNaN(value(instAttIndex));
+    }
+
+    @Override
+    public int numValues() {
+        if (this.data != null) {
+            return this.data.numValues();
+        }
+        if (this.projection == null) {
+            return this.source.numValues();
+        }
+        return this.projection.numAttributes();
+    }
+
+    @Override
+    public int index(int i) {
+        if (this.data != null) {
+            return this.data.index(i);
+        }
+        if (this.projection == null) {
+            return this.source.index(i);
+        }
+        return i;
+    }
+
+    @Override
+    public double valueSparse(int i) {
+        if (this.data != null) {
+            return this.data.valueSparse(i);
+        }
+        if (this.projection == null) {
+            return this.source.valueSparse(i);
+        }
+        return value(i);
+    }
+
+    @Override
+    public boolean isMissingSparse(int p1) {
+        if (this.data != null) {
+            return this.data.isMissingSparse(p1);
+        }
+        if (this.projection == null) {
+            return this.source.isMissingSparse(p1);
+        }
+        return isMissing(p1);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        if (this.data != null) {
+            return this.data.toDoubleArray();
+        }
+        if (this.projection == null) {
+            return this.source.toDoubleArray();
+        }
+        double[] values = new double[this.projection.numAttributes()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void setValue(int m_numAttributes, double d) {
+        if (this.data == null && this.projection != null
+                && m_numAttributes == this.projection.classIndex()) {
+            this.classValue = d;
+        } else {
+            copyValues().setValue(m_numAttributes, d);
+        }
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        copyValues().deleteAttributeAt(index);
+    }
+
+    @Override
+    public void insertAttributeAt(int index) {
+        copyValues().insertAttributeAt(index);
+    }
+
+    @Override
+    public InstanceData copy() {
+        if (this.data != null) {
+            return this.data.copy();
+        }
+        return materialize();
+    }
+
+    /**
+     * Copies the values into data independent of the source instance.
+     *
+     * @return the copy of the values
+     */
+    protected InstanceData materialize() {
+        if (this.projection == null && this.source instanceof InstanceImpl) {
+            return ((InstanceImpl) this.source).instanceData.copy();
+        }
+        return new DenseInstanceData(toDoubleArray());
+    }
+
+    /**
+     * Copies the values before they are changed, and reads them from the
+     * copy from then on.
+     *
+     * @return the copy of the values
+     */
+    protected InstanceData copyValues() {
+        if (this.data == null) {
+            this.data = materialize();
+            this.source = null;
+        }
+        return this.data;
+    }
+}
@@ -29,7 +29,7 @@ import moa.core.SizeOf;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public abstract class AbstractMOAObject implements MOAObject {
+public abstract class AbstractMOAObject implements MOAObject, Cloneable {
 
     @Override
     public MOAObject copy() {
@@ -53,6 +53,21 @@ public abstract class AbstractMOAObject implements MOAObject {
         return sb.toString();
     }
 
+    /**
+     * Produces a shallow copy of this object, the starting point of the
+     * copy methods that copy the fields of an object instead of serialising
+     * it.
+     *
+     * @return a shallow copy of this object
+     */
+    protected MOAObject shallowCopy() {
+        try {
+            return (MOAObject) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException("Object copy failed.", e);
+        }
+    }
+
     /**
      * This method produces a copy of an object.
      *
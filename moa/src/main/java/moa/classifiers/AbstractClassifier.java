@@ -29,11 +29,13 @@ import moa.MOAObject;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
+import moa.core.ByteSizeEstimable;
 import moa.core.Example;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 import moa.core.Measurement;
+import moa.core.MiscUtils;
 import moa.core.ObjectRepository;
 import moa.core.StringUtils;
 import moa.gui.AWTRenderer;
@@ -50,6 +52,7 @@ import com.yahoo.labs.samoa.instances.MultiLabelPrediction;
 import com.yahoo.labs.samoa.instances.Prediction;
 
 import moa.core.Utils;
+import moa.evaluation.ModelSizeMeter;
 
 public abstract class AbstractClassifier extends AbstractOptionHandler
         implements Classifier, CapabilitiesHandler { //Learner<Example<Instance>> {
@@ -65,6 +68,12 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Sum of the weights of the instances trained by this model */
     protected double trainingWeightSeenByModel = 0.0;
 
+    /** Serialized size found by the last walk of the model */
+    protected transient long walkedByteSize;
+
+    /** Whether the model has been walked to find its serialized size */
+    protected transient boolean byteSizeWalked;
+
     /** Random seed used in randomizable learners */
     protected int randomSeed = 1;
 
@@ -105,6 +114,27 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public abstract double[] getVotesForInstance(Instance inst);
 
+    /**
+     * Gets the array to write the votes for an instance of a batch into: the
+     * row already there if it has the given length, cleared, or a new array
+     * set as the row. See {@link Classifier#getVotesForInstances}.
+     *
+     * @param votes the votes of the batch
+     * @param index the index of the instance
+     * @param length the number of votes
+     * @return the array of the votes for the instance
+     */
+    public static double[] votesRow(double[][] votes, int index, int length) {
+        double[] row = votes[index];
+        if (row != null && row.length == length) {
+            Arrays.fill(row, 0.0);
+        } else {
+            row = new double[length];
+            votes[index] = row;
+        }
+        return row;
+    }
+
     @Override
     public Prediction getPredictionForInstance(Example<Instance> example){
 		return getPredictionForInstance(example.getData());
@@ -160,6 +190,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public void resetLearning() {
         this.trainingWeightSeenByModel = 0.0;
+        this.byteSizeWalked = false;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
         }
@@ -181,11 +212,37 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
 
     @Override
     public Measurement[] getModelMeasurements() {
+        return getModelMeasurements(null);
+    }
+
+    /**
+     * Gets the measurements of the model at a sample point of an evaluation.
+     * The model and its sublearners are only walked to find their serialized
+     * size when the size meter has a full walk due, and report the size of
+     * their last walk in between. With a size meter, the models that can
+     * estimate their size also report their estimate.
+     *
+     * @param sizeMeter the size meter of the evaluation, or null to walk
+     * the model every time
+     * @return the measurements of the model
+     */
+    public Measurement[] getModelMeasurements(ModelSizeMeter sizeMeter) {
         List<Measurement> measurementList = new LinkedList<Measurement>();
         measurementList.add(new Measurement("model training instances",
                 trainingWeightSeenByModel()));
+        if ((sizeMeter == null) || sizeMeter.isFullWalkDue() || !this.byteSizeWalked) {
+            this.walkedByteSize = measureByteSize();
+            this.byteSizeWalked = true;
+        }
         measurementList.add(new Measurement("model serialized size (bytes)",
-                measureByteSize()));
+                this.walkedByteSize));
+        if ((sizeMeter != null) && (this instanceof ByteSizeEstimable)) {
+            long estimatedSize = ((ByteSizeEstimable) this).estimateByteSize();
+            if (estimatedSize >= 0) {
+                measurementList.add(new Measurement("model estimated size (bytes)",
+                        estimatedSize));
+            }
+        }
         Measurement[] modelMeasurements = getModelMeasurementsImpl();
         if (modelMeasurements != null) {
             measurementList.addAll(Arrays.asList(modelMeasurements));
@@ -195,7 +252,9 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         if ((subModels != null) && (subModels.length > 0)) {
             List<Measurement[]> subMeasurements = new LinkedList<Measurement[]>();
             for (Learner subModel : subModels) {
-                if (subModel != null) {
+                if (subModel instanceof AbstractClassifier) {
+                    subMeasurements.add(((AbstractClassifier) subModel).getModelMeasurements(sizeMeter));
+                } else if (subModel != null) {
                     subMeasurements.add(subModel.getModelMeasurements());
                 }
             }
@@ -238,6 +297,25 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         return (Classifier) super.copy();
     }
 
+    /**
+     * Copies this classifier without serialising it, giving the copy a
+     * random generator in the same state.
+     *
+     * @return the copy of this classifier
+     */
+    @Override
+    protected AbstractOptionHandler cloneWithOptions() {
+        AbstractClassifier copy = (AbstractClassifier) super.cloneWithOptions();
+        copy.classifierRandom = MiscUtils.copyRandom(this.classifierRandom);
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.randomSeedOption = copyOption(this.randomSeedOption);
+    }
+
    
     @Override
     public MOAObject getModel(){
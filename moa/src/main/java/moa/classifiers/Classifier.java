@@ -76,6 +76,26 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Predicts the class memberships for a batch of instances, as
+     * getVotesForInstance would for each of them in turn. Row i of the votes
+     * is set to the votes for instance i: classifiers may write the votes
+     * into the row already there when it has exactly their length, and set
+     * a new array otherwise. The default implementation calls
+     * getVotesForInstance for every instance.
+     *
+     * @param insts the instances to be classified
+     * @param from the index of the first instance
+     * @param to the index after the last instance
+     * @param votes the array receiving the votes, indexed as the instances
+     */
+    public default void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        for (int i = from; i < to; i++) {
+            votes[i] = getVotesForInstance(insts[i]);
+        }
+    }
     
     /**
      * Sets the reference to the header of the data stream. The header of the
@@ -25,12 +25,13 @@ import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
-import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
-import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
+import moa.options.ClassOption;
 import com.yahoo.labs.samoa.instances.Instance;
 
 /**
@@ -43,7 +44,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * class C to which it belongs with high accuracy.</p>
  *
  * <p>Parameters:</p> <ul> <li>-r : Seed for random behaviour of the
- * classifier</li> </ul>
+ * classifier</li> <li>-n : Numeric estimator to use</li> </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
@@ -57,6 +58,15 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
     public String getPurposeString() {
         return "Naive Bayes classifier: performs classic bayesian prediction while making naive assumption that all inputs are independent.";
     }
+
+    public ClassOption numericEstimatorOption = new ClassOption("numericEstimator",
+            'n', "Numeric estimator to use.", NumericAttributeClassObserver.class,
+            "GaussianNumericAttributeClassObserver");
+
+    public ClassOption nominalEstimatorOption = new ClassOption("nominalEstimator",
+            'd', "Nominal estimator to use.", DiscreteAttributeClassObserver.class,
+            "NominalAttributeClassObserver");
+
     protected DoubleVector observedClassDistribution;
 
     protected AutoExpandVector<AttributeClassObserver> attributeObservers;
@@ -88,6 +98,16 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
                 this.attributeObservers);
     }
 
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        int numClasses = this.observedClassDistribution.numValues();
+        for (int i = from; i < to; i++) {
+            doNaiveBayesPrediction(insts[i], this.observedClassDistribution,
+                    this.attributeObservers, votesRow(votes, i, numClasses));
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
@@ -125,27 +145,51 @@ public class NaiveBayes extends AbstractClassifier  implements MultiClassClassif
     }
 
     protected AttributeClassObserver newNominalClassObserver() {
-        return new NominalAttributeClassObserver();
+        AttributeClassObserver nominalClassObserver = (AttributeClassObserver) getPreparedClassOption(this.nominalEstimatorOption);
+        return (AttributeClassObserver) nominalClassObserver.copy();
     }
 
     protected AttributeClassObserver newNumericClassObserver() {
-        return new GaussianNumericAttributeClassObserver();
+        AttributeClassObserver numericClassObserver = (AttributeClassObserver) getPreparedClassOption(this.numericEstimatorOption);
+        return (AttributeClassObserver) numericClassObserver.copy();
     }
 
     public static double[] doNaiveBayesPrediction(Instance inst,
             DoubleVector observedClassDistribution,
             AutoExpandVector<AttributeClassObserver> attributeObservers) {
-        double[] votes = new double[observedClassDistribution.numValues()];
+        return doNaiveBayesPrediction(inst, observedClassDistribution,
+                attributeObservers, new double[observedClassDistribution.numValues()]);
+    }
+
+    /**
+     * Computes the naive Bayes votes for an instance into an array, as long
+     * as the observed class distribution. The attributes are read once for
+     * all the classes, and the probabilities of every class are multiplied in
+     * the order of the attributes.
+     *
+     * @param inst the instance
+     * @param observedClassDistribution the observed class distribution
+     * @param attributeObservers the attribute observers
+     * @param votes the array receiving the votes
+     * @return the votes
+     */
+    public static double[] doNaiveBayesPrediction(Instance inst,
+            DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers,
+            double[] votes) {
         double observedClassSum = observedClassDistribution.sumOfValues();
         for (int classIndex = 0; classIndex < votes.length; classIndex++) {
             votes[classIndex] = observedClassDistribution.getValue(classIndex)
                     / observedClassSum;
-            for (int attIndex = 0; attIndex < inst.numAttributes() - 1; attIndex++) {
-                int instAttIndex = modelAttIndexToInstanceAttIndex(attIndex,
-                        inst);
-                AttributeClassObserver obs = attributeObservers.get(attIndex);
-                if ((obs != null) && !inst.isMissing(instAttIndex)) {
-                    votes[classIndex] *= obs.probabilityOfAttributeValueGivenClass(inst.value(instAttIndex), classIndex);
+        }
+        for (int attIndex = 0; attIndex < inst.numAttributes() - 1; attIndex++) {
+            int instAttIndex = modelAttIndexToInstanceAttIndex(attIndex,
+                    inst);
+            AttributeClassObserver obs = attributeObservers.get(attIndex);
+            if ((obs != null) && !inst.isMissing(instAttIndex)) {
+                double attVal = inst.value(instAttIndex);
+                for (int classIndex = 0; classIndex < votes.length; classIndex++) {
+                    votes[classIndex] *= obs.probabilityOfAttributeValueGivenClass(attVal, classIndex);
                 }
             }
         }
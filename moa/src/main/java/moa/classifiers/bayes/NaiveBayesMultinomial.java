@@ -26,7 +26,7 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
-import moa.core.DoubleVector;
+import moa.core.IntDoubleRowHashMap;
 import moa.core.Measurement;
 import moa.core.StringUtils;
 import moa.core.Utils;
@@ -94,9 +94,10 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
 
     /**
      * probability that a word (w) exists in a class (H) (i.e. Pr[w|H]) The
-     * matrix is in the this format: m_wordTotalForClass[wordAttribute][class]
+     * matrix is in the this format: m_wordTotalForClass[wordAttribute][class],
+     * and only keeps the rows of the words seen
      */
-    protected DoubleVector[] m_wordTotalForClass;
+    protected IntDoubleRowHashMap m_wordTotalForClass;
 
     protected boolean reset = false;
 
@@ -123,11 +124,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
             m_classTotals = new double[m_numClasses];
             Arrays.fill(m_classTotals, laplace * numAttributes);
 
-            m_wordTotalForClass = new DoubleVector[m_numClasses];
-            for (int i = 0; i< m_numClasses; i++) {
-                //Arrays.fill(wordTotal, laplace);
-                m_wordTotalForClass[i] = new DoubleVector();
-            }
+            m_wordTotalForClass = new IntDoubleRowHashMap(m_numClasses);
             this.reset = false;
         }
         // Update classifier
@@ -145,10 +142,10 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
             if (index != classIndex && !inst.isMissing(i)) {
                 //m_wordTotalForClass[index][classValue] += w * inst.valueSparse(i);
                 double laplaceCorrection = 0.0;
-                if (m_wordTotalForClass[classValue].getValue(index)== 0) {
+                if (m_wordTotalForClass.getValue(index, classValue)== 0) {
                     laplaceCorrection = this.laplaceCorrectionOption.getValue();
                 }
-                m_wordTotalForClass[classValue].addToValue(index, w * inst.valueSparse(i) + laplaceCorrection);
+                m_wordTotalForClass.addToValue(index, classValue, w * inst.valueSparse(i) + laplaceCorrection);
             }
         }
     }
@@ -180,8 +177,9 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
             }
 
             double wordCount = instance.valueSparse(i);
+            int slot = m_wordTotalForClass.findSlot(index);
             for (int c = 0; c < m_numClasses; c++) {
-                double value = m_wordTotalForClass[c].getValue(index);
+                double value = slot >= 0 ? m_wordTotalForClass.getSlotValue(slot, c) : 0.0;
                 probOfClassGivenDoc[c] += wordCount * Math.log(value == 0 ? this.laplaceCorrectionOption.getValue() : value );
             }
         }
@@ -240,7 +238,7 @@ public class NaiveBayesMultinomial extends AbstractClassifier  implements MultiC
             }
             result.append(m_headerInfo.attribute(w).name()).append("\t");
             for (int c = 0; c < m_numClasses; c++) {
-                double value = m_wordTotalForClass[c].getValue(w);
+                double value = m_wordTotalForClass.getValue(w, c);
                 if (value == 0){
                     value = this.laplaceCorrectionOption.getValue();
                 }
@@ -24,10 +24,13 @@ import java.io.Serializable;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a numeric attribute using a binary tree.
@@ -38,10 +41,14 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class BinaryTreeNumericAttributeClassObserver extends AbstractOptionHandler
-        implements NumericAttributeClassObserver {
+        implements NumericAttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Estimated size of a node, without the arrays of its class counts. */
+    protected static final long NODE_BYTE_SIZE = SizeOf.estimateObjectSize(4, 8)
+            + 2 * SizeOf.estimateObjectSize(1, 0);
+
     public class Node implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -58,21 +65,39 @@ public class BinaryTreeNumericAttributeClassObserver extends AbstractOptionHandl
 
         public Node(double val, int label, double weight) {
             this.cut_point = val;
-            this.classCountsLeft.addToValue(label, weight);
+            treeByteSize += NODE_BYTE_SIZE
+                    + 2 * SizeOf.estimateArraySize(0, 8);
+            addToClassCounts(this.classCountsLeft, label, weight);
+        }
+
+        /**
+         * Copies a node and its subtree. The estimated size of the tree is
+         * not updated, the copy of the tree gets it from the original.
+         */
+        protected Node(Node toCopy) {
+            this.cut_point = toCopy.cut_point;
+            this.classCountsLeft = toCopy.classCountsLeft.copy();
+            this.classCountsRight = toCopy.classCountsRight.copy();
+            if (toCopy.left != null) {
+                this.left = new Node(toCopy.left);
+            }
+            if (toCopy.right != null) {
+                this.right = new Node(toCopy.right);
+            }
         }
 
         public void insertValue(double val, int label, double weight) {
             if (val == this.cut_point) {
-                this.classCountsLeft.addToValue(label, weight);
+                addToClassCounts(this.classCountsLeft, label, weight);
             } else if (val <= this.cut_point) {
-                this.classCountsLeft.addToValue(label, weight);
+                addToClassCounts(this.classCountsLeft, label, weight);
                 if (this.left == null) {
                     this.left = new Node(val, label, weight);
                 } else {
                     this.left.insertValue(val, label, weight);
                 }
             } else { // val > cut_point
-                this.classCountsRight.addToValue(label, weight);
+                addToClassCounts(this.classCountsRight, label, weight);
                 if (this.right == null) {
                     this.right = new Node(val, label, weight);
                 } else {
@@ -84,6 +109,39 @@ public class BinaryTreeNumericAttributeClassObserver extends AbstractOptionHandl
 
     public Node root = null;
 
+    /** Estimated size of the nodes of the tree, kept up to date as it grows. */
+    protected long treeByteSize = 0;
+
+    /**
+     * Adds to the class counts of a node, accounting for the growth of
+     * their array.
+     */
+    protected void addToClassCounts(DoubleVector classCounts, int label, double weight) {
+        int length = classCounts.numValues();
+        classCounts.addToValue(label, weight);
+        if (classCounts.numValues() != length) {
+            this.treeByteSize += SizeOf.estimateArraySize(classCounts.numValues(), 8)
+                    - SizeOf.estimateArraySize(length, 8);
+        }
+    }
+
+    @Override
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(BinaryTreeNumericAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        BinaryTreeNumericAttributeClassObserver copy = (BinaryTreeNumericAttributeClassObserver) cloneWithOptions();
+        if (this.root != null) {
+            copy.root = copy.new Node(this.root);
+        }
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 8) + this.treeByteSize;
+    }
+
     @Override
     public void observeAttributeClass(double attVal, int classVal, double weight) {
         if (Double.isNaN(attVal)) { //Instance.isMissingValue(attVal)
@@ -0,0 +1,138 @@
+/*
+ *    CountMinNominalAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import java.util.Arrays;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.DoubleVector;
+import moa.core.SizeOf;
+import moa.options.OptionHandler;
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a nominal attribute of
+ * extremely high cardinality in fixed memory. The class counts of the values
+ * are kept in a count-min sketch per class: every value is hashed to one
+ * counter in each row of the sketch, and its count is estimated by the
+ * smallest of these counters. The estimates never fall below the true counts,
+ * and exceed them by at most the weight of the class times e / width with
+ * probability 1 - exp(-depth). The memory taken is width * depth counters per
+ * class, whatever the number of values.
+ *
+ * Only binary splits are suggested, since a multiway split would need a
+ * branch for every value up to the largest one observed.
+ * Used in naive Bayes and decision trees to monitor data statistics on leaves.
+ */
+public class CountMinNominalAttributeClassObserver extends HashedNominalAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption widthOption = new IntOption("width", 'w',
+            "The number of counters in every row of the sketch of a class.",
+            1024, 1, Integer.MAX_VALUE);
+
+    public IntOption depthOption = new IntOption("depth", 'd',
+            "The number of rows of the sketch of a class.",
+            4, 1, 32);
+
+    /** The counters of the sketches, class after class and row after row. */
+    protected double[] counters = new double[0];
+
+    @Override
+    protected void addToClassCount(int attValInt, int classVal, double weight) {
+        int width = this.widthOption.getValue();
+        int depth = this.depthOption.getValue();
+        int classOffset = classVal * depth * width;
+        if (classOffset + depth * width > this.counters.length) {
+            this.counters = Arrays.copyOf(this.counters, classOffset + depth * width);
+        }
+        for (int row = 0; row < depth; row++) {
+            this.counters[classOffset + row * width + bucket(attValInt, row, width)] += weight;
+        }
+    }
+
+    @Override
+    protected double getClassCount(int attValInt, int classVal) {
+        int width = this.widthOption.getValue();
+        int depth = this.depthOption.getValue();
+        int classOffset = classVal * depth * width;
+        if (classOffset >= this.counters.length) {
+            return 0.0;
+        }
+        double count = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < depth; row++) {
+            count = Math.min(count, this.counters[classOffset + row * width + bucket(attValInt, row, width)]);
+        }
+        return Math.min(count, this.weightPerClass.getValue(classVal));
+    }
+
+    @Override
+    protected void getClassCounts(int attValInt, double[] classCounts) {
+        for (int i = 0; i < classCounts.length; i++) {
+            classCounts[i] = getClassCount(attValInt, i);
+        }
+    }
+
+    protected static int bucket(int attValInt, int row, int width) {
+        // a different mix of the value for every row, after murmur3
+        int h = attValInt ^ (row * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return (h & 0x7FFFFFFF) % width;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        return super.getBestEvaluatedSplitSuggestion(criterion, preSplitDist,
+                attIndex, true);
+    }
+
+    @Override
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(CountMinNominalAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        CountMinNominalAttributeClassObserver copy = (CountMinNominalAttributeClassObserver) cloneWithOptions();
+        copy.counters = this.counters.clone();
+        copy.weightPerClass = new DoubleVector(this.weightPerClass);
+        copy.numValuesPerClass = new DoubleVector(this.numValuesPerClass);
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.widthOption = copyOption(this.widthOption);
+        this.depthOption = copyOption(this.depthOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(6, 16)
+                + SizeOf.estimateArraySize(this.counters.length, 8)
+                + this.weightPerClass.estimateByteSize()
+                + this.numValuesPerClass.estimateByteSize();
+    }
+}
@@ -23,17 +23,19 @@ import moa.core.ObjectRepository;
 import moa.tasks.TaskMonitor;
 import moa.core.Utils;
 
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.Arrays;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.GaussianEstimator;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a numeric attribute using gaussian estimators.
@@ -44,7 +46,7 @@ import com.github.javacliparser.IntOption;
  * @version $Revision: 7 $
  */
 public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
-        implements NumericAttributeClassObserver {
+        implements NumericAttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -90,23 +92,33 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
     public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
             SplitCriterion criterion, double[] preSplitDist, int attIndex,
             boolean binaryOnly) {
-        AttributeSplitSuggestion bestSuggestion = null;
         double[] suggestedSplitValues = getSplitPointSuggestions();
-        for (double splitValue : suggestedSplitValues) {
-            double[][] postSplitDists = getClassDistsResultingFromBinarySplit(splitValue);
+        if (suggestedSplitValues.length == 0) {
+            return null;
+        }
+        // the candidates are scored in the same buffers, and only the
+        // distributions of the best one are computed again for its suggestion
+        int numClasses = this.attValDistPerClass.size();
+        double[][] postSplitDists = new double[][]{new double[numClasses], new double[numClasses]};
+        double[] weightDist = new double[3];
+        double bestSplitValue = 0.0;
+        double bestMerit = 0.0;
+        for (int i = 0; i < suggestedSplitValues.length; i++) {
+            fillClassDistsResultingFromBinarySplit(suggestedSplitValues[i],
+                    postSplitDists[0], postSplitDists[1], weightDist);
             double merit = criterion.getMeritOfSplit(preSplitDist,
                     postSplitDists);
-            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
-                bestSuggestion = new AttributeSplitSuggestion(
-                        new NumericAttributeBinaryTest(attIndex, splitValue,
-                        true), postSplitDists, merit);
+            if ((i == 0) || (merit > bestMerit)) {
+                bestSplitValue = suggestedSplitValues[i];
+                bestMerit = merit;
             }
         }
-        return bestSuggestion;
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, bestSplitValue, true),
+                getClassDistsResultingFromBinarySplit(bestSplitValue), bestMerit);
     }
 
     public double[] getSplitPointSuggestions() {
-        Set<Double> suggestedSplitValues = new TreeSet<Double>();
         double minValue = Double.POSITIVE_INFINITY;
         double maxValue = Double.NEGATIVE_INFINITY;
         for (int i = 0; i < this.attValDistPerClass.size(); i++) {
@@ -120,22 +132,22 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
                 }
             }
         }
-        if (minValue < Double.POSITIVE_INFINITY) {
-            double range = maxValue - minValue;
-            for (int i = 0; i < this.numBinsOption.getValue(); i++) {
-                double splitValue = range / (this.numBinsOption.getValue() + 1.0) * (i + 1)
-                        + minValue;
-                if ((splitValue > minValue) && (splitValue < maxValue)) {
-                    suggestedSplitValues.add(splitValue);
-                }
-            }
+        if (!(minValue < Double.POSITIVE_INFINITY)) {
+            return new double[0];
         }
-        double[] suggestions = new double[suggestedSplitValues.size()];
-        int i = 0;
-        for (double suggestion : suggestedSplitValues) {
-            suggestions[i++] = suggestion;
+        // the split points grow with i, so equal ones are next to each other
+        double range = maxValue - minValue;
+        double[] suggestions = new double[this.numBinsOption.getValue()];
+        int numSuggestions = 0;
+        for (int i = 0; i < this.numBinsOption.getValue(); i++) {
+            double splitValue = range / (this.numBinsOption.getValue() + 1.0) * (i + 1)
+                    + minValue;
+            if ((splitValue > minValue) && (splitValue < maxValue)
+                    && ((numSuggestions == 0) || (splitValue != suggestions[numSuggestions - 1]))) {
+                suggestions[numSuggestions++] = splitValue;
+            }
         }
-        return suggestions;
+        return numSuggestions < suggestions.length ? Arrays.copyOf(suggestions, numSuggestions) : suggestions;
     }
 
     // assume all values equal to splitValue go to lhs
@@ -159,6 +171,62 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
         return new double[][]{lhsDist.getArrayRef(), rhsDist.getArrayRef()};
     }
 
+    /**
+     * Fills buffers with the class distributions resulting from a binary
+     * split, as getClassDistsResultingFromBinarySplit computes them.
+     *
+     * @param splitValue the split value, values equal to it going to the left
+     * @param lhsDist the buffer for the left distribution, one value per class
+     * @param rhsDist the buffer for the right distribution, one value per class
+     * @param weightDist a buffer of three values
+     */
+    protected void fillClassDistsResultingFromBinarySplit(double splitValue,
+            double[] lhsDist, double[] rhsDist, double[] weightDist) {
+        Arrays.fill(lhsDist, 0.0);
+        Arrays.fill(rhsDist, 0.0);
+        for (int i = 0; i < this.attValDistPerClass.size(); i++) {
+            GaussianEstimator estimator = this.attValDistPerClass.get(i);
+            if (estimator != null) {
+                if (splitValue < this.minValueObservedPerClass.getValue(i)) {
+                    rhsDist[i] += estimator.getTotalWeightObserved();
+                } else if (splitValue >= this.maxValueObservedPerClass.getValue(i)) {
+                    lhsDist[i] += estimator.getTotalWeightObserved();
+                } else {
+                    estimator.estimatedWeight_LessThan_EqualTo_GreaterThan_Value(splitValue, weightDist);
+                    lhsDist[i] += weightDist[0] + weightDist[1];
+                    rhsDist[i] += weightDist[2];
+                }
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(GaussianNumericAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        GaussianNumericAttributeClassObserver copy = (GaussianNumericAttributeClassObserver) cloneWithOptions();
+        copy.minValueObservedPerClass = this.minValueObservedPerClass.copy();
+        copy.maxValueObservedPerClass = this.maxValueObservedPerClass.copy();
+        copy.attValDistPerClass = (AutoExpandVector<GaussianEstimator>) this.attValDistPerClass.copy();
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.numBinsOption = copyOption(this.numBinsOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(3, 0)
+                + this.minValueObservedPerClass.estimateByteSize()
+                + this.maxValueObservedPerClass.estimateByteSize()
+                + this.attValDistPerClass.estimateByteSize();
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
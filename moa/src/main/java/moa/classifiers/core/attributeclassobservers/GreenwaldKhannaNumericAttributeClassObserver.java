@@ -25,12 +25,15 @@ import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.Utils;
 
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.GreenwaldKhannaQuantileSummary;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
 import moa.tasks.TaskMonitor;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a numeric attribute using Greenwald and Khanna methodology.
@@ -40,7 +43,7 @@ import moa.tasks.TaskMonitor;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class GreenwaldKhannaNumericAttributeClassObserver extends AbstractOptionHandler implements NumericAttributeClassObserver {
+public class GreenwaldKhannaNumericAttributeClassObserver extends AbstractOptionHandler implements NumericAttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -109,6 +112,29 @@ public class GreenwaldKhannaNumericAttributeClassObserver extends AbstractOption
         return new double[][]{lhsDist.getArrayRef(), rhsDist.getArrayRef()};
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(GreenwaldKhannaNumericAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        GreenwaldKhannaNumericAttributeClassObserver copy = (GreenwaldKhannaNumericAttributeClassObserver) cloneWithOptions();
+        copy.attValDistPerClass = (AutoExpandVector<GreenwaldKhannaQuantileSummary>) this.attValDistPerClass.copy();
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.numTuplesOption = copyOption(this.numTuplesOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 0)
+                + this.attValDistPerClass.estimateByteSize();
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -0,0 +1,231 @@
+/*
+ *    HashedNominalAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
+import moa.core.DoubleVector;
+import moa.core.IntDoubleRowHashMap;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Class for observing the class data distribution for a nominal attribute,
+ * keeping the class counts of the observed values only in an open-addressing
+ * hash map. It behaves as NominalAttributeClassObserver, which keeps an array
+ * as long as the largest value for every class, but takes far less memory on
+ * attributes with many values of which a leaf only sees a few.
+ * Used in naive Bayes and decision trees to monitor data statistics on leaves.
+ */
+public class HashedNominalAttributeClassObserver extends AbstractOptionHandler implements
+        DiscreteAttributeClassObserver, ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected double totalWeightObserved = 0.0;
+
+    protected double missingWeightObserved = 0.0;
+
+    /** The class counts of every observed value. */
+    protected IntDoubleRowHashMap classCountsPerValue = new IntDoubleRowHashMap();
+
+    /** The weight observed for every class, without the missing values. */
+    protected DoubleVector weightPerClass = new DoubleVector();
+
+    /** The largest value observed for every class, plus one. */
+    protected DoubleVector numValuesPerClass = new DoubleVector();
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+            this.missingWeightObserved += weight;
+        } else {
+            int attValInt = (int) attVal;
+            addToClassCount(attValInt, classVal, weight);
+            this.weightPerClass.addToValue(classVal, weight);
+            if (attValInt + 1 > this.numValuesPerClass.getValue(classVal)) {
+                this.numValuesPerClass.setValue(classVal, attValInt + 1);
+            }
+        }
+        this.totalWeightObserved += weight;
+    }
+
+    protected void addToClassCount(int attValInt, int classVal, double weight) {
+        this.classCountsPerValue.addToValue(attValInt, classVal, weight);
+    }
+
+    /**
+     * Gets the class counts of a value.
+     *
+     * @param attValInt the value
+     * @param classCounts the array to fill, as long as the number of classes
+     */
+    protected void getClassCounts(int attValInt, double[] classCounts) {
+        this.classCountsPerValue.getRow(attValInt, classCounts);
+    }
+
+    protected double getClassCount(int attValInt, int classVal) {
+        return this.classCountsPerValue.getValue(attValInt, classVal);
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        double numValues = this.numValuesPerClass.getValue(classVal);
+        return numValues > 0.0 ? (getClassCount((int) attVal, classVal) + 1.0)
+                / (this.weightPerClass.getValue(classVal) + numValues) : 0.0;
+    }
+
+    public double totalWeightOfClassObservations() {
+        return this.totalWeightObserved;
+    }
+
+    public double weightOfObservedMissingValues() {
+        return this.missingWeightObserved;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        int maxAttValsObserved = getMaxAttValsObserved();
+        if (!binaryOnly) {
+            double[][] postSplitDists = getClassDistsResultingFromMultiwaySplit(maxAttValsObserved);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            bestSuggestion = new AttributeSplitSuggestion(
+                    new NominalAttributeMultiwayTest(attIndex), postSplitDists,
+                    merit);
+        }
+        // the binary splits are scored in the same buffers, and only the
+        // best one becomes a suggestion
+        double[][] postSplitDists = newBinarySplitDists(maxAttValsObserved);
+        int bestValIndex = -1;
+        double bestMerit = bestSuggestion != null ? bestSuggestion.merit : 0.0;
+        for (int valIndex = 0; valIndex < maxAttValsObserved; valIndex++) {
+            fillClassDistsResultingFromBinarySplit(valIndex, postSplitDists[0], postSplitDists[1]);
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if (((bestSuggestion == null) && (bestValIndex < 0)) || (merit > bestMerit)) {
+                bestValIndex = valIndex;
+                bestMerit = merit;
+            }
+        }
+        if (bestValIndex >= 0) {
+            bestSuggestion = new AttributeSplitSuggestion(
+                    new NominalAttributeBinaryTest(attIndex, bestValIndex),
+                    getClassDistsResultingFromBinarySplit(bestValIndex), bestMerit);
+        }
+        return bestSuggestion;
+    }
+
+    public int getMaxAttValsObserved() {
+        int maxAttValsObserved = 0;
+        for (int i = 0; i < this.numValuesPerClass.numValues(); i++) {
+            maxAttValsObserved = Math.max(maxAttValsObserved,
+                    (int) this.numValuesPerClass.getValue(i));
+        }
+        return maxAttValsObserved;
+    }
+
+    public double[][] getClassDistsResultingFromMultiwaySplit(
+            int maxAttValsObserved) {
+        double[][] distributions = new double[maxAttValsObserved][this.weightPerClass.numValues()];
+        for (int i = 0; i < distributions.length; i++) {
+            getClassCounts(i, distributions[i]);
+        }
+        return distributions;
+    }
+
+    public double[][] getClassDistsResultingFromBinarySplit(int valIndex) {
+        double[][] distributions = newBinarySplitDists(getMaxAttValsObserved());
+        fillClassDistsResultingFromBinarySplit(valIndex, distributions[0], distributions[1]);
+        return distributions;
+    }
+
+    /**
+     * With a single observed value, the other branch is left empty, as in
+     * NominalAttributeClassObserver; a branch of zeros would make the Gini
+     * merit NaN.
+     */
+    protected double[][] newBinarySplitDists(int maxAttValsObserved) {
+        int numClasses = this.weightPerClass.numValues();
+        return new double[][]{new double[numClasses],
+                    new double[maxAttValsObserved > 1 ? numClasses : 0]};
+    }
+
+    protected void fillClassDistsResultingFromBinarySplit(int valIndex,
+            double[] equalsDist, double[] notEqualDist) {
+        getClassCounts(valIndex, equalsDist);
+        for (int i = 0; i < notEqualDist.length; i++) {
+            notEqualDist[i] = Math.max(0.0, this.weightPerClass.getValue(i) - equalsDist[i]);
+        }
+    }
+
+    @Override
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(HashedNominalAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        HashedNominalAttributeClassObserver copy = (HashedNominalAttributeClassObserver) cloneWithOptions();
+        copyCountsTo(copy);
+        return copy;
+    }
+
+    protected void copyCountsTo(HashedNominalAttributeClassObserver copy) {
+        copy.classCountsPerValue = this.classCountsPerValue.copy();
+        copy.weightPerClass = new DoubleVector(this.weightPerClass);
+        copy.numValuesPerClass = new DoubleVector(this.numValuesPerClass);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(3, 16)
+                + this.classCountsPerValue.estimateByteSize()
+                + this.weightPerClass.estimateByteSize()
+                + this.numValuesPerClass.estimateByteSize();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    /**
+     * Not supported: this observer keeps class counts only, so it cannot
+     * observe the numeric targets of regression.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException(getClass().getSimpleName()
+                + " observes class labels only: regression targets are not supported.");
+    }
+}
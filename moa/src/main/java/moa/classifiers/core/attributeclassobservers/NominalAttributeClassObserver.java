@@ -28,8 +28,11 @@ import moa.tasks.TaskMonitor;
 import moa.core.Utils;
 
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a nominal attribute.
@@ -40,7 +43,7 @@ import moa.options.AbstractOptionHandler;
  * @version $Revision: 7 $
  */
 public class NominalAttributeClassObserver extends AbstractOptionHandler implements
-        DiscreteAttributeClassObserver {
+        DiscreteAttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -96,16 +99,25 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
                     new NominalAttributeMultiwayTest(attIndex), postSplitDists,
                     merit);
         }
+        // only the best binary split becomes a suggestion
+        int bestValIndex = -1;
+        double[][] bestPostSplitDists = null;
+        double bestMerit = bestSuggestion != null ? bestSuggestion.merit : 0.0;
         for (int valIndex = 0; valIndex < maxAttValsObserved; valIndex++) {
             double[][] postSplitDists = getClassDistsResultingFromBinarySplit(valIndex);
             double merit = criterion.getMeritOfSplit(preSplitDist,
                     postSplitDists);
-            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
-                bestSuggestion = new AttributeSplitSuggestion(
-                        new NominalAttributeBinaryTest(attIndex, valIndex),
-                        postSplitDists, merit);
+            if (((bestSuggestion == null) && (bestValIndex < 0)) || (merit > bestMerit)) {
+                bestValIndex = valIndex;
+                bestPostSplitDists = postSplitDists;
+                bestMerit = merit;
             }
         }
+        if (bestValIndex >= 0) {
+            bestSuggestion = new AttributeSplitSuggestion(
+                    new NominalAttributeBinaryTest(attIndex, bestValIndex),
+                    bestPostSplitDists, bestMerit);
+        }
         return bestSuggestion;
     }
 
@@ -160,6 +172,23 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
                     notEqualDist.getArrayRef()};
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(NominalAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        NominalAttributeClassObserver copy = (NominalAttributeClassObserver) cloneWithOptions();
+        copy.attValDistPerClass = (AutoExpandVector<DoubleVector>) this.attValDistPerClass.copy();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 16)
+                + this.attValDistPerClass.estimateByteSize();
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
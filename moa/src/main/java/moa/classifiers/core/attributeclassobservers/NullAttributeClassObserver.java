@@ -21,9 +21,12 @@ package moa.classifiers.core.attributeclassobservers;
 
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ByteSizeEstimable;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import moa.tasks.TaskMonitor;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a null attribute.
@@ -34,7 +37,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class NullAttributeClassObserver extends AbstractOptionHandler implements
-        AttributeClassObserver {
+        AttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -56,6 +59,19 @@ public class NullAttributeClassObserver extends AbstractOptionHandler implements
         return 0.0;
     }
 
+    @Override
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(NullAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        return cloneWithOptions();
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(0, 0);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
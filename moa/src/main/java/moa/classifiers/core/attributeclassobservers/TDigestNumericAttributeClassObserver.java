@@ -0,0 +1,205 @@
+/*
+ *    TDigestNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.TDigest;
+import moa.core.Utils;
+import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
+import moa.tasks.TaskMonitor;
+import com.github.javacliparser.IntOption;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using one t-digest quantile sketch per class. The memory used by a sketch
+ * is bounded by its compression, whatever the number of values observed.
+ * The split points evaluated lie between the centroids of the sketches, and
+ * the density of the sketches is used by naive Bayes.
+ * Used in naive Bayes and decision trees to monitor data statistics on leaves.
+ */
+public class TDigestNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver, ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected AutoExpandVector<TDigest> attValDistPerClass = new AutoExpandVector<TDigest>();
+
+    public IntOption compressionOption = new IntOption("compression", 'c',
+            "The compression of the sketches: each keeps about this many centroids, for a quantile error of about its inverse.",
+            100, 10, Integer.MAX_VALUE);
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal)) {
+        } else {
+            TDigest valDist = this.attValDistPerClass.get(classVal);
+            if (valDist == null) {
+                valDist = new TDigest(this.compressionOption.getValue());
+                this.attValDistPerClass.set(classVal, valDist);
+            }
+            valDist.add(attVal, weight);
+        }
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        TDigest obs = this.attValDistPerClass.get(classVal);
+        return obs != null ? obs.getDensity(attVal) : 0.0;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        int numClasses = this.attValDistPerClass.size();
+        // the centroids of all classes are swept in order of their means, the
+        // weight of every centroid moving to the left of the split at once
+        int[] nextCentroid = new int[numClasses];
+        int[] numCentroids = new int[numClasses];
+        double[][] postSplitDists = new double[][]{new double[numClasses], new double[numClasses]};
+        for (int i = 0; i < numClasses; i++) {
+            TDigest digest = this.attValDistPerClass.get(i);
+            if (digest != null) {
+                numCentroids[i] = digest.numCentroids();
+                postSplitDists[1][i] = digest.getTotalWeight();
+            }
+        }
+        double[] bestLeftDist = null;
+        double bestSplitValue = 0.0;
+        double bestMerit = 0.0;
+        while (true) {
+            double mean = nextMean(nextCentroid, numCentroids);
+            if (Double.isNaN(mean)) {
+                break;
+            }
+            for (int i = 0; i < numClasses; i++) {
+                while (nextCentroid[i] < numCentroids[i]
+                        && this.attValDistPerClass.get(i).getMean(nextCentroid[i]) == mean) {
+                    double weight = this.attValDistPerClass.get(i).getWeight(nextCentroid[i]++);
+                    postSplitDists[0][i] += weight;
+                    postSplitDists[1][i] -= weight;
+                }
+            }
+            double nextMean = nextMean(nextCentroid, numCentroids);
+            if (Double.isNaN(nextMean)) {
+                break;
+            }
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            if ((bestLeftDist == null) || (merit > bestMerit)) {
+                if (bestLeftDist == null) {
+                    bestLeftDist = new double[numClasses];
+                }
+                System.arraycopy(postSplitDists[0], 0, bestLeftDist, 0, numClasses);
+                bestSplitValue = (mean + nextMean) / 2.0;
+                bestMerit = merit;
+            }
+        }
+        if (bestLeftDist == null) {
+            return null;
+        }
+        double[] bestRightDist = new double[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            TDigest digest = this.attValDistPerClass.get(i);
+            if (digest != null) {
+                bestRightDist[i] = digest.getTotalWeight() - bestLeftDist[i];
+            }
+        }
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, bestSplitValue, true),
+                new double[][]{bestLeftDist, bestRightDist}, bestMerit);
+    }
+
+    protected double nextMean(int[] nextCentroid, int[] numCentroids) {
+        double mean = Double.NaN;
+        for (int i = 0; i < numCentroids.length; i++) {
+            if (nextCentroid[i] < numCentroids[i]) {
+                double classMean = this.attValDistPerClass.get(i).getMean(nextCentroid[i]);
+                if (Double.isNaN(mean) || classMean < mean) {
+                    mean = classMean;
+                }
+            }
+        }
+        return mean;
+    }
+
+    // assume all values equal to splitValue go to lhs
+    public double[][] getClassDistsResultingFromBinarySplit(double splitValue) {
+        int numClasses = this.attValDistPerClass.size();
+        double[] lhsDist = new double[numClasses];
+        double[] rhsDist = new double[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            TDigest digest = this.attValDistPerClass.get(i);
+            if (digest != null) {
+                lhsDist[i] = digest.getWeightBelow(splitValue);
+                rhsDist[i] = digest.getTotalWeight() - lhsDist[i];
+            }
+        }
+        return new double[][]{lhsDist, rhsDist};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(TDigestNumericAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        TDigestNumericAttributeClassObserver copy = (TDigestNumericAttributeClassObserver) cloneWithOptions();
+        copy.attValDistPerClass = (AutoExpandVector<TDigest>) this.attValDistPerClass.copy();
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.compressionOption = copyOption(this.compressionOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(2, 0)
+                + this.attValDistPerClass.estimateByteSize();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+    }
+
+    /**
+     * Not supported: this observer keeps class counts only, so it cannot
+     * observe the numeric targets of regression.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException(getClass().getSimpleName()
+                + " observes class labels only: regression targets are not supported.");
+    }
+}
@@ -28,11 +28,14 @@ import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.options.AbstractOptionHandler;
 import com.github.javacliparser.IntOption;
 import moa.tasks.TaskMonitor;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a numeric attribute as in VFML.
@@ -42,7 +45,7 @@ import moa.tasks.TaskMonitor;
  * @version $Revision: 7 $
  */
 public class VFMLNumericAttributeClassObserver extends AbstractOptionHandler
-        implements NumericAttributeClassObserver {
+        implements NumericAttributeClassObserver, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -213,6 +216,43 @@ public class VFMLNumericAttributeClassObserver extends AbstractOptionHandler
         return bestSuggestion;
     }
 
+    @Override
+    public OptionHandler copy() {
+        if (!canCopyFieldByField(VFMLNumericAttributeClassObserver.class)) {
+            return super.copy();
+        }
+        VFMLNumericAttributeClassObserver copy = (VFMLNumericAttributeClassObserver) cloneWithOptions();
+        copy.binList = new ArrayList<Bin>(this.binList.size());
+        for (Bin bin : this.binList) {
+            Bin binCopy = copy.new Bin();
+            binCopy.lowerBound = bin.lowerBound;
+            binCopy.upperBound = bin.upperBound;
+            binCopy.classWeights = bin.classWeights.copy();
+            binCopy.boundaryClass = bin.boundaryClass;
+            binCopy.boundaryWeight = bin.boundaryWeight;
+            copy.binList.add(binCopy);
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.numBinsOption = copyOption(this.numBinsOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateObjectSize(1, 0)
+                + SizeOf.estimateObjectSize(1, 8)
+                + SizeOf.estimateArraySize(this.binList.size(), SizeOf.REFERENCE);
+        for (Bin bin : this.binList) {
+            size += SizeOf.estimateObjectSize(1, 28)
+                    + bin.classWeights.estimateByteSize();
+        }
+        return size;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
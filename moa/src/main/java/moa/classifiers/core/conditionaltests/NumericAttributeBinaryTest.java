@@ -88,4 +88,8 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
     public double getSplitValue() {
         return this.attValue;
     }
+
+    public boolean getEqualsPassesTest() {
+        return this.equalsPassesTest;
+    }
 }
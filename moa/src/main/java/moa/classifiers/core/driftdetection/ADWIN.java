@@ -20,6 +20,8 @@
 package moa.classifiers.core.driftdetection;
 
 import moa.AbstractMOAObject;
+import moa.core.ByteSizeEstimable;
+import moa.core.SizeOf;
 
 /**
  * ADaptive sliding WINdow method. This method is a change detector and estimator.
@@ -28,258 +30,16 @@ import moa.AbstractMOAObject;
  * consistent with the hypothesis "there has been no change in the average value
  * inside the window".
  *
+ * The window is an exponential histogram: row i holds up to MAXBUCKETS + 1
+ * buckets of 2^i items each, with their total and variance. The rows are
+ * stored one after the other in primitive arrays, every row being a small
+ * ring buffer, so that inserting, merging and dropping buckets never
+ * allocates nor shifts values.
  *
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class ADWIN extends AbstractMOAObject {
-
-    private class List extends AbstractMOAObject {
-
-        protected int count;
-
-        protected ListItem head;
-
-        protected ListItem tail;
-
-        public List() {
-//			post: initializes the list to be empty.
-            clear();
-            addToHead();
-        }
-
-        /* Interface Store Methods */
-        public int size() {
-            //	post: returns the number of elements in the list.
-            return this.count;
-        }
-
-        public ListItem head() {
-            //	post: returns the number of elements in the list.
-            return this.head;
-        }
-
-        public ListItem tail() {
-            //	post: returns the number of elements in the list.
-            return this.tail;
-        }
-
-        public boolean isEmpty() {
-            //	 post: returns the true iff store is empty.
-            return (this.size() == 0);
-        }
-
-        public void clear() {
-            //	 post: clears the list so that it contains no elements.
-            this.head = null;
-            this.tail = null;
-            this.count = 0;
-        }
-
-        /* Interface List Methods */
-        public void addToHead() {
-            //	 pre: anObject is non-null
-            //	 post: the object is added to the beginning of the list
-            this.head = new ListItem(this.head, null);
-            if (this.tail == null) {
-                this.tail = this.head;
-            }
-            this.count++;
-        }
-
-        public void removeFromHead() {
-            //		 pre: list is not empty
-            //		 post: removes and returns first object from the list
-//			ListItem temp;
-//			temp = this.head;
-            this.head = this.head.next();
-            if (this.head != null) {
-                this.head.setPrevious(null);
-            } else {
-                this.tail = null;
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        public void addToTail() {
-//			pre: anObject is non-null
-//			post: the object is added at the end of the list
-            this.tail = new ListItem(null, this.tail);
-            if (this.head == null) {
-                this.head = this.tail;
-            }
-            this.count++;
-        }
-
-        public void removeFromTail() {
-//			pre: list is not empty
-//			post: the last object in the list is removed and returned
-//			ListItem temp;
-//			temp = this.tail;
-            this.tail = this.tail.previous();
-            if (this.tail == null) {
-                this.head = null;
-            } else {
-                this.tail.setNext(null);
-            }
-            this.count--;
-            //temp=null;
-            return;
-        }
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
-
-    private class ListItem extends AbstractMOAObject {
-//		protected Object data;
-
-        protected ListItem next;
-
-        protected ListItem previous;
-
-        protected int bucketSizeRow = 0;
-
-        protected int MAXBUCKETS = ADWIN.MAXBUCKETS;
-
-        protected double bucketTotal[] = new double[MAXBUCKETS + 1];
-
-        protected double bucketVariance[] = new double[MAXBUCKETS + 1];
-
-        public ListItem() {
-//			post: initializes the node to be a tail node
-//			containing the given value.
-            this(null, null);
-        }
-
-        public void clear() {
-            bucketSizeRow = 0;
-            for (int k = 0; k <= MAXBUCKETS; k++) {
-                clearBucket(k);
-            }
-        }
-
-        private void clearBucket(int k) {
-            setTotal(0, k);
-            setVariance(0, k);
-        }
-
-        public ListItem(ListItem nextNode, ListItem previousNode) {
-//			post: initializes the node to contain the given
-//			object and link to the given next node.
-            //this.data = element;
-            this.next = nextNode;
-            this.previous = previousNode;
-            if (nextNode != null) {
-                nextNode.previous = this;
-            }
-            if (previousNode != null) {
-                previousNode.next = this;
-            }
-            clear();
-        }
-
-        public void insertBucket(double Value, double Variance) {
-//			insert a Bucket at the end
-            int k = bucketSizeRow;
-            bucketSizeRow++;
-            //Insert new bucket
-            setTotal(Value, k);
-            setVariance(Variance, k);
-        }
-
-        public void RemoveBucket() {
-//			Removes the first Buvket
-            compressBucketsRow(1);
-        }
-
-        public void compressBucketsRow(int NumberItemsDeleted) {
-            //Delete first elements
-            for (int k = NumberItemsDeleted; k <= MAXBUCKETS; k++) {
-                bucketTotal[k - NumberItemsDeleted] = bucketTotal[k];
-                bucketVariance[k - NumberItemsDeleted] = bucketVariance[k];
-            }
-            for (int k = 1; k <= NumberItemsDeleted; k++) {
-                clearBucket(MAXBUCKETS - k + 1);
-            }
-            bucketSizeRow -= NumberItemsDeleted;
-            //BucketNumber-=NumberItemsDeleted;
-        }
-
-        public ListItem previous() {
-//			post: returns the previous node.
-            return this.previous;
-        }
-
-        public void setPrevious(ListItem previous) {
-//			post: sets the previous node to be the given node
-            this.previous = previous;
-        }
-
-        public ListItem next() {
-//			post: returns the next node.
-            return this.next;
-        }
-
-        public void setNext(ListItem next) {
-//			post: sets the next node to be the given node
-            this.next = next;
-        }
-
-        public double Total(int k) {
-//			post: returns the element in this node
-            return bucketTotal[k];
-        }
-
-        public double Variance(int k) {
-//			post: returns the element in this node
-            return bucketVariance[k];
-        }
-
-        public void setTotal(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketTotal[k] = value;
-        }
-
-        public void setVariance(double value, int k) {
-//			post: sets the element in this node to the given
-//			object.
-            bucketVariance[k] = value;
-        }
-        /*
-        public ListItem(Object element,
-        ListItem nextNode){
-        //		post: initializes the node to contain the given
-        //		 object and link to the given next node.
-        this.data = element;
-        this.next = nextNode;
-        }
-        public ListItem(Object element) {
-        //		post: initializes the node to be a tail node
-        //		 containing the given value.
-        this(element, null);
-        }
-
-
-        public Object value() {
-        //			 post: returns the element in this node
-        return this.data;
-        }
-        public void setValue(Object anObject) {
-        //			 post: sets the element in this node to the given
-        //			 object.
-        this.data = anObject;
-        }
-         */
-
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
-        }
-    }
+public class ADWIN extends AbstractMOAObject implements ByteSizeEstimable {
 
     public static final double DELTA = .002; //.1;
 
@@ -318,7 +78,22 @@ public class ADWIN extends AbstractMOAObject {
 
     private int mintMinWinLength = 5;
 
-    private List listRowBuckets;
+    /** The number of bucket slots of a row, a power of two above MAXBUCKETS. */
+    private static final int ROW_CAPACITY = 8;
+
+    private static final int ROW_MASK = ROW_CAPACITY - 1;
+
+    /** The totals of the buckets, ROW_CAPACITY slots per row. */
+    private double[] bucketTotals;
+
+    /** The variances of the buckets, ROW_CAPACITY slots per row. */
+    private double[] bucketVariances;
+
+    /** The slot of the oldest bucket of every row. */
+    private int[] rowStarts;
+
+    /** The number of buckets of every row. */
+    private int[] rowSizes;
 
     public boolean getChange() {
         return blnBucketDeleted;
@@ -374,7 +149,11 @@ public class ADWIN extends AbstractMOAObject {
 
     private void initBuckets() {
         //Init buckets
-        listRowBuckets = new List();
+        int numRows = 4;
+        bucketTotals = new double[numRows * ROW_CAPACITY];
+        bucketVariances = new double[numRows * ROW_CAPACITY];
+        rowStarts = new int[numRows];
+        rowSizes = new int[numRows];
         lastBucketRow = 0;
         TOTAL = 0;
         VARIANCE = 0;
@@ -382,9 +161,48 @@ public class ADWIN extends AbstractMOAObject {
         BucketNumber = 0;
     }
 
+    private int bucketSlot(int Row, int k) {
+        return Row * ROW_CAPACITY + ((rowStarts[Row] + k) & ROW_MASK);
+    }
+
+    private void insertBucket(int Row, double Value, double Variance) {
+        //Insert a bucket at the end of the row
+        int slot = bucketSlot(Row, rowSizes[Row]);
+        bucketTotals[slot] = Value;
+        bucketVariances[slot] = Variance;
+        rowSizes[Row]++;
+    }
+
+    private void removeBuckets(int Row, int NumberItemsDeleted) {
+        //Delete the first buckets of the row
+        rowStarts[Row] = (rowStarts[Row] + NumberItemsDeleted) & ROW_MASK;
+        rowSizes[Row] -= NumberItemsDeleted;
+    }
+
+    private void addRow() {
+        lastBucketRow++;
+        if (lastBucketRow == rowSizes.length) {
+            int numRows = 2 * rowSizes.length;
+            double[] newTotals = new double[numRows * ROW_CAPACITY];
+            double[] newVariances = new double[numRows * ROW_CAPACITY];
+            int[] newStarts = new int[numRows];
+            int[] newSizes = new int[numRows];
+            System.arraycopy(bucketTotals, 0, newTotals, 0, bucketTotals.length);
+            System.arraycopy(bucketVariances, 0, newVariances, 0, bucketVariances.length);
+            System.arraycopy(rowStarts, 0, newStarts, 0, rowStarts.length);
+            System.arraycopy(rowSizes, 0, newSizes, 0, rowSizes.length);
+            bucketTotals = newTotals;
+            bucketVariances = newVariances;
+            rowStarts = newStarts;
+            rowSizes = newSizes;
+        }
+        rowStarts[lastBucketRow] = 0;
+        rowSizes[lastBucketRow] = 0;
+    }
+
     private void insertElement(double Value) {
         WIDTH++;
-        insertElementBucket(0, Value, listRowBuckets.head());
+        insertElementBucket(0, Value, 0);
         double incVariance = 0;
         if (WIDTH > 1) {
             incVariance = (WIDTH - 1) * (Value - TOTAL / (WIDTH - 1)) * (Value - TOTAL / (WIDTH - 1)) / WIDTH;
@@ -394,9 +212,9 @@ public class ADWIN extends AbstractMOAObject {
         compressBuckets();
     }
 
-    private void insertElementBucket(double Variance, double Value, ListItem Node) {
+    private void insertElementBucket(double Variance, double Value, int Row) {
         //Insert new bucket
-        Node.insertBucket(Value, Variance);
+        insertBucket(Row, Value, Variance);
         BucketNumber++;
         if (BucketNumber > BucketNumberMAX) {
             BucketNumberMAX = BucketNumber;
@@ -404,68 +222,60 @@ public class ADWIN extends AbstractMOAObject {
     }
 
     private int bucketSize(int Row) {
-        return (int) Math.pow(2, Row);
+        return 1 << Row;
     }
 
     public int deleteElement() {
-        //LIST
         //Update statistics
-        ListItem Node;
-        Node = listRowBuckets.tail();
+        int slot = bucketSlot(lastBucketRow, 0);
         int n1 = bucketSize(lastBucketRow);
         WIDTH -= n1;
-        TOTAL -= Node.Total(0);
-        double u1 = Node.Total(0) / n1;
-        double incVariance = Node.Variance(0) + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
+        TOTAL -= bucketTotals[slot];
+        double u1 = bucketTotals[slot] / n1;
+        double incVariance = bucketVariances[slot] + n1 * WIDTH * (u1 - TOTAL / WIDTH) * (u1 - TOTAL / WIDTH) / (n1 + WIDTH);
         VARIANCE -= incVariance;
 
         //Delete Bucket
-        Node.RemoveBucket();
+        removeBuckets(lastBucketRow, 1);
         BucketNumber--;
-        if (Node.bucketSizeRow == 0) {
-            listRowBuckets.removeFromTail();
+        if (rowSizes[lastBucketRow] == 0) {
             lastBucketRow--;
         }
         return n1;
     }
 
     public void compressBuckets() {
-        //Traverse the list of buckets in increasing order
+        //Traverse the rows of buckets in increasing order
         int n1, n2;
         double u2, u1, incVariance;
-        ListItem cursor;
-        ListItem nextNode;
-        cursor = listRowBuckets.head();
         int i = 0;
         do {
             //Find the number of buckets in a row
-            int k = cursor.bucketSizeRow;
+            int k = rowSizes[i];
             //If the row is full, merge buckets
             if (k == MAXBUCKETS + 1) {
-                nextNode = cursor.next();
-                if (nextNode == null) {
-                    listRowBuckets.addToTail();
-                    nextNode = cursor.next();
-                    lastBucketRow++;
+                if (i == lastBucketRow) {
+                    addRow();
                 }
+                int slot0 = bucketSlot(i, 0);
+                int slot1 = bucketSlot(i, 1);
                 n1 = bucketSize(i);
                 n2 = bucketSize(i);
-                u1 = cursor.Total(0) / n1;
-                u2 = cursor.Total(1) / n2;
+                u1 = bucketTotals[slot0] / n1;
+                u2 = bucketTotals[slot1] / n2;
                 incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
 
-                nextNode.insertBucket(cursor.Total(0) + cursor.Total(1), cursor.Variance(0) + cursor.Variance(1) + incVariance);
+                insertBucket(i + 1, bucketTotals[slot0] + bucketTotals[slot1], bucketVariances[slot0] + bucketVariances[slot1] + incVariance);
                 BucketNumber++;
-                cursor.compressBucketsRow(2);
-                if (nextNode.bucketSizeRow <= MAXBUCKETS) {
+                removeBuckets(i, 2);
+                if (rowSizes[i + 1] <= MAXBUCKETS) {
                     break;
                 }
             } else {
                 break;
             }
-            cursor = cursor.next();
             i++;
-        } while (cursor != null);
+        } while (i <= lastBucketRow);
     }
 
     public boolean setInput(double intEntrada) {
@@ -475,7 +285,6 @@ public class ADWIN extends AbstractMOAObject {
     public boolean setInput(double intEntrada, double delta) {
         boolean blnChange = false;
         boolean blnExit = false;
-        ListItem cursor;
         mintTime++;
 
         //1,2)Increment window in one element
@@ -498,32 +307,38 @@ public class ADWIN extends AbstractMOAObject {
                 double n2 = 0;
                 double u2 = 0;
 
-                cursor = listRowBuckets.tail();
+                // the bound depends on the window only, which does not
+                // change until a bucket is deleted and the scan restarts
+                double dd = Math.log(2 * Math.log(WIDTH) / delta);
+                double v = getVariance();
+
                 int i = lastBucketRow;
                 do {
-                    for (int k = 0; k <= (cursor.bucketSizeRow - 1); k++) {
+                    int rowSize = rowSizes[i];
+                    for (int k = 0; k <= (rowSize - 1); k++) {
+                        int slot = bucketSlot(i, k);
                         n2 = bucketSize(i);
-                        u2 = cursor.Total(k);
+                        u2 = bucketTotals[slot];
                         if (n0 > 0) {
-                            v0 += cursor.Variance(k) + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
+                            v0 += bucketVariances[slot] + (double) n0 * n2 * (u0 / n0 - u2 / n2) * (u0 / n0 - u2 / n2) / (n0 + n2);
                         }
                         if (n1 > 0) {
-                            v1 -= cursor.Variance(k) + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
+                            v1 -= bucketVariances[slot] + (double) n1 * n2 * (u1 / n1 - u2 / n2) * (u1 / n1 - u2 / n2) / (n1 + n2);
                         }
 
                         n0 += bucketSize(i);
                         n1 -= bucketSize(i);
-                        u0 += cursor.Total(k);
-                        u1 -= cursor.Total(k);
+                        u0 += bucketTotals[slot];
+                        u1 -= bucketTotals[slot];
 
-                        if (i == 0 && k == cursor.bucketSizeRow - 1) {
+                        if (i == 0 && k == rowSize - 1) {
                             blnExit = true;
                             break;
                         }
                         double absvalue = (double) (u0 / n0) - (u1 / n1);       //n1<WIDTH-mintMinWinLength-1
                         if ((n1 > mintMinWinLength + 1 && n0 > mintMinWinLength + 1) && // Diference NEGATIVE
                                 //if(
-                                blnCutexpression(n0, n1, u0, u1, v0, v1, absvalue, delta)) {
+                                blnCutexpression(n0, n1, v, dd, absvalue)) {
                             blnBucketDeleted = true;
                             Detect = mintTime;
 
@@ -545,9 +360,8 @@ public class ADWIN extends AbstractMOAObject {
                             }
                         } //End if
                     }//Next k
-                    cursor = cursor.previous();
                     i--;
-                } while (((!blnExit && cursor != null)));
+                } while (((!blnExit && i >= 0)));
             }//End While // Diference
         }//End if
 
@@ -558,11 +372,9 @@ public class ADWIN extends AbstractMOAObject {
         return blnChange;
     }
 
-    private boolean blnCutexpression(int n0, int n1, double u0, double u1, double v0, double v1, double absvalue, double delta) {
-        int n = getWidth();
-        double dd = Math.log(2 * Math.log(n) / delta);     // -- ull perque el ln n va al numerador.
+    private boolean blnCutexpression(int n0, int n1, double v, double dd, double absvalue) {
+        // dd = Math.log(2 * Math.log(n) / delta) -- ull perque el ln n va al numerador.
         // Formula Gener 2008
-        double v = getVariance();
         double m = ((double) 1 / ((n0 - mintMinWinLength + 1))) + ((double) 1 / ((n1 - mintMinWinLength + 1)));
         double epsilon = Math.sqrt(2 * m * v * dd) + (double) 2 / 3 * dd * m;
 
@@ -602,6 +414,28 @@ public class ADWIN extends AbstractMOAObject {
     public void setW(int W0) {
     }
 
+    /**
+     * Copies the arrays of the window, without serialising it.
+     *
+     * @return the copy of the window
+     */
+    @Override
+    public ADWIN copy() {
+        ADWIN copy = (ADWIN) shallowCopy();
+        copy.bucketTotals = this.bucketTotals.clone();
+        copy.bucketVariances = this.bucketVariances.clone();
+        copy.rowStarts = this.rowStarts.clone();
+        copy.rowSizes = this.rowSizes.clone();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(4, 80)
+                + 2 * SizeOf.estimateArraySize(this.bucketTotals.length, 8)
+                + 2 * SizeOf.estimateArraySize(this.rowSizes.length, 4);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
     }
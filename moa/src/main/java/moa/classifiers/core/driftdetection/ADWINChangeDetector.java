@@ -19,7 +19,9 @@
 package moa.classifiers.core.driftdetection;
 
 import com.github.javacliparser.FloatOption;
+import moa.core.ByteSizeEstimable;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.tasks.TaskMonitor;
 
 /**
@@ -33,7 +35,8 @@ import moa.tasks.TaskMonitor;
  * @author Albert Bifet (abifet at cs dot waikato dot ac dot nz)
  * @version $Revision: 7 $
  */
-public class ADWINChangeDetector extends AbstractChangeDetector {
+public class ADWINChangeDetector extends AbstractChangeDetector
+        implements ByteSizeEstimable {
 
     protected ADWIN adwin;
 
@@ -57,12 +60,59 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
         this.estimation = adwin.getEstimation();
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        if (this.adwin == null) {
+            resetLearning();
+        }
+        if (from >= to) {
+            return -1;
+        }
+        this.isWarningZone = false;
+        this.delay = 0.0;
+        ADWIN adwin = this.adwin;
+        int change = -1;
+        for (int i = from; i < to; i++) {
+            double ErrEstim = adwin.getEstimation();
+            if (adwin.setInput(values[i]) && adwin.getEstimation() > ErrEstim) {
+                change = i;
+                break;
+            }
+        }
+        this.isChangeDetected = change >= 0;
+        this.estimation = adwin.getEstimation();
+        return change;
+    }
+
     @Override
     public void resetLearning() {
         adwin = new ADWIN((double) this.deltaAdwinOption.getValue());
         super.resetLearning();
     }
 
+    @Override
+    public ChangeDetector copy() {
+        if (!canCopyFieldByField(ADWINChangeDetector.class)) {
+            return super.copy();
+        }
+        ADWINChangeDetector copy = (ADWINChangeDetector) cloneWithOptions();
+        if (this.adwin != null) {
+            copy.adwin = this.adwin.copy();
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.deltaAdwinOption = copyOption(this.deltaAdwinOption);
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 19) + SizeOf.estimateByteSize(this.adwin);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
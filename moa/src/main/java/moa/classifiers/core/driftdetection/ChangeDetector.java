@@ -45,6 +45,30 @@ public interface ChangeDetector extends OptionHandler {
      */
     public void input(double inputValue);
 
+    /**
+     * Adding the numbers of an array to the change detector, in order, until
+     * a change is detected<br><br>
+     *
+     * The output of the change detector is the same as after inserting the
+     * numbers one by one with {@link #input(double)}, up to the one where the
+     * change was detected: the numbers after it are not inserted.
+     *
+     * @param values the array of the numbers to insert
+     * @param from the index of the first number to insert
+     * @param to the index after the last number to insert
+     * @return the index of the number where change was detected, or -1 if
+     * all the numbers were inserted without change
+     */
+    public default int input(double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            input(values[i]);
+            if (getChange()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Gets whether there is change detected.
      *
@@ -102,6 +102,40 @@ public class CusumDM extends AbstractChangeDetector {
         } 
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        input(values[from]);
+        if (this.isChangeDetected) {
+            return from;
+        }
+        // the detector is now initialized and out of change, so the next
+        // values only update the statistics, kept in locals meanwhile
+        int minNumInstances = this.minNumInstancesOption.getValue();
+        int n = m_n;
+        double mean = x_mean;
+        double s = sum;
+        int change = -1;
+        for (int i = from + 1; i < to; i++) {
+            double x = values[i];
+            mean = mean + (x - mean) / (double) n;
+            s = Math.max(0, s + x - mean - this.delta);
+            n++;
+            if (n >= minNumInstances && s > this.lambda) {
+                change = i;
+                break;
+            }
+        }
+        m_n = n;
+        x_mean = mean;
+        sum = s;
+        this.estimation = mean;
+        this.isChangeDetected = change >= 0;
+        return change;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -128,6 +128,57 @@ public class DDM extends AbstractChangeDetector {
         }
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        input(values[from]);
+        if (this.isChangeDetected) {
+            return from;
+        }
+        // the detector is now initialized and out of change, so the next
+        // values only update the statistics, kept in locals meanwhile
+        int n = m_n;
+        double p = m_p;
+        double s = m_s;
+        double psmin = m_psmin;
+        double pmin = m_pmin;
+        double smin = m_smin;
+        boolean warningZone = this.isWarningZone;
+        int change = -1;
+        for (int i = from + 1; i < to; i++) {
+            p = p + (values[i] - p) / (double) n;
+            s = Math.sqrt(p * (1 - p) / (double) n);
+            n++;
+            warningZone = false;
+            if (n < minNumInstances) {
+                continue;
+            }
+            if (p + s <= psmin) {
+                pmin = p;
+                smin = s;
+                psmin = p + s;
+            }
+            if (n > minNumInstances && p + s > pmin + outcontrolLevel * smin) {
+                change = i;
+                break;
+            } else if (p + s > pmin + warningLevel * smin) {
+                warningZone = true;
+            }
+        }
+        m_n = n;
+        m_p = p;
+        m_s = s;
+        m_psmin = psmin;
+        m_pmin = pmin;
+        m_smin = smin;
+        this.estimation = p;
+        this.isChangeDetected = change >= 0;
+        this.isWarningZone = warningZone;
+        return change;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
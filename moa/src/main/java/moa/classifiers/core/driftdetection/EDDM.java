@@ -146,6 +146,76 @@ public class EDDM extends AbstractChangeDetector {
         }
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        input(values[from]);
+        if (this.isChangeDetected) {
+            return from;
+        }
+        // the detector is now initialized and out of change, so the next
+        // values only update the statistics, kept in locals meanwhile
+        int n = m_n;
+        double numErrors = m_numErrors;
+        int d = m_d;
+        int lastd = m_lastd;
+        double mean = m_mean;
+        double stdTemp = m_stdTemp;
+        double m2smax = m_m2smax;
+        boolean warningZone = this.isWarningZone;
+        boolean error = false;
+        int change = -1;
+        for (int i = from + 1; i < to; i++) {
+            n++;
+            if (values[i] == 1.0) {
+                error = true;
+                warningZone = false;
+                numErrors += 1;
+                lastd = d;
+                d = n - 1;
+                int distance = d - lastd;
+                double oldmean = mean;
+                mean = mean + ((double) distance - mean) / numErrors;
+                stdTemp = stdTemp + (distance - mean) * (distance - oldmean);
+                double std = Math.sqrt(stdTemp / numErrors);
+                double m2s = mean + 2 * std;
+                if (m2s > m2smax) {
+                    if (n > FDDM_MINNUMINSTANCES) {
+                        m2smax = m2s;
+                    }
+                } else {
+                    double p = m2s / m2smax;
+                    if (n > FDDM_MINNUMINSTANCES && numErrors > m_minNumErrors
+                            && p < FDDM_OUTCONTROL) {
+                        change = i;
+                        break;
+                    } else if (n > FDDM_MINNUMINSTANCES
+                            && numErrors > m_minNumErrors && p < FDDM_WARNING) {
+                        warningZone = true;
+                    } else {
+                        warningZone = false;
+                    }
+                }
+            }
+        }
+        m_n = n;
+        m_numErrors = numErrors;
+        m_d = d;
+        m_lastd = lastd;
+        m_mean = mean;
+        m_stdTemp = stdTemp;
+        m_m2smax = m2smax;
+        if (error) {
+            this.delay = 0;
+            this.estimation = mean;
+        }
+        this.isChangeDetected = change >= 0;
+        this.isWarningZone = warningZone;
+        return change;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -117,6 +117,55 @@ public class EWMAChartDM extends AbstractChangeDetector {
         }
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        input(values[from]);
+        if (this.isChangeDetected) {
+            return from;
+        }
+        // the detector is now initialized and out of change, so the next
+        // values only update the statistics, kept in locals meanwhile
+        int minNumInstances = this.minNumInstancesOption.getValue();
+        double n = m_n;
+        double sum = m_sum;
+        double p = m_p;
+        double s = m_s;
+        double z = z_t;
+        boolean warningZone = this.isWarningZone;
+        int change = -1;
+        for (int i = from + 1; i < to; i++) {
+            double prediction = values[i];
+            sum += prediction;
+            p = sum / n;
+            s = Math.sqrt(p * (1.0 - p) * lambda * (1.0 - Math.pow(1.0 - lambda, 2.0 * n)) / (2.0 - lambda));
+            n++;
+            z += lambda * (prediction - z);
+            warningZone = false;
+            if (n < minNumInstances) {
+                continue;
+            }
+            double L_t = 3.97 - 6.56 * p + 48.73 * Math.pow(p, 3) - 330.13 * Math.pow(p, 5) + 848.18 * Math.pow(p, 7);
+            if (n > minNumInstances && z > p + L_t * s) {
+                change = i;
+                break;
+            } else if (z > p + 0.5 * L_t * s) {
+                warningZone = true;
+            }
+        }
+        m_n = n;
+        m_sum = sum;
+        m_p = p;
+        m_s = s;
+        z_t = z;
+        this.estimation = p;
+        this.isChangeDetected = change >= 0;
+        this.isWarningZone = warningZone;
+        return change;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -105,6 +105,40 @@ public class EnsembleDriftDetectionMethods extends AbstractChangeDetector {
         }
     }
 
+    @Override
+    public int input(double[] values, int from, int to) {
+        // the votes of the detectors are counted as they change, instead of
+        // going through them again for every value
+        int typePrediction = this.predictionOption.getChosenIndex();
+        int numberDetections = 0;
+        for (int j = 0; j < preds.length; j++) {
+            if (preds[j] == true) {
+                numberDetections++;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            for (int j = 0; j < cds.length; j++) {
+                cds[j].input(values[i]);
+                if (cds[j].getChange() && preds[j] == false) {
+                    preds[j] = true;
+                    numberDetections++;
+                }
+            }
+            if (typePrediction == 0) {
+                this.isChangeDetected = (numberDetections == cds.length);
+            } else if (typePrediction == 1) {
+                this.isChangeDetected = (numberDetections > 0);
+            } else if (typePrediction == 2) {
+                this.isChangeDetected = (numberDetections > cds.length/2);
+            }
+            if (this.isChangeDetected == true) {
+                this.resetLearning();
+                return i;
+            }
+        }
+        return -1;
+    }
+
     //public double[] getOutput() {
     //    double[] res = {this.isChangeDetected ? 1 : 0, this.isWarningZone ? 1 : 0, this.delay, this.estimation};
     //    return res;
@@ -117,6 +117,29 @@ public class HDDM_W_Test extends AbstractChangeDetector {
 
     @Override
     public void input(double value) {
+        update(value, Math.log(1.0 / driftConfidence), Math.log(1.0 / warningConfidence));
+    }
+
+    @Override
+    public int input(double[] values, int from, int to) {
+        // the logarithms of the confidences are only computed once, and
+        // again after a decrease resets the detector
+        double logDrift = Math.log(1.0 / driftConfidence);
+        double logWarning = Math.log(1.0 / warningConfidence);
+        for (int i = from; i < to; i++) {
+            update(values[i], logDrift, logWarning);
+            if (this.isChangeDetected) {
+                return i;
+            }
+            if (this.width == 0) {
+                logDrift = Math.log(1.0 / driftConfidence);
+                logWarning = Math.log(1.0 / warningConfidence);
+            }
+        }
+        return -1;
+    }
+
+    protected void update(double value, double logDrift, double logWarning) {
         double auxDecayRate = 1.0 - lambda;
         this.width++;
         if (total.EWMA_Estimator < 0) {
@@ -126,36 +149,40 @@ public class HDDM_W_Test extends AbstractChangeDetector {
             total.EWMA_Estimator = lambda * value + auxDecayRate * total.EWMA_Estimator;
             total.independentBoundedConditionSum = lambda * lambda + auxDecayRate * auxDecayRate * total.independentBoundedConditionSum;
         }
-        updateIncrStatistics(value, driftConfidence);
-        if (monitorMeanIncr(value, driftConfidence)) {
+        updateIncrStatistics(value, logDrift);
+        if (meanIncrement(sample1_IncrMonitoring, sample2_IncrMonitoring, logDrift)) {
             resetLearning();
             this.isChangeDetected = true;
             this.isWarningZone = false;
-        } else if (monitorMeanIncr(value, warningConfidence)) {
+        } else if (meanIncrement(sample1_IncrMonitoring, sample2_IncrMonitoring, logWarning)) {
             this.isChangeDetected = false;
             this.isWarningZone = true;
         } else {
             this.isChangeDetected = false;
             this.isWarningZone = false;
         }
-        updateDecrStatistics(value, driftConfidence);
-        if (!oneSidedTest && monitorMeanDecr(value, driftConfidence)) {
+        updateDecrStatistics(value, logDrift);
+        if (!oneSidedTest && meanIncrement(sample2_DecrMonitoring, sample1_DecrMonitoring, logDrift)) {
             resetLearning();
         }
         this.estimation = this.total.EWMA_Estimator;
     }
 
     public boolean detectMeanIncrement(SampleInfo sample1, SampleInfo sample2, double confidence) {
+        return meanIncrement(sample1, sample2, Math.log(1 / confidence));
+    }
+
+    private boolean meanIncrement(SampleInfo sample1, SampleInfo sample2, double logConfidence) {
         if (sample1.EWMA_Estimator < 0 || sample2.EWMA_Estimator < 0) {
             return false;
         }
-        double bound = Math.sqrt((sample1.independentBoundedConditionSum + sample2.independentBoundedConditionSum) * Math.log(1 / confidence) / 2);
+        double bound = Math.sqrt((sample1.independentBoundedConditionSum + sample2.independentBoundedConditionSum) * logConfidence / 2);
         return sample2.EWMA_Estimator - sample1.EWMA_Estimator > bound;
     }
     
-    void updateIncrStatistics(double valor, double confidence) {
+    void updateIncrStatistics(double valor, double logDrift) {
             double auxDecay = 1.0 - lambda;
-            double bound = Math.sqrt(total.independentBoundedConditionSum * Math.log(1.0 / driftConfidence) / 2);
+            double bound = Math.sqrt(total.independentBoundedConditionSum * logDrift / 2);
 
             if (total.EWMA_Estimator + bound < incrCutPoint) {
                 incrCutPoint = total.EWMA_Estimator + bound;
@@ -180,9 +207,9 @@ public class HDDM_W_Test extends AbstractChangeDetector {
         return detectMeanIncrement(sample1_IncrMonitoring, sample2_IncrMonitoring, confidence);
     }
     
-    void updateDecrStatistics(double valor, double confidence) {
+    void updateDecrStatistics(double valor, double logDrift) {
             double auxDecay = 1.0 - lambda;
-            double epsilon = Math.sqrt(total.independentBoundedConditionSum * Math.log(1.0 / driftConfidence) / 2);
+            double epsilon = Math.sqrt(total.independentBoundedConditionSum * logDrift / 2);
 
             if (total.EWMA_Estimator - epsilon > decrCutPoint) {
                 decrCutPoint = total.EWMA_Estimator - epsilon;
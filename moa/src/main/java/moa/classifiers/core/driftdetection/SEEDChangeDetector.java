@@ -59,6 +59,33 @@ public class SEEDChangeDetector extends AbstractChangeDetector
 	this.delay = 0.0;
 	this.estimation = 0.0;
     }
+
+    @Override
+    public int input(double[] values, int from, int to)
+    {
+	if(this.seed == null)
+	{
+	    resetLearning();
+	}
+	if(from >= to)
+	{
+	    return -1;
+	}
+	this.isWarningZone = false;
+	this.delay = 0.0;
+	this.estimation = 0.0;
+	SEED seed = this.seed;
+	for(int i = from; i < to; i++)
+	{
+	    if(seed.setInput(values[i]))
+	    {
+		this.isChangeDetected = true;
+		return i;
+	    }
+	}
+	this.isChangeDetected = false;
+	return -1;
+    }
     
     @Override
     public void resetLearning()
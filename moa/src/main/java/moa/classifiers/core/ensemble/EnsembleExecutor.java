@@ -0,0 +1,373 @@
+/*
+ *    EnsembleExecutor.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.classifiers.core.ensemble;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Persistent execution engine for training the members of an ensemble in
+ * parallel.
+ *
+ * <p>Every ensemble member is pinned to one worker thread (member
+ * <code>i</code> runs on worker <code>i % numThreads</code>), so all the
+ * training jobs of a member are executed in submission order by the same
+ * thread and the members themselves need no synchronization. Jobs are handed
+ * to the workers through per-worker single-producer/single-consumer ring
+ * buffers of primitive slots, thus submitting a job allocates nothing. The
+ * submitting thread only has to wait for the workers when it calls
+ * {@link #awaitCompletion()}, typically after queuing the prediction jobs of
+ * the members, which run behind their pending training.</p>
+ *
+ * <p>Worker threads are daemon threads that terminate on their own after
+ * being idle for a while and are restarted transparently by
+ * {@link #submit(int, Instance, double, long)}, so an executor that is simply
+ * dropped does not keep its ensemble alive. The executor is not
+ * serializable; ensembles should keep it in a transient field.</p>
+ *
+ * @version $Revision: 1 $
+ */
+public class EnsembleExecutor {
+
+    /**
+     * Job executed on a worker thread for a submitted slot, typically training
+     * or querying one ensemble member.
+     */
+    public interface MemberTask {
+
+        /**
+         * Runs the job for one ensemble member.
+         *
+         * @param member the index of the member in the ensemble
+         * @param instance the instance to process (must not be modified)
+         * @param weight the weight (e.g. the Poisson draw) of the instance
+         * @param instancesSeen the number of instances seen by the ensemble
+         */
+        void run(int member, Instance instance, double weight, long instancesSeen);
+    }
+
+    /** Default number of pending jobs per worker before the producer blocks. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /** How long an idle worker thread is kept before it terminates. */
+    protected static final long KEEP_ALIVE_NANOS = 5000000000L;
+
+    /** Length of a single park while waiting. */
+    protected static final long PARK_NANOS = 1000000L;
+
+    /** Number of busy iterations before a waiting thread parks. */
+    protected static final int SPIN_TRIES = 128;
+
+    protected final MemberTask trainer;
+
+    protected final Lane[] lanes;
+
+    protected volatile Thread waiter;
+
+    protected volatile Throwable failure;
+
+    protected volatile boolean isShutdown;
+
+    /**
+     * Creates an executor with the default queue capacity.
+     *
+     * @param numThreads the number of worker threads
+     * @param trainer the default job, executed for slots submitted without one
+     */
+    public EnsembleExecutor(int numThreads, MemberTask trainer) {
+        this(numThreads, DEFAULT_QUEUE_CAPACITY, trainer);
+    }
+
+    /**
+     * Creates an executor.
+     *
+     * @param numThreads the number of worker threads
+     * @param queueCapacity the number of pending jobs per worker, rounded up
+     * to a power of two
+     * @param trainer the default job, executed for slots submitted without one
+     */
+    public EnsembleExecutor(int numThreads, int queueCapacity, MemberTask trainer) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numThreads);
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, queueCapacity) - 1) << 1;
+        this.trainer = trainer;
+        this.lanes = new Lane[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            this.lanes[i] = new Lane(i, capacity);
+        }
+    }
+
+    /**
+     * Translates the usual "number of jobs" option value into a number of
+     * threads: -1 means all available processors and 0 means no
+     * multithreading.
+     *
+     * @param numberOfJobs the option value
+     * @return the number of threads to use, 1 meaning sequential execution
+     */
+    public static int numberOfThreads(int numberOfJobs) {
+        if (numberOfJobs == -1) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, numberOfJobs);
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int numThreads() {
+        return this.lanes.length;
+    }
+
+    /**
+     * Queues the default (training) job for the given member. Blocks only if
+     * the queue of the member's worker is full.
+     *
+     * @param member the index of the member in the ensemble
+     * @param instance the instance to learn from, which must not be modified
+     * afterwards
+     * @param weight the weight of the instance
+     * @param instancesSeen the number of instances seen by the ensemble
+     */
+    public void submit(int member, Instance instance, double weight, long instancesSeen) {
+        submit(this.trainer, member, instance, weight, instancesSeen);
+    }
+
+    /**
+     * Queues a job for the given member. It runs after all the jobs
+     * previously submitted for that member.
+     *
+     * @param task the job to run
+     * @param member the index of the member in the ensemble
+     * @param instance the instance to process, which must not be modified
+     * until the job is done
+     * @param weight the weight of the instance
+     * @param instancesSeen the number of instances seen by the ensemble
+     */
+    public void submit(MemberTask task, int member, Instance instance, double weight, long instancesSeen) {
+        if (this.isShutdown) {
+            throw new IllegalStateException("Ensemble executor has been shut down.");
+        }
+        if (this.failure != null) {
+            // Report the failure once all the lanes are idle.
+            awaitCompletion();
+        }
+        Lane lane = this.lanes[member % this.lanes.length];
+        long tail = lane.tail;
+        if (tail - lane.head >= lane.members.length) {
+            int tries = 0;
+            while (tail - lane.head >= lane.members.length) {
+                tries = backOff(tries);
+            }
+        }
+        int slot = (int) (tail & lane.mask);
+        lane.tasks[slot] = task;
+        lane.members[slot] = member;
+        lane.instances[slot] = instance;
+        lane.weights[slot] = weight;
+        lane.timestamps[slot] = instancesSeen;
+        lane.tail = tail + 1;
+        lane.wakeUp();
+    }
+
+    /**
+     * Waits until all the submitted jobs have been executed. An exception
+     * thrown by a job is rethrown here, or by the next call to
+     * {@link #submit}, once all the lanes are idle; the jobs queued after the
+     * failing one are skipped. The executor can be used again afterwards.
+     */
+    public void awaitCompletion() {
+        this.waiter = Thread.currentThread();
+        try {
+            for (Lane lane : this.lanes) {
+                int tries = 0;
+                while (lane.head != lane.tail) {
+                    tries = backOff(tries);
+                }
+            }
+        } finally {
+            this.waiter = null;
+        }
+        Throwable t = this.failure;
+        if (t != null) {
+            this.failure = null;
+            rethrow(t);
+        }
+    }
+
+    /**
+     * Stops the worker threads once their queues are drained. The executor
+     * cannot be used afterwards.
+     */
+    public void shutdown() {
+        this.isShutdown = true;
+        for (Lane lane : this.lanes) {
+            Thread thread = lane.thread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    protected static void rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new RuntimeException("Training of an ensemble member failed.", t);
+    }
+
+    protected static int backOff(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return tries + 1;
+    }
+
+    /**
+     * Ring buffer of pending jobs owned by a single worker thread.
+     */
+    protected final class Lane implements Runnable {
+
+        protected static final int STOPPED = 0;
+
+        protected static final int RUNNING = 1;
+
+        protected final int index;
+
+        protected final int mask;
+
+        protected final MemberTask[] tasks;
+
+        protected final int[] members;
+
+        protected final Instance[] instances;
+
+        protected final double[] weights;
+
+        protected final long[] timestamps;
+
+        /** Next slot to be consumed, written by the worker only. */
+        protected volatile long head;
+
+        /** Next slot to be filled, written by the producer only. */
+        protected volatile long tail;
+
+        protected volatile boolean parked;
+
+        protected volatile Thread thread;
+
+        protected final AtomicInteger state = new AtomicInteger(STOPPED);
+
+        protected Lane(int index, int capacity) {
+            this.index = index;
+            this.mask = capacity - 1;
+            this.tasks = new MemberTask[capacity];
+            this.members = new int[capacity];
+            this.instances = new Instance[capacity];
+            this.weights = new double[capacity];
+            this.timestamps = new long[capacity];
+        }
+
+        /**
+         * Called by the producer after publishing a slot: starts a worker
+         * thread if none is running, otherwise unparks it if needed.
+         */
+        protected void wakeUp() {
+            if (this.state.get() == STOPPED && this.state.compareAndSet(STOPPED, RUNNING)) {
+                Thread t = new Thread(this, "moa-ensemble-worker-" + this.index);
+                t.setDaemon(true);
+                this.thread = t;
+                t.start();
+            } else if (this.parked) {
+                Thread t = this.thread;
+                if (t != null) {
+                    LockSupport.unpark(t);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            long idleSince = 0;
+            int tries = 0;
+            while (true) {
+                long h = this.head;
+                if (h != this.tail) {
+                    int slot = (int) (h & this.mask);
+                    MemberTask task = this.tasks[slot];
+                    Instance instance = this.instances[slot];
+                    this.tasks[slot] = null;
+                    this.instances[slot] = null;
+                    if (failure == null) {
+                        try {
+                            task.run(this.members[slot], instance,
+                                    this.weights[slot], this.timestamps[slot]);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                    this.head = h + 1;
+                    if (h + 1 == this.tail) {
+                        Thread w = waiter;
+                        if (w != null) {
+                            LockSupport.unpark(w);
+                        }
+                    }
+                    idleSince = 0;
+                    tries = 0;
+                    continue;
+                }
+                if (tries < SPIN_TRIES) {
+                    tries++;
+                    Thread.yield();
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (idleSince == 0) {
+                    idleSince = now;
+                }
+                if (isShutdown || now - idleSince > KEEP_ALIVE_NANOS) {
+                    // Leave, unless a job was published in the meantime,
+                    // possibly by a submit racing with shutdown.
+                    this.state.set(STOPPED);
+                    if (this.head != this.tail
+                            && this.state.compareAndSet(STOPPED, RUNNING)) {
+                        idleSince = 0;
+                        continue;
+                    }
+                    return;
+                }
+                this.parked = true;
+                if (this.head == this.tail) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                this.parked = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *    EnsembleVoteCombiner.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.classifiers.core.ensemble;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.AbstractClassifier;
+
+/**
+ * Combines the votes of the members of an ensemble by (optionally weighted)
+ * sum of the normalized votes.
+ *
+ * <p>Every member owns a row of reusable vote buffers, so the votes of
+ * different members can be stored concurrently (e.g. from the threads of an
+ * {@link EnsembleExecutor}) without allocation or synchronization. The
+ * member weights are cached here by the ensemble whenever they change, so
+ * that voting does not need to query the performance evaluators. The
+ * combination itself follows the member order, giving the same result as
+ * accumulating the votes one member at a time in a
+ * {@link moa.core.DoubleVector}.</p>
+ *
+ * <p>For batches of instances, every member also owns reusable rows for its
+ * votes on the whole batch, which are then combined instance by instance as
+ * above.</p>
+ *
+ * @version $Revision: 1 $
+ */
+public class EnsembleVoteCombiner extends AbstractMOAObject {
+
+    private static final long serialVersionUID = 1L;
+
+    protected double[][] votes;
+
+    protected int[] voteLengths;
+
+    protected double[] weights;
+
+    /** The votes of every member for the instances of the current batch. */
+    protected transient double[][][] batchVotes;
+
+    /**
+     * Creates a combiner for an ensemble of the given size. All the weights
+     * start at zero, i.e., unweighted.
+     *
+     * @param ensembleSize the number of members
+     */
+    public EnsembleVoteCombiner(int ensembleSize) {
+        this.votes = new double[ensembleSize][0];
+        this.voteLengths = new int[ensembleSize];
+        this.weights = new double[ensembleSize];
+    }
+
+    public int size() {
+        return this.weights.length;
+    }
+
+    /**
+     * Sets the voting weight of a member. Weights that are not strictly
+     * positive (including NaN) leave the votes of the member unweighted.
+     *
+     * @param member the index of the member
+     * @param weight the weight
+     */
+    public void setWeight(int member, double weight) {
+        this.weights[member] = weight;
+    }
+
+    public double getWeight(int member) {
+        return this.weights[member];
+    }
+
+    /**
+     * Stores the normalized vote of a member, multiplied by its weight if
+     * requested. Votes that do not sum to a positive value are ignored.
+     *
+     * @param member the index of the member
+     * @param vote the raw vote of the member, not modified
+     * @param weighted whether to apply the weight of the member
+     */
+    public void setVote(int member, double[] vote, boolean weighted) {
+        double sum = 0.0;
+        double sumAbs = 0.0;
+        for (double v : vote) {
+            sum += v;
+            sumAbs += (v > 0.0) ? v : -v;
+        }
+        if (!(sum > 0.0)) {
+            this.voteLengths[member] = 0;
+            return;
+        }
+        double[] row = this.votes[member];
+        if (row.length < vote.length) {
+            row = new double[vote.length];
+            this.votes[member] = row;
+        }
+        double scale = 1.0 / sumAbs;
+        double weight = this.weights[member];
+        boolean applyWeight = weighted && weight > 0.0;
+        for (int i = 0; i < vote.length; i++) {
+            row[i] = vote[i] * scale;
+            if (applyWeight) {
+                row[i] = row[i] * weight;
+            }
+        }
+        this.voteLengths[member] = vote.length;
+    }
+
+    /**
+     * Discards the stored vote of a member.
+     *
+     * @param member the index of the member
+     */
+    public void clearVote(int member) {
+        this.voteLengths[member] = 0;
+    }
+
+    /**
+     * Sums the stored votes in member order.
+     *
+     * @return a new array with the combined votes
+     */
+    public double[] combine() {
+        int length = 0;
+        for (int l : this.voteLengths) {
+            length = Math.max(length, l);
+        }
+        double[] combined = new double[length];
+        for (int m = 0; m < this.votes.length; m++) {
+            double[] row = this.votes[m];
+            for (int i = 0; i < this.voteLengths[m]; i++) {
+                combined[i] += row[i];
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Makes room for the votes of the members on a batch of instances. Must
+     * be called before the members store their votes in
+     * {@link #getBatchVotes(int)}.
+     *
+     * @param to the index after the last instance of the batch
+     */
+    public void prepareBatch(int to) {
+        if (this.batchVotes == null) {
+            this.batchVotes = new double[this.weights.length][][];
+        }
+        for (int m = 0; m < this.batchVotes.length; m++) {
+            if (this.batchVotes[m] == null || this.batchVotes[m].length < to) {
+                this.batchVotes[m] = new double[to][];
+            }
+        }
+    }
+
+    /**
+     * Gets the rows receiving the raw votes of a member on the current
+     * batch, indexed as the instances of the batch, to be passed to its
+     * getVotesForInstances method.
+     *
+     * @param member the index of the member
+     * @return the rows of the votes of the member
+     */
+    public double[][] getBatchVotes(int member) {
+        return this.batchVotes[member];
+    }
+
+    /**
+     * Combines the votes of the members on a batch, instance by instance, as
+     * {@link #setVote(int, double[], boolean)} and {@link #combine()} would.
+     *
+     * @param from the index of the first instance
+     * @param to the index after the last instance
+     * @param weighted whether to apply the weights of the members
+     * @param votes the array receiving the combined votes, see
+     * {@link moa.classifiers.Classifier#getVotesForInstances}
+     */
+    public void combineBatch(int from, int to, boolean weighted, double[][] votes) {
+        for (int i = from; i < to; i++) {
+            int length = 0;
+            for (int m = 0; m < this.batchVotes.length; m++) {
+                setVote(m, this.batchVotes[m][i], weighted);
+                length = Math.max(length, this.voteLengths[m]);
+            }
+            double[] combined = AbstractClassifier.votesRow(votes, i, length);
+            for (int m = 0; m < this.votes.length; m++) {
+                double[] row = this.votes[m];
+                for (int j = 0; j < this.voteLengths[m]; j++) {
+                    combined[j] += row[j];
+                }
+            }
+        }
+    }
+
+    @Override
+    public EnsembleVoteCombiner copy() {
+        EnsembleVoteCombiner copy = (EnsembleVoteCombiner) shallowCopy();
+        copy.votes = new double[this.votes.length][];
+        for (int i = 0; i < this.votes.length; i++) {
+            copy.votes[i] = this.votes[i].clone();
+        }
+        copy.voteLengths = this.voteLengths.clone();
+        copy.weights = this.weights.clone();
+        copy.batchVotes = null;
+        return copy;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
@@ -22,6 +22,7 @@ package moa.classifiers.core.splitcriteria;
 import moa.core.ObjectRepository;
 import moa.core.Utils;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 /**
@@ -41,16 +42,16 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
     @Override
     public double getMeritOfSplit(double[] preSplitDist,
             double[][] postSplitDists) {
+        // the weights of the branches are summed again rather than stored
         double totalWeight = 0.0;
-        double[] distWeights = new double[postSplitDists.length];
         for (int i = 0; i < postSplitDists.length; i++) {
-            distWeights[i] = Utils.sum(postSplitDists[i]);
-            totalWeight += distWeights[i];
+            totalWeight += Utils.sum(postSplitDists[i]);
         }
         double gini = 0.0;
         for (int i = 0; i < postSplitDists.length; i++) {
-            gini += (distWeights[i] / totalWeight)
-                    * computeGini(postSplitDists[i], distWeights[i]);
+            double distWeight = Utils.sum(postSplitDists[i]);
+            gini += (distWeight / totalWeight)
+                    * computeGini(postSplitDists[i], distWeight);
         }
         return 1.0 - gini;
     }
@@ -73,6 +74,17 @@ public class GiniSplitCriterion extends AbstractOptionHandler implements
         return computeGini(dist, Utils.sum(dist));
     }
 
+    /**
+     * Copies this criterion, which holds no state besides its options.
+     * Subclasses holding state have to override this method.
+     *
+     * @return the copy of this criterion
+     */
+    @Override
+    public OptionHandler copy() {
+        return cloneWithOptions();
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -23,6 +23,7 @@ import com.github.javacliparser.FloatOption;
 import moa.core.ObjectRepository;
 import moa.core.Utils;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 /**
@@ -47,10 +48,25 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
     @Override
     public double getMeritOfSplit(double[] preSplitDist,
             double[][] postSplitDists) {
-        if (numSubsetsGreaterThanFrac(postSplitDists, this.minBranchFracOption.getValue()) < 2) {
+        // the same computation as numSubsetsGreaterThanFrac and
+        // computeEntropy(double[][]), without allocating the weights
+        double totalWeight = 0.0;
+        for (int i = 0; i < postSplitDists.length; i++) {
+            totalWeight += Utils.sum(postSplitDists[i]);
+        }
+        int numGreater = 0;
+        double postSplitEntropy = 0.0;
+        for (int i = 0; i < postSplitDists.length; i++) {
+            double distWeight = Utils.sum(postSplitDists[i]);
+            if (distWeight / totalWeight > this.minBranchFracOption.getValue()) {
+                numGreater++;
+            }
+            postSplitEntropy += distWeight * computeEntropy(postSplitDists[i]);
+        }
+        if (numGreater < 2) {
             return Double.NEGATIVE_INFINITY;
         }
-        return computeEntropy(preSplitDist) - computeEntropy(postSplitDists);
+        return computeEntropy(preSplitDist) - postSplitEntropy / totalWeight;
     }
 
     @Override
@@ -105,6 +121,23 @@ public class InfoGainSplitCriterion extends AbstractOptionHandler implements
         return numGreater;
     }
 
+    /**
+     * Copies this criterion, which holds no state besides its options.
+     * Subclasses holding state have to override this method.
+     *
+     * @return the copy of this criterion
+     */
+    @Override
+    public OptionHandler copy() {
+        return cloneWithOptions();
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.minBranchFracOption = copyOption(this.minBranchFracOption);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -28,6 +28,7 @@ package moa.classifiers.core.splitcriteria;
 
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 public class VarianceReductionSplitCriterion extends AbstractOptionHandler implements SplitCriterion {
@@ -91,6 +92,17 @@ public class VarianceReductionSplitCriterion extends AbstractOptionHandler imple
         return (sumSq - ((sum * sum)/N))/N;
     }
 
+    /**
+     * Copies this criterion, which holds no state besides its options.
+     * Subclasses holding state have to override this method.
+     *
+     * @return the copy of this criterion
+     */
+    @Override
+    public OptionHandler copy() {
+        return cloneWithOptions();
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -93,7 +93,7 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
     private long avgMLPsPerSampleFrequency = 0;
     private long lastGetModelMeasurementsImplCalledAt=0;
 
-    private MiniBatch miniBatch = null;
+    protected MiniBatch miniBatch = null;
 
     private ADWIN accEstimator = new ADWIN(1.0E-3);
 
@@ -181,6 +181,10 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
             featureValues = null;
             class_value = null;
         }
+        if (miniBatch != null) {
+            miniBatch.close();
+            miniBatch = null;
+        }
     }
 
     @Override
@@ -280,7 +284,6 @@ public class CAND extends AbstractClassifier implements MultiClassClassifier, Ca
                 }
             }
             miniBatch.discardMiniBatch();
-            miniBatch = null;
         }
     }
 
@@ -53,75 +53,84 @@ import java.util.*;
 
 import static ai.djl.ndarray.types.DataType.FLOAT32;
 
+/**
+ * A mini batch staged in reusable primitive buffers. The instances are copied
+ * into float arrays as they arrive and handed to the NDManager once, when the
+ * batch is full, so filling a batch allocates no native memory per instance.
+ * The NDArrays of a full batch are only read by the networks, so a single
+ * batch can be shared by several of them.
+ */
 class MiniBatch {
-	private transient NDManager trainingNDManager;
+	transient NDManager trainingNDManager;
 	public transient NDArray trainMiniBatchData = null;
 	public transient NDArray trainMiniBatchLabels = null;
 	public int itemsInMiniBatch = 0;
 	public int miniBatchSize = 1;
 	public NDList d = null;
 	public NDList l = null;
+	private float[] dataBuffer = null;
+	private float[] labelBuffer = null;
+	private int featureLength = 0;
 
 	public MiniBatch(Device device, int miniBatchSize) {
 		this.trainingNDManager = NDManager.newBaseManager(device);
 		this.miniBatchSize = miniBatchSize;
 	}
 
+	private void initBuffers(int featureLength) {
+		if ((dataBuffer == null) || (this.featureLength != featureLength)) {
+			this.featureLength = featureLength;
+			dataBuffer = new float[miniBatchSize * featureLength];
+			labelBuffer = new float[miniBatchSize];
+		}
+	}
+
 	public void addToMiniBatch(double[] featureValues, double [] classValue) {
 		if (itemsInMiniBatch == 0) {
-			// initialize and create NDArrays
-			trainMiniBatchData = trainingNDManager.create(featureValues).toType(FLOAT32, false);
-			trainMiniBatchLabels = trainingNDManager.create(classValue);
-		} else {
-			// add item to the mini batch
-			if (itemsInMiniBatch == 1) {
-				trainMiniBatchData = trainMiniBatchData.stack(trainingNDManager.create(featureValues).toType(FLOAT32, false), 0);
-				trainMiniBatchLabels = trainMiniBatchLabels.stack(trainingNDManager.create(classValue), 0);
-			} else {
-				trainMiniBatchData = trainMiniBatchData.concat(trainingNDManager.create(featureValues, new Shape(1, featureValues.length)).toType(FLOAT32, false), 0);
-				trainMiniBatchLabels = trainMiniBatchLabels.concat(trainingNDManager.create(classValue, new Shape(1, classValue.length)), 0);
-			}
+			initBuffers(featureValues.length);
 		}
+		int offset = itemsInMiniBatch * featureLength;
+		for (int i = 0; i < featureLength; i++) {
+			dataBuffer[offset + i] = (float) featureValues[i];
+		}
+		labelBuffer[itemsInMiniBatch] = (float) classValue[0];
 		itemsInMiniBatch++;
 		if (itemsInMiniBatch == miniBatchSize){
-			d = new NDList(trainMiniBatchData);
-			l = new NDList(trainMiniBatchLabels);
+			createNDArrays();
 		}
 	}
 
 	public void addToMiniBatch(Instance inst) {
 		double [] instDoubleA = inst.toDoubleArray();
-		NDArray dataAndLabel = trainingNDManager.create(instDoubleA).toType(FLOAT32, false);
-		int featureLength = instDoubleA.length -1;
-		int classLength = 1;
-		NDArray data = dataAndLabel.get("0:" + Integer.toString(featureLength));
-		NDArray label = dataAndLabel.get(Integer.toString(featureLength) +":" + Integer.toString(featureLength+1));
-
 		if (itemsInMiniBatch == 0) {
-			// initialize and create NDArrays
-			trainMiniBatchData = data;
-			trainMiniBatchLabels = label;
-		} else {
-			// add item to the mini batch
-			if (itemsInMiniBatch == 1) {
-				trainMiniBatchData = trainMiniBatchData.stack(data, 0);
-				trainMiniBatchLabels = trainMiniBatchLabels.stack(label, 0);
-			} else {
-				trainMiniBatchData = trainMiniBatchData.concat(data.reshape(new Shape(1, featureLength)), 0);
-				trainMiniBatchLabels = trainMiniBatchLabels.concat(label.reshape(new Shape(1, classLength)), 0);
-			}
+			initBuffers(instDoubleA.length - 1);
 		}
+		int offset = itemsInMiniBatch * featureLength;
+		for (int i = 0; i < featureLength; i++) {
+			dataBuffer[offset + i] = (float) instDoubleA[i];
+		}
+		labelBuffer[itemsInMiniBatch] = (float) instDoubleA[featureLength];
 		itemsInMiniBatch++;
 		if (itemsInMiniBatch == miniBatchSize){
-			d = new NDList(trainMiniBatchData);
-			l = new NDList(trainMiniBatchLabels);
+			createNDArrays();
 		}
 	}
 
+	private void createNDArrays() {
+		trainMiniBatchData = trainingNDManager.create(dataBuffer, new Shape(miniBatchSize, featureLength));
+		trainMiniBatchLabels = trainingNDManager.create(labelBuffer, new Shape(miniBatchSize, 1));
+		d = new NDList(trainMiniBatchData);
+		l = new NDList(trainMiniBatchLabels);
+	}
+
 	public boolean miniBatchFull(){
 		return (itemsInMiniBatch == miniBatchSize);
 	}
 
+	/**
+	 * Releases the NDArrays of the current batch and empties it. The staging
+	 * buffers and the NDManager are kept for the next batch.
+	 */
 	public void discardMiniBatch(){
 		if (d != null){
 			d.close();
@@ -139,10 +148,21 @@ class MiniBatch {
 			trainMiniBatchLabels.close();
 			trainMiniBatchLabels = null;
 		}
-		trainingNDManager.close();
-		trainingNDManager = null;
 		itemsInMiniBatch = 0;
 	}
+
+	/**
+	 * Discards the current batch and closes the NDManager.
+	 */
+	public void close(){
+		discardMiniBatch();
+		if (trainingNDManager != null){
+			trainingNDManager.close();
+			trainingNDManager = null;
+		}
+		dataBuffer = null;
+		labelBuffer = null;
+	}
 }
 
 public class MLP extends AbstractClassifier implements MultiClassClassifier {
@@ -238,7 +258,7 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 	protected Model nnmodel = null;
 	protected Trainer trainer = null;
 	protected int featureValuesArraySize = 0;
-	private MiniBatch miniBatch = null;
+	protected MiniBatch miniBatch = null;
 	private int numberOfClasses;
 	private double [] votes;
 	private int gpuCount;
@@ -247,6 +267,10 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 
     @Override
     public void resetLearningImpl() {
+		if (miniBatch != null) {
+			miniBatch.close();
+			miniBatch = null;
+		}
     }
 
 	public void trainOnMiniBatch(MiniBatch batch, boolean trainNet){
@@ -300,7 +324,6 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 		if (miniBatch.miniBatchFull() ){
 			trainOnMiniBatch(miniBatch, true);
 			miniBatch.discardMiniBatch();
-			miniBatch = null;
 		}
     }
 
@@ -369,6 +392,56 @@ public class MLP extends AbstractClassifier implements MultiClassClassifier {
 		}
 	}
 
+	/**
+	 * Stacks the features of the batch into one array and runs the network
+	 * forward once for all the instances. The features are prepared in the
+	 * order of the instances, as getVotesForInstance would.
+	 */
+	@Override
+	public void getVotesForInstances(Instance[] insts, int from, int to, double[][] votes) {
+		if (from >= to) {
+			return;
+		}
+		initializeNetwork(insts[from]);
+
+		int batchSize = to - from;
+		float[] batchFeatureValues = new float[batchSize * featureValuesArraySize];
+		for (int i = 0; i < batchSize; i++) {
+			Instance inst = insts[from + i];
+			double[] featureValues;
+			if (useNormalization.isSet() || useOneHotEncode.isSet()){
+				setFeatureValuesArray(inst, pFeatureValues, useOneHotEncode.isSet(), true, normalizeInfo, samplesSeen);
+				featureValues = pFeatureValues;
+			}else{
+				featureValues = inst.toDoubleArray();
+			}
+			for (int j = 0; j < featureValuesArraySize; j++) {
+				batchFeatureValues[i * featureValuesArraySize + j] = (float) featureValues[j];
+			}
+		}
+
+		try {
+			NDManager testingNDManager = NDManager.newBaseManager(nnmodel.getNDManager().getDevice());
+			NDList d = new NDList(testingNDManager.create(batchFeatureValues, new Shape(batchSize, featureValuesArraySize)));
+			NDList preds = trainer.evaluate(d);
+			float[] batchVotes = preds.get(0).toFloatArray();
+
+			for (int i = 0; i < batchSize; i++) {
+				double[] row = votesRow(votes, from + i, numberOfClasses);
+				for (int c = 0; c < numberOfClasses; c++) {
+					row[c] = (double) batchVotes[i * numberOfClasses + c];
+				}
+			}
+			preds.close();
+			d.close();
+			testingNDManager.close();
+		}catch (Exception e) {
+			System.err.println(e);
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
 
 	@Override
 	public ImmutableCapabilities defineImmutableCapabilities() {
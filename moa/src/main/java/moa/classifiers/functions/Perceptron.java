@@ -85,16 +85,36 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
         double learningRatio = learningRatioOption.getValue();
 
         int actualClass = (int) inst.classValue();
+        int classIndex = inst.classIndex();
+        int numValues = inst.numValues();
         for (int i = 0; i < inst.numClasses(); i++) {
             double actual = (i == actualClass) ? 1.0 : 0.0;
             double delta = (actual - preds[i]) * preds[i] * (1 - preds[i]);
-            for (int j = 0; j < inst.numAttributes() - 1; j++) {
-                this.weightAttribute[i][j] += learningRatio * delta * inst.valueInputAttribute(j);
+            double step = learningRatio * delta;
+            double[] weights = this.weightAttribute[i];
+            // the weights of the zeros of sparse instances are left as they are
+            for (int p = 0; p < numValues; p++) {
+                int index = inst.index(p);
+                if (index != classIndex) {
+                    weights[inputIndex(index, classIndex)] += step * inst.valueSparse(p);
+                }
             }
-            this.weightAttribute[i][inst.numAttributes() - 1] += learningRatio * delta;
+            weights[inst.numAttributes() - 1] += step;
         }
     }
 
+    /**
+     * Index of an attribute among the input attributes, which have the weights
+     * of the same index.
+     *
+     * @param index the index of the attribute in the instance
+     * @param classIndex the index of the class attribute
+     * @return the index of the input attribute
+     */
+    protected static int inputIndex(int index, int classIndex) {
+        return index < classIndex ? index : index - 1;
+    }
+
     public void setWeights(double[][] w) {
         //Perceptron Hoeffding Tree
         this.weightAttribute = w;
@@ -117,16 +137,41 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
 
     public double prediction(Instance inst, int classVal) {
         double sum = 0.0;
-        for (int i = 0; i < inst.numAttributes() - 1; i++) {
-            sum += weightAttribute[classVal][i] * inst.valueInputAttribute(i);
+        double[] weights = weightAttribute[classVal];
+        int classIndex = inst.classIndex();
+        // only the values the instance stores contribute, zeros are skipped
+        for (int p = 0, numValues = inst.numValues(); p < numValues; p++) {
+            int index = inst.index(p);
+            if (index != classIndex) {
+                sum += weights[inputIndex(index, classIndex)] * inst.valueSparse(p);
+            }
         }
-        sum += weightAttribute[classVal][inst.numAttributes() - 1];
+        sum += weights[inst.numAttributes() - 1];
         return 1.0 / (1.0 + Math.exp(-sum));
     }
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
-        double[] votes = new double[inst.numClasses()];
+        return computeVotes(inst, new double[inst.numClasses()]);
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        for (int i = from; i < to; i++) {
+            computeVotes(insts[i], votesRow(votes, i, insts[i].numClasses()));
+        }
+    }
+
+    /**
+     * Computes the normalized votes for an instance into an array as long as
+     * the number of classes, filled with zeros.
+     *
+     * @param inst the instance
+     * @param votes the array receiving the votes
+     * @return the votes
+     */
+    protected double[] computeVotes(Instance inst, double[] votes) {
         if (this.reset == false) {
             for (int i = 0; i < votes.length; i++) {
                 votes[i] = prediction(inst, i);
@@ -69,8 +69,18 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
             'r', "Learning rate parameter.",
             0.0001, 0.00, Integer.MAX_VALUE);
 
-    /** Stores the weights (+ bias in the last element) */
+    /** Stores the weights, up to the scale factor m_weightScale */
     protected DoubleVector m_weights;
+
+    /**
+     * The factor the stored weights are multiplied by. Weight decay scales
+     * this factor rather than every weight, so that an update only touches
+     * the weights of the values the instance stores.
+     */
+    protected double m_weightScale = 1.0;
+
+    /** The scale factor below which it is folded into the stored weights */
+    protected static final double MIN_WEIGHT_SCALE = 1e-9;
     
     protected double m_bias;
 
@@ -156,9 +166,25 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
     public void reset() {
         m_t = 1;
         m_weights = null;
+        m_weightScale = 1.0;
         m_bias = 0.0;
     }
 
+    /**
+     * Multiplies all the weights by the given factor, by changing their
+     * scale factor only.
+     *
+     * @param multiplier the factor
+     */
+    protected void scaleWeights(double multiplier) {
+        m_weightScale *= multiplier;
+        if (Math.abs(m_weightScale) < MIN_WEIGHT_SCALE) {
+            // fold the scale into the weights before it loses precision
+            m_weights.scaleValues(m_weightScale);
+            m_weightScale = 1.0;
+        }
+    }
+
     protected double dloss(double z) {
         if (m_loss == HINGE) {
             return (z < 1) ? 1 : 0;
@@ -184,19 +210,14 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         int n1 = inst1.numValues();
         int n2 = weights.numValues();
 
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
+        // the indices of the values are increasing, look the weights up directly
+        for (int p1 = 0; p1 < n1; p1++) {
             int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights.getValue(p2);
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
+            if (ind1 >= n2) {
+                break;
+            }
+            if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                result += inst1.valueSparse(p1) * weights.getValue(ind1);
             }
         }
         return (result);
@@ -220,12 +241,13 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
 
         if (m_weights == null) {
             m_weights = new DoubleVector(); 
+            m_weightScale = 1.0;
             m_bias = 0.0;
         }
 
         if (!instance.classIsMissing()) {
 
-            double wx = dotProd(instance, m_weights, instance.classIndex());
+            double wx = dotProd(instance, m_weights, instance.classIndex()) * m_weightScale;
 
             double y;
             double z;
@@ -245,22 +267,21 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
             } else {
                 multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
             }
-            for (int i = 0; i < m_weights.numValues(); i++) {
-                m_weights.setValue(i,m_weights.getValue (i) * multiplier);
-            }
+            scaleWeights(multiplier);
 
             // Only need to do the following if the loss is non-zero
             if (m_loss != HINGE || (z < 1)) {
 
                 // Compute Factor for updates
                 double factor = m_learningRate * y * dloss(z);
+                double scaledFactor = factor / m_weightScale;
 
                 // Update coefficients for attributes
                 int n1 = instance.numValues();
                 for (int p1 = 0; p1 < n1; p1++) {
                     int indS = instance.index(p1);
                     if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
-                        m_weights.addToValue(indS, factor * instance.valueSparse(p1));
+                        m_weights.addToValue(indS, scaledFactor * instance.valueSparse(p1));
                     }
                 }
 
@@ -287,9 +308,33 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         double[] result = (inst.classAttribute().isNominal())
                 ? new double[2]
                 : new double[1];
+        return computeVotes(inst, result);
+    }
 
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        for (int i = from; i < to; i++) {
+            Instance inst = insts[i];
+            if (m_weights == null) {
+                votesRow(votes, i, inst.numClasses());
+            } else {
+                computeVotes(inst, votesRow(votes, i,
+                        inst.classAttribute().isNominal() ? 2 : 1));
+            }
+        }
+    }
 
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
+    /**
+     * Computes the votes for an instance into an array, of length 2 for a
+     * nominal class and 1 for a numeric one, filled with zeros.
+     *
+     * @param inst the instance
+     * @param result the array receiving the votes
+     * @return the votes
+     */
+    protected double[] computeVotes(Instance inst, double[] result) {
+        double wx = dotProd(inst, m_weights, inst.classIndex()) * m_weightScale;
         double z = (wx + m_bias);
 
         if (inst.classAttribute().isNumeric()) {
@@ -356,7 +401,7 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights.getValue(i), 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights.getValue(i) * m_weightScale, 12, 4) + " "
                     // + m_data.attribute(i).name()
                     + "\n");
 
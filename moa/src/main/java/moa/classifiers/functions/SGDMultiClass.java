@@ -70,8 +70,18 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
             'r', "Learning rate parameter.",
             0.0001, 0.00, Integer.MAX_VALUE);
 
-    /** Stores the weights (+ bias in the last element) */
+    /** Stores the weights of each class, up to the scale factors m_weightScale */
     protected DoubleVector[] m_weights;
+
+    /**
+     * The factors the stored weights of each class are multiplied by. Weight
+     * decay scales these factors rather than every weight, so that an update
+     * only touches the weights of the values the instance stores.
+     */
+    protected double[] m_weightScale;
+
+    /** The scale factor below which it is folded into the stored weights */
+    protected static final double MIN_WEIGHT_SCALE = 1e-9;
     
     protected double[] m_bias;
 
@@ -157,9 +167,26 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
     public void reset() {
         m_t = 1;
         m_weights = null;
+        m_weightScale = null;
         m_bias = null; //0.0;
     }
 
+    /**
+     * Multiplies all the weights of a class by the given factor, by changing
+     * their scale factor only.
+     *
+     * @param classLabel the class
+     * @param multiplier the factor
+     */
+    protected void scaleWeights(int classLabel, double multiplier) {
+        m_weightScale[classLabel] *= multiplier;
+        if (Math.abs(m_weightScale[classLabel]) < MIN_WEIGHT_SCALE) {
+            // fold the scale into the weights before it loses precision
+            m_weights[classLabel].scaleValues(m_weightScale[classLabel]);
+            m_weightScale[classLabel] = 1.0;
+        }
+    }
+
     protected double dloss(double z) {
         if (m_loss == HINGE) {
             return (z < 1) ? 1 : 0;
@@ -185,19 +212,14 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
         int n1 = inst1.numValues();
         int n2 = weights.numValues();
 
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
+        // the indices of the values are increasing, look the weights up directly
+        for (int p1 = 0; p1 < n1; p1++) {
             int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights.getValue(p2);
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
+            if (ind1 >= n2) {
+                break;
+            }
+            if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                result += inst1.valueSparse(p1) * weights.getValue(ind1);
             }
         }
         return (result);
@@ -227,9 +249,11 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
                  length = 1;
              }
             m_weights = new DoubleVector[length];
+            m_weightScale = new double[length];
             m_bias = new double[length];
             for (int i = 0; i < m_weights.length; i++){
                 m_weights[i] = new DoubleVector(); 
+                m_weightScale[i] = 1.0;
                 m_bias[i] = 0.0;
             }
         }
@@ -241,7 +265,7 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
     public void trainOnInstanceImpl(Instance instance, int classLabel) {    
         if (!instance.classIsMissing()) {
 
-            double wx = dotProd(instance, m_weights[classLabel], instance.classIndex());
+            double wx = dotProd(instance, m_weights[classLabel], instance.classIndex()) * m_weightScale[classLabel];
 
             double y;
             double z;
@@ -261,22 +285,21 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
             } else {
                 multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
             }
-            for (int i = 0; i < m_weights[classLabel].numValues(); i++) {
-                m_weights[classLabel].setValue(i,m_weights[classLabel].getValue (i) * multiplier);
-            }
+            scaleWeights(classLabel, multiplier);
 
             // Only need to do the following if the loss is non-zero
             if (m_loss != HINGE || (z < 1)) {
 
                 // Compute Factor for updates
                 double factor = m_learningRate * y * dloss(z);
+                double scaledFactor = factor / m_weightScale[classLabel];
 
                 // Update coefficients for attributes
                 int n1 = instance.numValues();
                 for (int p1 = 0; p1 < n1; p1++) {
                     int indS = instance.index(p1);
                     if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
-                        m_weights[classLabel].addToValue(indS, factor * instance.valueSparse(p1));
+                        m_weights[classLabel].addToValue(indS, scaledFactor * instance.valueSparse(p1));
                     }
                 }
 
@@ -303,16 +326,41 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
         double[] result = (inst.classAttribute().isNominal())
                 ? new double[inst.numClasses()]
                 : new double[1];
-        
+        return computeVotes(inst, result);
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        for (int i = from; i < to; i++) {
+            Instance inst = insts[i];
+            if (m_weights == null) {
+                votesRow(votes, i, inst.numClasses());
+            } else {
+                computeVotes(inst, votesRow(votes, i,
+                        inst.classAttribute().isNominal() ? inst.numClasses() : 1));
+            }
+        }
+    }
+
+    /**
+     * Computes the votes for an instance into an array, as long as the number
+     * of classes for a nominal class and of length 1 for a numeric one.
+     *
+     * @param inst the instance
+     * @param result the array receiving the votes
+     * @return the votes
+     */
+    protected double[] computeVotes(Instance inst, double[] result) {
         if (inst.classAttribute().isNumeric()) {
-            double wx = dotProd(inst, m_weights[0], inst.classIndex());// * m_wScale;
+            double wx = dotProd(inst, m_weights[0], inst.classIndex()) * m_weightScale[0];
             double z = (wx + m_bias[0]);
             result[0] = z;
             return result;
         }
 
         for (int i = 0; i < m_weights.length; i++){
-            double wx = dotProd(inst, m_weights[i], inst.classIndex());// * m_wScale;
+            double wx = dotProd(inst, m_weights[i], inst.classIndex()) * m_weightScale[i];
             double z = (wx + m_bias[i]);
             if (z <= 0) {
                 //  z = 0;
@@ -374,7 +422,7 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights[0].getValue(i), 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights[0].getValue(i) * m_weightScale[0], 12, 4) + " "
                     // + m_data.attribute(i).name()
                     + "\n");
 
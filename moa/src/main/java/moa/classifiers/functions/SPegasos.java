@@ -94,10 +94,29 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
                 "Log loss (logistic regression)"}, 0);
 
     /**
-     * Stores the weights (+ bias in the last element)
+     * Stores the weights, up to the scale factor m_weightScale (+ bias in the
+     * last element, which is not scaled)
      */
     protected double[] m_weights;
 
+    /**
+     * The factor the stored weights are multiplied by. The shrinking and
+     * projection steps scale this factor rather than every weight, so that
+     * an update only touches the weights of the values the instance stores.
+     */
+    protected double m_weightScale = 1.0;
+
+    /**
+     * The squared norm of the stored weights, without the bias, kept up to
+     * date with the updates
+     */
+    protected double m_weightNormSquared;
+
+    /**
+     * The scale factor below which it is folded into the stored weights
+     */
+    protected static final double MIN_WEIGHT_SCALE = 1e-9;
+
     /**
      * Holds the current iteration number
      */
@@ -145,6 +164,28 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
     public void reset() {
         m_t = 2;
         m_weights = null;
+        m_weightScale = 1.0;
+        m_weightNormSquared = 0.0;
+    }
+
+    /**
+     * Multiplies all the weights but the bias by the given factor, by
+     * changing their scale factor only.
+     *
+     * @param multiplier the factor
+     */
+    protected void scaleWeights(double multiplier) {
+        m_weightScale *= multiplier;
+        if (Math.abs(m_weightScale) < MIN_WEIGHT_SCALE) {
+            // fold the scale into the weights before it loses precision
+            double norm = 0;
+            for (int j = 0; j < m_weights.length - 1; j++) {
+                m_weights[j] *= m_weightScale;
+                norm += m_weights[j] * m_weights[j];
+            }
+            m_weightNormSquared = norm;
+            m_weightScale = 1.0;
+        }
     }
 
     protected static double dotProd(Instance inst1, double[] weights, int classIndex) {
@@ -153,19 +194,14 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
         int n1 = inst1.numValues();
         int n2 = weights.length - 1;
 
-        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
+        // the indices of the values are increasing, look the weights up directly
+        for (int p1 = 0; p1 < n1; p1++) {
             int ind1 = inst1.index(p1);
-            int ind2 = p2;
-            if (ind1 == ind2) {
-                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
-                    result += inst1.valueSparse(p1) * weights[p2];
-                }
-                p1++;
-                p2++;
-            } else if (ind1 > ind2) {
-                p2++;
-            } else {
-                p1++;
+            if (ind1 >= n2) {
+                break;
+            }
+            if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                result += inst1.valueSparse(p1) * weights[ind1];
             }
         }
         return (result);
@@ -202,6 +238,8 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
 
         if (m_weights == null) {
             m_weights = new double[instance.numAttributes() + 1];
+            m_weightScale = 1.0;
+            m_weightNormSquared = 0.0;
         }
         if (!instance.classIsMissing()) {
 
@@ -209,14 +247,11 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
             //double scale = 1.0 - learningRate * m_lambda;
             double scale = 1.0 - 1.0 / m_t;
             double y = (instance.classValue() == 0) ? -1 : 1;
-            double wx = dotProd(instance, m_weights, instance.classIndex());
+            double wx = dotProd(instance, m_weights, instance.classIndex()) * m_weightScale;
             double z = y * (wx + m_weights[m_weights.length - 1]);
 
-            for (int j = 0; j < m_weights.length - 1; j++) {
-                if (j != instance.classIndex()) {
-                    m_weights[j] *= scale;
-                }
-            }
+            // the weight of the class attribute is never updated and stays 0
+            scaleWeights(scale);
 
             if (m_loss == LOGLOSS || (z < 1)) {
                 double loss = dloss(z);
@@ -225,7 +260,10 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
                     int indS = instance.index(p1);
                     if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
                         double m = learningRate * loss * (instance.valueSparse(p1) * y);
-                        m_weights[indS] += m;
+                        double w = m_weights[indS];
+                        double d = m / m_weightScale;
+                        m_weights[indS] = w + d;
+                        m_weightNormSquared += d * (2 * w + d);
                     }
                 }
 
@@ -233,21 +271,12 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
                 m_weights[m_weights.length - 1] += learningRate * loss * y;
             }
 
-            double norm = 0;
-            for (int k = 0; k < m_weights.length - 1; k++) {
-                if (k != instance.classIndex()) {
-                    norm += (m_weights[k] * m_weights[k]);
-                }
-            }
+            double norm = Math.max(0.0, m_weightNormSquared) * m_weightScale * m_weightScale;
 
             double scale2 = Math.min(1.0, (1.0 / (m_lambda * norm)));
             if (scale2 < 1.0) {
                 scale2 = Math.sqrt(scale2);
-                for (int j = 0; j < m_weights.length - 1; j++) {
-                    if (j != instance.classIndex()) {
-                        m_weights[j] *= scale2;
-                    }
-                }
+                scaleWeights(scale2);
             }
             m_t++;
         }
@@ -267,9 +296,31 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
             return new double[inst.numAttributes() + 1];
         }
 
-        double[] result = new double[2];
+        return computeVotes(inst, new double[2]);
+    }
 
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        for (int i = from; i < to; i++) {
+            if (m_weights == null) {
+                votesRow(votes, i, insts[i].numAttributes() + 1);
+            } else {
+                computeVotes(insts[i], votesRow(votes, i, 2));
+            }
+        }
+    }
+
+    /**
+     * Computes the votes for an instance into an array of length 2, filled
+     * with zeros.
+     *
+     * @param inst the instance
+     * @param result the array receiving the votes
+     * @return the votes
+     */
+    protected double[] computeVotes(Instance inst, double[] result) {
+        double wx = dotProd(inst, m_weights, inst.classIndex()) * m_weightScale;
         double z = (wx + m_weights[m_weights.length - 1]);
         //System.out.print("" + z + ": ");
         // System.out.println(1.0 / (1.0 + Math.exp(-z)));
@@ -325,7 +376,7 @@ public class SPegasos extends AbstractClassifier implements MultiClassClassifier
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights[i], 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights[i] * m_weightScale, 12, 4) + " "
                     //+ m_data.attribute(i).name()
                     + "\n");
 
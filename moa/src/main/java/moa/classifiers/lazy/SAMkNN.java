@@ -23,6 +23,8 @@ import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.lazy.neighboursearch.BoundingBoxTree;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
@@ -30,6 +32,7 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.MultiChoiceOption;
 import moa.clusterers.kmeanspm.CoresetKMeans;
 /**
  * Self Adjusting Memory (SAM) coupled with the k Nearest Neighbor classifier (kNN) .<p>
@@ -73,6 +76,13 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
     public FlagOption recalculateSTMErrorOption = new FlagOption("recalculateError", 'r',
             "Recalculates the error rate of the STM for size adaption (Costly operation). Otherwise, an approximation is used.");
+
+    public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
+            "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
+                "LinearNN", "BoundingBoxTree"},
+            new String[]{"Brute force search algorithm for nearest neighbour search",
+                "Bounding box tree, updated incrementally as instances enter and leave the STM and LTM"
+            }, 0);
 	private int maxClassValue = 0;
 
     @Override
@@ -91,6 +101,9 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 	//private int trainStepCount;
 	private Map<Integer, List<Integer>> predictionHistories;
 	private Random random;
+	//search indices over the STM and LTM with the BoundingBoxTree, rebuilt when null
+	private transient BoundingBoxTree stmSearch;
+	private transient BoundingBoxTree ltmSearch;
 
     protected void init(){
     	this.maxLTMSize = (int)(relativeLTMSizeOption.getValue() * limitOption.getValue());
@@ -112,6 +125,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			this.stm.setClassIndex(context.classIndex());
 			this.ltm = new Instances(context,0); 
 			this.ltm.setClassIndex(context.classIndex());
+			this.stmSearch = null;
+			this.ltmSearch = null;
 			this.init();
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
@@ -129,6 +144,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		this.cmHistory = null;
 		this.distanceMatrixSTM = null;
 		this.predictionHistories = null;
+		this.stmSearch = null;
+		this.ltmSearch = null;
     }
 
     @Override
@@ -136,9 +153,9 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
         //this.trainStepCount++;
 		if (inst.classValue() > maxClassValue)
 			maxClassValue = (int)inst.classValue();
-		this.stm.add(inst);
+		addToMemory(this.stm, this.stmSearch, inst);
 		memorySizeCheck();
-		clean(this.stm, this.ltm, true);
+		clean(this.stm, getSTMSearch(), this.ltm, getLTMSearch(), true);
 		double distancesSTM[] = this.get1ToNDistances(inst, this.stm);
 		for (int i =0; i < this.stm.numInstances();i++){
 			this.distanceMatrixSTM[this.stm.numInstances()-1][i] = distancesSTM[i];
@@ -152,7 +169,7 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 
 			for (int i = diff; i>0;i--){
 				discardedSTMInstances.add(this.stm.get(0).copy());
-				this.stm.delete(0);
+				deleteFromMemory(this.stm, this.stmSearch, 0);
 			}
 			for (int i = 0; i < this.stm.numInstances(); i++){
 				for (int j = 0; j < this.stm.numInstances(); j++){
@@ -165,9 +182,9 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 				if(this.cmHistory.size()  > 0)	 this.cmHistory.remove(0);
 			}
 
-			this.clean(this.stm, discardedSTMInstances, false);
+			this.clean(this.stm, getSTMSearch(), discardedSTMInstances, newSearch(discardedSTMInstances), false);
 			for (int i = 0; i < discardedSTMInstances.numInstances(); i++){
-				this.ltm.add(discardedSTMInstances.get(i).copy());
+				addToMemory(this.ltm, this.ltmSearch, discardedSTMInstances.get(i).copy());
 			}
 			memorySizeCheck();
 		}
@@ -182,37 +199,36 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		double vLTM[];
 		double vCM[];
 		double v[];
-		double distancesSTM[];
-		double distancesLTM[];
         int predClassSTM = 0;
         int predClassLTM = 0;
         int predClassCM = 0;
 		try {
-			if (this.stm.numInstances()>0) {
-				distancesSTM = get1ToNDistances(inst, this.stm);
+			if (this.stm.numInstances()>0 && this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+				double distancesSTM[] = get1ToNDistances(inst, this.stm);
 				int nnIndicesSTM[] = nArgMin(Math.min(distancesSTM.length, this.kOption.getValue()), distancesSTM);
 				vSTM = getDistanceWeightedVotes(distancesSTM, nnIndicesSTM, this.stm);
                 predClassSTM = this.getClassFromVotes(vSTM);
-                distancesLTM = get1ToNDistances(inst, this.ltm);
+                double distancesLTM[] = get1ToNDistances(inst, this.ltm);
                 vCM = getCMVotes(distancesSTM, this.stm, distancesLTM, this.ltm);
                 predClassCM = this.getClassFromVotes(vCM);
-				if (this.ltm.numInstances() >= 0) {
-                    int nnIndicesLTM[] = nArgMin(Math.min(distancesLTM.length, this.kOption.getValue()), distancesLTM);
-                    vLTM = getDistanceWeightedVotes(distancesLTM, nnIndicesLTM, this.ltm);
-                    predClassLTM = this.getClassFromVotes(vLTM);
-                }else{
-                    vLTM = new double[inst.numClasses()];
-                }
-                int correctSTM = historySum(this.stmHistory);
-                int correctLTM = historySum(this.ltmHistory);
-                int correctCM = historySum(this.cmHistory);
-                if(correctSTM>=correctLTM && correctSTM>=correctCM){
-                    v=vSTM;
-                }else if(correctLTM>correctSTM && correctLTM>=correctCM){
-                    v=vLTM;
-                }else{
-                    v=vCM;
-                }
+                int nnIndicesLTM[] = nArgMin(Math.min(distancesLTM.length, this.kOption.getValue()), distancesLTM);
+                vLTM = getDistanceWeightedVotes(distancesLTM, nnIndicesLTM, this.ltm);
+                predClassLTM = this.getClassFromVotes(vLTM);
+                v = chooseVotes(vSTM, vLTM, vCM);
+			} else if (this.stm.numInstances()>0) {
+				BoundingBoxTree searchSTM = getSTMSearch();
+				Instance nnSTM[] = nearest(searchSTM, inst, Math.min(this.stm.numInstances(), this.kOption.getValue()));
+				double distancesSTM[] = distances(searchSTM);
+				vSTM = getDistanceWeightedVotes(distancesSTM, nnSTM, nnSTM.length);
+                predClassSTM = this.getClassFromVotes(vSTM);
+				BoundingBoxTree searchLTM = getLTMSearch();
+				Instance nnLTM[] = nearest(searchLTM, inst, Math.min(this.ltm.numInstances(), this.kOption.getValue()));
+				double distancesLTM[] = distances(searchLTM);
+                vCM = getCMVotes(distancesSTM, nnSTM, distancesLTM, nnLTM);
+                predClassCM = this.getClassFromVotes(vCM);
+                vLTM = getDistanceWeightedVotes(distancesLTM, nnLTM, nnLTM.length);
+                predClassLTM = this.getClassFromVotes(vLTM);
+                v = chooseVotes(vSTM, vLTM, vCM);
             }else {
                 v = new double[inst.numClasses()];
             }
@@ -239,6 +255,22 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
     }
 
 
+    /**
+     * Returns the votes of the memory with the most correct predictions in the histories.
+     */
+	private double[] chooseVotes(double vSTM[], double vLTM[], double vCM[]){
+        int correctSTM = historySum(this.stmHistory);
+        int correctLTM = historySum(this.ltmHistory);
+        int correctCM = historySum(this.cmHistory);
+        if(correctSTM>=correctLTM && correctSTM>=correctCM){
+            return vSTM;
+        }else if(correctLTM>correctSTM && correctLTM>=correctCM){
+            return vLTM;
+        }else{
+            return vCM;
+        }
+	}
+
 	private int historySum(List<Integer> history){
 		int sum = 0;
 		for (Integer e : history) {
@@ -258,6 +290,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 	 * Performs classwise kMeans++ clustering for given samples with corresponding labels. The number of samples is halved per class.
 	 */
 	private void clusterDown(){
+		//the LTM is mostly replaced, its search index is rebuilt when needed
+		this.ltmSearch = null;
 		int classIndex = this.ltm.classIndex();
 		for (int c = 0; c <= this.maxClassValue; c++){
 			List<double[]> classSamples = new ArrayList<>();
@@ -308,8 +342,8 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			}else{ //shift values from STM directly to LTM since STM is full
 				int numShifts = this.maxLTMSize - this.ltm.numInstances() + 1;
 				for (int i = 0; i < numShifts; i++){
-					this.ltm.add(this.stm.get(0).copy());
-					this.stm.delete(0);
+					addToMemory(this.ltm, this.ltmSearch, this.stm.get(0).copy());
+					deleteFromMemory(this.stm, this.stmSearch, 0);
 					this.stmHistory.remove(0);
 					this.ltmHistory.remove(0);
 					this.cmHistory.remove(0);
@@ -353,16 +387,45 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		for (Integer idx : delIndices)
 			toClean.delete(idx);
 	}
+
+	private void cleanSingle(Instances cleanAgainst, BoundingBoxTree cleanAgainstSearch, int cleanAgainstindex, Instances toClean, BoundingBoxTree toCleanSearch){
+		if (cleanAgainstSearch == null){
+			cleanSingle(cleanAgainst, cleanAgainstindex, toClean);
+			return;
+		}
+		Instance sample = cleanAgainst.get(cleanAgainstindex);
+		//the search skips the sample itself
+		Instance nnSTM[] = nearest(cleanAgainstSearch, sample, Math.min(this.kOption.getValue(), cleanAgainst.numInstances() - 1));
+		double distancesSTM[] = distances(cleanAgainstSearch);
+
+		Instance nnLTM[] = nearest(toCleanSearch, sample, Math.min(this.kOption.getValue(), toClean.numInstances()));
+		double distancesLTM[] = distances(toCleanSearch);
+		double distThreshold = 0;
+		for (int i = 0; i < nnSTM.length; i++){
+			if (nnSTM[i].classValue() == sample.classValue()){
+				if (distancesSTM[i] > distThreshold){
+					distThreshold = distancesSTM[i];
+				}
+			}
+		}
+        for (int i = 0; i < nnLTM.length; i++){
+			if (nnLTM[i].classValue() != sample.classValue()) {
+				if (distancesLTM[i] <= distThreshold){
+					deleteFromMemory(toClean, toCleanSearch, indexOf(toClean, nnLTM[i]));
+				}
+			}
+		}
+	}
     /**
      * Removes distance-based all instances from the input samples that contradict those in the STM.
      */
-	private void clean(Instances cleanAgainst, Instances toClean, boolean onlyLast) {
+	private void clean(Instances cleanAgainst, BoundingBoxTree cleanAgainstSearch, Instances toClean, BoundingBoxTree toCleanSearch, boolean onlyLast) {
 		if (cleanAgainst.numInstances() > this.kOption.getValue() && toClean.numInstances() > 0){
 			if (onlyLast){
-				cleanSingle(cleanAgainst, (cleanAgainst.numInstances()-1), toClean);
+				cleanSingle(cleanAgainst, cleanAgainstSearch, (cleanAgainst.numInstances()-1), toClean, toCleanSearch);
 			}else{
 				for (int i=0; i < cleanAgainst.numInstances(); i++){
-					cleanSingle(cleanAgainst, i, toClean);
+					cleanSingle(cleanAgainst, cleanAgainstSearch, i, toClean, toCleanSearch);
 				}
 			}
 		}
@@ -402,6 +465,37 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		return getDistanceWeightedVotesCM(distancesCM, nnIndicesCM, stm, ltm);
 	}
 
+    /**
+     * Returns the distance weighted votes of the first n sorted neighbours.
+     */
+	private double [] getDistanceWeightedVotes(double distances[], Instance[] neighbours, int n){
+		double v[] = new double[this.maxClassValue +1];
+		for (int i = 0; i < n; i++) {
+			v[(int)neighbours[i].classValue()] += 1./Math.max(distances[i], 0.000000001);
+		}
+		return v;
+	}
+
+    /**
+     * Returns the distance weighted votes for the combined memory (CM), merging the sorted neighbours of the STM and LTM.
+     */
+	private double [] getCMVotes(double distancesSTM[], Instance[] nnSTM, double distancesLTM[], Instance[] nnLTM){
+		int n = Math.min(nnSTM.length + nnLTM.length, this.kOption.getValue());
+		double[] distancesCM = new double[n];
+		Instance[] nnCM = new Instance[n];
+		//the STM comes first for equal distances
+		for (int i = 0, s = 0, l = 0; i < n; i++){
+			if (l >= nnLTM.length || (s < nnSTM.length && distancesSTM[s] <= distancesLTM[l])){
+				distancesCM[i] = distancesSTM[s];
+				nnCM[i] = nnSTM[s++];
+			} else {
+				distancesCM[i] = distancesLTM[l];
+				nnCM[i] = nnLTM[l++];
+			}
+		}
+		return getDistanceWeightedVotes(distancesCM, nnCM, n);
+	}
+
     /**
      * Returns the class with maximum vote.
      */
@@ -423,6 +517,93 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 		return this.getClassFromVotes(votes);
 	}
 
+    /**
+     * Returns a search index over the given memory, or null when searching linearly.
+     */
+	private BoundingBoxTree newSearch(Instances memory){
+		if (this.nearestNeighbourSearchOption.getChosenIndex() == 0)
+			return null;
+		BoundingBoxTree search = new BoundingBoxTree();
+		try {
+			search.setDistanceFunction(new SAMkNNDistance());
+			search.setInstances(memory);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return search;
+	}
+
+	private BoundingBoxTree getSTMSearch(){
+		if (this.stmSearch == null)
+			this.stmSearch = newSearch(this.stm);
+		return this.stmSearch;
+	}
+
+	private BoundingBoxTree getLTMSearch(){
+		if (this.ltmSearch == null)
+			this.ltmSearch = newSearch(this.ltm);
+		return this.ltmSearch;
+	}
+
+    /**
+     * Appends (a copy of) the instance to a memory and to its search index, if there is one.
+     */
+	private void addToMemory(Instances memory, BoundingBoxTree search, Instance inst){
+		memory.add(inst);
+		if (search != null) {
+			try {
+				search.update(memory.get(memory.numInstances() - 1));
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+    /**
+     * Deletes an instance from a memory and from its search index, if there is one.
+     */
+	private void deleteFromMemory(Instances memory, BoundingBoxTree search, int index){
+		if (search != null) {
+			try {
+				search.remove(memory.get(index));
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		memory.delete(index);
+	}
+
+	private int indexOf(Instances memory, Instance inst){
+		for (int i = 0; i < memory.numInstances(); i++){
+			if (memory.get(i) == inst)
+				return i;
+		}
+		return -1;
+	}
+
+    /**
+     * Returns the n nearest neighbours, sorted by distance (ties in memory order).
+     */
+	private Instance[] nearest(BoundingBoxTree search, Instance inst, int n){
+		try {
+			Instance[] neighbours = search.kNearestInstances(inst, n);
+			return (neighbours.length > n) ? Arrays.copyOf(neighbours, n) : neighbours;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+    /**
+     * Returns the distances of the neighbours found last by the search.
+     */
+	private double[] distances(BoundingBoxTree search){
+		try {
+			return search.getDistances();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
     /**
      * Returns the Euclidean distance.
      */
@@ -622,6 +803,21 @@ public class SAMkNN extends AbstractClassifier implements MultiClassClassifier,
 			return this.getMinErrorRateWindowSizeIncremental();
 	}
 
+    /**
+     * Plain Euclidean distance between the raw input values, as computed by getDistance.
+     */
+	private static class SAMkNNDistance extends EuclideanDistance {
+
+		SAMkNNDistance() {
+			setDontNormalize(true);
+		}
+
+		@Override
+		protected double difference(int index, double val1, double val2) {
+			return val1 - val2;
+		}
+	}
+
   @Override
   public ImmutableCapabilities defineImmutableCapabilities() {
     if (this.getClass() == SAMkNN.class)
@@ -1,11 +1,14 @@
 package moa.classifiers.lazy;
 
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.classifiers.lazy.neighboursearch.BoundingBoxTree;
+import moa.classifiers.lazy.neighboursearch.EuclideanDistance;
 import moa.core.Measurement;
 
 /**
@@ -38,6 +41,13 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 
 	public IntOption limitOption = new IntOption( "limit", 'w', "The maximum number of instances to store", 1000, 1, Integer.MAX_VALUE);
 
+	public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
+			"nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
+				"LinearNN", "BoundingBoxTree"},
+			new String[]{"Brute force search algorithm for nearest neighbour search",
+				"Bounding box tree, updated incrementally as instances enter and leave the window"
+			}, 0);
+
 	int C = 0;
     @Override
     public String getPurposeString() {
@@ -46,12 +56,16 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 
     protected Instances window;
 
+    /** Index over the window, kept up to date with the window when searching with the BoundingBoxTree. */
+    protected transient BoundingBoxTree search;
+
 
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
 			this.window = new Instances(context,0);  
 			this.window.setClassIndex(context.classIndex());
+			this.search = null;
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -62,6 +76,7 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.search = null;
 	}
 
     @Override
@@ -74,9 +89,23 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 			this.window = new Instances(inst.dataset());
 		}
 		if (this.limitOption.getValue() <= this.window.numInstances()) {
+			if (this.search != null) {
+				try {
+					this.search.remove(this.window.instance(0));
+				} catch (Exception e) {
+					this.search = null;
+				}
+			}
 			this.window.delete(0);
 		}
 		this.window.add(inst);
+		if (this.search != null) {
+			try {
+				this.search.update(this.window.instance(this.window.numInstances() - 1));
+			} catch (Exception e) {
+				this.search = null;
+			}
+		}
 		// Update the weight of instances inside the window
 		if (this.window.size()>1 ){
 			updateWeights();
@@ -103,10 +132,20 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 		double v[] = new double[C+1];
 		try {
 			if(this.window.numInstances()>0) {
-				int [] knnW = kNN(inst, this.window, Math.min(kOption.getValue(), this.window.numInstances()));
+				int k = Math.min(kOption.getValue(), this.window.numInstances());
+				if (this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+					int [] knnW = kNN(inst, this.window, k);
 
-				for (int nnIdx : knnW) {
-					v[(int) this.window.instance(nnIdx).classValue()]+=this.window.instance(nnIdx).weight();
+					for (int nnIdx : knnW) {
+						v[(int) this.window.instance(nnIdx).classValue()]+=this.window.instance(nnIdx).weight();
+					}
+				} else {
+					// sorted by distance, ties in window order
+					Instance[] knnW = getSearch().kNearestInstances(inst, k);
+
+					for (int i = 0; i < Math.min(k, knnW.length); i++) {
+						v[(int) knnW[i].classValue()]+=knnW[i].weight();
+					}
 				}
 			}
 
@@ -119,6 +158,19 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 		return v;
 	}
 
+	/**
+	 * Returns the search index over the window, building it if necessary.
+	 */
+	protected BoundingBoxTree getSearch() throws Exception {
+		if (this.search == null) {
+			BoundingBoxTree newSearch = new BoundingBoxTree();
+			newSearch.setDistanceFunction(new WeightedkNNDistance());
+			newSearch.setInstances(this.window);
+			this.search = newSearch;
+		}
+		return this.search;
+	}
+
 	private int [] kNN(Instance sample, Instances samples, int k){
 		double distances[] = get1ToNDistances(sample, samples);
 		int nnIndices[] = nArgMin(k, distances);
@@ -210,6 +262,35 @@ public class WeightedkNN extends AbstractClassifier implements MultiClassClassif
 		return nArgMin(n, values, 0, values.length-1);
 	}
 
+	/**
+	 * Euclidean distance between the raw attribute values, as computed by
+	 * getDistance, for the BoundingBoxTree: a missing numeric value counts as
+	 * a difference of the other value (1 if both are missing).
+	 */
+	protected static class WeightedkNNDistance extends EuclideanDistance {
+
+		public WeightedkNNDistance() {
+			setDontNormalize(true);
+		}
+
+		@Override
+		protected double difference(int index, double val1, double val2) {
+			if (m_Data.attribute(index).isNominal()) {
+				if (isMissingValue(val1) || isMissingValue(val2) || (int) val1 != (int) val2) {
+					return 1.0;
+				}
+				return 0.0;
+			}
+			if (isMissingValue(val1) || isMissingValue(val2)) {
+				if (isMissingValue(val1) && isMissingValue(val2)) {
+					return 1.0;
+				}
+				return isMissingValue(val2) ? val1 : val2;
+			}
+			return val1 - val2;
+		}
+	}
+
 	@Override
 	protected Measurement[] getModelMeasurementsImpl() {
 		return null;
@@ -19,15 +19,18 @@ package moa.classifiers.lazy;
 
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.List;
 
 import com.github.javacliparser.FlagOption;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.Regressor;
+import moa.classifiers.lazy.neighboursearch.BoundingBoxTree;
+import moa.classifiers.lazy.neighboursearch.FlatLinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.KDTree;
-import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
 import moa.core.Measurement;
+import moa.core.RingList;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -57,9 +60,10 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
         public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
             "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
-                "LinearNN", "KDTree"},
-            new String[]{"Brute force search algorithm for nearest neighbour search. ",
-                "KDTree search algorithm for nearest neighbour search"
+                "LinearNN", "KDTree", "BoundingBoxTree"},
+            new String[]{"Brute force search algorithm for nearest neighbour search, over a columnar copy of the window",
+                "KDTree search algorithm for nearest neighbour search",
+                "Bounding box tree, updated incrementally as instances enter and leave the window"
             }, 0);
 
 
@@ -72,11 +76,15 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 
     protected Instances window; 
 
+    /** Index over the window, kept up to date by addToWindow and deleteFromWindow. */
+    protected transient NearestNeighbourSearch search;
+
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.window = new Instances(context,0); //new StringReader(context.toString())
+			this.window = newWindow(context); //new StringReader(context.toString())
 			this.window.setClassIndex(context.classIndex());
+			this.search = null;
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
 			e.printStackTrace();
@@ -87,6 +95,7 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.search = null;
     }
 
     @Override
@@ -94,27 +103,76 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
 		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+			this.window = newWindow(inst.dataset());
 		}
 		if (this.limitOption.getValue() <= this.window.numInstances()) {
-			this.window.delete(0);
+			deleteFromWindow(0);
 		}
-		this.window.add(inst);
+		addToWindow(inst);
     }
 
+	/**
+	 * Returns a window with the header and instances of the dataset, stored
+	 * in a ring buffer so that the oldest instance is deleted in constant time.
+	 */
+	protected Instances newWindow(Instances dataset) {
+		return new WindowInstances(dataset);
+	}
+
+	/**
+	 * Adds a copy of the instance to the window and to the search index.
+	 */
+	protected void addToWindow(Instance inst) {
+		this.window.add(inst);
+		if (this.search != null) {
+			try {
+				this.search.update(this.window.instance(this.window.numInstances() - 1));
+			} catch (Exception e) {
+				// rebuilt when needed
+				this.search = null;
+			}
+		}
+	}
+
+	/**
+	 * Deletes an instance from the window and from the search index.
+	 */
+	protected void deleteFromWindow(int index) {
+		if (this.search != null) {
+			try {
+				this.search.remove(this.window.instance(index));
+			} catch (Exception e) {
+				this.search = null;
+			}
+		}
+		this.window.delete(index);
+	}
+
+	/**
+	 * Returns the search index over the window, building it if necessary.
+	 */
+	protected NearestNeighbourSearch getSearch() throws Exception {
+		if (this.search == null) {
+			NearestNeighbourSearch newSearch;
+			if (this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+				newSearch = new FlatLinearNNSearch();
+			} else if (this.nearestNeighbourSearchOption.getChosenIndex() == 1) {
+				newSearch = new KDTree();
+			} else {
+				newSearch = new BoundingBoxTree();
+			}
+			newSearch.setInstances(this.window);
+			this.search = newSearch;
+		}
+		return this.search;
+	}
+
 	@Override
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
 		try {
-			NearestNeighbourSearch search;
-			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
-				search = new LinearNNSearch(this.window);  
-			} else {
-				search = new KDTree();
-				search.setInstances(this.window);
-			}	
 			if (this.window.numInstances()>0) {	
-				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
+				Instances neighbours = getSearch().kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
 				//================== Regression ====================
 				if(inst.classAttribute().isNumeric()){
 					double[] result = new double[1];
@@ -178,4 +236,24 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier, Reg
     public boolean isRandomizable() {
         return false;
     }
+
+	/**
+	 * Instances kept in a RingList instead of an ArrayList.
+	 */
+	protected static class WindowInstances extends Instances {
+
+		private static final long serialVersionUID = 1L;
+
+		public WindowInstances(Instances dataset) {
+			super(dataset);
+			List<Instance> copied = this.instances;
+			this.instances = new RingList<Instance>();
+			this.instances.addAll(copied);
+		}
+
+		@Override
+		public void delete() {
+			this.instances.clear();
+		}
+	}
 }
\ No newline at end of file
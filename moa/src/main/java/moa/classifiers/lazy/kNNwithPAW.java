@@ -20,7 +20,6 @@ package moa.classifiers.lazy;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ADWIN;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
 
 /**
  * k Nearest Neighbor ADAPTIVE with PAW.<p>
@@ -49,6 +48,7 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
     @Override
     public void resetLearningImpl() {
         this.window = null;
+        this.search = null;
         this.prob = Math.pow(2.0, -1.0 / this.limitOption.getValue());
     }
 
@@ -58,15 +58,15 @@ public class kNNwithPAW extends kNN implements MultiClassClassifier {
             C = (int) inst.classValue();
         }
         if (this.window == null) {
-            this.window = new Instances(inst.dataset());
+            this.window = newWindow(inst.dataset());
         }
 
         for (int i = 0; i < this.window.size(); i++) {
             if (this.classifierRandom.nextDouble() > this.prob) {
-                this.window.delete(i);
+                deleteFromWindow(i);
             }
         }
-        this.window.add(inst);
+        addToWindow(inst);
 
     }
 
@@ -0,0 +1,927 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    BoundingBoxTree.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ <!-- globalinfo-start -->
+ * Class implementing a dynamic tree of bounding boxes for nearest neighbour
+ * search over a changing neighbourhood, e.g. a sliding window.<br/>
+ * Instances are added with update(Instance) and taken out with
+ * remove(Instance) in amortized logarithmic time. Every node keeps the
+ * bounding box of its instances in the original attribute space, so the
+ * search stays exact while the ranges used for normalizing the distance
+ * change with the neighbourhood. The ranges themselves are read off the
+ * root box.<br/>
+ * The tree is kept balanced by rebuilding (with median splits on the widest
+ * normalized side) the highest subtree in which one child holds more than a
+ * fixed fraction of the instances.
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ * The neighbours are the same as the ones of the LinearNNSearch, including
+ * the ones tied with the kth nearest, and they are returned sorted by
+ * distance, ties in the order they were added.
+ *
+ * @version $Revision: 1 $
+ */
+public class BoundingBoxTree
+  extends NearestNeighbourSearch {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The maximal fraction of the instances of a node held by one child. */
+  protected static final double BALANCE = 0.7;
+
+  /** The number of sides tried when looking for a balanced split. */
+  protected static final int MAX_SPLIT_TRIES = 3;
+
+  /**
+   * A node of the tree, holding the instances themselves if it is a leaf.
+   */
+  protected static class Node
+    implements Serializable {
+
+    /** for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /** The smallest non-missing value per attribute. */
+    protected double[] m_Min;
+
+    /** The largest non-missing value per attribute. */
+    protected double[] m_Max;
+
+    /** Whether the value of an attribute is missing in some instance. */
+    protected boolean[] m_Missing;
+
+    /** The number of instances below this node. */
+    protected int m_Size;
+
+    /** The children, null for a leaf. */
+    protected Node m_Left, m_Right;
+
+    /** The split: instances with a value &lt;= m_SplitValue go left. */
+    protected int m_SplitDim;
+
+    /** The split value. */
+    protected double m_SplitValue;
+
+    /** The instances of a leaf. */
+    protected Instance[] m_Instances;
+
+    /** The insertion stamps of the instances of a leaf. */
+    protected long[] m_Stamps;
+
+    /** The size at which splitting a leaf is tried next. */
+    protected int m_NextSplitSize;
+
+    /**
+     * The fraction of the instances one child of an inner node may hold
+     * before the node is rebuilt, larger than BALANCE if no better split
+     * was found.
+     */
+    protected double m_Tolerance = BALANCE;
+
+    /**
+     * Creates an empty node.
+     *
+     * @param numAttributes	the number of attributes
+     */
+    protected Node(int numAttributes) {
+      m_Min = new double[numAttributes];
+      m_Max = new double[numAttributes];
+      m_Missing = new boolean[numAttributes];
+      Arrays.fill(m_Min, Double.POSITIVE_INFINITY);
+      Arrays.fill(m_Max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Returns whether the node is a leaf.
+     *
+     * @return		true if the node is a leaf
+     */
+    protected boolean isALeaf() {
+      return m_Left == null;
+    }
+
+    /**
+     * Enlarges the bounding box to include the given instance.
+     *
+     * @param inst	the instance
+     */
+    protected void extend(Instance inst) {
+      for (int j = 0; j < m_Min.length; j++) {
+        double value = inst.value(j);
+        if (NormalizableDistance.isMissingValue(value)) {
+          m_Missing[j] = true;
+        } else {
+          if (value < m_Min[j])
+            m_Min[j] = value;
+          if (value > m_Max[j])
+            m_Max[j] = value;
+        }
+      }
+    }
+
+    /**
+     * Recomputes the bounding box from the instances of a leaf or the boxes
+     * of the children.
+     */
+    protected void recomputeBox() {
+      Arrays.fill(m_Min, Double.POSITIVE_INFINITY);
+      Arrays.fill(m_Max, Double.NEGATIVE_INFINITY);
+      Arrays.fill(m_Missing, false);
+      if (isALeaf()) {
+        for (int i = 0; i < m_Size; i++)
+          extend(m_Instances[i]);
+      } else {
+        for (int j = 0; j < m_Min.length; j++) {
+          m_Min[j] = Math.min(m_Left.m_Min[j], m_Right.m_Min[j]);
+          m_Max[j] = Math.max(m_Left.m_Max[j], m_Right.m_Max[j]);
+          m_Missing[j] = m_Left.m_Missing[j] || m_Right.m_Missing[j];
+        }
+      }
+    }
+  }
+
+  /** The root of the tree. */
+  protected Node m_Root;
+
+  /** The distance function, as a normalizable one. */
+  protected NormalizableDistance m_NormalizableDistance;
+
+  /** The maximum number of instances in a leaf. */
+  protected int m_MaxInstInLeaf = 32;
+
+  /** The stamp given to the next instance added. */
+  protected long m_NextStamp;
+
+  /** Whether the ranges have to be read off the root box again. */
+  protected boolean m_RangesChanged;
+
+  /** The distances of the neighbours found last. */
+  protected double[] m_DistanceList;
+
+  /**
+   * Constructor. Needs setInstances(Instances)
+   * to be called before the class is usable.
+   */
+  public BoundingBoxTree() {
+    super();
+    m_NormalizableDistance = (NormalizableDistance) m_DistanceFunction;
+  }
+
+  /**
+   * Constructor that builds the tree on the supplied set of instances.
+   *
+   * @param insts	the instances to use
+   * @throws Exception	if the tree cannot be built
+   */
+  public BoundingBoxTree(Instances insts) throws Exception {
+    this();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   * 			explorer/experimenter gui
+   */
+  public String globalInfo() {
+    return
+        "Class implementing a dynamic tree of bounding boxes for nearest "
+      + "neighbour search over a changing neighbourhood (e.g. a sliding "
+      + "window), with amortized logarithmic insertion and removal of "
+      + "instances.";
+  }
+
+  /**
+   * Sets the distance function to use for nearest neighbour search.
+   *
+   * @param df		the distance function to use
+   * @throws Exception	if not a NormalizableDistance
+   */
+  public void setDistanceFunction(DistanceFunction df) throws Exception {
+    if (!(df instanceof NormalizableDistance))
+      throw new Exception("BoundingBoxTree only works with "
+          + "NormalizableDistance functions.");
+    m_DistanceFunction = m_NormalizableDistance = (NormalizableDistance) df;
+    if (m_Instances != null)
+      setInstances(m_Instances);
+  }
+
+  /**
+   * Sets the maximum number of instances in a leaf.
+   *
+   * @param i		the maximum number of instances in a leaf
+   */
+  public void setMaxInstInLeaf(int i) {
+    m_MaxInstInLeaf = Math.max(1, i);
+  }
+
+  /**
+   * Returns the maximum number of instances in a leaf.
+   *
+   * @return		the maximum number of instances in a leaf
+   */
+  public int getMaxInstInLeaf() {
+    return m_MaxInstInLeaf;
+  }
+
+  /**
+   * Builds the tree on the given set of instances.
+   *
+   * @param insts 	the instances to build the tree on
+   * @throws Exception	if setting of instances fails
+   */
+  public void setInstances(Instances insts) throws Exception {
+    super.setInstances(insts);
+    m_NormalizableDistance.setInstances(insts);
+
+    int numInst = insts.numInstances();
+    Node root = new Node(insts.numAttributes());
+    root.m_Instances = new Instance[Math.max(numInst, m_MaxInstInLeaf + 1)];
+    root.m_Stamps = new long[root.m_Instances.length];
+    for (int i = 0; i < numInst; i++) {
+      root.m_Instances[i] = insts.instance(i);
+      root.m_Stamps[i] = i;
+    }
+    root.m_Size = numInst;
+    root.recomputeBox();
+    m_NextStamp = numInst;
+    m_Root = root;
+    m_RangesChanged = true;
+    if (numInst > m_MaxInstInLeaf)
+      m_Root = rebuild(root);
+  }
+
+  /**
+   * Adds the given instance to the tree.
+   * P.S.: The method assumes the instance has already been added to the
+   * m_Instances object by the caller.
+   *
+   * @param ins		the instance to add
+   * @throws Exception	if no instances have been supplied yet
+   */
+  public void update(Instance ins) throws Exception {
+    if (m_Root == null)
+      throw new Exception("No instances supplied yet. Have to call "
+          + "setInstances(instances) with a set of Instances first.");
+
+    Node[] path = new Node[16];
+    int length = 0;
+    Node node = m_Root;
+    while (true) {
+      if (length == path.length)
+        path = Arrays.copyOf(path, 2 * length);
+      path[length++] = node;
+      node.extend(ins);
+      node.m_Size++;
+      if (node.isALeaf())
+        break;
+      node = goesLeft(node, ins) ? node.m_Left : node.m_Right;
+    }
+    if (node.m_Size > node.m_Instances.length) {
+      node.m_Instances = Arrays.copyOf(node.m_Instances, 2 * node.m_Size);
+      node.m_Stamps = Arrays.copyOf(node.m_Stamps, node.m_Instances.length);
+    }
+    node.m_Instances[node.m_Size - 1] = ins;
+    node.m_Stamps[node.m_Size - 1] = m_NextStamp++;
+    m_RangesChanged = true;
+
+    rebalance(path, length);
+  }
+
+  /**
+   * Removes the given instance from the tree. The instance is looked up by
+   * reference.
+   * P.S.: The method has to be called before the instance is deleted from
+   * the m_Instances object by the caller.
+   *
+   * @param ins		the instance to remove
+   * @throws Exception	if the instance is not part of the tree
+   */
+  public void remove(Instance ins) throws Exception {
+    if (m_Root == null)
+      throw new Exception("No instances supplied yet. Have to call "
+          + "setInstances(instances) with a set of Instances first.");
+
+    Node[] path = new Node[16];
+    int length = 0;
+    Node node = m_Root;
+    while (true) {
+      if (length == path.length)
+        path = Arrays.copyOf(path, 2 * length);
+      path[length++] = node;
+      if (node.isALeaf())
+        break;
+      node = goesLeft(node, ins) ? node.m_Left : node.m_Right;
+    }
+    int pos = -1;
+    for (int i = 0; i < node.m_Size; i++) {
+      if (node.m_Instances[i] == ins) {
+        pos = i;
+        break;
+      }
+    }
+    if (pos < 0)
+      throw new Exception("The instance to remove is not part of the tree.");
+
+    node.m_Size--;
+    node.m_Instances[pos] = node.m_Instances[node.m_Size];
+    node.m_Stamps[pos] = node.m_Stamps[node.m_Size];
+    node.m_Instances[node.m_Size] = null;
+    node.recomputeBox();
+    for (int i = length - 2; i >= 0; i--) {
+      Node parent = path[i];
+      parent.m_Size--;
+      Node child = path[i + 1];
+      if (child.m_Size == 0) {
+        // the parent is replaced by the other child
+        Node other = (parent.m_Left == child) ? parent.m_Right : parent.m_Left;
+        replace(path, i, other);
+        length = i + 1;
+      } else {
+        parent.recomputeBox();
+      }
+    }
+    m_RangesChanged = true;
+
+    rebalance(path, length);
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the nearest neighbour for
+   * @return		the nearest instance
+   * @throws Exception 	if the nearest neighbour could not be found
+   */
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return (kNearestNeighbours(target, 1)).instance(0);
+  }
+
+  /**
+   * Returns the k nearest instances in the current neighbourhood to the
+   * supplied instance. &gt;k neighbours are returned if there are more than
+   * one neighbours at the kth boundary.
+   *
+   * @param target 	the instance to find the k nearest neighbours for
+   * @param k		the number of nearest neighbours to find
+   * @return		the k nearest neighbors
+   * @throws Exception  if the neighbours could not be found
+   */
+  public Instances kNearestNeighbours(Instance target, int k) throws Exception {
+    Instance[] nearest = kNearestInstances(target, k);
+    Instances neighbours = new Instances(m_Instances, nearest.length);
+    for (Instance neighbour : nearest)
+      neighbours.add(neighbour);
+    return neighbours;
+  }
+
+  /**
+   * Returns the k nearest instances in the current neighbourhood to the
+   * supplied instance, as stored in the tree (i.e. not copied). &gt;k
+   * neighbours are returned if there are more than one neighbours at the kth
+   * boundary. The neighbours are sorted by distance, neighbours at the same
+   * distance in the order they were added to the tree.
+   *
+   * @param target 	the instance to find the k nearest neighbours for
+   * @param k		the number of nearest neighbours to find
+   * @return		the k nearest neighbors
+   * @throws Exception  if the neighbours could not be found
+   */
+  public Instance[] kNearestInstances(Instance target, int k) throws Exception {
+    if (m_Root == null)
+      throw new Exception("No instances supplied yet. Have to call "
+          + "setInstances(instances) with a set of Instances first.");
+    if (m_RangesChanged) {
+      m_NormalizableDistance.setRanges(getRanges());
+      m_RangesChanged = false;
+    }
+
+    Search search = new Search(target, k);
+    if (k > 0 && m_Root.m_Size > 0)
+      search.findNearestNeighbours(m_Root);
+    return search.collect();
+  }
+
+  /**
+   * Returns the distances of the k nearest neighbours found last, in the
+   * order of the neighbours.
+   *
+   * @return 		array containing the distances of the
+   * 			nearestNeighbours
+   * @throws Exception 	if called before calling kNearestNeighbours
+   *            	or nearestNeighbours.
+   */
+  public double[] getDistances() throws Exception {
+    if (m_DistanceList == null)
+      throw new Exception("No distances available. Please call either "
+          + "kNearestNeighbours or nearestNeighbours first.");
+    return m_DistanceList;
+  }
+
+  /**
+   * Returns the number of instances in the tree.
+   *
+   * @return		the number of instances
+   */
+  public int numInstances() {
+    return (m_Root == null) ? 0 : m_Root.m_Size;
+  }
+
+  /**
+   * Returns the ranges of the attributes over the instances of the tree, in
+   * the format of NormalizableDistance.
+   *
+   * @return		low, high and width values for all attributes
+   */
+  protected double[][] getRanges() {
+    double[][] ranges = new double[m_Root.m_Min.length][3];
+    for (int j = 0; j < ranges.length; j++) {
+      if (m_Root.m_Min[j] <= m_Root.m_Max[j]) {
+        ranges[j][NormalizableDistance.R_MIN] = m_Root.m_Min[j];
+        ranges[j][NormalizableDistance.R_MAX] = m_Root.m_Max[j];
+        ranges[j][NormalizableDistance.R_WIDTH] = m_Root.m_Max[j] - m_Root.m_Min[j];
+      } else { // all values missing
+        ranges[j][NormalizableDistance.R_MIN] = Double.POSITIVE_INFINITY;
+        ranges[j][NormalizableDistance.R_MAX] = Double.NEGATIVE_INFINITY;
+        ranges[j][NormalizableDistance.R_WIDTH] = Double.POSITIVE_INFINITY;
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns whether the instance belongs to the left child of a node.
+   *
+   * @param node	the inner node
+   * @param inst	the instance
+   * @return		true if the instance goes left
+   */
+  protected boolean goesLeft(Node node, Instance inst) {
+    // missing values (NaN) always go right
+    return inst.value(node.m_SplitDim) <= node.m_SplitValue;
+  }
+
+  /**
+   * Replaces the node at the given position of a path.
+   *
+   * @param path	the path from the root
+   * @param i		the position of the node to replace
+   * @param node	the new node
+   */
+  protected void replace(Node[] path, int i, Node node) {
+    if (i == 0) {
+      m_Root = node;
+    } else if (path[i - 1].m_Left == path[i]) {
+      path[i - 1].m_Left = node;
+    } else {
+      path[i - 1].m_Right = node;
+    }
+    path[i] = node;
+  }
+
+  /**
+   * Rebuilds the highest node of the path that is out of balance, a leaf
+   * that is too large or an inner node that is too small.
+   *
+   * @param path	the path from the root
+   * @param length	the length of the path
+   */
+  protected void rebalance(Node[] path, int length) {
+    for (int i = 0; i < length; i++) {
+      Node node = path[i];
+      boolean rebuild;
+      if (node.isALeaf()) {
+        rebuild = node.m_Size > m_MaxInstInLeaf
+            && node.m_Size >= node.m_NextSplitSize;
+      } else {
+        rebuild = node.m_Size <= m_MaxInstInLeaf / 2
+            || Math.max(node.m_Left.m_Size, node.m_Right.m_Size)
+               > node.m_Tolerance * node.m_Size + 1;
+      }
+      if (rebuild) {
+        replace(path, i, rebuild(node));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the subtree below the given node.
+   *
+   * @param node	the root of the subtree
+   * @return		the root of the new subtree
+   */
+  protected Node rebuild(Node node) {
+    Instance[] insts = new Instance[node.m_Size];
+    long[] stamps = new long[node.m_Size];
+    collect(node, insts, stamps, 0);
+    return build(insts, stamps, 0, insts.length, getScales());
+  }
+
+  /**
+   * Copies the instances below a node into the given arrays.
+   *
+   * @param node	the root of the subtree
+   * @param insts	the array for the instances
+   * @param stamps	the array for the stamps
+   * @param offset	the position to start at
+   * @return		the position after the last instance copied
+   */
+  protected int collect(Node node, Instance[] insts, long[] stamps, int offset) {
+    if (node.isALeaf()) {
+      System.arraycopy(node.m_Instances, 0, insts, offset, node.m_Size);
+      System.arraycopy(node.m_Stamps, 0, stamps, offset, node.m_Size);
+      return offset + node.m_Size;
+    }
+    offset = collect(node.m_Left, insts, stamps, offset);
+    return collect(node.m_Right, insts, stamps, offset);
+  }
+
+  /**
+   * Returns the widths by which the sides of the boxes are divided when
+   * looking for the widest one, i.e. the widths of the normalization ranges.
+   *
+   * @return		the scale per attribute, 0 for attributes to ignore
+   */
+  protected double[] getScales() {
+    int numAtt = m_Root.m_Min.length;
+    int classIndex = m_Instances.classIndex();
+    double[] scales = new double[numAtt];
+    for (int j = 0; j < numAtt; j++) {
+      if (j == classIndex)
+        continue;
+      double width = m_Root.m_Max[j] - m_Root.m_Min[j];
+      if (!(width > 0))
+        continue;
+      scales[j] = (m_NormalizableDistance.getDontNormalize()
+          || m_Instances.attribute(j).isNominal()) ? 1.0 : width;
+    }
+    return scales;
+  }
+
+  /**
+   * Builds a balanced subtree on a part of the given arrays, which get
+   * reordered. The instances are split at the median of the widest
+   * (normalized) side of their box, numeric attributes first; if that split
+   * is out of balance because of repeated values, the next widest sides are
+   * tried.
+   *
+   * @param insts	the instances
+   * @param stamps	the stamps of the instances
+   * @param start	the first position
+   * @param end		the position after the last one
+   * @param scales	the scales of the attributes
+   * @return		the root of the subtree
+   */
+  protected Node build(Instance[] insts, long[] stamps, int start, int end,
+      double[] scales) {
+    int numAtt = scales.length;
+    int size = end - start;
+    Node node = new Node(numAtt);
+    node.m_Size = size;
+
+    if (size > m_MaxInstInLeaf) {
+      for (int i = start; i < end; i++)
+        node.extend(insts[i]);
+      double[] widths = new double[numAtt];
+      for (int j = 0; j < numAtt; j++) {
+        if (scales[j] > 0)
+          widths[j] = (node.m_Max[j] - node.m_Min[j]) / scales[j];
+      }
+      double[] values = new double[size];
+      int bestDim = -1;
+      double bestValue = 0, bestFraction = 1;
+      for (int tries = 0; tries < MAX_SPLIT_TRIES; tries++) {
+        int dim = widestSide(widths, m_Instances);
+        if (dim < 0)
+          break;
+        widths[dim] = 0;
+
+        int count = 0;
+        for (int i = start; i < end; i++) {
+          double value = insts[i].value(dim);
+          if (!NormalizableDistance.isMissingValue(value))
+            values[count++] = value;
+        }
+        Arrays.sort(values, 0, count);
+        int p = (count - 1) / 2;
+        if (count == size) {
+          // the largest value would leave the right side empty
+          while (p >= 0 && values[p] == values[count - 1])
+            p--;
+          if (p < 0)
+            continue;
+        }
+        double splitValue = values[p];
+        int mid = partition(insts, stamps, start, end, dim, splitValue);
+        double fraction = (double) Math.max(mid - start, end - mid) / size;
+        if (fraction < bestFraction) {
+          bestDim = dim;
+          bestValue = splitValue;
+          bestFraction = fraction;
+        }
+        if (fraction <= BALANCE)
+          break;
+      }
+      if (bestDim >= 0) {
+        int mid = partition(insts, stamps, start, end, bestDim, bestValue);
+        node.m_SplitDim = bestDim;
+        node.m_SplitValue = bestValue;
+        node.m_Tolerance = Math.max(BALANCE, bestFraction);
+        node.m_Left = build(insts, stamps, start, mid, scales);
+        node.m_Right = build(insts, stamps, mid, end, scales);
+        node.recomputeBox();
+        return node;
+      }
+    }
+
+    // leaf
+    node.m_Instances = new Instance[Math.max(size, m_MaxInstInLeaf) + 1];
+    node.m_Stamps = new long[node.m_Instances.length];
+    System.arraycopy(insts, start, node.m_Instances, 0, size);
+    System.arraycopy(stamps, start, node.m_Stamps, 0, size);
+    node.m_NextSplitSize = (size > m_MaxInstInLeaf) ? 2 * size : 0;
+    node.recomputeBox();
+    return node;
+  }
+
+  /**
+   * Returns the widest side among the numeric attributes, or among the
+   * nominal ones if all the numeric sides have zero width.
+   *
+   * @param widths	the widths of the sides, 0 for the ones to ignore
+   * @param header	the dataset header
+   * @return		the attribute index, -1 if all widths are zero
+   */
+  protected int widestSide(double[] widths, Instances header) {
+    int dim = -1;
+    for (int j = 0; j < widths.length; j++) {
+      if (widths[j] > 0 && !header.attribute(j).isNominal()
+          && (dim < 0 || widths[j] > widths[dim]))
+        dim = j;
+    }
+    if (dim < 0) {
+      for (int j = 0; j < widths.length; j++) {
+        if (widths[j] > 0 && (dim < 0 || widths[j] > widths[dim]))
+          dim = j;
+      }
+    }
+    return dim;
+  }
+
+  /**
+   * Moves the instances going left to the front of a part of the given
+   * arrays.
+   *
+   * @param insts	the instances
+   * @param stamps	the stamps of the instances
+   * @param start	the first position
+   * @param end		the position after the last one
+   * @param dim		the split attribute
+   * @param splitValue	the split value
+   * @return		the position of the first instance going right
+   */
+  protected int partition(Instance[] insts, long[] stamps, int start, int end,
+      int dim, double splitValue) {
+    int mid = start;
+    for (int i = start; i < end; i++) {
+      if (insts[i].value(dim) <= splitValue) {
+        Instance inst = insts[i];
+        insts[i] = insts[mid];
+        insts[mid] = inst;
+        long stamp = stamps[i];
+        stamps[i] = stamps[mid];
+        stamps[mid] = stamp;
+        mid++;
+      }
+    }
+    return mid;
+  }
+
+  /**
+   * The state of one k nearest neighbours search.
+   */
+  protected class Search {
+
+    /** The instance to find the neighbours for. */
+    protected Instance m_Target;
+
+    /** The number of neighbours to find. */
+    protected int m_K;
+
+    /** The class attribute, which is ignored by the distance. */
+    protected int m_ClassIndex;
+
+    /** The k nearest so far, referring to the candidates. */
+    protected MyHeap m_Heap;
+
+    /** The instances that made it into the heap. */
+    protected Instance[] m_Candidates;
+
+    /** The stamps of the candidates. */
+    protected long[] m_CandidateStamps;
+
+    /** The number of candidates. */
+    protected int m_NumCandidates;
+
+    /**
+     * Initializes the search.
+     *
+     * @param target	the instance to find the neighbours for
+     * @param k		the number of neighbours to find
+     */
+    protected Search(Instance target, int k) {
+      m_Target = target;
+      m_K = k;
+      m_ClassIndex = m_Instances.classIndex();
+      m_Heap = new MyHeap(Math.max(k, 1));
+      m_Candidates = new Instance[2 * k + 1];
+      m_CandidateStamps = new long[m_Candidates.length];
+    }
+
+    /**
+     * Returns the current distance to the kth nearest neighbour, infinity
+     * if fewer than k have been found.
+     *
+     * @return		the distance to the kth nearest neighbour
+     */
+    protected double kthDistance() {
+      return (m_Heap.size() < m_K) ? Double.POSITIVE_INFINITY
+          : m_Heap.peek().distance;
+    }
+
+    /**
+     * Returns a lower bound of the distance (as computed by the distance
+     * function, i.e. before post processing) between the target and any
+     * instance in the box of a node.
+     *
+     * @param node	the node
+     * @param cutOffValue	the distance beyond which the computation
+     * 			is stopped
+     * @return		the lower bound
+     */
+    protected double lowerBound(Node node, double cutOffValue) {
+      double bound = 0;
+      for (int j = 0; j < node.m_Min.length; j++) {
+        if (j == m_ClassIndex || node.m_Missing[j])
+          continue;
+        double value = m_Target.value(j);
+        double diff;
+        if (value < node.m_Min[j])
+          diff = m_NormalizableDistance.difference(j, node.m_Min[j], value);
+        else if (value > node.m_Max[j])
+          diff = m_NormalizableDistance.difference(j, value, node.m_Max[j]);
+        else // inside or missing
+          continue;
+        bound = m_NormalizableDistance.updateDistance(bound, diff);
+        if (bound > cutOffValue)
+          break;
+      }
+      return bound;
+    }
+
+    /**
+     * Finds the nearest neighbours below the given node, like the
+     * LinearNNSearch does over its instances.
+     *
+     * @param node	the node to search
+     * @throws Exception	if the heap fails
+     */
+    protected void findNearestNeighbours(Node node) throws Exception {
+      if (node.isALeaf()) {
+        for (int i = 0; i < node.m_Size; i++) {
+          Instance inst = node.m_Instances[i];
+          if (inst == m_Target) // for hold-one-out cross-validation
+            continue;
+          if (m_Heap.size() < m_K) {
+            double distance = m_DistanceFunction.distance(m_Target, inst,
+                Double.POSITIVE_INFINITY);
+            m_Heap.put(addCandidate(inst, node.m_Stamps[i]), distance);
+          } else {
+            MyHeapElement temp = m_Heap.peek();
+            double distance = m_DistanceFunction.distance(m_Target, inst,
+                temp.distance);
+            if (distance < temp.distance) {
+              m_Heap.putBySubstitute(addCandidate(inst, node.m_Stamps[i]),
+                  distance);
+            } else if (distance == temp.distance) {
+              m_Heap.putKthNearest(addCandidate(inst, node.m_Stamps[i]),
+                  distance);
+            }
+          }
+        }
+        return;
+      }
+
+      double kth = kthDistance();
+      double boundLeft = lowerBound(node.m_Left, kth);
+      double boundRight = lowerBound(node.m_Right, kth);
+      Node nearer = node.m_Left, further = node.m_Right;
+      double boundFurther = boundRight;
+      if (boundRight < boundLeft) {
+        nearer = node.m_Right;
+        further = node.m_Left;
+        boundFurther = boundLeft;
+      }
+      // boxes at the kth distance can hold neighbours tied with the kth
+      if (Math.min(boundLeft, boundRight) <= kth)
+        findNearestNeighbours(nearer);
+      if (boundFurther <= kthDistance())
+        findNearestNeighbours(further);
+    }
+
+    /**
+     * Stores a candidate neighbour.
+     *
+     * @param inst	the instance
+     * @param stamp	its stamp
+     * @return		the index of the candidate
+     */
+    protected int addCandidate(Instance inst, long stamp) {
+      if (m_NumCandidates == m_Candidates.length) {
+        m_Candidates = Arrays.copyOf(m_Candidates, 2 * m_NumCandidates);
+        m_CandidateStamps = Arrays.copyOf(m_CandidateStamps, m_Candidates.length);
+      }
+      m_Candidates[m_NumCandidates] = inst;
+      m_CandidateStamps[m_NumCandidates] = stamp;
+      return m_NumCandidates++;
+    }
+
+    /**
+     * Empties the heap into the sorted list of neighbours and sets the
+     * distances.
+     *
+     * @return		the neighbours
+     * @throws Exception	if the heap fails
+     */
+    protected Instance[] collect() throws Exception {
+      int total = m_Heap.totalSize();
+      int[] indices = new int[total];
+      double[] distances = new double[total];
+      int n = 0;
+      MyHeapElement h;
+      while (m_Heap.noOfKthNearest() > 0) {
+        h = m_Heap.getKthNearest();
+        indices[n] = h.index;
+        distances[n++] = h.distance;
+      }
+      while (m_Heap.size() > 0) {
+        h = m_Heap.get();
+        indices[n] = h.index;
+        distances[n++] = h.distance;
+      }
+      m_DistanceFunction.postProcessDistances(distances);
+
+      // insertion sort by distance, then by stamp
+      for (int i = 1; i < total; i++) {
+        int index = indices[i];
+        double distance = distances[i];
+        int j = i - 1;
+        while (j >= 0 && (distances[j] > distance || (distances[j] == distance
+            && m_CandidateStamps[indices[j]] > m_CandidateStamps[index]))) {
+          indices[j + 1] = indices[j];
+          distances[j + 1] = distances[j];
+          j--;
+        }
+        indices[j + 1] = index;
+        distances[j + 1] = distance;
+      }
+
+      Instance[] neighbours = new Instance[total];
+      for (int i = 0; i < total; i++)
+        neighbours[i] = m_Candidates[indices[i]];
+      m_DistanceList = distances;
+      return neighbours;
+    }
+  }
+}
@@ -21,6 +21,8 @@
 
 package moa.classifiers.lazy.neighboursearch;
 
+import java.util.Arrays;
+
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 
@@ -123,7 +125,71 @@ public class EuclideanDistance
   public double distance(Instance first, Instance second) {
     return Math.sqrt(distance(first, second, Double.POSITIVE_INFINITY));
   }
-  
+
+  /**
+   * Calculates the (squared) distances between an instance and all the
+   * instances of a store at once. Columns without missing values are
+   * processed by tight loops over the primitive values, which the JIT
+   * compiler can unroll and vectorize, giving the same results as
+   * difference(int, double, double). Subclasses redefining the difference
+   * use the generic computation.
+   *
+   * @param first 	the instance to compute the distances to
+   * @param store 	the instances to compute the distances of
+   * @param distances 	receives the distance of the ith instance of the
+   * 			store at position i
+   */
+  public void distances(Instance first, FlatWindowStore store, double[] distances) {
+    if (getClass() != EuclideanDistance.class) {
+      super.distances(first, store, distances);
+      return;
+    }
+
+    int numInstances = store.numInstances();
+    int classIndex = m_Data.classIndex();
+    double[] values = store.values();
+
+    validate();
+
+    Arrays.fill(distances, 0, numInstances, 0.0);
+    for (int j = 0; j < store.numAttributes(); j++) {
+      if (j == classIndex || !m_ActiveIndices[j])
+        continue;
+      double value = first.value(j);
+      int offset = store.offset(j);
+      if (isMissingValue(value) || store.numMissing(j) > 0) {
+        for (int i = 0; i < numInstances; i++)
+          distances[i] = updateDistance(distances[i],
+              difference(j, value, values[offset + i]));
+      }
+      else if (m_Data.attribute(j).isNominal()) {
+        int label = (int) value;
+        for (int i = 0; i < numInstances; i++) {
+          if ((int) values[offset + i] != label)
+            distances[i] += 1.0;
+        }
+      }
+      else if (m_DontNormalize) {
+        for (int i = 0; i < numInstances; i++) {
+          double diff = value - values[offset + i];
+          distances[i] += diff * diff;
+        }
+      }
+      else if (!Double.isNaN(m_Ranges[j][R_MIN])
+          && m_Ranges[j][R_MAX] != m_Ranges[j][R_MIN]) {
+        // same operations as norm(value, j) - norm(values[offset + i], j)
+        double min = m_Ranges[j][R_MIN];
+        double width = m_Ranges[j][R_WIDTH];
+        double normalized = (value - min) / width;
+        for (int i = 0; i < numInstances; i++) {
+          double diff = normalized - (values[offset + i] - min) / width;
+          distances[i] += diff * diff;
+        }
+      }
+      // else: constant attribute, all the differences are 0
+    }
+  }
+
  
   /**
    * Updates the current distance calculated so far with the new difference
@@ -0,0 +1,269 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    FlatLinearNNSearch.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ <!-- globalinfo-start -->
+ * Class implementing the brute force search algorithm for nearest neighbour
+ * search over a copy of the neighbourhood held in a FlatWindowStore.<br/>
+ * The distances to all the instances are computed column by column over
+ * primitive arrays, which is much faster than going through the instances
+ * one by one. The ranges of the attributes are maintained by the store, so
+ * instances can be added and removed in constant (amortized) time.
+ * <p/>
+ <!-- globalinfo-end -->
+ *
+ * The neighbours are the same as the ones of the LinearNNSearch and they
+ * are returned in the same order. As the store follows the order of the
+ * instances, instances must be added at the end of m_Instances, while they
+ * can be removed from anywhere.
+ *
+ * @version $Revision: 1 $
+ */
+public class FlatLinearNNSearch
+  extends NearestNeighbourSearch {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The distance function, as a NormalizableDistance. */
+  protected NormalizableDistance m_NormalizableDistance;
+
+  /** The copy of the neighbourhood. */
+  protected FlatWindowStore m_Store;
+
+  /** The distances of all the instances to the last target. */
+  protected double[] m_AllDistances = new double[0];
+
+  /** Array holding the distances of the nearest neighbours. */
+  protected double[] m_Distances;
+
+  /**
+   * Constructor. Needs setInstances(Instances)
+   * to be called before the class is usable.
+   */
+  public FlatLinearNNSearch() {
+    super();
+    m_NormalizableDistance = (NormalizableDistance) m_DistanceFunction;
+  }
+
+  /**
+   * Constructor that uses the supplied set of
+   * instances.
+   *
+   * @param insts	the instances to use
+   * @throws Exception	if setting of instances fails
+   */
+  public FlatLinearNNSearch(Instances insts) throws Exception {
+    this();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   * 			explorer/experimenter gui
+   */
+  public String globalInfo() {
+    return
+        "Class implementing the brute force search algorithm for nearest "
+      + "neighbour search over a columnar copy of the instances.";
+  }
+
+  /**
+   * Sets the distance function to use for nearest neighbour search.
+   *
+   * @param df		the distance function to use
+   * @throws Exception	if not a NormalizableDistance
+   */
+  public void setDistanceFunction(DistanceFunction df) throws Exception {
+    if (!(df instanceof NormalizableDistance))
+      throw new Exception("FlatLinearNNSearch only works with "
+          + "NormalizableDistance functions.");
+    m_DistanceFunction = m_NormalizableDistance = (NormalizableDistance) df;
+    if (m_Instances != null)
+      setInstances(m_Instances);
+  }
+
+  /**
+   * Returns the nearest instance in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the nearest neighbour for
+   * @return		the nearest instance
+   * @throws Exception 	if the nearest neighbour could not be found
+   */
+  public Instance nearestNeighbour(Instance target) throws Exception {
+    return (kNearestNeighbours(target, 1)).instance(0);
+  }
+
+  /**
+   * Returns k nearest instances in the current neighbourhood to the supplied
+   * instance.
+   *
+   * @param target 	the instance to find the k nearest neighbours for
+   * @param kNN		the number of nearest neighbours to find
+   * @return		the k nearest neighbors
+   * @throws Exception  if the neighbours could not be found
+   */
+  public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
+    if (m_Store == null)
+      throw new Exception("No instances supplied yet. Have to call "
+          + "setInstances(instances) with a set of Instances first.");
+
+    int numInstances = m_Store.numInstances();
+    if (m_AllDistances.length < numInstances)
+      m_AllDistances = new double[Math.max(numInstances, 2 * m_AllDistances.length)];
+    m_NormalizableDistance.setRanges(m_Store.getRanges());
+    m_NormalizableDistance.distances(target, m_Store, m_AllDistances);
+
+    MyHeap heap = new MyHeap(kNN);
+    double distance; int firstkNN = 0;
+    for (int i = 0; i < numInstances; i++) {
+      if (target == m_Instances.instance(i)) // for hold-one-out cross-validation
+        continue;
+      distance = m_AllDistances[i];
+      if (firstkNN < kNN) {
+        heap.put(i, distance);
+        firstkNN++;
+      }
+      else {
+        MyHeapElement temp = heap.peek();
+        if (distance < temp.distance) {
+          heap.putBySubstitute(i, distance);
+        }
+        else if (distance == temp.distance) {
+          heap.putKthNearest(i, distance);
+        }
+      }
+    }
+
+    Instances neighbours = new Instances(m_Instances, (heap.size() + heap.noOfKthNearest()));
+    m_Distances = new double[heap.size() + heap.noOfKthNearest()];
+    int[] indices = new int[heap.size() + heap.noOfKthNearest()];
+    int i = 1; MyHeapElement h;
+    while (heap.noOfKthNearest() > 0) {
+      h = heap.getKthNearest();
+      indices[indices.length - i] = h.index;
+      m_Distances[indices.length - i] = h.distance;
+      i++;
+    }
+    while (heap.size() > 0) {
+      h = heap.get();
+      indices[indices.length - i] = h.index;
+      m_Distances[indices.length - i] = h.distance;
+      i++;
+    }
+
+    m_DistanceFunction.postProcessDistances(m_Distances);
+
+    for (int k = 0; k < indices.length; k++) {
+      neighbours.add(m_Instances.instance(indices[k]));
+    }
+
+    return neighbours;
+  }
+
+  /**
+   * Returns the distances of the k nearest neighbours. The kNearestNeighbours
+   * or nearestNeighbour must always be called before calling this function.
+   *
+   * @return 		array containing the distances of the
+   * 			nearestNeighbours. The length and ordering of the
+   * 			array is the same as that of the instances returned
+   * 			by nearestNeighbour functions.
+   * @throws Exception 	if called before calling kNearestNeighbours
+   *            	or nearestNeighbours.
+   */
+  public double[] getDistances() throws Exception {
+    if (m_Distances == null)
+      throw new Exception("No distances available. Please call either "
+          + "kNearestNeighbours or nearestNeighbours first.");
+    return m_Distances;
+  }
+
+  /**
+   * Sets the instances comprising the current neighbourhood and copies them
+   * into the store.
+   *
+   * @param insts 	the set of instances on which the nearest neighbour
+   * 			search is carried out
+   * @throws Exception	if setting of instances fails
+   */
+  public void setInstances(Instances insts) throws Exception {
+    super.setInstances(insts);
+    m_NormalizableDistance.setInstances(insts);
+    m_Store = new FlatWindowStore(insts);
+    for (int i = 0; i < insts.numInstances(); i++)
+      m_Store.add(insts.instance(i));
+  }
+
+  /**
+   * Adds the given instance to the store.
+   * P.S.: The method assumes the instance has already been added at the end
+   * of the m_Instances object by the caller.
+   *
+   * @param ins 	the instance to add
+   * @throws Exception	if no instances have been supplied yet
+   */
+  public void update(Instance ins) throws Exception {
+    if (m_Store == null)
+      throw new Exception("No instances supplied yet. Cannot update without"
+          + "supplying a set of instances first.");
+    m_Store.add(ins);
+  }
+
+  /**
+   * Removes the given instance from the store. The instance is looked up by
+   * reference.
+   * P.S.: The method has to be called before the instance is deleted from
+   * the m_Instances object by the caller.
+   *
+   * @param ins 	the instance to remove
+   * @throws Exception	if the instance is not part of the neighbourhood
+   */
+  public void remove(Instance ins) throws Exception {
+    if (m_Store == null)
+      throw new Exception("No instances supplied yet. Cannot remove without"
+          + "supplying a set of instances first.");
+    for (int i = 0; i < m_Store.numInstances(); i++) {
+      if (m_Instances.instance(i) == ins) {
+        m_Store.remove(i);
+        return;
+      }
+    }
+    throw new Exception("The instance to remove is not part of the "
+        + "neighbourhood.");
+  }
+
+  /**
+   * Returns the store holding the copy of the neighbourhood.
+   *
+   * @return		the store
+   */
+  public FlatWindowStore getStore() {
+    return m_Store;
+  }
+}
@@ -0,0 +1,398 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    FlatWindowStore.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Stores the attribute values of a window of instances column by column in
+ * a single primitive array, together with the class labels and weights.<br/>
+ * The values of attribute j are found at values()[offset(j) + i] for the
+ * instances i = 0, ..., numInstances() - 1 (oldest first), so a distance
+ * function can go through a whole column with a simple loop over contiguous
+ * memory (see NormalizableDistance.distances()).<br/>
+ * The window is a ring buffer: adding an instance and removing the oldest
+ * one take constant (amortized) time. Instead of wrapping around, the
+ * occupied part is moved back to the start of the columns when it reaches
+ * their end, which keeps every column contiguous; as the capacity is at
+ * least twice the number of instances, this happens at most once every
+ * numInstances() additions.<br/>
+ * The ranges of the attributes are maintained for normalizing the distance,
+ * in the format of NormalizableDistance.
+ * <p/>
+ *
+ * Missing values are stored as NaN, missing class labels as -1. Class
+ * labels are only kept for nominal class attributes.
+ *
+ * @version $Revision: 1 $
+ */
+public class FlatWindowStore
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The initial number of instances per column. */
+  protected static final int INITIAL_CAPACITY = 16;
+
+  /** The number of attributes, including the class. */
+  protected int m_NumAttributes;
+
+  /** The index of the class attribute, -1 if none. */
+  protected int m_ClassIndex;
+
+  /** Whether the class labels are stored. */
+  protected boolean m_NominalClass;
+
+  /** The values, column after column. */
+  protected double[] m_Values;
+
+  /** The class labels. */
+  protected int[] m_Labels;
+
+  /** The weights. */
+  protected double[] m_Weights;
+
+  /** The number of slots per column, a power of two. */
+  protected int m_Capacity;
+
+  /** The slot of the oldest instance. */
+  protected int m_Start;
+
+  /** The number of instances. */
+  protected int m_Size;
+
+  /** The number of missing values per attribute. */
+  protected int[] m_NumMissing;
+
+  /** The ranges of the attributes, in the format of NormalizableDistance. */
+  protected double[][] m_Ranges;
+
+  /** Whether the ranges have to be recomputed from the columns. */
+  protected boolean m_RangesInvalid;
+
+  /**
+   * Creates an empty store for instances of the given dataset.
+   *
+   * @param header	the dataset describing the instances
+   */
+  public FlatWindowStore(Instances header) {
+    m_NumAttributes = header.numAttributes();
+    m_ClassIndex = header.classIndex();
+    m_NominalClass = (m_ClassIndex >= 0)
+      && header.attribute(m_ClassIndex).isNominal();
+    m_Capacity = INITIAL_CAPACITY;
+    m_Values = new double[m_NumAttributes * m_Capacity];
+    m_Labels = new int[m_Capacity];
+    m_Weights = new double[m_Capacity];
+    m_NumMissing = new int[m_NumAttributes];
+    m_Ranges = new double[m_NumAttributes][3];
+    m_RangesInvalid = true;
+  }
+
+  /**
+   * Returns the number of instances in the store.
+   *
+   * @return		the number of instances
+   */
+  public int numInstances() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the number of attributes, including the class.
+   *
+   * @return		the number of attributes
+   */
+  public int numAttributes() {
+    return m_NumAttributes;
+  }
+
+  /**
+   * Returns the array holding the columns. It is replaced when the store
+   * grows, so it must not be kept across additions.
+   *
+   * @return		the values of all the attributes
+   */
+  public double[] values() {
+    return m_Values;
+  }
+
+  /**
+   * Returns the position of the value of the oldest instance for the given
+   * attribute in values().
+   *
+   * @param attIndex	the index of the attribute
+   * @return		the offset of the column
+   */
+  public int offset(int attIndex) {
+    return attIndex * m_Capacity + m_Start;
+  }
+
+  /**
+   * Returns the number of missing values of an attribute in the store.
+   *
+   * @param attIndex	the index of the attribute
+   * @return		the number of missing values
+   */
+  public int numMissing(int attIndex) {
+    return m_NumMissing[attIndex];
+  }
+
+  /**
+   * Returns a value of an instance.
+   *
+   * @param index	the index of the instance, 0 being the oldest
+   * @param attIndex	the index of the attribute
+   * @return		the value, NaN if missing
+   */
+  public double value(int index, int attIndex) {
+    return m_Values[offset(attIndex) + index];
+  }
+
+  /**
+   * Returns the class label of an instance.
+   *
+   * @param index	the index of the instance, 0 being the oldest
+   * @return		the index of the class value, -1 if missing or if the
+   * 			class is not nominal
+   */
+  public int classLabel(int index) {
+    return m_Labels[m_Start + index];
+  }
+
+  /**
+   * Returns the weight of an instance.
+   *
+   * @param index	the index of the instance, 0 being the oldest
+   * @return		the weight
+   */
+  public double weight(int index) {
+    return m_Weights[m_Start + index];
+  }
+
+  /**
+   * Returns the estimated number of bytes used per instance at the current
+   * capacity, not counting the fixed overhead of the store.
+   *
+   * @return		the number of bytes per instance
+   */
+  public double bytesPerInstance() {
+    long bytes = (long) m_Capacity * (8L * m_NumAttributes + 4 + 8);
+    return (double) bytes / Math.max(1, m_Size);
+  }
+
+  /**
+   * Appends an instance as the newest one.
+   *
+   * @param inst	the instance to add
+   */
+  public void add(Instance inst) {
+    if (m_Start + m_Size == m_Capacity)
+      makeRoom();
+    int slot = m_Start + m_Size;
+    for (int j = 0; j < m_NumAttributes; j++) {
+      double value;
+      if (inst.isMissing(j)) {
+        value = Double.NaN;
+        m_NumMissing[j]++;
+      } else {
+        value = inst.value(j);
+        if (!m_RangesInvalid)
+          extendRange(j, value);
+      }
+      m_Values[j * m_Capacity + slot] = value;
+    }
+    m_Labels[slot] = (m_NominalClass && !inst.classIsMissing())
+      ? (int) inst.classValue() : -1;
+    m_Weights[slot] = inst.weight();
+    m_Size++;
+  }
+
+  /**
+   * Removes the oldest instance.
+   */
+  public void removeFirst() {
+    if (m_Size == 0)
+      throw new IllegalStateException("The store is empty.");
+    forget(m_Start);
+    m_Start++;
+    m_Size--;
+    if (m_Size == 0)
+      m_Start = 0;
+  }
+
+  /**
+   * Removes an instance, shifting the instances on the shorter side of it.
+   *
+   * @param index	the index of the instance, 0 being the oldest
+   */
+  public void remove(int index) {
+    if (index < 0 || index >= m_Size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_Size);
+    if (index == 0) {
+      removeFirst();
+      return;
+    }
+    int slot = m_Start + index;
+    forget(slot);
+    if (index < m_Size / 2) {
+      // move the older instances one slot up
+      for (int j = 0; j < m_NumAttributes; j++) {
+        int column = j * m_Capacity;
+        System.arraycopy(m_Values, column + m_Start, m_Values,
+            column + m_Start + 1, index);
+      }
+      System.arraycopy(m_Labels, m_Start, m_Labels, m_Start + 1, index);
+      System.arraycopy(m_Weights, m_Start, m_Weights, m_Start + 1, index);
+      m_Start++;
+    } else {
+      // move the newer instances one slot down
+      int length = m_Size - index - 1;
+      for (int j = 0; j < m_NumAttributes; j++) {
+        int column = j * m_Capacity;
+        System.arraycopy(m_Values, column + slot + 1, m_Values, column + slot,
+            length);
+      }
+      System.arraycopy(m_Labels, slot + 1, m_Labels, slot, length);
+      System.arraycopy(m_Weights, slot + 1, m_Weights, slot, length);
+    }
+    m_Size--;
+  }
+
+  /**
+   * Removes all the instances.
+   */
+  public void clear() {
+    m_Start = 0;
+    m_Size = 0;
+    Arrays.fill(m_NumMissing, 0);
+    m_RangesInvalid = true;
+  }
+
+  /**
+   * Returns the ranges of the attributes over the stored instances, in the
+   * format of NormalizableDistance (attributes without any value get
+   * infinite ranges). The returned array is updated by the store.
+   *
+   * @return		low, high and width values for all attributes
+   */
+  public double[][] getRanges() {
+    if (m_RangesInvalid) {
+      for (int j = 0; j < m_NumAttributes; j++)
+        computeRange(j);
+      m_RangesInvalid = false;
+    }
+    return m_Ranges;
+  }
+
+  /**
+   * Updates the bookkeeping for an instance leaving the store: the missing
+   * counts and, if the instance holds the lowest or highest value of an
+   * attribute, the ranges.
+   *
+   * @param slot	the slot of the instance
+   */
+  protected void forget(int slot) {
+    for (int j = 0; j < m_NumAttributes; j++) {
+      double value = m_Values[j * m_Capacity + slot];
+      if (Double.isNaN(value)) {
+        m_NumMissing[j]--;
+      } else if (value == m_Ranges[j][NormalizableDistance.R_MIN]
+          || value == m_Ranges[j][NormalizableDistance.R_MAX]) {
+        m_RangesInvalid = true;
+      }
+    }
+  }
+
+  /**
+   * Includes a value in the range of an attribute.
+   *
+   * @param attIndex	the index of the attribute
+   * @param value	the (non-missing) value
+   */
+  protected void extendRange(int attIndex, double value) {
+    double[] range = m_Ranges[attIndex];
+    if (value < range[NormalizableDistance.R_MIN]) {
+      range[NormalizableDistance.R_MIN] = value;
+      if (value > range[NormalizableDistance.R_MAX]) // first value
+        range[NormalizableDistance.R_MAX] = value;
+    } else if (value > range[NormalizableDistance.R_MAX]) {
+      range[NormalizableDistance.R_MAX] = value;
+    } else {
+      return;
+    }
+    range[NormalizableDistance.R_WIDTH] = range[NormalizableDistance.R_MAX]
+      - range[NormalizableDistance.R_MIN];
+  }
+
+  /**
+   * Computes the range of an attribute from its column.
+   *
+   * @param attIndex	the index of the attribute
+   */
+  protected void computeRange(int attIndex) {
+    double[] range = m_Ranges[attIndex];
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    int offset = offset(attIndex);
+    for (int i = 0; i < m_Size; i++) {
+      double value = m_Values[offset + i];
+      // comparisons with NaN are false
+      if (value < min)
+        min = value;
+      if (value > max)
+        max = value;
+    }
+    range[NormalizableDistance.R_MIN] = min;
+    range[NormalizableDistance.R_MAX] = max;
+    range[NormalizableDistance.R_WIDTH] = (min <= max) ? max - min
+      : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Makes room for a new instance at the end of the columns, moving the
+   * instances back to the start of the columns or doubling the capacity
+   * when the columns are at least half full.
+   */
+  protected void makeRoom() {
+    int capacity = (2 * m_Size >= m_Capacity) ? 2 * m_Capacity : m_Capacity;
+    double[] values = (capacity == m_Capacity) ? m_Values
+      : new double[m_NumAttributes * capacity];
+    for (int j = 0; j < m_NumAttributes; j++)
+      System.arraycopy(m_Values, j * m_Capacity + m_Start, values,
+          j * capacity, m_Size);
+    int[] labels = (capacity == m_Capacity) ? m_Labels : new int[capacity];
+    System.arraycopy(m_Labels, m_Start, labels, 0, m_Size);
+    double[] weights = (capacity == m_Capacity) ? m_Weights
+      : new double[capacity];
+    System.arraycopy(m_Weights, m_Start, weights, 0, m_Size);
+    m_Values = values;
+    m_Labels = labels;
+    m_Weights = weights;
+    m_Capacity = capacity;
+    m_Start = 0;
+  }
+}
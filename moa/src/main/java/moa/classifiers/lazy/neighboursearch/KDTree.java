@@ -509,6 +509,98 @@ public class KDTree
     }
   }
 
+  /**
+   * Removes one instance from the KDTree. The instance is taken out of the
+   * master index array and the start and end indices of the nodes are
+   * corrected, the tree is not restructured. The ranges of the nodes are
+   * left as they are, as they still enclose the remaining instances.
+   * Locating the instance and updating the index array take O(n) time, so
+   * for sliding windows the BoundingBoxTree, which removes in logarithmic
+   * time, should be preferred.
+   * NOTE: This has to be called before the instance is deleted from the
+   * set of instances.
+   *
+   * @param instance 	the instance to be removed. Usually the oldest
+   * 			instance of the training set.
+   * @throws Exception If the instance cannot be removed.
+   */
+  public void remove(Instance instance) throws Exception {
+    if (m_Instances == null)
+      throw new Exception("No instances supplied yet. Have to call "
+          + "setInstances(instances) with a set of Instances " + "first.");
+
+    int index = -1;
+    for (int i = 0; i < m_Instances.numInstances(); i++) {
+      if (m_Instances.instance(i) == instance) {
+        index = i;
+        break;
+      }
+    }
+    if (index < 0)
+      throw new Exception("The instance to remove is not part of the tree.");
+
+    int pos = 0;
+    while (m_InstList[pos] != index)
+      pos++;
+    removeInstanceFromTree(pos, m_Root);
+
+    int instList[] = new int[m_InstList.length - 1];
+    for (int i = 0, j = 0; i < m_InstList.length; i++) {
+      if (i == pos)
+        continue;
+      // the instances behind the removed one move up in the dataset
+      instList[j++] = (m_InstList[i] > index) ? m_InstList[i] - 1
+          : m_InstList[i];
+    }
+    m_InstList = instList;
+    m_Splitter.setInstanceList(m_InstList);
+
+    // the ranges are recomputed once the instance is gone from the dataset,
+    // if it lies on their border
+    m_EuclideanDistance.forget(instance);
+  }
+
+  /**
+   * Recursively removes the instance at the given position of the master
+   * index array from the tree starting from the supplied KDTreeNode.
+   * NOTE: This should not be called by outside classes,
+   * outside classes should instead call remove(Instance)
+   * method.
+   *
+   * @param pos The position of the instance in the master
+   * index array.
+   * @param node The node to start the recursive search from.
+   */
+  protected void removeInstanceFromTree(int pos, KDTreeNode node) {
+    if (!node.isALeaf()) {
+      if (pos <= node.m_Left.m_End) {
+        removeInstanceFromTree(pos, node.m_Left);
+        afterRemoveInstance(node.m_Right);
+      } else
+        removeInstanceFromTree(pos, node.m_Right);
+    }
+    node.m_End--;
+  }
+
+  /**
+   * Corrects the start and end indices of a
+   * KDTreeNode after an instance is removed from
+   * the tree, the counterpart of afterAddInstance(KDTreeNode).
+   * NOTE: No outside class should call this
+   * method.
+   *
+   * @param node KDTreeNode whose start and end indices
+   * need to be updated.
+   */
+  protected void afterRemoveInstance(KDTreeNode node) {
+    node.m_Start--;
+    node.m_End--;
+    if (!node.isALeaf()) {
+      afterRemoveInstance(node.m_Left);
+      afterRemoveInstance(node.m_Right);
+    }
+  }
+
   /**
    * Adds one instance to KDTree loosly. It only changes the ranges in
    * EuclideanDistance, and does not affect the structure of the KDTree.
@@ -263,6 +263,25 @@ public class LinearNNSearch
     m_DistanceFunction.update(ins);
   }
   
+  /** 
+   * Updates the LinearNNSearch for an instance leaving the neighbourhood. 
+   * The ranges of the DistanceFunction class are only recomputed, when they 
+   * are needed next, if the instance lies on their border. The caller 
+   * deletes the instance from the set of instances afterwards.
+   * 
+   * @param ins 	The instance to remove.
+   * @throws Exception	if the given instances are null
+   */
+  public void remove(Instance ins) throws Exception {
+    if(m_Instances==null)
+      throw new Exception("No instances supplied yet. Cannot remove without"+
+                          "supplying a set of instances first.");
+    if(m_DistanceFunction instanceof NormalizableDistance)
+      ((NormalizableDistance) m_DistanceFunction).forget(ins);
+    else
+      m_DistanceFunction.setInstances(m_Instances);
+  }
+  
   /** 
    * Adds the given instance info. This implementation updates the range
    * datastructures of the DistanceFunction class.
@@ -614,6 +614,18 @@ public abstract class NearestNeighbourSearch
    */
   public abstract void update(Instance ins) throws Exception;
 
+  /**
+   * Updates the NearestNeighbourSearch algorithm for an instance that leaves the
+   * neighbourhood, e.g. the oldest instance of a sliding window. This is the
+   * counterpart of update(Instance).
+   * P.S.: The method has to be called before the instance is deleted from 
+   * the m_Instances object by the caller.
+   * 
+   * @param ins		the instance to remove
+   * @throws Exception	if removing fails
+   */
+  public abstract void remove(Instance ins) throws Exception;
+
   /** 
    * Adds information from the given instance without modifying the 
    * datastructure a lot.
@@ -21,6 +21,8 @@
 
 package moa.classifiers.lazy.neighboursearch;
 
+import java.util.Arrays;
+
 import com.yahoo.labs.samoa.instances.Attribute;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
@@ -357,7 +359,38 @@ public abstract class NormalizableDistance
 
     return distance;
   }
-  
+
+  /**
+   * Calculates the distances between an instance and all the instances of a
+   * store at once, going through the store column by column. The distances
+   * are the ones of distance(Instance, Instance, double) without cut off,
+   * i.e. they may require post processing by postProcessDistances(double[]).
+   * The ranges have to be set (e.g. from the store) beforehand.
+   *
+   * @param first 	the instance to compute the distances to
+   * @param store 	the instances to compute the distances of
+   * @param distances 	receives the distance of the ith instance of the
+   * 			store at position i
+   */
+  public void distances(Instance first, FlatWindowStore store, double[] distances) {
+    int numInstances = store.numInstances();
+    int classIndex = m_Data.classIndex();
+    double[] values = store.values();
+
+    validate();
+
+    Arrays.fill(distances, 0, numInstances, 0.0);
+    for (int j = 0; j < store.numAttributes(); j++) {
+      if (j == classIndex || !m_ActiveIndices[j])
+        continue;
+      double value = first.value(j);
+      int offset = store.offset(j);
+      for (int i = 0; i < numInstances; i++)
+        distances[i] = updateDistance(distances[i],
+            difference(j, value, values[offset + i]));
+    }
+  }
+
   /**
    * Updates the current distance calculated so far with the new difference
    * between two attributes. The difference between the attributes was 
@@ -655,6 +688,45 @@ public abstract class NormalizableDistance
     m_Ranges = updateRanges(instance, m_Ranges);
   }
   
+  /**
+   * Takes into account that an instance leaves the dataset. The ranges
+   * cannot shrink incrementally, so they are recomputed from the dataset
+   * when they are needed next, but only if the instance lies on the border
+   * of one of them. The instance has to be deleted from the dataset before
+   * the next distance is computed.
+   * 
+   * @param instance 	the instance that is removed
+   */
+  public void forget(Instance instance) {
+    if (!m_Validated || m_Ranges == null)
+      return;
+
+    for (int j = 0; j < m_Ranges.length; j++) {
+      if (instance.isMissing(j))
+        continue;
+      double value = instance.value(j);
+      if (value <= m_Ranges[j][R_MIN] || value >= m_Ranges[j][R_MAX]) {
+        invalidate();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Sets the ranges directly, e.g. if they are maintained incrementally
+   * by a nearest neighbour search. The instances must be set already.
+   *
+   * @param ranges 	low, high and width values for all attributes
+   */
+  public void setRanges(double[][] ranges) {
+    if (!m_Validated) {
+      initializeAttributeIndices();
+      m_Validated = true;
+    }
+
+    m_Ranges = ranges;
+  }
+
   /**
    * Test if an instance is within the given ranges.
    * 
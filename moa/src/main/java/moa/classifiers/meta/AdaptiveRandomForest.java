@@ -19,6 +19,7 @@
 package moa.classifiers.meta;
 
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
@@ -26,27 +27,25 @@ import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
-import moa.core.DoubleVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.Callable;
 
 import moa.classifiers.trees.ARFHoeffdingTree;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import moa.AbstractMOAObject;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.ensemble.EnsembleExecutor;
+import moa.classifiers.core.ensemble.EnsembleVoteCombiner;
 
 
 /**
@@ -85,7 +84,7 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * @version $Revision: 1 $
  */
 public class AdaptiveRandomForest extends AbstractClassifier implements MultiClassClassifier,
-                                                                        CapabilitiesHandler {
+                                                                        CapabilitiesHandler, ByteSizeEstimable {
 
     @Override
     public String getPurposeString() {
@@ -143,7 +142,18 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
 
-    private ExecutorService executor;
+    // Persistent worker threads, one training queue per thread (see EnsembleExecutor).
+    protected transient EnsembleExecutor executor;
+    protected transient EnsembleExecutor.MemberTask voter;
+    protected transient EnsembleExecutor.MemberTask batchVoter;
+
+    // The batch of instances voted on by the batch voter.
+    protected transient Instance[] batchInstances;
+    protected transient int batchFrom;
+    protected transient int batchTo;
+
+    // Reusable vote buffers and cached accuracy weights of the trees.
+    protected EnsembleVoteCombiner combiner;
     
     @Override
     public void resetLearningImpl() {
@@ -154,15 +164,34 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         this.evaluator = new BasicClassificationPerformanceEvaluator();
         
         // Multi-threading
-        int numberOfJobs;
-        if(this.numberOfJobsOption.getValue() == -1) 
-            numberOfJobs = Runtime.getRuntime().availableProcessors();
-        else 
-            numberOfJobs = this.numberOfJobsOption.getValue();
         // SINGLE_THREAD and requesting for only 1 thread are equivalent. 
         // this.executor will be null and not used...
-        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
-            this.executor = Executors.newFixedThreadPool(numberOfJobs);
+        if(this.executor != null)
+            this.executor.shutdown();
+        this.executor = null;
+        createExecutor();
+    }
+
+    /**
+     * Creates the executor that trains the trees, unless training is
+     * sequential. Also called after deserialization, as the executor is transient.
+     */
+    protected void createExecutor() {
+        int numberOfThreads = EnsembleExecutor.numberOfThreads(this.numberOfJobsOption.getValue());
+        if(numberOfThreads > 1) {
+            this.executor = new EnsembleExecutor(numberOfThreads, this::trainMember);
+            this.voter = this::voteMember;
+            this.batchVoter = this::voteMemberOnBatch;
+        }
+    }
+
+    /**
+     * Waits for the trees to finish all the pending training, so that they 
+     * can be safely queried or copied.
+     */
+    protected void awaitEnsemble() {
+        if(this.executor != null)
+            this.executor.awaitCompletion();
     }
 
     @Override
@@ -170,54 +199,98 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         ++this.instancesSeen;
         if(this.ensemble == null) 
             initEnsemble(instance);
+        if(this.executor == null && this.numberOfJobsOption.getValue() != SINGLE_THREAD)
+            createExecutor();
         
-        Collection<TrainingRunnable> trainers = new ArrayList<TrainingRunnable>();
-        for (int i = 0 ; i < this.ensemble.length ; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
-            InstanceExample example = new InstanceExample(instance);
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
-            int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-            if (k > 0) {
-                if(this.executor != null) {
-                    TrainingRunnable trainer = new TrainingRunnable(this.ensemble[i], 
-                        instance, k, this.instancesSeen);
-                    trainers.add(trainer);
-                }
-                else { // SINGLE_THREAD is in-place... 
-                    this.ensemble[i].trainOnInstance(instance, k, this.instancesSeen);
-                }
+        if(this.executor != null) {
+            // The trees keep learning from the instance after this method returns.
+            Instance trainInstance = instance.copy();
+            for (int i = 0 ; i < this.ensemble.length ; i++) {
+                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+                this.executor.submit(i, trainInstance, k, this.instancesSeen);
             }
         }
-        if(this.executor != null) {
-            try {
-                this.executor.invokeAll(trainers);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException("Could not call invokeAll() on training threads.");
+        else { // SINGLE_THREAD is in-place... 
+            for (int i = 0 ; i < this.ensemble.length ; i++) {
+                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+                trainMember(i, instance, k, this.instancesSeen);
             }
         }
     }
 
+    /**
+     * Updates the performance estimate of a tree with the given instance, then
+     * trains the tree on it if its weight is positive. Runs on the executor 
+     * threads when multithreading is enabled.
+     */
+    protected void trainMember(int index, Instance instance, double weight, long instancesSeen) {
+        ARFBaseLearner learner = this.ensemble[index];
+        learner.evaluator.addResult(new InstanceExample(instance), learner.getVotesForInstance(instance));
+        if (weight > 0)
+            learner.trainOnInstance(instance, weight, instancesSeen);
+        // The evaluator may also have been reset or replaced by the training
+        this.combiner.setWeight(index, this.ensemble[index].getAccuracy());
+    }
+
+    /**
+     * Stores the vote of a tree in the combiner. Runs on the executor threads
+     * when multithreading is enabled.
+     */
+    protected void voteMember(int index, Instance instance, double weight, long instancesSeen) {
+        this.combiner.setVote(index, this.ensemble[index].getVotesForInstance(instance), 
+            ! this.disableWeightedVote.isSet());
+    }
+
     @Override
     public double[] getVotesForInstance(Instance instance) {
-        Instance testInstance = instance.copy();
         if(this.ensemble == null) 
-            initEnsemble(testInstance);
-        DoubleVector combinedVote = new DoubleVector();
-
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(! this.disableWeightedVote.isSet() && acc > 0.0) {                        
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
-                }
-                combinedVote.addValues(vote);
-            }
+            initEnsemble(instance);
+
+        if(this.executor != null) {
+            // Each vote is computed behind the pending training of its tree
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                this.executor.submit(this.voter, i, instance, 1.0, this.instancesSeen);
+            this.executor.awaitCompletion();
         }
-        return combinedVote.getArrayRef();
+        else {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                voteMember(i, instance, 1.0, this.instancesSeen);
+        }
+        return this.combiner.combine();
+    }
+
+    /**
+     * Stores the votes of a tree on the current batch in the combiner. Runs
+     * on the executor threads when multithreading is enabled.
+     */
+    protected void voteMemberOnBatch(int index, Instance instance, double weight, long instancesSeen) {
+        this.ensemble[index].getVotesForInstances(this.batchInstances,
+            this.batchFrom, this.batchTo, this.combiner.getBatchVotes(index));
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to, double[][] votes) {
+        if(from >= to)
+            return;
+        if(this.ensemble == null) 
+            initEnsemble(insts[from]);
+
+        // Every tree votes on the whole batch before the votes are combined
+        this.combiner.prepareBatch(to);
+        this.batchInstances = insts;
+        this.batchFrom = from;
+        this.batchTo = to;
+        if(this.executor != null) {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                this.executor.submit(this.batchVoter, i, null, 1.0, this.instancesSeen);
+            this.executor.awaitCompletion();
+        }
+        else {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                voteMemberOnBatch(i, null, 1.0, this.instancesSeen);
+        }
+        this.batchInstances = null;
+        this.combiner.combineBatch(from, to, ! this.disableWeightedVote.isSet(), votes);
     }
 
     @Override
@@ -234,10 +307,74 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         return null;
     }
 
+    @Override
+    public long measureByteSize() {
+        awaitEnsemble();
+        return super.measureByteSize();
+    }
+
+    @Override
+    public long estimateByteSize() {
+        awaitEnsemble();
+        long size = SizeOf.estimateObjectSize(24, 16);
+        size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(this.evaluator));
+        if (this.ensemble != null) {
+            size = SizeOf.addEstimates(size,
+                    SizeOf.estimateArraySize(this.ensemble.length, SizeOf.REFERENCE));
+            for (ARFBaseLearner member : this.ensemble) {
+                size = SizeOf.addEstimates(size, member.estimateByteSize());
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Classifier copy() {
+        awaitEnsemble();
+        if (!canCopyFieldByField(AdaptiveRandomForest.class)) {
+            return super.copy();
+        }
+        AdaptiveRandomForest copy = (AdaptiveRandomForest) cloneWithOptions();
+        // the copy starts its own threads when it is trained
+        copy.executor = null;
+        copy.voter = null;
+        copy.batchVoter = null;
+        if (this.evaluator != null) {
+            copy.evaluator = (BasicClassificationPerformanceEvaluator) this.evaluator.copy();
+        }
+        if (this.ensemble != null) {
+            copy.ensemble = new ARFBaseLearner[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                copy.ensemble[i] = copy.new ARFBaseLearner(this.ensemble[i]);
+            }
+        }
+        if (this.combiner != null) {
+            copy.combiner = this.combiner.copy();
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.treeLearnerOption = copyOption(this.treeLearnerOption);
+        this.ensembleSizeOption = copyOption(this.ensembleSizeOption);
+        this.mFeaturesModeOption = copyOption(this.mFeaturesModeOption);
+        this.mFeaturesPerTreeSizeOption = copyOption(this.mFeaturesPerTreeSizeOption);
+        this.lambdaOption = copyOption(this.lambdaOption);
+        this.numberOfJobsOption = copyOption(this.numberOfJobsOption);
+        this.driftDetectionMethodOption = copyOption(this.driftDetectionMethodOption);
+        this.warningDetectionMethodOption = copyOption(this.warningDetectionMethodOption);
+        this.disableWeightedVote = copyOption(this.disableWeightedVote);
+        this.disableDriftDetectionOption = copyOption(this.disableDriftDetectionOption);
+        this.disableBackgroundLearnerOption = copyOption(this.disableBackgroundLearnerOption);
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
         this.ensemble = new ARFBaseLearner[ensembleSize];
+        this.combiner = new EnsembleVoteCombiner(ensembleSize);
         
         // TODO: this should be an option with default = BasicClassificationPerformanceEvaluator
 //        BasicClassificationPerformanceEvaluator classificationEvaluator = (BasicClassificationPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
@@ -309,6 +446,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     @Override
     public Classifier[] getSublearners() {
         /* Extracts the reference to the ARFHoeffdingTree object from within the ensemble of ARFBaseLearner's */
+        awaitEnsemble();
         Classifier[] forest = new Classifier[this.ensemble.length];
         for(int i = 0 ; i < forest.length ; ++i)
             forest[i] = this.ensemble[i].classifier;
@@ -346,6 +484,9 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         protected int numberOfDriftsDetected;
         protected int numberOfWarningsDetected;
 
+        // The view of the training instance given to the classifier
+        protected transient ProjectedInstance weightedInstance;
+
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
             long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
@@ -379,7 +520,45 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
             init(indexOriginal, instantiatedClassifier, evaluatorInstantiated, instancesSeen, useBkgLearner, useDriftDetector, driftOption, warningOption, isBackgroundLearner);
         }
 
+        /**
+         * Copies a learner of another forest for this forest, which is a
+         * copy of the other forest.
+         */
+        private ARFBaseLearner(ARFBaseLearner toCopy) {
+            this.indexOriginal = toCopy.indexOriginal;
+            this.createdOn = toCopy.createdOn;
+            this.lastDriftOn = toCopy.lastDriftOn;
+            this.lastWarningOn = toCopy.lastWarningOn;
+            this.classifier = (ARFHoeffdingTree) toCopy.classifier.copy();
+            this.isBackgroundLearner = toCopy.isBackgroundLearner;
+            // the options are those of the forest
+            if (toCopy.driftOption != null) {
+                this.driftOption = driftDetectionMethodOption;
+            }
+            if (toCopy.warningOption != null) {
+                this.warningOption = warningDetectionMethodOption;
+            }
+            if (toCopy.driftDetectionMethod != null) {
+                this.driftDetectionMethod = toCopy.driftDetectionMethod.copy();
+            }
+            if (toCopy.warningDetectionMethod != null) {
+                this.warningDetectionMethod = toCopy.warningDetectionMethod.copy();
+            }
+            this.useBkgLearner = toCopy.useBkgLearner;
+            this.useDriftDetector = toCopy.useDriftDetector;
+            if (toCopy.bkgLearner != null) {
+                this.bkgLearner = new ARFBaseLearner(toCopy.bkgLearner);
+            }
+            this.evaluator = (BasicClassificationPerformanceEvaluator) toCopy.evaluator.copy();
+            this.numberOfDriftsDetected = toCopy.numberOfDriftsDetected;
+            this.numberOfWarningsDetected = toCopy.numberOfWarningsDetected;
+        }
+
         public void reset() {
+            reset(AdaptiveRandomForest.this.instancesSeen);
+        }
+
+        public void reset(long instancesSeen) {
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
                 
@@ -399,9 +578,13 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         }
 
         public void trainOnInstance(Instance instance, double weight, long instancesSeen) {
-            Instance weightedInstance = instance.copy();
-            weightedInstance.setWeight(instance.weight() * weight);
-            this.classifier.trainOnInstance(weightedInstance);
+            // a single view is re-pointed to every training instance
+            if (this.weightedInstance == null) {
+                this.weightedInstance = new ProjectedInstance(instance, instance.weight() * weight);
+            } else {
+                this.weightedInstance.setSource(instance, instance.weight() * weight);
+            }
+            this.classifier.trainOnInstance(this.weightedInstance);
             
             if(this.bkgLearner != null)
                 this.bkgLearner.classifier.trainOnInstance(instance);
@@ -442,47 +625,43 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                 if(this.driftDetectionMethod.getChange()) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
-                    this.reset();
+                    this.reset(instancesSeen);
                 }
             }
         }
 
         public double[] getVotesForInstance(Instance instance) {
-            DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(instance));
-            return vote.getArrayRef();
+            return this.classifier.getVotesForInstance(instance);
         }
 
-        @Override
-        public void getDescription(StringBuilder sb, int indent) {
+        public void getVotesForInstances(Instance[] instances, int from, int to, double[][] votes) {
+            this.classifier.getVotesForInstances(instances, from, to, votes);
         }
-    }
-    
-    /***
-     * Inner class to assist with the multi-thread execution. 
-     */
-    protected class TrainingRunnable implements Runnable, Callable<Integer> {
-        final private ARFBaseLearner learner;
-        final private Instance instance;
-        final private double weight;
-        final private long instancesSeen;
-
-        public TrainingRunnable(ARFBaseLearner learner, Instance instance, 
-                double weight, long instancesSeen) {
-            this.learner = learner;
-            this.instance = instance;
-            this.weight = weight;
-            this.instancesSeen = instancesSeen;
+
+        /**
+         * Returns the accuracy (in percent) used to weight the votes of this 
+         * learner, as reported by its evaluator.
+         */
+        public double getAccuracy() {
+            if (this.evaluator.getTotalWeightObserved() == 0.0)
+                return 0.0;
+            return this.evaluator.getFractionCorrectlyClassified() * 100.0;
         }
 
-        @Override
-        public void run() {
-            learner.trainOnInstance(this.instance, this.weight, this.instancesSeen);
+        public long estimateByteSize() {
+            long size = SizeOf.estimateObjectSize(8, 43);
+            size = SizeOf.addEstimates(size, this.classifier.estimateByteSize());
+            size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(this.evaluator));
+            size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(this.driftDetectionMethod));
+            size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(this.warningDetectionMethod));
+            if (this.bkgLearner != null) {
+                size = SizeOf.addEstimates(size, this.bkgLearner.estimateByteSize());
+            }
+            return size;
         }
 
         @Override
-        public Integer call() {
-            run();
-            return 0;
+        public void getDescription(StringBuilder sb, int indent) {
         }
     }
 }
@@ -24,7 +24,9 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.AbstractMOAObject;
 import moa.classifiers.Regressor;
 import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.ensemble.EnsembleExecutor;
 import moa.classifiers.trees.ARFFIMTDD;
 import moa.core.DoubleVector;
 import moa.core.InstanceExample;
@@ -69,6 +71,9 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
     public FloatOption lambdaOption = new FloatOption("lambda", 'a',
             "The lambda parameter for bagging.", 6.0, 1.0, Float.MAX_VALUE);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     public ClassOption driftDetectionMethodOption = new ClassOption("driftDetectionMethod", 'x',
             "Change detector for drifts and its parameters", ChangeDetector.class, "ADWINChangeDetector -a 1.0E-3");
 
@@ -91,6 +96,9 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
     protected int subspaceSize;
     protected BasicRegressionPerformanceEvaluator evaluator;
 
+    // Persistent worker threads, null when training sequentially.
+    protected transient EnsembleExecutor executor;
+
     @Override
     public void resetLearningImpl() {
         // Reset attributes
@@ -98,6 +106,22 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         this.subspaceSize = 0;
         this.instancesSeen = 0;
         this.evaluator = new BasicRegressionPerformanceEvaluator();
+
+        if(this.executor != null)
+            this.executor.shutdown();
+        this.executor = null;
+        createExecutor();
+    }
+
+    protected void createExecutor() {
+        int numberOfThreads = EnsembleExecutor.numberOfThreads(this.numberOfJobsOption.getValue());
+        if(numberOfThreads > 1)
+            this.executor = new EnsembleExecutor(numberOfThreads, this::trainMember);
+    }
+
+    protected void awaitEnsemble() {
+        if(this.executor != null)
+            this.executor.awaitCompletion();
     }
 
     @Override
@@ -105,20 +129,37 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         ++this.instancesSeen;
         if(this.ensemble == null)
             initEnsemble(instance);
-
-        for (int i = 0 ; i < this.ensemble.length ; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
-            InstanceExample example = new InstanceExample(instance);
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
-            int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-            if (k > 0) {
-                this.ensemble[i].trainOnInstance(instance, k, this.instancesSeen);
+        if(this.executor == null)
+            createExecutor();
+
+        if(this.executor != null) {
+            // The trees keep learning from the instance after this method returns.
+            Instance trainInstance = instance.copy();
+            for (int i = 0 ; i < this.ensemble.length ; i++) {
+                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+                this.executor.submit(i, trainInstance, k, this.instancesSeen);
+            }
+        }
+        else {
+            for (int i = 0 ; i < this.ensemble.length ; i++) {
+                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+                trainMember(i, instance, k, this.instancesSeen);
             }
         }
     }
 
+    protected void trainMember(int index, Instance instance, double weight, long instancesSeen) {
+        DoubleVector vote = new DoubleVector(this.ensemble[index].getVotesForInstance(instance));
+        InstanceExample example = new InstanceExample(instance);
+        this.ensemble[index].evaluator.addResult(example, vote.getArrayRef());
+        if (weight > 0) {
+            this.ensemble[index].trainOnInstance(instance, weight, instancesSeen);
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance instance) {
+        awaitEnsemble();
         Instance testInstance = instance.copy();
         if(this.ensemble == null)
             initEnsemble(testInstance);
@@ -150,6 +191,18 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         return null;
     }
 
+    @Override
+    public long measureByteSize() {
+        awaitEnsemble();
+        return super.measureByteSize();
+    }
+
+    @Override
+    public Classifier copy() {
+        awaitEnsemble();
+        return super.copy();
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
@@ -283,6 +336,10 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         }
 
         public void reset() {
+            reset(AdaptiveRandomForestRegressor.this.instancesSeen);
+        }
+
+        public void reset(long instancesSeen) {
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.classifier = this.bkgLearner.classifier;
 
@@ -347,7 +404,7 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
                 if(this.driftDetectionMethod.getChange()) {
                     this.lastDriftOn = instancesSeen;
                     this.numberOfDriftsDetected++;
-                    this.reset();
+                    this.reset(instancesSeen);
                 }
             }
         }
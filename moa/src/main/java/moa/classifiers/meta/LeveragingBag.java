@@ -29,13 +29,16 @@ import moa.classifiers.MultiClassClassifier;
 import moa.options.ClassOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.ensemble.EnsembleExecutor;
+import moa.classifiers.core.ensemble.EnsembleVoteCombiner;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
 
-import moa.core.DoubleVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 
 /**
  * Leveraging Bagging for evolving data streams using ADWIN. Leveraging Bagging
@@ -49,7 +52,7 @@ import moa.core.MiscUtils;
  * @version $Revision: 7 $
  */
 public class LeveragingBag extends AbstractClassifier implements MultiClassClassifier,
-                                                                 CapabilitiesHandler {
+                                                                 CapabilitiesHandler, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -84,6 +87,10 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 "Leveraging Subagging using resampling without replacement."
             }, 0);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading). "
+            + "Ignored by LeveragingBagME and with output codes.", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
     protected ADWIN[] ADError;
@@ -94,9 +101,30 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
 
     protected boolean initMatrixCodes = false;
 
+    // Persistent worker threads, null when training sequentially.
+    protected transient EnsembleExecutor executor;
+    protected transient EnsembleExecutor.MemberTask voter;
+    protected transient EnsembleExecutor.MemberTask batchVoter;
+
+    // The batch of instances voted on by the batch voter.
+    protected transient Instance[] batchInstances;
+    protected transient int batchFrom;
+    protected transient int batchTo;
+
+    // Reusable vote buffers of the members.
+    protected EnsembleVoteCombiner combiner;
+
+    // Whether the ADWIN of each member detected an increase of its error.
+    protected boolean[] memberChanged;
+
     @Override
     public void resetLearningImpl() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            this.executor = null;
+        }
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
+        this.combiner = new EnsembleVoteCombiner(this.ensemble.length);
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
         for (int i = 0; i < this.ensemble.length; i++) {
@@ -150,43 +178,83 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         Instance weightedInst = (Instance) inst.copy();
         double w = this.weightShrinkOption.getValue();
 
-        //Train ensemble of classifiers
-        for (int i = 0; i < this.ensemble.length; i++) {
-            double k = 0.0;
-            switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
-                case 0: //LeveragingBag
-                    k = MiscUtils.poisson(w, this.classifierRandom);
-                    break;
-                case 1: //LeveragingBagME
-                    double error = this.ADError[i].getEstimation();
-                    k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
-                    break;
-                case 2: //LeveragingBagHalf
-                    w = 1.0;
-                    k = this.classifierRandom.nextBoolean() ? 0.0 : w;
-                    break;
-                case 3: //LeveragingBagWT
-                    w = 1.0;
-                    k = 1.0 + MiscUtils.poisson(w, this.classifierRandom);
-                    break;
-                case 4: //LeveragingSubag
-                    w = 1.0;
-                    k = MiscUtils.poisson(1, this.classifierRandom);
-                    k = (k > 0) ? w : 0;
-                    break;
+        // LeveragingBagME draws depend on the members and output codes share the relabelled instance
+        if (this.executor == null && !this.outputCodesOption.isSet()
+                && this.leveraginBagAlgorithmOption.getChosenIndex() != 1) {
+            int numberOfThreads = EnsembleExecutor.numberOfThreads(this.numberOfJobsOption.getValue());
+            if (numberOfThreads > 1) {
+                this.executor = new EnsembleExecutor(numberOfThreads, this::trainMember);
+                this.voter = this::voteMember;
+                this.batchVoter = this::voteMemberOnBatch;
+            }
+        }
+        if (this.executor != null) {
+            if (this.memberChanged == null || this.memberChanged.length != this.ensemble.length) {
+                this.memberChanged = new boolean[this.ensemble.length];
             }
-            if (k > 0) {
-                if (this.outputCodesOption.isSet()) {
-                    weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
+            for (int i = 0; i < this.ensemble.length; i++) {
+                double k = 0.0;
+                switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
+                    case 0: //LeveragingBag
+                        k = MiscUtils.poisson(w, this.classifierRandom);
+                        break;
+                    case 2: //LeveragingBagHalf
+                        k = this.classifierRandom.nextBoolean() ? 0.0 : 1.0;
+                        break;
+                    case 3: //LeveragingBagWT
+                        k = 1.0 + MiscUtils.poisson(1.0, this.classifierRandom);
+                        break;
+                    case 4: //LeveragingSubag
+                        k = MiscUtils.poisson(1, this.classifierRandom);
+                        k = (k > 0) ? 1.0 : 0;
+                        break;
                 }
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.executor.submit(i, weightedInst, k, 0);
+            }
+            // The reset below needs the error estimates of all the members
+            this.executor.awaitCompletion();
+            for (int i = 0; i < this.ensemble.length; i++) {
+                Change |= this.memberChanged[i];
             }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
+        } else {
+            //Train ensemble of classifiers
+            for (int i = 0; i < this.ensemble.length; i++) {
+                double k = 0.0;
+                switch (this.leveraginBagAlgorithmOption.getChosenIndex()) {
+                    case 0: //LeveragingBag
+                        k = MiscUtils.poisson(w, this.classifierRandom);
+                        break;
+                    case 1: //LeveragingBagME
+                        double error = this.ADError[i].getEstimation();
+                        k = !this.ensemble[i].correctlyClassifies(weightedInst) ? 1.0 : (this.classifierRandom.nextDouble() < (error / (1.0 - error)) ? 1.0 : 0.0);
+                        break;
+                    case 2: //LeveragingBagHalf
+                        w = 1.0;
+                        k = this.classifierRandom.nextBoolean() ? 0.0 : w;
+                        break;
+                    case 3: //LeveragingBagWT
+                        w = 1.0;
+                        k = 1.0 + MiscUtils.poisson(w, this.classifierRandom);
+                        break;
+                    case 4: //LeveragingSubag
+                        w = 1.0;
+                        k = MiscUtils.poisson(1, this.classifierRandom);
+                        k = (k > 0) ? w : 0;
+                        break;
+                }
+                if (k > 0) {
+                    if (this.outputCodesOption.isSet()) {
+                        weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
+                    }
+                    weightedInst.setWeight(inst.weight() * k);
+                    this.ensemble[i].trainOnInstance(weightedInst);
+                }
+                boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
+                double ErrEstim = this.ADError[i].getEstimation();
+                if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+                    if (this.ADError[i].getEstimation() > ErrEstim) {
+                        Change = true;
+                    }
                 }
             }
         }
@@ -208,20 +276,84 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
         }
     }
 
+    /**
+     * Trains a member on a copy of the instance with the given weight and
+     * feeds its ADWIN. Runs on the executor threads when multithreading is
+     * enabled.
+     */
+    protected void trainMember(int index, Instance inst, double k, long instancesSeen) {
+        if (k > 0) {
+            Instance weightedInst = (Instance) inst.copy();
+            weightedInst.setWeight(inst.weight() * k);
+            this.ensemble[index].trainOnInstance(weightedInst);
+        }
+        boolean correctlyClassifies = this.ensemble[index].correctlyClassifies(inst);
+        double ErrEstim = this.ADError[index].getEstimation();
+        this.memberChanged[index] = this.ADError[index].setInput(correctlyClassifies ? 0 : 1)
+                && this.ADError[index].getEstimation() > ErrEstim;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.outputCodesOption.isSet()) {
             return getVotesForInstanceBinary(inst);
         }
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                combinedVote.addValues(vote);
+        if (this.executor != null) {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.executor.submit(this.voter, i, inst, 1.0, 0);
+            }
+            this.executor.awaitCompletion();
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                voteMember(i, inst, 1.0, 0);
             }
         }
-        return combinedVote.getArrayRef();
+        return this.combiner.combine();
+    }
+
+    /**
+     * Stores the vote of a member in the combiner. Runs on the executor
+     * threads when multithreading is enabled.
+     */
+    protected void voteMember(int index, Instance inst, double weight, long instancesSeen) {
+        this.combiner.setVote(index, this.ensemble[index].getVotesForInstance(inst), false);
+    }
+
+    /**
+     * Stores the votes of a member on the current batch in the combiner.
+     * Runs on the executor threads when multithreading is enabled.
+     */
+    protected void voteMemberOnBatch(int index, Instance inst, double weight, long instancesSeen) {
+        this.ensemble[index].getVotesForInstances(this.batchInstances,
+                this.batchFrom, this.batchTo, this.combiner.getBatchVotes(index));
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        if (this.outputCodesOption.isSet()) {
+            for (int i = from; i < to; i++) {
+                votes[i] = getVotesForInstanceBinary(insts[i]);
+            }
+            return;
+        }
+        // Every member votes on the whole batch before the votes are combined
+        this.combiner.prepareBatch(to);
+        this.batchInstances = insts;
+        this.batchFrom = from;
+        this.batchTo = to;
+        if (this.executor != null) {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.executor.submit(this.batchVoter, i, null, 1.0, 0);
+            }
+            this.executor.awaitCompletion();
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                voteMemberOnBatch(i, null, 1.0, 0);
+            }
+        }
+        this.batchInstances = null;
+        this.combiner.combineBatch(from, to, false, votes);
     }
 
     public double[] getVotesForInstanceBinary(Instance inst) {
@@ -268,6 +400,28 @@ public class LeveragingBag extends AbstractClassifier implements MultiClassClass
                 };
     }
 
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateObjectSize(12, 8);
+        if (this.ensemble != null) {
+            size += 2 * SizeOf.estimateArraySize(this.ensemble.length, SizeOf.REFERENCE)
+                    + SizeOf.estimateArraySize(this.ensemble.length, 1);
+            for (Classifier member : this.ensemble) {
+                size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(member));
+            }
+            for (ADWIN adwin : this.ADError) {
+                size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(adwin));
+            }
+        }
+        if ((size >= 0) && (this.matrixCodes != null)) {
+            size += SizeOf.estimateArraySize(this.matrixCodes.length, SizeOf.REFERENCE);
+            for (int[] codes : this.matrixCodes) {
+                size += SizeOf.estimateArraySize(codes.length, 4);
+            }
+        }
+        return size;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
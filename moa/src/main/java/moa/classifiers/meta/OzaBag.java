@@ -27,9 +27,12 @@ import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.classifiers.MultiClassClassifier;
-import moa.core.DoubleVector;
+import moa.classifiers.core.ensemble.EnsembleExecutor;
+import moa.classifiers.core.ensemble.EnsembleVoteCombiner;
+import moa.core.ByteSizeEstimable;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 import com.github.javacliparser.IntOption;
 
@@ -48,13 +51,14 @@ import com.github.javacliparser.IntOption;
  *
  * <p>Parameters:</p> <ul>
  * <li>-l : Classiﬁer to train</li>
- * <li>-s : The number of models in the bag</li> </ul>
+ * <li>-s : The number of models in the bag</li>
+ * <li>-j : Number of threads to be used for training</li> </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
 public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
-                                                          CapabilitiesHandler {
+                                                          CapabilitiesHandler, ByteSizeEstimable {
 
     @Override
     public String getPurposeString() {
@@ -69,11 +73,32 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
     public IntOption ensembleSizeOption = new IntOption("ensembleSize", 's',
             "The number of models in the bag.", 10, 1, Integer.MAX_VALUE);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     protected Classifier[] ensemble;
 
+    // Persistent worker threads, null when training sequentially.
+    protected transient EnsembleExecutor executor;
+    protected transient EnsembleExecutor.MemberTask voter;
+    protected transient EnsembleExecutor.MemberTask batchVoter;
+
+    // The batch of instances voted on by the batch voter.
+    protected transient Instance[] batchInstances;
+    protected transient int batchFrom;
+    protected transient int batchTo;
+
+    // Reusable vote buffers of the members.
+    protected EnsembleVoteCombiner combiner;
+
     @Override
     public void resetLearningImpl() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+            this.executor = null;
+        }
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
+        this.combiner = new EnsembleVoteCombiner(this.ensemble.length);
         Classifier baseLearner = (Classifier) getPreparedClassOption(this.baseLearnerOption);
         baseLearner.resetLearning();
         for (int i = 0; i < this.ensemble.length; i++) {
@@ -83,27 +108,100 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
+        if (this.executor == null) {
+            int numberOfThreads = EnsembleExecutor.numberOfThreads(this.numberOfJobsOption.getValue());
+            if (numberOfThreads > 1) {
+                this.executor = new EnsembleExecutor(numberOfThreads, this::trainMember);
+                this.voter = this::voteMember;
+                this.batchVoter = this::voteMemberOnBatch;
+            }
+        }
+        // The members may keep learning from the instance after this method returns.
+        Instance trainInst = this.executor != null ? inst.copy() : inst;
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(1.0, this.classifierRandom);
             if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                if (this.executor != null) {
+                    this.executor.submit(i, trainInst, k, 0);
+                } else {
+                    trainMember(i, inst, k, 0);
+                }
             }
         }
     }
 
+    /**
+     * Trains a member of the bag on a copy of the instance with the given
+     * weight. Runs on the executor threads when multithreading is enabled.
+     */
+    protected void trainMember(int index, Instance inst, double weight, long instancesSeen) {
+        Instance weightedInst = (Instance) inst.copy();
+        weightedInst.setWeight(inst.weight() * weight);
+        this.ensemble[index].trainOnInstance(weightedInst);
+    }
+
+    /**
+     * Waits for the pending training of the members, if any.
+     */
+    protected void awaitEnsemble() {
+        if (this.executor != null) {
+            this.executor.awaitCompletion();
+        }
+    }
+
+    /**
+     * Stores the vote of a member in the combiner. Runs on the executor
+     * threads when multithreading is enabled.
+     */
+    protected void voteMember(int index, Instance inst, double weight, long instancesSeen) {
+        this.combiner.setVote(index, this.ensemble[index].getVotesForInstance(inst), false);
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
-        DoubleVector combinedVote = new DoubleVector();
-        for (int i = 0; i < this.ensemble.length; i++) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                combinedVote.addValues(vote);
+        if (this.executor != null) {
+            // Each vote is computed behind the pending training of its member
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.executor.submit(this.voter, i, inst, 1.0, 0);
+            }
+            this.executor.awaitCompletion();
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                voteMember(i, inst, 1.0, 0);
+            }
+        }
+        return this.combiner.combine();
+    }
+
+    /**
+     * Stores the votes of a member on the current batch in the combiner.
+     * Runs on the executor threads when multithreading is enabled.
+     */
+    protected void voteMemberOnBatch(int index, Instance inst, double weight, long instancesSeen) {
+        this.ensemble[index].getVotesForInstances(this.batchInstances,
+                this.batchFrom, this.batchTo, this.combiner.getBatchVotes(index));
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        // Every member votes on the whole batch before the votes are combined
+        this.combiner.prepareBatch(to);
+        this.batchInstances = insts;
+        this.batchFrom = from;
+        this.batchTo = to;
+        if (this.executor != null) {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                this.executor.submit(this.batchVoter, i, null, 1.0, 0);
+            }
+            this.executor.awaitCompletion();
+        } else {
+            for (int i = 0; i < this.ensemble.length; i++) {
+                voteMemberOnBatch(i, null, 1.0, 0);
             }
         }
-        return combinedVote.getArrayRef();
+        this.batchInstances = null;
+        this.combiner.combineBatch(from, to, false, votes);
     }
 
     @Override
@@ -124,9 +222,66 @@ public class OzaBag extends AbstractClassifier implements MultiClassClassifier,
 
     @Override
     public Classifier[] getSubClassifiers() {
+        awaitEnsemble();
         return this.ensemble.clone();
     }
 
+    @Override
+    public long measureByteSize() {
+        awaitEnsemble();
+        return super.measureByteSize();
+    }
+
+    /**
+     * Estimates the size of the bag from the estimates of its members.
+     *
+     * @return the estimated size in bytes, or -1 if a member cannot
+     * estimate its size
+     */
+    @Override
+    public long estimateByteSize() {
+        awaitEnsemble();
+        long size = SizeOf.estimateObjectSize(8, 0);
+        if (this.ensemble != null) {
+            size += SizeOf.estimateArraySize(this.ensemble.length, SizeOf.REFERENCE);
+            for (Classifier member : this.ensemble) {
+                size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(member));
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Classifier copy() {
+        awaitEnsemble();
+        if (!canCopyFieldByField(OzaBag.class)) {
+            return super.copy();
+        }
+        OzaBag copy = (OzaBag) cloneWithOptions();
+        // the copy starts its own threads when it is trained
+        copy.executor = null;
+        copy.voter = null;
+        copy.batchVoter = null;
+        if (this.ensemble != null) {
+            copy.ensemble = new Classifier[this.ensemble.length];
+            for (int i = 0; i < this.ensemble.length; i++) {
+                copy.ensemble[i] = this.ensemble[i].copy();
+            }
+        }
+        if (this.combiner != null) {
+            copy.combiner = this.combiner.copy();
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.baseLearnerOption = copyOption(this.baseLearnerOption);
+        this.ensembleSizeOption = copyOption(this.ensembleSizeOption);
+        this.numberOfJobsOption = copyOption(this.numberOfJobsOption);
+    }
+
     @Override
     public ImmutableCapabilities defineImmutableCapabilities() {
         if (this.getClass() == OzaBag.class)
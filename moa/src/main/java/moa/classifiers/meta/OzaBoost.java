@@ -24,9 +24,11 @@ import moa.classifiers.Classifier;
 import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.classifiers.MultiClassClassifier;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
@@ -52,7 +54,8 @@ import com.github.javacliparser.IntOption;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class OzaBoost extends AbstractClassifier implements MultiClassClassifier {
+public class OzaBoost extends AbstractClassifier implements MultiClassClassifier,
+        ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -150,6 +153,19 @@ public class OzaBoost extends AbstractClassifier implements MultiClassClassifier
                     this.ensemble != null ? this.ensemble.length : 0)};
     }
 
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateObjectSize(8, 0);
+        if (this.ensemble != null) {
+            size += SizeOf.estimateArraySize(this.ensemble.length, SizeOf.REFERENCE)
+                    + 2 * SizeOf.estimateArraySize(this.ensemble.length, 8);
+            for (Classifier member : this.ensemble) {
+                size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(member));
+            }
+        }
+        return size;
+    }
+
     @Override
     public Classifier[] getSubClassifiers() {
         return this.ensemble.clone();
@@ -21,9 +21,8 @@ package moa.classifiers.meta;
 
 import com.github.javacliparser.*;
 import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstanceProjection;
 import moa.AbstractMOAObject;
 import moa.capabilities.Capabilities;
 import moa.classifiers.*;
@@ -93,6 +92,7 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
     protected boolean reset;
     protected int numberClasses;
     protected double[] lastPrediction = null;
+    protected InstanceProjection binaryClassProjection = null;
     //endregion ================ VARIABLES ================
 
     //region ================ OVERRIDDEN METHODS ================
@@ -102,6 +102,7 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
             this.randomSeedOption.setValue(super.randomSeedOption.getValue()); // override current random
         }
         this.reset = true;
+        this.binaryClassProjection = null;
         this.classifierRandom = new Random(randomSeedOption.getValue());
     }
 
@@ -200,41 +201,25 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
 
     //region ================ STATIC METHODS ================
     static public Instance newBinaryClassInstance(Instance instance){
+        return newBinaryClassProjection(instance).project(instance, instance.weight(), 0.0);
+    }
+    static InstanceProjection newBinaryClassProjection(Instance instance){
         int classIndex = instance.classIndex();
-        ArrayList<Attribute> attributes = new ArrayList<>();
-        ArrayList<Double> v = new ArrayList<>();
-        List<String> classAttributeValues = new ArrayList<>();
-
-        // set attributes and values for all except class attribute
-        for (int i = 0; i < instance.numAttributes(); i++){
+        int[] featuresIndexes = new int[instance.numAttributes() - 1];
+        // all attributes except class attribute
+        for (int i = 0, j = 0; i < instance.numAttributes(); i++){
             if (i != classIndex){
-                attributes.add(instance.attribute(i));
-                v.add(instance.value(i));
+                featuresIndexes[j++] = i;
             }
         }
 
         // set class information
+        List<String> classAttributeValues = new ArrayList<>();
         classAttributeValues.add(0,"0");
         classAttributeValues.add(1,"1");
         Attribute classAttribute = new Attribute("classAttribute", classAttributeValues);
 
-        attributes.add(classAttribute);
-        v.add(0.0);
-
-        Instances newInstances = new Instances("Copy", attributes, 100);
-        newInstances.setClassIndex(newInstances.numAttributes()-1);
-
-        double[] values = v.stream()
-//                .parallel()
-                .mapToDouble(Double::doubleValue).toArray();
-        double weight = instance.weight();
-
-        DenseInstance newInstance = new DenseInstance(weight, values);
-        newInstance.setWeight(weight);
-        newInstance.setDataset(newInstances);
-
-        newInstances.add(newInstance);
-        return newInstance;
+        return new InstanceProjection("Copy", instance.dataset(), featuresIndexes, false, classAttribute);
     }
     static double getVoteForPositiveClass(SGBT binarySgbt, Instance inst){
         DoubleVector votes = new DoubleVector(binarySgbt.getVotesForInstance(inst));
@@ -253,69 +238,25 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
         }
     }
     public static Instance getSubInstance(Instance instance, double weight, ArrayList<Integer> subSpaceFeaturesIndexes, boolean setNumericClassAttribute, double numericClassValue, boolean useOneHotEncoding) {
-        Instances subset;
-        ArrayList<Attribute> attSub = new ArrayList<>();
-        ArrayList<Double> v = new ArrayList<>();
-        Attribute classAttribute;
-        int totalOneHotEncodedSize = 0;
-        int totalOneHotEncodedInstances = 0;
-        int i = 0;
-        // Add attributes of the selected subset
-        for (Integer featuresIndex : subSpaceFeaturesIndexes) {
-            int index = i + totalOneHotEncodedSize - totalOneHotEncodedInstances;
-            if (useOneHotEncoding && instance.attribute(featuresIndex).isNominal()) {
-                if (instance.attribute(featuresIndex).numValues() > 2){
-                    // Do one hot-encoding
-                    for (int j = 0; j < instance.attribute(featuresIndex).numValues(); j++) {
-                        attSub.add(new Attribute(""));
-                        v.add(0.0);
-                    }
-                    v.set(index + (int) instance.value(featuresIndex), 1.0);
-
-                    totalOneHotEncodedSize += instance.attribute(featuresIndex).numValues();
-                    totalOneHotEncodedInstances++;
-                }else{ // binary feature
-                    attSub.add(new Attribute("")); // create a numeric attribute
-                    v.add(instance.value(featuresIndex)); // sets the index as value
-                }
-            } else {
-                attSub.add(instance.attribute(featuresIndex));
-                v.add(instance.value(featuresIndex));
-            }
-            i++;
-        }
-        // add class attribute
-        if (setNumericClassAttribute) {
-            // adds a numeric class attribute
-            classAttribute = new Attribute("classAttribute");
-        } else {
-            classAttribute = instance.classAttribute();
-        }
-        attSub.add(classAttribute);
-        v.add(setNumericClassAttribute ? numericClassValue : instance.classValue());
-        subset = new Instances("Subsets Candidate Instances", attSub, 100);
-        subset.setClassIndex(subset.numAttributes() - 1);
-
-        // Set the class value for each value array.
-        double[] values = new double[v.size()];
-        for (int k = 0; k < v.size(); k++) {
-            values[k] = v.get(k);
+        InstanceProjection projection = newSubSpaceProjection(instance, subSpaceFeaturesIndexes, setNumericClassAttribute, useOneHotEncoding);
+        return projection.project(instance, weight, setNumericClassAttribute ? numericClassValue : instance.classValue());
+    }
+    static InstanceProjection newSubSpaceProjection(Instance instance, ArrayList<Integer> subSpaceFeaturesIndexes, boolean setNumericClassAttribute, boolean useOneHotEncoding) {
+        int[] featuresIndexes = new int[subSpaceFeaturesIndexes.size()];
+        for (int i = 0; i < featuresIndexes.length; i++) {
+            featuresIndexes[i] = subSpaceFeaturesIndexes.get(i);
         }
-
-        DenseInstance subInstance = new DenseInstance(weight, values);
-        subInstance.setWeight(weight);
-        subInstance.setDataset(subset);
-
-        subset.add(subInstance);
-        return subInstance;
+        // a numeric class attribute, or the original one
+        Attribute classAttribute = setNumericClassAttribute ? new Attribute("classAttribute") : null;
+        return new InstanceProjection("Subsets Candidate Instances", instance.dataset(), featuresIndexes, useOneHotEncoding, classAttribute);
     }
 
     public static double[] getScoresWhenNullTree(int outputSize) {
         return new double[outputSize];
     }
 
-    static double[] getScoreFromSubInstance(Instance inst, ArrayList<Integer> subSpaceFeaturesIndexes, boolean setNumericClassAttribute, SGBT.BoostingCommittee b, boolean useOneHotEncoding) {
-        Instance subInstance = getSubInstance(inst, 1.0, subSpaceFeaturesIndexes, setNumericClassAttribute, -1, useOneHotEncoding);
+    static double[] getScoreFromSubInstance(Instance inst, InstanceProjection subSpaceProjection, SGBT.BoostingCommittee b) {
+        Instance subInstance = subSpaceProjection.project(inst, 1.0, -1);
         return b.getScoresForInstance(subInstance);
     }
     //endregion ================ STATIC METHODS ================
@@ -346,8 +287,11 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
     Instance[] getBinaryClassInstanceArray(Instance inst){
         int actualClass = (int) inst.classValue();
 
-        // create binaryClassInstanceArray
-        Instance binaryInstance = newBinaryClassInstance(inst);
+        // create binaryClassInstanceArray, the header is shared by all the binary class instances
+        if (this.binaryClassProjection == null) {
+            this.binaryClassProjection = newBinaryClassProjection(inst);
+        }
+        Instance binaryInstance = this.binaryClassProjection.project(inst, inst.weight(), 0.0);
 
         // generate multiple instances
         Instance[] binaryClassInstanceArray = new Instance[SGBTCommittee.length];
@@ -388,6 +332,7 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
             private int committeeSize;
             protected ArrayList<ArrayList<Integer>> subspaces;
             protected ArrayList<ArrayList<Integer>> subSpacesForEachBoostingIteration;
+            protected ArrayList<InstanceProjection> subSpaceProjections;
             protected Objective mObjective;
             private long instancesSeenAtTrain;
             private Classifier baseLearner = null;
@@ -510,6 +455,14 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                 for (int i = 0; i < numberOfboostingIterations.getValue(); i++) {
                     subSpacesForEachBoostingIteration.add(this.subspaces.get(subSpaceIndexes[i]));
                 }
+                initSubSpaceProjections(inst);
+            }
+
+            protected void initSubSpaceProjections(Instance inst) {
+                subSpaceProjections = new ArrayList<>();
+                for (ArrayList<Integer> subSpace : subSpacesForEachBoostingIteration) {
+                    subSpaceProjections.add(newSubSpaceProjection(inst, subSpace, true, useOneHotEncoding.isSet()));
+                }
             }
 
             public void trainBoosterUsingSoftmaxCrossEntropyLoss(Instance inst) {
@@ -525,6 +478,8 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
 
                 if (booster == null) {
                     initEnsemble(inst);
+                } else if (subSpaceProjections == null) {
+                    initSubSpaceProjections(inst);
                 }
                 // get initial score, this is 0.0 for all the trees in the committee
                 DoubleVector rawScore = new DoubleVector(getScoresWhenNullTree(committeeSize));
@@ -535,7 +490,7 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                     // at m th iteration, gets the adjustment by the m th committee considering all the previous adjustments
                     GradHess[] gradHess = mObjective.computeDerivatives(groundTruth, rawScore.getArrayRef(), false, false);
                     // create a sub instance from the inst
-                    subInstance = getSubInstance(inst, 1.0, subSpacesForEachBoostingIteration.get(m), true, -1, useOneHotEncoding.isSet());
+                    subInstance = subSpaceProjections.get(m).project(inst, 1.0, -1);
                     //create sub instance for each committee member
                     Instance[] subInstArray = new Instance[gradHess.length];
                     if (gradHess.length == 1) {
@@ -564,12 +519,15 @@ public class StreamingGradientBoostedTrees extends AbstractClassifier implements
                 DoubleVector rawScore = new DoubleVector(getScoresWhenNullTree(committeeSize));
 
                 double[][] s = new double[booster.size()][];
+                if (subSpaceProjections == null) {
+                    initSubSpaceProjections(inst);
+                }
                 if (booster.size() == 1) {
-                    s[0] = getScoreFromSubInstance(inst, subSpacesForEachBoostingIteration.get(0), true, booster.get(0), useOneHotEncoding.isSet());
+                    s[0] = getScoreFromSubInstance(inst, subSpaceProjections.get(0), booster.get(0));
                 } else {
                         IntStream.range(0, booster.size())
                                 .parallel()
-                                .forEach(m -> s[m] = getScoreFromSubInstance(inst, subSpacesForEachBoostingIteration.get(m), true, booster.get(m), useOneHotEncoding.isSet()));
+                                .forEach(m -> s[m] = getScoreFromSubInstance(inst, subSpaceProjections.get(m), booster.get(m)));
                 }
                 for (int i = 0; i < booster.size(); i++) {
                     rawScore.addValues(s[i]);
@@ -22,10 +22,9 @@ import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
-import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstanceProjection;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -33,11 +32,14 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.ensemble.EnsembleExecutor;
+import moa.classifiers.core.ensemble.EnsembleVoteCombiner;
 import moa.core.*;
 import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -65,6 +67,8 @@ import java.util.Random;
  * <li>-w : Should use weighted voting?</li>
  * <li>-u : Should use drift detection? If disabled, then the bkg learner is also disabled.</li>
  * <li>-q : Should use bkg learner? If disabled, then trees are reset immediately.</li>
+ * <li>-j : Number of threads to be used for training. With more than one thread every learner draws
+ * the random numbers of its resets from its own generator.</li>
  * </ul>
  *
  * @author Heitor Murilo Gomes (heitor dot gomes at waikato dot ac dot nz)
@@ -118,6 +122,9 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     public FlagOption disableBackgroundLearnerOption = new FlagOption("disableBackgroundLearner", 'q',
             "Should use bkg learner? If disabled, then trees are reset immediately.");
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
+
     public static final int TRAIN_RANDOM_SUBSPACES = 0;
     public static final int TRAIN_RESAMPLING = 1;
     public static final int TRAIN_RANDOM_PATCHES = 2;
@@ -131,9 +138,26 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     protected long instancesSeen;
     protected ArrayList<ArrayList<Integer>> subspaces;
 
+    // Persistent worker threads, null when training sequentially.
+    protected transient EnsembleExecutor executor;
+    protected transient EnsembleExecutor.MemberTask voter;
+    protected transient EnsembleExecutor.MemberTask batchVoter;
+    // The batch of instances voted on by the batch voter.
+    protected transient Instance[] batchInstances;
+    protected transient int batchFrom;
+    protected transient int batchTo;
+    // One generator per learner, so that resets do not depend on thread scheduling.
+    protected Random[] learnerRandoms;
+    // Reusable vote buffers and cached accuracy weights of the learners.
+    protected EnsembleVoteCombiner combiner;
+
     @Override
     public void resetLearningImpl() {
         this.instancesSeen = 0;
+        if(this.executor != null)
+            this.executor.shutdown();
+        this.executor = null;
+        this.learnerRandoms = null;
     }
 
     @Override
@@ -141,28 +165,65 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         ++this.instancesSeen;
         if(this.ensemble == null)
             initEnsemble(instance);
+        if(this.executor == null) {
+            int numberOfThreads = EnsembleExecutor.numberOfThreads(this.numberOfJobsOption.getValue());
+            if(numberOfThreads > 1) {
+                this.executor = new EnsembleExecutor(numberOfThreads, this::trainLearner);
+                this.voter = this::voteLearner;
+                this.batchVoter = this::voteLearnerOnBatch;
+                if(this.learnerRandoms == null) {
+                    this.learnerRandoms = new Random[this.ensemble.length];
+                    for(int i = 0 ; i < this.learnerRandoms.length ; ++i)
+                        this.learnerRandoms[i] = new Random(this.randomSeed + i);
+                }
+            }
+        }
 
+        // The learners keep training on the instance after this method returns.
+        Instance trainInstance = this.executor != null ? instance.copy() : instance;
         for (int i = 0 ; i < this.ensemble.length ; i++) {
-            double[] rawVote = this.ensemble[i].getVotesForInstance(instance);
-            DoubleVector vote = new DoubleVector(rawVote);
-            InstanceExample example = new InstanceExample(instance);
-
-            this.ensemble[i].evaluator.addResult(example, vote.getArrayRef());
             // Train using random subspaces without resampling, i.e. all instances are used for training.
-            if(this.trainingMethodOption.getChosenIndex() == TRAIN_RANDOM_SUBSPACES) {
-                this.ensemble[i].trainOnInstance(instance,1, this.instancesSeen, this.classifierRandom);
-            }
+            double weight = 1;
             // Train using random patches or resampling, thus we simulate online bagging with poisson(lambda=...)
-            else {
-                int k = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
-                if (k > 0) {
-                    double weight = k;
-                    this.ensemble[i].trainOnInstance(instance, weight, this.instancesSeen, this.classifierRandom);
-                }
-            }
+            if(this.trainingMethodOption.getChosenIndex() != TRAIN_RANDOM_SUBSPACES)
+                weight = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+            if(this.executor != null)
+                this.executor.submit(i, trainInstance, weight, this.instancesSeen);
+            else
+                trainLearner(i, trainInstance, weight, this.instancesSeen);
         }
     }
 
+    /**
+     * Updates the performance estimate of a learner with the given instance, then
+     * trains it if the weight is positive. Runs on the executor threads when
+     * multithreading is enabled.
+     */
+    protected void trainLearner(int index, Instance instance, double weight, long instancesSeen) {
+        StreamingRandomPatchesClassifier learner = this.ensemble[index];
+        learner.evaluator.addResult(new InstanceExample(instance), learner.getVotesForInstance(instance));
+        if (weight > 0) {
+            Random random = this.executor != null ? this.learnerRandoms[index] : this.classifierRandom;
+            learner.trainOnInstance(instance, weight, instancesSeen, random);
+        }
+        // The evaluator may also have been reset or replaced by the training
+        this.combiner.setWeight(index, this.ensemble[index].getAccuracy());
+    }
+
+    /**
+     * Stores the vote of a learner in the combiner. Runs on the executor threads
+     * when multithreading is enabled.
+     */
+    protected void voteLearner(int index, Instance instance, double weight, long instancesSeen) {
+        this.combiner.setVote(index, this.ensemble[index].getVotesForInstance(instance),
+                !this.disableWeightedVote.isSet());
+    }
+
+    protected void awaitEnsemble() {
+        if(this.executor != null)
+            this.executor.awaitCompletion();
+    }
+
     @Override
     public double[] getVotesForInstance(Instance instance) {
         Instance testInstance = instance.copy();
@@ -170,22 +231,58 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         testInstance.setClassValue(0.0);
         if(this.ensemble == null)
             initEnsemble(testInstance);
-        DoubleVector combinedVote = new DoubleVector();
-
-        for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(testInstance));
-            if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-                double acc = this.ensemble[i].evaluator.getPerformanceMeasurements()[1].getValue();
-                if(!this.disableWeightedVote.isSet() && acc > 0.0) {
-                    for(int v = 0 ; v < vote.numValues() ; ++v) {
-                        vote.setValue(v, vote.getValue(v) * acc);
-                    }
-                }
-                combinedVote.addValues(vote);
-            }
+
+        if(this.executor != null) {
+            // Each vote is computed behind the pending training of its learner
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                this.executor.submit(this.voter, i, testInstance, 1.0, this.instancesSeen);
+            this.executor.awaitCompletion();
+        }
+        else {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                voteLearner(i, testInstance, 1.0, this.instancesSeen);
+        }
+        return this.combiner.combine();
+    }
+
+    /**
+     * Stores the votes of a learner on the current batch in the combiner.
+     * Runs on the executor threads when multithreading is enabled.
+     */
+    protected void voteLearnerOnBatch(int index, Instance instance, double weight, long instancesSeen) {
+        this.ensemble[index].getVotesForInstances(this.batchInstances,
+                this.batchFrom, this.batchTo, this.combiner.getBatchVotes(index));
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to, double[][] votes) {
+        if(from >= to)
+            return;
+        Instance[] testInstances = new Instance[to];
+        for(int i = from ; i < to ; ++i) {
+            testInstances[i] = insts[i].copy();
+            testInstances[i].setMissing(insts[i].classAttribute());
+            testInstances[i].setClassValue(0.0);
+        }
+        if(this.ensemble == null)
+            initEnsemble(testInstances[from]);
+
+        // Every learner votes on the whole batch before the votes are combined
+        this.combiner.prepareBatch(to);
+        this.batchInstances = testInstances;
+        this.batchFrom = from;
+        this.batchTo = to;
+        if(this.executor != null) {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                this.executor.submit(this.batchVoter, i, null, 1.0, this.instancesSeen);
+            this.executor.awaitCompletion();
         }
-        return combinedVote.getArrayRef();
+        else {
+            for(int i = 0 ; i < this.ensemble.length ; ++i)
+                voteLearnerOnBatch(i, null, 1.0, this.instancesSeen);
+        }
+        this.batchInstances = null;
+        this.combiner.combineBatch(from, to, !this.disableWeightedVote.isSet(), votes);
     }
 
     @Override
@@ -202,10 +299,23 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         return null;
     }
 
+    @Override
+    public long measureByteSize() {
+        awaitEnsemble();
+        return super.measureByteSize();
+    }
+
+    @Override
+    public Classifier copy() {
+        awaitEnsemble();
+        return super.copy();
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
         this.ensemble = new StreamingRandomPatchesClassifier[ensembleSize];
+        this.combiner = new EnsembleVoteCombiner(ensembleSize);
 
         BasicClassificationPerformanceEvaluator classificationEvaluator = new BasicClassificationPerformanceEvaluator();
 
@@ -319,6 +429,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
     @Override
     public Classifier[] getSublearners() {
         /* Extracts the reference to the base learner object from within the ensemble of StreamingRandomPatchesClassifier */
+        awaitEnsemble();
         Classifier[] baseModels = new Classifier[this.ensemble.length];
         for(int i = 0 ; i < baseModels.length ; ++i)
             baseModels[i] = this.ensemble[i].classifier;
@@ -369,9 +480,12 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
         public long createdOn;
         public Classifier classifier;
 
-        // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        // Presents the original instances in the current model subspace.
+        public InstanceProjection subset;
         public int[] featureIndexes;
+        // The view given to the classifier for training, and the subset it was made for.
+        protected transient ProjectedInstance trainingInstance;
+        protected transient InstanceProjection trainingSubset;
 
         // Drift detection
         public boolean disableBkgLearner;
@@ -450,33 +564,32 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
 
             // Features + class (last index)
             this.featureIndexes = new int[featuresIndexes.size()];
-            ArrayList<Attribute> attSub = new ArrayList<Attribute>();
-
-            // Add attributes of the selected subset
-            for(int i = 0 ; i < featuresIndexes.size() ; ++i) {
-                attSub.add(instance.attribute(featuresIndexes.get(i)));
+            for(int i = 0 ; i < featuresIndexes.size() ; ++i)
                 this.featureIndexes[i] = featuresIndexes.get(i);
-            }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes()-1);
-            prepareRandomSubspaceInstance(instance,1);
+            this.subset = createSubset(instance);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while(this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for(int j = 0 ; j < this.subset.numAttributes() ; ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length-1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        // The header of the subspace is built once, the instances are then projected on it without copying.
+        private InstanceProjection createSubset(Instance instance) {
+            return new InstanceProjection("Subsets Candidate Instances", instance.dataset(),
+                    Arrays.copyOf(this.featureIndexes, this.featureIndexes.length - 1), false, null);
+        }
+
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return this.subset.project(instance, weight);
+        }
+
+        // Training re-points a single view, valid until the next training instance.
+        private Instance prepareTrainingInstance(Instance instance, double weight) {
+            if (this.trainingInstance == null || this.trainingSubset != this.subset) {
+                this.trainingInstance = this.subset != null
+                        ? (ProjectedInstance) this.subset.project(instance, weight)
+                        : new ProjectedInstance(instance, weight);
+                this.trainingSubset = this.subset;
+            } else {
+                this.trainingInstance.setSource(instance, weight);
+            }
+            return this.trainingInstance;
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -518,14 +631,7 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
                     ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
                     for(int i = 0 ; i < fIndexes.size() ; ++i)
                         this.featureIndexes[i] = fIndexes.get(i);
-                    ArrayList<Attribute> attSub = new ArrayList<Attribute>();
-                    // Add attributes of the selected subset
-                    for(int i = 0 ; i < this.featureIndexes.length ; ++i)
-                        attSub.add(instance.attribute(this.featureIndexes[i]));
-
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes()-1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    this.subset = createSubset(instance);
                 }
             }
         }
@@ -535,17 +641,15 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
             // The subset object will be null if we are training with all features
             if(this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
+                Instance subInstance = prepareTrainingInstance(instance, weight);
 
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if(this.bkgLearner != null)
                     this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
             }
             else {
-                Instance weightedInstance = instance.copy();
-                weightedInstance.setWeight(instance.weight() * weight);
+                Instance weightedInstance = prepareTrainingInstance(instance, instance.weight() * weight);
                 this.classifier.trainOnInstance(weightedInstance);
                 correctlyClassifies = this.classifier.correctlyClassifies(instance);
                 if(this.bkgLearner != null)
@@ -603,14 +707,31 @@ public class StreamingRandomPatches extends AbstractClassifier implements MultiC
          */
         public double[] getVotesForInstance(Instance instance) {
             if(this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // the instance transformed to the correct subspace (i.e. current model subspace).
+                return this.classifier.getVotesForInstance(prepareRandomSubspaceInstance(instance, 1));
+            }
+            return this.classifier.getVotesForInstance(instance);
+        }
 
-                return vote.getArrayRef();
+        public void getVotesForInstances(Instance[] instances, int from, int to, double[][] votes) {
+            if(this.subset != null) {
+                Instance[] subInstances = new Instance[to];
+                for(int i = from ; i < to ; ++i)
+                    subInstances[i] = prepareRandomSubspaceInstance(instances[i], 1);
+                this.classifier.getVotesForInstances(subInstances, from, to, votes);
             }
-            DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(instance));
-            return vote.getArrayRef();
+            else {
+                this.classifier.getVotesForInstances(instances, from, to, votes);
+            }
+        }
+
+        /**
+         * @return the accuracy (in percent) used to weight the votes of this learner
+         */
+        public double getAccuracy() {
+            if(this.evaluator.getTotalWeightObserved() == 0.0)
+                return 0.0;
+            return this.evaluator.getFractionCorrectlyClassified() * 100.0;
         }
     }
 }
@@ -23,6 +23,7 @@ import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import moa.AbstractMOAObject;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -310,6 +311,9 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
         protected int numberOfDriftsDetected;
         protected int numberOfWarningsDetected;
 
+        // The view of the training instance given to the classifier
+        protected transient ProjectedInstance weightedInstance;
+
         private void init(int indexOriginal, ARFHoeffdingTree instantiatedClassifier, BasicClassificationPerformanceEvaluator evaluatorInstantiated, 
             long instancesSeen, boolean useBkgLearner, boolean useDriftDetector, ClassOption driftOption, ClassOption warningOption, boolean isBackgroundLearner) {
             this.indexOriginal = indexOriginal;
@@ -363,9 +367,13 @@ public class AdaptiveRandomForestMB extends AbstractClassifierMiniBatch implemen
         }
 
         public void trainOnInstance(Instance instance, double weight, long instancesSeen) {
-            Instance weightedInstance = instance.copy();
-            weightedInstance.setWeight(instance.weight() * weight);
-            this.classifier.trainOnInstance(weightedInstance);
+            // a single view is re-pointed to every training instance
+            if (this.weightedInstance == null) {
+                this.weightedInstance = new ProjectedInstance(instance, instance.weight() * weight);
+            } else {
+                this.weightedInstance.setSource(instance, instance.weight() * weight);
+            }
+            this.classifier.trainOnInstance(this.weightedInstance);
             
             if(this.bkgLearner != null)
                 this.bkgLearner.classifier.trainOnInstance(instance);
@@ -22,10 +22,9 @@ import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
-import com.yahoo.labs.samoa.instances.Attribute;
-import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
-import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstanceProjection;
+import com.yahoo.labs.samoa.instances.ProjectedInstance;
 import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
@@ -42,6 +41,7 @@ import moa.evaluation.BasicClassificationPerformanceEvaluator;
 import moa.options.ClassOption;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
@@ -376,9 +376,12 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
         public long createdOn;
         public Classifier classifier;
 
-        // Stores current model subspace representation of the original instances.
-        public Instances subset;
+        // Presents the original instances in the current model subspace.
+        public InstanceProjection subset;
         public int[] featureIndexes;
+        // The view given to the classifier for training, and the subset it was made for.
+        protected transient ProjectedInstance trainingInstance;
+        protected transient InstanceProjection trainingSubset;
 
         // Drift detection
         public boolean disableBkgLearner;
@@ -457,33 +460,32 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
 
             // Features + class (last index)
             this.featureIndexes = new int[featuresIndexes.size()];
-            ArrayList<Attribute> attSub = new ArrayList<Attribute>();
-
-            // Add attributes of the selected subset
-            for(int i = 0 ; i < featuresIndexes.size() ; ++i) {
-                attSub.add(instance.attribute(featuresIndexes.get(i)));
+            for(int i = 0 ; i < featuresIndexes.size() ; ++i)
                 this.featureIndexes[i] = featuresIndexes.get(i);
-            }
-            this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-            this.subset.setClassIndex(this.subset.numAttributes()-1);
-            prepareRandomSubspaceInstance(instance,1);
+            this.subset = createSubset(instance);
+        }
+
+        // The header of the subspace is built once, the instances are then projected on it without copying.
+        private InstanceProjection createSubset(Instance instance) {
+            return new InstanceProjection("Subsets Candidate Instances", instance.dataset(),
+                    Arrays.copyOf(this.featureIndexes, this.featureIndexes.length - 1), false, null);
         }
 
-        public void prepareRandomSubspaceInstance(Instance instance, double weight) {
-            // If there is any instance lingering in the subset, remove it.
-            while(this.subset.numInstances() > 0)
-                this.subset.delete(0);
-
-            double[] values = new double[this.subset.numAttributes()];
-            for(int j = 0 ; j < this.subset.numAttributes() ; ++j)
-                values[j] = instance.value(this.featureIndexes[j]);
-
-            // Set the class value for each value array.
-            values[values.length-1] = instance.classValue();
-            DenseInstance subInstance = new DenseInstance(1.0, values);
-            subInstance.setWeight(weight);
-            subInstance.setDataset(this.subset);
-            this.subset.add(subInstance);
+        public Instance prepareRandomSubspaceInstance(Instance instance, double weight) {
+            return this.subset.project(instance, weight);
+        }
+
+        // Training re-points a single view, valid until the next training instance.
+        private Instance prepareTrainingInstance(Instance instance, double weight) {
+            if (this.trainingInstance == null || this.trainingSubset != this.subset) {
+                this.trainingInstance = this.subset != null
+                        ? (ProjectedInstance) this.subset.project(instance, weight)
+                        : new ProjectedInstance(instance, weight);
+                this.trainingSubset = this.subset;
+            } else {
+                this.trainingInstance.setSource(instance, weight);
+            }
+            return this.trainingInstance;
         }
 
         private ArrayList<Integer> applySubsetResetStrategy(Instance instance, Random random) {
@@ -525,14 +527,7 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
                     ArrayList<Integer> fIndexes = this.applySubsetResetStrategy(instance, random);
                     for(int i = 0 ; i < fIndexes.size() ; ++i)
                         this.featureIndexes[i] = fIndexes.get(i);
-                    ArrayList<Attribute> attSub = new ArrayList<Attribute>();
-                    // Add attributes of the selected subset
-                    for(int i = 0 ; i < this.featureIndexes.length ; ++i)
-                        attSub.add(instance.attribute(this.featureIndexes[i]));
-
-                    this.subset = new Instances("Subsets Candidate Instances", attSub, 100);
-                    this.subset.setClassIndex(this.subset.numAttributes()-1);
-                    prepareRandomSubspaceInstance(instance, 1);
+                    this.subset = createSubset(instance);
                 }
             }
         }
@@ -542,17 +537,15 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
             // The subset object will be null if we are training with all features
             if(this.subset != null) {
                 // Selecting just the subset of features that we are going to use
-                prepareRandomSubspaceInstance(instance, weight);
+                Instance subInstance = prepareTrainingInstance(instance, weight);
 
-                // After prepareRandomSubspaceInstance, index 0 of subset holds the instance with this learner subspaces
-                this.classifier.trainOnInstance(this.subset.get(0));
-                correctlyClassifies = this.classifier.correctlyClassifies(this.subset.get(0));
+                this.classifier.trainOnInstance(subInstance);
+                correctlyClassifies = this.classifier.correctlyClassifies(subInstance);
                 if(this.bkgLearner != null)
                     this.bkgLearner.trainOnInstance(instance, weight, instancesSeen, random);
             }
             else {
-                Instance weightedInstance = instance.copy();
-                weightedInstance.setWeight(instance.weight() * weight);
+                Instance weightedInstance = prepareTrainingInstance(instance, instance.weight() * weight);
                 this.classifier.trainOnInstance(weightedInstance);
                 correctlyClassifies = this.classifier.correctlyClassifies(instance);
                 if(this.bkgLearner != null)
@@ -610,9 +603,8 @@ public class StreamingRandomPatchesMB extends AbstractClassifierMiniBatch implem
          */
         public double[] getVotesForInstance(Instance instance) {
             if(this.subset != null) {
-                prepareRandomSubspaceInstance(instance, 1);
-                // subset.get(0) returns the instance transformed to the correct subspace (i.e. current model subspace).
-                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(this.subset.get(0)));
+                // the instance transformed to the correct subspace (i.e. current model subspace).
+                DoubleVector vote = new DoubleVector(this.classifier.getVotesForInstance(prepareRandomSubspaceInstance(instance, 1)));
 
                 return vote.getArrayRef();
             }
@@ -179,6 +179,7 @@ public class MultilabelHoeffdingTree extends HoeffdingTreeClassifLeaves implemen
 		}
 		this.activeLeafNodeCount--;
 		this.inactiveLeafNodeCount++;
+		treeChanged();
 	}
 
 
@@ -50,6 +50,7 @@ public class OzaBagML extends OzaBag implements MultiLabelLearner, MultiTargetRe
 	// Predictions
 	@Override
 	public Prediction getPredictionForInstance(Example<Instance> example) {
+		awaitEnsemble();
 		return compilePredictions(this.ensemble, example);
 	}
 
@@ -91,9 +92,17 @@ public class OzaBagML extends OzaBag implements MultiLabelLearner, MultiTargetRe
 	//Legacy code: not used now, only Predictions are used
 	@Override
     public double[] getVotesForInstance(Instance inst) {
+		awaitEnsemble();
 		return compileVotes(this.ensemble, inst);
 	}
 
+	@Override
+	public void getVotesForInstances(Instance[] insts, int from, int to, double[][] votes) {
+		for (int i = from; i < to; i++) {
+			votes[i] = getVotesForInstance(insts[i]);
+		}
+	}
+
 	public static double[] compileVotes(Classifier h[], Instance inst) {
 		double votes[] = h[0].getVotesForInstance(inst);
 		for (int i = 1; i < h.length; i++) {
@@ -35,6 +35,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
+import java.util.stream.IntStream;
 
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.FlagOption;
@@ -146,6 +147,10 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 	public FileOption weightFile = new FileOption("targetWeightFile", 'w', "File with the weights of the targets.",
 			null, null, false);
 
+	public IntOption parallelSplitThresholdOption = new IntOption("parallelSplitThreshold", 'P',
+			"Number of attributes above which they are evaluated in parallel for a split, 0 to always evaluate them serially.",
+			0, 0, Integer.MAX_VALUE);
+
 	// endregion ================ OPTIONS ================
 
 	// region ================ CLASSES ================
@@ -456,43 +461,57 @@ public class ISOUPTree extends AbstractMultiLabelLearner implements MultiTargetR
 
 			List<AttributeExpansionSuggestion> bestSuggestions = new LinkedList<>();
 
-			for (int i : inputIndexes) {
-				AttributeStatisticsObserver obs = attributeObservers.get(i);
-				if (obs != null) {
-					DoubleVector[] preSplitStatistics = new DoubleVector[tree.numOutputAttributes];
-					DoubleVector[] preSplitInputStatistics = null;
-					for (int j = 0; j < tree.numOutputAttributes; j++) {
-						preSplitStatistics[j] = new DoubleVector();
-						preSplitStatistics[j].setValue(0, examplesSeen.getValue(j));
-						preSplitStatistics[j].setValue(1, sumOfValues.getValue(j));
-						preSplitStatistics[j].setValue(2, sumOfSquares.getValue(j));
-					}
-
-					if (tree.runAsPCTOption.isSet() && tree.modelContext.inputAttribute(i).isNumeric()) {
-						preSplitInputStatistics = new DoubleVector[tree.numInputAttributes];
-						for (int j = 0; j < tree.numInputAttributes; j++) {
-							preSplitInputStatistics[j] = new DoubleVector();
-							preSplitInputStatistics[j].setValue(0, weightOfInputs.getValue(j));
-							preSplitInputStatistics[j].setValue(1, sumOfInputValues.getValue(j));
-							preSplitInputStatistics[j].setValue(2, sumOfInputSquares.getValue(j));
-						}
-
-					}
+			AttributeExpansionSuggestion[] attributeSuggestions = new AttributeExpansionSuggestion[inputIndexes.size()];
+			if (tree.parallelSplitThresholdOption.getValue() > 0
+					&& attributeSuggestions.length > tree.parallelSplitThresholdOption.getValue()) {
+				// each observer is evaluated by a single thread, and the
+				// suggestions are kept in the order of the attributes
+				IntStream.range(0, attributeSuggestions.length)
+						.parallel()
+						.forEach(j -> attributeSuggestions[j] = getBestSplitSuggestion(inputIndexes.get(j), criterion));
+			} else {
+				for (int j = 0; j < attributeSuggestions.length; j++) {
+					attributeSuggestions[j] = getBestSplitSuggestion(inputIndexes.get(j), criterion);
+				}
+			}
+			for (AttributeExpansionSuggestion bestSuggestion : attributeSuggestions) {
+				if (bestSuggestion != null) {
+					bestSuggestions.add(bestSuggestion);
+				}
+			}
+			return bestSuggestions.toArray(new AttributeExpansionSuggestion[bestSuggestions.size()]);
+		}
 
-					AttributeExpansionSuggestion bestSuggestion = null;
-					if (tree.runAsPCTOption.isSet() && tree.modelContext.inputAttribute(i).isNumeric()) {
-						bestSuggestion = ((MultiLabelBSTreePCT) obs).getBestEvaluatedSplitSuggestion(criterion,
-								preSplitStatistics, preSplitInputStatistics, i);
-					} else {
-						bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, preSplitStatistics, i);
-					}
+		/**
+		 * Return the best split suggestion for an input attribute, or null if
+		 * there is none
+		 */
+		protected AttributeExpansionSuggestion getBestSplitSuggestion(int i, MultiLabelSplitCriterion criterion) {
+			AttributeStatisticsObserver obs = attributeObservers.get(i);
+			if (obs == null) {
+				return null;
+			}
+			DoubleVector[] preSplitStatistics = new DoubleVector[tree.numOutputAttributes];
+			DoubleVector[] preSplitInputStatistics = null;
+			for (int j = 0; j < tree.numOutputAttributes; j++) {
+				preSplitStatistics[j] = new DoubleVector();
+				preSplitStatistics[j].setValue(0, examplesSeen.getValue(j));
+				preSplitStatistics[j].setValue(1, sumOfValues.getValue(j));
+				preSplitStatistics[j].setValue(2, sumOfSquares.getValue(j));
+			}
 
-					if (bestSuggestion != null) {
-						bestSuggestions.add(bestSuggestion);
-					}
+			if (tree.runAsPCTOption.isSet() && tree.modelContext.inputAttribute(i).isNumeric()) {
+				preSplitInputStatistics = new DoubleVector[tree.numInputAttributes];
+				for (int j = 0; j < tree.numInputAttributes; j++) {
+					preSplitInputStatistics[j] = new DoubleVector();
+					preSplitInputStatistics[j].setValue(0, weightOfInputs.getValue(j));
+					preSplitInputStatistics[j].setValue(1, sumOfInputValues.getValue(j));
+					preSplitInputStatistics[j].setValue(2, sumOfInputSquares.getValue(j));
 				}
+				return ((MultiLabelBSTreePCT) obs).getBestEvaluatedSplitSuggestion(criterion,
+						preSplitStatistics, preSplitInputStatistics, i);
 			}
-			return bestSuggestions.toArray(new AttributeExpansionSuggestion[bestSuggestions.size()]);
+			return obs.getBestEvaluatedSplitSuggestion(criterion, preSplitStatistics, i);
 		}
 
 		/**
@@ -22,6 +22,7 @@ package moa.classifiers.trees;
 import com.github.javacliparser.IntOption;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.core.SizeOf;
 import moa.core.Utils;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -71,6 +72,15 @@ public class ARFHoeffdingTree extends HoeffdingTree {
             this.numAttributes = subspaceSize;
         }
 
+        @Override
+        public long estimateByteSize() {
+            long size = super.estimateByteSize() + SizeOf.REFERENCE + 4;
+            if ((size >= 0) && (this.listAttributes != null)) {
+                size += SizeOf.estimateArraySize(this.listAttributes.length, 4);
+            }
+            return size;
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             this.observedClassDistribution.addToValue((int) inst.classValue(),
@@ -177,6 +187,40 @@ public class ARFHoeffdingTree extends HoeffdingTree {
         this.removePoorAttsOption = null;
     }
     
+    @Override
+    protected void getClassVotes(Node node, Instance inst, double[][] votes, int index) {
+        Class<?> nodeClass = node.getClass();
+        if (nodeClass == RandomLearningNode.class) {
+            getMajorityClassVotes(node, votes, index);
+        } else if (nodeClass == LearningNodeNB.class) {
+            if (((LearningNodeNB) node).getWeightSeen() >= this.nbThresholdOption.getValue()) {
+                getNaiveBayesVotes((ActiveLearningNode) node, inst, votes, index);
+            } else {
+                getMajorityClassVotes(node, votes, index);
+            }
+        } else if (nodeClass == LearningNodeNBAdaptive.class) {
+            LearningNodeNBAdaptive leaf = (LearningNodeNBAdaptive) node;
+            if (leaf.mcCorrectWeight > leaf.nbCorrectWeight) {
+                getMajorityClassVotes(node, votes, index);
+            } else {
+                getNaiveBayesVotes(leaf, inst, votes, index);
+            }
+        } else {
+            super.getClassVotes(node, inst, votes, index);
+        }
+    }
+
+    @Override
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(ARFHoeffdingTree.class);
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.subspaceSizeOption = copyOption(this.subspaceSizeOption);
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         LearningNode ret;
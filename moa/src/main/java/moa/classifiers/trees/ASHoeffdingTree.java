@@ -88,6 +88,11 @@ public class ASHoeffdingTree extends HoeffdingTree {
 
     protected boolean resetTree = false;
 
+    @Override
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(ASHoeffdingTree.class);
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
@@ -98,6 +103,7 @@ public class ASHoeffdingTree extends HoeffdingTree {
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.flatTreeIndex = null;
     }
 
     @Override
@@ -106,12 +112,25 @@ public class ASHoeffdingTree extends HoeffdingTree {
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
         }
-        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
-        Node leafNode = foundNode.node;
+        Node leafNode;
+        SplitNode parent;
+        int parentBranch;
+        int slot = useFlatIndex() ? getFlatTreeIndex().filterInstanceToSlot(inst) : -1;
+        if (slot >= 0) {
+            leafNode = this.flatTreeIndex.getNode(slot);
+            parent = this.flatTreeIndex.getParent(slot);
+            parentBranch = this.flatTreeIndex.getParentBranch(slot);
+        } else {
+            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+            leafNode = foundNode.node;
+            parent = foundNode.parent;
+            parentBranch = foundNode.parentBranch;
+        }
         if (leafNode == null) {
             leafNode = newLearningNode();
-            foundNode.parent.setChild(foundNode.parentBranch, leafNode);
+            parent.setChild(parentBranch, leafNode);
             this.activeLeafNodeCount++;
+            treeChanged();
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
@@ -122,14 +141,14 @@ public class ASHoeffdingTree extends HoeffdingTree {
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
                         - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
-                    attemptToSplit(activeLearningNode, foundNode.parent,
-                            foundNode.parentBranch);
+                    attemptToSplit(activeLearningNode, parent, parentBranch);
                     //EXTENSION TO ASHT
                     // if size too big, resize tree ONLY Split Nodes
                     while (this.decisionNodeCount >= this.maxSize && this.treeRoot instanceof SplitNode) {
                         if (this.resetTree == false) {
                             resizeTree(this.treeRoot, ((SplitNode) this.treeRoot).instanceChildIndex(inst));
                             this.treeRoot = ((SplitNode) this.treeRoot).getChild(((SplitNode) this.treeRoot).instanceChildIndex(inst));
+                            treeChanged();
                         } else {
                             resetLearningImpl();
                         }
@@ -47,6 +47,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
@@ -147,6 +148,11 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
   public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
     "Disable pre-pruning.");
 
+  public IntOption parallelSplitThresholdOption = new IntOption(
+    "parallelSplitThreshold", 'P',
+    "Number of attributes above which they are evaluated in parallel for a split, 0 to always evaluate them serially.",
+    0, 0, Integer.MAX_VALUE);
+
   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
     "leafprediction", 'l', "Leaf prediction to use.", new String[]{
     "MC", "NB", "NBAdaptive"}, new String[]{
@@ -936,19 +942,35 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      boolean binaryOnly = ht.binarySplitsOption.isSet();
+      AttributeSplitSuggestion[] attributeSuggestions = new AttributeSplitSuggestion[this.attributeObservers.size()];
+      if ((ht.parallelSplitThresholdOption.getValue() > 0)
+	&& (attributeSuggestions.length > ht.parallelSplitThresholdOption.getValue())) {
+	// each observer is evaluated by a single thread, and the
+	// suggestions are kept in the order of the attributes
+	IntStream.range(0, attributeSuggestions.length)
+	  .parallel()
+	  .forEach(i -> attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly));
+      } else {
+	for (int i = 0; i < attributeSuggestions.length; i++) {
+	  attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly);
+	}
+      }
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
     }
 
+    protected AttributeSplitSuggestion getBestSplitSuggestion(int attIndex,
+      SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly) {
+      AttributeClassObserver obs = this.attributeObservers.get(attIndex);
+      return obs != null ? obs.getBestEvaluatedSplitSuggestion(criterion,
+	preSplitDist, attIndex, binaryOnly) : null;
+    }
+
 
     @Override
     public void learnFromInstance(Instance inst, EFDT ht, EFDTSplitNode parent, int parentBranch) {
@@ -1304,19 +1326,35 @@ public class EFDT extends AbstractClassifier implements MultiClassClassifier {
 	  new double[0][], criterion.getMeritOfSplit(
 	  preSplitDist, new double[][]{preSplitDist})));
       }
-      for (int i = 0; i < this.attributeObservers.size(); i++) {
-	AttributeClassObserver obs = this.attributeObservers.get(i);
-	if (obs != null) {
-	  AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-	    preSplitDist, i, ht.binarySplitsOption.isSet());
-	  if (bestSuggestion != null) {
-	    bestSuggestions.add(bestSuggestion);
-	  }
+      boolean binaryOnly = ht.binarySplitsOption.isSet();
+      AttributeSplitSuggestion[] attributeSuggestions = new AttributeSplitSuggestion[this.attributeObservers.size()];
+      if ((ht.parallelSplitThresholdOption.getValue() > 0)
+	&& (attributeSuggestions.length > ht.parallelSplitThresholdOption.getValue())) {
+	// each observer is evaluated by a single thread, and the
+	// suggestions are kept in the order of the attributes
+	IntStream.range(0, attributeSuggestions.length)
+	  .parallel()
+	  .forEach(i -> attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly));
+      } else {
+	for (int i = 0; i < attributeSuggestions.length; i++) {
+	  attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly);
+	}
+      }
+      for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+	if (bestSuggestion != null) {
+	  bestSuggestions.add(bestSuggestion);
 	}
       }
       return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
     }
 
+    protected AttributeSplitSuggestion getBestSplitSuggestion(int attIndex,
+      SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly) {
+      AttributeClassObserver obs = this.attributeObservers.get(attIndex);
+      return obs != null ? obs.getBestEvaluatedSplitSuggestion(criterion,
+	preSplitDist, attIndex, binaryOnly) : null;
+    }
+
     public void disableAttribute(int attIndex) {
       this.attributeObservers.set(attIndex,
 	new NullAttributeClassObserver());
@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import com.yahoo.labs.samoa.instances.Instance;
 import com.github.javacliparser.FlagOption;
@@ -122,6 +123,10 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 	public FlagOption learningRatioConstOption = new FlagOption(
 			"learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+	public IntOption parallelSplitThresholdOption = new IntOption(
+			"parallelSplitThreshold", 'P', "Number of attributes above which they are evaluated in parallel for a split, 0 to always evaluate them serially.",
+			0, 0, Integer.MAX_VALUE);
+
 	//endregion ================ OPTIONS ================
 
 	//region ================ CLASSES ================
@@ -328,24 +333,39 @@ public class FIMTDD extends AbstractClassifier implements Regressor {
 			// Set the nodeStatistics up as the preSplitDistribution, rather than the observedClassDistribution
 			double[] nodeSplitDist = new double[] {examplesSeen, sumOfValues, sumOfSquares};
 
-			for (int i = 0; i < this.attributeObservers.size(); i++) {
-				FIMTDDNumericAttributeClassObserver obs = this.attributeObservers.get(i);
-				if (obs != null) {
-
-					// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
-					AttributeSplitSuggestion bestSuggestion = null;
-					if (obs instanceof FIMTDDNumericAttributeClassObserver) {
-						bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, i, true);
-					}
-
-					if (bestSuggestion != null) {
-						bestSuggestions.add(bestSuggestion);
-					}
+			AttributeSplitSuggestion[] attributeSuggestions = new AttributeSplitSuggestion[this.attributeObservers.size()];
+			if (tree.parallelSplitThresholdOption.getValue() > 0
+					&& attributeSuggestions.length > tree.parallelSplitThresholdOption.getValue()) {
+				// each observer is evaluated by a single thread, and the
+				// suggestions are kept in the order of the attributes
+				IntStream.range(0, attributeSuggestions.length)
+						.parallel()
+						.forEach(i -> attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, nodeSplitDist));
+			} else {
+				for (int i = 0; i < attributeSuggestions.length; i++) {
+					attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, nodeSplitDist);
+				}
+			}
+			for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+				if (bestSuggestion != null) {
+					bestSuggestions.add(bestSuggestion);
 				}
 			}
 			return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
 		}
 
+		/**
+		 * Return the best split suggestion for an attribute, or null if there is none
+		 */
+		protected AttributeSplitSuggestion getBestSplitSuggestion(int attIndex, SplitCriterion criterion, double[] nodeSplitDist) {
+			FIMTDDNumericAttributeClassObserver obs = this.attributeObservers.get(attIndex);
+			// AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
+			if (obs instanceof FIMTDDNumericAttributeClassObserver) {
+				return obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, attIndex, true);
+			}
+			return null;
+		}
+
 		/**
 		 * Retrieve the class votes using the perceptron learner
 		 */
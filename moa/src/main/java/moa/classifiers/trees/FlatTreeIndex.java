@@ -0,0 +1,285 @@
+/*
+ *    FlatTreeIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.trees.HoeffdingTree.Node;
+import moa.classifiers.trees.HoeffdingTree.SplitNode;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Flat index of the split nodes of a Hoeffding tree, used to route instances
+ * to their leaves without following node references or allocating a
+ * FoundNode.
+ *
+ * The split nodes are stored in parallel arrays holding the attribute and
+ * value of their test and the offset of their children in a shared array of
+ * child references. The places where routing can stop, that is the leaves,
+ * the empty branches and the split nodes themselves for instances missing
+ * the value of their attribute, are numbered as slots, which give the node
+ * found there, its parent and the branch of the parent. The nodes of the tree
+ * remain the learning layer: the index only refers to them, and it must be
+ * built again whenever the tree changes.
+ *
+ * Split tests other than the numeric binary, nominal binary and nominal
+ * multiway tests are called through their branchForInstance method.
+ */
+public class FlatTreeIndex {
+
+    protected static final byte NUMERIC_BINARY_TEST = 0;
+
+    protected static final byte NOMINAL_BINARY_TEST = 1;
+
+    protected static final byte NOMINAL_MULTIWAY_TEST = 2;
+
+    protected static final byte OTHER_TEST = 3;
+
+    /** The type of the test of every split node. */
+    protected byte[] testTypes;
+
+    /** The attribute index of the test of every split node. */
+    protected int[] testAttributes;
+
+    /** The split value of the test of every split node, or the nominal value for binary nominal tests. */
+    protected double[] testValues;
+
+    /** Whether instances equal to the split value take the first branch, for numeric tests. */
+    protected boolean[] equalsPassesTests;
+
+    /** The tests of the split nodes of type OTHER_TEST, null for the others. */
+    protected InstanceConditionalTest[] otherTests;
+
+    /** The offset of the children of every split node in the children array. */
+    protected int[] childOffsets;
+
+    /** The number of children of every split node. */
+    protected int[] numChildren;
+
+    /** The slot where routing stops at every split node. */
+    protected int[] splitSlots;
+
+    /**
+     * The children of the split nodes: the index of split node children, and
+     * -1 - slot for the other children.
+     */
+    protected int[] children;
+
+    /** The node found at every slot, null for empty branches. */
+    protected Node[] slotNodes;
+
+    /** The parent of the node found at every slot. */
+    protected SplitNode[] slotParents;
+
+    /** The branch of the parent of the node found at every slot. */
+    protected int[] slotBranches;
+
+    /** The root, as a split node index, or -1 - slot if it is a leaf. */
+    protected int root;
+
+    /** The number of split nodes filled while building the index. */
+    protected int numSplitNodes;
+
+    /** The number of children filled while building the index. */
+    protected int numBranches;
+
+    /** The number of slots filled while building the index. */
+    protected int numSlots;
+
+    /**
+     * Builds the index of a tree.
+     *
+     * @param treeRoot the root of the tree
+     */
+    public FlatTreeIndex(Node treeRoot) {
+        List<SplitNode> splitNodes = new ArrayList<SplitNode>();
+        collectSplitNodes(treeRoot, splitNodes);
+        int numSplits = splitNodes.size();
+        int numBranches = 0;
+        for (SplitNode splitNode : splitNodes) {
+            numBranches += splitNode.numChildren();
+        }
+        // the arrays are filled in preorder, from the root
+        this.testTypes = new byte[numSplits];
+        this.testAttributes = new int[numSplits];
+        this.testValues = new double[numSplits];
+        this.equalsPassesTests = new boolean[numSplits];
+        this.otherTests = new InstanceConditionalTest[numSplits];
+        this.childOffsets = new int[numSplits];
+        this.numChildren = new int[numSplits];
+        this.splitSlots = new int[numSplits];
+        this.children = new int[numBranches];
+        this.slotNodes = new Node[numSplits + numBranches + 1];
+        this.slotParents = new SplitNode[this.slotNodes.length];
+        this.slotBranches = new int[this.slotNodes.length];
+        if (treeRoot instanceof SplitNode) {
+            this.root = addSplitNode((SplitNode) treeRoot, null, -1);
+        } else {
+            this.root = -1 - addSlot(treeRoot, null, -1);
+        }
+    }
+
+    /**
+     * Routes an instance down the tree.
+     *
+     * @param inst the instance to route
+     * @return the slot where routing stops, or -1 if the instance takes a
+     * branch that the split node has not created yet
+     */
+    public int filterInstanceToSlot(Instance inst) {
+        int node = this.root;
+        while (node >= 0) {
+            int branch = branchForInstance(node, inst);
+            if (branch < 0) {
+                return this.splitSlots[node];
+            }
+            if (branch >= this.numChildren[node]) {
+                return -1;
+            }
+            node = this.children[this.childOffsets[node] + branch];
+        }
+        return -1 - node;
+    }
+
+    /**
+     * Gets the node found at a slot.
+     *
+     * @param slot the slot
+     * @return the node, or null if the slot is an empty branch
+     */
+    public Node getNode(int slot) {
+        return this.slotNodes[slot];
+    }
+
+    /**
+     * Gets the parent of the node found at a slot.
+     *
+     * @param slot the slot
+     * @return the parent, or null for the root
+     */
+    public SplitNode getParent(int slot) {
+        return this.slotParents[slot];
+    }
+
+    /**
+     * Gets the branch of the parent of the node found at a slot.
+     *
+     * @param slot the slot
+     * @return the branch, or -1 for the root
+     */
+    public int getParentBranch(int slot) {
+        return this.slotBranches[slot];
+    }
+
+    /**
+     * Gets the number of split nodes in the index.
+     *
+     * @return the number of split nodes
+     */
+    public int numSplitNodes() {
+        return this.numSplitNodes;
+    }
+
+    protected int branchForInstance(int node, Instance inst) {
+        int attIndex = this.testAttributes[node];
+        switch (this.testTypes[node]) {
+            case NUMERIC_BINARY_TEST: {
+                if (inst.isMissing(attIndex)) {
+                    return -1;
+                }
+                double v = inst.valueInputAttribute(attIndex);
+                if (v == this.testValues[node]) {
+                    return this.equalsPassesTests[node] ? 0 : 1;
+                }
+                return v < this.testValues[node] ? 0 : 1;
+            }
+            case NOMINAL_BINARY_TEST: {
+                int instAttIndex = attIndex < inst.classIndex() ? attIndex : attIndex + 1;
+                return inst.isMissing(instAttIndex) ? -1
+                        : ((int) inst.value(instAttIndex) == (int) this.testValues[node] ? 0 : 1);
+            }
+            case NOMINAL_MULTIWAY_TEST:
+                return inst.isMissing(attIndex) ? -1 : (int) inst.value(attIndex);
+            default:
+                return this.otherTests[node].branchForInstance(inst);
+        }
+    }
+
+    protected void setTest(int node, InstanceConditionalTest splitTest) {
+        // subclasses of the tests may change their behaviour, so only the
+        // classes themselves are read into the arrays
+        if (splitTest.getClass() == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest test = (NumericAttributeBinaryTest) splitTest;
+            this.testTypes[node] = NUMERIC_BINARY_TEST;
+            this.testAttributes[node] = test.getAttsTestDependsOn()[0];
+            this.testValues[node] = test.getSplitValue();
+            this.equalsPassesTests[node] = test.getEqualsPassesTest();
+        } else if (splitTest.getClass() == NominalAttributeBinaryTest.class) {
+            NominalAttributeBinaryTest test = (NominalAttributeBinaryTest) splitTest;
+            this.testTypes[node] = NOMINAL_BINARY_TEST;
+            this.testAttributes[node] = test.getAttsTestDependsOn()[0];
+            this.testValues[node] = test.getSplitValue();
+        } else if (splitTest.getClass() == NominalAttributeMultiwayTest.class) {
+            this.testTypes[node] = NOMINAL_MULTIWAY_TEST;
+            this.testAttributes[node] = splitTest.getAttsTestDependsOn()[0];
+        } else {
+            this.testTypes[node] = OTHER_TEST;
+            this.otherTests[node] = splitTest;
+        }
+    }
+
+    protected int addSplitNode(SplitNode splitNode, SplitNode parent, int parentBranch) {
+        int node = this.numSplitNodes++;
+        setTest(node, splitNode.getSplitTest());
+        this.splitSlots[node] = addSlot(splitNode, parent, parentBranch);
+        int childOffset = this.numBranches;
+        this.childOffsets[node] = childOffset;
+        this.numChildren[node] = splitNode.numChildren();
+        this.numBranches += splitNode.numChildren();
+        for (int branch = 0; branch < splitNode.numChildren(); branch++) {
+            Node child = splitNode.getChild(branch);
+            this.children[childOffset + branch] = child instanceof SplitNode
+                    ? addSplitNode((SplitNode) child, splitNode, branch)
+                    : -1 - addSlot(child, splitNode, branch);
+        }
+        return node;
+    }
+
+    protected int addSlot(Node node, SplitNode parent, int parentBranch) {
+        int slot = this.numSlots++;
+        this.slotNodes[slot] = node;
+        this.slotParents[slot] = parent;
+        this.slotBranches[slot] = parentBranch;
+        return slot;
+    }
+
+    protected static void collectSplitNodes(Node node, List<SplitNode> splitNodes) {
+        if (node instanceof SplitNode) {
+            SplitNode splitNode = (SplitNode) node;
+            splitNodes.add(splitNode);
+            for (int i = 0; i < splitNode.numChildren(); i++) {
+                collectSplitNodes(splitNode.getChild(i), splitNodes);
+            }
+        }
+    }
+}
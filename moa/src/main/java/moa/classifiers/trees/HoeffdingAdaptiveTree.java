@@ -30,6 +30,7 @@ import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.driftdetection.ADWIN;
 import moa.core.DoubleVector;
 import moa.core.MiscUtils;
+import moa.core.SizeOf;
 import moa.core.Utils;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -60,6 +61,12 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
     public String getPurposeString() {
         return "Hoeffding Adaptive Tree for evolving data streams that uses ADWIN to replace branches for new ones.";
     }
+
+    public HoeffdingAdaptiveTree() {
+        // instances reach several leaves through the alternate trees, which
+        // the flat index cannot route
+        this.flatIndexOption = null;
+    }
     
  /*   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
             "leafprediction", 'l', "Leaf prediction to use.", new String[]{
@@ -122,7 +129,38 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             }
             return byteSize;
         }
+
+        @Override
+        public long estimateByteSize() {
+            // the fields and the random number generator
+            return super.estimateByteSize() + 3 * SizeOf.REFERENCE + 8
+                    + SizeOf.estimateObjectSize(2, 8);
+        }
+
+        @Override
+        public long estimateByteSizeIncludingSubtree() {
+            long byteSize = super.estimateByteSizeIncludingSubtree();
+            if (alternateTree != null) {
+                byteSize = SizeOf.addEstimates(byteSize,
+                        alternateTree.estimateByteSizeIncludingSubtree());
+            }
+            return SizeOf.addEstimates(byteSize,
+                    SizeOf.estimateByteSize(estimationErrorWeight));
+        }
         
+        @Override
+        public Node copy() {
+            AdaSplitNode copy = (AdaSplitNode) super.copy();
+            if (this.alternateTree != null) {
+                copy.alternateTree = this.alternateTree.copy();
+            }
+            if (this.estimationErrorWeight != null) {
+                copy.estimationErrorWeight = this.estimationErrorWeight.copy();
+            }
+            copy.classifierRandom = MiscUtils.copyRandom(this.classifierRandom);
+            return copy;
+        }
+
         public AdaSplitNode(InstanceConditionalTest splitTest,
                 double[] classObservations, int size) {
             super(splitTest, classObservations, size);
@@ -322,6 +360,24 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             return byteSize;
         }
 
+        @Override
+        public long estimateByteSize() {
+            // the fields and the random number generator
+            return SizeOf.addEstimates(super.estimateByteSize() + 2 * SizeOf.REFERENCE
+                    + 8 + SizeOf.estimateObjectSize(2, 8),
+                    SizeOf.estimateByteSize(estimationErrorWeight));
+        }
+
+        @Override
+        public Node copy() {
+            AdaLearningNode copy = (AdaLearningNode) super.copy();
+            if (this.estimationErrorWeight != null) {
+                copy.estimationErrorWeight = this.estimationErrorWeight.copy();
+            }
+            copy.classifierRandom = MiscUtils.copyRandom(this.classifierRandom);
+            return copy;
+        }
+
         public AdaLearningNode(double[] initialClassObservations) {
             super(initialClassObservations);
             this.classifierRandom = new Random(this.randomSeed);
@@ -442,6 +498,11 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
 
     protected int switchedAlternateTrees;
 
+    @Override
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(HoeffdingAdaptiveTree.class);
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         // IDEA: to choose different learning nodes depending on predictionOption
@@ -478,6 +539,12 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         return nodes.toArray(new FoundNode[nodes.size()]);
     }
 
+    @Override
+    protected boolean votesFromLeaves() {
+        // the votes are summed over all the leaves an instance reaches
+        return false;
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
@@ -19,12 +19,14 @@
  */
 package moa.classifiers.trees;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
@@ -34,6 +36,7 @@ import moa.capabilities.CapabilitiesHandler;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
 import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
@@ -44,6 +47,7 @@ import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserve
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.SizeOf;
@@ -87,6 +91,9 @@ import com.yahoo.labs.samoa.instances.Instance;
  * ties</li> <li> -b : Only allow binary splits</li> <li> -z : Stop growing as
  * soon as memory limit is hit</li> <li> -r : Disable poor attributes</li> <li>
  * -p : Disable pre-pruning</li> 
+ *  <li> -f : Route instances through a flat index of the split nodes</li>
+ *  <li> -P : Number of attributes above which they are evaluated in parallel
+ * for a split, 0 to always evaluate them serially</li>
  *  <li> -l : Leaf prediction to use: MajorityClass (MC), Naive Bayes (NB) or NaiveBayes
  * adaptive (NBAdaptive).</li>
  *  <li> -q : The number of instances a leaf should observe before
@@ -97,7 +104,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @version $Revision: 7 $
  */
 public class HoeffdingTree extends AbstractClassifier implements MultiClassClassifier,
-                                                                 CapabilitiesHandler {
+                                                                 CapabilitiesHandler, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -167,6 +174,14 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption flatIndexOption = new FlagOption("flatIndex", 'f',
+            "Route instances through a flat index of the split nodes (not available in HoeffdingAdaptiveTree).");
+
+    public IntOption parallelSplitThresholdOption = new IntOption(
+            "parallelSplitThreshold", 'P',
+            "Number of attributes above which they are evaluated in parallel for a split, 0 to always evaluate them serially.",
+            0, 0, Integer.MAX_VALUE);
+
     public static class FoundNode {
 
         public Node node;
@@ -200,6 +215,30 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return calcByteSize();
         }
 
+        public long estimateByteSize() {
+            return SizeOf.estimateObjectSize(1, 0)
+                    + this.observedClassDistribution.estimateByteSize();
+        }
+
+        public long estimateByteSizeIncludingSubtree() {
+            return estimateByteSize();
+        }
+
+        /**
+         * Copies the node, with its subtree for split nodes, without
+         * serialising it. Arrays that nodes fill once when creating them are
+         * shared; subclasses with fields holding other mutable objects
+         * override this method to copy them.
+         *
+         * @return the copy of the node
+         */
+        @Override
+        public Node copy() {
+            Node copy = (Node) shallowCopy();
+            copy.observedClassDistribution = this.observedClassDistribution.copy();
+            return copy;
+        }
+
         public boolean isLeaf() {
             return true;
         }
@@ -278,6 +317,36 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             return byteSize;
         }
 
+        @Override
+        public long estimateByteSize() {
+            // the split tests only hold a few primitive values
+            return super.estimateByteSize() + SizeOf.estimateObjectSize(2, 0)
+                    + SizeOf.estimateObjectSize(1, 8)
+                    + SizeOf.estimateArraySize(this.children.size(), SizeOf.REFERENCE)
+                    + SizeOf.estimateObjectSize(1, 16);
+        }
+
+        @Override
+        public long estimateByteSizeIncludingSubtree() {
+            long byteSize = estimateByteSize();
+            for (Node child : this.children) {
+                if (child != null) {
+                    byteSize = SizeOf.addEstimates(byteSize,
+                            child.estimateByteSizeIncludingSubtree());
+                }
+            }
+            return byteSize;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Node copy() {
+            // split tests are not modified once created, so they are shared
+            SplitNode copy = (SplitNode) super.copy();
+            copy.children = (AutoExpandVector<Node>) this.children.copy();
+            return copy;
+        }
+
         @Override
         public double[] getObservedClassDistributionAtLeavesReachableThroughThisNode() {
             // Start a new DoubleVector with 0 in all positions.
@@ -434,6 +503,20 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     + SizeOf.fullSizeOf(this.attributeObservers);
         }
 
+        @Override
+        public long estimateByteSize() {
+            return SizeOf.addEstimates(super.estimateByteSize() + 16,
+                    this.attributeObservers.estimateByteSize());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Node copy() {
+            ActiveLearningNode copy = (ActiveLearningNode) super.copy();
+            copy.attributeObservers = (AutoExpandVector<AttributeClassObserver>) this.attributeObservers.copy();
+            return copy;
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             if (this.isInitialized == false) {
@@ -467,7 +550,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         public AttributeSplitSuggestion[] getBestSplitSuggestions(
                 SplitCriterion criterion, HoeffdingTree ht) {
-            List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<AttributeSplitSuggestion>();
+            List<AttributeSplitSuggestion> bestSuggestions = new ArrayList<AttributeSplitSuggestion>(
+                    this.attributeObservers.size() + 1);
             double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
             if (!ht.noPrePruneOption.isSet()) {
                 // add null split as an option
@@ -476,19 +560,35 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                         preSplitDist,
                         new double[][]{preSplitDist})));
             }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
+            boolean binaryOnly = ht.binarySplitsOption.isSet();
+            AttributeSplitSuggestion[] attributeSuggestions = new AttributeSplitSuggestion[this.attributeObservers.size()];
+            if ((ht.parallelSplitThresholdOption.getValue() > 0)
+                    && (attributeSuggestions.length > ht.parallelSplitThresholdOption.getValue())) {
+                // each observer is evaluated by a single thread, and the
+                // suggestions are kept in the order of the attributes
+                IntStream.range(0, attributeSuggestions.length)
+                        .parallel()
+                        .forEach(i -> attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly));
+            } else {
+                for (int i = 0; i < attributeSuggestions.length; i++) {
+                    attributeSuggestions[i] = getBestSplitSuggestion(i, criterion, preSplitDist, binaryOnly);
+                }
+            }
+            for (AttributeSplitSuggestion bestSuggestion : attributeSuggestions) {
+                if (bestSuggestion != null) {
+                    bestSuggestions.add(bestSuggestion);
                 }
             }
             return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
         }
 
+        protected AttributeSplitSuggestion getBestSplitSuggestion(int attIndex,
+                SplitCriterion criterion, double[] preSplitDist, boolean binaryOnly) {
+            AttributeClassObserver obs = this.attributeObservers.get(attIndex);
+            return obs != null ? obs.getBestEvaluatedSplitSuggestion(criterion,
+                    preSplitDist, attIndex, binaryOnly) : null;
+        }
+
         public void disableAttribute(int attIndex) {
             this.attributeObservers.set(attIndex,
                     new NullAttributeClassObserver());
@@ -511,6 +611,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    /** The index routing instances when flatIndexOption is set, built again after the tree changes. */
+    protected transient FlatTreeIndex flatTreeIndex;
+
     public long calcByteSize() {
         long size = SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -519,6 +622,77 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return size;
     }
 
+    /**
+     * Estimates the size of the tree from the sizes the nodes and their
+     * attribute observers keep account of, which is much cheaper than
+     * calcByteSize().
+     *
+     * @return the estimated size in bytes, or -1 if an attribute observer
+     * cannot estimate its size
+     */
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateObjectSize(24, 48);
+        if (this.treeRoot != null) {
+            size = SizeOf.addEstimates(size,
+                    this.treeRoot.estimateByteSizeIncludingSubtree());
+        }
+        return size;
+    }
+
+    /**
+     * Copies the tree node by node when canCopyByNodes() allows it, and
+     * by serialising it otherwise.
+     *
+     * @return the copy of the tree
+     */
+    @Override
+    public Classifier copy() {
+        if (canCopyByNodes()) {
+            HoeffdingTree copy = (HoeffdingTree) cloneWithOptions();
+            if (this.treeRoot != null) {
+                copy.treeRoot = this.treeRoot.copy();
+            }
+            // the index of this tree points at the nodes of this tree
+            copy.flatTreeIndex = null;
+            return copy;
+        }
+        return super.copy();
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.maxByteSizeOption = copyOption(this.maxByteSizeOption);
+        this.numericEstimatorOption = copyOption(this.numericEstimatorOption);
+        this.nominalEstimatorOption = copyOption(this.nominalEstimatorOption);
+        this.memoryEstimatePeriodOption = copyOption(this.memoryEstimatePeriodOption);
+        this.gracePeriodOption = copyOption(this.gracePeriodOption);
+        this.splitCriterionOption = copyOption(this.splitCriterionOption);
+        this.splitConfidenceOption = copyOption(this.splitConfidenceOption);
+        this.tieThresholdOption = copyOption(this.tieThresholdOption);
+        this.binarySplitsOption = copyOption(this.binarySplitsOption);
+        this.stopMemManagementOption = copyOption(this.stopMemManagementOption);
+        this.removePoorAttsOption = copyOption(this.removePoorAttsOption);
+        this.noPrePruneOption = copyOption(this.noPrePruneOption);
+        this.flatIndexOption = copyOption(this.flatIndexOption);
+        this.parallelSplitThresholdOption = copyOption(this.parallelSplitThresholdOption);
+        this.leafpredictionOption = copyOption(this.leafpredictionOption);
+        this.nbThresholdOption = copyOption(this.nbThresholdOption);
+    }
+
+    /**
+     * Whether copy() can copy this tree node by node, that is whether the
+     * fields of the tree hold nothing but primitives, options and nodes, and
+     * the nodes copy everything they hold. Subclasses that meet this
+     * override the method for their own class.
+     *
+     * @return true if the tree can be copied node by node
+     */
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(HoeffdingTree.class);
+    }
+
     public int getNodeCount() {
         return this.decisionNodeCount + this.activeLeafNodeCount + this.inactiveLeafNodeCount;
     }
@@ -542,6 +716,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.flatTreeIndex = null;
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
         }
@@ -553,12 +728,25 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
         }
-        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
-        Node leafNode = foundNode.node;
+        Node leafNode;
+        SplitNode parent;
+        int parentBranch;
+        int slot = useFlatIndex() ? getFlatTreeIndex().filterInstanceToSlot(inst) : -1;
+        if (slot >= 0) {
+            leafNode = this.flatTreeIndex.getNode(slot);
+            parent = this.flatTreeIndex.getParent(slot);
+            parentBranch = this.flatTreeIndex.getParentBranch(slot);
+        } else {
+            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+            leafNode = foundNode.node;
+            parent = foundNode.parent;
+            parentBranch = foundNode.parentBranch;
+        }
         if (leafNode == null) {
             leafNode = newLearningNode();
-            foundNode.parent.setChild(foundNode.parentBranch, leafNode);
+            parent.setChild(parentBranch, leafNode);
             this.activeLeafNodeCount++;
+            treeChanged();
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
@@ -569,8 +757,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 double weightSeen = activeLearningNode.getWeightSeen();
                 if (weightSeen
                         - activeLearningNode.getWeightSeenAtLastSplitEvaluation() >= this.gracePeriodOption.getValue()) {
-                    attemptToSplit(activeLearningNode, foundNode.parent,
-                            foundNode.parentBranch);
+                    attemptToSplit(activeLearningNode, parent, parentBranch);
                     activeLearningNode.setWeightSeenAtLastSplitEvaluation(weightSeen);
                 }
             }
@@ -584,19 +771,148 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
-            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
-                    null, -1);
-            Node leafNode = foundNode.node;
-            if (leafNode == null) {
-                leafNode = foundNode.parent;
-            }
-            return leafNode.getClassVotes(inst, this);
+            return filterInstanceToVotingNode(inst).getClassVotes(inst, this);
           } else {
             int numClasses = inst.dataset().numClasses();
             return new double[numClasses];
           }
     }
 
+    /**
+     * Gets the node voting for an instance: the leaf it reaches, or the split
+     * node whose branch for the instance does not exist yet.
+     *
+     * @param inst the instance
+     * @return the voting node
+     */
+    protected Node filterInstanceToVotingNode(Instance inst) {
+        if (useFlatIndex()) {
+            FlatTreeIndex index = getFlatTreeIndex();
+            int slot = index.filterInstanceToSlot(inst);
+            if (slot >= 0) {
+                Node leafNode = index.getNode(slot);
+                if (leafNode == null) {
+                    leafNode = index.getParent(slot);
+                }
+                return leafNode;
+            }
+        }
+        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
+                null, -1);
+        Node leafNode = foundNode.node;
+        if (leafNode == null) {
+            leafNode = foundNode.parent;
+        }
+        return leafNode;
+    }
+
+    @Override
+    public void getVotesForInstances(Instance[] insts, int from, int to,
+            double[][] votes) {
+        if (this.treeRoot == null || !votesFromLeaves()) {
+            for (int i = from; i < to; i++) {
+                votes[i] = getVotesForInstance(insts[i]);
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            getClassVotes(filterInstanceToVotingNode(insts[i]), insts[i], votes, i);
+        }
+    }
+
+    /**
+     * Writes the votes of a node for an instance into a row of a batch of
+     * votes, as its getClassVotes method would give them. The votes of the
+     * node classes of this tree are computed in the row, while the other
+     * nodes, subclasses included, are asked for their votes.
+     *
+     * @param node the voting node
+     * @param inst the instance
+     * @param votes the votes of the batch
+     * @param index the index of the instance in the batch
+     */
+    protected void getClassVotes(Node node, Instance inst, double[][] votes, int index) {
+        Class<?> nodeClass = node.getClass();
+        if (nodeClass == ActiveLearningNode.class || nodeClass == InactiveLearningNode.class
+                || nodeClass == SplitNode.class) {
+            getMajorityClassVotes(node, votes, index);
+        } else if (nodeClass == LearningNodeNB.class) {
+            if (((LearningNodeNB) node).getWeightSeen() >= this.nbThresholdOption.getValue()) {
+                getNaiveBayesVotes((ActiveLearningNode) node, inst, votes, index);
+            } else {
+                getMajorityClassVotes(node, votes, index);
+            }
+        } else if (nodeClass == LearningNodeNBAdaptive.class) {
+            LearningNodeNBAdaptive leaf = (LearningNodeNBAdaptive) node;
+            if (leaf.mcCorrectWeight > leaf.nbCorrectWeight) {
+                getMajorityClassVotes(node, votes, index);
+            } else {
+                getNaiveBayesVotes(leaf, inst, votes, index);
+            }
+        } else {
+            votes[index] = node.getClassVotes(inst, this);
+        }
+    }
+
+    protected static void getMajorityClassVotes(Node node, double[][] votes, int index) {
+        DoubleVector classDist = node.observedClassDistribution;
+        double[] row = votesRow(votes, index, classDist.numValues());
+        for (int i = 0; i < row.length; i++) {
+            row[i] = classDist.getValue(i);
+        }
+    }
+
+    protected static void getNaiveBayesVotes(ActiveLearningNode node, Instance inst,
+            double[][] votes, int index) {
+        NaiveBayes.doNaiveBayesPrediction(inst, node.observedClassDistribution,
+                node.attributeObservers,
+                votesRow(votes, index, node.observedClassDistribution.numValues()));
+    }
+
+    /**
+     * Gets whether the votes of a batch can be read from the voting nodes, as
+     * getVotesForInstance of this class reads them. Subclasses overriding
+     * getVotesForInstance override this to return false, so that their trees
+     * get the votes of a batch one instance at a time.
+     *
+     * @return whether the votes can be read from the voting nodes
+     */
+    protected boolean votesFromLeaves() {
+        return true;
+    }
+
+    /**
+     * Gets whether instances are routed through the flat index. Subclasses
+     * whose trees the index cannot route set flatIndexOption to null.
+     *
+     * @return whether the flat index is used
+     */
+    protected boolean useFlatIndex() {
+        return this.flatIndexOption != null && this.flatIndexOption.isSet();
+    }
+
+    /**
+     * Gets the flat index of the split nodes, building it if the tree changed
+     * since it was last built.
+     *
+     * @return the index
+     */
+    protected FlatTreeIndex getFlatTreeIndex() {
+        if (this.flatTreeIndex == null) {
+            this.flatTreeIndex = new FlatTreeIndex(this.treeRoot);
+        }
+        return this.flatTreeIndex;
+    }
+
+    /**
+     * Discards the flat index of the split nodes. Every method replacing a
+     * node of the tree calls it, and so must subclasses that change the tree
+     * in their own methods.
+     */
+    protected void treeChanged() {
+        this.flatTreeIndex = null;
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return new Measurement[]{
@@ -731,6 +1047,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    treeChanged();
                 }
                 // manage memory
                 enforceTrackerLimit();
@@ -836,6 +1153,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
         this.activeLeafNodeCount--;
         this.inactiveLeafNodeCount++;
+        treeChanged();
     }
 
     protected void activateLearningNode(InactiveLearningNode toActivate,
@@ -848,6 +1166,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         }
         this.activeLeafNodeCount++;
         this.inactiveLeafNodeCount--;
+        treeChanged();
     }
 
     protected FoundNode[] findLearningNodes() {
@@ -26,6 +26,7 @@ import moa.classifiers.Classifier;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.classifiers.trees.HoeffdingTree;
+import moa.core.SizeOf;
 import moa.options.ClassOption;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -65,6 +66,12 @@ public class HoeffdingTreeClassifLeaves extends HoeffdingTree {
                 this.classifier = cl.copy();
             }
         }
+
+        @Override
+        public long estimateByteSize() {
+            return SizeOf.addEstimates(super.estimateByteSize() + SizeOf.REFERENCE,
+                    SizeOf.estimateByteSize(this.classifier));
+        }
 	
         @Override
         public double[] getClassVotes(Instance inst, HoeffdingTree ht) {
@@ -180,6 +187,7 @@ public class HoeffdingTreeClassifLeaves extends HoeffdingTree {
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    treeChanged();
                 }
                 // manage memory
                 enforceTrackerLimit();
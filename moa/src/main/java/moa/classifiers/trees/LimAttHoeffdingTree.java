@@ -21,6 +21,7 @@ package moa.classifiers.trees;
 
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.core.SizeOf;
 import moa.core.Utils;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -81,6 +82,15 @@ public class LimAttHoeffdingTree extends HoeffdingTree {
             super(initialClassObservations);
         }
 
+        @Override
+        public long estimateByteSize() {
+            long size = super.estimateByteSize() + SizeOf.REFERENCE + 4;
+            if ((size >= 0) && (this.listAttributes != null)) {
+                size += SizeOf.estimateArraySize(this.listAttributes.length, 4);
+            }
+            return size;
+        }
+
         public void setlistAttributes(int[] list) {
             this.listAttributes = list;
             this.numAttributes = list.length;
@@ -174,6 +184,11 @@ public class LimAttHoeffdingTree extends HoeffdingTree {
         }
     }
 
+    @Override
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(LimAttHoeffdingTree.class);
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         LearningNode ret;
@@ -21,6 +21,7 @@ package moa.classifiers.trees;
 
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.core.SizeOf;
 import moa.core.Utils;
 import com.yahoo.labs.samoa.instances.Instance;
 
@@ -51,6 +52,15 @@ public class RandomHoeffdingTree extends HoeffdingTree {
             super(initialClassObservations);
         }
 
+        @Override
+        public long estimateByteSize() {
+            long size = super.estimateByteSize() + SizeOf.REFERENCE + 4;
+            if ((size >= 0) && (this.listAttributes != null)) {
+                size += SizeOf.estimateArraySize(this.listAttributes.length, 4);
+            }
+            return size;
+        }
+
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
             this.observedClassDistribution.addToValue((int) inst.classValue(),
@@ -149,6 +159,11 @@ public class RandomHoeffdingTree extends HoeffdingTree {
         this.removePoorAttsOption = null;
     }
 
+    @Override
+    protected boolean canCopyByNodes() {
+        return canCopyFieldByField(RandomHoeffdingTree.class);
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         LearningNode ret;
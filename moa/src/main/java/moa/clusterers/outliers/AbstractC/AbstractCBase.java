@@ -22,17 +22,17 @@
 package moa.clusterers.outliers.AbstractC;
 
 import java.util.ArrayList;
-import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.SlidingWindow;
 
 public abstract class AbstractCBase extends MyBaseOutlierDetector {    
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected SlidingWindow<ISBNode> windowNodes; 
     protected ISBIndex ISB;
     protected int m_WindowSize;
     protected double m_radius;
@@ -115,12 +115,12 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -130,7 +130,7 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -203,9 +203,9 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
         Println(")");
     }
     
-    public void Print_lt_cnt(ArrayList<Integer> lt_cnt) {
-        for (int i = 0; i < lt_cnt.size(); i++) {
-            Print("(" + i + ": " + lt_cnt.get(i) + ") ");
+    public void Print_lt_cnt(ISBNode node) {
+        for (int i = 0; i < node.Get_lt_cnt_size(); i++) {
+            Print("(" + i + ": " + node.lt_cnt[node.lt_start + i] + ") ");
         }
         Println("");
     }
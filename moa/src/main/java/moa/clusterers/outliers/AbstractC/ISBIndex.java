@@ -21,7 +21,7 @@
 
 package moa.clusterers.outliers.AbstractC;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -36,32 +36,47 @@ public class ISBIndex {
     public static class ISBNode {
         public Instance inst;
         public StreamObj obj;
-        public Long id;
-        public ArrayList<Integer> lt_cnt;
+        public long id;
+        // counts of neighbors in the current and next windows, from lt_start
+        public int[] lt_cnt;
+        public int lt_start;
         
         // statistics
         public int nOutlier;
         public int nInlier;
 
-        public ISBNode(Instance inst, StreamObj obj, Long id) {
+        public ISBNode(Instance inst, StreamObj obj, long id) {
             this.inst = inst;
             this.obj = obj;
             this.id = id;
-            lt_cnt = new ArrayList<Integer>();
+            lt_cnt = new int[0];
+            lt_start = 0;
             
             // init statistics
             nOutlier = 0;
             nInlier  = 0;
         }
+        
+        public void Init_lt_cnt(int windowSize) {
+            lt_cnt = new int[windowSize];
+            Arrays.fill(lt_cnt, 1);
+            lt_start = 0;
+        }
+        
+        public int Get_lt_cnt_size() {
+            return lt_cnt.length - lt_start;
+        }
     }
     
     MyMTree mtree;
+    MyMTree.RangeCursor mtreeCursor;
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     double m_Fraction;
     
     public ISBIndex(double radius, double fra) {
         mtree = new MyMTree();
+        mtreeCursor = mtree.newRangeCursor();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_Fraction = fra;
@@ -82,12 +97,12 @@ public class ISBIndex {
         // execute range search at mtree
         StreamObj obj;
         double d;
-        MyMTree.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MyMTree.ResultItem q : query) {
+        int n = mtree.getNearestByRange(node.obj, radius, mtreeCursor);
+        for (int k = 0; k < n; k++) {
             // get next obj found within range
-            obj = q.data;
+            obj = mtreeCursor.getData(k);
             // get distance of obj from query
-            d = q.distance;
+            d = mtreeCursor.getDistance(k);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
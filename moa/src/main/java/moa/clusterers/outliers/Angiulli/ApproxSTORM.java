@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.SlidingWindow;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -35,14 +36,14 @@ import com.yahoo.labs.samoa.instances.Instance;
 
 public class ApproxSTORM extends STORMBase {
     public class ISBNodeAppr extends ISBNode {
-        public Long count_after, count_before;
+        public long count_after, count_before;
         public double fract_before;
         
-        public ISBNodeAppr(Instance inst, StreamObj obj, Long id, int k) {
+        public ISBNodeAppr(Instance inst, StreamObj obj, long id, int k) {
             super(inst, obj, id);
             m_k = k;
-            count_after = 0L;
-            count_before = 0L;
+            count_after = 0;
+            count_before = 0;
             fract_before = 0;
         }
     }
@@ -119,7 +120,7 @@ public class ApproxSTORM extends STORMBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new SlidingWindow<ISBNode>(m_WindowSize + 1);
         // create ISB
         ISB = new ISBIndex(m_radius, m_k);
         // create safe_inliers list
@@ -222,8 +223,8 @@ public class ApproxSTORM extends STORMBase {
         objId++;
         
         // init nodeNew
-        nodeNew.count_after = 1L;
-        nodeNew.count_before = 0L;
+        nodeNew.count_after = 1;
+        nodeNew.count_before = 0;
 
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
@@ -232,7 +233,7 @@ public class ApproxSTORM extends STORMBase {
 
         // process each returned node
         int nSafeInliers;
-        Long count_si_before = 0L;
+        long count_si_before = 0;
         for (ISBSearchResult res : nodes) {
             ISBNodeAppr n = (ISBNodeAppr) res.node;
             if (bTrace) {
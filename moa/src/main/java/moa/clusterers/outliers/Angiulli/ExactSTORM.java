@@ -21,11 +21,11 @@
 package moa.clusterers.outliers.Angiulli;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.SlidingWindow;
+import moa.clusterers.outliers.utils.SortedIdList;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -41,48 +41,28 @@ public class ExactSTORM extends STORMBase {
         // nn_before:
         //   A list that needs O(logn) time for ordered insertion and search.
         //   It must be able to perform a search in the list using e.g. <=.
-        private ArrayList<Long> nn_before;
+        private SortedIdList<Object> nn_before;
         
-        public ISBNodeExact(Instance inst, StreamObj obj, Long id, int k) {
+        public ISBNodeExact(Instance inst, StreamObj obj, long id, int k) {
             super(inst, obj, id);
             m_k = k;
             count_after = 0;
-            nn_before = new ArrayList<Long>();
+            nn_before = new SortedIdList<Object>();
         }
         
-        public void AddPrecNeigh(Long id) {
-            int pos = Collections.binarySearch(nn_before, id);
-            if (pos < 0) {
-                // item does not exist, so add it to the right position
-                nn_before.add(-(pos + 1), id);
-            }
+        public void AddPrecNeigh(long id) {
+            nn_before.add(id, null);
         }
         
-        public int CountPrecNeighs(Long sinceId) {
-            if (nn_before.size() > 0) {
-                // get number of neighs with id >= sinceId
-                int startPos;
-                int pos = Collections.binarySearch(nn_before, sinceId);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.size() - startPos;
-                }
-            }
-            return 0;
+        public int CountPrecNeighs(long sinceId) {
+            // get number of neighs with id >= sinceId
+            return nn_before.countFrom(sinceId);
         }
         
         public void PrintPrecNeighs() {
             Print("      nn_before: ");
-            Iterator it = nn_before.iterator();
-            while (it.hasNext()) {
-                Print((Long)it.next() + " ");
+            for (int i = 0; i < nn_before.size(); i++) {
+                Print(nn_before.getId(i) + " ");
             }
             Println(" ");
         }
@@ -152,7 +132,7 @@ public class ExactSTORM extends STORMBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create fifo
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new SlidingWindow<ISBNode>(m_WindowSize + 1);
         // create ISB
         ISB = new ISBIndex(m_radius, m_k);
         
@@ -32,13 +32,13 @@ public class ISBIndex {
     public abstract static class ISBNode {
         public Instance inst;
         public StreamObj obj;
-        public Long id;
+        public long id;
         
         // statistics
         public int nOutlier;
         public int nInlier;
 
-        public ISBNode(Instance inst, StreamObj obj, Long id) {
+        public ISBNode(Instance inst, StreamObj obj, long id) {
             this.inst = inst;
             this.obj = obj;
             this.id = id;
@@ -50,12 +50,14 @@ public class ISBIndex {
     }
     
     MyMTree mtree;
+    MyMTree.RangeCursor mtreeCursor;
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     int m_k; // k nearest neighbors
     
     public ISBIndex(double radius, int k) {
         mtree = new MyMTree();
+        mtreeCursor = mtree.newRangeCursor();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_k = k;
@@ -76,12 +78,12 @@ public class ISBIndex {
         // execute range search at mtree
         StreamObj obj;
         double d;
-        MyMTree.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MyMTree.ResultItem q : query) {
+        int n = mtree.getNearestByRange(node.obj, radius, mtreeCursor);
+        for (int k = 0; k < n; k++) {
             // get next obj found within range
-            obj = q.data;
+            obj = mtreeCursor.getData(k);
             // get distance of obj from query
-            d = q.distance;
+            d = mtreeCursor.getDistance(k);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
@@ -29,9 +29,12 @@ public class StreamObj implements EuclideanCoordinate, Comparable<StreamObj> {
     public StreamObj(double... values) {
         this.values = values;
 
+        // all the bits of the values, with -0.0 as 0.0 like equals; the
+        // truncated values gave every point in [0,1) the same hash
         int h = 1;
         for (double value : values) {
-            h = 31 * (int) h + (int) value;
+            long bits = Double.doubleToLongBits(value + 0.0);
+            h = 31 * h + (int) (bits ^ (bits >>> 32));
         }
         this.hashCode = h;
     }
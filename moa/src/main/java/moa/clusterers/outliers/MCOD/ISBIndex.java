@@ -20,8 +20,6 @@
 
 package moa.clusterers.outliers.MCOD;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +29,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.clusterers.outliers.utils.SortedIdList;
 
 
 
@@ -40,19 +39,19 @@ public class ISBIndex {
         
         public Instance inst;
         public StreamObj obj;
-        public Long id;
+        public long id;
         public MicroCluster mc;
         public Set<MicroCluster> Rmc;
         public int count_after;
         public NodeType nodeType;
-        private ArrayList<ISBNode> nn_before;
+        private SortedIdList<ISBNode> nn_before;
         
         // statistics
         public int nOutlier;
         public int nInlier;
         
 
-        public ISBNode(Instance inst, StreamObj obj, Long id) {
+        public ISBNode(Instance inst, StreamObj obj, long id) {
             this.inst = inst;
             this.obj  = obj;
             this.id   = id;
@@ -70,7 +69,7 @@ public class ISBIndex {
             this.Rmc         = new TreeSet<MicroCluster>();
             this.count_after = 1;
             this.nodeType    = NodeType.INLIER_PD;
-            this.nn_before   = new ArrayList<ISBNode>();
+            this.nn_before   = new SortedIdList<ISBNode>();
         }
         
         @Override
@@ -83,75 +82,37 @@ public class ISBIndex {
         }
         
         public void AddPrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
-            if (pos < 0) {
-                // item does not exist, so add it to the right position
-                nn_before.add(-(pos + 1), node);
-            }
+            nn_before.add(node.id, node);
         }
         
         public void RemovePrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
-            if (pos >= 0) {
-                // item exists
-                nn_before.remove(pos);
-            }
+            nn_before.remove(node.id);
         }
         
-        public ISBNode GetMinPrecNeigh(Long sinceId) {
-            if (nn_before.size() > 0) {                
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.get(startPos);
-                }
-            }
-            return null;
+        public ISBNode GetMinPrecNeigh(long sinceId) {
+            // get oldest neigh with id >= sinceId
+            return nn_before.getFrom(sinceId);
         }
         
-        public int CountPrecNeighs(Long sinceId) {
-            if (nn_before.size() > 0) {
-                // get number of neighs with id >= sinceId
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.size() - startPos;
-                }
-            }
-            return 0;
+        public int CountPrecNeighs(long sinceId) {
+            // get number of neighs with id >= sinceId
+            return nn_before.countFrom(sinceId);
         }
         
         public List<ISBNode> Get_nn_before() {
-            return nn_before;
+            return nn_before.toList();
         }
     }
     
     MTreeStreamObjects mtree;
+    MTreeStreamObjects.RangeCursor mtreeCursor;
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     int m_k; // k nearest neighbors
     
     public ISBIndex(double radius, int k) {
         mtree = new MTreeStreamObjects();
+        mtreeCursor = mtree.newRangeCursor();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_k = k;
@@ -184,12 +145,12 @@ public class ISBIndex {
         Vector<ISBSearchResult> results = new Vector<ISBSearchResult>();
         StreamObj obj;
         double d;
-        MTreeStreamObjects.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MTreeStreamObjects.ResultItem q : query) {
+        int n = mtree.getNearestByRange(node.obj, radius, mtreeCursor);
+        for (int k = 0; k < n; k++) {
             // get next obj found within range
-            obj = q.data;
+            obj = mtreeCursor.getData(k);
             // get distance of obj from query
-            d = q.distance;
+            d = mtreeCursor.getDistance(k);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
@@ -26,6 +26,7 @@ import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.SlidingWindow;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -64,15 +65,16 @@ public class MCOD extends MCODBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new SlidingWindow<ISBNode>(m_WindowSize + 1);
         // create ISB
         ISB_PD = new ISBIndex(m_radius, m_k);
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
         mtreeMC = new MTreeMicroClusters();
+        mtreeMCCursor = mtreeMC.newRangeCursor();
         // create event queue
-        eventQueue = new EventQueue();
+        eventQueue = new EventQueue(m_WindowSize);
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -292,7 +294,7 @@ public class MCOD extends MCODBase {
     void AddToEventQueue(ISBNode x, ISBNode nodeMinExp) {
         if (bTrace) Println("AddToEventQueue x.id: " + x.id); 
         if (nodeMinExp != null) {
-            Long expTime = GetExpirationTime(nodeMinExp);
+            long expTime = GetExpirationTime(nodeMinExp);
             eventQueue.Insert(x, expTime);
             if (bTrace) {
                 Print("x.nn_before: "); PrintNodeList(x.Get_nn_before());
@@ -305,10 +307,8 @@ public class MCOD extends MCODBase {
     }
     
     void ProcessEventQueue(ISBNode nodeExpired) {
-        EventItem e = eventQueue.FindMin();
-        while ((e != null) && (e.timeStamp <= GetWindowEnd())) {
-            e = eventQueue.ExtractMin();
-            ISBNode x = e.node;
+        while (eventQueue.FindMinTime() <= GetWindowEnd()) {
+            ISBNode x = eventQueue.ExtractMin();
             if (bTrace) Println("Process event queue: check node x: " + x.id);
             // node x must be in window and not in any micro-cluster
             boolean bValid = ( IsNodeIdInWin(x.id) && (x.mc == null) );
@@ -331,7 +331,6 @@ public class MCOD extends MCODBase {
             } else {
                 if (bWarning) Println("Process event queue: node x.id: " + x.id + " is not valid!");
             }
-            e = eventQueue.FindMin();
         }
     }
     
@@ -28,71 +28,43 @@ import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.ExpirationQueue;
+import moa.clusterers.outliers.utils.SlidingWindow;
 
 public abstract class MCODBase extends MyBaseOutlierDetector {    
-    protected static class EventItem implements Comparable<EventItem> {
-        public ISBNode node;
-        public Long timeStamp;
-
-        public EventItem(ISBNode node, Long timeStamp) {
-            this.node = node;
-            this.timeStamp = timeStamp;
-        }
-
-        @Override
-        public int compareTo(EventItem t) {
-            if (this.timeStamp > t.timeStamp) {
-                return +1;
-            } else if (this.timeStamp < t.timeStamp) {
-                return -1;
-            } else {
-                if (this.node.id > t.node.id)
-                    return +1;
-                else if (this.node.id < t.node.id)
-                    return -1;
-            }
-            return 0;
-        }
-    }
-    
     protected static class EventQueue {
-        public TreeSet<EventItem> setEvents;
+        // events are sorted ascending by expiration time, then by node id
+        public ExpirationQueue<ISBNode> events;
 
-        public EventQueue() {
-            setEvents = new TreeSet<EventItem>();
+        public EventQueue(int windowSize) {
+            // pending expiration times span at most one window
+            events = new ExpirationQueue<ISBNode>(windowSize + 1);
         }
         
-        public void Insert(ISBNode node, Long expTime) {
-            setEvents.add(new EventItem(node, expTime));
+        public void Insert(ISBNode node, long expTime) {
+            events.insert(node, node.id, expTime);
         }
         
-        public EventItem FindMin() {
-            if (setEvents.size() > 0) {
-                // events are sorted ascenting by expiration time
-                return setEvents.first();
-            }
-            return null;
+        public long FindMinTime() {
+            // Long.MAX_VALUE if there are no events
+            return events.peekTime();
         }
         
-        public EventItem ExtractMin() {
-            EventItem e = FindMin();
-            if (e != null) {
-                setEvents.remove(e);
-                return e;
-            }
-            return null;
+        public ISBNode ExtractMin() {
+            return events.poll();
         }
     }
     
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected SlidingWindow<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // MTree index of micro-clusters
     protected MTreeMicroClusters mtreeMC;
+    protected MTreeMicroClusters.RangeCursor mtreeMCCursor;
     // set of micro-clusters (for trace)
     protected TreeSet<MicroCluster> setMC;
     // nodes treated as new nodes when a mc removed
@@ -190,12 +162,12 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -205,7 +177,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -222,7 +194,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     @Override
     protected boolean IsNodeIdInWin(long id) {
         int toleranceStart = 1;
-        Long start = GetWindowStart() - toleranceStart;
+        long start = GetWindowStart() - toleranceStart;
         if ( (start <= id) && (id <= GetWindowEnd()) )
             return true;
         else
@@ -286,10 +258,10 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         // create a dummy mc in order to search w.r.t. nodeNew
         MicroCluster dummy = new MicroCluster(nodeNew);
         // query results are returned ascenting by distance
-        MTreeMicroClusters.Query query = mtreeMC.getNearestByRange(dummy, radius);
-        for (MTreeMicroClusters.ResultItem q : query) {            
-            results.add(new SearchResultMC(q.data, q.distance));
-        }        
+        int n = mtreeMC.getNearestByRange(dummy, radius, mtreeMCCursor);
+        for (int k = 0; k < n; k++) {
+            results.add(new SearchResultMC(mtreeMCCursor.getData(k), mtreeMCCursor.getDistance(k)));
+        }
         return results;
     }
     
@@ -356,8 +328,11 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     
     public void PrintEventQueue() {
         Println("event queue: ");
-        for (EventItem n : eventQueue.setEvents) {
-            Printf("  id=%d, exp=%d\n", n.node.id, n.timeStamp);
+        List<ISBNode> nodes = new ArrayList<ISBNode>();
+        List<Long> expTimes = new ArrayList<Long>();
+        eventQueue.events.getItems(nodes, expTimes);
+        for (int i = 0; i < nodes.size(); i++) {
+            Printf("  id=%d, exp=%d\n", nodes.get(i).id, expTimes.get(i));
         }
     }
     
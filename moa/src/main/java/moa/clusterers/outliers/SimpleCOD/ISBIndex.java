@@ -21,8 +21,6 @@
 package moa.clusterers.outliers.SimpleCOD;
 
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,29 +29,30 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import com.yahoo.labs.samoa.instances.Instance;
+import moa.clusterers.outliers.utils.SortedIdList;
 
 public class ISBIndex {    
     public static class ISBNode implements Comparable<ISBNode> {        
         public Instance inst;
         public StreamObj obj;
-        public Long id;
+        public long id;
         public boolean bOutlier;
         public int count_after;
-        private ArrayList<ISBNode> nn_before;
+        private SortedIdList<ISBNode> nn_before;
         
         // statistics
         public int nOutlier;
         public int nInlier;
         
 
-        public ISBNode(Instance inst, StreamObj obj, Long id) {
+        public ISBNode(Instance inst, StreamObj obj, long id) {
             this.inst = inst;
             this.obj  = obj;
             this.id   = id;
             
             this.bOutlier    = false;
             this.count_after = 1;
-            this.nn_before   = new ArrayList<ISBNode>();
+            this.nn_before   = new SortedIdList<ISBNode>();
             
             // init statistics
             nOutlier = 0;
@@ -70,75 +69,37 @@ public class ISBIndex {
         }
         
         public void AddPrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
-            if (pos < 0) {
-                // item does not exist, so add it to the right position
-                nn_before.add(-(pos + 1), node);
-            }
+            nn_before.add(node.id, node);
         }
         
         public void RemovePrecNeigh(ISBNode node) {
-            int pos = Collections.binarySearch(nn_before, node);
-            if (pos >= 0) {
-                // item exists
-                nn_before.remove(pos);
-            }
+            nn_before.remove(node.id);
         }
         
-        public ISBNode GetMinPrecNeigh(Long sinceId) {
-            if (nn_before.size() > 0) {                
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.get(startPos);
-                }
-            }
-            return null;
+        public ISBNode GetMinPrecNeigh(long sinceId) {
+            // get oldest neigh with id >= sinceId
+            return nn_before.getFrom(sinceId);
         }
         
-        public int CountPrecNeighs(Long sinceId) {
-            if (nn_before.size() > 0) {
-                // get number of neighs with id >= sinceId
-                int startPos;
-                ISBNode dummy = new ISBNode(null, null, sinceId);
-                int pos = Collections.binarySearch(nn_before, dummy);
-                if (pos < 0) {
-                    // item does not exist, should insert at position startPos
-                    startPos = -(pos + 1);
-                } else {
-                    // item exists at startPos
-                    startPos = pos;
-                }
-                
-                if (startPos < nn_before.size()) {
-                    return nn_before.size() - startPos;
-                }
-            }
-            return 0;
+        public int CountPrecNeighs(long sinceId) {
+            // get number of neighs with id >= sinceId
+            return nn_before.countFrom(sinceId);
         }
         
         public List<ISBNode> Get_nn_before() {
-            return nn_before;
+            return nn_before.toList();
         }
     }
     
     MyMTree mtree;
+    MyMTree.RangeCursor mtreeCursor;
     Map<Integer, Set<ISBNode>> mapNodes;
     double m_radius;
     int m_k; // k nearest neighbors
     
     public ISBIndex(double radius, int k) {
         mtree = new MyMTree();
+        mtreeCursor = mtree.newRangeCursor();
         mapNodes = new HashMap<Integer, Set<ISBNode>>();
         m_radius = radius;
         m_k = k;
@@ -171,12 +132,12 @@ public class ISBIndex {
         Vector<ISBSearchResult> results = new Vector<ISBSearchResult>();
         StreamObj obj;
         double d;
-        MyMTree.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MyMTree.ResultItem q : query) {
+        int n = mtree.getNearestByRange(node.obj, radius, mtreeCursor);
+        for (int k = 0; k < n; k++) {
             // get next obj found within range
-            obj = q.data;
+            obj = mtreeCursor.getData(k);
             // get distance of obj from query
-            d = q.distance;
+            d = mtreeCursor.getDistance(k);
             // get all nodes referencing obj
             Vector<ISBNode> nodes = MapGetNodes(obj);
             for (int i = 0; i < nodes.size(); i++)
@@ -23,6 +23,7 @@ package moa.clusterers.outliers.SimpleCOD;
 import java.util.Vector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.SlidingWindow;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -60,11 +61,11 @@ public class SimpleCOD extends SimpleCODBase {
         
         objId = FIRST_OBJ_ID; // init object identifier
         // create nodes list of window
-        windowNodes = new Vector<ISBNode>();
+        windowNodes = new SlidingWindow<ISBNode>(m_WindowSize + 1);
         // create ISB
         ISB = new ISBIndex(m_radius, m_k);
         // create event queue
-        eventQueue = new EventQueue();
+        eventQueue = new EventQueue(m_WindowSize);
         
         // init statistics
         m_nBothInlierOutlier = 0;
@@ -120,7 +121,7 @@ public class SimpleCOD extends SimpleCODBase {
     void AddToEventQueue(ISBNode x, ISBNode nodeMinExp) {
         if (bTrace) Println("AddToEventQueue x.id: " + x.id); 
         if (nodeMinExp != null) {
-            Long expTime = GetExpirationTime(nodeMinExp);
+            long expTime = GetExpirationTime(nodeMinExp);
             eventQueue.Insert(x, expTime);
             if (bTrace) {
                 Print("x.nn_before: "); PrintNodeList(x.Get_nn_before());
@@ -133,10 +134,8 @@ public class SimpleCOD extends SimpleCODBase {
     }
     
     void ProcessEventQueue(ISBNode nodeExpired) {
-        EventItem e = eventQueue.FindMin();
-        while ((e != null) && (e.timeStamp <= GetWindowEnd())) {
-            e = eventQueue.ExtractMin();
-            ISBNode x = e.node;
+        while (eventQueue.FindMinTime() <= GetWindowEnd()) {
+            ISBNode x = eventQueue.ExtractMin();
             if (bTrace) Println("Process event queue: check node x: " + x.id);
             // node x must be in window
             if (IsNodeIdInWin(x.id)) {
@@ -159,7 +158,6 @@ public class SimpleCOD extends SimpleCODBase {
             } else {
                 if (bWarning) Println("Process event queue: node x.id: " + x.id + " has expired!");
             }
-            e = eventQueue.FindMin();
         }
     }
     
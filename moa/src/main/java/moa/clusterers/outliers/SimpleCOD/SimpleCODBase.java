@@ -22,72 +22,42 @@ package moa.clusterers.outliers.SimpleCOD;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.Vector;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
+import moa.clusterers.outliers.utils.ExpirationQueue;
+import moa.clusterers.outliers.utils.SlidingWindow;
 
 public abstract class SimpleCODBase extends MyBaseOutlierDetector {    
-    protected static class EventItem implements Comparable<EventItem> {
-        public ISBNode node;
-        public Long timeStamp;
-
-        public EventItem(ISBNode node, Long timeStamp) {
-            this.node = node;
-            this.timeStamp = timeStamp;
-        }
-
-        @Override
-        public int compareTo(EventItem t) {
-            if (this.timeStamp > t.timeStamp) {
-                return +1;
-            } else if (this.timeStamp < t.timeStamp) {
-                return -1;
-            } else {
-                if (this.node.id > t.node.id)
-                    return +1;
-                else if (this.node.id < t.node.id)
-                    return -1;
-            }
-            return 0;
-        }
-    }
-    
     protected static class EventQueue {
-        public TreeSet<EventItem> setEvents;
+        // events are sorted ascending by expiration time, then by node id
+        public ExpirationQueue<ISBNode> events;
 
-        public EventQueue() {
-            setEvents = new TreeSet<EventItem>();
+        public EventQueue(int windowSize) {
+            // pending expiration times span at most one window
+            events = new ExpirationQueue<ISBNode>(windowSize + 1);
         }
         
-        public void Insert(ISBNode node, Long expTime) {
-            setEvents.add(new EventItem(node, expTime));
+        public void Insert(ISBNode node, long expTime) {
+            events.insert(node, node.id, expTime);
         }
         
-        public EventItem FindMin() {
-            if (setEvents.size() > 0) {
-                // events are sorted ascenting by expiration time
-                return setEvents.first();
-            }
-            return null;
+        public long FindMinTime() {
+            // Long.MAX_VALUE if there are no events
+            return events.peekTime();
         }
         
-        public EventItem ExtractMin() {
-            EventItem e = FindMin();
-            if (e != null) {
-                setEvents.remove(e);
-                return e;
-            }
-            return null;
+        public ISBNode ExtractMin() {
+            return events.poll();
         }
     }
     
-    protected static final Long FIRST_OBJ_ID = 1L;
+    protected static final long FIRST_OBJ_ID = 1L;
     
     // object identifier increments with each new data stream object
-    protected Long objId;
+    protected long objId;
     // list used to find expired nodes
-    protected Vector<ISBNode> windowNodes; 
+    protected SlidingWindow<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // index of objects
     protected ISBIndex ISB;
@@ -176,12 +146,12 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
         return sb.toString();
     }
     
-    Long GetWindowEnd() {
+    long GetWindowEnd() {
         return objId - 1;
     }
     
-    Long GetWindowStart() {
-        Long x = GetWindowEnd() - m_WindowSize + 1;
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
         if (x < FIRST_OBJ_ID) 
             x = FIRST_OBJ_ID;
         return x;
@@ -191,7 +161,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
         return (GetWindowEnd() >= FIRST_OBJ_ID + m_WindowSize - 1);
     }
     
-    Long GetExpirationTime(ISBNode node) {
+    long GetExpirationTime(ISBNode node) {
         return node.id + m_WindowSize;
     }
     
@@ -208,7 +178,7 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
     @Override
     protected boolean IsNodeIdInWin(long id) {
         int toleranceStart = 1;
-        Long start = GetWindowStart() - toleranceStart;
+        long start = GetWindowStart() - toleranceStart;
         if ( (start <= id) && (id <= GetWindowEnd()) )
             return true;
         else
@@ -303,8 +273,11 @@ public abstract class SimpleCODBase extends MyBaseOutlierDetector {
     
     public void PrintEventQueue() {
         Println("event queue: ");
-        for (EventItem n : eventQueue.setEvents) {
-            Printf("  id=%d, exp=%d\n", n.node.id, n.timeStamp);
+        List<ISBNode> nodes = new ArrayList<ISBNode>();
+        List<Long> expTimes = new ArrayList<Long>();
+        eventQueue.events.getItems(nodes, expTimes);
+        for (int i = 0; i < nodes.size(); i++) {
+            Printf("  id=%d, exp=%d\n", nodes.get(i).id, expTimes.get(i));
         }
     }
     
@@ -20,6 +20,8 @@
 
 package moa.clusterers.outliers;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import moa.clusterers.outliers.AbstractC.AbstractC;
 import moa.clusterers.outliers.Angiulli.ExactSTORM;
 import moa.clusterers.outliers.MCOD.MCOD;
@@ -27,47 +29,85 @@ import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
 import moa.streams.clustering.RandomRBFGeneratorEvents;
 import com.yahoo.labs.samoa.instances.Instance;
 
+/**
+ * Times the distance-based outlier detectors on the same RandomRBFGeneratorEvents
+ * stream. Arguments: the number of instances (2000 by default), then the names of
+ * the detectors to run (SimpleCOD, MCOD, ExactSTORM and AbstractC by default).
+ * Besides the points per second, the allocation rate of the thread and the
+ * collections during the run are reported.
+ */
 public class TestSpeed {    
     public static void main(String[] args) throws Exception 
     {        
-        int numInstances = 2000;        
-        RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
-        stream.prepareForUse();
-        
-        SimpleCOD scod = new SimpleCOD();   
-        MCOD mcod = new MCOD();        
-        ExactSTORM angiulli = new ExactSTORM();   
-        //DistanceOutliersAppr angiulli = new DistanceOutliersAppr(); 
-        AbstractC abstractC = new AbstractC();        
-        
-        angiulli.queryFreqOption.setValue(1);
-        
-        scod.setModelContext(stream.getHeader());
-        scod.prepareForUse(); 
-        
-        mcod.setModelContext(stream.getHeader());
-        mcod.prepareForUse(); 
-        
-        angiulli.setModelContext(stream.getHeader());
-        angiulli.prepareForUse(); 
-        
-        abstractC.setModelContext(stream.getHeader());
-        abstractC.prepareForUse();
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String[] names = {"SimpleCOD", "MCOD", "ExactSTORM", "AbstractC"};
+        if (args.length > 1) {
+            names = new String[args.length - 1];
+            System.arraycopy(args, 1, names, 0, names.length);
+        }
         
-        Long tmStart = System.currentTimeMillis();
-        
-        int numberSamples = 0;     
-        while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
-            Instance newInst = stream.nextInstance().getData();
+        for (String name : names) {
+            RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+            stream.prepareForUse();
             
-            //scod.processNewInstanceImpl(newInst);  
-            mcod.processNewInstanceImpl(newInst);  
-            //angiulli.processNewInstanceImpl(newInst);  
-            //abstractC.processNewInstanceImpl(newInst); 
+            MyBaseOutlierDetector detector = createDetector(name);
+            detector.setModelContext(stream.getHeader());
+            detector.prepareForUse();
             
-            numberSamples++;
-        }      
-        
-        System.out.println("Total time = " + (System.currentTimeMillis() - tmStart) + " ms");
+            long bytesStart = getAllocatedBytes();
+            long[] gcStart = getCollections();
+            Long tmStart = System.currentTimeMillis();
+            
+            int numberSamples = 0;     
+            while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
+                Instance newInst = stream.nextInstance().getData();
+                detector.processNewInstanceImpl(newInst);
+                numberSamples++;
+            }      
+            
+            long time = System.currentTimeMillis() - tmStart;
+            long bytes = getAllocatedBytes() - bytesStart;
+            long[] gc = getCollections();
+            double seconds = Math.max(time, 1) / 1000.0;
+            System.out.println(name + ": total time = " + time + " ms, "
+                    + String.format("%.0f", numberSamples / seconds) + " points/s, "
+                    + String.format("%.1f", bytes / seconds / (1024 * 1024)) + " MB/s allocated ("
+                    + (bytes / Math.max(numberSamples, 1)) + " bytes/point), "
+                    + (gc[0] - gcStart[0]) + " collections in " + (gc[1] - gcStart[1]) + " ms");
+        }
+    }
+    
+    private static long getAllocatedBytes() {
+        // HotSpot's thread MXBean counts the bytes allocated by a thread
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return 0;
+    }
+    
+    private static long[] getCollections() {
+        long[] collections = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections[0] += Math.max(gc.getCollectionCount(), 0);
+            collections[1] += Math.max(gc.getCollectionTime(), 0);
+        }
+        return collections;
+    }
+    
+    private static MyBaseOutlierDetector createDetector(String name) {
+        if (name.equals("SimpleCOD")) {
+            return new SimpleCOD();
+        } else if (name.equals("MCOD")) {
+            return new MCOD();
+        } else if (name.equals("ExactSTORM")) {
+            ExactSTORM angiulli = new ExactSTORM();
+            angiulli.queryFreqOption.setValue(1);
+            return angiulli;
+        } else if (name.equals("AbstractC")) {
+            return new AbstractC();
+        }
+        throw new IllegalArgumentException("Unknown detector: " + name);
     }
 }
@@ -0,0 +1,251 @@
+/*
+ *    ExpirationQueue.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Queue of items ordered by expiration time, then by id.
+ *
+ * With a count-based sliding window, the pending expiration times all fall in
+ * a range about as wide as the window. The queue keeps one bucket per time in
+ * a ring that covers this range, so inserting an item and extracting the
+ * minimum take constant time, apart from the ordering by id of the items
+ * that expire at the same time. The ring grows if the range of pending times
+ * gets wider than it. Inserting an item with the id and time of a pending
+ * item has no effect, as with a sorted set.
+ *
+ * @param <T> the type of the items
+ */
+public class ExpirationQueue<T> {
+
+    /** The items of every bucket, sorted by id from the head of the bucket. */
+    protected Object[][] bucketItems;
+
+    /** The ids of the items of every bucket. */
+    protected long[][] bucketIds;
+
+    /** The index of the first pending item of every bucket. */
+    protected int[] bucketHeads;
+
+    /** The end of the pending items of every bucket. */
+    protected int[] bucketEnds;
+
+    protected int mask;
+
+    /** No pending item expires before this time. */
+    protected long minTime;
+
+    /** No pending item expires after this time. */
+    protected long maxTime;
+
+    protected int size;
+
+    /**
+     * Creates a queue.
+     *
+     * @param range the expected width of the range of pending times
+     */
+    public ExpirationQueue(int range) {
+        int capacity = 1;
+        while (capacity < range) {
+            capacity <<= 1;
+        }
+        this.bucketItems = new Object[capacity][];
+        this.bucketIds = new long[capacity][];
+        this.bucketHeads = new int[capacity];
+        this.bucketEnds = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Adds an item, unless an item with the same id expires at the same time.
+     *
+     * @param item the item
+     * @param id the id of the item
+     * @param time the expiration time
+     */
+    public void insert(T item, long id, long time) {
+        if (this.size == 0) {
+            this.minTime = time;
+            this.maxTime = time;
+        } else if (time < this.minTime) {
+            ensureRange(time, this.maxTime);
+            this.minTime = time;
+        } else if (time > this.maxTime) {
+            ensureRange(this.minTime, time);
+            this.maxTime = time;
+        }
+
+        int bucket = (int) time & this.mask;
+        if (this.bucketItems[bucket] == null) {
+            this.bucketItems[bucket] = new Object[4];
+            this.bucketIds[bucket] = new long[4];
+        }
+        int head = this.bucketHeads[bucket];
+        int end = this.bucketEnds[bucket];
+        long[] ids = this.bucketIds[bucket];
+        int pos = Arrays.binarySearch(ids, head, end, id);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -(pos + 1);
+        if (end == ids.length) {
+            if (head > 0) {
+                // reclaim the space of the extracted items
+                System.arraycopy(ids, head, ids, 0, end - head);
+                System.arraycopy(this.bucketItems[bucket], head, this.bucketItems[bucket], 0, end - head);
+                Arrays.fill(this.bucketItems[bucket], end - head, end, null);
+                pos -= head;
+                end -= head;
+                head = 0;
+                this.bucketHeads[bucket] = 0;
+            } else {
+                this.bucketIds[bucket] = ids = Arrays.copyOf(ids, 2 * end);
+                this.bucketItems[bucket] = Arrays.copyOf(this.bucketItems[bucket], 2 * end);
+            }
+        }
+        Object[] items = this.bucketItems[bucket];
+        System.arraycopy(ids, pos, ids, pos + 1, end - pos);
+        System.arraycopy(items, pos, items, pos + 1, end - pos);
+        ids[pos] = id;
+        items[pos] = item;
+        this.bucketEnds[bucket] = end + 1;
+        this.size++;
+    }
+
+    /**
+     * @return the earliest pending expiration time, or Long.MAX_VALUE if the
+     * queue is empty
+     */
+    public long peekTime() {
+        if (this.size == 0) {
+            return Long.MAX_VALUE;
+        }
+        advance();
+        return this.minTime;
+    }
+
+    /**
+     * @return the item that expires first, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        if (this.size == 0) {
+            return null;
+        }
+        advance();
+        int bucket = (int) this.minTime & this.mask;
+        return (T) this.bucketItems[bucket][this.bucketHeads[bucket]];
+    }
+
+    /**
+     * Removes the item that expires first.
+     *
+     * @return the item, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        advance();
+        int bucket = (int) this.minTime & this.mask;
+        int head = this.bucketHeads[bucket];
+        T item = (T) this.bucketItems[bucket][head];
+        this.bucketItems[bucket][head] = null;
+        head++;
+        if (head == this.bucketEnds[bucket]) {
+            this.bucketHeads[bucket] = 0;
+            this.bucketEnds[bucket] = 0;
+        } else {
+            this.bucketHeads[bucket] = head;
+        }
+        this.size--;
+        return item;
+    }
+
+    /**
+     * Copies the pending items and their expiration times, in order, for
+     * tracing.
+     *
+     * @param items the list that receives the items
+     * @param times the list that receives the times
+     */
+    @SuppressWarnings("unchecked")
+    public void getItems(List<T> items, List<Long> times) {
+        if (this.size == 0) {
+            return;
+        }
+        for (long time = this.minTime; time <= this.maxTime; time++) {
+            int bucket = (int) time & this.mask;
+            for (int i = this.bucketHeads[bucket]; i < this.bucketEnds[bucket]; i++) {
+                items.add((T) this.bucketItems[bucket][i]);
+                times.add(time);
+            }
+        }
+    }
+
+    /** Moves minTime to the time of the first pending item. */
+    protected void advance() {
+        int bucket = (int) this.minTime & this.mask;
+        while (this.bucketHeads[bucket] == this.bucketEnds[bucket]) {
+            this.minTime++;
+            bucket = (int) this.minTime & this.mask;
+        }
+    }
+
+    /** Grows the ring, if needed, to hold the times from min to max. */
+    protected void ensureRange(long min, long max) {
+        int capacity = this.mask + 1;
+        if (max - min < capacity) {
+            return;
+        }
+        int newCapacity = capacity;
+        while (max - min >= newCapacity) {
+            newCapacity <<= 1;
+        }
+        int newMask = newCapacity - 1;
+        Object[][] newItems = new Object[newCapacity][];
+        long[][] newIds = new long[newCapacity][];
+        int[] newHeads = new int[newCapacity];
+        int[] newEnds = new int[newCapacity];
+        for (long time = this.minTime; time <= this.maxTime; time++) {
+            int bucket = (int) time & this.mask;
+            int newBucket = (int) time & newMask;
+            newItems[newBucket] = this.bucketItems[bucket];
+            newIds[newBucket] = this.bucketIds[bucket];
+            newHeads[newBucket] = this.bucketHeads[bucket];
+            newEnds[newBucket] = this.bucketEnds[bucket];
+        }
+        this.bucketItems = newItems;
+        this.bucketIds = newIds;
+        this.bucketHeads = newHeads;
+        this.bucketEnds = newEnds;
+        this.mask = newMask;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *    SlidingWindow.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The objects of a sliding window, oldest first, in a ring buffer.
+ *
+ * Objects are added at the end and usually expire from the front, which takes
+ * constant time instead of shifting the whole window as a Vector does.
+ *
+ * @param <T> the type of the objects
+ */
+public class SlidingWindow<T> implements Iterable<T> {
+
+    protected Object[] items;
+
+    /** The index of the oldest object in items. */
+    protected int head;
+
+    protected int size;
+
+    public SlidingWindow() {
+        this(16);
+    }
+
+    /**
+     * Creates a window.
+     *
+     * @param capacity the initial capacity, such as the window size
+     */
+    public SlidingWindow(int capacity) {
+        this.items = new Object[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @param index the position of the object, 0 being the oldest
+     * @return the object
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return (T) this.items[slot(index)];
+    }
+
+    /** Adds an object as the newest one. */
+    public void add(T item) {
+        if (this.size == this.items.length) {
+            Object[] newItems = new Object[2 * this.items.length];
+            int first = Math.min(this.size, this.items.length - this.head);
+            System.arraycopy(this.items, this.head, newItems, 0, first);
+            System.arraycopy(this.items, 0, newItems, first, this.size - first);
+            this.items = newItems;
+            this.head = 0;
+        }
+        this.items[slot(this.size)] = item;
+        this.size++;
+    }
+
+    /**
+     * Removes the oldest object.
+     *
+     * @return the object, or null if the window is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T removeFirst() {
+        if (this.size == 0) {
+            return null;
+        }
+        T item = (T) this.items[this.head];
+        this.items[this.head] = null;
+        this.head = (this.head + 1) % this.items.length;
+        this.size--;
+        return item;
+    }
+
+    /**
+     * Removes an object, found by identity. This takes constant time for the
+     * oldest object.
+     *
+     * @return true if the object was in the window
+     */
+    public boolean remove(T item) {
+        if (this.size == 0) {
+            return false;
+        }
+        if (this.items[this.head] == item) {
+            removeFirst();
+            return true;
+        }
+        for (int i = 1; i < this.size; i++) {
+            if (this.items[slot(i)] == item) {
+                for (int j = i; j < this.size - 1; j++) {
+                    this.items[slot(j)] = this.items[slot(j + 1)];
+                }
+                this.items[slot(this.size - 1)] = null;
+                this.size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(this.items, null);
+        this.head = 0;
+        this.size = 0;
+    }
+
+    protected int slot(int index) {
+        int slot = this.head + index;
+        return slot < this.items.length ? slot : slot - this.items.length;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < SlidingWindow.this.size;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(this.index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *    SortedIdList.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.clusterers.outliers.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of items sorted by their unique long ids, such as the preceding
+ * neighbors of a stream object.
+ *
+ * The ids are kept in a primitive array, so that searching by id neither
+ * boxes the id nor needs a dummy item. Items may be null when only the ids
+ * are of interest.
+ *
+ * @param <T> the type of the items
+ */
+public class SortedIdList<T> {
+
+    protected long[] ids;
+
+    protected Object[] items;
+
+    protected int size;
+
+    public SortedIdList() {
+        this.ids = new long[4];
+        this.items = new Object[4];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds an item, unless an item with the same id exists.
+     *
+     * @param id the id of the item
+     * @param item the item
+     */
+    public void add(long id, T item) {
+        int pos = Arrays.binarySearch(this.ids, 0, this.size, id);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -(pos + 1);
+        if (this.size == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+            this.items = Arrays.copyOf(this.items, 2 * this.size);
+        }
+        System.arraycopy(this.ids, pos, this.ids, pos + 1, this.size - pos);
+        System.arraycopy(this.items, pos, this.items, pos + 1, this.size - pos);
+        this.ids[pos] = id;
+        this.items[pos] = item;
+        this.size++;
+    }
+
+    /**
+     * Removes the item with an id.
+     *
+     * @return true if the item existed
+     */
+    public boolean remove(long id) {
+        int pos = Arrays.binarySearch(this.ids, 0, this.size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(this.ids, pos + 1, this.ids, pos, this.size - pos - 1);
+        System.arraycopy(this.items, pos + 1, this.items, pos, this.size - pos - 1);
+        this.size--;
+        this.items[this.size] = null;
+        return true;
+    }
+
+    /**
+     * @return the position of the first item with id &gt;= sinceId, or size()
+     * if there is none
+     */
+    public int indexFrom(long sinceId) {
+        int pos = Arrays.binarySearch(this.ids, 0, this.size, sinceId);
+        return pos >= 0 ? pos : -(pos + 1);
+    }
+
+    /** @return the number of items with id &gt;= sinceId */
+    public int countFrom(long sinceId) {
+        return this.size - indexFrom(sinceId);
+    }
+
+    /** @return the first item with id &gt;= sinceId, or null if there is none */
+    public T getFrom(long sinceId) {
+        int pos = indexFrom(sinceId);
+        return pos < this.size ? get(pos) : null;
+    }
+
+    public long getId(int index) {
+        return this.ids[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) this.items[index];
+    }
+
+    /** @return the items in order, as a new list */
+    public List<T> toList() {
+        List<T> list = new ArrayList<T>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+}
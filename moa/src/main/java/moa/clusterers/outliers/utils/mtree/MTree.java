@@ -11,18 +11,16 @@
  *
  *    You should have received a copy of the GNU General Public License
  *    along with this program. If not, see <http://www.gnu.org/licenses/>.
- *    
+ *
  */
 
 package moa.clusterers.outliers.utils.mtree;
 
 import moa.clusterers.outliers.utils.mtree.SplitFunction.SplitResult;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 import java.util.Set;
@@ -32,9 +30,15 @@ import java.util.Set;
 /**
  * The main class that implements the M-Tree.
  *
+ * <p>The children of a node are kept in parallel arrays: the data objects,
+ * their hash codes, their distances to the routing object of the node and,
+ * for internal nodes, the child nodes. The leaves hold the indexed data
+ * objects directly. Splits and underflows are reported to the parent through
+ * return values.
+ *
  * @param <DATA> The type of data that will be indexed by the M-Tree. Objects of
- *        this type are stored in HashMaps and HashSets, so their
- *        {@code hashCode()} and {@code equals()} methods must be consistent.
+ *        this type are looked up by {@code hashCode()} and {@code equals()},
+ *        so these methods must be consistent.
  */
 public class MTree<DATA> {
 
@@ -50,50 +54,28 @@ public class MTree<DATA> {
 		/** A nearest-neighbor. */
 		public DATA data;
 
-		/** 
+		/**
 		 * The distance from the nearest-neighbor to the query data object
 		 * parameter.
 		 */
 		public double distance;
 	}
-	
-	
-	// Exception classes
-	private static class SplitNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newNodes declared as Object[] instead of Node[].
-		private Object newNodes[];
-		
-		private SplitNodeReplacement(Object... newNodes) {
-			this.newNodes = newNodes;
-		}
-	}
-	
-	private static class RootNodeReplacement extends Exception {
-		// A subclass of Throwable cannot be generic.  :-(
-		// So, we have newRoot declared as Object instead of Node.
-		private Object newRoot;
-		
-		private RootNodeReplacement(Object newRoot) {
-			this.newRoot = newRoot;
-		}
-	}
 
-	
-	private static class NodeUnderCapacity extends Exception { }
-	
 
-	private static class DataNotFound extends Exception { }
+	// Outcomes of removeData
+	private static final int REMOVED = 0;
+	private static final int NOT_FOUND = 1;
+	private static final int UNDER_CAPACITY = 2;
 
 	/**
 	 * An {@link Iterable} class which can be iterated to fetch the results of a
 	 * nearest-neighbors query.
-	 * 
+	 *
 	 * <p>The neighbors are presented in non-decreasing order from the {@code
 	 * queryData} argument to the {@link MTree#getNearest(Object, double, int)
 	 * getNearest*()}
 	 * call.
-	 * 
+	 *
 	 * <p>The query on the M-Tree is executed during the iteration, as the
 	 * results are fetched. It means that, by the time when the <i>n</i>-th
 	 * result is fetched, the next result may still not be known, and the
@@ -103,7 +85,7 @@ public class MTree<DATA> {
 	public class Query implements Iterable<ResultItem> {
 
 		private class ResultsIterator implements Iterator<ResultItem> {
-			
+
 			private class ItemWithDistances <U> implements Comparable<ItemWithDistances<U>> {
 				private U item;
 				private double distance;
@@ -126,39 +108,39 @@ public class MTree<DATA> {
 					}
 				}
 			}
-			
-			
+
+
 			private ResultItem nextResultItem = null;
 			private boolean finished = false;
 			private PriorityQueue<ItemWithDistances<Node>> pendingQueue = new PriorityQueue<ItemWithDistances<Node>>();
 			private double nextPendingMinDistance;
-			private PriorityQueue<ItemWithDistances<Entry>> nearestQueue = new PriorityQueue<ItemWithDistances<Entry>>();
+			private PriorityQueue<ItemWithDistances<DATA>> nearestQueue = new PriorityQueue<ItemWithDistances<DATA>>();
 			private int yieldedCount;
-			
+
 			private ResultsIterator() {
 				if(MTree.this.root == null) {
 					finished = true;
 					return;
 				}
-				
+
 				double distance = MTree.this.distanceFunction.calculate(Query.this.data, MTree.this.root.data);
 				double minDistance = Math.max(distance - MTree.this.root.radius, 0.0);
-				
+
 				pendingQueue.add(new ItemWithDistances<Node>(MTree.this.root, distance, minDistance));
 				nextPendingMinDistance = minDistance;
 			}
-			
-			
+
+
 			@Override
 			public boolean hasNext() {
 				if(finished) {
 					return false;
 				}
-				
+
 				if(nextResultItem == null) {
 					fetchNext();
 				}
-				
+
 				if(nextResultItem == null) {
 					finished = true;
 					return false;
@@ -166,7 +148,7 @@ public class MTree<DATA> {
 					return true;
 				}
 			}
-			
+
 			@Override
 			public ResultItem next() {
 				if(hasNext()) {
@@ -177,49 +159,47 @@ public class MTree<DATA> {
 					throw new NoSuchElementException();
 				}
 			}
-			
+
 			@Override
 			public void remove() {
 				throw new UnsupportedOperationException();
 			}
-			
-			
+
+
 			private void fetchNext() {
 				assert !finished;
-				
+
 				if(finished  ||  yieldedCount >= Query.this.limit) {
 					finished = true;
 					return;
 				}
-				
+
 				while(!pendingQueue.isEmpty()  ||  !nearestQueue.isEmpty()) {
 					if(prepareNextNearest()) {
 						return;
 					}
-					
+
 					assert !pendingQueue.isEmpty();
-					
+
 					ItemWithDistances<Node> pending = pendingQueue.poll();
 					Node node = pending.item;
-					
-					for(IndexItem child : node.children.values()) {
-						if(Math.abs(pending.distance - child.distanceToParent) - child.radius <= Query.this.range) {
-							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, child.data);
-							double childMinDistance = Math.max(childDistance - child.radius, 0.0);
-							if(childMinDistance <= Query.this.range) {
-								if(child instanceof MTree.Entry) {
-									@SuppressWarnings("unchecked")
-									Entry entry = (Entry)child;
-									nearestQueue.add(new ItemWithDistances<Entry>(entry, childDistance, childMinDistance));
-								} else {
-									@SuppressWarnings("unchecked")
-									Node childNode = (Node)child;
-									pendingQueue.add(new ItemWithDistances<Node>(childNode, childDistance, childMinDistance));
+
+					for(int i = 0; i < node.size; i++) {
+						double childRadius = node.childRadius(i);
+						if(covers(childRadius + Query.this.range, Math.abs(pending.distance - node.childDistances[i]))) {
+							DATA childData = node.childData(i);
+							double childDistance = MTree.this.distanceFunction.calculate(Query.this.data, childData);
+							double childMinDistance = Math.max(childDistance - childRadius, 0.0);
+							if(node.leaf) {
+								if(childDistance <= Query.this.range) {
+									nearestQueue.add(new ItemWithDistances<DATA>(childData, childDistance, childMinDistance));
 								}
+							} else if(covers(childRadius + Query.this.range, childDistance)) {
+								pendingQueue.add(new ItemWithDistances<Node>(node.childNodes[i], childDistance, childMinDistance));
 							}
 						}
 					}
-					
+
 					if(pendingQueue.isEmpty()) {
 						nextPendingMinDistance = Double.POSITIVE_INFINITY;
 					} else {
@@ -230,44 +210,155 @@ public class MTree<DATA> {
 				finished = true;
 			}
 
-			
+
 			private boolean prepareNextNearest() {
 				if(!nearestQueue.isEmpty()) {
-					ItemWithDistances<Entry> nextNearest = nearestQueue.peek();
+					ItemWithDistances<DATA> nextNearest = nearestQueue.peek();
 					if(nextNearest.distance <= nextPendingMinDistance) {
 						nearestQueue.poll();
-						nextResultItem = new ResultItem(nextNearest.item.data, nextNearest.distance);
+						nextResultItem = new ResultItem(nextNearest.item, nextNearest.distance);
 						++yieldedCount;
 						return true;
 					}
 				}
-				
+
 				return false;
 			}
-			
+
 		}
-		
-		
+
+
 		private Query(DATA data, double range, int limit) {
 			this.data = data;
 			this.range = range;
 			this.limit = limit;
 		}
-		
-		
+
+
 		@Override
 		public Iterator<ResultItem> iterator() {
 			return new ResultsIterator();
 		}
 
-		
+
 		private DATA data;
 		private double range;
 		private int limit;
 	}
 
 
-	
+	/**
+	 * A reusable holder for the results of range queries, see
+	 * {@link MTree#getNearestByRange(Object, double, RangeCursor)}.
+	 *
+	 * <p>The results are kept in arrays that only grow, so a cursor that is
+	 * reused for every query allocates nothing once it is large enough. The
+	 * results of a query are valid until the cursor is used again.
+	 */
+	public class RangeCursor {
+
+		private Object[] data = new Object[16];
+		private double[] distances = new double[16];
+		private int size;
+
+		private Node[] pendingNodes = MTree.this.newNodeArray(16);
+		private double[] pendingDistances = new double[16];
+
+		private RangeCursor() {
+		}
+
+		/**
+		 * @return The number of data objects found by the last query.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @param index The index of a result, in non-decreasing order of
+		 *        distance.
+		 * @return The data object of the result.
+		 */
+		@SuppressWarnings("unchecked")
+		public DATA getData(int index) {
+			return (DATA) data[index];
+		}
+
+		/**
+		 * @param index The index of a result, in non-decreasing order of
+		 *        distance.
+		 * @return The distance from the data object of the result to the
+		 *         query data object.
+		 */
+		public double getDistance(int index) {
+			return distances[index];
+		}
+
+		private void addResult(Object item, double distance) {
+			if(size == data.length) {
+				data = Arrays.copyOf(data, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+			}
+			data[size] = item;
+			distances[size] = distance;
+			size++;
+		}
+
+		private int pushPending(int pendingSize, Node node, double distance) {
+			if(pendingSize == pendingNodes.length) {
+				pendingNodes = Arrays.copyOf(pendingNodes, 2 * pendingSize);
+				pendingDistances = Arrays.copyOf(pendingDistances, 2 * pendingSize);
+			}
+			pendingNodes[pendingSize] = node;
+			pendingDistances[pendingSize] = distance;
+			return pendingSize + 1;
+		}
+
+		private void clear() {
+			Arrays.fill(data, 0, size, null);
+			size = 0;
+		}
+
+		private void sortByDistance(int from, int to) {
+			while(to - from > 16) {
+				double pivot = distances[(from + to) >>> 1];
+				int i = from;
+				int j = to - 1;
+				while(i <= j) {
+					while(distances[i] < pivot) i++;
+					while(distances[j] > pivot) j--;
+					if(i <= j) {
+						swap(i++, j--);
+					}
+				}
+				// recurse into the smaller part, loop on the larger one
+				if(j + 1 - from < to - i) {
+					sortByDistance(from, j + 1);
+					from = i;
+				} else {
+					sortByDistance(i, to);
+					to = j + 1;
+				}
+			}
+			for(int i = from + 1; i < to; i++) {
+				for(int j = i; j > from && distances[j - 1] > distances[j]; j--) {
+					swap(j - 1, j);
+				}
+			}
+		}
+
+		private void swap(int i, int j) {
+			Object item = data[i];
+			data[i] = data[j];
+			data[j] = item;
+			double distance = distances[i];
+			distances[i] = distances[j];
+			distances[j] = distance;
+		}
+	}
+
+
+
 	/**
 	 * The default minimum capacity of nodes in an M-Tree, when not specified in
 	 * the constructor call.
@@ -280,8 +371,8 @@ public class MTree<DATA> {
 	protected DistanceFunction<? super DATA> distanceFunction;
 	protected SplitFunction<DATA> splitFunction;
 	protected Node root;
-	
-	
+
+
 	/**
 	 * Constructs an M-Tree with the specified distance function.
 	 * @param distanceFunction The object used to calculate the distance between
@@ -291,7 +382,7 @@ public class MTree<DATA> {
 			SplitFunction<DATA> splitFunction) {
 		this(DEFAULT_MIN_NODE_CAPACITY, distanceFunction, splitFunction);
 	}
-	
+
 	/**
 	 * Constructs an M-Tree with the specified minimum node capacity and
 	 * distance function.
@@ -306,7 +397,7 @@ public class MTree<DATA> {
 			SplitFunction<DATA> splitFunction) {
 		this(minNodeCapacity, 2 * minNodeCapacity - 1, distanceFunction, splitFunction);
 	}
-	
+
 	/**
 	 * Constructs an M-Tree with the specified minimum and maximum node
 	 * capacities and distance function.
@@ -325,50 +416,43 @@ public class MTree<DATA> {
 		   distanceFunction == null) {
 			throw new IllegalArgumentException();
 		}
-		
+
 		if(splitFunction == null) {
 			splitFunction = new ComposedSplitFunction<DATA>(
 					new PromotionFunctions.RandomPromotion<DATA>(),
 					new PartitionFunctions.BalancedPartition<DATA>()
 				);
 		}
-		
+
 		this.minNodeCapacity = minNodeCapacity;
 		this.maxNodeCapacity = maxNodeCapacity;
 		this.distanceFunction = distanceFunction;
 		this.splitFunction = splitFunction;
 		this.root = null;
 	}
-	
-	
+
+
 	/**
 	 * Adds and indexes a data object.
-	 * 
+	 *
 	 * <p>An object that is already indexed should not be added. There is no
 	 * validation regarding this, and the behavior is undefined if done.
-	 * 
+	 *
 	 * @param data The data object to index.
 	 */
 	public void add(DATA data) {
 		if(root == null) {
-			root = new RootLeafNode(data);
-			try {
-				root.addData(data, 0);
-			} catch (SplitNodeReplacement e) {
-				throw new RuntimeException("Should never happen!");
-			}
+			root = new Node(data, true);
+			root.addSlot(data, data.hashCode(), null, 0);
 		} else {
 			double distance = distanceFunction.calculate(data, root.data);
-			try {
-				root.addData(data, distance);
-			} catch(SplitNodeReplacement e) {
-				Node newRoot = new RootNode(data);
+			Node[] newNodes = addData(root, data, distance);
+			if(newNodes != null) {
+				Node newRoot = new Node(data, false);
 				root = newRoot;
-				for(int i = 0; i < e.newNodes.length; i++) {
-					@SuppressWarnings("unchecked")
-					Node newNode = (Node) e.newNodes[i];
-					distance = distanceFunction.calculate(root.data, newNode.data);
-					root.addChild(newNode, distance);
+				for(int i = 0; i < newNodes.length; i++) {
+					distance = distanceFunction.calculate(root.data, newNodes[i].data);
+					addChild(root, newNodes[i].data, newNodes[i].data.hashCode(), newNodes[i], distance);
 				}
 			}
 		}
@@ -384,18 +468,28 @@ public class MTree<DATA> {
 		if(root == null) {
 			return false;
 		}
-		
+
 		double distanceToRoot = distanceFunction.calculate(data, root.data);
-		try {
-			root.removeData(data, distanceToRoot);
-		} catch(RootNodeReplacement e) {
-			@SuppressWarnings("unchecked")
-			Node newRoot = (Node) e.newRoot;
-			root = newRoot;
-		} catch(DataNotFound e) {
+		int outcome = removeData(root, data, data.hashCode(), distanceToRoot);
+		if(outcome == NOT_FOUND) {
 			return false;
-		} catch (NodeUnderCapacity e) {
-			throw new RuntimeException("Should have never happened", e);
+		}
+		if(outcome == UNDER_CAPACITY) {
+			if(root.leaf) {
+				assert root.size == 0;
+				root = null;
+			} else {
+				// Promote the only child to root
+				Node theChild = root.childNodes[0];
+				Node newRoot = new Node(theChild.data, theChild.leaf);
+				for(int i = 0; i < theChild.size; i++) {
+					DATA grandchildData = theChild.childData(i);
+					double distance = distanceFunction.calculate(newRoot.data, grandchildData);
+					addChild(newRoot, grandchildData, theChild.childHashes[i],
+							theChild.leaf ? null : theChild.childNodes[i], distance);
+				}
+				root = newRoot;
+			}
 		}
 		return true;
 	}
@@ -410,8 +504,61 @@ public class MTree<DATA> {
 	public Query getNearestByRange(DATA queryData, double range) {
 		return getNearest(queryData, range, Integer.MAX_VALUE);
 	}
-	
-	
+
+	/**
+	 * Performs a range query on the M-Tree into a reusable cursor. The cursor
+	 * holds the same results as {@link #getNearestByRange(Object, double)}, in
+	 * non-decreasing order of distance, without allocating per candidate.
+	 * @param queryData The query data object.
+	 * @param range     The maximum distance from {@code queryData} to fetched
+	 *                  neighbors.
+	 * @param cursor    The cursor that receives the results, created by
+	 *                  {@link #newRangeCursor()}.
+	 * @return The number of results.
+	 */
+	public int getNearestByRange(DATA queryData, double range, RangeCursor cursor) {
+		cursor.clear();
+		if(root == null) {
+			return 0;
+		}
+
+		double rootDistance = distanceFunction.calculate(queryData, root.data);
+		if(!covers(root.radius + range, rootDistance)) {
+			return 0;
+		}
+		int pendingSize = cursor.pushPending(0, root, rootDistance);
+		while(pendingSize > 0) {
+			pendingSize--;
+			Node node = cursor.pendingNodes[pendingSize];
+			double distance = cursor.pendingDistances[pendingSize];
+			cursor.pendingNodes[pendingSize] = null;
+			for(int i = 0; i < node.size; i++) {
+				double childRadius = node.childRadius(i);
+				if(covers(childRadius + range, Math.abs(distance - node.childDistances[i]))) {
+					double childDistance = distanceFunction.calculate(queryData, node.childData(i));
+					if(node.leaf) {
+						if(childDistance <= range) {
+							cursor.addResult(node.childData[i], childDistance);
+						}
+					} else if(covers(childRadius + range, childDistance)) {
+						pendingSize = cursor.pushPending(pendingSize, node.childNodes[i], childDistance);
+					}
+				}
+			}
+		}
+		cursor.sortByDistance(0, cursor.size);
+		return cursor.size;
+	}
+
+	/**
+	 * @return A new cursor for
+	 *         {@link #getNearestByRange(Object, double, RangeCursor)}.
+	 */
+	public RangeCursor newRangeCursor() {
+		return new RangeCursor();
+	}
+
+
 	/**
 	 * Performs a nearest-neighbors query on the M-Tree, constrained by the
 	 * number of neighbors.
@@ -444,591 +591,441 @@ public class MTree<DATA> {
 	public Query getNearest(DATA queryData) {
 		return new Query(queryData, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
 	}
-	
-	
-	protected void _check() {
-		if(root != null) {
-			root._check();
-		}
-	}
-	
-
-	private class IndexItem {
-		DATA data;
-		protected double radius;
-		double distanceToParent;
 
-		private IndexItem(DATA data) {
-			this.data = data;
-			this.radius = 0;
-			this.distanceToParent = -1;
-		}
 
-		int _check() {
-			_checkRadius();
-			_checkDistanceToParent();
-			return 1;
+	/**
+	 * Checks the invariants of the tree. This walks the whole tree, so it only
+	 * runs when assertions are enabled.
+	 */
+	protected void _check() {
+		if(root != null  &&  ASSERTIONS_ENABLED) {
+			_check(root);
 		}
+	}
 
-		private void _checkRadius() {
-			assert radius >= 0;
-		}
+	private static final boolean ASSERTIONS_ENABLED = assertionsEnabled();
 
-		protected void _checkDistanceToParent() {
-			assert !(this instanceof MTree.RootLeafNode);
-			assert !(this instanceof MTree.RootNode);
-			assert distanceToParent >= 0;
-		}
+	@SuppressWarnings("all")
+	private static boolean assertionsEnabled() {
+		boolean enabled = false;
+		assert enabled = true;
+		return enabled;
 	}
 
-	
-	
-	private abstract class Node extends IndexItem {
-
-		protected Map<DATA, IndexItem> children = new HashMap<DATA, IndexItem>();
-		protected Rootness       rootness;
-		protected Leafness<DATA> leafness;
-		
-		private
-		<R extends NodeTrait & Rootness, L extends NodeTrait & Leafness<DATA>>
-		Node(DATA data, R rootness, L leafness) {
-			super(data);
-			
-			rootness.thisNode = this;
-			this.rootness = rootness;
-			
-			leafness.thisNode = this;
-			this.leafness = leafness;
-		}
-
-		private final void addData(DATA data, double distance) throws SplitNodeReplacement {
-			doAddData(data, distance);
-			checkMaxCapacity();
+	private int _check(Node node) {
+		assert node.radius >= 0;
+		assert node.size <= maxNodeCapacity;
+		if(node == root) {
+			assert node.size >= (node.leaf ? 1 : 2);
+		} else {
+			assert node.size >= minNodeCapacity;
 		}
 
-		int _check() {
-			super._check();
-			_checkMinCapacity();
-			_checkMaxCapacity();
-
-			int childHeight = -1;
-			for(Map.Entry<DATA, IndexItem> e : children.entrySet()) {
-				DATA data = e.getKey();
-				IndexItem child = e.getValue();
-				assert child.data.equals(data);
-
-				_checkChildClass(child);
-				_checkChildMetrics(child);
-
-				int height = child._check();
-				if(childHeight < 0) {
-					childHeight = height;
-				} else {
-					assert childHeight == height;
-				}
+		int childHeight = -1;
+		for(int i = 0; i < node.size; i++) {
+			DATA data = node.childData(i);
+			assert node.childHashes[i] == data.hashCode();
+			assert node.childDistances[i] == distanceFunction.calculate(data, node.data);
+			assert node.childDistances[i] + node.childRadius(i) <= node.radius;
+
+			int height = 1;
+			if(!node.leaf) {
+				assert node.childNodes[i].data.equals(data);
+				height = _check(node.childNodes[i]);
+			}
+			if(childHeight < 0) {
+				childHeight = height;
+			} else {
+				assert childHeight == height;
 			}
-
-			return childHeight + 1;
 		}
 
-		protected void doAddData(DATA data, double distance) {
-			leafness.doAddData(data, distance);
-		}
+		return childHeight + 1;
+	}
 
-		protected void doRemoveData(DATA data, double distance) throws DataNotFound {
-			leafness.doRemoveData(data, distance);
-		}
 
-		private final void checkMaxCapacity() throws SplitNodeReplacement {
-			if(children.size() > MTree.this.maxNodeCapacity) {
-				DistanceFunction<? super DATA> cachedDistanceFunction = DistanceFunctions.cached(MTree.this.distanceFunction);
-				SplitResult<DATA> splitResult = MTree.this.splitFunction.process(children.keySet(), cachedDistanceFunction);
-				
-				Node newNode0 = null;
-				Node newNode1 = null;
-				for(int i = 0; i < 2; ++i) {
-					DATA promotedData   = splitResult.promoted.get(i);
-					Set<DATA> partition = splitResult.partitions.get(i);
-					
-					Node newNode = newSplitNodeReplacement(promotedData);
-					for(DATA data : partition) {
-						IndexItem child = children.get(data);
-						children.remove(data);
-						double distance = cachedDistanceFunction.calculate(promotedData, data);
-						newNode.addChild(child, distance);
+	/**
+	 * Adds a data object below a node.
+	 * @return The two nodes that replace the node if it had to be split, or
+	 *         {@code null}.
+	 */
+	private Node[] addData(Node node, DATA data, double distance) {
+		if(node.leaf) {
+			assert node.indexOf(data, data.hashCode()) < 0;
+			addChild(node, data, data.hashCode(), null, distance);
+		} else {
+			// Choose the child that contains the data, or else the one that
+			// needs the smallest increase of its radius
+			int minRadiusIncreaseIndex = -1;
+			double minRadiusIncreaseDistance = -1.0;
+			double minRadiusIncrease = Double.POSITIVE_INFINITY;
+			int nearestIndex = -1;
+			double nearestDistance = Double.POSITIVE_INFINITY;
+
+			for(int i = 0; i < node.size; i++) {
+				Node child = node.childNodes[i];
+				double childDistance = distanceFunction.calculate(child.data, data);
+				if(childDistance > child.radius) {
+					double radiusIncrease = childDistance - child.radius;
+					if(radiusIncrease < minRadiusIncrease) {
+						minRadiusIncrease = radiusIncrease;
+						minRadiusIncreaseDistance = childDistance;
+						minRadiusIncreaseIndex = i;
 					}
-
-					if(i == 0) {
-						newNode0 = newNode;
-					} else {
-						newNode1 = newNode;
+				} else {
+					if(childDistance < nearestDistance) {
+						nearestDistance = childDistance;
+						nearestIndex = i;
 					}
 				}
-				assert children.isEmpty();
+			}
 
-				throw new SplitNodeReplacement(newNode0, newNode1);
+			int chosen = nearestIndex;
+			double chosenDistance = nearestDistance;
+			if(chosen < 0) {
+				chosen = minRadiusIncreaseIndex;
+				chosenDistance = minRadiusIncreaseDistance;
 			}
 
+			Node child = node.childNodes[chosen];
+			Node[] newNodes = addData(child, data, chosenDistance);
+			if(newNodes == null) {
+				node.updateRadius(chosen);
+			} else {
+				// Replace current child with new nodes
+				node.removeSlot(chosen);
+				for(int i = 0; i < newNodes.length; ++i) {
+					distance = distanceFunction.calculate(node.data, newNodes[i].data);
+					addChild(node, newNodes[i].data, newNodes[i].data.hashCode(), newNodes[i], distance);
+				}
+			}
 		}
+		return checkMaxCapacity(node);
+	}
 
-		protected Node newSplitNodeReplacement(DATA data) {
-			return leafness.newSplitNodeReplacement(data);
-		}
 
-		protected void addChild(IndexItem child, double distance) {
-			leafness.addChild(child, distance);
+	/**
+	 * Splits a node that holds more than the maximum capacity.
+	 * @return The two nodes that replace the node, or {@code null} if the node
+	 *         did not need to be split.
+	 */
+	private Node[] checkMaxCapacity(Node node) {
+		if(node.size <= maxNodeCapacity) {
+			return null;
 		}
 
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			doRemoveData(data, distance);
-			if(children.size() < getMinCapacity()) {
-				throw new NodeUnderCapacity();
+		Set<DATA> dataSet = new HashSet<DATA>();
+		for(int i = 0; i < node.size; i++) {
+			dataSet.add(node.childData(i));
+		}
+		DistanceFunction<? super DATA> cachedDistanceFunction = DistanceFunctions.cached(distanceFunction);
+		SplitResult<DATA> splitResult = splitFunction.process(dataSet, cachedDistanceFunction);
+
+		Node[] newNodes = newNodeArray(2);
+		for(int i = 0; i < 2; ++i) {
+			DATA promotedData   = splitResult.promoted.get(i);
+			Set<DATA> partition = splitResult.partitions.get(i);
+
+			Node newNode = new Node(promotedData, node.leaf);
+			for(DATA data : partition) {
+				int hash = data.hashCode();
+				int index = node.indexOf(data, hash);
+				Node child = node.leaf ? null : node.childNodes[index];
+				node.removeSlot(index);
+				double distance = cachedDistanceFunction.calculate(promotedData, data);
+				addChild(newNode, data, hash, child, distance);
 			}
+			newNodes[i] = newNode;
 		}
+		assert node.size == 0;
 
-		protected int getMinCapacity() {
-			return rootness.getMinCapacity();
-		}
+		return newNodes;
+	}
 
-		private void updateMetrics(IndexItem child, double distance) {
-			child.distanceToParent = distance;
-			updateRadius(child);
-		}
 
-		private void updateRadius(IndexItem child) {
-                        if (child != null) // ### added by mits
-                            this.radius = Math.max(this.radius, child.distanceToParent + child.radius);
+	/**
+	 * Adds a child to a node. A child node whose routing object is already
+	 * the routing object of a child of the node is merged into that child.
+	 */
+	private void addChild(Node node, DATA data, int hash, Node child, double distance) {
+		if(node.leaf) {
+			assert node.indexOf(data, hash) < 0;
+			node.addSlot(data, hash, null, distance);
+			return;
 		}
 
-		void _checkMinCapacity() {
-			rootness._checkMinCapacity();
+		int index = node.indexOf(data, hash);
+		if(index < 0) {
+			node.addSlot(data, hash, child, distance);
+			return;
 		}
 
-		private void _checkMaxCapacity() {
-			assert children.size() <= MTree.this.maxNodeCapacity;
+		// Transfer the _children_ of the child to the existing child
+		Node existingChild = node.childNodes[index];
+		for(int i = 0; i < child.size; i++) {
+			addChild(existingChild, child.childData(i), child.childHashes[i],
+					child.leaf ? null : child.childNodes[i], child.childDistances[i]);
 		}
-
-		private void _checkChildClass(IndexItem child) {
-			leafness._checkChildClass(child);
+		child.clear();
+
+		Node[] newNodes = checkMaxCapacity(existingChild);
+		if(newNodes != null) {
+			node.removeSlot(index);
+			for(int i = newNodes.length - 1; i >= 0; --i) {
+				distance = distanceFunction.calculate(node.data, newNodes[i].data);
+				addChild(node, newNodes[i].data, newNodes[i].data.hashCode(), newNodes[i], distance);
+			}
 		}
+	}
 
-		private void _checkChildMetrics(IndexItem child) {
-			double dist = MTree.this.distanceFunction.calculate(child.data, this.data);
-			assert child.distanceToParent == dist;
 
-			double sum = child.distanceToParent + child.radius;
-			assert sum <= this.radius;
-		}
-		
-		protected void _checkDistanceToParent() {
-			rootness._checkDistanceToParent();
+	/**
+	 * Removes a data object below a node.
+	 * @return {@link #REMOVED}, {@link #NOT_FOUND} or {@link #UNDER_CAPACITY}
+	 *         if the data was removed and the node is left with less than its
+	 *         minimum capacity.
+	 */
+	private int removeData(Node node, DATA data, int hash, double distance) {
+		if(node.leaf) {
+			int index = node.indexOf(data, hash);
+			if(index < 0) {
+				return NOT_FOUND;
+			}
+			node.removeSlot(index);
+		} else {
+			boolean found = false;
+			for(int i = 0; i < node.size  &&  !found; i++) {
+				Node child = node.childNodes[i];
+				if(covers(child.radius, Math.abs(distance - node.childDistances[i]))) {
+					double distanceToChild = distanceFunction.calculate(data, child.data);
+					if(covers(child.radius, distanceToChild)) {
+						int outcome = removeData(child, data, hash, distanceToChild);
+						if(outcome == REMOVED) {
+							node.updateRadius(i);
+							found = true;
+						} else if(outcome == UNDER_CAPACITY) {
+							Node expandedChild = balanceChildren(node, child);
+							int expandedIndex = node.indexOfNode(expandedChild);
+							if(expandedIndex >= 0) {
+								node.updateRadius(expandedIndex);
+							}
+							found = true;
+						}
+						// otherwise the data was not found in the child
+					}
+				}
+			}
+			if(!found) {
+				return NOT_FOUND;
+			}
 		}
 
-		private MTree<DATA> mtree() {
-			return MTree.this;
-		}
-	}
-	
-	
-	
-	
-	private abstract class NodeTrait {
-		protected Node thisNode;
-	}
-	
-	private interface Leafness<DATA> {
-		void doAddData(DATA data, double distance);
-		void addChild(MTree<DATA>.IndexItem child, double distance);
-		void doRemoveData(DATA data, double distance) throws DataNotFound;
-		MTree<DATA>.Node newSplitNodeReplacement(DATA data);
-		void _checkChildClass(MTree<DATA>.IndexItem child);
+		return (node.size < getMinCapacity(node)) ? UNDER_CAPACITY : REMOVED;
 	}
-	
-	private interface Rootness {
-		int getMinCapacity();
-		void _checkDistanceToParent();
-		void _checkMinCapacity();
+
+
+	/**
+	 * Tells whether a distance is within a covering radius. The radii and the
+	 * bounds derived from the triangle inequality are sums and differences of
+	 * rounded distances, so they may be off by a few ulps, and a subtree must
+	 * not be pruned because of that.
+	 */
+	private static boolean covers(double radius, double distance) {
+		return distance <= radius + ROUNDING_SLACK * (1.0 + radius);
 	}
-	
-	
-	
-	private class RootNodeTrait extends NodeTrait implements Rootness {
-		
-		@Override
-		public int getMinCapacity() {
-			throw new RuntimeException("Should not be called!");
-		}
-		
-		@Override
-		public void _checkDistanceToParent() {
-			assert thisNode.distanceToParent == -1;
-		}
 
-		@Override
-		public void _checkMinCapacity() {
-			thisNode._checkMinCapacity();
-		}
-		
-	};
+	private static final double ROUNDING_SLACK = 1e-12;
 
 
-	private class NonRootNodeTrait extends NodeTrait implements Rootness {
-		
-		@Override
-		public int getMinCapacity() {
-			return MTree.this.minNodeCapacity;
-		}
-		
-		@Override
-		public void _checkMinCapacity() {
-			assert thisNode.children.size() >= thisNode.mtree().minNodeCapacity;
-		}
-		
-		@Override
-		public void _checkDistanceToParent() {
-			assert thisNode.distanceToParent >= 0;
-		}
-	};
-	
-	
-	private class LeafNodeTrait extends NodeTrait implements Leafness<DATA> {
-		
-		public void doAddData(DATA data, double distance) {
-			Entry entry = thisNode.mtree().new Entry(data);
-			assert !thisNode.children.containsKey(data);
-			thisNode.children.put(data, entry);
-			assert thisNode.children.containsKey(data);
-			thisNode.updateMetrics(entry, distance);
+	private int getMinCapacity(Node node) {
+		if(node == root) {
+			return node.leaf ? 1 : 2;
 		}
+		return minNodeCapacity;
+	}
 
-		public void addChild(IndexItem child, double distance) {
-			assert !thisNode.children.containsKey(child.data);
-			thisNode.children.put(child.data, child);
-			assert thisNode.children.containsKey(child.data);
-			thisNode.updateMetrics(child, distance);
-		}
-		
-		public Node newSplitNodeReplacement(DATA data) {
-			return thisNode.mtree().new LeafNode(data);
-		}
-		
 
-		@Override
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			if(thisNode.children.remove(data) == null) {
-				throw new DataNotFound();
-			}
-		}
+	private Node balanceChildren(Node node, Node theChild) {
+		// Tries to find anotherChild which can donate a grand-child to theChild.
 
-		public void _checkChildClass(IndexItem child) {
-			assert child instanceof MTree.Entry;
-		}
-	}
+		Node nearestDonor = null;
+		double distanceNearestDonor = Double.POSITIVE_INFINITY;
 
+		Node nearestMergeCandidate = null;
+		double distanceNearestMergeCandidate = Double.POSITIVE_INFINITY;
 
-	class NonLeafNodeTrait extends NodeTrait implements Leafness<DATA> {
-		
-		public void doAddData(DATA data, double distance) {
-			class CandidateChild {
-				Node node;
-				double distance;
-				double metric;
-				private CandidateChild(Node node, double distance, double metric) {
-					this.node = node;
-					this.distance = distance;
-					this.metric = metric;
-				}
-			}
-			
-			CandidateChild minRadiusIncreaseNeeded = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
-			CandidateChild nearestDistance         = new CandidateChild(null, -1.0, Double.POSITIVE_INFINITY);
-			
-			for(IndexItem item : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node child = (Node)item;
-				double childDistance = thisNode.mtree().distanceFunction.calculate(child.data, data);
-				if(childDistance > child.radius) {
-					double radiusIncrease = childDistance - child.radius;
-					if(radiusIncrease < minRadiusIncreaseNeeded.metric) {
-						minRadiusIncreaseNeeded = new CandidateChild(child, childDistance, radiusIncrease);
-					}
-				} else {
-					if(childDistance < nearestDistance.metric) {
-						nearestDistance = new CandidateChild(child, childDistance, childDistance);
-					}
+		for(int i = 0; i < node.size; i++) {
+			Node anotherChild = node.childNodes[i];
+			if(anotherChild == theChild) continue;
+
+			double distance = distanceFunction.calculate(theChild.data, anotherChild.data);
+			if(anotherChild.size > getMinCapacity(anotherChild)) {
+				if(distance < distanceNearestDonor) {
+					distanceNearestDonor = distance;
+					nearestDonor = anotherChild;
 				}
-			}
-			
-			CandidateChild chosen = (nearestDistance.node != null)
-			                      ? nearestDistance
-			                      : minRadiusIncreaseNeeded;
-			
-			Node child = chosen.node;
-			try {
-				child.addData(data, chosen.distance);
-				thisNode.updateRadius(child);
-			} catch(SplitNodeReplacement e) {
-				// Replace current child with new nodes
-				IndexItem ii = thisNode.children.remove(child.data);
-				assert ii != null;
-				
-				for(int i = 0; i < e.newNodes.length; ++i) {
-					@SuppressWarnings("unchecked")
-					Node newChild = (Node) e.newNodes[i];
-					distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newChild.data);
-					thisNode.addChild(newChild, distance);
+			} else {
+				if(distance < distanceNearestMergeCandidate) {
+					distanceNearestMergeCandidate = distance;
+					nearestMergeCandidate = anotherChild;
 				}
 			}
 		}
-		
-
-		public void addChild(IndexItem newChild_, double distance) {
-			@SuppressWarnings("unchecked")
-			Node newChild = (Node) newChild_;
-			
-			class ChildWithDistance {
-				Node child;
-				double distance;
-				private ChildWithDistance(Node child, double distance) {
-					this.child = child;
-					this.distance = distance;
+
+		if(nearestDonor == null) {
+			// Merge
+			if(nearestMergeCandidate != null) {
+				for(int i = 0; i < theChild.size; i++) {
+					DATA grandchildData = theChild.childData(i);
+					double distance = distanceFunction.calculate(grandchildData, nearestMergeCandidate.data);
+					addChild(nearestMergeCandidate, grandchildData, theChild.childHashes[i],
+							theChild.leaf ? null : theChild.childNodes[i], distance);
 				}
 			}
-			
-			Deque<ChildWithDistance> newChildren = new ArrayDeque<ChildWithDistance>();
-			newChildren.addFirst(new ChildWithDistance(newChild, distance));
-			
-			while(!newChildren.isEmpty()) {
-				ChildWithDistance cwd = newChildren.removeFirst();
-				
-				newChild = cwd.child;
-				distance = cwd.distance;
-				if(thisNode.children.containsKey(newChild.data)) {
-					@SuppressWarnings("unchecked")
-					Node existingChild = (Node) thisNode.children.get(newChild.data);
-					assert existingChild.data.equals(newChild.data);
-					
-					// Transfer the _children_ of the newChild to the existingChild
-					for(IndexItem grandchild : newChild.children.values()) {
-						existingChild.addChild(grandchild, grandchild.distanceToParent);
-					}
-					newChild.children.clear();
-					
-					try {
-						existingChild.checkMaxCapacity();
-					} catch(SplitNodeReplacement e) {
-						IndexItem ii = thisNode.children.remove(existingChild.data);
-						assert ii != null;
-						
-						for(int i = 0; i < e.newNodes.length; ++i) {
-							@SuppressWarnings("unchecked")
-							Node newNode = (Node) e.newNodes[i];
-							distance = thisNode.mtree().distanceFunction.calculate(thisNode.data, newNode.data);
-							newChildren.addFirst(new ChildWithDistance(newNode, distance));
-						}
-					}
-				} else {
-					thisNode.children.put(newChild.data, newChild);
-					thisNode.updateMetrics(newChild, distance);
+
+			int removed = node.indexOfNode(theChild);
+			assert removed >= 0;
+			node.removeSlot(removed);
+			return nearestMergeCandidate;
+		} else {
+			// Donate
+			// Look for the nearest grandchild
+			int nearestGrandchild = -1;
+			double nearestGrandchildDistance = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < nearestDonor.size; i++) {
+				double distance = distanceFunction.calculate(nearestDonor.childData(i), theChild.data);
+				if(distance < nearestGrandchildDistance) {
+					nearestGrandchildDistance = distance;
+					nearestGrandchild = i;
 				}
 			}
+
+			DATA grandchildData = nearestDonor.childData(nearestGrandchild);
+			int grandchildHash = nearestDonor.childHashes[nearestGrandchild];
+			Node grandchild = nearestDonor.leaf ? null : nearestDonor.childNodes[nearestGrandchild];
+			nearestDonor.removeSlot(nearestGrandchild);
+			addChild(theChild, grandchildData, grandchildHash, grandchild, nearestGrandchildDistance);
+			return theChild;
 		}
+	}
 
 
-		public Node newSplitNodeReplacement(DATA data) {
-			return new InternalNode(data);
-		}
+	@SuppressWarnings("unchecked")
+	private Node[] newNodeArray(int length) {
+		return (Node[]) new MTree.Node[length];
+	}
 
 
-		public void doRemoveData(DATA data, double distance) throws DataNotFound {
-			for(IndexItem childItem : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node child = (Node)childItem;
-				if(Math.abs(distance - child.distanceToParent) <= child.radius) {
-					double distanceToChild = thisNode.mtree().distanceFunction.calculate(data, child.data);
-					if(distanceToChild <= child.radius) {
-						try {
-							child.removeData(data, distanceToChild);
-							thisNode.updateRadius(child);
-							return;
-						} catch(DataNotFound e) {
-							// If DataNotFound was thrown, then the data was not found in the child
-						} catch(NodeUnderCapacity e) {
-							Node expandedChild = balanceChildren(child);
-							thisNode.updateRadius(expandedChild);
-							return;
-						} catch (RootNodeReplacement e) {
-							throw new RuntimeException("Should never happen!");
-						}
-					}
-				}
-			}
-			
-			throw new DataNotFound();
-		}
+	/**
+	 * A node of the tree. A leaf holds the indexed data objects, an internal
+	 * node holds the child nodes and their routing objects.
+	 */
+	protected class Node {
 
-		
-		private Node balanceChildren(Node theChild) {
-			// Tries to find anotherChild which can donate a grand-child to theChild.
-			
-			Node nearestDonor = null;
-			double distanceNearestDonor = Double.POSITIVE_INFINITY;
-			
-			Node nearestMergeCandidate = null;
-			double distanceNearestMergeCandidate = Double.POSITIVE_INFINITY;
-
-			for(IndexItem child : thisNode.children.values()) {
-				@SuppressWarnings("unchecked")
-				Node anotherChild = (Node)child;
-				if(anotherChild == theChild) continue;
-
-				double distance = thisNode.mtree().distanceFunction.calculate(theChild.data, anotherChild.data);
-				if(anotherChild.children.size() > anotherChild.getMinCapacity()) {
-					if(distance < distanceNearestDonor) {
-						distanceNearestDonor = distance;
-						nearestDonor = anotherChild;
-					}
-				} else {
-					if(distance < distanceNearestMergeCandidate) {
-						distanceNearestMergeCandidate = distance;
-						nearestMergeCandidate = anotherChild;
-					}
-				}
-			}
+		/** The routing object. */
+		DATA data;
 
-			if(nearestDonor == null) {
-				// Merge
-				for(IndexItem grandchild : theChild.children.values()) {
-                                    //if (thisNode == null) System.out.println("thisNode is null");
-                                    //if (thisNode.mtree() == null) System.out.println("thisNode.mtree() is null");
-                                    //if (grandchild == null) System.out.println("grandchild is null");
-                                    //if (grandchild.data == null) System.out.println("grandchild.data is null");                                
-                                    //if (nearestMergeCandidate == null) System.out.println("nearestMergeCandidate is null");                                
-                                    //if (nearestMergeCandidate.data == null) System.out.println("nearestMergeCandidate.data is null");
-
-                                    if (nearestMergeCandidate != null) { // ### added by mits
-                                        double distance = thisNode.mtree().distanceFunction.calculate(grandchild.data, nearestMergeCandidate.data);
-                                        nearestMergeCandidate.addChild(grandchild, distance); 
-                                    }                                    
-				}
+		/** The covering radius. */
+		double radius;
 
-				IndexItem removed = thisNode.children.remove(theChild.data);
-				assert removed != null;
-				return nearestMergeCandidate;
-			} else {
-				// Donate
-				// Look for the nearest grandchild
-				IndexItem nearestGrandchild = null;
-				double nearestGrandchildDistance = Double.POSITIVE_INFINITY;
-				for(IndexItem grandchild : nearestDonor.children.values()) {
-					double distance = thisNode.mtree().distanceFunction.calculate(grandchild.data, theChild.data);
-					if(distance < nearestGrandchildDistance) {
-						nearestGrandchildDistance = distance;
-						nearestGrandchild = grandchild;
-					}
-				}
+		boolean leaf;
 
-				IndexItem ii = nearestDonor.children.remove(nearestGrandchild.data);
-				assert ii != null;
-				theChild.addChild(nearestGrandchild, nearestGrandchildDistance);
-				return theChild;
-			}
-		}
+		int size;
 
+		Object[] childData;
 
-		public void _checkChildClass(IndexItem child) {
-			assert child instanceof MTree.InternalNode
-			    || child instanceof MTree.LeafNode;
-		}
-	}
+		int[] childHashes;
 
+		/** The distances from the children to the routing object. */
+		double[] childDistances;
 
-	private class RootLeafNode extends Node {
-		
-		private RootLeafNode(DATA data) {
-			super(data, new RootNodeTrait(), new LeafNodeTrait());
-		}
-		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch (NodeUnderCapacity e) {
-				assert children.isEmpty();
-				throw new RootNodeReplacement(null);
+		/** The child nodes, {@code null} in a leaf. */
+		Node[] childNodes;
+
+		private Node(DATA data, boolean leaf) {
+			this.data = data;
+			this.leaf = leaf;
+			int capacity = maxNodeCapacity + 1;
+			this.childData = new Object[capacity];
+			this.childHashes = new int[capacity];
+			this.childDistances = new double[capacity];
+			if(!leaf) {
+				this.childNodes = newNodeArray(capacity);
 			}
 		}
-		
-		protected int getMinCapacity() {
-			return 1;
-		}
 
-		void _checkMinCapacity() {
-			assert children.size() >= 1;
+		@SuppressWarnings("unchecked")
+		DATA childData(int index) {
+			return (DATA) childData[index];
 		}
-	}
 
-	private class RootNode extends Node {
-
-		private RootNode(DATA data) {
-			super(data, new RootNodeTrait(), new NonLeafNodeTrait());
+		double childRadius(int index) {
+			return leaf ? 0.0 : childNodes[index].radius;
 		}
-		
-		void removeData(DATA data, double distance) throws RootNodeReplacement, NodeUnderCapacity, DataNotFound {
-			try {
-				super.removeData(data, distance);
-			} catch(NodeUnderCapacity e) {
-				// Promote the only child to root
-				@SuppressWarnings("unchecked")
-				Node theChild = (Node)(children.values().iterator().next());
-				Node newRoot;
-				if(theChild instanceof MTree.InternalNode) {
-					newRoot = new RootNode(theChild.data);
-				} else {
-					assert theChild instanceof MTree.LeafNode;
-					newRoot = new RootLeafNode(theChild.data);
-				}
 
-				for(IndexItem grandchild : theChild.children.values()) {
-					distance = MTree.this.distanceFunction.calculate(newRoot.data, grandchild.data);
-					newRoot.addChild(grandchild, distance);
+		int indexOf(DATA data, int hash) {
+			for(int i = 0; i < size; i++) {
+				if(childHashes[i] == hash) {
+					Object item = childData[i];
+					if(item == data  ||  data.equals(item)) {
+						return i;
+					}
 				}
-				theChild.children.clear();
-
-				throw new RootNodeReplacement(newRoot);
 			}
+			return -1;
 		}
-		
-		
-		@Override
-		protected int getMinCapacity() {
-			return 2;
-		}
-		
-		@Override
-		void _checkMinCapacity() {
-			assert children.size() >= 2;
-		}
-	}
 
-
-	private class InternalNode extends Node {
-		private InternalNode(DATA data) {
-			super(data, new NonRootNodeTrait(), new NonLeafNodeTrait());
+		int indexOfNode(Node node) {
+			for(int i = 0; i < size; i++) {
+				if(childNodes[i] == node) {
+					return i;
+				}
+			}
+			return -1;
 		}
-	};
-
 
-	private class LeafNode extends Node {
+		void addSlot(DATA data, int hash, Node child, double distance) {
+			if(size == childData.length) {
+				int capacity = 2 * size;
+				childData = Arrays.copyOf(childData, capacity);
+				childHashes = Arrays.copyOf(childHashes, capacity);
+				childDistances = Arrays.copyOf(childDistances, capacity);
+				if(!leaf) {
+					childNodes = Arrays.copyOf(childNodes, capacity);
+				}
+			}
+			childData[size] = data;
+			childHashes[size] = hash;
+			childDistances[size] = distance;
+			if(!leaf) {
+				childNodes[size] = child;
+			}
+			size++;
+			updateRadius(size - 1);
+		}
 
-		public LeafNode(DATA data) {
-			super(data, new NonRootNodeTrait(), new LeafNodeTrait());
+		void removeSlot(int index) {
+			size--;
+			childData[index] = childData[size];
+			childHashes[index] = childHashes[size];
+			childDistances[index] = childDistances[size];
+			childData[size] = null;
+			if(!leaf) {
+				childNodes[index] = childNodes[size];
+				childNodes[size] = null;
+			}
 		}
-	}
 
+		void clear() {
+			Arrays.fill(childData, 0, size, null);
+			if(!leaf) {
+				Arrays.fill(childNodes, 0, size, null);
+			}
+			size = 0;
+		}
 
-	private class Entry extends IndexItem {
-		private Entry(DATA data) {
-			super(data);
+		void updateRadius(int index) {
+			radius = Math.max(radius, childDistances[index] + childRadius(index));
 		}
 	}
 }
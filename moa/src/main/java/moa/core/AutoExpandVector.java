@@ -31,7 +31,7 @@ import moa.MOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject {
+public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -115,9 +115,29 @@ public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject {
         trimToSize();
     }
 
+    /**
+     * Copies the vector and its elements. The elements are copied with their
+     * own copy method if they are all MOA objects, otherwise the vector is
+     * serialised.
+     *
+     * @return the copy of the vector
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public MOAObject copy() {
-        return AbstractMOAObject.copy(this);
+        for (T element : this) {
+            if ((element != null) && !(element instanceof MOAObject)) {
+                return AbstractMOAObject.copy(this);
+            }
+        }
+        AutoExpandVector<T> copy = (AutoExpandVector<T>) clone();
+        for (int i = 0; i < copy.size(); i++) {
+            T element = copy.get(i);
+            if (element != null) {
+                copy.set(i, (T) ((MOAObject) element).copy());
+            }
+        }
+        return copy;
     }
 
     @Override
@@ -125,6 +145,26 @@ public class AutoExpandVector<T> extends ArrayList<T> implements MOAObject {
         return AbstractMOAObject.measureByteSize(this);
     }
 
+    /**
+     * Estimates the size of the vector and of its elements, which have to be
+     * ByteSizeEstimable (or null) for the estimate to succeed.
+     *
+     * @return the estimated size in bytes, or -1 if an element cannot
+     * estimate its size
+     */
+    @Override
+    public long estimateByteSize() {
+        long size = SizeOf.estimateObjectSize(1, 8)
+                + SizeOf.estimateArraySize(size(), SizeOf.REFERENCE);
+        for (T element : this) {
+            size = SizeOf.addEstimates(size, SizeOf.estimateByteSize(element));
+            if (size < 0) {
+                break;
+            }
+        }
+        return size;
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
@@ -0,0 +1,42 @@
+/*
+ *    ByteSizeEstimable.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+/**
+ * Interface for objects that keep account of their memory size, so that it
+ * can be estimated cheaply, without walking the object graph by reflection
+ * as MOAObject.measureByteSize() does.
+ *
+ * The estimate is built from the counts the objects maintain as they grow
+ * (nodes, buckets, values seen...) and the helpers of SizeOf for the sizes
+ * of objects and arrays. It is an approximation of the full size: the
+ * options of the objects are not counted, for example.
+ *
+ * @version $Revision: 7 $
+ */
+public interface ByteSizeEstimable {
+
+    /**
+     * Estimates the memory size of the object, including the objects it owns.
+     *
+     * @return the estimated size in bytes, or a negative value if some part
+     * of the object cannot estimate its size
+     */
+    public long estimateByteSize();
+}
@@ -27,7 +27,7 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class DoubleVector extends AbstractMOAObject {
+public class DoubleVector extends AbstractMOAObject implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -195,6 +195,19 @@ public class DoubleVector extends AbstractMOAObject {
         out.append("}");
     }
 
+    @Override
+    public DoubleVector copy() {
+        DoubleVector copy = (DoubleVector) shallowCopy();
+        copy.array = this.array.clone();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 0)
+                + SizeOf.estimateArraySize(this.array.length, 8);
+    }
+
     @Override
     public void getDescription(StringBuilder sb, int indent) {
         getSingleLineDescription(sb);
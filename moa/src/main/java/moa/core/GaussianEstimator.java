@@ -28,7 +28,7 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class GaussianEstimator extends AbstractMOAObject {
+public class GaussianEstimator extends AbstractMOAObject implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -102,6 +102,20 @@ public class GaussianEstimator extends AbstractMOAObject {
 
     public double[] estimatedWeight_LessThan_EqualTo_GreaterThan_Value(
             double value) {
+        double[] weights = new double[3];
+        estimatedWeight_LessThan_EqualTo_GreaterThan_Value(value, weights);
+        return weights;
+    }
+
+    /**
+     * Estimates the weight of the values less than, equal to and greater than
+     * a value, without allocating the result.
+     *
+     * @param value the value
+     * @param weights the array receiving the three weights
+     */
+    public void estimatedWeight_LessThan_EqualTo_GreaterThan_Value(
+            double value, double[] weights) {
         double equalToWeight = probabilityDensity(value) * this.weightSum;
         double stdDev = getStdDev();
         double lessThanWeight = stdDev > 0.0 ? moa.core.Statistics.normalProbability((value - getMean()) / stdDev)
@@ -112,7 +126,19 @@ public class GaussianEstimator extends AbstractMOAObject {
         if (greaterThanWeight < 0.0) {
             greaterThanWeight = 0.0;
         }
-        return new double[]{lessThanWeight, equalToWeight, greaterThanWeight};
+        weights[0] = lessThanWeight;
+        weights[1] = equalToWeight;
+        weights[2] = greaterThanWeight;
+    }
+
+    @Override
+    public GaussianEstimator copy() {
+        return (GaussianEstimator) shallowCopy();
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(0, 24);
     }
 
     @Override
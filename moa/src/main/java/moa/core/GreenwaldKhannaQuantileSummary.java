@@ -30,7 +30,8 @@ import moa.AbstractMOAObject;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class GreenwaldKhannaQuantileSummary extends AbstractMOAObject {
+public class GreenwaldKhannaQuantileSummary extends AbstractMOAObject
+        implements ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -274,6 +275,24 @@ public class GreenwaldKhannaQuantileSummary extends AbstractMOAObject {
         return boundaries;
     }
 
+    @Override
+    public GreenwaldKhannaQuantileSummary copy() {
+        GreenwaldKhannaQuantileSummary copy = (GreenwaldKhannaQuantileSummary) shallowCopy();
+        copy.summary = new Tuple[this.summary.length];
+        for (int i = 0; i < this.numTuples; i++) {
+            Tuple t = this.summary[i];
+            copy.summary[i] = new Tuple(t.v, t.g, t.delta);
+        }
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(1, 12)
+                + SizeOf.estimateArraySize(this.summary.length, SizeOf.REFERENCE)
+                + this.numTuples * SizeOf.estimateObjectSize(0, 24);
+    }
+
     public void getDescription(StringBuilder sb, int indent) {
         // TODO Auto-generated method stub
     }
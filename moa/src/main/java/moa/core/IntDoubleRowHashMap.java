@@ -0,0 +1,218 @@
+/*
+ *    IntDoubleRowHashMap.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+
+/**
+ * Hash map from non-negative int keys to rows of doubles, such as the class
+ * counts of every value of a nominal attribute.
+ *
+ * The keys are kept in an open-addressing table with linear probing, and the
+ * rows one after the other in a single array of doubles, so that only the
+ * keys actually seen take memory. All the rows have the same length, which
+ * grows when a column beyond it is first written. Entries are never removed.
+ */
+public class IntDoubleRowHashMap extends AbstractMOAObject implements ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int EMPTY = -1;
+
+    protected static final int INITIAL_CAPACITY = 8;
+
+    /** The key of every slot, or EMPTY. */
+    protected int[] keys;
+
+    /** The rows of the slots, rowLength values per slot. */
+    protected double[] rows;
+
+    protected int rowLength;
+
+    protected int size;
+
+    public IntDoubleRowHashMap() {
+        this(1);
+    }
+
+    /**
+     * Creates an empty map.
+     *
+     * @param rowLength the initial length of the rows
+     */
+    public IntDoubleRowHashMap(int rowLength) {
+        this.rowLength = Math.max(rowLength, 1);
+        this.keys = new int[INITIAL_CAPACITY];
+        Arrays.fill(this.keys, EMPTY);
+        this.rows = new double[INITIAL_CAPACITY * this.rowLength];
+    }
+
+    /**
+     * Gets the number of keys in the map.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public int rowLength() {
+        return this.rowLength;
+    }
+
+    /**
+     * Gets a value of the row of a key.
+     *
+     * @param key the key
+     * @param column the column of the value in the row
+     * @return the value, or 0 if the key or the column is absent
+     */
+    public double getValue(int key, int column) {
+        int slot = findSlot(key);
+        return slot >= 0 && column < this.rowLength
+                ? this.rows[slot * this.rowLength + column] : 0.0;
+    }
+
+    /**
+     * Adds to a value of the row of a key, adding the key if needed.
+     *
+     * @param key the key, non-negative
+     * @param column the column of the value in the row
+     * @param value the value to add
+     */
+    public void addToValue(int key, int column, double value) {
+        if (column >= this.rowLength) {
+            setRowLength(column + 1);
+        }
+        int slot = getOrAddSlot(key);
+        this.rows[slot * this.rowLength + column] += value;
+    }
+
+    /**
+     * Gets the slot of a key, so that its row can be read with
+     * {@link #getSlotValue(int, int)}.
+     *
+     * @param key the key
+     * @return the slot, or -1 if the key is absent
+     */
+    public int findSlot(int key) {
+        int mask = this.keys.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            int slotKey = this.keys[slot];
+            if (slotKey == key) {
+                return slot;
+            }
+            if (slotKey == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    public double getSlotValue(int slot, int column) {
+        return column < this.rowLength ? this.rows[slot * this.rowLength + column] : 0.0;
+    }
+
+    /**
+     * Copies the row of a key into an array, padded with zeros.
+     *
+     * @param key the key
+     * @param row the array to fill
+     */
+    public void getRow(int key, double[] row) {
+        int slot = findSlot(key);
+        int length = Math.min(row.length, this.rowLength);
+        if (slot >= 0) {
+            System.arraycopy(this.rows, slot * this.rowLength, row, 0, length);
+        } else {
+            Arrays.fill(row, 0, length, 0.0);
+        }
+        Arrays.fill(row, length, row.length, 0.0);
+    }
+
+    protected int getOrAddSlot(int key) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (2 * (this.size + 1) > this.keys.length) {
+            resize(2 * this.keys.length, this.rowLength);
+        }
+        int mask = this.keys.length - 1;
+        slot = hash(key) & mask;
+        while (this.keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = key;
+        this.size++;
+        return slot;
+    }
+
+    protected void setRowLength(int rowLength) {
+        resize(this.keys.length, rowLength);
+    }
+
+    protected void resize(int capacity, int rowLength) {
+        int[] oldKeys = this.keys;
+        double[] oldRows = this.rows;
+        int oldRowLength = this.rowLength;
+        this.keys = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.rows = new double[capacity * rowLength];
+        this.rowLength = rowLength;
+        int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            int key = oldKeys[oldSlot];
+            if (key != EMPTY) {
+                int slot = hash(key) & mask;
+                while (this.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                this.keys[slot] = key;
+                System.arraycopy(oldRows, oldSlot * oldRowLength, this.rows,
+                        slot * rowLength, oldRowLength);
+            }
+        }
+    }
+
+    protected static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public IntDoubleRowHashMap copy() {
+        IntDoubleRowHashMap copy = (IntDoubleRowHashMap) shallowCopy();
+        copy.keys = this.keys.clone();
+        copy.rows = this.rows.clone();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(2, 8)
+                + SizeOf.estimateArraySize(this.keys.length, 4)
+                + SizeOf.estimateArraySize(this.rows.length, 8);
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        // TODO Auto-generated method stub
+    }
+}
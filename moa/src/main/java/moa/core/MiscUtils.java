@@ -20,6 +20,10 @@
  */
 package moa.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Random;
@@ -67,6 +71,32 @@ public class MiscUtils {
         return (int) Math.floor(x);
     }
 
+    /**
+     * Copies a random number generator, so that the copy goes on with the
+     * same sequence of numbers as the original.
+     *
+     * @param random the generator to copy
+     * @return the copy, or null if the generator is null
+     */
+    public static Random copyRandom(Random random) {
+        if (random == null) {
+            return null;
+        }
+        // the state of the generator is private, so it is serialised, with
+        // unbuffered streams as it only takes a few bytes
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(random);
+            out.close();
+            ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray()));
+            return (Random) in.readObject();
+        } catch (Exception e) {
+            throw new RuntimeException("Object copy failed.", e);
+        }
+    }
+
     public static String getStackTraceString(Exception ex) {
         StringWriter stackTraceWriter = new StringWriter();
         ex.printStackTrace(new PrintWriter(stackTraceWriter));
@@ -0,0 +1,157 @@
+/*
+ *    RingList.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List over a circular array. Elements are added and removed at either end
+ * in constant time, elements in between are removed by shifting the shorter
+ * side. Used for sliding windows, where the oldest element leaves at the
+ * front every time a new one is appended.
+ *
+ * @param <E> the type of the elements
+ */
+public class RingList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Object[] elements;
+
+    protected int head;
+
+    protected int size;
+
+    public RingList() {
+        this(16);
+    }
+
+    public RingList(int capacity) {
+        this.elements = new Object[Math.max(capacity, 1)];
+    }
+
+    private int slot(int index) {
+        int i = this.head + index;
+        return i < this.elements.length ? i : i - this.elements.length;
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, this.size);
+        return (E) this.elements[slot(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index, this.size);
+        int i = slot(index);
+        E old = (E) this.elements[i];
+        this.elements[i] = element;
+        return old;
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (this.size == this.elements.length) {
+            grow();
+        }
+        this.elements[slot(this.size)] = element;
+        this.size++;
+        this.modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, this.size + 1);
+        if (this.size == this.elements.length) {
+            grow();
+        }
+        if (index < this.size / 2) {
+            this.head = (this.head == 0 ? this.elements.length : this.head) - 1;
+            for (int i = 0; i < index; i++) {
+                this.elements[slot(i)] = this.elements[slot(i + 1)];
+            }
+        } else {
+            for (int i = this.size; i > index; i--) {
+                this.elements[slot(i)] = this.elements[slot(i - 1)];
+            }
+        }
+        this.elements[slot(index)] = element;
+        this.size++;
+        this.modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index, this.size);
+        E old = (E) this.elements[slot(index)];
+        if (index < this.size / 2) {
+            for (int i = index; i > 0; i--) {
+                this.elements[slot(i)] = this.elements[slot(i - 1)];
+            }
+            this.elements[this.head] = null;
+            this.head = slot(1);
+        } else {
+            for (int i = index; i < this.size - 1; i++) {
+                this.elements[slot(i)] = this.elements[slot(i + 1)];
+            }
+            this.elements[slot(this.size - 1)] = null;
+        }
+        this.size--;
+        if (this.size == 0) {
+            this.head = 0;
+        }
+        this.modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elements, null);
+        this.head = 0;
+        this.size = 0;
+        this.modCount++;
+    }
+
+    private void grow() {
+        Object[] newElements = new Object[2 * this.elements.length];
+        for (int i = 0; i < this.size; i++) {
+            newElements[i] = this.elements[slot(i)];
+        }
+        this.elements = newElements;
+        this.head = 0;
+    }
+}
@@ -65,6 +65,82 @@ public class SizeOf {
         }
     }
 
+    /** estimated size of the header of an object. */
+    public static final int OBJECT_HEADER = 12;
+
+    /** estimated size of the header of an array. */
+    public static final int ARRAY_HEADER = 16;
+
+    /** estimated size of a reference. */
+    public static final int REFERENCE = 4;
+
+    /**
+     * Estimates the size of an object from its fields, as laid out by a
+     * 64-bit JVM with compressed references.
+     *
+     * @param numReferences the number of reference fields
+     * @param primitiveBytes the number of bytes of the primitive fields
+     * @return the estimated size of the object, without the objects it
+     * refers to
+     */
+    public static long estimateObjectSize(int numReferences, int primitiveBytes) {
+        return align(OBJECT_HEADER + numReferences * REFERENCE + primitiveBytes);
+    }
+
+    /**
+     * Estimates the size of an array.
+     *
+     * @param length the length of the array
+     * @param elementBytes the size of its elements (REFERENCE for arrays of
+     * objects)
+     * @return the estimated size of the array, without the objects it
+     * refers to
+     */
+    public static long estimateArraySize(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * Estimates the size of an object that keeps account of its size.
+     *
+     * @param o	the object to estimate the size for, may be null
+     * @return the estimated size, 0 for null, or -1 if the object is not
+     * ByteSizeEstimable
+     */
+    public static long estimateByteSize(Object o) {
+        if (o == null) {
+            return 0;
+        } else if (o instanceof ByteSizeEstimable) {
+            return ((ByteSizeEstimable) o).estimateByteSize();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Adds two estimates, propagating the failure of any of them.
+     *
+     * @param size1 the first estimate
+     * @param size2 the second estimate
+     * @return the sum of the estimates, or -1 if any of them is negative
+     */
+    public static long addEstimates(long size1, long size2) {
+        if ((size1 < 0) || (size2 < 0)) {
+            return -1;
+        }
+        return size1 + size2;
+    }
+
+    /**
+     * Rounds a size up to the 8-byte alignment of objects.
+     *
+     * @param size the size to align
+     * @return the aligned size
+     */
+    protected static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
     /**
      * Returns the full size of the object.
      *
@@ -0,0 +1,378 @@
+/*
+ *    TDigest.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import moa.AbstractMOAObject;
+
+/**
+ * Weighted quantile sketch of bounded size, after the merging t-digest of
+ * Dunning and Ertl.
+ *
+ * The distribution is summarized by centroids, a mean and a weight, kept
+ * sorted by mean in primitive arrays. New values are appended behind the
+ * centroids and, when the arrays are full, everything is sorted and merged
+ * again so that the centroids near the tails stay small. The compression
+ * bounds the number of centroids to about compression, and the error of the
+ * quantiles to about 1 / compression, tighter in the tails. The arrays grow
+ * from a small size to at most twice the compression, so sketches that see
+ * few values stay small.
+ *
+ * Two sketches can be merged, which is the same as adding the centroids of
+ * one to the other.
+ */
+public class TDigest extends AbstractMOAObject implements ByteSizeEstimable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected double compression;
+
+    /** The means of the centroids, sorted, followed by the unmerged values. */
+    protected double[] means;
+
+    /** The weights of the centroids, followed by those of the unmerged values. */
+    protected double[] weights;
+
+    /** The number of centroids, at the start of the arrays. */
+    protected int numCentroids;
+
+    /** The number of centroids and unmerged values. */
+    protected int numEntries;
+
+    protected double totalWeight;
+
+    protected double min = Double.POSITIVE_INFINITY;
+
+    protected double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param compression the compression, at least 10
+     */
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = Math.min(INITIAL_CAPACITY, maxCapacity());
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+    }
+
+    public void add(double value, double weight) {
+        if (weight <= 0.0) {
+            return;
+        }
+        if (this.numEntries == this.means.length) {
+            if (this.means.length < maxCapacity()) {
+                grow();
+            } else {
+                compress();
+            }
+        }
+        this.means[this.numEntries] = value;
+        this.weights[this.numEntries] = weight;
+        this.numEntries++;
+        this.totalWeight += weight;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Adds the distribution summarized by another sketch.
+     *
+     * @param other the sketch to merge into this one
+     */
+    public void merge(TDigest other) {
+        for (int i = 0; i < other.numEntries; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+    }
+
+    /**
+     * Merges the unmerged values into the centroids.
+     */
+    public void compress() {
+        if (this.numCentroids == this.numEntries) {
+            return;
+        }
+        sort(this.means, this.weights, 0, this.numEntries - 1);
+        // merge from left to right: the centroids written never overtake the
+        // entries still to be read
+        double normalizer = this.compression / (2.0 * Math.PI);
+        double weightSoFar = 0.0;
+        double weightLimit = this.totalWeight * limitingQuantile(0.0, normalizer);
+        int out = 0;
+        double mean = this.means[0];
+        double weight = this.weights[0];
+        for (int i = 1; i < this.numEntries; i++) {
+            double proposedWeight = weight + this.weights[i];
+            if (weightSoFar + proposedWeight <= weightLimit) {
+                mean += (this.means[i] - mean) * this.weights[i] / proposedWeight;
+                weight = proposedWeight;
+            } else {
+                this.means[out] = mean;
+                this.weights[out] = weight;
+                out++;
+                weightSoFar += weight;
+                weightLimit = this.totalWeight
+                        * limitingQuantile(weightSoFar / this.totalWeight, normalizer);
+                mean = this.means[i];
+                weight = this.weights[i];
+            }
+        }
+        this.means[out] = mean;
+        this.weights[out] = weight;
+        this.numCentroids = out + 1;
+        this.numEntries = this.numCentroids;
+    }
+
+    public double getTotalWeight() {
+        return this.totalWeight;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    /**
+     * Gets the number of centroids, after merging the unmerged values.
+     *
+     * @return the number of centroids
+     */
+    public int numCentroids() {
+        compress();
+        return this.numCentroids;
+    }
+
+    /**
+     * Gets the mean of a centroid. The centroids are sorted by mean, and
+     * {@link #numCentroids()} must be called first to merge the unmerged
+     * values.
+     *
+     * @param i the index of the centroid
+     * @return the mean
+     */
+    public double getMean(int i) {
+        return this.means[i];
+    }
+
+    /**
+     * Gets the weight of a centroid, see {@link #getMean(int)}.
+     *
+     * @param i the index of the centroid
+     * @return the weight
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Estimates the weight of the values less than or equal to a value. The
+     * cumulative distribution is interpolated linearly between the means of
+     * the centroids, half of the weight of every centroid lying on each side
+     * of its mean.
+     *
+     * @param value the value
+     * @return the estimated weight
+     */
+    public double getWeightBelow(double value) {
+        compress();
+        if (this.numCentroids == 0 || value < this.min) {
+            return 0.0;
+        }
+        if (value >= this.max) {
+            return this.totalWeight;
+        }
+        double weightSoFar = 0.0;
+        double prevMean = this.min;
+        double prevWeight = 0.0;
+        for (int i = 0; i < this.numCentroids; i++) {
+            double mean = this.means[i];
+            double halfWeight = this.weights[i] / 2.0;
+            if (value < mean) {
+                return weightSoFar + (prevWeight + halfWeight)
+                        * (value - prevMean) / (mean - prevMean);
+            }
+            weightSoFar += prevWeight + halfWeight;
+            prevMean = mean;
+            prevWeight = halfWeight;
+        }
+        return weightSoFar + prevWeight * (value - prevMean) / (this.max - prevMean);
+    }
+
+    /**
+     * Estimates the density of the distribution at a value, as the slope of
+     * the cumulative distribution of {@link #getWeightBelow(double)}. Only
+     * the centroids are read, and the unmerged values are merged first once
+     * they are more than an eighth of the centroids, so that the density can
+     * be read after every new value without sorting every time.
+     *
+     * @param value the value
+     * @return the estimated density, normalized by the weight of the centroids
+     */
+    public double getDensity(double value) {
+        if (this.numEntries - this.numCentroids > this.numCentroids / 8) {
+            compress();
+        }
+        if (this.numCentroids == 0 || value < this.min || value > this.max) {
+            return 0.0;
+        }
+        if (this.min == this.max) {
+            return 1.0;
+        }
+        double centroidWeight = this.totalWeight;
+        for (int j = this.numCentroids; j < this.numEntries; j++) {
+            centroidWeight -= this.weights[j];
+        }
+        // the first centroid at or above the value and above the previous one
+        int i = indexAtLeast(value);
+        while (i < this.numCentroids && this.means[i] == (i > 0 ? this.means[i - 1] : this.min)) {
+            i++;
+        }
+        if (i == this.numCentroids) {
+            double lastMean = this.means[i - 1];
+            return this.max > lastMean
+                    ? this.weights[i - 1] / 2.0 / (this.max - lastMean) / centroidWeight : 0.0;
+        }
+        double prevMean = i > 0 ? this.means[i - 1] : this.min;
+        double prevHalfWeight = i > 0 ? this.weights[i - 1] / 2.0 : 0.0;
+        return (prevHalfWeight + this.weights[i] / 2.0)
+                / (this.means[i] - prevMean) / centroidWeight;
+    }
+
+    /** Gets the index of the first centroid with a mean at least equal to a value. */
+    protected int indexAtLeast(double value) {
+        int low = 0;
+        int high = this.numCentroids;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.means[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the largest quantile that a centroid starting at quantile q may
+     * reach, one unit further on the arcsine scale.
+     */
+    protected static double limitingQuantile(double q, double normalizer) {
+        double k = normalizer * Math.asin(2.0 * q - 1.0) + 1.0;
+        if (k >= normalizer * Math.PI / 2.0) {
+            return 1.0;
+        }
+        return (Math.sin(k / normalizer) + 1.0) / 2.0;
+    }
+
+    protected int maxCapacity() {
+        return 2 * (int) Math.ceil(this.compression) + 2;
+    }
+
+    protected void grow() {
+        int capacity = Math.min(2 * this.means.length, maxCapacity());
+        double[] newMeans = new double[capacity];
+        double[] newWeights = new double[capacity];
+        System.arraycopy(this.means, 0, newMeans, 0, this.numEntries);
+        System.arraycopy(this.weights, 0, newWeights, 0, this.numEntries);
+        this.means = newMeans;
+        this.weights = newWeights;
+    }
+
+    /** Sorts two parallel arrays by the first, in place. */
+    protected static void sort(double[] keys, double[] values, int from, int to) {
+        while (to - from > 16) {
+            double pivot = median(keys[from], keys[(from + to) >>> 1], keys[to]);
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // recurse on the smaller part to bound the depth
+            if (j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            double key = keys[i];
+            double value = values[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    protected static double median(double a, double b, double c) {
+        return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+    }
+
+    protected static void swap(double[] keys, double[] values, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    @Override
+    public TDigest copy() {
+        TDigest copy = (TDigest) shallowCopy();
+        copy.means = this.means.clone();
+        copy.weights = this.weights.clone();
+        return copy;
+    }
+
+    @Override
+    public long estimateByteSize() {
+        return SizeOf.estimateObjectSize(2, 40)
+                + 2 * SizeOf.estimateArraySize(this.means.length, 8);
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        // TODO Auto-generated method stub
+    }
+}
@@ -23,14 +23,17 @@ package moa.evaluation;
 import com.github.javacliparser.FlagOption;
 import moa.capabilities.Capability;
 import moa.capabilities.ImmutableCapabilities;
+import moa.core.ByteSizeEstimable;
 import moa.core.Example;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
+import moa.core.SizeOf;
 import moa.core.Utils;
 
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Prediction;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 import java.io.Serializable;
@@ -49,7 +52,7 @@ import java.util.ArrayList;
  * @version $Revision: 8 $
  */
 public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandler
-        implements ClassificationPerformanceEvaluator {
+        implements ClassificationPerformanceEvaluator, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -112,6 +115,75 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
         this.totalWeightObserved = 0;
     }
 
+    /**
+     * Estimates the size of the evaluator, when it uses BasicEstimators.
+     *
+     * @return the estimated size in bytes, or -1 for other estimators
+     */
+    @Override
+    public long estimateByteSize() {
+        if ((this.weightCorrect != null)
+                && !(this.weightCorrect instanceof BasicEstimator)) {
+            return -1;
+        }
+        return SizeOf.estimateObjectSize(7, 16)
+                + 4 * SizeOf.estimateArraySize(this.numClasses, SizeOf.REFERENCE)
+                + (4L * this.numClasses + 3) * SizeOf.estimateObjectSize(1, 16);
+    }
+
+    /**
+     * Copies the evaluator without serialising it, when it uses
+     * BasicEstimators.
+     *
+     * @return the copy of the evaluator
+     */
+    @Override
+    public OptionHandler copy() {
+        if (getClass() != BasicClassificationPerformanceEvaluator.class) {
+            // subclasses use other estimators
+            return super.copy();
+        }
+        BasicClassificationPerformanceEvaluator copy = (BasicClassificationPerformanceEvaluator) cloneWithOptions();
+        copy.rowKappa = copy.copyEstimators(this.rowKappa);
+        copy.columnKappa = copy.copyEstimators(this.columnKappa);
+        copy.precision = copy.copyEstimators(this.precision);
+        copy.recall = copy.copyEstimators(this.recall);
+        copy.weightCorrect = copy.copyEstimator(this.weightCorrect);
+        copy.weightCorrectNoChangeClassifier = copy.copyEstimator(this.weightCorrectNoChangeClassifier);
+        copy.weightMajorityClassifier = copy.copyEstimator(this.weightMajorityClassifier);
+        return copy;
+    }
+
+    @Override
+    protected void copyOptions() {
+        super.copyOptions();
+        this.precisionRecallOutputOption = copyOption(this.precisionRecallOutputOption);
+        this.precisionPerClassOption = copyOption(this.precisionPerClassOption);
+        this.recallPerClassOption = copyOption(this.recallPerClassOption);
+        this.f1PerClassOption = copyOption(this.f1PerClassOption);
+    }
+
+    protected Estimator[] copyEstimators(Estimator[] estimators) {
+        if (estimators == null) {
+            return null;
+        }
+        Estimator[] copy = new Estimator[estimators.length];
+        for (int i = 0; i < estimators.length; i++) {
+            copy[i] = copyEstimator(estimators[i]);
+        }
+        return copy;
+    }
+
+    protected Estimator copyEstimator(Estimator estimator) {
+        if (estimator == null) {
+            return null;
+        }
+        BasicEstimator copy = new BasicEstimator();
+        copy.len = ((BasicEstimator) estimator).len;
+        copy.sum = ((BasicEstimator) estimator).sum;
+        return copy;
+    }
+
     @Override
     public void addResult(Example<Instance> example, double[] classVotes) {
         Instance inst = example.getData();
@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import moa.AbstractMOAObject;
+import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.clusterers.Clusterer;
 import moa.learners.Learner;
@@ -47,12 +48,30 @@ public class LearningEvaluation extends AbstractMOAObject {
 
     public LearningEvaluation(Measurement[] evaluationMeasurements,
             LearningPerformanceEvaluator cpe, Learner model) {
+        this(evaluationMeasurements, cpe, model, null);
+    }
+
+    /**
+     * Creates the evaluation at a sample point, where the serialized size of
+     * the model is only measured when the size meter has a full walk due,
+     * and a measurement says how the size was obtained. Without a size
+     * meter, the model is walked every time.
+     */
+    public LearningEvaluation(Measurement[] evaluationMeasurements,
+            LearningPerformanceEvaluator cpe, Learner model, ModelSizeMeter sizeMeter) {
         List<Measurement> measurementList = new LinkedList<Measurement>();
         if (evaluationMeasurements != null){
         measurementList.addAll(Arrays.asList(evaluationMeasurements));
         }
+        if (sizeMeter != null) {
+            measurementList.add(sizeMeter.getMethodMeasurement());
+        }
         measurementList.addAll(Arrays.asList(cpe.getPerformanceMeasurements()));
-        measurementList.addAll(Arrays.asList(model.getModelMeasurements()));
+        if ((sizeMeter != null) && (model instanceof AbstractClassifier)) {
+            measurementList.addAll(Arrays.asList(((AbstractClassifier) model).getModelMeasurements(sizeMeter)));
+        } else {
+            measurementList.addAll(Arrays.asList(model.getModelMeasurements()));
+        }
         this.measurements = measurementList.toArray(new Measurement[measurementList.size()]);
     }
 
@@ -0,0 +1,142 @@
+/*
+ *    ModelSizeMeter.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import moa.MOAObject;
+import moa.core.ByteSizeEstimable;
+import moa.core.Measurement;
+
+/**
+ * Measures the size of a model at the sample points of an evaluation.
+ *
+ * Models that are ByteSizeEstimable give their estimate at every sample
+ * point. For the others, measuring the size walks the whole model, so it is
+ * only done once every given number of instances, and the last size
+ * measured is used in between. The serialized sizes reported in the model
+ * measurements of a LearningEvaluation are walked at the same rate.
+ *
+ * @version $Revision: 7 $
+ */
+public class ModelSizeMeter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the measurement saying how the size was obtained. */
+    public static final String METHOD_MEASUREMENT =
+            "model size accounting (1 = estimate; 0 = full walk)";
+
+    protected int fullWalkFrequency;
+
+    protected long lastFullWalk = -1;
+
+    protected long lastByteSize;
+
+    protected boolean estimated;
+
+    protected boolean fullWalkDue = true;
+
+    /**
+     * Creates a meter.
+     *
+     * @param fullWalkFrequency how many instances between full walks of the
+     * models that cannot estimate their size
+     */
+    public ModelSizeMeter(int fullWalkFrequency) {
+        this.fullWalkFrequency = fullWalkFrequency;
+    }
+
+    /**
+     * Measures the size of the model.
+     *
+     * @param model the model to measure
+     * @param instancesProcessed the number of instances processed so far
+     * @return the size of the model in bytes
+     */
+    public long measureByteSize(MOAObject model, long instancesProcessed) {
+        this.fullWalkDue = (this.lastFullWalk < 0)
+                || (instancesProcessed - this.lastFullWalk >= this.fullWalkFrequency);
+        if (this.fullWalkDue) {
+            this.lastFullWalk = instancesProcessed;
+        }
+        if (model instanceof ByteSizeEstimable) {
+            long byteSize = ((ByteSizeEstimable) model).estimateByteSize();
+            if (byteSize >= 0) {
+                this.estimated = true;
+                this.lastByteSize = byteSize;
+                return byteSize;
+            }
+        }
+        this.estimated = false;
+        if (this.fullWalkDue) {
+            this.lastByteSize = model.measureByteSize();
+        }
+        return this.lastByteSize;
+    }
+
+    /**
+     * Whether the models are walked at the current sample point, as decided
+     * by the last call to measureByteSize.
+     *
+     * @return true if the sizes are measured by a full walk
+     */
+    public boolean isFullWalkDue() {
+        return this.fullWalkDue;
+    }
+
+    /**
+     * Whether the last size was given by the estimate of the model.
+     *
+     * @return true for an estimate, false for a full walk
+     */
+    public boolean isEstimated() {
+        return this.estimated;
+    }
+
+    /**
+     * Gets the measurement saying how the last size was obtained.
+     *
+     * @return the measurement
+     */
+    public Measurement getMethodMeasurement() {
+        return new Measurement(METHOD_MEASUREMENT, this.estimated ? 1.0 : 0.0);
+    }
+
+    /**
+     * Adds the measurement saying how the last size was obtained to the
+     * measurements of a sample point, if the size is measured by a meter.
+     *
+     * @param measurements the measurements of the sample point
+     * @param sizeMeter the size meter of the evaluation, or null if the
+     * model is walked every time
+     * @return the measurements, with the method measurement last if there
+     * is a meter
+     */
+    public static Measurement[] addMethodMeasurement(Measurement[] measurements,
+            ModelSizeMeter sizeMeter) {
+        if (sizeMeter == null) {
+            return measurements;
+        }
+        Measurement[] result = Arrays.copyOf(measurements, measurements.length + 1);
+        result[measurements.length] = sizeMeter.getMethodMeasurement();
+        return result;
+    }
+}
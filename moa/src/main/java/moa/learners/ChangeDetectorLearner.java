@@ -56,6 +56,23 @@ public class ChangeDetectorLearner extends AbstractClassifier {
 
     }
 
+    /**
+     * Trains the change detector on a chunk of values, in order, until a
+     * change is detected, as trainOnInstance() would on instances of weight
+     * one holding these values.
+     *
+     * @param values the array of the values
+     * @param from the index of the first value to train on
+     * @param to the index after the last value to train on
+     * @return the index of the value where change was detected, or -1 if
+     * the detector was trained on all the values without change
+     */
+    public int trainOnValues(double[] values, int from, int to) {
+        int change = this.driftDetectionMethod.input(values, from, to);
+        this.trainingWeightSeenByModel += (change < 0 ? to : change + 1) - from;
+        return change;
+    }
+
     public double[] getVotesForInstance(Instance inst) {
         return this.driftDetectionMethod.getOutput();
     }
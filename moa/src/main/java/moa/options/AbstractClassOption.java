@@ -21,7 +21,9 @@ package moa.options;
 
 import java.io.File;
 import com.github.javacliparser.AbstractOption;
+import com.github.javacliparser.Option;
 import com.github.javacliparser.SerializeUtils;
+import moa.MOAObject;
 import moa.core.ObjectRepository;
 import moa.tasks.Task;
 import moa.tasks.TaskMonitor;
@@ -232,4 +234,23 @@ public abstract class AbstractClassOption extends AbstractOption {
         }
         return className;
     }
+
+    /**
+     * Copies this option. The current object is copied with its own copy
+     * method when it is a MOA object, otherwise the whole option is
+     * serialised.
+     *
+     * @return the copy of this option
+     */
+    @Override
+    public Option copy() {
+        if ((this.currentValue != null) && !(this.currentValue instanceof MOAObject)) {
+            return serializedCopy();
+        }
+        AbstractClassOption copy = (AbstractClassOption) shallowCopy();
+        if (this.currentValue != null) {
+            copy.currentValue = ((MOAObject) this.currentValue).copy();
+        }
+        return copy;
+    }
 }
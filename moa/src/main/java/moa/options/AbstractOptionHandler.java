@@ -19,6 +19,7 @@
  */
 package moa.options;
 
+import com.github.javacliparser.Option;
 import com.github.javacliparser.Options;
 import moa.AbstractMOAObject;
 import moa.core.ObjectRepository;
@@ -110,6 +111,59 @@ public abstract class AbstractOptionHandler extends AbstractMOAObject implements
         return (OptionHandler) super.copy();
     }
 
+    /**
+     * Copies this object without serialising it: the object is cloned,
+     * copyOptions() gives the clone copies of the option fields, and the
+     * options of the clone, with copies of the prepared class options, are
+     * rebuilt from those fields. This is a complete copy for subclasses
+     * whose other fields hold primitives or immutable objects; subclasses
+     * with fields holding mutable objects override copy() to call this
+     * method and then copy those objects.
+     *
+     * @return the copy of this object
+     */
+    protected AbstractOptionHandler cloneWithOptions() {
+        AbstractOptionHandler copy = (AbstractOptionHandler) shallowCopy();
+        copy.copyOptions();
+        if (this.config != null) {
+            copy.config = this.config.copy(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets whether the copy() of a class may copy this object field by
+     * field: only if this object is an instance of that very class, as a
+     * subclass may hold state that the method does not know about. The
+     * copy() of such a class calls its superclass's copy() otherwise.
+     *
+     * @param copyingClass the class whose copy() copies the fields
+     * @return whether this object is an instance of exactly copyingClass
+     */
+    protected boolean canCopyFieldByField(Class<?> copyingClass) {
+        return getClass() == copyingClass;
+    }
+
+    /**
+     * Replaces the option fields of an object just cloned by
+     * cloneWithOptions() with copies. Classes copied with cloneWithOptions()
+     * that declare options override this method to copy them, after calling
+     * the method of their superclass.
+     */
+    protected void copyOptions() {
+    }
+
+    /**
+     * Copies an option for copyOptions().
+     *
+     * @param option the option to copy, or null
+     * @return the copy of the option, or null
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T extends Option> T copyOption(T option) {
+        return option == null ? null : (T) option.copy();
+    }
+
     /**
      * Gets the options of this class via reflection.
      *
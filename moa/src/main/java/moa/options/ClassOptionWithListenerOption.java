@@ -21,6 +21,8 @@ package moa.options;
 
 import javax.swing.event.ChangeListener;
 
+import com.github.javacliparser.Option;
+
 /**
  * ClassOption that can be given a ChangeListener. The listener is notified
  * whenever a new value is set for this option.
@@ -85,4 +87,10 @@ public class ClassOptionWithListenerOption extends ClassOption {
 		}
 	}
 
+	@Override
+	public Option copy() {
+		// the listener is copied along with the options it updates
+		return serializedCopy();
+	}
+
 }
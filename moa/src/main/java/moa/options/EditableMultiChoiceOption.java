@@ -20,6 +20,7 @@
 package moa.options;
 
 import com.github.javacliparser.MultiChoiceOption;
+import com.github.javacliparser.Option;
 
 import moa.gui.EditableMultiChoiceOptionEditComponent;
 
@@ -99,4 +100,12 @@ public class EditableMultiChoiceOption extends MultiChoiceOption {
         	this.editComponent.refresh();
         }
 	}
+
+	@Override
+	public Option copy() {
+		// copies do not share the edit component
+		EditableMultiChoiceOption copy = (EditableMultiChoiceOption) super.copy();
+		copy.editComponent = null;
+		return copy;
+	}
 }
@@ -1,10 +1,14 @@
 package moa.options;
 
 
+import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 import com.github.javacliparser.JavaCLIParser;
 import com.github.javacliparser.Option;
+import moa.MOAObject;
 import moa.core.ObjectRepository;
+import moa.core.SerializeUtils;
 import moa.tasks.NullMonitor;
 import moa.tasks.TaskMonitor;
 
@@ -174,6 +178,44 @@ public class OptionsHandler extends JavaCLIParser {
         return this.classOptionNamesToPreparedObjects.get(opt.getName());
     }
 
+    /**
+     * Copies these options for a copy of their handler. The options are
+     * discovered again from the fields of the copy, which hold copies of the
+     * options already, and the prepared objects of the class options are
+     * copied.
+     *
+     * @param handler the copy of the handler
+     * @return the copy of these options
+     */
+    public OptionsHandler copy(Object handler) {
+        OptionsHandler copy = new OptionsHandler(handler, "");
+        if (this.options != null) {
+            copy.getOptions();
+        }
+        if (this.classOptionNamesToPreparedObjects != null) {
+            copy.classOptionNamesToPreparedObjects = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : this.classOptionNamesToPreparedObjects.entrySet()) {
+                copy.classOptionNamesToPreparedObjects.put(entry.getKey(),
+                        copyPreparedObject(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    protected static Object copyPreparedObject(Object obj) {
+        if (obj instanceof MOAObject) {
+            return ((MOAObject) obj).copy();
+        }
+        if (obj == null) {
+            return null;
+        }
+        try {
+            return SerializeUtils.copyObject((Serializable) obj);
+        } catch (Exception e) {
+            throw new RuntimeException("Object copy failed.", e);
+        }
+    }
+
     //@Override
     //public void getDescription(StringBuilder sb, int i) {
     //    throw new UnsupportedOperationException("Not supported yet.");
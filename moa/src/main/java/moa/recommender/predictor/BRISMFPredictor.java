@@ -53,6 +53,9 @@ import moa.tasks.TaskMonitor;
  *      regularization</li>
  * <li> i: iterations - the number of iterations to be used when retraining
  *      user and item features (online training). </li>
+ * <li> t: threads - the number of threads used to retrain user and item
+ *      features online. With more than one thread the retraining is
+ *      asynchronous and lock-free (Hogwild-style). </li>
  * </lu>
  * 
  */
@@ -77,6 +80,11 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
             "How many iterations to use.",
             100, 0, Integer.MAX_VALUE);
 
+    public IntOption threadsOption = new IntOption("threads",
+            't',
+            "How many threads to use for online updates (more than one updates asynchronously).",
+            1, 1, Integer.MAX_VALUE);
+
     public ClassOption dataOption = new ClassOption("data", 'd',
             "Data", RecommenderData.class, "moa.recommender.data.MemRecommenderData");
      
@@ -86,6 +94,7 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
         RecommenderData data = (RecommenderData) getPreparedClassOption(this.dataOption);
         rp = new moa.recommender.rc.predictor.impl.BRISMFPredictor(featuresOption.getValue(), data.getData(), lRateOption.getValue(), rFactorOption.getValue(), false);
         rp.setNIterations(iterationsOption.getValue());
+        rp.setNThreads(threadsOption.getValue());
     }
 
     @Override
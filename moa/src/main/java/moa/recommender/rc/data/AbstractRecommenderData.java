@@ -23,6 +23,9 @@ package moa.recommender.rc.data;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import moa.recommender.rc.utils.Pair;
+import moa.recommender.rc.utils.RatingList;
+import moa.recommender.rc.utils.SparseVector;
 import moa.recommender.rc.utils.Updatable;
 
 
@@ -96,6 +99,21 @@ public abstract class AbstractRecommenderData implements RecommenderData {
         }
     }
 
+    public void getRatingsUser(int userID, RatingList out) {
+        copyRatings(getRatingsUser(userID), out);
+    }
+    public void getRatingsItem(int itemID, RatingList out) {
+        copyRatings(getRatingsItem(itemID), out);
+    }
+    protected static void copyRatings(SparseVector vec, RatingList out) {
+        out.clear();
+        Iterator<Pair<Integer, Double>> it = vec.iterator();
+        while (it.hasNext()) {
+            Pair<Integer, Double> p = it.next();
+            out.add(p.getFirst(), p.getSecond());
+        }
+    }
+
     public void attachUpdatable(Updatable obj) {
         updatables.add(obj);
     }
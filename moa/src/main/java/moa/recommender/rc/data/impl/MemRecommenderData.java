@@ -25,10 +25,12 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import moa.recommender.rc.data.AbstractRecommenderData;
 import moa.recommender.rc.utils.Rating;
+import moa.recommender.rc.utils.RatingList;
+import moa.recommender.rc.utils.RatingRows;
 import moa.recommender.rc.utils.SparseVector;
 
 public class MemRecommenderData extends AbstractRecommenderData {
@@ -41,8 +43,8 @@ public class MemRecommenderData extends AbstractRecommenderData {
         public double num = 0;
     }
     
-    protected Map<Integer, Map<Integer, Double>> ratingsUser;
-    protected Map<Integer, Map<Integer, Double>> ratingsItem;
+    protected RatingRows ratingsUser;
+    protected RatingRows ratingsItem;
     protected Map<Integer, EntityStats> usersStats;
     protected Map<Integer, EntityStats> itemsStats;
     
@@ -54,73 +56,42 @@ public class MemRecommenderData extends AbstractRecommenderData {
     protected double maxRating = 0;
     
     protected class RatingIterator implements Iterator<Rating> {
-        private int currentUser = -1;
-        private Iterator<Integer> userIt = null;
-        private Iterator<Entry<Integer, Double>> ratsIt = null;
-        private boolean calculated = false;
-        private boolean result = true;
+        private int slot = 0;
+        private int pos = 0;
         
-        RatingIterator() throws Exception {
+        RatingIterator() {
         }
         
         @Override
         public boolean hasNext() {
-            if (calculated)
-                return result;
-            
-            calculated = true;
-            result = false;
-            if (ratsIt == null) {
-                if (!ratingsUser.isEmpty()) {
-                    userIt = ratingsUser.keySet().iterator();
-                    if (userIt.hasNext()) {
-                        Integer first = userIt.next();
-                        currentUser = first;
-                        ratsIt = ratingsUser.get(first).entrySet().iterator();
-                        if (ratsIt.hasNext()) {
-                            result = true;
-                        }
-                    }
-                }
+            while (slot < ratingsUser.getNumSlots() && pos >= ratingsUser.getSize(slot)) {
+                ++slot;
+                pos = 0;
             }
-            else {
-                if (ratsIt.hasNext()) {
-                    result = true;
-                }
-                else if (userIt.hasNext()) {
-                    Integer first = userIt.next();
-                    currentUser = first;
-                    ratsIt = ratingsUser.get(first).entrySet().iterator();
-                    if (ratsIt.hasNext()) {
-                        result = true;
-                    }
-                }
-            }
-            return result;
+            return slot < ratingsUser.getNumSlots();
         }
 
         @Override
         public Rating next() {
-            if (!calculated)
-                hasNext();
-            calculated = false;
-            Entry<Integer, Double> pair = ratsIt.next();
-            
-            return new Rating(currentUser, pair.getKey(), pair.getValue());
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Rating ret = new Rating(ratingsUser.getKey(slot),
+                    ratingsUser.getID(slot, pos), ratingsUser.getRating(slot, pos));
+            ++pos;
+            return ret;
         }
 
         @Override
         public void remove() {
-            // TODO Auto-generated method stub
-            
+            throw new UnsupportedOperationException();
         }
         
     }
     
     public MemRecommenderData() {
         super();
-        ratingsItem = new HashMap<Integer, Map<Integer, Double>>();
-        ratingsUser = new HashMap<Integer, Map<Integer, Double>>();
+        ratingsItem = new RatingRows();
+        ratingsUser = new RatingRows();
         usersStats = new HashMap<Integer, EntityStats>();
         itemsStats = new HashMap<Integer, EntityStats>();
     }
@@ -129,7 +100,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
     public void addUser(int userID, List<Integer> ratedItems, List<Double> ratings) {
         super.addUser(userID, ratedItems, ratings);
         
-        ratingsUser.put(userID, new HashMap<Integer, Double>());
+        ratingsUser.addRow(userID);
         usersStats.put(userID, new EntityStats());
         
         int n = ratedItems.size();
@@ -142,7 +113,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
     @Override
     public void removeUser(int userID) {
         super.removeUser(userID);
-        ratingsUser.remove(userID);
+        ratingsUser.removeRow(userID);
         usersStats.remove(userID);
     }
 
@@ -150,7 +121,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
     public void addItem(int itemID, List<Integer> ratingUsers, List<Double> ratings) {
         super.addItem(itemID, ratingUsers, ratings);
         
-        ratingsItem.put(itemID, new HashMap<Integer, Double>());
+        ratingsItem.addRow(itemID);
         itemsStats.put(itemID, new EntityStats());
         int n = ratingUsers.size();
         for (int i = 0; i < n; ++i)
@@ -161,7 +132,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
     @Override
     public void removeItem(int itemID) {
         super.removeItem(itemID);
-        ratingsItem.remove(itemID);
+        ratingsItem.removeRow(itemID);
         itemsStats.remove(itemID);
     }
 
@@ -179,22 +150,20 @@ public class MemRecommenderData extends AbstractRecommenderData {
         EntityStats itemStats = itemsStats.get(itemID);
         if (userStats == null) {
             ++nUsers;
-            ratingsUser.put(userID, new HashMap<Integer, Double>());
+            ratingsUser.addRow(userID);
             userStats = new EntityStats();
             usersStats.put(userID, userStats);
         }
         
         if (itemStats == null) {
             ++nItems;
-            ratingsItem.put(itemID, new HashMap<Integer, Double>());
+            ratingsItem.addRow(itemID);
             itemStats = new EntityStats();
             itemsStats.put(itemID, itemStats);
         }
         
-        Map<Integer, Double> ratUser = ratingsUser.get(userID);
-        Map<Integer, Double> ratItem = ratingsItem.get(itemID);
-        Double rat = ratUser.get(itemID);
-        if (rat != null) {
+        double rat = ratingsUser.get(userID, itemID, Double.NaN);
+        if (!Double.isNaN(rat)) {
             sumRatings -= rat;
             userStats.sum -= rat;
             userStats.num--;
@@ -209,8 +178,8 @@ public class MemRecommenderData extends AbstractRecommenderData {
         itemStats.num++;
         sumRatings += rating;
         ++nRatings;
-        ratUser.put(itemID, rating);
-        ratItem.put(userID, rating);
+        ratingsUser.put(userID, itemID, rating);
+        ratingsItem.put(itemID, userID, rating);
     }
     
     @Override
@@ -223,33 +192,34 @@ public class MemRecommenderData extends AbstractRecommenderData {
     public void removeRating(int userID, int itemID) {
         super.removeRating(userID, itemID);
         
-        Map<Integer, Double> ratUser = ratingsUser.get(userID);
-        Map<Integer, Double> ratItem = ratingsItem.get(itemID);
-        Double rat = ratUser.get(itemID);
+        double rat = ratingsUser.get(userID, itemID, Double.NaN);
         EntityStats userStats = usersStats.get(userID);
         EntityStats itemStats = itemsStats.get(itemID);
-        if (rat != null) {
+        if (!Double.isNaN(rat)) {
             sumRatings -= rat;
             --nRatings;
             userStats.sum -= rat;
             userStats.num--;
             itemStats.sum -= rat;
             itemStats.num--;
-            ratUser.remove(itemID);
-            ratItem.remove(userID);
+            ratingsUser.remove(userID, itemID);
+            ratingsItem.remove(itemID, userID);
         }
     }
 
     @Override
     public SparseVector getRatingsUser(int userID) {
-        Map<Integer, Double> ratUser = ratingsUser.get(userID);
-        return new SparseVector(ratUser);
+        return ratingsUser.getRowVector(userID);
+    }
+    
+    @Override
+    public void getRatingsUser(int userID, RatingList out) {
+        ratingsUser.getRow(userID, out);
     }
     
     @Override
     public double getRating(int userID, int itemID) {
-        Map<Integer, Double> ratUser = ratingsUser.get(userID);
-        return (ratUser.get(itemID) != null ? ratUser.get(itemID) : 0);
+        return ratingsUser.get(userID, itemID, 0);
     }
 
     @Override
@@ -297,8 +267,12 @@ public class MemRecommenderData extends AbstractRecommenderData {
 
     @Override
     public SparseVector getRatingsItem(int itemID) {
-        Map<Integer, Double> ratItem = ratingsItem.get(itemID);
-        return new SparseVector(ratItem);
+        return ratingsItem.getRowVector(itemID);
+    }
+
+    @Override
+    public void getRatingsItem(int itemID, RatingList out) {
+        ratingsItem.getRow(itemID, out);
     }
 
     @Override
@@ -325,8 +299,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
 
     @Override
     public Iterator<Rating> ratingIterator() {
-        // TODO Auto-generated method stub
-        return null;
+        return new RatingIterator();
     }
 
     @Override
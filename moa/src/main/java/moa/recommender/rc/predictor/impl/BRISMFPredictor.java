@@ -20,15 +20,19 @@
 
 package moa.recommender.rc.predictor.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import moa.recommender.rc.data.RecommenderData;
-import moa.recommender.rc.utils.Pair;
+import moa.recommender.rc.utils.FeatureMatrix;
 import moa.recommender.rc.utils.Rating;
-import moa.recommender.rc.utils.SparseVector;
+import moa.recommender.rc.utils.RatingList;
 import moa.recommender.rc.utils.Updatable;
 
 /**
@@ -55,6 +59,11 @@ import moa.recommender.rc.utils.Updatable;
  *      regularization</li>
  * <li> iterations - the number of iterations to be used when retraining
  *      user and item features (online training). </li>
+ * <li> threads - the number of threads used to retrain user and item
+ *      features when a new rating is inserted. With more than one thread
+ *      the retraining is asynchronous and lock-free (Hogwild-style): it
+ *      runs concurrently with later predictions and updates, which read
+ *      and write the shared features without synchronization.</li>
  * </lu>
  * 
  */
@@ -63,12 +72,25 @@ public class BRISMFPredictor implements Updatable {
     
     protected RecommenderData data;
     protected int nFeatures;
-    protected HashMap<Integer, float[]> userFeature;
-    protected HashMap<Integer, float[]> itemFeature;
+    protected FeatureMatrix userFeature;
+    protected FeatureMatrix itemFeature;
     protected Random rnd;
     protected double lRate = 0.01;
     protected double rFactor = 0.02;
     protected int nIterations = 30;
+    protected int nThreads = 1;
+    
+    // Buffers reused by the synchronous updates
+    protected RatingList ratsBuffer = new RatingList();
+    protected int[] rowsBuffer = new int[16];
+    protected float[] featsBuffer;
+    
+    // Asynchronous updates, only used with more than one thread
+    protected transient ThreadPoolExecutor updater;
+    protected final Object updateLock = new Object();
+    protected int pendingUpdates = 0;
+    // Updates that have been applied, with their buffers, to be reused
+    protected transient ArrayDeque<AsyncUpdate> freeUpdates;
     
     public void setLRate(double lRate) {
         this.lRate = lRate;
@@ -82,6 +104,30 @@ public class BRISMFPredictor implements Updatable {
         this.nIterations = nIterations; 
     }
     
+    public void setNThreads(int nThreads) {
+        waitForUpdates();
+        if (updater != null) {
+            updater.shutdown();
+            updater = null;
+        }
+        this.nThreads = Math.max(1, nThreads);
+        if (this.nThreads > 1) {
+            updater = new ThreadPoolExecutor(this.nThreads, this.nThreads,
+                    10, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(16*this.nThreads),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "BRISMFPredictor-updater");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            updater.allowCoreThreadTimeOut(true);
+        }
+    }
+    
     public RecommenderData getData() {
     	return data;
     }
@@ -89,8 +135,9 @@ public class BRISMFPredictor implements Updatable {
     public BRISMFPredictor(int nFeatures, RecommenderData data, boolean train) {
         this.data = data;
         this.nFeatures = nFeatures;
-        this.userFeature = new HashMap<Integer, float[]>();
-        this.itemFeature = new HashMap<Integer, float[]>();
+        this.userFeature = new FeatureMatrix(nFeatures);
+        this.itemFeature = new FeatureMatrix(nFeatures);
+        this.featsBuffer = new float[nFeatures];
         this.rnd = new Random(12345);
         data.attachUpdatable(this);
         if (train) train();
@@ -99,8 +146,9 @@ public class BRISMFPredictor implements Updatable {
     public BRISMFPredictor(int nFeatures, RecommenderData data, double lRate, double rFactor, boolean train) {
         this.data = data;
         this.nFeatures = nFeatures;
-        this.userFeature = new HashMap<Integer, float[]>();
-        this.itemFeature = new HashMap<Integer, float[]>();
+        this.userFeature = new FeatureMatrix(nFeatures);
+        this.itemFeature = new FeatureMatrix(nFeatures);
+        this.featsBuffer = new float[nFeatures];
         this.rnd = new Random(12345);
         this.lRate = lRate;
         this.rFactor = rFactor;
@@ -108,151 +156,171 @@ public class BRISMFPredictor implements Updatable {
         if (train) train();
     }
     
-    private void resetFeatures(float[] feats, boolean userFeats) {
-        int n = feats.length;
-        for (int i = 0; i < n; ++i)
-            feats[i] = (float)0.01*(rnd.nextFloat()*2 - 1);
-        if (userFeats) feats[0] = 1;
-        else feats[1] = 1;
+    private void resetFeatures(float[] feats, int off, boolean userFeats) {
+        for (int i = 0; i < nFeatures; ++i)
+            feats[off + i] = (float)0.01*(rnd.nextFloat()*2 - 1);
+        if (userFeats) feats[off] = 1;
+        else feats[off + 1] = 1;
     }
     
     public double predictRating(int userID, int itemID) {
-        float[] userFeats = userFeature.get(userID);
-        float[] itemFeats = itemFeature.get(itemID);
-        return predictRating(userFeats, itemFeats);
+        int userRow = userFeature.getRow(userID);
+        int itemRow = itemFeature.getRow(itemID);
+        if (userRow < 0 || itemRow < 0)
+            return predictRating(null, 0, null, 0);
+        return predictRating(userFeature.getBlock(userRow), userFeature.getOffset(userRow),
+                itemFeature.getBlock(itemRow), itemFeature.getOffset(itemRow));
     }
     
     public double predictRating(float userFeats[], float itemFeats[]) {
-        double ret = data.getGlobalMean();
+        return predictRating(userFeats, 0, itemFeats, 0);
+    }
+    
+    protected double predictRating(float userFeats[], int userOff, float itemFeats[], int itemOff) {
+        return predictRating(userFeats, userOff, itemFeats, itemOff,
+                data.getGlobalMean(), data.getMinRating(), data.getMaxRating());
+    }
+    
+    protected double predictRating(float userFeats[], int userOff, float itemFeats[], int itemOff,
+            double mean, double minRating, double maxRating) {
+        double ret = mean;
         if (userFeats != null && itemFeats != null)
             for (int i = 0; i < nFeatures; ++i)
-                ret += userFeats[i]*itemFeats[i];
+                ret += userFeats[userOff + i]*itemFeats[itemOff + i];
 
-        if (ret < data.getMinRating()) ret = data.getMinRating();
-        else if (ret > data.getMaxRating()) ret = data.getMaxRating();
+        if (ret < minRating) ret = minRating;
+        else if (ret > maxRating) ret = maxRating;
         
         return ret;
     }
     
+    // Looks up the feature rows of the rated items or rating users once,
+    // instead of on every iteration
+    protected static int[] getRows(FeatureMatrix feats, RatingList rats, int[] rows) {
+        int n = rats.size();
+        if (rows == null || rows.length < n) rows = new int[Math.max(n, 16)];
+        for (int i = 0; i < n; ++i)
+            rows[i] = feats.getRow(rats.getID(i));
+        return rows;
+    }
+    
     public float[] trainUserFeats(List<Integer> itm, List<Double> rat, int nIts) {
+        RatingList rats = new RatingList(itm, rat);
         float[] userFeats = new float[nFeatures];
-        resetFeatures(userFeats, true);
-        
-        int n = itm.size();
+        trainUserFeats(rats, getRows(itemFeature, rats, null), nIts, userFeats);
+        return userFeats;
+    }
+    
+    protected void trainUserFeats(RatingList rats, int[] itemRows, int nIts, float[] userFeats) {
+        resetFeatures(userFeats, 0, true);
+        fitUserFeats(rats, itemRows, nIts, userFeats,
+                data.getGlobalMean(), data.getMinRating(), data.getMaxRating());
+    }
+    
+    // Trains user features starting from the values in userFeats
+    protected void fitUserFeats(RatingList rats, int[] itemRows, int nIts, float[] userFeats,
+            double mean, double minRating, double maxRating) {
+        int n = rats.size();
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int itemID = itm.get(i);
-                float[] itemFeats = itemFeature.get(itemID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                int row = itemRows[i];
+                if (row < 0) continue;
+                float[] itemFeats = itemFeature.getBlock(row);
+                int off = itemFeature.getOffset(row);
+                double rating = rats.getRating(i);
+                double pred = predictRating(userFeats, 0, itemFeats, off, mean, minRating, maxRating);
                 double err = rating - pred;
                 
-                if (itemFeats != null)
-                    for (int j = 1; j < nFeatures; ++j) 
-                        userFeats[j] += lRate*(err*itemFeats[j] - rFactor*userFeats[j]);
+                for (int j = 1; j < nFeatures; ++j) 
+                    userFeats[j] += lRate*(err*itemFeats[off + j] - rFactor*userFeats[j]);
             }
         }
-        
-        return userFeats;
     }
     
     public float[] trainItemFeats(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
+        RatingList rats = new RatingList(usr, rat);
         float[] itemFeats = new float[nFeatures];
-        resetFeatures(itemFeats, false);
-        
-        int n = usr.size();
+        trainItemFeats(rats, getRows(userFeature, rats, null), nIts, itemFeats);
+        return itemFeats;
+    }
+    
+    protected void trainItemFeats(RatingList rats, int[] userRows, int nIts, float[] itemFeats) {
+        resetFeatures(itemFeats, 0, false);
+        fitItemFeats(rats, userRows, nIts, itemFeats,
+                data.getGlobalMean(), data.getMinRating(), data.getMaxRating());
+    }
+    
+    // Trains item features starting from the values in itemFeats
+    protected void fitItemFeats(RatingList rats, int[] userRows, int nIts, float[] itemFeats,
+            double mean, double minRating, double maxRating) {
+        int n = rats.size();
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int userID = usr.get(i);
-                float[] userFeats = userFeature.get(userID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                int row = userRows[i];
+                if (row < 0) continue;
+                float[] userFeats = userFeature.getBlock(row);
+                int off = userFeature.getOffset(row);
+                double rating = rats.getRating(i);
+                double pred = predictRating(userFeats, off, itemFeats, 0, mean, minRating, maxRating);
                 double err = rating - pred;
                 
-                if (userFeats != null) {
-                    itemFeats[0] += lRate*(err*userFeats[0] - rFactor*itemFeats[0]);
-                    for (int j = 2; j < nFeatures; ++j)
-                        itemFeats[j] += lRate*(err*userFeats[j] - rFactor*itemFeats[j]);
-                }
+                itemFeats[0] += lRate*(err*userFeats[off] - rFactor*itemFeats[0]);
+                for (int j = 2; j < nFeatures; ++j)
+                    itemFeats[j] += lRate*(err*userFeats[off + j] - rFactor*itemFeats[j]);
             }
         }
-        
-        return itemFeats;
+    }
+    
+    protected void trainUser(int userID, RatingList rats, int nIts) {
+        rowsBuffer = getRows(itemFeature, rats, rowsBuffer);
+        trainUserFeats(rats, rowsBuffer, nIts, featsBuffer);
+        userFeature.set(userID, featsBuffer);
+    }
+    
+    protected void trainItem(int itemID, RatingList rats, int nIts) {
+        rowsBuffer = getRows(userFeature, rats, rowsBuffer);
+        trainItemFeats(rats, rowsBuffer, nIts, featsBuffer);
+        itemFeature.set(itemID, featsBuffer);
     }
     
     public void trainUser(int userID, List<Integer> itm, List<Double> rat, int nIts) {
-        userFeature.put(userID, trainUserFeats(itm, rat, nIts));
+        trainUser(userID, new RatingList(itm, rat), nIts);
     }
     
     public void trainUser(int userID, int nIts) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainUser(userID, itm, rat, nIts);
+        data.getRatingsUser(userID, ratsBuffer);
+        trainUser(userID, ratsBuffer, nIts);
     }
     
     public void trainUser(int userID, List<Integer> itm, List<Double> rat) {
-        userFeature.put(userID, trainUserFeats(itm, rat, nIterations));
+        trainUser(userID, new RatingList(itm, rat), nIterations);
     }
     
     public void trainItem(int itemID) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainItem(itemID, usr, rat);
+        data.getRatingsItem(itemID, ratsBuffer);
+        trainItem(itemID, ratsBuffer, nIterations);
     }
     
     public void trainItem(int itemID, int nIts) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainItem(itemID, usr, rat, nIts);
+        data.getRatingsItem(itemID, ratsBuffer);
+        trainItem(itemID, ratsBuffer, nIts);
     }
     
     public void trainUser(int userID) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainUser(userID, itm, rat);
+        data.getRatingsUser(userID, ratsBuffer);
+        trainUser(userID, ratsBuffer, nIterations);
     }
     
     public void trainItem(int itemID, List<Integer> usr, List<Double> rat) {
-        itemFeature.put(itemID, trainItemFeats(itemID, usr, rat, nIterations));
+        trainItem(itemID, new RatingList(usr, rat), nIterations);
     }
     
     public void trainItem(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
-        itemFeature.put(itemID, trainItemFeats(itemID, usr, rat, nIts));
+        trainItem(itemID, new RatingList(usr, rat), nIts);
     }
     
     public void train() {
+        waitForUpdates();
         userFeature.clear();
         itemFeature.clear();
         
@@ -260,16 +328,14 @@ public class BRISMFPredictor implements Updatable {
         
         Iterator<Integer> it = data.getUsers().iterator();
         while (it.hasNext()) {
-            float[] feats = new float[nFeatures];
-            resetFeatures(feats, true);
-            userFeature.put(it.next(), feats);
+            int row = userFeature.addRow(it.next());
+            resetFeatures(userFeature.getBlock(row), userFeature.getOffset(row), true);
         }
         
         it = data.getItems().iterator();
         while (it.hasNext()) {
-            float[] feats = new float[nFeatures];
-            resetFeatures(feats, false);
-            itemFeature.put(it.next(), feats);
+            int row = itemFeature.addRow(it.next());
+            resetFeatures(itemFeature.getBlock(row), itemFeature.getOffset(row), false);
         }
 
         int exit = 0;
@@ -289,21 +355,23 @@ public class BRISMFPredictor implements Updatable {
                     if (count == 0) ratTest.add(rat);
                 }
                 else {
-                    int userID = rat.userID;
-                    int itemID = rat.itemID;
+                    int userRow = userFeature.getRow(rat.userID);
+                    int itemRow = itemFeature.getRow(rat.itemID);
                     double rating = rat.rating;
-                    float[] userFeats = userFeature.get(userID);
-                    float[] itemFeats = itemFeature.get(itemID);
+                    float[] userFeats = userFeature.getBlock(userRow);
+                    float[] itemFeats = itemFeature.getBlock(itemRow);
+                    int u = userFeature.getOffset(userRow);
+                    int v = itemFeature.getOffset(itemRow);
                     
-                    double pred = predictRating(userFeats, itemFeats);
+                    double pred = predictRating(userFeats, u, itemFeats, v);
                     double err = rating - pred;
                     
-                    itemFeats[0] += lRate*(err*userFeats[0] - rFactor*itemFeats[0]);
-                    userFeats[1] += lRate*(err*itemFeats[1] - rFactor*userFeats[1]);
+                    itemFeats[v] += lRate*(err*userFeats[u] - rFactor*itemFeats[v]);
+                    userFeats[u + 1] += lRate*(err*itemFeats[v + 1] - rFactor*userFeats[u + 1]);
                     for (int j = 2; j < nFeatures; ++j) {
-                        double uv = userFeats[j];
-                        userFeats[j] += lRate*(err*itemFeats[j] - rFactor*userFeats[j]);
-                        itemFeats[j] += lRate*(err*uv - rFactor*itemFeats[j]);
+                        double uv = userFeats[u + j];
+                        userFeats[u + j] += lRate*(err*itemFeats[v + j] - rFactor*userFeats[u + j]);
+                        itemFeats[v + j] += lRate*(err*uv - rFactor*itemFeats[v + j]);
                     }
                 }
                 ++idx;
@@ -342,10 +410,89 @@ public class BRISMFPredictor implements Updatable {
         return nFeatures;
     }
     
+    /**
+     * Waits until all asynchronous updates have been applied. An interrupt
+     * does not end the wait; the interrupt status is restored afterwards.
+     */
+    public void waitForUpdates() {
+        boolean interrupted = false;
+        synchronized (updateLock) {
+            while (pendingUpdates > 0) {
+                try {
+                    updateLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+    
+    // Returns an applied update to fill, or a new one if none is free
+    protected AsyncUpdate takeUpdate() {
+        synchronized (updateLock) {
+            if (freeUpdates == null) freeUpdates = new ArrayDeque<AsyncUpdate>();
+            AsyncUpdate update = freeUpdates.poll();
+            return (update != null) ? update : new AsyncUpdate();
+        }
+    }
+    
+    protected void submitUpdate(AsyncUpdate update) {
+        synchronized (updateLock) {
+            ++pendingUpdates;
+        }
+        updater.execute(update);
+    }
+    
+    /**
+     * The retraining of a user and/or an item for a new rating, with the
+     * ratings, feature rows and features it works on. It is put back in
+     * freeUpdates once applied, so its buffers serve later updates.
+     */
+    protected class AsyncUpdate implements Runnable {
+        protected final RatingList usrRats = new RatingList();
+        protected final RatingList itmRats = new RatingList();
+        protected int[] itemRows = new int[16];
+        protected int[] userRows = new int[16];
+        protected final float[] userFeats = new float[nFeatures];
+        protected final float[] itemFeats = new float[nFeatures];
+        protected int userRow;
+        protected int itemRow;
+        protected boolean trainUser;
+        protected boolean trainItem;
+        protected double mean;
+        protected double minRating;
+        protected double maxRating;
+        
+        @Override
+        public void run() {
+            try {
+                if (trainUser) {
+                    fitUserFeats(usrRats, itemRows, nIterations, userFeats,
+                            mean, minRating, maxRating);
+                    System.arraycopy(userFeats, 0, userFeature.getBlock(userRow),
+                            userFeature.getOffset(userRow), nFeatures);
+                }
+                if (trainItem) {
+                    fitItemFeats(itmRats, userRows, nIterations, itemFeats,
+                            mean, minRating, maxRating);
+                    System.arraycopy(itemFeats, 0, itemFeature.getBlock(itemRow),
+                            itemFeature.getOffset(itemRow), nFeatures);
+                }
+            } finally {
+                synchronized (updateLock) {
+                    freeUpdates.push(this);
+                    if (--pendingUpdates == 0) updateLock.notifyAll();
+                }
+            }
+        }
+    }
+    
     @Override
     public void updateNewUser(int userID, List<Integer> ratedItems,
             List<Double> ratings) {
         if (!ratedItems.isEmpty()) {
+            waitForUpdates();
             trainUser(userID, ratedItems, ratings);
         }
     }
@@ -354,18 +501,27 @@ public class BRISMFPredictor implements Updatable {
     public void updateNewItem(int itemID, List<Integer> ratingUsers,
             List<Double> ratings) {
         if (!ratingUsers.isEmpty()) {
+            waitForUpdates();
             trainItem(itemID, ratingUsers, ratings);
         }
     }
 
     @Override
     public void updateRemoveUser(int userID) {
-        userFeature.remove(userID);
+        waitForUpdates();
+        userFeature.removeRow(userID);
     }
 
     @Override
     public void updateRemoveItem(int itemID) {
-        itemFeature.remove(itemID);
+        waitForUpdates();
+        itemFeature.removeRow(itemID);
+    }
+    
+    private static void setRating(RatingList rats, int id, double rating) {
+        int idx = rats.indexOf(id);
+        if (idx >= 0) rats.setRating(idx, rating);
+        else rats.add(id, rating);
     }
     
     //We retrain the user/item separately, depending on a probability
@@ -373,58 +529,71 @@ public class BRISMFPredictor implements Updatable {
     //TODO: parametrize this
     @Override
     public void updateSetRating(int userID, int itemID, double rating) {
+        if (updater != null) {
+            updateSetRatingAsync(userID, itemID, rating);
+            return;
+        }
+        
         double nUsr = data.countRatingsUser(userID);
         double nItm = data.countRatingsItem(itemID);
         double prob1 = Math.pow(0.99, nUsr);
         double prob2 = Math.pow(0.99, nItm);
 
         if (nUsr < 5 || rnd.nextDouble() < prob1) {
-            SparseVector usrRats = data.getRatingsUser(userID);
-            ArrayList<Integer> itm = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            
             //Train user
-            boolean found = false;
-            Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                itm.add(p.getFirst());
-                if (p.getFirst() == itemID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                itm.add(itemID);
-                rat.add(rating);
-            }
-            trainUser(userID, itm, rat);
+            data.getRatingsUser(userID, ratsBuffer);
+            setRating(ratsBuffer, itemID, rating);
+            trainUser(userID, ratsBuffer, nIterations);
         }
         
         if (nItm < 5 || rnd.nextDouble() < prob2) {
-            SparseVector itmRats = data.getRatingsItem(itemID);
             //Train item
-            Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-            boolean found = false;
-            ArrayList<Integer> usr = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                usr.add(p.getFirst());
-                if (p.getFirst() == userID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                usr.add(itemID);
-                rat.add(rating);
-            }
-            trainItem(itemID, usr, rat);
+            data.getRatingsItem(itemID, ratsBuffer);
+            setRating(ratsBuffer, userID, rating);
+            trainItem(itemID, ratsBuffer, nIterations);
         }
     }
+    
+    //The ratings, the feature rows, the rating statistics and all random
+    //draws are taken on the calling thread, in the same order as
+    //updateSetRating, so that seeded runs draw the same numbers and see the
+    //data before the new rating is stored; the training itself runs on the
+    //updater threads without any locking
+    protected void updateSetRatingAsync(int userID, int itemID, double rating) {
+        double nUsr = data.countRatingsUser(userID);
+        double nItm = data.countRatingsItem(itemID);
+        double prob1 = Math.pow(0.99, nUsr);
+        double prob2 = Math.pow(0.99, nItm);
+        
+        boolean trainUser = nUsr < 5 || rnd.nextDouble() < prob1;
+        AsyncUpdate update = null;
+        if (trainUser) {
+            update = takeUpdate();
+            data.getRatingsUser(userID, update.usrRats);
+            setRating(update.usrRats, itemID, rating);
+            update.itemRows = getRows(itemFeature, update.usrRats, update.itemRows);
+            update.userRow = userFeature.addRow(userID);
+            resetFeatures(update.userFeats, 0, true);
+        }
+        
+        boolean trainItem = nItm < 5 || rnd.nextDouble() < prob2;
+        if (trainItem) {
+            if (update == null) update = takeUpdate();
+            data.getRatingsItem(itemID, update.itmRats);
+            setRating(update.itmRats, userID, rating);
+            update.userRows = getRows(userFeature, update.itmRats, update.userRows);
+            update.itemRow = itemFeature.addRow(itemID);
+            resetFeatures(update.itemFeats, 0, false);
+        }
+        if (update == null) return;
+        
+        update.trainUser = trainUser;
+        update.trainItem = trainItem;
+        update.mean = data.getGlobalMean();
+        update.minRating = data.getMinRating();
+        update.maxRating = data.getMaxRating();
+        submitUpdate(update);
+    }
 
     @Override
     public void updateRemoveRating(int userID, int itemID) {
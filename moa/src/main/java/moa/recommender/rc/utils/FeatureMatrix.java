@@ -0,0 +1,128 @@
+/*
+ *    FeatureMatrix.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Feature vectors of users or items, keyed by int id. The vectors are rows
+ * of large float blocks, found with an open-addressing index instead of a
+ * HashMap of small arrays. A row is located with getBlock and getOffset.
+ * Blocks are never reallocated, so a row that has been located stays valid
+ * until it is removed, even while other rows are added.
+ */
+public class FeatureMatrix implements Serializable {
+
+    private static final long serialVersionUID = -4476384296436011834L;
+
+    protected static final int BLOCK_BITS = 10;
+    protected static final int BLOCK_ROWS = 1 << BLOCK_BITS;
+
+    protected int nFeatures;
+    protected IntIndexMap index;
+    // volatile so that threads reading rows located by another thread see
+    // the blocks added by that thread
+    protected volatile float[][] blocks;
+    protected int nRows;
+    protected int[] freeRows;
+    protected int nFree;
+
+    public FeatureMatrix(int nFeatures) {
+        this.nFeatures = nFeatures;
+        this.index = new IntIndexMap();
+        this.blocks = new float[0][];
+        this.freeRows = new int[16];
+    }
+
+    public int getNumFeatures() {
+        return nFeatures;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the row of the id, or -1 if it has no features.
+     */
+    public int getRow(int id) {
+        return index.get(id);
+    }
+
+    /**
+     * Returns the row of the id, adding a row of zeros if it has none.
+     */
+    public int addRow(int id) {
+        int row = index.get(id);
+        if (row >= 0) return row;
+        if (nFree > 0) {
+            row = freeRows[--nFree];
+            Arrays.fill(getBlock(row), getOffset(row), getOffset(row) + nFeatures, 0);
+        }
+        else {
+            row = nRows++;
+            if ((row >>> BLOCK_BITS) == blocks.length) {
+                float[][] newBlocks = Arrays.copyOf(blocks, blocks.length + 1);
+                newBlocks[blocks.length] = new float[BLOCK_ROWS*nFeatures];
+                blocks = newBlocks;
+            }
+        }
+        index.put(id, row);
+        return row;
+    }
+
+    public void removeRow(int id) {
+        int row = index.remove(id);
+        if (row < 0) return;
+        if (nFree == freeRows.length)
+            freeRows = Arrays.copyOf(freeRows, 2*nFree);
+        freeRows[nFree++] = row;
+    }
+
+    public float[] getBlock(int row) {
+        return blocks[row >>> BLOCK_BITS];
+    }
+
+    public int getOffset(int row) {
+        return (row & (BLOCK_ROWS - 1))*nFeatures;
+    }
+
+    /**
+     * Returns a copy of the features of the id, or null if it has none.
+     */
+    public float[] get(int id) {
+        int row = index.get(id);
+        if (row < 0) return null;
+        int off = getOffset(row);
+        return Arrays.copyOfRange(getBlock(row), off, off + nFeatures);
+    }
+
+    public void set(int id, float[] feats) {
+        int row = addRow(id);
+        System.arraycopy(feats, 0, getBlock(row), getOffset(row), nFeatures);
+    }
+
+    public void clear() {
+        index.clear();
+        blocks = new float[0][];
+        nRows = 0;
+        nFree = 0;
+    }
+}
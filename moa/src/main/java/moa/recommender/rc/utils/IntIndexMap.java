@@ -0,0 +1,148 @@
+/*
+ *    IntIndexMap.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to non-negative int indexes,
+ * with linear probing and no boxing. It is used to map user and item ids
+ * to the rows of the primitive stores.
+ */
+public class IntIndexMap implements Serializable {
+
+    private static final long serialVersionUID = 6061316823813590407L;
+
+    protected static final int EMPTY = -1;
+
+    protected int[] keys;
+    protected int[] values;
+    protected int mask;
+    protected int size;
+
+    public IntIndexMap() {
+        this(16);
+    }
+
+    public IntIndexMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2*expectedSize) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int h = key*0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index mapped to the key, or -1 if there is none.
+     */
+    public int get(int key) {
+        int i = slot(key);
+        while (values[i] != EMPTY) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != EMPTY;
+    }
+
+    /**
+     * Maps the key to a non-negative index, replacing any previous one.
+     */
+    public void put(int key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative index: " + value);
+        int i = slot(key);
+        while (values[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1)/2) rehash();
+    }
+
+    /**
+     * Removes the key and returns its index, or -1 if there was none.
+     */
+    public int remove(int key) {
+        int i = slot(key);
+        while (values[i] != EMPTY) {
+            if (keys[i] == key) {
+                int ret = values[i];
+                shiftBack(i);
+                --size;
+                return ret;
+            }
+            i = (i + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    // Backward-shift deletion keeps probe sequences intact without tombstones
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == EMPTY) break;
+            int home = slot(keys[i]);
+            // move the entry if the hole lies cyclically in [home, i)
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = EMPTY;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(2*oldKeys.length);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; ++i)
+            if (oldValues[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+    }
+
+    public void clear() {
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+}
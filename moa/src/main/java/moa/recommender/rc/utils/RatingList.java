@@ -0,0 +1,113 @@
+/*
+ *    RatingList.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable list of (id, rating) pairs kept in primitive arrays, used to
+ * pass the ratings of a user or item around without boxing.
+ */
+public class RatingList implements Serializable {
+
+    private static final long serialVersionUID = -2390148207616533781L;
+
+    protected int[] ids;
+    protected double[] ratings;
+    protected int size;
+
+    public RatingList() {
+        this(16);
+    }
+
+    public RatingList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.ids = new int[capacity];
+        this.ratings = new double[capacity];
+    }
+
+    public RatingList(List<Integer> ids, List<Double> ratings) {
+        this(ids.size());
+        int n = ids.size();
+        for (int i = 0; i < n; ++i)
+            add(ids.get(i), ratings.get(i));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, 2*ids.length);
+            ids = Arrays.copyOf(ids, newCapacity);
+            ratings = Arrays.copyOf(ratings, newCapacity);
+        }
+    }
+
+    public void add(int id, double rating) {
+        ensureCapacity(size + 1);
+        ids[size] = id;
+        ratings[size] = rating;
+        ++size;
+    }
+
+    /**
+     * Replaces the contents of this list with a copy of the given arrays.
+     */
+    public void set(int[] ids, double[] ratings, int n) {
+        ensureCapacity(n);
+        System.arraycopy(ids, 0, this.ids, 0, n);
+        System.arraycopy(ratings, 0, this.ratings, 0, n);
+        size = n;
+    }
+
+    public RatingList copy() {
+        RatingList ret = new RatingList(size);
+        ret.set(ids, ratings, size);
+        return ret;
+    }
+
+    public int getID(int index) {
+        return ids[index];
+    }
+
+    public double getRating(int index) {
+        return ratings[index];
+    }
+
+    public void setRating(int index, double rating) {
+        ratings[index] = rating;
+    }
+
+    /**
+     * Returns the position of the first pair with the given id, or -1.
+     */
+    public int indexOf(int id) {
+        for (int i = 0; i < size; ++i)
+            if (ids[i] == id) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *    RatingRows.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adjacency store of ratings: for every user (or item) key, the ids of the
+ * rated items (or rating users) and the ratings, in primitive arrays sorted
+ * by id. Lookups are binary searches and copying a row out is an array
+ * copy, instead of going through a nested map of boxed values.
+ */
+public class RatingRows implements Serializable {
+
+    private static final long serialVersionUID = 3496254580574913422L;
+
+    private static final int[] NO_IDS = new int[0];
+    private static final double[] NO_RATINGS = new double[0];
+
+    protected IntIndexMap index;
+    protected int[] keys;
+    protected int[][] ids;
+    protected double[][] ratings;
+    protected int[] sizes;
+    protected int nRows;
+    protected int[] freeRows;
+    protected int nFree;
+
+    public RatingRows() {
+        index = new IntIndexMap();
+        keys = new int[16];
+        ids = new int[16][];
+        ratings = new double[16][];
+        sizes = new int[16];
+        freeRows = new int[16];
+    }
+
+    /**
+     * Returns the number of rows, including empty ones.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public boolean containsRow(int key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Adds an empty row for the key, replacing any existing one.
+     */
+    public void addRow(int key) {
+        int row = index.get(key);
+        if (row < 0) {
+            if (nFree > 0) row = freeRows[--nFree];
+            else {
+                row = nRows++;
+                if (row == keys.length) {
+                    int n = 2*row;
+                    keys = Arrays.copyOf(keys, n);
+                    ids = Arrays.copyOf(ids, n);
+                    ratings = Arrays.copyOf(ratings, n);
+                    sizes = Arrays.copyOf(sizes, n);
+                }
+            }
+            index.put(key, row);
+            keys[row] = key;
+        }
+        ids[row] = NO_IDS;
+        ratings[row] = NO_RATINGS;
+        sizes[row] = 0;
+    }
+
+    public void removeRow(int key) {
+        int row = index.remove(key);
+        if (row < 0) return;
+        ids[row] = null;
+        ratings[row] = null;
+        sizes[row] = -1;
+        if (nFree == freeRows.length)
+            freeRows = Arrays.copyOf(freeRows, 2*nFree);
+        freeRows[nFree++] = row;
+    }
+
+    /**
+     * Returns the rating of id in the row of key, or missing if there is none.
+     */
+    public double get(int key, int id, double missing) {
+        int row = index.get(key);
+        if (row < 0) return missing;
+        int pos = Arrays.binarySearch(ids[row], 0, sizes[row], id);
+        return (pos >= 0 ? ratings[row][pos] : missing);
+    }
+
+    /**
+     * Sets the rating of id in the row of key, adding the row if needed.
+     */
+    public void put(int key, int id, double rating) {
+        int row = index.get(key);
+        if (row < 0) {
+            addRow(key);
+            row = index.get(key);
+        }
+        int n = sizes[row];
+        int[] rowIds = ids[row];
+        int pos = Arrays.binarySearch(rowIds, 0, n, id);
+        if (pos >= 0) {
+            ratings[row][pos] = rating;
+            return;
+        }
+        pos = -(pos + 1);
+        double[] rowRatings = ratings[row];
+        if (n == rowIds.length) {
+            int capacity = Math.max(4, 2*n);
+            ids[row] = rowIds = Arrays.copyOf(rowIds, capacity);
+            ratings[row] = rowRatings = Arrays.copyOf(rowRatings, capacity);
+        }
+        System.arraycopy(rowIds, pos, rowIds, pos + 1, n - pos);
+        System.arraycopy(rowRatings, pos, rowRatings, pos + 1, n - pos);
+        rowIds[pos] = id;
+        rowRatings[pos] = rating;
+        sizes[row] = n + 1;
+    }
+
+    /**
+     * Removes id from the row of key, returning whether it was there.
+     */
+    public boolean remove(int key, int id) {
+        int row = index.get(key);
+        if (row < 0) return false;
+        int n = sizes[row];
+        int pos = Arrays.binarySearch(ids[row], 0, n, id);
+        if (pos < 0) return false;
+        System.arraycopy(ids[row], pos + 1, ids[row], pos, n - pos - 1);
+        System.arraycopy(ratings[row], pos + 1, ratings[row], pos, n - pos - 1);
+        sizes[row] = n - 1;
+        return true;
+    }
+
+    /**
+     * Returns the number of ratings in the row of key.
+     */
+    public int rowSize(int key) {
+        int row = index.get(key);
+        return (row >= 0 ? sizes[row] : 0);
+    }
+
+    /**
+     * Copies the row of key into out, which is left empty if there is none.
+     */
+    public void getRow(int key, RatingList out) {
+        int row = index.get(key);
+        if (row < 0) out.clear();
+        else out.set(ids[row], ratings[row], sizes[row]);
+    }
+
+    public SparseVector getRowVector(int key) {
+        int row = index.get(key);
+        if (row < 0) return new SparseVector();
+        int n = sizes[row];
+        Map<Integer, Double> map = new HashMap<Integer, Double>(2*n);
+        for (int i = 0; i < n; ++i)
+            map.put(ids[row][i], ratings[row][i]);
+        return new SparseVector(map);
+    }
+
+    /**
+     * Returns the number of row slots, some of which may be free. Together
+     * with getKey, getSize, getID and getRating this allows iterating all
+     * ratings without copying; free slots have a negative size.
+     */
+    public int getNumSlots() {
+        return nRows;
+    }
+
+    public int getKey(int slot) {
+        return keys[slot];
+    }
+
+    public int getSize(int slot) {
+        return sizes[slot];
+    }
+
+    public int getID(int slot, int i) {
+        return ids[slot][i];
+    }
+
+    public double getRating(int slot, int i) {
+        return ratings[slot][i];
+    }
+
+    public void clear() {
+        index.clear();
+        Arrays.fill(ids, null);
+        Arrays.fill(ratings, null);
+        nRows = 0;
+        nFree = 0;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *    BinaryFileStream.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import moa.core.InstanceExample;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream replaying the instances of a binary file written by
+ * BinaryFileWriter, for example with the task WriteStreamToBinaryFile.
+ *
+ * The file is memory mapped and the instances are read from their rows
+ * directly, without parsing. Every row can be found from its number, so
+ * restarting is immediate and the instances can be replayed in a random
+ * order as cheaply as in the order of the file.
+ *
+ * @version $Revision: 7 $
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream replayed from a binary file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /** Size of the parts of the file mapped at once, as buffers hold at most 2 GB. */
+    protected static final int SEGMENT_BITS = 30;
+
+    protected static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary file to replay.", null, "bin", false);
+
+    public IntOption shuffleRandomSeedOption = new IntOption(
+            "shuffleRandomSeed", 'r',
+            "Seed for random shuffling of instances, or -1 to replay them in the order of the file.",
+            -1, -1, Integer.MAX_VALUE);
+
+    protected InstancesHeader header;
+
+    protected boolean sparse;
+
+    protected int numAttributes;
+
+    protected long numInstances;
+
+    protected long dataOffset;
+
+    protected long indexOffset;
+
+    protected int rowLength;
+
+    protected long numInstancesRead;
+
+    /**
+     * The parts of the file, each mapped from a multiple of the segment size
+     * and overlapping the next one by the length of the longest row, so that
+     * every row is found whole in the part its offset falls in.
+     */
+    protected transient ByteBuffer[] segments;
+
+    /** The order to replay the rows in, or null for the order of the file. */
+    protected transient int[] order;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        this.segments = null;
+        restart();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return this.numInstances - this.numInstancesRead;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return this.numInstancesRead < this.numInstances;
+    }
+
+    @Override
+    public InstanceExample nextInstance() {
+        if (this.segments == null) {
+            // after a copy, as the mapping is not serialised
+            open();
+        }
+        long row = this.order == null ? this.numInstancesRead : this.order[(int) this.numInstancesRead];
+        this.numInstancesRead++;
+        Instance instance = this.sparse ? readSparse(row) : readDense(row);
+        instance.setDataset(this.header);
+        return new InstanceExample(instance);
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        if (this.segments == null) {
+            open();
+        }
+        this.numInstancesRead = 0;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        // TODO Auto-generated method stub
+    }
+
+    protected Instance readDense(long row) {
+        long offset = this.dataOffset + row * this.rowLength;
+        ByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_BITS)];
+        int position = (int) (offset & SEGMENT_MASK);
+        double weight = segment.getDouble(position);
+        double[] values = new double[this.numAttributes];
+        for (int i = 0; i < values.length; i++) {
+            position += 8;
+            values[i] = segment.getDouble(position);
+        }
+        return new DenseInstance(weight, values);
+    }
+
+    protected Instance readSparse(long row) {
+        long indexEntry = this.indexOffset + 8 * row;
+        long offset = this.segments[(int) (indexEntry >>> SEGMENT_BITS)].getLong(
+                (int) (indexEntry & SEGMENT_MASK));
+        ByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_BITS)];
+        int position = (int) (offset & SEGMENT_MASK);
+        double weight = segment.getDouble(position);
+        int numValues = segment.getInt(position + 8);
+        int[] indices = new int[numValues];
+        double[] values = new double[numValues];
+        position += 12;
+        for (int i = 0; i < numValues; i++) {
+            indices[i] = segment.getInt(position);
+            position += 4;
+        }
+        for (int i = 0; i < numValues; i++) {
+            values[i] = segment.getDouble(position);
+            position += 8;
+        }
+        return new SparseInstance(weight, values, indices, this.numAttributes);
+    }
+
+    /**
+     * Reads the headers of the file, maps it and computes the order of the
+     * rows.
+     */
+    protected void open() {
+        try {
+            RandomAccessFile file = new RandomAccessFile(this.binaryFileOption.getFile(), "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ByteBuffer fixedHeader = ByteBuffer.allocate(BinaryFileWriter.FIXED_HEADER_LENGTH)
+                        .order(BinaryFileWriter.BYTE_ORDER);
+                readFully(channel, fixedHeader, 0);
+                if (fixedHeader.getInt() != BinaryFileWriter.MAGIC) {
+                    throw new IOException("Not a binary instance file");
+                }
+                int version = fixedHeader.getInt();
+                if (version != BinaryFileWriter.VERSION) {
+                    throw new IOException("Unsupported version of binary instance file: " + version);
+                }
+                this.sparse = fixedHeader.getInt() == BinaryFileWriter.SPARSE_LAYOUT;
+                this.numAttributes = fixedHeader.getInt();
+                this.numInstances = fixedHeader.getLong();
+                this.dataOffset = fixedHeader.getLong();
+                this.indexOffset = fixedHeader.getLong();
+                this.rowLength = fixedHeader.getInt();
+                int headerLength = fixedHeader.getInt();
+
+                ByteBuffer headerBytes = ByteBuffer.allocate(headerLength);
+                readFully(channel, headerBytes, BinaryFileWriter.FIXED_HEADER_LENGTH);
+                ObjectInputStream objectInput = new ObjectInputStream(
+                        new ByteArrayInputStream(headerBytes.array()));
+                this.header = (InstancesHeader) objectInput.readObject();
+
+                long size = channel.size();
+                int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+                ByteBuffer[] mapped = new ByteBuffer[numSegments];
+                for (int i = 0; i < numSegments; i++) {
+                    long start = (long) i << SEGMENT_BITS;
+                    long length = Math.min(size - start, SEGMENT_MASK + 1 + this.rowLength);
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length)
+                            .order(BinaryFileWriter.BYTE_ORDER);
+                }
+                this.segments = mapped;
+            } finally {
+                file.close();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("BinaryFileStream failed to open "
+                    + this.binaryFileOption.getFile(), e);
+        }
+        this.order = null;
+        int seed = this.shuffleRandomSeedOption.getValue();
+        if (seed >= 0) {
+            if (this.numInstances > Integer.MAX_VALUE) {
+                throw new RuntimeException("Too many instances to shuffle: " + this.numInstances);
+            }
+            Random random = new Random(seed);
+            this.order = new int[(int) this.numInstances];
+            for (int i = 0; i < this.order.length; i++) {
+                int j = random.nextInt(i + 1);
+                this.order[i] = this.order[j];
+                this.order[j] = i;
+            }
+        }
+    }
+
+    protected static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated binary instance file");
+            }
+        }
+        buffer.flip();
+    }
+}
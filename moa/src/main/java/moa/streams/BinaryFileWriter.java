@@ -0,0 +1,285 @@
+/*
+ *    BinaryFileWriter.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+
+/**
+ * Writes instances to a binary file that BinaryFileStream replays without
+ * parsing. All numbers are little endian. The file holds:
+ * <ul>
+ * <li>a fixed header of FIXED_HEADER_LENGTH bytes: the magic number, the
+ * version, the layout of the rows (dense or sparse), the number of
+ * attributes, the number of instances, the offsets of the rows and of the
+ * row index, the length of the longest row and the length of the serialised
+ * header,</li>
+ * <li>the InstancesHeader of the instances, serialised,</li>
+ * <li>the rows, from an offset that is a multiple of 8. Dense rows all have
+ * the same length: the weight and the value of every attribute, as doubles.
+ * Sparse rows hold the weight as a double, the number of values as an int,
+ * the indices of the values as ints and the values as doubles,</li>
+ * <li>for sparse rows only, the index of the rows: the offset of every row
+ * as a long.</li>
+ * </ul>
+ * Nominal values are stored as their index, as in the instances, and missing
+ * values as NaN. Instances that do not match the layout of the file are
+ * converted: sparse rows hold the values that the instances store, and dense
+ * rows the value of every attribute.
+ *
+ * @version $Revision: 7 $
+ */
+public class BinaryFileWriter implements Closeable {
+
+    /** The first four bytes of the files, "MOAB". */
+    public static final int MAGIC = 0x42414F4D;
+
+    public static final int VERSION = 1;
+
+    public static final int DENSE_LAYOUT = 0;
+
+    public static final int SPARSE_LAYOUT = 1;
+
+    public static final int FIXED_HEADER_LENGTH = 48;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    protected static final int BUFFER_SIZE = 1 << 20;
+
+    protected File file;
+
+    protected RandomAccessFile output;
+
+    protected FileChannel channel;
+
+    protected ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+
+    /** The offset in the file of the next byte written. */
+    protected long position;
+
+    protected boolean sparse;
+
+    protected int numAttributes;
+
+    protected long numInstances;
+
+    protected long dataOffset;
+
+    protected int maxRowLength;
+
+    protected int headerLength;
+
+    /** Temporary file for the offsets of the sparse rows. */
+    protected File indexFile;
+
+    protected DataOutputStream index;
+
+    /**
+     * Creates a file for instances of the given header.
+     *
+     * @param file the file to write, replaced if it exists
+     * @param header the header of the instances
+     * @param sparse whether to write sparse rows rather than dense ones
+     * @throws IOException if the file cannot be written
+     */
+    public BinaryFileWriter(File file, InstancesHeader header, boolean sparse) throws IOException {
+        this.file = file;
+        this.sparse = sparse;
+        this.numAttributes = header.numAttributes();
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutput = new ObjectOutputStream(headerBytes);
+        objectOutput.writeObject(header);
+        objectOutput.close();
+        this.headerLength = headerBytes.size();
+        if (sparse) {
+            this.indexFile = File.createTempFile("moa-index", ".tmp");
+            this.index = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(this.indexFile)));
+        } else {
+            this.maxRowLength = 8 * (this.numAttributes + 1);
+        }
+        this.output = new RandomAccessFile(file, "rw");
+        this.output.setLength(0);
+        this.channel = this.output.getChannel();
+        // the fixed header is written when closing, once the counts are known
+        this.buffer.position(FIXED_HEADER_LENGTH);
+        this.position = FIXED_HEADER_LENGTH;
+        writeBytes(headerBytes.toByteArray());
+        this.dataOffset = alignPosition();
+    }
+
+    /**
+     * Writes an instance.
+     *
+     * @param instance the instance
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Instance instance) throws IOException {
+        if (this.sparse) {
+            int numValues = instance.numValues();
+            int rowLength = 12 + 12 * numValues;
+            this.index.writeLong(this.position);
+            this.maxRowLength = Math.max(this.maxRowLength, rowLength);
+            reserve(rowLength);
+            this.buffer.putDouble(instance.weight());
+            this.buffer.putInt(numValues);
+            for (int i = 0; i < numValues; i++) {
+                this.buffer.putInt(instance.index(i));
+            }
+            for (int i = 0; i < numValues; i++) {
+                this.buffer.putDouble(instance.valueSparse(i));
+            }
+            this.position += rowLength;
+        } else {
+            reserve(this.maxRowLength);
+            this.buffer.putDouble(instance.weight());
+            for (int i = 0; i < this.numAttributes; i++) {
+                this.buffer.putDouble(instance.value(i));
+            }
+            this.position += this.maxRowLength;
+        }
+        this.numInstances++;
+    }
+
+    /**
+     * Gets the number of instances written.
+     *
+     * @return the number of instances
+     */
+    public long numInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * Writes the index of the rows and the fixed header, and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.output == null) {
+            return;
+        }
+        try {
+            long indexOffset = 0;
+            if (this.sparse) {
+                this.index.close();
+                indexOffset = alignPosition();
+                DataInputStream offsets = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(this.indexFile)));
+                try {
+                    for (long i = 0; i < this.numInstances; i++) {
+                        reserve(8);
+                        this.buffer.putLong(offsets.readLong());
+                        this.position += 8;
+                    }
+                } finally {
+                    offsets.close();
+                }
+            }
+            flush();
+            ByteBuffer fixedHeader = ByteBuffer.allocate(FIXED_HEADER_LENGTH).order(BYTE_ORDER);
+            fixedHeader.putInt(MAGIC);
+            fixedHeader.putInt(VERSION);
+            fixedHeader.putInt(this.sparse ? SPARSE_LAYOUT : DENSE_LAYOUT);
+            fixedHeader.putInt(this.numAttributes);
+            fixedHeader.putLong(this.numInstances);
+            fixedHeader.putLong(this.dataOffset);
+            fixedHeader.putLong(indexOffset);
+            fixedHeader.putInt(this.maxRowLength);
+            fixedHeader.putInt(this.headerLength);
+            fixedHeader.flip();
+            while (fixedHeader.hasRemaining()) {
+                this.channel.write(fixedHeader, fixedHeader.position());
+            }
+        } finally {
+            this.output.close();
+            this.output = null;
+            if (this.indexFile != null) {
+                this.index.close();
+                this.indexFile.delete();
+            }
+        }
+    }
+
+    protected void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        this.position += bytes.length;
+    }
+
+    /**
+     * Pads the file with zeros up to the next multiple of 8.
+     *
+     * @return the new position
+     * @throws IOException if the file cannot be written
+     */
+    protected long alignPosition() throws IOException {
+        int padding = (int) (-this.position & 7);
+        reserve(padding);
+        for (int i = 0; i < padding; i++) {
+            this.buffer.put((byte) 0);
+        }
+        this.position += padding;
+        return this.position;
+    }
+
+    /**
+     * Makes room in the buffer for the given number of bytes.
+     */
+    protected void reserve(int length) throws IOException {
+        if (this.buffer.remaining() < length) {
+            flush();
+            if (this.buffer.capacity() < length) {
+                this.buffer = ByteBuffer.allocate(length).order(BYTE_ORDER);
+            }
+        }
+    }
+
+    protected void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
@@ -9,6 +9,8 @@ import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+import java.util.Arrays;
 import moa.core.FastVector;
 import moa.core.InstanceExample;
 import moa.streams.InstanceStream;
@@ -17,6 +19,11 @@ import moa.streams.InstanceStream;
  *    Filter to perform feature hashing to reduce the number of attributes by applying
  *    a hash function to features.
  *
+ *    The bucket and sign of every input attribute are computed once, when the
+ *    first instance is seen, and only the non-zero values of the input are
+ *    visited. The output instances are sparse, holding the non-zero buckets and
+ *    the class value only.
+ *
  *   @author Maroua Bahri
  */
 
@@ -31,12 +38,28 @@ public class HashingTrickFilter extends AbstractStreamFilter {
 
     protected FastVector attributes;
 
+    /** The bucket of every input attribute. */
+    protected int[] attributeBuckets;
+
+    /** The sign of every input attribute, +1 or -1. */
+    protected double[] attributeSigns;
+
+    /** The sums of the buckets hit by the current instance, zero elsewhere. */
+    protected double[] bucketValues;
+
+    /** The buckets hit by the current instance. */
+    protected int[] hitBuckets;
+
     @Override
     public String getPurposeString() { return "Reduces the number of input features using a hash function.";  }
 
     @Override
     protected void restartImpl() {
         this.streamHeader = null;
+        this.attributeBuckets = null;
+        this.attributeSigns = null;
+        this.bucketValues = null;
+        this.hitBuckets = null;
     }
 
     @Override
@@ -59,15 +82,84 @@ public class HashingTrickFilter extends AbstractStreamFilter {
             this.streamHeader = new InstancesHeader(new Instances(
                     getCLICreationString(InstanceStream.class), this.attributes, 0));
             this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
+            initHashes(sparseInstance.numAttributes(), this.dim.getValue(), Hashing.murmur3_128());
         }
 
-
-        double [] hashVal = hashVector(sparseInstance,this.dim.getValue(), Hashing.murmur3_128());
-
-        return new InstanceExample(transformedInstance(sparseInstance, hashVal));
+        return new InstanceExample(hashInstance(sparseInstance));
     }
 
+    /**
+     * Computes the bucket and sign of every input attribute.
+     *
+     * @param numAttributes the number of input attributes
+     * @param n the number of buckets
+     * @param hashFunction the hash function of the attribute indices
+     */
+    protected void initHashes(int numAttributes, int n, HashFunction hashFunction) {
+        this.attributeBuckets = new int[numAttributes];
+        this.attributeSigns = new double[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            int hash = hashFunction.hashInt(i).asInt();
+            this.attributeBuckets[i] = Math.abs(hash % n);
+            this.attributeSigns[i] = hash < 0 ? -1d : 1d;
+        }
+        this.bucketValues = new double[n];
+        this.hitBuckets = new int[Math.min(numAttributes, n)];
+    }
 
+    /**
+     * Hashes an instance into a sparse instance of the output header, visiting
+     * only the values stored in the input instance.
+     *
+     * @param instance the input instance
+     * @return the hashed instance
+     */
+    public Instance hashInstance(Instance instance) {
+        int classIndex = instance.classIndex();
+        int numHits = 0;
+        for (int i = 0; i < instance.numValues(); i++) {
+            int index = instance.index(i);
+            if (index == classIndex || index >= this.attributeBuckets.length) {
+                continue;
+            }
+            double diff = Math.abs(instance.valueSparse(i));
+            if (diff > Double.MIN_NORMAL) {
+                int bucket = this.attributeBuckets[index];
+                if (this.bucketValues[bucket] == 0d) {
+                    // a bucket back to zero may be hit again, the duplicates
+                    // are skipped below
+                    if (numHits == this.hitBuckets.length) {
+                        this.hitBuckets = Arrays.copyOf(this.hitBuckets, 2 * numHits + 1);
+                    }
+                    this.hitBuckets[numHits++] = bucket;
+                }
+                this.bucketValues[bucket] += this.attributeSigns[index];
+            }
+        }
+        Arrays.sort(this.hitBuckets, 0, numHits);
+        double[] values = new double[numHits + 1];
+        int[] indices = new int[numHits + 1];
+        int numValues = 0;
+        for (int i = 0; i < numHits; i++) {
+            int bucket = this.hitBuckets[i];
+            double value = this.bucketValues[bucket];
+            if (value != 0d) {
+                values[numValues] = value;
+                indices[numValues++] = bucket;
+                this.bucketValues[bucket] = 0d;
+            }
+        }
+        values[numValues] = instance.classValue();
+        indices[numValues++] = this.bucketValues.length;
+        if (numValues < values.length) {
+            values = Arrays.copyOf(values, numValues);
+            indices = Arrays.copyOf(indices, numValues);
+        }
+        SparseInstance newInstance = new SparseInstance(1.0, values, indices,
+                this.streamHeader.numAttributes());
+        newInstance.setDataset(this.streamHeader);
+        return newInstance;
+    }
 
     public DenseInstance transformedInstance(Instance sparseInst, double [] hashVal) {
 
@@ -109,4 +201,4 @@ public class HashingTrickFilter extends AbstractStreamFilter {
     }
 
 
-}
\ No newline at end of file
+}
@@ -21,16 +21,19 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
 import moa.core.Example;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.TimingUtils;
 import moa.evaluation.LearningEvaluation;
+import moa.evaluation.ModelSizeMeter;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
 import moa.learners.ChangeDetectorLearner;
@@ -82,6 +85,19 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
             "How many instances between samples of the learning performance.",
             10, 0, Integer.MAX_VALUE);
 
+    public IntOption sizeWalkFrequencyOption = new IntOption(
+            "sizeWalkFrequency", 'z',
+            "How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+            1000000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption(
+            "estimateModelSize", 'M',
+            "Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
+
+    public IntOption chunkSizeOption = new IntOption("chunkSize", 'c',
+            "How many instances to feed to the change detector at once (1 = one by one). Inside a chunk, the evaluator sees the warnings, delays and estimations of its start or of the last change.",
+            1, 1, Integer.MAX_VALUE);
+
     /*public IntOption memCheckFrequencyOption = new IntOption(
             "memCheckFrequency", 'q',
             "How many instances between memory bound checks.", 100000, 0,
@@ -152,15 +168,41 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        ModelSizeMeter sizeMeter = null;
+        if (this.estimateModelSizeOption.isSet()) {
+            sizeMeter = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+        }
         double RAMHours = 0.0;
-        while (stream.hasMoreInstances()
+        int chunkSize = this.chunkSizeOption.getValue();
+        Example[] chunk = new Example[chunkSize];
+        double[] chunkValues = new double[chunkSize];
+        double[][] chunkVotes = new double[chunkSize][];
+        int chunkLength = 0;
+        int chunkPosition = 0;
+        while ((chunkPosition < chunkLength || stream.hasMoreInstances())
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
-            Example trainInst = (Example) stream.nextInstance();
+            Example trainInst;
+            double[] prediction;
+            if (chunkSize > 1) {
+                if (chunkPosition == chunkLength) {
+                    int maxLength = maxInstances < 0 ? chunkSize
+                            : (int) Math.min(chunkSize, maxInstances - instancesProcessed);
+                    chunkLength = trainOnChunk(learner, stream, chunk, chunkValues, chunkVotes, maxLength);
+                    chunkPosition = 0;
+                }
+                trainInst = chunk[chunkPosition];
+                prediction = chunkVotes[chunkPosition];
+                chunk[chunkPosition] = null;
+                chunkVotes[chunkPosition] = null;
+                chunkPosition++;
+            } else {
+                trainInst = (Example) stream.nextInstance();
+                prediction = learner.getVotesForInstance(trainInst);
+            }
             Example testInst = trainInst; 
             int trueClass = (int) ((Instance)trainInst.getData()).classValue();
             //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
             if (prediction[0] ==1 ){ //Change detected
                 this.getEventsList().add(new ClusterEvent(this, instancesProcessed, "Detected Change", "Drift"));
             }
@@ -170,14 +212,17 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
             }*/
 
             evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
+            if (chunkSize == 1) {
+                learner.trainOnInstance(trainInst);
+            }
             instancesProcessed++;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                    || stream.hasMoreInstances() == false) {
+                    || (chunkPosition == chunkLength && stream.hasMoreInstances() == false)) {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = (sizeMeter != null ? sizeMeter.measureByteSize(learner, instancesProcessed)
+                        : learner.measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -195,7 +240,7 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
                             "model cost (RAM-Hours)",
                             RAMHours)
                         },
-                        evaluator, learner));
+                        evaluator, learner, sizeMeter));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -236,4 +281,38 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
         }*/
         return learningCurve;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a chunk of instances and trains the change detector on their
+     * values, from one change to the next. Each instance gets the votes it
+     * would get one by one, that is the output of the detector before it
+     * was trained on the instance, when the detector was last given the
+     * previous instance: for the first instance of the chunk and the
+     * instances following a change. The other instances get the votes of the
+     * last of those, without its change.
+     *
+     * @return the number of instances read
+     */
+    protected int trainOnChunk(ChangeDetectorLearner learner, ConceptDriftGenerator stream,
+            Example[] chunk, double[] values, double[][] votes, int maxLength) {
+        int length = 0;
+        while (length < maxLength && stream.hasMoreInstances()) {
+            chunk[length] = (Example) stream.nextInstance();
+            values[length] = ((Instance) chunk[length].getData()).value(0);
+            length++;
+        }
+        int from = 0;
+        while (from < length) {
+            votes[from] = learner.getVotesForInstance(chunk[from]);
+            int change = learner.trainOnValues(values, from, length);
+            int end = change < 0 ? length : change + 1;
+            if (end - from > 1) {
+                double[] unchanged = votes[from].clone();
+                unchanged[0] = 0;
+                Arrays.fill(votes, from + 1, end, unchanged);
+            }
+            from = end;
+        }
+        return length;
+    }
+}
\ No newline at end of file
@@ -29,11 +29,13 @@ import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.TimingUtils;
 import moa.evaluation.LearningEvaluation;
+import moa.evaluation.ModelSizeMeter;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
@@ -99,6 +101,15 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 			"How many instances between samples of the learning performance.",
 			100000, 0, Integer.MAX_VALUE);
 
+	public IntOption sizeWalkFrequencyOption = new IntOption(
+			"sizeWalkFrequency", 'z',
+			"How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+			1000000, 0, Integer.MAX_VALUE);
+
+	public FlagOption estimateModelSizeOption = new FlagOption(
+			"estimateModelSize", 'M',
+			"Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
+
 	/**
 	 * Allows to define the memory limit for the created model.
 	 */
@@ -163,6 +174,10 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 		boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
 		long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
 		long sampleTestTime =0, sampleTrainTime = 0;
+		ModelSizeMeter sizeMeter = null;
+		if (this.estimateModelSizeOption.isSet()) {
+			sizeMeter = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+		}
 		double RAMHours = 0.0;
 		
 		while (stream.hasMoreInstances()
@@ -223,7 +238,8 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 			////Result output
 			if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0) {
 				
-				double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+				double RAMHoursIncrement = (sizeMeter != null ? sizeMeter.measureByteSize(learner, instancesProcessed)
+						: learner.measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (TimingUtils.nanoTimeToSeconds(sampleTrainTime + sampleTestTime) / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
 				
@@ -243,7 +259,7 @@ public class EvaluateInterleavedChunks extends ClassificationMainTask {
 						new Measurement("average chunk test speed", chunkInstances.numInstances()/ avgTestTime),
 						new Measurement( "model cost (RAM-Hours)", RAMHours)}, 
 					evaluator, 
-					learner));
+					learner, sizeMeter));
 				
 				if (immediateResultStream != null) {
 					if (firstDump) {
@@ -32,11 +32,13 @@ import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.TimingUtils;
 import moa.evaluation.LearningEvaluation;
+import moa.evaluation.ModelSizeMeter;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.evaluation.preview.LearningCurve;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
@@ -86,6 +88,15 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
             "How many instances between samples of the learning performance.",
             100000, 0, Integer.MAX_VALUE);
 
+    public IntOption sizeWalkFrequencyOption = new IntOption(
+            "sizeWalkFrequency", 'z',
+            "How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+            1000000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption(
+            "estimateModelSize", 'M',
+            "Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
+
     public IntOption memCheckFrequencyOption = new IntOption(
             "memCheckFrequency", 'q',
             "How many instances between memory bound checks.", 100000, 0,
@@ -143,6 +154,10 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        ModelSizeMeter sizeMeter = null;
+        if (this.estimateModelSizeOption.isSet()) {
+            sizeMeter = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+        }
         double RAMHours = 0.0;
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
@@ -162,7 +177,8 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = (sizeMeter != null ? sizeMeter.measureByteSize(learner, instancesProcessed)
+                        : learner.measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -180,7 +196,7 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
                             "model cost (RAM-Hours)",
                             RAMHours)
                         },
-                        evaluator, learner));
+                        evaluator, learner, sizeMeter));
                 if (immediateResultStream != null) {
                     if (firstDump) {
                         immediateResultStream.print("Learner,stream,randomSeed,");
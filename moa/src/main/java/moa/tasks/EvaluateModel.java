@@ -81,6 +81,10 @@ public class EvaluateModel extends ClassificationMainTask implements Capabilitie
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public IntOption predictionBatchSizeOption = new IntOption("predictionBatchSize", 'b',
+            "How many instances to predict at once, for classifiers.", 1000, 1,
+            Integer.MAX_VALUE);
+
     public EvaluateModel() {
     }
 
@@ -124,48 +128,68 @@ public class EvaluateModel extends ClassificationMainTask implements Capabilitie
                         "Unable to open prediction result file: " + outputPredictionFile, ex);
             }
         }
+        // the model is static, so classifiers predict whole batches at once
+        Classifier classifier = model instanceof Classifier ? (Classifier) model : null;
+        int batchSize = classifier != null ? this.predictionBatchSizeOption.getValue() : 1;
+        Example[] testInsts = new Example[batchSize];
+        Instance[] batchInstances = new Instance[batchSize];
+        double[][] predictions = new double[batchSize][];
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))) {
-            Example testInst = (Example) stream.nextInstance();//.copy();
-            int trueClass = (int) ((Instance) testInst.getData()).classValue();
-            //testInst.setClassMissing();
-            double[] prediction = model.getVotesForInstance(testInst);
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst
-            //		.weight());
-            if (outputPredictionFile != null) {
-                outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," +(
-                        ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
+            int numTestInsts = 0;
+            while (numTestInsts < batchSize && stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed + numTestInsts < maxInstances))) {
+                testInsts[numTestInsts] = (Example) stream.nextInstance();//.copy();
+                batchInstances[numTestInsts] = (Instance) testInsts[numTestInsts].getData();
+                numTestInsts++;
             }
-            evaluator.addResult(testInst, prediction);
-            instancesProcessed++;
-
-            if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                    || stream.hasMoreInstances() == false) {
-	            learningCurve.insertEntry(new LearningEvaluation(
-	                    new Measurement[]{
-	                        new Measurement(
-	                        "learning evaluation instances",
-	                        instancesProcessed)
-	                    },
-	                    evaluator, model));
+            if (classifier != null) {
+                classifier.getVotesForInstances(batchInstances, 0, numTestInsts, predictions);
+            } else {
+                predictions[0] = model.getVotesForInstance(testInsts[0]);
             }
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                if (monitor.taskShouldAbort()) {
-                    return null;
+            for (int i = 0; i < numTestInsts; i++) {
+                Example testInst = testInsts[i];
+                int trueClass = (int) ((Instance) testInst.getData()).classValue();
+                //testInst.setClassMissing();
+                double[] prediction = predictions[i];
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst
+                //		.weight());
+                if (outputPredictionFile != null) {
+                    outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," +(
+                            ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
                 }
-                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
-                if (maxInstances > 0) {
-                    long maxRemaining = maxInstances - instancesProcessed;
-                    if ((estimatedRemainingInstances < 0)
-                            || (maxRemaining < estimatedRemainingInstances)) {
-                        estimatedRemainingInstances = maxRemaining;
-                    }
+                evaluator.addResult(testInst, prediction);
+                instancesProcessed++;
+
+                if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
+                        || (i == numTestInsts - 1 && stream.hasMoreInstances() == false)) {
+    	            learningCurve.insertEntry(new LearningEvaluation(
+    	                    new Measurement[]{
+    	                        new Measurement(
+    	                        "learning evaluation instances",
+    	                        instancesProcessed)
+    	                    },
+    	                    evaluator, model));
                 }
-                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
-                        : (double) instancesProcessed
-                        / (double) (instancesProcessed + estimatedRemainingInstances));
-                if (monitor.resultPreviewRequested()) {
-                    monitor.setLatestResultPreview(learningCurve.copy());
+                if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                    if (maxInstances > 0) {
+                        long maxRemaining = maxInstances - instancesProcessed;
+                        if ((estimatedRemainingInstances < 0)
+                                || (maxRemaining < estimatedRemainingInstances)) {
+                            estimatedRemainingInstances = maxRemaining;
+                        }
+                    }
+                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                            : (double) instancesProcessed
+                            / (double) (instancesProcessed + estimatedRemainingInstances));
+                    if (monitor.resultPreviewRequested()) {
+                        monitor.setLatestResultPreview(learningCurve.copy());
+                    }
                 }
             }
         }
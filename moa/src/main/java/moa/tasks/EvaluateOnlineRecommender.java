@@ -92,9 +92,9 @@ public class EvaluateOnlineRecommender extends AuxiliarMainTask {
           ++count;
         d.reset();
         while (d.next()) {
-            Integer user = d.curUserID();
-            Integer item = d.curItemID();
-            Double rating = d.curRating();
+            int user = d.curUserID();
+            int item = d.curItemID();
+            double rating = d.curRating();
             long startPredTime = System.currentTimeMillis();
             double pred = rp.predictRating(user, item);
             sum += Math.pow(pred - rating, 2);
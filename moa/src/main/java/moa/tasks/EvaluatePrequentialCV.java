@@ -21,6 +21,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Classifier;
@@ -86,6 +87,15 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
             "How many instances between samples of the learning performance.",
             100000, 0, Integer.MAX_VALUE);
 
+    public IntOption sizeWalkFrequencyOption = new IntOption(
+            "sizeWalkFrequency", 'z',
+            "How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+            1000000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption(
+            "estimateModelSize", 'M',
+            "Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
+
     public IntOption memCheckFrequencyOption = new IntOption(
             "memCheckFrequency", 'q',
             "How many instances between memory bound checks.", 100000, 0,
@@ -161,6 +171,13 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        ModelSizeMeter[] sizeMeters = null;
+        if (this.estimateModelSizeOption.isSet()) {
+            sizeMeters = new ModelSizeMeter[learners.length];
+            for (int i = 0; i < sizeMeters.length; i++) {
+                sizeMeters[i] = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+            }
+        }
         double RAMHours = 0.0;
         while (stream.hasMoreInstances()
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
@@ -201,14 +218,15 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
 
                 for (int i = 0; i < learners.length; i++) {
-                    double RAMHoursIncrement = learners[i].measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    double RAMHoursIncrement = (sizeMeters != null ? sizeMeters[i].measureByteSize(learners[i], instancesProcessed)
+                            : learners[i].measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                     RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                     RAMHours += RAMHoursIncrement;
                 }
 
                 lastEvaluateStartTime = evaluateTime;
                 learningCurve.insertEntry(new LearningEvaluation(
-                        getEvaluationMeasurements(
+                        getEvaluationMeasurements(ModelSizeMeter.addMethodMeasurement(
                         new Measurement[]{
                                 new Measurement(
                                         "learning evaluation instances",
@@ -221,7 +239,7 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
                                 new Measurement(
                                         "model cost (RAM-Hours)",
                                         RAMHours)
-                        }, evaluators)));
+                        }, sizeMeters != null ? sizeMeters[0] : null), evaluators)));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -36,6 +36,7 @@ import moa.evaluation.preview.LearningCurve;
 import moa.evaluation.EWMAClassificationPerformanceEvaluator;
 import moa.evaluation.FadingFactorClassificationPerformanceEvaluator;
 import moa.evaluation.LearningEvaluation;
+import moa.evaluation.ModelSizeMeter;
 import moa.evaluation.LearningPerformanceEvaluator;
 import moa.learners.Learner;
 import moa.options.ClassOption;
@@ -111,6 +112,15 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
             'f',
             "How many instances between samples of the learning performance.",
             100000, 0, Integer.MAX_VALUE);
+
+    public IntOption sizeWalkFrequencyOption = new IntOption(
+            "sizeWalkFrequency", 'z',
+            "How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+            1000000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption(
+            "estimateModelSize", 'M',
+            "Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
     
     public IntOption memCheckFrequencyOption = new IntOption(
             "memCheckFrequency", 'q',
@@ -215,14 +225,35 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        ModelSizeMeter sizeMeter = null;
+        if (this.estimateModelSizeOption.isSet()) {
+            sizeMeter = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+        }
         double RAMHours = 0.0;
+
+        // When training in batches the learner only changes every k instances,
+        // so the instances tested until the next batch are read ahead and
+        // predicted at once.
+        Classifier batchClassifier = this.trainInBatches.isSet()
+                && learner instanceof Classifier ? (Classifier) learner : null;
+        Example[] testBatch = null;
+        Instance[] testBatchInstances = null;
+        double[][] testBatchPredictions = null;
+        int testBatchSize = 0;
+        int nextInTestBatch = 0;
+        if (batchClassifier != null) {
+            testBatch = new Example[this.delayLengthOption.getValue() + 1];
+            testBatchInstances = new Instance[testBatch.length];
+            testBatchPredictions = new double[testBatch.length][];
+        }
         
-        while (stream.hasMoreInstances()
+        while ((stream.hasMoreInstances() || nextInTestBatch < testBatchSize)
                 && ((maxInstances < 0) || (instancesProcessed < maxInstances))
                 && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
             
             instancesProcessed++;
-            Example currentInst = stream.nextInstance();
+            Example currentInst = nextInTestBatch < testBatchSize
+                    ? testBatch[nextInTestBatch] : stream.nextInstance();
             
             if(instancesProcessed <= this.initialWindowSizeOption.getValue()) {
                 if(this.trainOnInitialWindowOption.isSet()) {
@@ -250,16 +281,39 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
                     }
                 }
 
-                // Remove class label from test instances. 
+                double[] prediction;
+                if (batchClassifier != null) {
+                    if (nextInTestBatch >= testBatchSize) {
+                        // Read ahead the instances tested before the next batch
+                        testBatchSize = 0;
+                        nextInTestBatch = 0;
+                        int batchLength = 1 + this.delayLengthOption.getValue() - this.trainInstances.size();
+                        while (testBatchSize < batchLength && (testBatchSize == 0 || (stream.hasMoreInstances()
+                                && ((maxInstances < 0) || (instancesProcessed + testBatchSize <= maxInstances))))) {
+                            Example batchInst = testBatchSize == 0 ? currentInst : stream.nextInstance();
+                            // Remove class label from test instances.
+                            Instance testInstance = ((Instance) batchInst.getData()).copy();
+                            testInstance.setMissing(testInstance.classAttribute());
+                            testInstance.setClassValue(0.0);
+                            testBatch[testBatchSize] = batchInst;
+                            testBatchInstances[testBatchSize] = testInstance;
+                            testBatchSize++;
+                        }
+                        batchClassifier.getVotesForInstances(testBatchInstances, 0, testBatchSize, testBatchPredictions);
+                    }
+                    prediction = testBatchPredictions[nextInTestBatch++];
+                } else {
+                    // Remove class label from test instances. 
+                    Instance testInstance = ((Instance) currentInst.getData()).copy();
+                    Example testInst = new InstanceExample(testInstance);
+                    testInstance.setMissing(testInstance.classAttribute());
+                    testInstance.setClassValue(0.0);
+              
+                    prediction = learner.getVotesForInstance(testInst);
+                }
+    //          reinstate the testInstance as it is used in evaluator.addResult
                 Instance testInstance = ((Instance) currentInst.getData()).copy();
                 Example testInst = new InstanceExample(testInstance);
-                testInstance.setMissing(testInstance.classAttribute());
-                testInstance.setClassValue(0.0);
-          
-                double[] prediction = learner.getVotesForInstance(testInst);
-    //          reinstate the testInstance as it is used in evaluator.addResult
-                testInstance = ((Instance) currentInst.getData()).copy();
-                testInst = new InstanceExample(testInstance);
 
                 // Output prediction
                 if (outputPredictionFile != null) {
@@ -270,11 +324,12 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
                 evaluator.addResult(testInst, prediction);
                 
                 if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                        || stream.hasMoreInstances() == false) {
+                        || (stream.hasMoreInstances() == false && nextInTestBatch >= testBatchSize)) {
                     long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                     double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                     double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                    double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    double RAMHoursIncrement = (sizeMeter != null ? sizeMeter.measureByteSize(learner, instancesProcessed)
+                            : learner.measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                     RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                     RAMHours += RAMHoursIncrement;
                     lastEvaluateStartTime = evaluateTime;
@@ -292,7 +347,7 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
                                 "model cost (RAM-Hours)",
                                 RAMHours)
                             },
-                            evaluator, learner));
+                            evaluator, learner, sizeMeter));
                     if (immediateResultStream != null) {
                         if (firstDump) {
                             immediateResultStream.println(learningCurve.headerToString());
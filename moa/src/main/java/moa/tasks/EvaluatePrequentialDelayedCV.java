@@ -22,6 +22,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Classifier;
@@ -98,6 +99,15 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
             "How many instances between samples of the learning performance.",
             100000, 0, Integer.MAX_VALUE);
 
+    public IntOption sizeWalkFrequencyOption = new IntOption(
+            "sizeWalkFrequency", 'z',
+            "How many instances between full measurements of the model size, for learners that cannot estimate it, with estimateModelSize.",
+            1000000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption(
+            "estimateModelSize", 'M',
+            "Estimate the model size where the learner can, walk the model only every sizeWalkFrequency instances and record how the size was obtained.");
+
     public IntOption memCheckFrequencyOption = new IntOption(
             "memCheckFrequency", 'q',
             "How many instances between memory bound checks.", 100000, 0,
@@ -182,6 +192,13 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
         boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
         long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
         long lastEvaluateStartTime = evaluateStartTime;
+        ModelSizeMeter[] sizeMeters = null;
+        if (this.estimateModelSizeOption.isSet()) {
+            sizeMeters = new ModelSizeMeter[learners.length];
+            for (int i = 0; i < sizeMeters.length; i++) {
+                sizeMeters[i] = new ModelSizeMeter(this.sizeWalkFrequencyOption.getValue());
+            }
+        }
         double RAMHours = 0.0;
         
         while (stream.hasMoreInstances()
@@ -226,14 +243,15 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
 
                 for (int i = 0; i < learners.length; i++) {
-                    double RAMHoursIncrement = learners[i].measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    double RAMHoursIncrement = (sizeMeters != null ? sizeMeters[i].measureByteSize(learners[i], instancesProcessed)
+                            : learners[i].measureByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                     RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                     RAMHours += RAMHoursIncrement;
                 }
 
                 lastEvaluateStartTime = evaluateTime;
                 learningCurve.insertEntry(new LearningEvaluation(
-                        getEvaluationMeasurements(
+                        getEvaluationMeasurements(ModelSizeMeter.addMethodMeasurement(
                         new Measurement[]{
                                 new Measurement(
                                         "learning evaluation instances",
@@ -246,7 +264,7 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
                                 new Measurement(
                                         "model cost (RAM-Hours)",
                                         RAMHours)
-                        }, evaluators)));
+                        }, sizeMeters != null ? sizeMeters[0] : null), evaluators)));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -0,0 +1,95 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.BinaryFileWriter;
+import moa.streams.InstanceStream;
+
+/**
+ * Task to output a stream to a binary file, to be replayed with
+ * BinaryFileStream. The rows of the file are sparse if the first instance of
+ * the stream stores fewer values than it has attributes, and dense otherwise.
+ *
+ * @version $Revision: 7 $
+ */
+public class WriteStreamToBinaryFile extends AuxiliarMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary file.", null, "bin", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            try {
+                monitor.setCurrentActivityDescription("Writing stream to binary file");
+                Instance first = null;
+                if ((this.maxInstancesOption.getValue() > 0) && stream.hasMoreInstances()) {
+                    first = stream.nextInstance().getData();
+                }
+                BinaryFileWriter w = new BinaryFileWriter(destFile, stream.getHeader(),
+                        first != null && first.numValues() < first.numAttributes());
+                try {
+                    if (first != null) {
+                        w.write(first);
+                    }
+                    while ((w.numInstances() < this.maxInstancesOption.getValue())
+                            && stream.hasMoreInstances()) {
+                        w.write(stream.nextInstance().getData());
+                    }
+                } finally {
+                    w.close();
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            }
+            return "Stream written to binary file " + destFile;
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}
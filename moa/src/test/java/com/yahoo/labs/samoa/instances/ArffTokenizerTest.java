@@ -0,0 +1,71 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Test the tokens read by ArffTokenizer.
+ */
+public class ArffTokenizerTest {
+
+	@Test
+	public void testTokens() throws IOException {
+		ArffTokenizer tokenizer = new ArffTokenizer(new StringReader(
+				"a, 'b c' % comment\r\n{1 \"d\\te\"}\r?\n"));
+		assertEquals(ArffTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("a", tokenizer.stringValue());
+		assertEquals('\'', tokenizer.nextToken());
+		assertEquals("b c", tokenizer.stringValue());
+		assertEquals(ArffTokenizer.TT_EOL, tokenizer.nextToken());
+		assertEquals('{', tokenizer.nextToken());
+		assertEquals(ArffTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals(1, tokenizer.intValue());
+		assertEquals('"', tokenizer.nextToken());
+		assertEquals("d\te", tokenizer.stringValue());
+		assertEquals('}', tokenizer.nextToken());
+		assertNull(tokenizer.stringValue());
+		assertEquals(ArffTokenizer.TT_EOL, tokenizer.nextToken());
+		assertEquals(ArffTokenizer.TT_WORD, tokenizer.nextToken());
+		assertTrue(tokenizer.isMissing());
+		assertEquals(ArffTokenizer.TT_EOL, tokenizer.nextToken());
+		assertEquals(ArffTokenizer.TT_EOF, tokenizer.nextToken());
+	}
+
+	@Test
+	public void testNumbers() throws IOException {
+		String[] numbers = {"0", "-0", "1.5", "-.25", "5.", "+3", "1e-5", "2.5E+10",
+				"0.30000000000000004", "9007199254740993", "123456789012345678901234",
+				"1e400", "4.9e-324", "NaN", "-Infinity", "0x1.8p3", "1.5d"};
+		StringBuilder text = new StringBuilder();
+		for (String number : numbers) {
+			text.append(number).append(',');
+		}
+		ArffTokenizer tokenizer = new ArffTokenizer(new StringReader(text.toString()));
+		for (String number : numbers) {
+			tokenizer.nextToken();
+			assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)),
+					Double.doubleToLongBits(tokenizer.numberValue()));
+		}
+	}
+
+	@Test
+	public void testLongTokens() throws IOException {
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			word.append((char) ('a' + i % 26));
+		}
+		ArffTokenizer tokenizer = new ArffTokenizer(new StringReader(
+				"x " + word + " y"));
+		tokenizer.nextToken();
+		tokenizer.nextToken();
+		assertEquals(word.toString(), tokenizer.stringValue());
+		assertEquals(word.toString().hashCode(), tokenizer.textHashCode());
+		assertTrue(tokenizer.textEquals(word.toString()));
+		tokenizer.nextToken();
+		assertEquals("y", tokenizer.stringValue());
+	}
+}
@@ -0,0 +1,119 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the views of instances presented by ProjectedInstance.
+ */
+public class ProjectedInstanceTest {
+
+	private Instances header;
+
+	private Instance instance;
+
+	@Before
+	public void setUp() {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("num"));
+		attributes.add(new Attribute("nom3", Arrays.asList("a", "b", "c")));
+		attributes.add(new Attribute("nom2", Arrays.asList("x", "y")));
+		attributes.add(new Attribute("class", Arrays.asList("p", "q")));
+		header = new InstancesHeader(new Instances("test", attributes, 0));
+		header.setClassIndex(3);
+		instance = new DenseInstance(2.0, new double[] {1.5, 2, 1, 1});
+		instance.setDataset(header);
+	}
+
+	@Test
+	public void testSubspace() {
+		InstanceProjection projection = new InstanceProjection("sub", header, new int[] {2, 0}, false, null);
+		Instance projected = projection.project(instance, 3.0);
+		assertSame(projection.getHeader(), projected.dataset());
+		assertEquals(3, projected.numAttributes());
+		assertEquals(2, projected.classIndex());
+		assertSame(header.attribute(2), projected.attribute(0));
+		assertEquals(1.0, projected.value(0), 0.0);
+		assertEquals(1.5, projected.value(1), 0.0);
+		assertEquals(1.0, projected.classValue(), 0.0);
+		assertEquals(3.0, projected.weight(), 0.0);
+		assertArrayEquals(new double[] {1, 1.5, 1}, projected.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testOneHotEncoding() {
+		InstanceProjection projection = new InstanceProjection("sub", header, new int[] {0, 1, 2}, true,
+				new Attribute("classAttribute"));
+		Instance projected = projection.project(instance, 1.0, -1);
+		assertEquals(6, projected.numAttributes());
+		assertTrue(projected.attribute(1).isNumeric());
+		assertTrue(projected.classAttribute().isNumeric());
+		assertArrayEquals(new double[] {1.5, 0, 0, 1, 1, -1}, projected.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testChangesLeaveSourceIntact() {
+		InstanceProjection projection = new InstanceProjection("sub", header, new int[] {0, 1}, false, null);
+		Instance projected = projection.project(instance, 1.0);
+		Instance copy = projected.copy();
+		copy.setClassValue(0);
+		assertEquals(0.0, copy.classValue(), 0.0);
+		assertEquals(1.0, projected.classValue(), 0.0);
+		projected.setValue(0, 7);
+		assertEquals(7.0, projected.value(0), 0.0);
+		assertEquals(2.0, projected.value(1), 0.0);
+		assertEquals(1.5, copy.value(0), 0.0);
+		assertArrayEquals(new double[] {1.5, 2, 1, 1}, instance.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		InstanceProjection projection = new InstanceProjection("sub", header, new int[] {0, 1}, false, null);
+		ProjectedInstance projected = (ProjectedInstance) projection.project(instance, 1.0);
+		Instance copy = projected.copy();
+		Instance other = new DenseInstance(1.0, new double[] {-4, 0, 0, 0});
+		other.setDataset(header);
+		projected.setSource(other, 1.0);
+		assertEquals(-4.0, projected.value(0), 0.0);
+		assertSame(projection.getHeader(), copy.dataset());
+		assertArrayEquals(new double[] {1.5, 2, 1}, copy.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testSetSource() {
+		InstanceProjection projection = new InstanceProjection("sub", header, new int[] {2, 0}, false, null);
+		ProjectedInstance projected = (ProjectedInstance) projection.project(instance, 3.0);
+		projected.setValue(0, 7);
+		Instance other = new DenseInstance(1.0, new double[] {-4, 0, 0, 0});
+		other.setDataset(header);
+		projected.setSource(other, 2.0);
+		assertEquals(2.0, projected.weight(), 0.0);
+		assertArrayEquals(new double[] {0, -4, 0}, projected.toDoubleArray(), 0.0);
+		projected.setSource(instance, 1.0, 0.0);
+		assertArrayEquals(new double[] {1, 1.5, 0}, projected.toDoubleArray(), 0.0);
+
+		ProjectedInstance weighted = new ProjectedInstance(instance, 5.0);
+		weighted.setMissing(0);
+		weighted.setSource(other, 6.0);
+		assertSame(header, weighted.dataset());
+		assertEquals(6.0, weighted.weight(), 0.0);
+		assertArrayEquals(other.toDoubleArray(), weighted.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testWeightedView() {
+		Instance weighted = new ProjectedInstance(instance, 5.0);
+		assertSame(header, weighted.dataset());
+		assertEquals(5.0, weighted.weight(), 0.0);
+		assertEquals(2.0, instance.weight(), 0.0);
+		assertArrayEquals(instance.toDoubleArray(), weighted.toDoubleArray(), 0.0);
+		weighted.setMissing(0);
+		assertTrue(weighted.isMissing(0));
+		assertEquals(1.5, instance.value(0), 0.0);
+	}
+}
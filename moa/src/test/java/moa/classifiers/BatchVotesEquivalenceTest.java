@@ -0,0 +1,120 @@
+package moa.classifiers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.functions.Perceptron;
+import moa.classifiers.functions.SGD;
+import moa.classifiers.functions.SGDMultiClass;
+import moa.classifiers.functions.SPegasos;
+import moa.classifiers.meta.AdaptiveRandomForest;
+import moa.classifiers.meta.LeveragingBag;
+import moa.classifiers.meta.OzaBag;
+import moa.classifiers.meta.StreamingRandomPatches;
+import moa.classifiers.trees.ARFHoeffdingTree;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test that the classifiers predicting a batch of instances at once give the
+ * votes they give for each instance in turn.
+ */
+public class BatchVotesEquivalenceTest {
+
+	protected static final int NUM_BATCHES = 20;
+
+	protected static final int BATCH_SIZE = 500;
+
+	/**
+	 * Predicts each batch of a drifting stream before training on it, and
+	 * checks the votes of the batch against the votes per instance. The votes
+	 * array is kept from batch to batch, so its rows are written again.
+	 */
+	protected static void checkSameVotes(Classifier learner) {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.numClassesOption.setValue(3);
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		learner.prepareForUse();
+		Instance[] batch = new Instance[BATCH_SIZE];
+		double[][] votes = new double[BATCH_SIZE][];
+		for (int n = 0; n < NUM_BATCHES; n++) {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				batch[i] = stream.nextInstance().getData();
+			}
+			learner.getVotesForInstances(batch, 0, BATCH_SIZE, votes);
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				assertArrayEquals(learner.getVotesForInstance(batch[i]), votes[i], 0.0);
+			}
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				learner.trainOnInstance(batch[i]);
+			}
+		}
+	}
+
+	protected static HoeffdingTree newHoeffdingTree(int leafPrediction) {
+		HoeffdingTree tree = new HoeffdingTree();
+		tree.gracePeriodOption.setValue(50);
+		tree.leafpredictionOption.setChosenIndex(leafPrediction);
+		return tree;
+	}
+
+	@Test
+	public void testLinearLearners() {
+		checkSameVotes(new NaiveBayes());
+		checkSameVotes(new SGD());
+		checkSameVotes(new SGDMultiClass());
+		checkSameVotes(new SPegasos());
+		checkSameVotes(new Perceptron());
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		for (int leafPrediction = 0; leafPrediction < 3; leafPrediction++) {
+			checkSameVotes(newHoeffdingTree(leafPrediction));
+			HoeffdingTree tree = newHoeffdingTree(leafPrediction);
+			tree.flatIndexOption.set();
+			checkSameVotes(tree);
+		}
+	}
+
+	@Test
+	public void testSubclassesOfHoeffdingTree() {
+		ARFHoeffdingTree arfTree = new ARFHoeffdingTree();
+		arfTree.subspaceSizeOption.setValue(3);
+		arfTree.gracePeriodOption.setValue(50);
+		checkSameVotes(arfTree);
+		// votes one instance at a time
+		HoeffdingAdaptiveTree adaptiveTree = new HoeffdingAdaptiveTree();
+		adaptiveTree.gracePeriodOption.setValue(50);
+		checkSameVotes(adaptiveTree);
+	}
+
+	@Test
+	public void testEnsembles() {
+		for (int numberOfJobs : new int[]{1, 2}) {
+			OzaBag ozaBag = new OzaBag();
+			ozaBag.baseLearnerOption.setCurrentObject(newHoeffdingTree(2));
+			ozaBag.numberOfJobsOption.setValue(numberOfJobs);
+			checkSameVotes(ozaBag);
+			LeveragingBag leveragingBag = new LeveragingBag();
+			leveragingBag.baseLearnerOption.setCurrentObject(newHoeffdingTree(2));
+			leveragingBag.numberOfJobsOption.setValue(numberOfJobs);
+			checkSameVotes(leveragingBag);
+			AdaptiveRandomForest forest = new AdaptiveRandomForest();
+			forest.ensembleSizeOption.setValue(5);
+			forest.numberOfJobsOption.setValue(numberOfJobs);
+			checkSameVotes(forest);
+			StreamingRandomPatches patches = new StreamingRandomPatches();
+			patches.ensembleSizeOption.setValue(5);
+			patches.numberOfJobsOption.setValue(numberOfJobs);
+			checkSameVotes(patches);
+		}
+	}
+}
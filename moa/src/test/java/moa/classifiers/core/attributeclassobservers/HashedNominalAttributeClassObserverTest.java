@@ -0,0 +1,186 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+
+/**
+ * Test the hashed and count-min nominal observers against
+ * NominalAttributeClassObserver on random observations.
+ */
+public class HashedNominalAttributeClassObserverTest {
+
+	private static final SplitCriterion[] CRITERIA = {new InfoGainSplitCriterion(), new GiniSplitCriterion()};
+
+	/**
+	 * Feeds the same random observations to the observers, and returns the
+	 * class distribution before the split.
+	 */
+	private static double[] observe(Random random, int numValues, int numClasses, int numObservations,
+			boolean integerWeights, AttributeClassObserver... observers) {
+		double[] classDist = new double[numClasses];
+		for (int i = 0; i < numObservations; i++) {
+			// skewed values, with some missing
+			double value = random.nextInt(20) == 0 ? Double.NaN
+					: Math.min(numValues - 1, (int) (-Math.log(1.0 - random.nextDouble()) * numValues / 4));
+			int classValue = random.nextInt(numClasses);
+			double weight = integerWeights ? 1 + random.nextInt(3) : random.nextDouble() * 2.0;
+			for (AttributeClassObserver observer : observers) {
+				observer.observeAttributeClass(value, classValue, weight);
+			}
+			classDist[classValue] += weight;
+		}
+		return classDist;
+	}
+
+	private static void assertSameSuggestion(String message, AttributeSplitSuggestion expected,
+			AttributeSplitSuggestion actual, double tolerance) {
+		assertEquals(message, expected.splitTest.getClass(), actual.splitTest.getClass());
+		assertArrayEquals(message, expected.splitTest.getAttsTestDependsOn(), actual.splitTest.getAttsTestDependsOn());
+		if (expected.splitTest instanceof NominalAttributeBinaryTest) {
+			assertEquals(message, ((NominalAttributeBinaryTest) expected.splitTest).getSplitValue(),
+					((NominalAttributeBinaryTest) actual.splitTest).getSplitValue());
+		}
+		// the criteria sum the distributions in a different order, and the
+		// merit is a difference of entropies, so compare it absolutely
+		assertEquals(message, expected.merit, actual.merit, 1e-12);
+		assertEquals(message, expected.numSplits(), actual.numSplits());
+		for (int i = 0; i < expected.numSplits(); i++) {
+			assertSameDistribution(message + ", branch " + i, expected.resultingClassDistributionFromSplit(i),
+					actual.resultingClassDistributionFromSplit(i), tolerance);
+		}
+	}
+
+	/**
+	 * Compares class distributions, where the entries beyond the end of an
+	 * array count as zero, as they do for the split criteria.
+	 */
+	private static void assertSameDistribution(String message, double[] expected, double[] actual,
+			double tolerance) {
+		for (int i = 0; i < Math.max(expected.length, actual.length); i++) {
+			double expectedValue = i < expected.length ? expected[i] : 0.0;
+			double actualValue = i < actual.length ? actual[i] : 0.0;
+			assertEquals(message + ", class " + i, expectedValue, actualValue, tolerance * expectedValue);
+		}
+	}
+
+	private static void compare(String message, NominalAttributeClassObserver expected,
+			HashedNominalAttributeClassObserver actual, int numValues, int numClasses, double[] classDist,
+			boolean binaryOnly, double tolerance) {
+		assertEquals(message, expected.totalWeightOfClassObservations(), actual.totalWeightOfClassObservations(),
+				tolerance * expected.totalWeightOfClassObservations());
+		assertEquals(message, expected.weightOfObservedMissingValues(), actual.weightOfObservedMissingValues(),
+				tolerance * expected.weightOfObservedMissingValues());
+		assertEquals(message, expected.getMaxAttValsObserved(), actual.getMaxAttValsObserved());
+		for (int value = 0; value < numValues + 2; value++) {
+			for (int classValue = 0; classValue < numClasses; classValue++) {
+				double probability = expected.probabilityOfAttributeValueGivenClass(value, classValue);
+				assertEquals(message + ", value " + value + ", class " + classValue, probability,
+						actual.probabilityOfAttributeValueGivenClass(value, classValue), tolerance * probability);
+			}
+		}
+		for (SplitCriterion criterion : CRITERIA) {
+			assertSameSuggestion(message + ", " + criterion.getClass().getSimpleName(),
+					expected.getBestEvaluatedSplitSuggestion(criterion, classDist, 3, binaryOnly),
+					actual.getBestEvaluatedSplitSuggestion(criterion, classDist, 3, binaryOnly), tolerance);
+		}
+	}
+
+	@Test
+	public void testHashedObserver() {
+		Random random = new Random(1);
+		for (int run = 0; run < 60; run++) {
+			int numValues = 1 + random.nextInt(run < 30 ? 10 : 500);
+			int numClasses = 2 + random.nextInt(5);
+			boolean integerWeights = run % 2 == 0;
+			NominalAttributeClassObserver expected = new NominalAttributeClassObserver();
+			HashedNominalAttributeClassObserver actual = new HashedNominalAttributeClassObserver();
+			double[] classDist = observe(random, numValues, numClasses, 1 + random.nextInt(5000),
+					integerWeights, expected, actual);
+			// integer weights are counted exactly in any order, other weights
+			// may differ in the last bits
+			double tolerance = integerWeights ? 0.0 : 1e-12;
+			String message = "run " + run;
+			compare(message, expected, actual, numValues, numClasses, classDist, false, tolerance);
+			compare(message, expected, actual, numValues, numClasses, classDist, true, tolerance);
+
+			// the copy goes on independently
+			HashedNominalAttributeClassObserver copy = (HashedNominalAttributeClassObserver) actual.copy();
+			NominalAttributeClassObserver expectedCopy = (NominalAttributeClassObserver) expected.copy();
+			double[] moreDist = observe(random, numValues, numClasses, 1000, integerWeights, expected, actual);
+			for (int i = 0; i < numClasses; i++) {
+				moreDist[i] += classDist[i];
+			}
+			compare(message + " after copy", expected, actual, numValues, numClasses, moreDist, false, tolerance);
+			compare(message + " copy", expectedCopy, copy, numValues, numClasses, classDist, false, tolerance);
+		}
+	}
+
+	@Test
+	public void testWideCountMinSketch() {
+		// without collisions in every row, the sketch counts exactly
+		Random random = new Random(2);
+		for (int run = 0; run < 20; run++) {
+			int numValues = 1 + random.nextInt(50);
+			int numClasses = 2 + random.nextInt(3);
+			NominalAttributeClassObserver expected = new NominalAttributeClassObserver();
+			CountMinNominalAttributeClassObserver actual = new CountMinNominalAttributeClassObserver();
+			actual.widthOption.setValue(1 << 16);
+			double[] classDist = observe(random, numValues, numClasses, 1 + random.nextInt(5000), true,
+					expected, actual);
+			compare("run " + run, expected, actual, numValues, numClasses, classDist, true, 0.0);
+			// binary splits only, even when multiway splits are allowed
+			assertSameSuggestion("run " + run,
+					expected.getBestEvaluatedSplitSuggestion(CRITERIA[0], classDist, 3, true),
+					actual.getBestEvaluatedSplitSuggestion(CRITERIA[0], classDist, 3, false), 0.0);
+		}
+	}
+
+	@Test
+	public void testNarrowCountMinSketch() {
+		// with collisions, the counts are overestimated, within the bound of
+		// the sketch for most values
+		Random random = new Random(3);
+		int numValues = 5000;
+		int numClasses = 3;
+		int width = 256;
+		NominalAttributeClassObserver expected = new NominalAttributeClassObserver();
+		CountMinNominalAttributeClassObserver actual = new CountMinNominalAttributeClassObserver();
+		actual.widthOption.setValue(width);
+		observe(random, numValues, numClasses, 50000, true, expected, actual);
+		int outOfBound = 0;
+		for (int classValue = 0; classValue < numClasses; classValue++) {
+			double classWeight = actual.weightPerClass.getValue(classValue);
+			for (int value = 0; value < numValues; value++) {
+				double exact = expected.attValDistPerClass.get(classValue).getValue(value);
+				double estimate = actual.getClassCount(value, classValue);
+				assertTrue(estimate >= exact);
+				assertTrue(estimate <= classWeight);
+				if (estimate - exact > Math.E / width * classWeight) {
+					outOfBound++;
+				}
+			}
+		}
+		// the bound holds with probability 1 - exp(-depth) for every count
+		assertTrue(outOfBound + " counts out of bound",
+				outOfBound <= Math.exp(-actual.depthOption.getValue()) * numValues * numClasses * 2);
+	}
+
+	@Test
+	public void testRegressionTargetsNotSupported() {
+		try {
+			new HashedNominalAttributeClassObserver().observeAttributeTarget(1.0, 2.5);
+			fail("regression target observed");
+		} catch (UnsupportedOperationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("regression targets are not supported"));
+		}
+	}
+}
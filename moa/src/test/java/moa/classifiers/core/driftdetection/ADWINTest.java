@@ -0,0 +1,163 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test ADWIN against checksums recorded with the previous implementation, which
+ * kept the buckets in a linked list of rows, on random streams: the changes,
+ * the width, the estimation and the variance after every value must be
+ * exactly the same.
+ */
+public class ADWINTest {
+
+	private static final double[] DELTAS = {0.002, 0.00001, 0.01, 0.1, 0.5};
+
+	private static final int[] CLOCKS = {32, 1, 2, 7, 100};
+
+	/** Checksums of the runs of testRandomStreams, one per kind, delta and clock. */
+	private static final long[] CHECKSUMS = {
+		3712842004553267550L, -2252939007632311326L, -5051427348022090034L,
+		-6470541231835130727L, -5734939771305239030L, -8507676724756401904L,
+		2217939833325350207L, 5536835255993858497L, -882319440791285863L,
+		3986124176768123846L, -2207963194037263493L, -7289564951189500399L,
+		5627306577055012791L, 2644751766551053988L, -8901128228958371688L,
+		-3564082509613330604L, -317072458658715949L, 8219923045588940969L,
+		5570596944785157243L, -2096546939457541946L, 6104128628375852783L,
+		-8417562142118987115L, 4028118210465960889L, -570672772576146197L,
+		-1352050941438193531L, -953102589938770914L, 5781948748962583975L,
+		-1679422096666424240L, -6245044447205246003L, 638076059535743269L,
+		-2575649884038931178L, 7351506907688603617L, -1598114249846738932L,
+		2633805743635645952L, 397344268062801165L, 4670132811814293886L,
+		3742483464172361927L, 3452303603003842866L, 889516361128986029L,
+		-7151430769480657728L, -7487473572324515652L, 491664863602769159L,
+		1667450526978049511L, 2401687574602831568L, 8503104573797050029L,
+		8693283544190469071L, -4404752463364062092L, -2711787268274965993L,
+		-7289849258874046062L, 7519564415217006117L, -652624768273272461L,
+		-7920328535560166503L, -2719353099414290947L, 5084263302783454475L,
+		-3893035399738108715L, -726201974204525647L, -3855480972558379431L,
+		3131499826502239160L, -6537669875270909296L, 2428505056279605926L,
+		-5609072725907193824L, 2416682784973112161L, 2820108990644240757L,
+		4742892877354564597L, 620148884720655878L, 1388570270220004717L,
+		-8717329215312370969L, 2560962947424835547L, 6427694198853220334L,
+		8141173505078686062L, -6570939345233320801L, -5248628275825696247L,
+		-7209188017325388436L, 4001723633761676771L, 7195191587329343850L
+	};
+
+	/** Checksum of testWeightedDelta. */
+	private static final long WEIGHTED_DELTA_CHECKSUM = -6212851794914087940L;
+
+	/** Generates a stream whose distribution changes at random times. */
+	static class Stream {
+
+		private final Random random;
+
+		private final int kind;
+
+		private double parameter;
+
+		Stream(Random random, int kind) {
+			this.random = random;
+			this.kind = kind;
+			this.parameter = random.nextDouble();
+		}
+
+		double next() {
+			if (this.random.nextInt(2000) == 0) {
+				this.parameter = this.random.nextDouble();
+			}
+			switch (this.kind) {
+			case 0:
+				// Bernoulli
+				return this.random.nextDouble() < this.parameter ? 1.0 : 0.0;
+			case 1:
+				// Gaussian
+				return this.parameter * 10.0 + this.random.nextGaussian();
+			default:
+				// Bernoulli or Gaussian
+				return this.random.nextBoolean() ? (this.random.nextDouble() < this.parameter ? 1.0 : 0.0)
+						: this.parameter + this.random.nextGaussian() * 0.1;
+			}
+		}
+	}
+
+	/** Folds the result of setInput and the state of ADWIN into the checksum. */
+	static long fold(long checksum, boolean change, ADWIN adwin) {
+		long[] values = {change ? 1 : 0, adwin.getChange() ? 1 : 0, adwin.getWidth(),
+				adwin.getNumberDetections(), Double.doubleToLongBits(adwin.getTotal()),
+				Double.doubleToLongBits(adwin.getEstimation()), Double.doubleToLongBits(adwin.getVariance()),
+				adwin.getBucketsUsed()};
+		for (long value : values) {
+			checksum = checksum * 31 + value;
+		}
+		return checksum;
+	}
+
+	/**
+	 * Feeds ADWIN a random stream of the given kind. Part way, ADWIN is
+	 * copied: the original takes 100 more values, and the run continues with
+	 * the copy, which must not share its window with the original.
+	 */
+	static long checksum(long seed, int kind, double delta, int clock) {
+		Random random = new Random(seed);
+		ADWIN adwin = new ADWIN(delta);
+		adwin.setClock(clock);
+		Stream stream = new Stream(new Random(random.nextLong()), kind);
+		int length = 5000 + random.nextInt(15000);
+		int copyAt = random.nextInt(length);
+		long checksum = 0;
+		for (int i = 0; i < length; i++) {
+			if (i == copyAt) {
+				ADWIN copy = (ADWIN) adwin.copy();
+				for (int j = 0; j < 100; j++) {
+					checksum = fold(checksum, adwin.setInput(stream.next()), adwin);
+				}
+				adwin = copy;
+			}
+			checksum = fold(checksum, adwin.setInput(stream.next()), adwin);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Feeds ADWIN values with a delta each, as the ADWIN ensembles do.
+	 */
+	static long weightedDeltaChecksum() {
+		Random random = new Random(2);
+		ADWIN adwin = new ADWIN();
+		Stream stream = new Stream(random, 2);
+		long checksum = 0;
+		for (int i = 0; i < 20000; i++) {
+			double value = stream.next();
+			double delta = DELTAS[random.nextInt(DELTAS.length)];
+			checksum = fold(checksum, adwin.setInput(value, delta), adwin);
+		}
+		return checksum;
+	}
+
+	static long[] checksums() {
+		long[] checksums = new long[DELTAS.length * CLOCKS.length * 3];
+		for (int run = 0; run < checksums.length; run++) {
+			checksums[run] = checksum(run, run % 3, DELTAS[(run / 3) % DELTAS.length],
+					CLOCKS[run / 15]);
+		}
+		return checksums;
+	}
+
+	@Test
+	public void testRandomStreams() {
+		long[] checksums = checksums();
+		assertEquals(CHECKSUMS.length, checksums.length);
+		for (int run = 0; run < checksums.length; run++) {
+			assertEquals("run " + run, CHECKSUMS[run], checksums[run]);
+		}
+	}
+
+	@Test
+	public void testWeightedDelta() {
+		assertEquals(WEIGHTED_DELTA_CHECKSUM, weightedDeltaChecksum());
+	}
+}
@@ -0,0 +1,43 @@
+package moa.classifiers.core.driftdetection;
+
+import java.util.Random;
+
+/**
+ * Times ADWIN on the random streams of ADWINTest. Run with the test
+ * classpath, or with the classes of another version of ADWIN first to
+ * compare; the first round warms up.
+ */
+public class ADWINTiming {
+
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		double[] deltas = {0.002, 0.1};
+		int[] clocks = {32, 1};
+		for (int round = 0; round < 3; round++) {
+			for (int kind = 0; kind < 2; kind++) {
+				for (double delta : deltas) {
+					for (int clock : clocks) {
+						double[] values = new double[length];
+						ADWINTest.Stream stream = new ADWINTest.Stream(new Random(kind), kind);
+						for (int i = 0; i < length; i++) {
+							values[i] = stream.next();
+						}
+						ADWIN adwin = new ADWIN(delta);
+						adwin.setClock(clock);
+						long start = System.nanoTime();
+						int changes = 0;
+						for (double value : values) {
+							changes += adwin.setInput(value) ? 1 : 0;
+						}
+						long time = System.nanoTime() - start;
+						if (round > 0) {
+							System.out.printf("%s delta=%s clock=%d: %d ms (%d changes)%n",
+									kind == 0 ? "Bernoulli" : "Gaussian", delta, clock,
+									time / 1000000, changes);
+						}
+					}
+				}
+			}
+		}
+	}
+}
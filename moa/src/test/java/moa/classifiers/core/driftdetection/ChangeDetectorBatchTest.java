@@ -0,0 +1,206 @@
+package moa.classifiers.core.driftdetection;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Test the batch input of the change detectors against scalar input: the
+ * same changes must be reported at the same values, and the detectors must
+ * be in the same state after every batch.
+ */
+public class ChangeDetectorBatchTest {
+
+	/**
+	 * Serializes a detector, so that two detectors can be compared field by
+	 * field, including the statistics that the batch input keeps in locals.
+	 */
+	private static byte[] state(ChangeDetector detector) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(detector);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static double[] stream(Random random, int kind, int length) {
+		double[] values = new double[length];
+		double parameter = random.nextDouble() * 0.3;
+		for (int i = 0; i < length; i++) {
+			if (random.nextInt(3000) == 0) {
+				parameter = random.nextDouble() * (kind == 0 ? 0.6 : 1.0);
+			}
+			values[i] = kind == 0 ? (random.nextDouble() < parameter ? 1.0 : 0.0)
+					: parameter * 5.0 + random.nextGaussian();
+		}
+		return values;
+	}
+
+	private static void check(String name, Supplier<ChangeDetector> factory) throws IOException {
+		check(name, factory, true);
+	}
+
+	/** The outputs and the state of a detector after a batch. */
+	private static class Step {
+
+		final int from;
+
+		final int to;
+
+		final int change;
+
+		final boolean changeFlag;
+
+		final boolean warningZone;
+
+		final double estimation;
+
+		final double delay;
+
+		final byte[] state;
+
+		Step(int from, int to, int change, ChangeDetector detector, boolean compareState) throws IOException {
+			this.from = from;
+			this.to = to;
+			this.change = change;
+			this.changeFlag = detector.getChange();
+			this.warningZone = detector.getWarningZone();
+			this.estimation = detector.getEstimation();
+			this.delay = detector.getDelay();
+			this.state = compareState ? state(detector) : null;
+		}
+	}
+
+	/**
+	 * Feeds a stream to a detector in random batches, and then the same
+	 * values one by one to another detector. The detectors are not used at
+	 * the same time, as the samples of HDDM_W_Test are shared by all its
+	 * instances.
+	 */
+	private static void check(String name, Supplier<ChangeDetector> factory, boolean compareState)
+			throws IOException {
+		Random random = new Random(name.hashCode());
+		int totalChanges = 0;
+		for (int run = 0; run < 20; run++) {
+			int kind = run % 2;
+			double[] values = stream(random, kind, 20000);
+			ChangeDetector batch = factory.get();
+			batch.prepareForUse();
+			List<Step> steps = new ArrayList<Step>();
+			int from = 0;
+			while (from < values.length) {
+				int to = Math.min(values.length, from + 1 + random.nextInt(random.nextBoolean() ? 10 : 1000));
+				int change = batch.input(values, from, to);
+				steps.add(new Step(from, to, change, batch, compareState));
+				from = change >= 0 ? change + 1 : to;
+			}
+
+			ChangeDetector scalar = factory.get();
+			scalar.prepareForUse();
+			for (Step step : steps) {
+				int end = step.change >= 0 ? step.change + 1 : step.to;
+				int expectedChange = -1;
+				for (int i = step.from; i < end; i++) {
+					scalar.input(values[i]);
+					if (scalar.getChange() && expectedChange < 0) {
+						expectedChange = i;
+					}
+				}
+				String message = name + ", run " + run + ", values " + step.from + " to " + step.to;
+				assertEquals(message, expectedChange, step.change);
+				assertEquals(message, scalar.getChange(), step.changeFlag);
+				assertEquals(message, scalar.getWarningZone(), step.warningZone);
+				assertEquals(message, Double.doubleToLongBits(scalar.getEstimation()),
+						Double.doubleToLongBits(step.estimation));
+				assertEquals(message, Double.doubleToLongBits(scalar.getDelay()),
+						Double.doubleToLongBits(step.delay));
+				if (compareState) {
+					assertArrayEquals(message, state(scalar), step.state);
+				}
+				if (step.change >= 0) {
+					totalChanges++;
+				}
+			}
+		}
+		assertTrue(name + " detects no change", totalChanges > 0);
+	}
+
+	@Test
+	public void testDDM() throws IOException {
+		check("DDM", DDM::new);
+	}
+
+	@Test
+	public void testEDDM() throws IOException {
+		check("EDDM", EDDM::new);
+	}
+
+	@Test
+	public void testPageHinkleyDM() throws IOException {
+		check("PageHinkleyDM", PageHinkleyDM::new);
+	}
+
+	@Test
+	public void testCusumDM() throws IOException {
+		check("CusumDM", CusumDM::new);
+	}
+
+	@Test
+	public void testEWMAChartDM() throws IOException {
+		check("EWMAChartDM", EWMAChartDM::new);
+	}
+
+	@Test
+	public void testGeometricMovingAverageDM() throws IOException {
+		check("GeometricMovingAverageDM", GeometricMovingAverageDM::new);
+	}
+
+	@Test
+	public void testHDDM_A_Test() throws IOException {
+		check("HDDM_A_Test", HDDM_A_Test::new);
+	}
+
+	@Test
+	public void testHDDM_W_Test() throws IOException {
+		check("HDDM_W_Test", HDDM_W_Test::new);
+		// a decrease resets the two-sided test without reporting a change
+		check("HDDM_W_Test two-sided", () -> {
+			HDDM_W_Test detector = new HDDM_W_Test();
+			detector.oneSidedTestOption.setChosenIndex(1);
+			return detector;
+		});
+	}
+
+	@Test
+	public void testADWINChangeDetector() throws IOException {
+		check("ADWINChangeDetector", ADWINChangeDetector::new);
+	}
+
+	@Test
+	public void testSEEDChangeDetector() throws IOException {
+		// the window of SEED is not serializable
+		check("SEEDChangeDetector", SEEDChangeDetector::new, false);
+	}
+
+	@Test
+	public void testEnsembleDriftDetectionMethods() throws IOException {
+		// the default ensemble has no detectors, and reports a change at every value
+		for (int prediction = 0; prediction < 3; prediction++) {
+			int chosen = prediction;
+			check("EnsembleDriftDetectionMethods " + prediction, () -> {
+				EnsembleDriftDetectionMethods ensemble = new EnsembleDriftDetectionMethods();
+				ensemble.changeDetectorsOption.setValueViaCLIString("DDM,EDDM,PageHinkleyDM");
+				ensemble.predictionOption.setChosenIndex(chosen);
+				return ensemble;
+			});
+		}
+	}
+}
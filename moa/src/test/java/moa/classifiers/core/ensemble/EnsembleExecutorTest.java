@@ -0,0 +1,188 @@
+package moa.classifiers.core.ensemble;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Test the job ordering, the failure handling and the shutdown of
+ * EnsembleExecutor.
+ */
+public class EnsembleExecutorTest {
+
+	private static final int NUM_MEMBERS = 7;
+
+	/**
+	 * Records, per member, the timestamps of the jobs in execution order.
+	 */
+	private static class Recorder implements EnsembleExecutor.MemberTask {
+
+		final List<List<Long>> seen = new ArrayList<List<Long>>();
+
+		final AtomicInteger runs = new AtomicInteger();
+
+		final long failAt;
+
+		Recorder(long failAt) {
+			this.failAt = failAt;
+			for (int i = 0; i < NUM_MEMBERS; i++) {
+				this.seen.add(new ArrayList<Long>());
+			}
+		}
+
+		@Override
+		public void run(int member, Instance instance, double weight, long instancesSeen) {
+			this.runs.incrementAndGet();
+			if (instancesSeen == this.failAt) {
+				if (member == 0) {
+					throw new IllegalStateException("failed at " + instancesSeen);
+				}
+				// the other members are still busy when member 0 fails
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.seen.get(member).add(instancesSeen);
+		}
+	}
+
+	@Test
+	public void testPerMemberOrder() {
+		// a small queue, so that the producer also blocks on full lanes
+		Recorder recorder = new Recorder(-1);
+		EnsembleExecutor executor = new EnsembleExecutor(3, 8, recorder);
+		for (long t = 0; t < 5000; t++) {
+			for (int m = 0; m < NUM_MEMBERS; m++) {
+				executor.submit(m, null, 1.0, t);
+			}
+		}
+		executor.awaitCompletion();
+		for (int m = 0; m < NUM_MEMBERS; m++) {
+			List<Long> seen = recorder.seen.get(m);
+			assertEquals(5000, seen.size());
+			for (int t = 0; t < seen.size(); t++) {
+				assertEquals(t, (long) seen.get(t));
+			}
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testFailureIsRethrownOnceAllLanesAreIdle() throws InterruptedException {
+		Recorder recorder = new Recorder(100);
+		EnsembleExecutor executor = new EnsembleExecutor(3, 64, recorder);
+		try {
+			// thrown by submit or by awaitCompletion, depending on timing
+			for (long t = 0; t < 1000; t++) {
+				for (int m = 0; m < NUM_MEMBERS; m++) {
+					executor.submit(m, null, 1.0, t);
+				}
+			}
+			executor.awaitCompletion();
+			fail("the failure was not rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("failed at 100", e.getMessage());
+		}
+		// no job is running or pending any more
+		int[] sizes = new int[NUM_MEMBERS];
+		for (int m = 0; m < NUM_MEMBERS; m++) {
+			sizes[m] = recorder.seen.get(m).size();
+		}
+		Thread.sleep(100);
+		for (int m = 0; m < NUM_MEMBERS; m++) {
+			assertEquals(sizes[m], recorder.seen.get(m).size());
+		}
+		assertEquals(100, sizes[0]);
+		executor.shutdown();
+	}
+
+	@Test
+	public void testReuseAfterFailure() {
+		Recorder recorder = new Recorder(3);
+		EnsembleExecutor executor = new EnsembleExecutor(2, 16, recorder);
+		for (long t = 0; t < 10; t++) {
+			executor.submit(0, null, 1.0, t);
+		}
+		try {
+			executor.awaitCompletion();
+			fail("the failure was not rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("failed at 3", e.getMessage());
+		}
+		// the failure is reported once, later jobs run normally
+		for (int m = 0; m < NUM_MEMBERS; m++) {
+			recorder.seen.get(m).clear();
+		}
+		for (long t = 10; t < 20; t++) {
+			for (int m = 0; m < NUM_MEMBERS; m++) {
+				executor.submit(m, null, 1.0, t);
+			}
+		}
+		executor.awaitCompletion();
+		for (int m = 0; m < NUM_MEMBERS; m++) {
+			assertEquals(10, recorder.seen.get(m).size());
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testFailureIsRethrownBySubmit() {
+		Recorder recorder = new Recorder(0);
+		EnsembleExecutor executor = new EnsembleExecutor(2, 16, recorder);
+		executor.submit(0, null, 1.0, 0);
+		try {
+			// keep submitting until the failure has happened
+			for (long t = 1; t < 1000000; t++) {
+				executor.submit(1, null, 1.0, t);
+			}
+			fail("the failure was not rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("failed at 0", e.getMessage());
+		}
+		executor.awaitCompletion();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testShutdownRunsPublishedJobs() throws InterruptedException {
+		// shut down while a producer is submitting: every job that was
+		// accepted must still run
+		for (int round = 0; round < 50; round++) {
+			Recorder recorder = new Recorder(-1);
+			final EnsembleExecutor executor = new EnsembleExecutor(2, 4096, recorder);
+			final AtomicInteger submitted = new AtomicInteger();
+			Thread producer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (long t = 0; t < 20000; t++) {
+							executor.submit((int) (t % NUM_MEMBERS), null, 1.0, t);
+							submitted.incrementAndGet();
+						}
+					} catch (IllegalStateException e) {
+						// shut down
+					}
+				}
+			});
+			producer.start();
+			while (submitted.get() < round * 10) {
+				Thread.yield();
+			}
+			executor.shutdown();
+			producer.join();
+			long deadline = System.currentTimeMillis() + 10000;
+			while (recorder.runs.get() < submitted.get() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+			assertEquals(submitted.get(), recorder.runs.get());
+		}
+	}
+}
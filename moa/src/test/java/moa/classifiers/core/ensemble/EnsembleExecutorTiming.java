@@ -0,0 +1,137 @@
+/*
+ *    EnsembleExecutorTiming.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.classifiers.core.ensemble;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.trees.ARFHoeffdingTree;
+import moa.core.MiscUtils;
+import moa.streams.generators.RandomRBFGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Throughput comparison between training an ensemble of trees with one
+ * <code>invokeAll</code> per instance on a fixed thread pool (the former
+ * AdaptiveRandomForest approach) and with the {@link EnsembleExecutor}.
+ * As in prequential evaluation, every instance is first predicted by all the
+ * members, which forces a barrier per instance on the executor.
+ *
+ * <p>Usage, with the test classpath: EnsembleExecutorTiming [numInstances [ensembleSize]]</p>
+ */
+public class EnsembleExecutorTiming {
+
+    protected static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws Exception {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int ensembleSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        System.out.println("threads\tinvokeAll (inst/s)\tEnsembleExecutor (inst/s)");
+        for (int numThreads : THREADS) {
+            double legacy = runInvokeAll(numThreads, numInstances, ensembleSize);
+            double engine = runEnsembleExecutor(numThreads, numInstances, ensembleSize);
+            System.out.println(numThreads + "\t" + String.format("%.1f", legacy)
+                    + "\t" + String.format("%.1f", engine));
+        }
+    }
+
+    protected static ARFHoeffdingTree[] createEnsemble(RandomRBFGenerator stream, int ensembleSize) {
+        ARFHoeffdingTree[] ensemble = new ARFHoeffdingTree[ensembleSize];
+        for (int i = 0; i < ensembleSize; i++) {
+            ensemble[i] = new ARFHoeffdingTree();
+            ensemble[i].subspaceSizeOption.setValue(3);
+            ensemble[i].setRandomSeed(i);
+            ensemble[i].setModelContext(stream.getHeader());
+            ensemble[i].prepareForUse();
+        }
+        return ensemble;
+    }
+
+    protected static RandomRBFGenerator createStream() {
+        RandomRBFGenerator stream = new RandomRBFGenerator();
+        stream.prepareForUse();
+        return stream;
+    }
+
+    protected static void train(ARFHoeffdingTree tree, Instance instance, double weight) {
+        tree.getVotesForInstance(instance);
+        if (weight > 0) {
+            Instance weightedInstance = instance.copy();
+            weightedInstance.setWeight(instance.weight() * weight);
+            tree.trainOnInstance(weightedInstance);
+        }
+    }
+
+    protected static double runInvokeAll(int numThreads, int numInstances, int ensembleSize) throws Exception {
+        RandomRBFGenerator stream = createStream();
+        final ARFHoeffdingTree[] ensemble = createEnsemble(stream, ensembleSize);
+        Random random = new Random(1);
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        long start = System.nanoTime();
+        for (int n = 0; n < numInstances; n++) {
+            final Instance instance = stream.nextInstance().getData();
+            for (ARFHoeffdingTree tree : ensemble) {
+                tree.getVotesForInstance(instance);
+            }
+            List<Callable<Integer>> trainers = new ArrayList<Callable<Integer>>();
+            for (int i = 0; i < ensembleSize; i++) {
+                final ARFHoeffdingTree tree = ensemble[i];
+                final int k = MiscUtils.poisson(6.0, random);
+                trainers.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        train(tree, instance, k);
+                        return 0;
+                    }
+                });
+            }
+            pool.invokeAll(trainers);
+        }
+        double seconds = (System.nanoTime() - start) / 1.0e9;
+        pool.shutdown();
+        return numInstances / seconds;
+    }
+
+    protected static double runEnsembleExecutor(int numThreads, int numInstances, int ensembleSize) {
+        RandomRBFGenerator stream = createStream();
+        final ARFHoeffdingTree[] ensemble = createEnsemble(stream, ensembleSize);
+        Random random = new Random(1);
+        EnsembleExecutor executor = new EnsembleExecutor(numThreads,
+                (member, instance, weight, instancesSeen) -> train(ensemble[member], instance, weight));
+        long start = System.nanoTime();
+        for (int n = 0; n < numInstances; n++) {
+            Instance instance = stream.nextInstance().getData();
+            executor.awaitCompletion();
+            for (ARFHoeffdingTree tree : ensemble) {
+                tree.getVotesForInstance(instance);
+            }
+            for (int i = 0; i < ensembleSize; i++) {
+                executor.submit(i, instance, MiscUtils.poisson(6.0, random), n);
+            }
+        }
+        executor.awaitCompletion();
+        double seconds = (System.nanoTime() - start) / 1.0e9;
+        executor.shutdown();
+        return numInstances / seconds;
+    }
+}
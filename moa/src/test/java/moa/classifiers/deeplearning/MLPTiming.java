@@ -0,0 +1,52 @@
+package moa.classifiers.deeplearning;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Times MLP and CAND on the CPU engine for mini batch sizes 1 to 256,
+ * testing then training on a RandomRBFGenerator stream. Run with the test
+ * classpath; the PyTorch native library has to be installed or downloadable.
+ */
+public class MLPTiming {
+
+	static Classifier newLearner(boolean cand, int batchSize) {
+		if (cand) {
+			CAND learner = new CAND();
+			learner.miniBatchSize.setValue(batchSize);
+			learner.deviceTypeOption.setChosenIndex(1);
+			return learner;
+		}
+		MLP learner = new MLP();
+		learner.miniBatchSize.setValue(batchSize);
+		learner.deviceTypeOption.setChosenIndex(1);
+		return learner;
+	}
+
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		for (boolean cand : new boolean[]{false, true}) {
+			for (int batchSize = 1; batchSize <= 256; batchSize *= 2) {
+				RandomRBFGenerator stream = new RandomRBFGenerator();
+				stream.prepareForUse();
+				Classifier learner = newLearner(cand, batchSize);
+				learner.setModelContext(stream.getHeader());
+				learner.prepareForUse();
+				long start = System.nanoTime();
+				int correct = 0;
+				for (int i = 0; i < length; i++) {
+					Instance inst = stream.nextInstance().getData();
+					correct += learner.correctlyClassifies(inst) ? 1 : 0;
+					learner.trainOnInstance(inst);
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("%s B=%d: %.0f inst/s, accuracy %.2f%%%n", cand ? "CAND" : "MLP", batchSize,
+						length / seconds, 100.0 * correct / length);
+				// releases the training threads of CAND and the native memory of the batches
+				learner.resetLearning();
+			}
+		}
+	}
+}
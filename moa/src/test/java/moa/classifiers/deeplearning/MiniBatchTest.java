@@ -0,0 +1,275 @@
+package moa.classifiers.deeplearning;
+
+import static ai.djl.ndarray.types.DataType.FLOAT32;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import ai.djl.Device;
+import ai.djl.engine.Engine;
+import ai.djl.engine.EngineException;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDList;
+import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.Shape;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Test that the mini batches staged in float buffers hold the same values as
+ * the batches grown one NDArray per instance, that MLP trains and votes as it
+ * did with those, and that the NDManager of a batch is kept between batches
+ * and released on reset.
+ */
+public class MiniBatchTest {
+
+	/**
+	 * Skips the tests without a deep learning engine, as MLP and CAND exit
+	 * the JVM when they cannot load one.
+	 */
+	@BeforeClass
+	public static void requireEngine() {
+		try {
+			Engine.getInstance();
+		} catch (EngineException e) {
+			Assume.assumeNoException(e);
+		}
+	}
+
+	static List<Instance> instances(int count) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.numAttsOption.setValue(5);
+		stream.numClassesOption.setValue(3);
+		stream.prepareForUse();
+		List<Instance> result = new ArrayList<Instance>();
+		for (int i = 0; i < count; i++) {
+			result.add(stream.nextInstance().getData());
+		}
+		return result;
+	}
+
+	static MLP newMLP(int batchSize) {
+		MLP learner = new MLP();
+		learner.miniBatchSize.setValue(batchSize);
+		learner.numberOfNeuronsInEachLayerInLog2.setValue(4);
+		learner.deviceTypeOption.setChosenIndex(MLP.deviceTypeOptionCPU);
+		learner.prepareForUse();
+		return learner;
+	}
+
+	/**
+	 * Builds a batch the way MiniBatch did before the staging buffers: one
+	 * NDArray per instance, grown with stack and then concat. With
+	 * featureValues, the labels are the float64 arrays of the class values.
+	 */
+	static NDList[] perInstanceBatch(NDManager manager, List<Instance> batch, boolean featureValues) {
+		NDArray data = null;
+		NDArray labels = null;
+		for (int i = 0; i < batch.size(); i++) {
+			double[] values = batch.get(i).toDoubleArray();
+			int featureLength = values.length - 1;
+			NDArray row;
+			NDArray label;
+			if (featureValues) {
+				double[] features = new double[featureLength];
+				System.arraycopy(values, 0, features, 0, featureLength);
+				row = manager.create(features).toType(FLOAT32, false);
+				label = manager.create(new double[] { values[featureLength] });
+			} else {
+				NDArray dataAndLabel = manager.create(values).toType(FLOAT32, false);
+				row = dataAndLabel.get("0:" + featureLength);
+				label = dataAndLabel.get(featureLength + ":" + (featureLength + 1));
+			}
+			if (i == 0) {
+				data = row;
+				labels = label;
+			} else if (i == 1) {
+				data = data.stack(row, 0);
+				labels = labels.stack(label, 0);
+			} else {
+				data = data.concat(row.reshape(new Shape(1, featureLength)), 0);
+				labels = labels.concat(label.reshape(new Shape(1, 1)), 0);
+			}
+		}
+		return new NDList[] { new NDList(data), new NDList(labels) };
+	}
+
+	static void add(MiniBatch batch, Instance inst, boolean featureValues) {
+		if (featureValues) {
+			double[] values = inst.toDoubleArray();
+			double[] features = new double[values.length - 1];
+			System.arraycopy(values, 0, features, 0, features.length);
+			batch.addToMiniBatch(features, new double[] { inst.classValue() });
+		} else {
+			batch.addToMiniBatch(inst);
+		}
+	}
+
+	@Test
+	public void testSameValuesAsPerInstanceBatch() {
+		List<Instance> insts = instances(40);
+		try (NDManager manager = NDManager.newBaseManager(Device.cpu())) {
+			for (boolean featureValues : new boolean[] { false, true }) {
+				for (int batchSize : new int[] { 1, 2, 3, 8 }) {
+					MiniBatch batch = new MiniBatch(Device.cpu(), batchSize);
+					for (int from = 0; from + batchSize <= insts.size(); from += batchSize) {
+						List<Instance> items = insts.subList(from, from + batchSize);
+						for (int i = 0; i < batchSize; i++) {
+							assertFalse(batch.miniBatchFull());
+							add(batch, items.get(i), featureValues);
+						}
+						assertTrue(batch.miniBatchFull());
+						NDList[] expected = perInstanceBatch(manager, items, featureValues);
+						NDArray expectedData = expected[0].singletonOrThrow();
+						NDArray expectedLabels = expected[1].singletonOrThrow().toType(FLOAT32, false);
+						assertArrayEquals(expectedData.toFloatArray(), batch.trainMiniBatchData.toFloatArray(), 0.0f);
+						assertArrayEquals(expectedLabels.toFloatArray(), batch.trainMiniBatchLabels.toFloatArray(), 0.0f);
+						// a single instance used to be a vector, it is now a row
+						assertEquals(new Shape(batchSize, 5), batch.trainMiniBatchData.getShape());
+						assertEquals(new Shape(batchSize, 1), batch.trainMiniBatchLabels.getShape());
+						if (batchSize > 1) {
+							assertEquals(expectedData.getShape(), batch.trainMiniBatchData.getShape());
+							assertEquals(expectedLabels.getShape(), batch.trainMiniBatchLabels.getShape());
+						}
+						assertSame(batch.trainMiniBatchData, batch.d.singletonOrThrow());
+						assertSame(batch.trainMiniBatchLabels, batch.l.singletonOrThrow());
+						expected[0].close();
+						expected[1].close();
+						batch.discardMiniBatch();
+					}
+					batch.close();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameTrainingAndVotesAsPerInstanceBatches() {
+		List<Instance> insts = instances(260);
+		List<Instance> test = insts.subList(200, 260);
+		for (int batchSize : new int[] { 2, 4, 16 }) {
+			MLP staged = newMLP(batchSize);
+			MLP perInstance = newMLP(batchSize);
+			perInstance.initializeNetwork(insts.get(0));
+			try (NDManager manager = NDManager.newBaseManager(Device.cpu())) {
+				for (int from = 0; from + batchSize <= 200; from += batchSize) {
+					for (int i = from; i < from + batchSize; i++) {
+						staged.trainOnInstance(insts.get(i));
+					}
+					MiniBatch batch = new MiniBatch(Device.cpu(), batchSize);
+					NDList[] arrays = perInstanceBatch(manager, insts.subList(from, from + batchSize), false);
+					batch.d = arrays[0];
+					batch.l = arrays[1];
+					batch.itemsInMiniBatch = batchSize;
+					perInstance.trainOnMiniBatch(batch, true);
+					batch.close();
+					arrays[0].close();
+					arrays[1].close();
+				}
+			}
+
+			assertEquals(200 / batchSize, staged.samplesSeen);
+			assertTrue(staged.trainedCount > 0);
+			assertEquals(perInstance.samplesSeen, staged.samplesSeen);
+			assertEquals(perInstance.trainedCount, staged.trainedCount);
+			assertEquals(perInstance.getLossEstimation(), staged.getLossEstimation(), 1e-5);
+			for (Instance inst : test) {
+				assertArrayEquals(perInstance.getVotesForInstance(inst).clone(), staged.getVotesForInstance(inst), 1e-5);
+			}
+			staged.resetLearning();
+		}
+	}
+
+	@Test
+	public void testManagerKeptBetweenBatches() {
+		List<Instance> insts = instances(6);
+		MiniBatch batch = new MiniBatch(Device.cpu(), 3);
+		NDManager manager = batch.trainingNDManager;
+		for (int i = 0; i < 3; i++) {
+			batch.addToMiniBatch(insts.get(i));
+		}
+		NDArray first = batch.trainMiniBatchData;
+		assertSame(manager, first.getManager());
+
+		batch.discardMiniBatch();
+		assertEquals(0, batch.itemsInMiniBatch);
+		assertNull(batch.trainMiniBatchData);
+		assertNull(batch.d);
+		assertTrue(manager.isOpen());
+
+		// the next batch reuses the manager and not the released arrays
+		for (int i = 3; i < 6; i++) {
+			batch.addToMiniBatch(insts.get(i));
+		}
+		assertNotSame(first, batch.trainMiniBatchData);
+		assertSame(manager, batch.trainMiniBatchData.getManager());
+		assertArrayEquals(new float[] { (float) insts.get(3).classValue(), (float) insts.get(4).classValue(),
+				(float) insts.get(5).classValue() }, batch.trainMiniBatchLabels.toFloatArray(), 0.0f);
+
+		batch.close();
+		assertFalse(manager.isOpen());
+		assertNull(batch.trainingNDManager);
+		assertNull(batch.trainMiniBatchData);
+		assertNull(batch.d);
+	}
+
+	@Test
+	public void testResetClosesMLPMiniBatch() {
+		List<Instance> insts = instances(4);
+		MLP learner = newMLP(2);
+		learner.trainOnInstance(insts.get(0));
+		NDManager manager = learner.miniBatch.trainingNDManager;
+		learner.trainOnInstance(insts.get(1));
+		assertSame(manager, learner.miniBatch.trainingNDManager);
+		assertTrue(manager.isOpen());
+
+		learner.resetLearning();
+		assertNull(learner.miniBatch);
+		assertFalse(manager.isOpen());
+
+		// training after the reset stages into a new, open manager
+		learner.trainOnInstance(insts.get(2));
+		learner.trainOnInstance(insts.get(3));
+		assertNotSame(manager, learner.miniBatch.trainingNDManager);
+		assertTrue(learner.miniBatch.trainingNDManager.isOpen());
+		learner.resetLearning();
+	}
+
+	@Test
+	public void testResetClosesCANDMiniBatch() {
+		List<Instance> insts = instances(6);
+		CAND learner = new CAND();
+		learner.largerPool.setChosenIndex(CAND.LARGER_P_POOL_10);
+		learner.numberOfMLPsToTrainOption.setValue(2);
+		learner.miniBatchSize.setValue(2);
+		learner.deviceTypeOption.setChosenIndex(MLP.deviceTypeOptionCPU);
+		learner.prepareForUse();
+		for (int i = 0; i < 3; i++) {
+			learner.getVotesForInstance(insts.get(i));
+			learner.trainOnInstance(insts.get(i));
+		}
+		NDManager manager = learner.miniBatch.trainingNDManager;
+		assertTrue(manager.isOpen());
+		assertEquals(1, learner.miniBatch.itemsInMiniBatch);
+
+		learner.resetLearning();
+		assertNull(learner.miniBatch);
+		assertFalse(manager.isOpen());
+
+		// the half filled batch is gone with the closed manager
+		for (int i = 3; i < 5; i++) {
+			learner.getVotesForInstance(insts.get(i));
+			learner.trainOnInstance(insts.get(i));
+		}
+		assertNotSame(manager, learner.miniBatch.trainingNDManager);
+		assertTrue(learner.miniBatch.trainingNDManager.isOpen());
+		assertEquals(0, learner.miniBatch.itemsInMiniBatch);
+		learner.resetLearning();
+	}
+}
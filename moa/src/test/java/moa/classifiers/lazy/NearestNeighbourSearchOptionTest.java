@@ -0,0 +1,122 @@
+package moa.classifiers.lazy;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.core.Utils;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test the nearest neighbour search option of WeightedkNN and SAMkNN: the
+ * default linear search predicts as these learners did before the option,
+ * and the BoundingBoxTree gives the same votes.
+ */
+public class NearestNeighbourSearchOptionTest {
+
+	static RandomRBFGeneratorDrift newStream() {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.numAttsOption.setValue(4);
+		stream.numClassesOption.setValue(3);
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	static void prepare(Classifier learner, RandomRBFGeneratorDrift stream) {
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+	}
+
+	/**
+	 * Tests then trains the learner, and returns the number of correct
+	 * predictions and the sum of the normalised votes for the true classes.
+	 */
+	static double[] prequential(Classifier learner, int numInstances) {
+		RandomRBFGeneratorDrift stream = newStream();
+		prepare(learner, stream);
+		double correct = 0;
+		double trueClassVotes = 0;
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst = stream.nextInstance().getData();
+			double[] votes = learner.getVotesForInstance(inst);
+			int trueClass = (int) inst.classValue();
+			if (votes.length > 0 && Utils.maxIndex(votes) == trueClass) {
+				correct++;
+			}
+			double sum = Utils.sum(votes);
+			if (sum > 0) {
+				trueClassVotes += votes[trueClass < votes.length ? trueClass : 0] / sum;
+			}
+			learner.trainOnInstance(inst);
+		}
+		return new double[] { correct, trueClassVotes };
+	}
+
+	static void checkSameVotes(Classifier linear, Classifier boundingBoxTree, int numInstances) {
+		RandomRBFGeneratorDrift stream = newStream();
+		prepare(linear, stream);
+		prepare(boundingBoxTree, stream);
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst = stream.nextInstance().getData();
+			double[] expected = linear.getVotesForInstance(inst);
+			double[] votes = boundingBoxTree.getVotesForInstance(inst);
+			assertEquals(expected.length, votes.length);
+			for (int c = 0; c < votes.length; c++) {
+				assertEquals("instance " + i, expected[c], votes[c], 1e-9 * Math.abs(expected[c]));
+			}
+			linear.trainOnInstance(inst);
+			boundingBoxTree.trainOnInstance(inst);
+		}
+	}
+
+	static WeightedkNN newWeightedkNN(int search) {
+		WeightedkNN learner = new WeightedkNN();
+		learner.limitOption.setValue(200);
+		learner.nearestNeighbourSearchOption.setChosenIndex(search);
+		return learner;
+	}
+
+	static SAMkNN newSAMkNN(int search) {
+		SAMkNN learner = new SAMkNN();
+		// the LTM is compressed with an unseeded Random, so the limit keeps
+		// it out of these runs; the STM still shrinks and fills the LTM
+		learner.limitOption.setValue(5000);
+		learner.nearestNeighbourSearchOption.setChosenIndex(search);
+		return learner;
+	}
+
+	@Test
+	public void testWeightedkNNDefault() {
+		WeightedkNN learner = new WeightedkNN();
+		assertEquals("LinearNN", learner.nearestNeighbourSearchOption.getChosenLabel());
+		learner.limitOption.setValue(200);
+		// recorded with the linear scan from before the option
+		double[] result = prequential(learner, 3000);
+		assertEquals(1634, result[0], 0.0);
+		assertEquals(1372.8318119395005, result[1], 1e-9);
+	}
+
+	@Test
+	public void testSAMkNNDefault() {
+		SAMkNN learner = newSAMkNN(0);
+		assertEquals("LinearNN", new SAMkNN().nearestNeighbourSearchOption.getChosenLabel());
+		// recorded with the linear scan from before the option
+		double[] result = prequential(learner, 3000);
+		assertEquals(1718, result[0], 0.0);
+		assertEquals(1552.9809010712556, result[1], 1e-9);
+	}
+
+	@Test
+	public void testWeightedkNNBoundingBoxTree() {
+		checkSameVotes(newWeightedkNN(0), newWeightedkNN(1), 3000);
+	}
+
+	@Test
+	public void testSAMkNNBoundingBoxTree() {
+		checkSameVotes(newSAMkNN(0), newSAMkNN(1), 3000);
+	}
+}
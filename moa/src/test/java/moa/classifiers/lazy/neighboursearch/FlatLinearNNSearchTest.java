@@ -0,0 +1,178 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+/**
+ * Test FlatLinearNNSearch against LinearNNSearch on the same sliding
+ * windows, with dense and sparse instances and missing values: the
+ * neighbours, their order and their distances must be the same.
+ */
+public class FlatLinearNNSearchTest {
+
+	private static final int NUM_NUMERIC = 12;
+
+	private static final int K = 5;
+
+	private static Instances newHeader() {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < NUM_NUMERIC; i++) {
+			attributes.add(new Attribute("num" + i));
+		}
+		attributes.add(new Attribute("nom3", Arrays.asList("a", "b", "c")));
+		attributes.add(new Attribute("nom2", Arrays.asList("x", "y")));
+		attributes.add(new Attribute("class", Arrays.asList("p", "q", "r")));
+		Instances header = new InstancesHeader(new Instances("test", attributes, 0));
+		header.setClassIndex(NUM_NUMERIC + 2);
+		return header;
+	}
+
+	/**
+	 * Returns a random instance, dense or sparse, with few non-zero numeric
+	 * values, some of them missing, and small integers so that ties occur.
+	 */
+	private static Instance newInstance(Instances header, Random random, boolean sparse, boolean withMissing) {
+		int numAttributes = header.numAttributes();
+		double[] values = new double[numAttributes];
+		for (int j = 0; j < NUM_NUMERIC; j++) {
+			if (random.nextInt(3) == 0) {
+				values[j] = random.nextInt(3) == 0 ? random.nextInt(4) : random.nextGaussian() * 5.0;
+			}
+		}
+		values[NUM_NUMERIC] = random.nextInt(3);
+		values[NUM_NUMERIC + 1] = random.nextInt(2);
+		values[NUM_NUMERIC + 2] = random.nextInt(3);
+		if (withMissing && random.nextInt(4) == 0) {
+			values[random.nextInt(NUM_NUMERIC + 2)] = Double.NaN;
+		}
+		double weight = 1 + random.nextInt(3);
+		Instance inst;
+		if (sparse) {
+			int n = 0;
+			for (double value : values) {
+				n += value != 0 ? 1 : 0;
+			}
+			double[] nonZero = new double[n];
+			int[] indices = new int[n];
+			n = 0;
+			for (int j = 0; j < numAttributes; j++) {
+				if (values[j] != 0) {
+					nonZero[n] = values[j];
+					indices[n++] = j;
+				}
+			}
+			inst = new SparseInstance(weight, nonZero, indices, numAttributes);
+		} else {
+			inst = new DenseInstance(weight, values);
+		}
+		inst.setDataset(header);
+		return inst;
+	}
+
+	private static void compare(boolean sparse, boolean withMissing) throws Exception {
+		Instances header = newHeader();
+		Random random = new Random(sparse ? 1 : 2);
+		Instances window = new Instances(header, 0);
+		LinearNNSearch linear = new LinearNNSearch();
+		FlatLinearNNSearch flat = new FlatLinearNNSearch();
+		for (int step = 0; step < 3000; step++) {
+			if (window.numInstances() >= 200) {
+				// mostly the oldest, sometimes any instance leaves
+				int index = random.nextInt(4) == 0 ? random.nextInt(window.numInstances()) : 0;
+				linear.remove(window.instance(index));
+				flat.remove(window.instance(index));
+				window.delete(index);
+			}
+			window.add(newInstance(header, random, sparse, withMissing));
+			if (step == 0) {
+				linear.setInstances(window);
+				flat.setInstances(window);
+			} else {
+				linear.update(window.instance(window.numInstances() - 1));
+				flat.update(window.instance(window.numInstances() - 1));
+			}
+			if (step % 5 != 0) {
+				continue;
+			}
+			// also a target from the window, which is skipped
+			Instance target = random.nextBoolean() ? newInstance(header, random, sparse, withMissing)
+					: window.instance(random.nextInt(window.numInstances()));
+			int k = Math.min(K, window.numInstances() - 1);
+			if (k < 1) {
+				continue;
+			}
+			String message = "step " + step;
+			Instances expected = linear.kNearestNeighbours(target, k);
+			double[] expectedDistances = linear.getDistances().clone();
+			Instances actual = flat.kNearestNeighbours(target, k);
+			double[] actualDistances = flat.getDistances();
+			assertEquals(message, expected.numInstances(), actual.numInstances());
+			// the neighbours are copies, so compare their values
+			for (int i = 0; i < expected.numInstances(); i++) {
+				assertArrayEquals(message, expected.instance(i).toDoubleArray(), actual.instance(i).toDoubleArray(),
+						0.0);
+				assertEquals(message, expected.instance(i).weight(), actual.instance(i).weight(), 0.0);
+			}
+			assertArrayEquals(message, expectedDistances, actualDistances, 0.0);
+		}
+	}
+
+	@Test
+	public void testDense() throws Exception {
+		compare(false, false);
+	}
+
+	@Test
+	public void testDenseWithMissingValues() throws Exception {
+		compare(false, true);
+	}
+
+	@Test
+	public void testSparse() throws Exception {
+		compare(true, false);
+	}
+
+	@Test
+	public void testSparseWithMissingValues() throws Exception {
+		compare(true, true);
+	}
+
+	@Test
+	public void testStoreKeepsTheValues() {
+		Instances header = newHeader();
+		Random random = new Random(3);
+		FlatWindowStore store = new FlatWindowStore(header);
+		ArrayList<Instance> expected = new ArrayList<Instance>();
+		for (int step = 0; step < 2000; step++) {
+			if (expected.size() >= 50) {
+				int index = random.nextInt(3) == 0 ? random.nextInt(expected.size()) : 0;
+				store.remove(index);
+				expected.remove(index);
+			}
+			Instance inst = newInstance(header, random, random.nextBoolean(), true);
+			store.add(inst);
+			expected.add(inst);
+			assertEquals(expected.size(), store.numInstances());
+			int index = random.nextInt(expected.size());
+			Instance stored = expected.get(index);
+			for (int j = 0; j < header.numAttributes(); j++) {
+				double value = stored.isMissing(j) ? Double.NaN : stored.value(j);
+				assertEquals(value, store.value(index, j), 0.0);
+			}
+			assertEquals((int) stored.classValue(), store.classLabel(index));
+			assertEquals(stored.weight(), store.weight(index), 0.0);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ *    FlatLinearNNSearchTiming.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.classifiers.lazy.neighboursearch;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Memory and distance cost of a sliding window of instances searched with
+ * the LinearNNSearch, compared to the same window copied into a
+ * FlatWindowStore and searched with the FlatLinearNNSearch.
+ *
+ * <p>The memory per instance is the growth of the used heap while the window
+ * is filled, measured after garbage collections, next to the estimate of
+ * FlatWindowStore.bytesPerInstance(). The time per distance is
+ * the time of a k nearest neighbours query divided by the window size, with
+ * the window sliding between queries as in kNN.</p>
+ *
+ * <p>Usage, with the test classpath: FlatLinearNNSearchTiming [numQueries [k]]</p>
+ */
+public class FlatLinearNNSearchTiming {
+
+    protected static final int[] NUM_ATTRIBUTES = {2, 10, 50};
+
+    protected static final int[] WINDOW_SIZES = {1000, 5000};
+
+    public static void main(String[] args) throws Exception {
+        int numQueries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.out.println("atts\twindow\tInstances (bytes/inst)\tFlatWindowStore (bytes/inst)\testimate"
+                + "\tLinearNN (ns/distance)\tFlatLinearNN (ns/distance)");
+        for (int numAttributes : NUM_ATTRIBUTES) {
+            for (int windowSize : WINDOW_SIZES) {
+                double instancesBytes = bytesPerInstance(numAttributes, windowSize, false);
+                double storeBytes = bytesPerInstance(numAttributes, windowSize, true);
+                // the first round warms up
+                timePerDistance(new LinearNNSearch(), numAttributes, windowSize, numQueries / 4, k);
+                double linear = timePerDistance(new LinearNNSearch(), numAttributes, windowSize, numQueries, k);
+                timePerDistance(new FlatLinearNNSearch(), numAttributes, windowSize, numQueries / 4, k);
+                double flat = timePerDistance(new FlatLinearNNSearch(), numAttributes, windowSize, numQueries, k);
+                System.out.println(numAttributes + "\t" + windowSize
+                        + "\t" + String.format("%.1f", instancesBytes)
+                        + "\t" + String.format("%.1f", storeBytes)
+                        + "\t" + String.format("%.1f", estimate)
+                        + "\t" + String.format("%.2f", linear)
+                        + "\t" + String.format("%.2f", flat));
+            }
+        }
+    }
+
+    protected static RandomRBFGenerator createStream(int numAttributes) {
+        RandomRBFGenerator stream = new RandomRBFGenerator();
+        stream.numAttsOption.setValue(numAttributes);
+        stream.prepareForUse();
+        return stream;
+    }
+
+    protected static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** The FlatWindowStore estimate of the last measured store. */
+    protected static double estimate;
+
+    /** Keeps the instances and the window reachable while the heap is measured. */
+    protected static Object[] sink = new Object[2];
+
+    /**
+     * Returns the heap used per instance by a window of instances, which
+     * holds copies of the instances, or by a store holding the same window.
+     */
+    protected static double bytesPerInstance(int numAttributes, int windowSize, boolean flat) {
+        RandomRBFGenerator stream = createStream(numAttributes);
+        Instance[] instances = new Instance[windowSize];
+        for (int i = 0; i < windowSize; i++) {
+            instances[i] = stream.nextInstance().getData();
+        }
+        sink[0] = instances;
+        long before = usedMemory();
+        if (flat) {
+            FlatWindowStore store = new FlatWindowStore(stream.getHeader());
+            for (Instance instance : instances) {
+                store.add(instance);
+            }
+            sink[1] = store;
+            estimate = store.bytesPerInstance();
+        } else {
+            Instances window = new Instances(stream.getHeader(), windowSize);
+            for (Instance instance : instances) {
+                window.add(instance);
+            }
+            sink[1] = window;
+        }
+        long bytes = usedMemory() - before;
+        sink[0] = sink[1] = null;
+        return (double) bytes / windowSize;
+    }
+
+    /**
+     * Returns the time per distance in nanoseconds of k nearest neighbours
+     * queries over a sliding window.
+     */
+    protected static double timePerDistance(NearestNeighbourSearch search, int numAttributes,
+            int windowSize, int numQueries, int k) throws Exception {
+        RandomRBFGenerator stream = createStream(numAttributes);
+        Instances window = new Instances(stream.getHeader(), windowSize);
+        for (int i = 0; i < windowSize; i++) {
+            window.add(stream.nextInstance().getData());
+        }
+        search.setInstances(window);
+        long time = 0;
+        for (int n = 0; n < numQueries; n++) {
+            Instance query = stream.nextInstance().getData();
+            long start = System.nanoTime();
+            search.kNearestNeighbours(query, k);
+            time += System.nanoTime() - start;
+            search.remove(window.instance(0));
+            window.delete(0);
+            window.add(query);
+            search.update(window.instance(windowSize - 1));
+        }
+        return (double) time / ((double) numQueries * windowSize);
+    }
+}
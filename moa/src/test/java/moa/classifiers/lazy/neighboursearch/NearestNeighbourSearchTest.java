@@ -0,0 +1,156 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Test the nearest neighbour searches, updated as instances enter and leave
+ * a sliding window, against a brute force search over the current window.
+ */
+public class NearestNeighbourSearchTest {
+
+	private static final int K = 5;
+
+	private static NearestNeighbourSearch[] newSearches(boolean withMissing) {
+		if (withMissing) {
+			// the KDTree does not deal with missing values
+			return new NearestNeighbourSearch[]{new LinearNNSearch(), new FlatLinearNNSearch(),
+					new BoundingBoxTree()};
+		}
+		return new NearestNeighbourSearch[]{new LinearNNSearch(), new KDTree(), new FlatLinearNNSearch(),
+				new BoundingBoxTree()};
+	}
+
+	private static Instance next(RandomRBFGenerator generator, Random random, boolean withMissing) {
+		Instance inst = generator.nextInstance().getData();
+		if (withMissing && random.nextInt(5) == 0) {
+			inst.setMissing(random.nextInt(inst.numAttributes() - 1));
+		}
+		return inst;
+	}
+
+	/**
+	 * Returns the k smallest distances from the target to the window, with
+	 * ranges computed from scratch.
+	 */
+	private static double[] bruteForce(Instances window, Instance target, int k) {
+		EuclideanDistance distance = new EuclideanDistance(window);
+		double[] all = new double[window.numInstances()];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = distance.distance(target, window.instance(i));
+		}
+		Arrays.sort(all);
+		return Arrays.copyOf(all, Math.min(k, all.length));
+	}
+
+	private static void slideWindow(int numAtts, int windowSize, boolean withMissing) throws Exception {
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.numAttsOption.setValue(numAtts);
+		generator.prepareForUse();
+		Random random = new Random(numAtts);
+		NearestNeighbourSearch[] searches = newSearches(withMissing);
+		Instances[] windows = new Instances[searches.length];
+		for (int s = 0; s < searches.length; s++) {
+			windows[s] = new Instances(generator.getHeader(), 0);
+		}
+		for (int step = 0; step < 3000; step++) {
+			Instance inst = next(generator, random, withMissing);
+			for (int s = 0; s < searches.length; s++) {
+				Instances window = windows[s];
+				if (window.numInstances() >= windowSize) {
+					searches[s].remove(window.instance(0));
+					window.delete(0);
+				}
+				window.add(inst);
+				if (step == 0) {
+					searches[s].setInstances(window);
+				} else {
+					searches[s].update(window.instance(window.numInstances() - 1));
+				}
+			}
+			if (step % 7 != 0) {
+				continue;
+			}
+			Instance target = next(generator, random, withMissing);
+			double[] expected = bruteForce(windows[0], target, K);
+			EuclideanDistance distance = new EuclideanDistance(windows[0]);
+			for (int s = 0; s < searches.length; s++) {
+				String message = searches[s].getClass().getSimpleName() + " at step " + step;
+				Instances neighbours = searches[s].kNearestNeighbours(target, Math.min(K, windows[s].numInstances()));
+				double[] actual = searches[s].getDistances();
+				assertEquals(message, expected.length, actual.length);
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(message, expected[i], actual[i], 1e-9);
+				}
+				// the neighbours are at the reported distances
+				assertEquals(message, expected.length, neighbours.numInstances());
+				double[] found = new double[neighbours.numInstances()];
+				for (int i = 0; i < found.length; i++) {
+					found[i] = distance.distance(target, neighbours.instance(i));
+				}
+				Arrays.sort(found);
+				assertArrayEquals(message, expected, found, 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testSlidingWindow() throws Exception {
+		slideWindow(2, 50, false);
+		slideWindow(5, 300, false);
+	}
+
+	@Test
+	public void testSlidingWindowWithMissingValues() throws Exception {
+		slideWindow(4, 200, true);
+	}
+
+	@Test
+	public void testForgetKeepsRangesExact() throws Exception {
+		// the ranges after removals are those of the remaining instances
+		RandomRBFGenerator generator = new RandomRBFGenerator();
+		generator.prepareForUse();
+		Random random = new Random(3);
+		Instances window = new Instances(generator.getHeader(), 0);
+		EuclideanDistance distance = new EuclideanDistance(window);
+		for (int step = 0; step < 2000; step++) {
+			if (window.numInstances() >= 100) {
+				Instance removed = window.instance(random.nextInt(window.numInstances()));
+				distance.forget(removed);
+				window.delete(indexOf(window, removed));
+			}
+			Instance inst = next(generator, random, true);
+			window.add(inst);
+			distance.update(window.instance(window.numInstances() - 1));
+			Instance target = next(generator, random, false);
+			Instance other = window.instance(random.nextInt(window.numInstances()));
+			EuclideanDistance fresh = new EuclideanDistance(window);
+			assertEquals(fresh.distance(target, other), distance.distance(target, other), 1e-12);
+			double[][] expected = fresh.getRanges();
+			double[][] actual = distance.getRanges();
+			for (int j = 0; j < expected.length; j++) {
+				if (j != window.classIndex()) {
+					assertArrayEquals("attribute " + j + " at step " + step, expected[j], actual[j], 1e-12);
+				}
+			}
+		}
+	}
+
+	private static int indexOf(Instances window, Instance inst) {
+		for (int i = 0; i < window.numInstances(); i++) {
+			if (window.instance(i) == inst) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("instance not in window");
+	}
+}
@@ -0,0 +1,95 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.github.javacliparser.Option;
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test that the trees routing instances through the flat index grow and
+ * vote as the trees walking their nodes, and that the trees the index
+ * cannot route do not offer it.
+ */
+public class FlatTreeIndexTest {
+
+	protected static InstanceStream[] streams() {
+		RandomRBFGeneratorDrift rbf = new RandomRBFGeneratorDrift();
+		rbf.speedChangeOption.setValue(0.001);
+		rbf.prepareForUse();
+		AgrawalGenerator agrawal = new AgrawalGenerator();
+		agrawal.prepareForUse();
+		return new InstanceStream[] {rbf, agrawal};
+	}
+
+	/**
+	 * Trains a tree with and a tree without the flat index on the same
+	 * instances, checking the votes of each instance before it is learned.
+	 */
+	protected static void checkSameAsNodes(String name, Supplier<HoeffdingTree> factory) {
+		for (InstanceStream stream : streams()) {
+			HoeffdingTree nodes = factory.get();
+			HoeffdingTree flat = factory.get();
+			flat.flatIndexOption.set();
+			for (HoeffdingTree tree : new HoeffdingTree[] {nodes, flat}) {
+				tree.gracePeriodOption.setValue(50);
+				tree.setModelContext(stream.getHeader());
+				tree.prepareForUse();
+			}
+			for (int i = 0; i < 20000; i++) {
+				Instance instance = stream.nextInstance().getData();
+				assertArrayEquals(name + ", instance " + i, nodes.getVotesForInstance(instance),
+						flat.getVotesForInstance(instance), 0.0);
+				nodes.trainOnInstance(instance);
+				flat.trainOnInstance(instance);
+			}
+			assertTrue(name, nodes.getNodeCount() > 1);
+			assertEquals(name, nodes.getNodeCount(), flat.getNodeCount());
+		}
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		for (int leafPrediction = 0; leafPrediction < 3; leafPrediction++) {
+			int chosen = leafPrediction;
+			checkSameAsNodes("HoeffdingTree " + leafPrediction, () -> {
+				HoeffdingTree tree = new HoeffdingTree();
+				tree.leafpredictionOption.setChosenIndex(chosen);
+				return tree;
+			});
+		}
+	}
+
+	@Test
+	public void testASHoeffdingTree() {
+		// small trees, so that they are cut back to a branch of the root or reset
+		checkSameAsNodes("ASHoeffdingTree", () -> {
+			ASHoeffdingTree tree = new ASHoeffdingTree();
+			tree.setMaxSize(5);
+			return tree;
+		});
+		checkSameAsNodes("ASHoeffdingTree reset", () -> {
+			ASHoeffdingTree tree = new ASHoeffdingTree();
+			tree.setMaxSize(5);
+			tree.setResetTree();
+			return tree;
+		});
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		HoeffdingAdaptiveTree tree = new HoeffdingAdaptiveTree();
+		assertNull(tree.flatIndexOption);
+		for (Option option : tree.getOptions().getOptionArray()) {
+			assertNotEquals("flatIndex", option.getName());
+		}
+		assertNull(new HoeffdingAdaptiveTreeClassifLeaves().flatIndexOption);
+	}
+}
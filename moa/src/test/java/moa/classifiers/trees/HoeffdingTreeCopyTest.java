@@ -0,0 +1,123 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.AbstractMOAObject;
+import moa.classifiers.Classifier;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test that the trees copied node by node predict as the trees copied by
+ * serialisation, and that training a copy leaves the original intact.
+ */
+public class HoeffdingTreeCopyTest {
+
+	protected static Instance[] sample(RandomRBFGeneratorDrift stream, int numInstances) {
+		Instance[] instances = new Instance[numInstances];
+		for (int i = 0; i < numInstances; i++) {
+			instances[i] = stream.nextInstance().getData();
+		}
+		return instances;
+	}
+
+	protected static void train(Classifier classifier, Instance[] instances) {
+		for (Instance instance : instances) {
+			classifier.trainOnInstance(instance);
+		}
+	}
+
+	protected static void assertSameVotes(Classifier expected, Classifier actual, Instance[] instances) {
+		for (Instance instance : instances) {
+			assertArrayEquals(expected.getVotesForInstance(instance), actual.getVotesForInstance(instance), 0.0);
+		}
+	}
+
+	protected void checkCopy(HoeffdingTree tree) {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		tree.gracePeriodOption.setValue(50);
+		tree.setModelContext(stream.getHeader());
+		tree.prepareForUse();
+		train(tree, sample(stream, 5000));
+		assertTrue(tree.getNodeCount() > 1);
+
+		HoeffdingTree copy = (HoeffdingTree) tree.copy();
+		HoeffdingTree serialised = (HoeffdingTree) AbstractMOAObject.copy(tree);
+		assertSame(tree.getClass(), copy.getClass());
+		assertNotSame(tree.gracePeriodOption, copy.gracePeriodOption);
+		assertNotSame(tree.getTreeRoot(), copy.getTreeRoot());
+
+		Instance[] test = sample(stream, 500);
+		Instance[] more = sample(stream, 5000);
+		assertSameVotes(serialised, copy, test);
+
+		// training the copy leaves the original as it was
+		train(copy, more);
+		assertSameVotes(serialised, tree, test);
+
+		// and the copy has learned as the serialised copy does
+		train(serialised, more);
+		assertSameVotes(serialised, copy, test);
+		assertEquals(serialised.getNodeCount(), copy.getNodeCount());
+
+		train(tree, more);
+		assertSameVotes(serialised, tree, test);
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		checkCopy(new HoeffdingTree());
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		checkCopy(new HoeffdingAdaptiveTree());
+	}
+
+	@Test
+	public void testASHoeffdingTree() {
+		checkCopy(new ASHoeffdingTree());
+	}
+
+	protected static ARFHoeffdingTree newARFHoeffdingTree() {
+		ARFHoeffdingTree tree = new ARFHoeffdingTree();
+		tree.subspaceSizeOption.setValue(3);
+		return tree;
+	}
+
+	protected static LimAttHoeffdingTree newLimAttHoeffdingTree() {
+		LimAttHoeffdingTree tree = new LimAttHoeffdingTree();
+		tree.setlistAttributes(new int[] {1, 2, 4});
+		return tree;
+	}
+
+	@Test
+	public void testARFHoeffdingTree() {
+		checkCopy(newARFHoeffdingTree());
+	}
+
+	@Test
+	public void testRandomHoeffdingTree() {
+		checkCopy(new RandomHoeffdingTree());
+	}
+
+	@Test
+	public void testLimAttHoeffdingTree() {
+		checkCopy(newLimAttHoeffdingTree());
+	}
+
+	@Test
+	public void testFlatIndex() {
+		HoeffdingTree[] trees = {new HoeffdingTree(), new ASHoeffdingTree(),
+				newARFHoeffdingTree(), new RandomHoeffdingTree(), newLimAttHoeffdingTree()};
+		for (HoeffdingTree tree : trees) {
+			tree.flatIndexOption.set();
+			checkCopy(tree);
+		}
+	}
+}
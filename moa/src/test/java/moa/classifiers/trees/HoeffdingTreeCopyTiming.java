@@ -0,0 +1,74 @@
+/*
+ *    HoeffdingTreeCopyTiming.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.classifiers.trees;
+
+import java.util.Arrays;
+
+import moa.AbstractMOAObject;
+import moa.streams.generators.RandomRBFGenerator;
+
+/**
+ * Latency comparison between copying a Hoeffding tree node by node, as
+ * HoeffdingTree.copy() does, and copying it by serialisation, as
+ * AbstractMOAObject.copy() does, for trees trained on more and more
+ * instances.
+ *
+ * <p>Usage, with the test classpath: HoeffdingTreeCopyTiming [repetitions]</p>
+ */
+public class HoeffdingTreeCopyTiming {
+
+    protected static final int[] NUM_INSTANCES = {1000, 10000, 100000, 1000000};
+
+    public static void main(String[] args) {
+        int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        RandomRBFGenerator stream = new RandomRBFGenerator();
+        stream.prepareForUse();
+        HoeffdingTree tree = new HoeffdingTree();
+        tree.setModelContext(stream.getHeader());
+        tree.prepareForUse();
+
+        System.out.println("instances\tnodes\tcopy (us)\tserialisation (us)");
+        int numTrained = 0;
+        for (int numInstances : NUM_INSTANCES) {
+            while (numTrained < numInstances) {
+                tree.trainOnInstance(stream.nextInstance().getData());
+                numTrained++;
+            }
+            long[] copyTimes = new long[repetitions];
+            long[] serialisationTimes = new long[repetitions];
+            for (int i = 0; i < repetitions; i++) {
+                long start = System.nanoTime();
+                tree.copy();
+                copyTimes[i] = System.nanoTime() - start;
+                start = System.nanoTime();
+                AbstractMOAObject.copy(tree);
+                serialisationTimes[i] = System.nanoTime() - start;
+            }
+            System.out.println(numInstances + "\t" + tree.getNodeCount()
+                    + "\t" + median(copyTimes) / 1000
+                    + "\t" + median(serialisationTimes) / 1000);
+        }
+    }
+
+    protected static long median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
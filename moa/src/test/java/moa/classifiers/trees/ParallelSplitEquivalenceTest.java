@@ -0,0 +1,108 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.streams.InstanceStream;
+import moa.streams.generators.HyperplaneGeneratorForRegression;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test that the trees evaluating their attribute observers in parallel, with
+ * -P, grow as the trees evaluating them serially.
+ */
+public class ParallelSplitEquivalenceTest {
+
+	protected static final int NUM_INSTANCES = 10000;
+
+	protected static final int NUM_ATTRIBUTES = 100;
+
+	/** Above this number of attributes, the observers are evaluated in parallel. */
+	protected static final int PARALLEL_SPLIT_THRESHOLD = 10;
+
+	protected static InstanceStream newClassificationStream() {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.numAttsOption.setValue(NUM_ATTRIBUTES);
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	protected static InstanceStream newRegressionStream() {
+		HyperplaneGeneratorForRegression stream = new HyperplaneGeneratorForRegression();
+		stream.numAttsOption.setValue(NUM_ATTRIBUTES);
+		stream.numDriftAttsOption.setValue(NUM_ATTRIBUTES / 2);
+		stream.magChangeOption.setValue(0.01);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	protected static double numLeaves(Classifier learner) {
+		for (Measurement measurement : learner.getModelMeasurements()) {
+			if (measurement.getName().equals("tree size (leaves)")) {
+				return measurement.getValue();
+			}
+		}
+		fail("No tree size measurement");
+		return 0;
+	}
+
+	/**
+	 * Tests the learners prequentially on the same instances, and checks that
+	 * their votes agree and that they grow the same.
+	 */
+	protected static void checkSameVotes(Classifier serial, Classifier parallel, InstanceStream stream) {
+		serial.setModelContext(stream.getHeader());
+		serial.prepareForUse();
+		parallel.setModelContext(stream.getHeader());
+		parallel.prepareForUse();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance instance = stream.nextInstance().getData();
+			assertArrayEquals(serial.getVotesForInstance(instance), parallel.getVotesForInstance(instance), 0.0);
+			serial.trainOnInstance(instance);
+			parallel.trainOnInstance(instance);
+		}
+		assertTrue(numLeaves(parallel) > 1);
+		assertEquals(numLeaves(serial), numLeaves(parallel), 0.0);
+	}
+
+	protected static void checkSameVotes(HoeffdingTree tree) {
+		tree.gracePeriodOption.setValue(50);
+		HoeffdingTree parallel = (HoeffdingTree) tree.copy();
+		parallel.parallelSplitThresholdOption.setValue(PARALLEL_SPLIT_THRESHOLD);
+		checkSameVotes(tree, parallel, newClassificationStream());
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		checkSameVotes(new HoeffdingTree());
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		checkSameVotes(new HoeffdingAdaptiveTree());
+	}
+
+	@Test
+	public void testEFDT() {
+		EFDT tree = new EFDT();
+		tree.gracePeriodOption.setValue(50);
+		EFDT parallel = (EFDT) tree.copy();
+		parallel.parallelSplitThresholdOption.setValue(PARALLEL_SPLIT_THRESHOLD);
+		checkSameVotes(tree, parallel, newClassificationStream());
+	}
+
+	@Test
+	public void testFIMTDD() {
+		FIMTDD tree = new FIMTDD();
+		tree.gracePeriodOption.setValue(50);
+		FIMTDD parallel = (FIMTDD) tree.copy();
+		parallel.parallelSplitThresholdOption.setValue(PARALLEL_SPLIT_THRESHOLD);
+		checkSameVotes(tree, parallel, newRegressionStream());
+	}
+}
@@ -0,0 +1,249 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.GiniSplitCriterion;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.Utils;
+import moa.streams.InstanceStream;
+import moa.streams.generators.LEDGeneratorDrift;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+/**
+ * Test that trees scoring their split candidates in reused buffers grow as
+ * the trees using the previous observers and split criteria, which
+ * allocated the distributions and a suggestion per candidate.
+ */
+public class SplitScoringEquivalenceTest {
+
+	protected static final int NUM_INSTANCES = 20000;
+
+	/** The previous Gaussian observer, with a suggestion per better split point. */
+	public static class GaussianNumericAttributeClassObserverReference extends GaussianNumericAttributeClassObserver {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+				SplitCriterion criterion, double[] preSplitDist, int attIndex,
+				boolean binaryOnly) {
+			AttributeSplitSuggestion bestSuggestion = null;
+			double[] suggestedSplitValues = getSplitPointSuggestions();
+			for (double splitValue : suggestedSplitValues) {
+				double[][] postSplitDists = getClassDistsResultingFromBinarySplit(splitValue);
+				double merit = criterion.getMeritOfSplit(preSplitDist,
+						postSplitDists);
+				if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+					bestSuggestion = new AttributeSplitSuggestion(
+							new NumericAttributeBinaryTest(attIndex, splitValue,
+							true), postSplitDists, merit);
+				}
+			}
+			return bestSuggestion;
+		}
+
+		@Override
+		public double[] getSplitPointSuggestions() {
+			Set<Double> suggestedSplitValues = new TreeSet<Double>();
+			double minValue = Double.POSITIVE_INFINITY;
+			double maxValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < this.attValDistPerClass.size(); i++) {
+				if (this.attValDistPerClass.get(i) != null) {
+					if (this.minValueObservedPerClass.getValue(i) < minValue) {
+						minValue = this.minValueObservedPerClass.getValue(i);
+					}
+					if (this.maxValueObservedPerClass.getValue(i) > maxValue) {
+						maxValue = this.maxValueObservedPerClass.getValue(i);
+					}
+				}
+			}
+			if (minValue < Double.POSITIVE_INFINITY) {
+				double range = maxValue - minValue;
+				for (int i = 0; i < this.numBinsOption.getValue(); i++) {
+					double splitValue = range / (this.numBinsOption.getValue() + 1.0) * (i + 1)
+							+ minValue;
+					if ((splitValue > minValue) && (splitValue < maxValue)) {
+						suggestedSplitValues.add(splitValue);
+					}
+				}
+			}
+			double[] suggestions = new double[suggestedSplitValues.size()];
+			int i = 0;
+			for (double suggestion : suggestedSplitValues) {
+				suggestions[i++] = suggestion;
+			}
+			return suggestions;
+		}
+	}
+
+	/** The previous nominal observer, with a suggestion per better binary split. */
+	public static class NominalAttributeClassObserverReference extends NominalAttributeClassObserver {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+				SplitCriterion criterion, double[] preSplitDist, int attIndex,
+				boolean binaryOnly) {
+			AttributeSplitSuggestion bestSuggestion = null;
+			int maxAttValsObserved = getMaxAttValsObserved();
+			if (!binaryOnly) {
+				double[][] postSplitDists = getClassDistsResultingFromMultiwaySplit(maxAttValsObserved);
+				double merit = criterion.getMeritOfSplit(preSplitDist,
+						postSplitDists);
+				bestSuggestion = new AttributeSplitSuggestion(
+						new NominalAttributeMultiwayTest(attIndex), postSplitDists,
+						merit);
+			}
+			for (int valIndex = 0; valIndex < maxAttValsObserved; valIndex++) {
+				double[][] postSplitDists = getClassDistsResultingFromBinarySplit(valIndex);
+				double merit = criterion.getMeritOfSplit(preSplitDist,
+						postSplitDists);
+				if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+					bestSuggestion = new AttributeSplitSuggestion(
+							new NominalAttributeBinaryTest(attIndex, valIndex),
+							postSplitDists, merit);
+				}
+			}
+			return bestSuggestion;
+		}
+	}
+
+	/** The previous info gain, with the weights of the branches in arrays. */
+	public static class InfoGainSplitCriterionReference extends InfoGainSplitCriterion {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public double getMeritOfSplit(double[] preSplitDist,
+				double[][] postSplitDists) {
+			if (numSubsetsGreaterThanFrac(postSplitDists, this.minBranchFracOption.getValue()) < 2) {
+				return Double.NEGATIVE_INFINITY;
+			}
+			return computeEntropy(preSplitDist) - computeEntropy(postSplitDists);
+		}
+	}
+
+	/** The previous Gini criterion, with the weights of the branches in an array. */
+	public static class GiniSplitCriterionReference extends GiniSplitCriterion {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public double getMeritOfSplit(double[] preSplitDist,
+				double[][] postSplitDists) {
+			double totalWeight = 0.0;
+			double[] distWeights = new double[postSplitDists.length];
+			for (int i = 0; i < postSplitDists.length; i++) {
+				distWeights[i] = Utils.sum(postSplitDists[i]);
+				totalWeight += distWeights[i];
+			}
+			double gini = 0.0;
+			for (int i = 0; i < postSplitDists.length; i++) {
+				gini += (distWeights[i] / totalWeight)
+						* computeGini(postSplitDists[i], distWeights[i]);
+			}
+			return 1.0 - gini;
+		}
+	}
+
+	protected static InstanceStream newNumericStream() {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.numAttsOption.setValue(50);
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	protected static InstanceStream newNominalStream() {
+		LEDGeneratorDrift stream = new LEDGeneratorDrift();
+		stream.numberAttributesDriftOption.setValue(3);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	/**
+	 * Sets the previous observers and criterion on the reference tree, and
+	 * the criterion of the same kind on the other tree.
+	 */
+	protected static void useReferences(HoeffdingTree reference, HoeffdingTree tree, boolean gini) {
+		reference.numericEstimatorOption.setCurrentObject(new GaussianNumericAttributeClassObserverReference());
+		reference.nominalEstimatorOption.setCurrentObject(new NominalAttributeClassObserverReference());
+		if (gini) {
+			reference.splitCriterionOption.setCurrentObject(new GiniSplitCriterionReference());
+			tree.splitCriterionOption.setCurrentObject(new GiniSplitCriterion());
+		} else {
+			reference.splitCriterionOption.setCurrentObject(new InfoGainSplitCriterionReference());
+		}
+	}
+
+	/**
+	 * Tests the trees prequentially on the same instances, and checks that
+	 * their votes agree and that they grow the same.
+	 */
+	protected static void checkSameVotes(HoeffdingTree reference, HoeffdingTree tree, InstanceStream stream) {
+		reference.gracePeriodOption.setValue(50);
+		tree.gracePeriodOption.setValue(50);
+		// split sooner, also on the ten classes of the nominal stream
+		reference.splitConfidenceOption.setValue(0.01);
+		tree.splitConfidenceOption.setValue(0.01);
+		reference.setModelContext(stream.getHeader());
+		reference.prepareForUse();
+		tree.setModelContext(stream.getHeader());
+		tree.prepareForUse();
+		for (int i = 0; i < NUM_INSTANCES; i++) {
+			Instance instance = stream.nextInstance().getData();
+			assertArrayEquals(reference.getVotesForInstance(instance), tree.getVotesForInstance(instance), 0.0);
+			reference.trainOnInstance(instance);
+			tree.trainOnInstance(instance);
+		}
+		assertTrue(tree.getNodeCount() > 1);
+		assertEquals(reference.getNodeCount(), tree.getNodeCount());
+	}
+
+	protected static void checkSameVotes(HoeffdingTree reference, HoeffdingTree tree, boolean gini) {
+		useReferences(reference, tree, gini);
+		checkSameVotes((HoeffdingTree) reference.copy(), (HoeffdingTree) tree.copy(), newNumericStream());
+		checkSameVotes((HoeffdingTree) reference.copy(), (HoeffdingTree) tree.copy(), newNominalStream());
+	}
+
+	@Test
+	public void testInfoGain() {
+		checkSameVotes(new HoeffdingTree(), new HoeffdingTree(), false);
+	}
+
+	@Test
+	public void testGini() {
+		checkSameVotes(new HoeffdingTree(), new HoeffdingTree(), true);
+	}
+
+	@Test
+	public void testBinarySplitsAndPoorAttributes() {
+		HoeffdingTree reference = new HoeffdingTree();
+		HoeffdingTree tree = new HoeffdingTree();
+		reference.binarySplitsOption.set();
+		tree.binarySplitsOption.set();
+		reference.removePoorAttsOption.set();
+		tree.removePoorAttsOption.set();
+		checkSameVotes(reference, tree, false);
+	}
+
+	@Test
+	public void testHoeffdingAdaptiveTree() {
+		checkSameVotes(new HoeffdingAdaptiveTree(), new HoeffdingAdaptiveTree(), false);
+	}
+}
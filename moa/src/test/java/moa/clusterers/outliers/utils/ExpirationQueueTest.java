@@ -0,0 +1,73 @@
+package moa.clusterers.outliers.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Test ExpirationQueue against a TreeSet ordered by time and id, the
+ * structure it replaces in the outlier detectors.
+ */
+public class ExpirationQueueTest {
+
+	@Test
+	public void testSameAsTreeSet() {
+		Random random = new Random(1);
+		for (int run = 0; run < 200; run++) {
+			int window = 1 + random.nextInt(50);
+			// some runs insert beyond the expected range, so the ring grows
+			int range = run % 3 == 0 ? 4 * window : window;
+			ExpirationQueue<Long> queue = new ExpirationQueue<Long>(window + 1);
+			TreeSet<long[]> expected = new TreeSet<long[]>((x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0])
+					: Long.compare(x[1], y[1]));
+			long now = 0;
+			for (int step = 0; step < 5000; step++) {
+				if (random.nextInt(3) < 2) {
+					long id = random.nextInt(200);
+					long time = now + 1 + random.nextInt(range);
+					queue.insert(id, id, time);
+					expected.add(new long[]{time, id});
+				} else {
+					now++;
+					while (queue.peekTime() <= now) {
+						long[] first = expected.pollFirst();
+						assertNotNull(first);
+						assertEquals(first[0], queue.peekTime());
+						assertEquals(first[1], (long) queue.peek());
+						assertEquals(first[1], (long) queue.poll());
+					}
+					assertTrue(expected.isEmpty() || expected.first()[0] > now);
+				}
+				assertEquals(expected.size(), queue.size());
+				assertEquals(expected.isEmpty(), queue.isEmpty());
+			}
+			List<Long> items = new ArrayList<Long>();
+			List<Long> times = new ArrayList<Long>();
+			queue.getItems(items, times);
+			assertEquals(expected.size(), items.size());
+			int i = 0;
+			for (long[] e : expected) {
+				assertEquals(e[0], (long) times.get(i));
+				assertEquals(e[1], (long) items.get(i));
+				i++;
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		ExpirationQueue<Object> queue = new ExpirationQueue<Object>(10);
+		assertEquals(Long.MAX_VALUE, queue.peekTime());
+		assertNull(queue.peek());
+		assertNull(queue.poll());
+		queue.insert("a", 1, 5);
+		assertEquals("a", queue.poll());
+		assertEquals(Long.MAX_VALUE, queue.peekTime());
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -0,0 +1,49 @@
+package moa.clusterers.outliers.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test SlidingWindow against an ArrayList, mostly removing the oldest object
+ * as the detectors do, and sometimes one in the middle.
+ */
+public class SlidingWindowTest {
+
+	@Test
+	public void testSameAsArrayList() {
+		Random random = new Random(3);
+		SlidingWindow<Integer> window = new SlidingWindow<Integer>(3);
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int step = 0; step < 100000; step++) {
+			if (expected.size() < 5 || random.nextInt(3) > 0 && expected.size() < 40) {
+				// new objects, so that remove finds them by identity
+				Integer item = new Integer(step);
+				window.add(item);
+				expected.add(item);
+			} else if (random.nextInt(8) == 0) {
+				assertSame(expected.remove(0), window.removeFirst());
+			} else {
+				Integer item = expected.get(random.nextInt(4) == 0 ? random.nextInt(expected.size()) : 0);
+				expected.remove(item);
+				assertTrue(window.remove(item));
+			}
+			assertFalse(window.remove(new Integer(-1)));
+			assertEquals(expected.size(), window.size());
+			int i = 0;
+			for (Integer item : window) {
+				assertSame(expected.get(i), item);
+				assertSame(expected.get(i), window.get(i));
+				i++;
+			}
+			assertEquals(expected.size(), i);
+		}
+		window.clear();
+		assertTrue(window.isEmpty());
+		assertNull(window.removeFirst());
+	}
+}
@@ -0,0 +1,47 @@
+package moa.clusterers.outliers.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Test SortedIdList against a TreeMap from ids to items.
+ */
+public class SortedIdListTest {
+
+	@Test
+	public void testSameAsTreeMap() {
+		Random random = new Random(2);
+		SortedIdList<String> list = new SortedIdList<String>();
+		TreeMap<Long, String> expected = new TreeMap<Long, String>();
+		for (int step = 0; step < 100000; step++) {
+			long id = random.nextInt(500);
+			if (random.nextBoolean()) {
+				// an existing id keeps its item
+				String item = "item" + id + "/" + step;
+				list.add(id, item);
+				expected.putIfAbsent(id, item);
+			} else {
+				assertEquals(expected.remove(id) != null, list.remove(id));
+			}
+			assertEquals(expected.size(), list.size());
+			long since = random.nextInt(520) - 10;
+			assertEquals(expected.tailMap(since).size(), list.countFrom(since));
+			assertEquals(expected.size() - expected.tailMap(since).size(), list.indexFrom(since));
+			Long ceiling = expected.ceilingKey(since);
+			assertTrue(Objects.equals(ceiling == null ? null : expected.get(ceiling), list.getFrom(since)));
+		}
+		int i = 0;
+		for (Long id : expected.keySet()) {
+			assertEquals((long) id, list.getId(i));
+			assertEquals(expected.get(id), list.get(i));
+			i++;
+		}
+		assertEquals(new ArrayList<String>(expected.values()), list.toList());
+	}
+}
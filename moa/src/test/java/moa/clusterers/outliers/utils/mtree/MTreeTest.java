@@ -0,0 +1,302 @@
+package moa.clusterers.outliers.utils.mtree;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Test MTree against a brute-force scan of the indexed points, at small
+ * node capacities so that splits, donations and merges happen often.
+ */
+public class MTreeTest {
+
+	/**
+	 * A point compared by identity, so that distinct points may share their
+	 * coordinates.
+	 */
+	static class Point implements DistanceFunctions.EuclideanCoordinate {
+		final double[] values;
+
+		Point(double... values) {
+			this.values = values;
+		}
+
+		@Override
+		public int dimensions() {
+			return values.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(values);
+		}
+	}
+
+	static MTree<Point> newTree(int minNodeCapacity) {
+		return new MTree<Point>(minNodeCapacity, DistanceFunctions.EUCLIDEAN, null);
+	}
+
+	static Point randomPoint(Random random) {
+		// a coarse grid, so that ties in distance are frequent
+		return new Point(random.nextInt(20), random.nextInt(20), random.nextInt(20));
+	}
+
+	static int height(MTree<Point> tree) {
+		int height = 0;
+		for (MTree<Point>.Node node = tree.root; node != null; node = node.leaf ? null : node.childNodes[0]) {
+			height++;
+		}
+		return height;
+	}
+
+	static MTree<Point>.Node leafOf(MTree<Point>.Node node, Point point) {
+		if (node.leaf) {
+			return node.indexOf(point, point.hashCode()) >= 0 ? node : null;
+		}
+		for (int i = 0; i < node.size; i++) {
+			MTree<Point>.Node leaf = leafOf(node.childNodes[i], point);
+			if (leaf != null) {
+				return leaf;
+			}
+		}
+		return null;
+	}
+
+	static int countLeaves(MTree<Point>.Node node) {
+		if (node.leaf) {
+			return 1;
+		}
+		int leaves = 0;
+		for (int i = 0; i < node.size; i++) {
+			leaves += countLeaves(node.childNodes[i]);
+		}
+		return leaves;
+	}
+
+	static double[] sortedDistances(List<Point> points, Point query, double range) {
+		double[] distances = new double[points.size()];
+		int size = 0;
+		for (Point point : points) {
+			double distance = DistanceFunctions.euclidean(query, point);
+			if (distance <= range) {
+				distances[size++] = distance;
+			}
+		}
+		distances = Arrays.copyOf(distances, size);
+		Arrays.sort(distances);
+		return distances;
+	}
+
+	static void checkRange(MTree<Point> tree, MTree<Point>.RangeCursor cursor, List<Point> points,
+			Point query, double range) {
+		double[] expected = sortedDistances(points, query, range);
+		assertEquals(expected.length, tree.getNearestByRange(query, range, cursor));
+		assertEquals(expected.length, cursor.size());
+		Set<Point> found = new HashSet<Point>();
+		for (int i = 0; i < cursor.size(); i++) {
+			assertEquals(expected[i], cursor.getDistance(i), 0.0);
+			assertEquals(cursor.getDistance(i), DistanceFunctions.euclidean(query, cursor.getData(i)), 0.0);
+			assertTrue(found.add(cursor.getData(i)));
+		}
+		for (Point point : points) {
+			assertEquals(DistanceFunctions.euclidean(query, point) <= range, found.contains(point));
+		}
+
+		// the iterating query gives the same results
+		int i = 0;
+		for (MTree<Point>.ResultItem item : tree.getNearestByRange(query, range)) {
+			assertEquals(expected[i++], item.distance, 0.0);
+			assertTrue(found.contains(item.data));
+		}
+		assertEquals(expected.length, i);
+	}
+
+	static void checkLimit(MTree<Point> tree, List<Point> points, Point query, int limit) {
+		double[] expected = sortedDistances(points, query, Double.POSITIVE_INFINITY);
+		int i = 0;
+		Set<Point> found = new HashSet<Point>();
+		for (MTree<Point>.ResultItem item : tree.getNearestByLimit(query, limit)) {
+			assertEquals(expected[i++], item.distance, 0.0);
+			assertEquals(item.distance, DistanceFunctions.euclidean(query, item.data), 0.0);
+			assertTrue(points.contains(item.data));
+			assertTrue(found.add(item.data));
+		}
+		assertEquals(Math.min(limit, expected.length), i);
+	}
+
+	@Test
+	public void testSameAsBruteForce() {
+		Random random = new Random(3);
+		for (int minNodeCapacity : new int[] { 2, 3, 5 }) {
+			MTree<Point> tree = newTree(minNodeCapacity);
+			MTree<Point>.RangeCursor cursor = tree.newRangeCursor();
+			List<Point> points = new ArrayList<Point>();
+			int maxHeight = 0;
+			for (int step = 0; step < 6000; step++) {
+				// grow the tree first, then shrink it back to empty
+				boolean add = step < 3000 ? random.nextInt(3) > 0 : random.nextInt(3) == 0;
+				if (add || points.isEmpty()) {
+					Point point = randomPoint(random);
+					tree.add(point);
+					points.add(point);
+				} else {
+					Point point = points.remove(random.nextInt(points.size()));
+					assertTrue(tree.remove(point));
+					assertFalse(tree.remove(point));
+				}
+				tree._check();
+				maxHeight = Math.max(maxHeight, height(tree));
+
+				if (step % 10 == 0) {
+					Point query = randomPoint(random);
+					checkRange(tree, cursor, points, query, random.nextInt(10));
+					checkLimit(tree, points, query, 1 + random.nextInt(5));
+				}
+			}
+			assertTrue(maxHeight >= 3);
+
+			while (!points.isEmpty()) {
+				assertTrue(tree.remove(points.remove(points.size() - 1)));
+				tree._check();
+			}
+			assertNull(tree.root);
+			assertEquals(0, tree.getNearestByRange(randomPoint(random), 100, cursor));
+			assertFalse(tree.getNearestByLimit(randomPoint(random), 5).iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void testSplitAndMerge() {
+		MTree<Point> tree = newTree(2);
+		List<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < 3; i++) {
+			points.add(new Point(i, 0));
+			tree.add(points.get(i));
+		}
+		// three points fill the root leaf
+		assertTrue(tree.root.leaf);
+		assertEquals(3, tree.root.size);
+
+		// a fourth one splits it under a new root
+		points.add(new Point(3, 0));
+		tree.add(points.get(3));
+		tree._check();
+		assertEquals(2, height(tree));
+		assertEquals(2, tree.root.size);
+		assertEquals(2, tree.root.childNodes[0].size);
+		assertEquals(2, tree.root.childNodes[1].size);
+
+		// a leaf that falls under capacity is merged into its sibling, and
+		// the root with a single child is replaced by that child
+		assertTrue(tree.remove(points.get(0)));
+		tree._check();
+		assertEquals(1, height(tree));
+		assertEquals(3, tree.root.size);
+		checkLimit(tree, points.subList(1, 4), new Point(0, 0), 3);
+	}
+
+	@Test
+	public void testDonation() {
+		MTree<Point> tree = newTree(2);
+		List<Point> points = new ArrayList<Point>();
+		Random random = new Random(4);
+		for (int i = 0; i < 200; i++) {
+			points.add(randomPoint(random));
+			tree.add(points.get(i));
+		}
+		tree._check();
+
+		// a sibling above its minimum capacity donates a grandchild to an
+		// under-capacity leaf instead of being merged with it
+		boolean donated = false;
+		while (points.size() > 1) {
+			Point removed = points.remove(random.nextInt(points.size()));
+			MTree<Point>.Node leaf = leafOf(tree.root, removed);
+			boolean underCapacity = leaf != tree.root && leaf.size == tree.minNodeCapacity;
+			int leavesBefore = countLeaves(tree.root);
+			assertTrue(tree.remove(removed));
+			tree._check();
+			donated |= underCapacity && countLeaves(tree.root) == leavesBefore;
+			checkRange(tree, tree.newRangeCursor(), points, removed, 5);
+		}
+		assertTrue(donated);
+		assertTrue(tree.root.leaf);
+		assertEquals(1, tree.root.size);
+	}
+
+	@Test
+	public void testRemoveOutcomes() {
+		MTree<Point> tree = newTree(2);
+		Point first = new Point(0, 0);
+
+		// NOT_FOUND on an empty tree
+		assertFalse(tree.remove(first));
+
+		// UNDER_CAPACITY at a root leaf empties the tree
+		tree.add(first);
+		assertTrue(tree.remove(first));
+		assertNull(tree.root);
+
+		List<Point> points = new ArrayList<Point>();
+		for (int i = 0; i < 50; i++) {
+			points.add(new Point(i % 7, i / 7));
+			tree.add(points.get(i));
+		}
+		assertTrue(height(tree) >= 3);
+
+		// NOT_FOUND inside the covering radius of the nodes: a distinct point
+		// at the same coordinates as an indexed one is searched down to the
+		// leaves and not found
+		Point twin = new Point(3, 3);
+		assertFalse(tree.remove(twin));
+		// and NOT_FOUND outside of the root radius
+		assertFalse(tree.remove(new Point(100, 100)));
+		tree._check();
+		checkRange(tree, tree.newRangeCursor(), points, twin, 2);
+
+		// REMOVED leaves the structure valid and the point gone
+		Point removed = points.remove(10);
+		assertTrue(tree.remove(removed));
+		assertFalse(tree.remove(removed));
+		tree._check();
+		checkRange(tree, tree.newRangeCursor(), points, removed, 3);
+	}
+
+	@Test
+	public void testCheckFindsBrokenInvariants() {
+		boolean assertionsEnabled = false;
+		assert assertionsEnabled = true;
+		Assume.assumeTrue(assertionsEnabled);
+
+		MTree<Point> tree = newTree(2);
+		for (int i = 0; i < 20; i++) {
+			tree.add(new Point(i, i % 3));
+		}
+		tree._check();
+
+		MTree<Point>.Node leaf = tree.root;
+		while (!leaf.leaf) {
+			leaf = leaf.childNodes[0];
+		}
+		leaf.childDistances[0] += 1.0;
+		try {
+			tree._check();
+			fail("_check() accepted a wrong distance");
+		} catch (AssertionError e) {
+			// expected
+		}
+	}
+}
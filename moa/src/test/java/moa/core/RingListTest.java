@@ -0,0 +1,73 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test RingList against an ArrayList on random insertions and removals at
+ * both ends and in between.
+ */
+public class RingListTest {
+
+	@Test
+	public void testSameAsArrayList() {
+		Random random = new Random(1);
+		RingList<Integer> ring = new RingList<Integer>(2);
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		for (int step = 0; step < 200000; step++) {
+			int op = random.nextInt(6);
+			if (op < 2 || expected.isEmpty()) {
+				ring.add(step);
+				expected.add(step);
+			} else if (op == 2) {
+				int index = random.nextInt(expected.size() + 1);
+				ring.add(index, step);
+				expected.add(index, step);
+			} else if (op == 3) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), ring.remove(index));
+			} else if (op == 4) {
+				assertEquals(expected.remove(0), ring.remove(0));
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.set(index, -step), ring.set(index, -step));
+			}
+			assertEquals(expected.size(), ring.size());
+			if (step % 100 == 0) {
+				assertEquals(expected, ring);
+			}
+		}
+		assertEquals(expected, ring);
+		ring.clear();
+		assertTrue(ring.isEmpty());
+		ring.add(1);
+		assertEquals(1, (int) ring.get(0));
+	}
+
+	@Test
+	public void testSlidingWindow() {
+		// the oldest element leaves at the front as a new one is appended
+		RingList<Integer> ring = new RingList<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			if (ring.size() == 37) {
+				assertEquals(i - 37, (int) ring.remove(0));
+			}
+			ring.add(i);
+			assertEquals(i, (int) ring.get(ring.size() - 1));
+		}
+		for (int i = 0; i < ring.size(); i++) {
+			assertEquals(1000 - 37 + i, (int) ring.get(i));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		RingList<Integer> ring = new RingList<Integer>();
+		ring.add(1);
+		ring.get(1);
+	}
+}
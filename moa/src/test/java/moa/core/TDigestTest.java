@@ -0,0 +1,168 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the quantiles of TDigest against the exact weighted distribution of
+ * random streams.
+ */
+public class TDigestTest {
+
+	private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+	private static double nextValue(Random random, int distribution) {
+		switch (distribution) {
+		case 0:
+			return random.nextDouble();
+		case 1:
+			return random.nextGaussian() * 10.0 + 3.0;
+		case 2:
+			return -Math.log(1.0 - random.nextDouble());
+		default:
+			// few distinct values
+			return random.nextInt(20);
+		}
+	}
+
+	/** Largest error of the estimated fraction of weight below the exact quantiles. */
+	private static double maxQuantileError(TDigest digest, double[] values, double[] weights, int n) {
+		double[] sorted = Arrays.copyOf(values, n);
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		double total = 0.0;
+		for (int i = 0; i < n; i++) {
+			total += weights[i];
+		}
+		assertEquals(total, digest.getTotalWeight(), 1e-9 * total);
+		double maxError = 0.0;
+		for (double q : QUANTILES) {
+			// the value at quantile q and the exact weight at or below it
+			double below = 0.0;
+			int i = 0;
+			while (below + weights[order[i]] < q * total) {
+				below += weights[order[i++]];
+			}
+			double value = values[order[i]];
+			double exact = 0.0;
+			for (int j = 0; j < n; j++) {
+				if (values[j] <= value) {
+					exact += weights[j];
+				}
+			}
+			// the estimate interpolates inside a run of equal values
+			double exactBefore = 0.0;
+			for (int j = 0; j < n; j++) {
+				if (values[j] < value) {
+					exactBefore += weights[j];
+				}
+			}
+			double estimate = digest.getWeightBelow(value);
+			double error = estimate > exact ? estimate - exact
+					: (estimate < exactBefore ? exactBefore - estimate : 0.0);
+			maxError = Math.max(maxError, error / total);
+		}
+		Arrays.sort(sorted);
+		assertEquals(sorted[0], digest.getMin(), 0.0);
+		assertEquals(sorted[n - 1], digest.getMax(), 0.0);
+		return maxError;
+	}
+
+	@Test
+	public void testQuantiles() {
+		Random random = new Random(1);
+		int n = 100000;
+		double[] values = new double[n];
+		double[] weights = new double[n];
+		for (int distribution = 0; distribution < 4; distribution++) {
+			for (int weighted = 0; weighted < 2; weighted++) {
+				TDigest digest = new TDigest(100);
+				for (int i = 0; i < n; i++) {
+					values[i] = nextValue(random, distribution);
+					weights[i] = weighted == 0 ? 1.0 : 0.1 + random.nextDouble() * 2.0;
+					digest.add(values[i], weights[i]);
+				}
+				double error = maxQuantileError(digest, values, weights, n);
+				assertTrue("distribution " + distribution + ", weighted " + weighted + ": " + error,
+						error < 0.002);
+				assertTrue(digest.numCentroids() <= 100);
+			}
+		}
+	}
+
+	@Test
+	public void testSmallSketches() {
+		Random random = new Random(2);
+		for (int n = 1; n < 50; n++) {
+			double[] values = new double[n];
+			double[] weights = new double[n];
+			TDigest digest = new TDigest(100);
+			for (int i = 0; i < n; i++) {
+				values[i] = nextValue(random, 1);
+				weights[i] = 1.0;
+				digest.add(values[i], weights[i]);
+			}
+			assertEquals(0.0, maxQuantileError(digest, values, weights, n), 1.0 / n + 1e-9);
+			assertEquals(0.0, digest.getWeightBelow(digest.getMin() - 1.0), 0.0);
+			assertEquals(n, digest.getWeightBelow(digest.getMax()), 1e-9);
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		Random random = new Random(3);
+		int n = 50000;
+		double[] values = new double[2 * n];
+		double[] weights = new double[2 * n];
+		TDigest first = new TDigest(100);
+		TDigest second = new TDigest(100);
+		for (int i = 0; i < 2 * n; i++) {
+			values[i] = nextValue(random, i < n ? 1 : 2);
+			weights[i] = 1.0;
+			(i < n ? first : second).add(values[i], weights[i]);
+		}
+		first.merge(second);
+		// the centroids of the second sketch are merged again, a coarser summary
+		assertTrue(maxQuantileError(first, values, weights, 2 * n) < 0.005);
+	}
+
+	@Test
+	public void testDensity() {
+		Random random = new Random(4);
+		TDigest digest = new TDigest(100);
+		for (int i = 0; i < 100000; i++) {
+			digest.add(nextValue(random, 1), 1.0);
+		}
+		// integrates to one, and is close to the Gaussian density in the middle
+		double integral = 0.0;
+		double step = (digest.getMax() - digest.getMin()) / 100000;
+		for (double x = digest.getMin() + step / 2; x < digest.getMax(); x += step) {
+			integral += digest.getDensity(x) * step;
+		}
+		assertEquals(1.0, integral, 0.01);
+		double gaussian = 1.0 / (10.0 * Math.sqrt(2.0 * Math.PI));
+		assertEquals(gaussian, digest.getDensity(3.0), 0.1 * gaussian);
+	}
+
+	@Test
+	public void testCopy() {
+		TDigest digest = new TDigest(50);
+		for (int i = 0; i < 1000; i++) {
+			digest.add(i, 1.0);
+		}
+		TDigest copy = digest.copy();
+		double below = copy.getWeightBelow(500);
+		for (int i = 0; i < 1000; i++) {
+			digest.add(-i, 1.0);
+		}
+		assertEquals(below, copy.getWeightBelow(500), 0.0);
+		assertEquals(1000.0, copy.getTotalWeight(), 0.0);
+	}
+}
@@ -0,0 +1,135 @@
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.functions.MajorityClass;
+import moa.classifiers.meta.OzaBag;
+import moa.core.ByteSizeEstimable;
+import moa.evaluation.preview.LearningCurve;
+import moa.streams.generators.RandomRBFGenerator;
+import moa.tasks.EvaluatePrequential;
+
+/**
+ * Tests that evaluations that estimate the model size walk the models only at
+ * the rate of the size walk frequency, and that they walk them every time,
+ * without the size columns, by default.
+ */
+public class ModelSizeMeterTest {
+
+	/** Number of walks of all the counting models. */
+	protected static final AtomicInteger WALKS = new AtomicInteger();
+
+	/** A classifier which estimates its size and counts its walks. */
+	public static class CountingMajorityClass extends MajorityClass implements ByteSizeEstimable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public long measureByteSize() {
+			WALKS.incrementAndGet();
+			return super.measureByteSize();
+		}
+
+		@Override
+		public long estimateByteSize() {
+			return 100;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		WALKS.set(0);
+	}
+
+	protected LearningCurve evaluate(Classifier learner) {
+		return evaluate(learner, true);
+	}
+
+	protected LearningCurve evaluate(Classifier learner, boolean estimateModelSize) {
+		EvaluatePrequential task = new EvaluatePrequential();
+		task.learnerOption.setCurrentObject(learner);
+		task.streamOption.setCurrentObject(new RandomRBFGenerator());
+		task.instanceLimitOption.setValue(10000);
+		task.sampleFrequencyOption.setValue(1000);
+		task.sizeWalkFrequencyOption.setValue(5000);
+		task.estimateModelSizeOption.setValue(estimateModelSize);
+		task.prepareForUse();
+		return (LearningCurve) task.doTask();
+	}
+
+	protected static int findMeasurement(LearningCurve curve, String name) {
+		for (int i = 0; i < curve.getMeasurementNameCount(); i++) {
+			if (curve.getMeasurementName(i).equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	protected static int measurementIndex(LearningCurve curve, String name) {
+		int index = findMeasurement(curve, name);
+		if (index < 0) {
+			fail("No measurement " + name);
+		}
+		return index;
+	}
+
+	@Test
+	public void testEstimableModelIsWalkedAtTheWalkFrequency() {
+		LearningCurve curve = evaluate(new CountingMajorityClass());
+		assertEquals(10, curve.numEntries());
+		// the walks are due at 1000 and 6000 instances
+		assertEquals(2, WALKS.get());
+		int estimated = measurementIndex(curve, "model estimated size (bytes)");
+		int serialized = measurementIndex(curve, "model serialized size (bytes)");
+		for (int i = 0; i < curve.numEntries(); i++) {
+			assertEquals(100.0, curve.getEntryData(i)[estimated], 0.0);
+			assertFalse(Double.isNaN(curve.getEntryData(i)[serialized]));
+		}
+	}
+
+	@Test
+	public void testModelIsWalkedEveryTimeByDefault() {
+		assertFalse(new EvaluatePrequential().estimateModelSizeOption.isSet());
+		LearningCurve curve = evaluate(new CountingMajorityClass(), false);
+		assertEquals(10, curve.numEntries());
+		// once for the RAM-Hours and once for the serialized size
+		assertEquals(2 * 10, WALKS.get());
+		measurementIndex(curve, "model serialized size (bytes)");
+		assertEquals(-1, findMeasurement(curve, ModelSizeMeter.METHOD_MEASUREMENT));
+		assertEquals(-1, findMeasurement(curve, "model estimated size (bytes)"));
+	}
+
+	@Test
+	public void testSublearnersAreWalkedAtTheWalkFrequency() {
+		OzaBag bag = new OzaBag();
+		bag.baseLearnerOption.setCurrentObject(new CountingMajorityClass());
+		bag.ensembleSizeOption.setValue(3);
+		LearningCurve curve = evaluate(bag);
+		assertEquals(10, curve.numEntries());
+		assertEquals(2 * 3, WALKS.get());
+	}
+
+	@Test
+	public void testWalkIsDueAtTheFrequency() {
+		ModelSizeMeter meter = new ModelSizeMeter(5000);
+		CountingMajorityClass model = new CountingMajorityClass();
+		int walks = 0;
+		for (long instances = 1000; instances <= 20000; instances += 1000) {
+			assertEquals(100, meter.measureByteSize(model, instances));
+			assertTrue(meter.isEstimated());
+			if (meter.isFullWalkDue()) {
+				walks++;
+			}
+		}
+		assertEquals(4, walks);
+		// estimable models are not walked by the meter itself
+		assertEquals(0, WALKS.get());
+	}
+}
@@ -0,0 +1,143 @@
+package moa.options;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.github.javacliparser.AbstractOption;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.Option;
+
+import moa.core.ObjectRepository;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Test that cloneWithOptions gives the copy its own options, copied by each
+ * class declaring them, and that options are serialised unless their type
+ * copies itself.
+ */
+public class AbstractOptionHandlerTest {
+
+	public static class Handler extends AbstractOptionHandler {
+
+		private static final long serialVersionUID = 1L;
+
+		public IntOption publicOption = new IntOption("public", 'a', "Public option.", 1);
+
+		protected IntOption protectedOption = new IntOption("protected", 'b', "Protected option.", 2);
+
+		@Override
+		protected void copyOptions() {
+			super.copyOptions();
+			this.publicOption = copyOption(this.publicOption);
+			this.protectedOption = copyOption(this.protectedOption);
+		}
+
+		@Override
+		public String getPurposeString() {
+			return "Handler with options of every visibility.";
+		}
+
+		@Override
+		protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+		}
+
+		@Override
+		public void getDescription(StringBuilder sb, int indent) {
+		}
+	}
+
+	public static class SubHandler extends Handler {
+
+		private static final long serialVersionUID = 1L;
+
+		private FlagOption privateOption = new FlagOption("private", 'c', "Private option.");
+
+		public IntOption nullOption = null;
+
+		@Override
+		protected void copyOptions() {
+			super.copyOptions();
+			this.privateOption = copyOption(this.privateOption);
+			this.nullOption = copyOption(this.nullOption);
+		}
+	}
+
+	/**
+	 * An option with a mutable value and no copy() of its own.
+	 */
+	public static class ArrayOption extends AbstractOption {
+
+		private static final long serialVersionUID = 1L;
+
+		public int[] values = new int[] { 1, 2 };
+
+		public ArrayOption() {
+			super("array", 'x', "Option with a mutable value.");
+		}
+
+		@Override
+		public String getDefaultCLIString() {
+			return null;
+		}
+
+		@Override
+		public String getValueAsCLIString() {
+			return null;
+		}
+
+		@Override
+		public void setValueViaCLIString(String s) {
+		}
+	}
+
+	@Test
+	public void testOptionsAreCopied() {
+		SubHandler handler = new SubHandler();
+		handler.prepareForUse();
+		SubHandler copy = (SubHandler) handler.cloneWithOptions();
+		assertNotSame(handler.publicOption, copy.publicOption);
+		assertNotSame(handler.protectedOption, copy.protectedOption);
+		assertNotSame(handler.privateOption, copy.privateOption);
+
+		copy.publicOption.setValue(10);
+		copy.protectedOption.setValue(20);
+		copy.privateOption.set();
+		assertEquals(1, handler.publicOption.getValue());
+		assertEquals(2, handler.protectedOption.getValue());
+		assertFalse(handler.privateOption.isSet());
+		assertEquals(10, copy.publicOption.getValue());
+		assertEquals(20, copy.protectedOption.getValue());
+		assertTrue(copy.privateOption.isSet());
+		assertNull(copy.nullOption);
+
+		// the options of the copy are rebuilt from its fields
+		Option[] options = copy.getOptions().getOptionArray();
+		assertEquals(1, options.length);
+		assertSame(copy.publicOption, options[0]);
+		assertSame(handler.publicOption, handler.getOptions().getOptionArray()[0]);
+	}
+
+	@Test
+	public void testOptionsAreSerialisedByDefault() {
+		ArrayOption option = new ArrayOption();
+		ArrayOption copy = (ArrayOption) option.copy();
+		assertNotSame(option.values, copy.values);
+		copy.values[0] = 10;
+		assertEquals(1, option.values[0]);
+
+		IntOption intOption = new IntOption("int", 'i', "Int option.", 1);
+		IntOption intCopy = (IntOption) intOption.copy();
+		intCopy.setValue(2);
+		assertEquals(1, intOption.getValue());
+		assertEquals(2, intCopy.getValue());
+	}
+
+	@Test
+	public void testOnlyTheClassItselfIsCopiedFieldByField() {
+		assertTrue(new Handler().canCopyFieldByField(Handler.class));
+		assertFalse(new SubHandler().canCopyFieldByField(Handler.class));
+		assertTrue(new SubHandler().canCopyFieldByField(SubHandler.class));
+	}
+}
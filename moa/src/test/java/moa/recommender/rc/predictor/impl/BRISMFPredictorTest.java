@@ -0,0 +1,94 @@
+package moa.recommender.rc.predictor.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.recommender.rc.data.impl.MemRecommenderData;
+
+import org.junit.Test;
+
+/**
+ * Test that the asynchronous updates of BRISMFPredictor draw the same random
+ * numbers as the synchronous ones: when every update is waited for, both
+ * give the same features. Also test that the updates are reused and that
+ * waitForUpdates outlasts an interrupt.
+ */
+public class BRISMFPredictorTest {
+
+	private static final int N_USERS = 60;
+	private static final int N_ITEMS = 40;
+
+	private BRISMFPredictor run(int nThreads) {
+		MemRecommenderData data = new MemRecommenderData();
+		BRISMFPredictor predictor = new BRISMFPredictor(6, data, false);
+		predictor.setNThreads(nThreads);
+		Random random = new Random(4);
+		for (int i = 0; i < 2000; i++) {
+			data.setRating(random.nextInt(N_USERS), random.nextInt(N_ITEMS), random.nextInt(5) + 1);
+			predictor.waitForUpdates();
+		}
+		return predictor;
+	}
+
+	@Test
+	public void testAsyncSameAsSync() {
+		BRISMFPredictor sync = run(1);
+		BRISMFPredictor async = run(2);
+		for (int user = 0; user < N_USERS; user++) {
+			assertArrayEquals(sync.getUserFeatures(user), async.getUserFeatures(user), 0.0f);
+		}
+		for (int item = 0; item < N_ITEMS; item++) {
+			assertArrayEquals(sync.getItemFeatures(item), async.getItemFeatures(item), 0.0f);
+		}
+		// one update at a time, so a single one is ever allocated
+		assertEquals(1, async.freeUpdates.size());
+		async.setNThreads(1);
+	}
+
+	@Test
+	public void testUpdatesReused() {
+		MemRecommenderData data = new MemRecommenderData();
+		BRISMFPredictor predictor = new BRISMFPredictor(6, data, false);
+		predictor.setNThreads(2);
+		Random random = new Random(4);
+		for (int i = 0; i < 2000; i++) {
+			data.setRating(random.nextInt(N_USERS), random.nextInt(N_ITEMS), random.nextInt(5) + 1);
+		}
+		predictor.waitForUpdates();
+		assertEquals(0, predictor.pendingUpdates);
+		// at most the queued ones, one per thread and one run by the caller
+		assertTrue(predictor.freeUpdates.size() <= 16 * 2 + 2 + 1);
+		predictor.setNThreads(1);
+	}
+
+	@Test
+	public void testWaitForUpdatesKeepsInterrupt() throws InterruptedException {
+		final BRISMFPredictor predictor = new BRISMFPredictor(6, new MemRecommenderData(), false);
+		synchronized (predictor.updateLock) {
+			predictor.pendingUpdates = 1;
+		}
+		Thread finisher = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+				synchronized (predictor.updateLock) {
+					predictor.pendingUpdates = 0;
+					predictor.updateLock.notifyAll();
+				}
+			}
+		};
+		finisher.start();
+		Thread.currentThread().interrupt();
+		predictor.waitForUpdates();
+		synchronized (predictor.updateLock) {
+			assertEquals(0, predictor.pendingUpdates);
+		}
+		// clears the flag for the next tests
+		assertTrue(Thread.interrupted());
+		finisher.join();
+	}
+}
@@ -0,0 +1,74 @@
+package moa.recommender.rc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test FeatureMatrix against a HashMap of feature arrays, over more rows
+ * than fit in one block.
+ */
+public class FeatureMatrixTest {
+
+	@Test
+	public void testSameAsHashMap() {
+		Random random = new Random(2);
+		int nFeatures = 5;
+		FeatureMatrix matrix = new FeatureMatrix(nFeatures);
+		HashMap<Integer, float[]> expected = new HashMap<Integer, float[]>();
+		for (int step = 0; step < 300000; step++) {
+			int id = random.nextInt(3000);
+			int op = random.nextInt(8);
+			if (op < 2) {
+				matrix.removeRow(id);
+				expected.remove(id);
+			} else if (op == 2) {
+				// a new row is zeros, even when it reuses a removed one
+				matrix.addRow(id);
+				if (!expected.containsKey(id)) {
+					expected.put(id, new float[nFeatures]);
+				}
+			} else {
+				float[] feats = new float[nFeatures];
+				for (int i = 0; i < nFeatures; i++) {
+					feats[i] = random.nextFloat();
+				}
+				matrix.set(id, feats);
+				expected.put(id, feats.clone());
+			}
+			int other = random.nextInt(3000);
+			assertArrayEquals(expected.get(other), matrix.get(other), 0.0f);
+			assertEquals(expected.containsKey(other), matrix.getRow(other) >= 0);
+			assertEquals(expected.size(), matrix.size());
+		}
+		for (Map.Entry<Integer, float[]> e : expected.entrySet()) {
+			int row = matrix.getRow(e.getKey());
+			int offset = matrix.getOffset(row);
+			assertArrayEquals(e.getValue(),
+					Arrays.copyOfRange(matrix.getBlock(row), offset, offset + nFeatures), 0.0f);
+		}
+		matrix.clear();
+		assertEquals(0, matrix.size());
+		assertNull(matrix.get(0));
+	}
+
+	@Test
+	public void testRowsStayValid() {
+		// a located row keeps its place while many rows are added after it
+		FeatureMatrix matrix = new FeatureMatrix(3);
+		matrix.set(7, new float[]{1, 2, 3});
+		int row = matrix.getRow(7);
+		float[] block = matrix.getBlock(row);
+		for (int id = 100; id < 5000; id++) {
+			matrix.addRow(id);
+		}
+		assertSame(block, matrix.getBlock(row));
+		assertArrayEquals(new float[]{1, 2, 3},
+				Arrays.copyOfRange(block, matrix.getOffset(row), matrix.getOffset(row) + 3), 0.0f);
+	}
+}
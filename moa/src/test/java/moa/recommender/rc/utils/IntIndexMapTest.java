@@ -0,0 +1,50 @@
+package moa.recommender.rc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test IntIndexMap against a HashMap, with keys of both signs and enough
+ * removals to exercise the backward-shift deletion.
+ */
+public class IntIndexMapTest {
+
+	@Test
+	public void testSameAsHashMap() {
+		Random random = new Random(1);
+		IntIndexMap map = new IntIndexMap();
+		HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int step = 0; step < 500000; step++) {
+			int key = random.nextInt(5000) - 2500;
+			int op = random.nextInt(3);
+			if (op == 0) {
+				int value = random.nextInt(1000);
+				map.put(key, value);
+				expected.put(key, value);
+			} else if (op == 1) {
+				Integer removed = expected.remove(key);
+				assertEquals(removed == null ? -1 : (int) removed, map.remove(key));
+			}
+			Integer value = expected.get(key);
+			assertEquals(value == null ? -1 : (int) value, map.get(key));
+			assertEquals(value != null, map.containsKey(key));
+			assertEquals(expected.size(), map.size());
+		}
+		for (int key = -2500; key < 2500; key++) {
+			Integer value = expected.get(key);
+			assertEquals(value == null ? -1 : (int) value, map.get(key));
+		}
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(-1, map.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeIndex() {
+		new IntIndexMap().put(1, -1);
+	}
+}
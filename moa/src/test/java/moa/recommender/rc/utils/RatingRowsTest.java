@@ -0,0 +1,96 @@
+package moa.recommender.rc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Test RatingRows against a HashMap of TreeMaps from ids to ratings.
+ */
+public class RatingRowsTest {
+
+	@Test
+	public void testSameAsTreeMaps() {
+		Random random = new Random(3);
+		RatingRows rows = new RatingRows();
+		HashMap<Integer, TreeMap<Integer, Double>> expected = new HashMap<Integer, TreeMap<Integer, Double>>();
+		RatingList out = new RatingList();
+		for (int step = 0; step < 300000; step++) {
+			int key = random.nextInt(300);
+			int id = random.nextInt(300);
+			int op = random.nextInt(10);
+			TreeMap<Integer, Double> row = expected.get(key);
+			if (op < 6) {
+				double rating = random.nextInt(5) + 1;
+				rows.put(key, id, rating);
+				if (row == null) {
+					row = new TreeMap<Integer, Double>();
+					expected.put(key, row);
+				}
+				row.put(id, rating);
+			} else if (op < 8) {
+				boolean had = row != null && row.remove(id) != null;
+				assertEquals(had, rows.remove(key, id));
+			} else if (op == 8) {
+				rows.removeRow(key);
+				expected.remove(key);
+				row = null;
+			} else {
+				rows.addRow(key);
+				row = new TreeMap<Integer, Double>();
+				expected.put(key, row);
+			}
+			assertEquals(row != null, rows.containsRow(key));
+			assertEquals(expected.size(), rows.size());
+			assertEquals(row == null ? 0 : row.size(), rows.rowSize(key));
+			Double rating = row == null ? null : row.get(id);
+			assertEquals(rating == null ? -1.0 : rating, rows.get(key, id, -1.0), 0.0);
+			rows.getRow(key, out);
+			assertEquals(row == null ? 0 : row.size(), out.size());
+			if (row != null) {
+				int i = 0;
+				for (Map.Entry<Integer, Double> e : row.entrySet()) {
+					assertEquals((int) e.getKey(), out.getID(i));
+					assertEquals(e.getValue(), out.getRating(i), 0.0);
+					i++;
+				}
+			}
+		}
+
+		// the slots cover every row once, free slots have a negative size
+		int numRatings = 0;
+		for (int slot = 0; slot < rows.getNumSlots(); slot++) {
+			int size = rows.getSize(slot);
+			if (size < 0) {
+				continue;
+			}
+			TreeMap<Integer, Double> row = expected.get(rows.getKey(slot));
+			assertNotNull(row);
+			assertEquals(row.size(), size);
+			for (int i = 0; i < size; i++) {
+				assertEquals(row.get(rows.getID(slot, i)), rows.getRating(slot, i), 0.0);
+			}
+			numRatings += size;
+		}
+		int expectedRatings = 0;
+		for (Map.Entry<Integer, TreeMap<Integer, Double>> e : expected.entrySet()) {
+			expectedRatings += e.getValue().size();
+			SparseVector vector = rows.getRowVector(e.getKey());
+			assertEquals(e.getValue().size(), vector.size());
+			for (Map.Entry<Integer, Double> rating : e.getValue().entrySet()) {
+				assertEquals(rating.getValue(), vector.get(rating.getKey()), 0.0);
+			}
+		}
+		assertEquals(expectedRatings, numRatings);
+
+		rows.clear();
+		assertEquals(0, rows.size());
+		assertEquals(0, rows.getNumSlots());
+		assertFalse(rows.containsRow(0));
+	}
+}
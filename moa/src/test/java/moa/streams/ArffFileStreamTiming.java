@@ -0,0 +1,119 @@
+/*
+ *    ArffFileStreamTiming.java
+ *    Copyright (C) 2026 University of Waikato, Hamilton, New Zealand
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package moa.streams;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Throughput of ArffFileStream on generated dense and sparse ARFF files.
+ * The dense file has numeric attributes with six decimals and a nominal
+ * class; the sparse file has a few non-zero values out of many numeric
+ * attributes per instance.
+ *
+ * <p>Usage, with the test classpath: ArffFileStreamTiming [numInstances [repetitions]]</p>
+ */
+public class ArffFileStreamTiming {
+
+    protected static final int NUM_DENSE_ATTRIBUTES = 50;
+
+    protected static final int NUM_SPARSE_ATTRIBUTES = 10000;
+
+    protected static final int NUM_SPARSE_VALUES = 50;
+
+    public static void main(String[] args) throws IOException {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File dense = File.createTempFile("dense", ".arff");
+        File sparse = File.createTempFile("sparse", ".arff");
+        try {
+            writeDense(dense, numInstances);
+            writeSparse(sparse, numInstances);
+            System.out.println("file\tMB/s\tinst/s");
+            for (int i = 0; i < repetitions; i++) {
+                measure("dense", dense);
+                measure("sparse", sparse);
+            }
+        } finally {
+            dense.delete();
+            sparse.delete();
+        }
+    }
+
+    protected static void measure(String name, File file) {
+        long start = System.nanoTime();
+        ArffFileStream stream = new ArffFileStream(file.getPath(), -1);
+        long numRead = 0;
+        while (stream.hasMoreInstances()) {
+            stream.nextInstance();
+            numRead++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(name + "\t" + String.format("%.1f", file.length() / 1e6 / seconds)
+                + "\t" + String.format("%.0f", numRead / seconds));
+    }
+
+    protected static void writeDense(File file, int numInstances) throws IOException {
+        Random random = new Random(1);
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("@relation dense\n\n");
+            for (int i = 0; i < NUM_DENSE_ATTRIBUTES; i++) {
+                writer.write("@attribute att" + i + " numeric\n");
+            }
+            writer.write("@attribute class {class1,class2,class3}\n\n@data\n");
+            for (int n = 0; n < numInstances; n++) {
+                for (int i = 0; i < NUM_DENSE_ATTRIBUTES; i++) {
+                    writer.write(String.format(Locale.US, "%.6f,", random.nextGaussian()));
+                }
+                writer.write("class" + (1 + random.nextInt(3)) + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    protected static void writeSparse(File file, int numInstances) throws IOException {
+        Random random = new Random(1);
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("@relation sparse\n\n");
+            for (int i = 0; i < NUM_SPARSE_ATTRIBUTES; i++) {
+                writer.write("@attribute att" + i + " numeric\n");
+            }
+            writer.write("@attribute class {class1,class2}\n\n@data\n");
+            int step = NUM_SPARSE_ATTRIBUTES / NUM_SPARSE_VALUES;
+            for (int n = 0; n < numInstances; n++) {
+                writer.write("{");
+                for (int i = 0; i < NUM_SPARSE_VALUES; i++) {
+                    writer.write((i * step + random.nextInt(step)) + " "
+                            + String.format(Locale.US, "%.4f", random.nextDouble()) + ",");
+                }
+                writer.write(NUM_SPARSE_ATTRIBUTES + " class" + (1 + random.nextInt(2)) + "}\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
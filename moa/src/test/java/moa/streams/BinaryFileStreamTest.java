@@ -0,0 +1,180 @@
+package moa.streams;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+import moa.streams.generators.TextGenerator;
+import moa.tasks.WriteStreamToBinaryFile;
+
+/**
+ * Test that replaying a stream from a binary file gives the instances of the
+ * source stream, and that a learner trained on the replay learns as on the
+ * source stream.
+ */
+public class BinaryFileStreamTest {
+
+	protected static final int NUM_INSTANCES = 5000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	protected static RandomRBFGeneratorDrift newDriftingStream() {
+		RandomRBFGeneratorDrift stream = new RandomRBFGeneratorDrift();
+		stream.speedChangeOption.setValue(0.001);
+		stream.prepareForUse();
+		return stream;
+	}
+
+	protected File writeStream(InstanceStream stream) throws IOException {
+		File file = folder.newFile("stream.bin");
+		WriteStreamToBinaryFile task = new WriteStreamToBinaryFile();
+		task.streamOption.setCurrentObject(stream);
+		task.binaryFileOption.setValue(file.getPath());
+		task.maxInstancesOption.setValue(NUM_INSTANCES);
+		task.prepareForUse();
+		task.doTask();
+		return file;
+	}
+
+	protected static List<Instance> read(InstanceStream stream, int numInstances) {
+		List<Instance> instances = new ArrayList<Instance>();
+		while (instances.size() < numInstances && stream.hasMoreInstances()) {
+			instances.add(stream.nextInstance().getData());
+		}
+		return instances;
+	}
+
+	protected static void assertSameInstance(Instance expected, Instance actual) {
+		assertEquals(expected.numAttributes(), actual.numAttributes());
+		assertEquals(expected.weight(), actual.weight(), 0.0);
+		assertEquals(expected.classIndex(), actual.classIndex());
+		for (int i = 0; i < expected.numAttributes(); i++) {
+			assertEquals(expected.value(i), actual.value(i), 0.0);
+		}
+	}
+
+	protected static void assertSameInstances(List<Instance> expected, List<Instance> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSameInstance(expected.get(i), actual.get(i));
+		}
+	}
+
+	protected static String toString(Instance instance) {
+		double[] values = new double[instance.numAttributes() + 1];
+		for (int i = 0; i < instance.numAttributes(); i++) {
+			values[i] = instance.value(i);
+		}
+		values[instance.numAttributes()] = instance.weight();
+		return Arrays.toString(values);
+	}
+
+	@Test
+	public void testDenseReplay() throws IOException {
+		File file = writeStream(newDriftingStream());
+		List<Instance> expected = read(newDriftingStream(), NUM_INSTANCES);
+
+		BinaryFileStream replay = new BinaryFileStream(file.getPath());
+		assertEquals(NUM_INSTANCES, replay.estimatedRemainingInstances());
+		assertEquals(newDriftingStream().getHeader().toString(), replay.getHeader().toString());
+		assertSameInstances(expected, read(replay, NUM_INSTANCES));
+		assertFalse(replay.hasMoreInstances());
+		assertEquals(0, replay.estimatedRemainingInstances());
+
+		// a restart replays the file from the start, as does a copy
+		replay.restart();
+		List<Instance> first = read(replay, 100);
+		BinaryFileStream copy = (BinaryFileStream) replay.copy();
+		assertSameInstances(expected.subList(0, 100), first);
+		assertSameInstances(expected.subList(100, NUM_INSTANCES), read(copy, NUM_INSTANCES));
+		assertSameInstances(expected.subList(100, NUM_INSTANCES), read(replay, NUM_INSTANCES));
+	}
+
+	@Test
+	public void testSparseReplay() throws IOException {
+		TextGenerator text = new TextGenerator();
+		text.numAttsOption.setValue(1000);
+		text.prepareForUse();
+		List<Instance> expected = read(text, NUM_INSTANCES);
+		File file = folder.newFile("sparse.bin");
+		BinaryFileWriter writer = new BinaryFileWriter(file, text.getHeader(), true);
+		try {
+			for (Instance instance : expected) {
+				writer.write(instance);
+			}
+		} finally {
+			writer.close();
+		}
+
+		BinaryFileStream replay = new BinaryFileStream(file.getPath());
+		assertSameInstances(expected, read(replay, NUM_INSTANCES));
+		assertFalse(replay.hasMoreInstances());
+	}
+
+	@Test
+	public void testShuffledReplay() throws IOException {
+		File file = writeStream(newDriftingStream());
+		List<String> expected = new ArrayList<String>();
+		for (Instance instance : read(newDriftingStream(), NUM_INSTANCES)) {
+			expected.add(toString(instance));
+		}
+
+		BinaryFileStream replay = new BinaryFileStream();
+		replay.binaryFileOption.setValue(file.getPath());
+		replay.shuffleRandomSeedOption.setValue(1);
+		replay.prepareForUse();
+		List<String> shuffled = new ArrayList<String>();
+		for (Instance instance : read(replay, NUM_INSTANCES)) {
+			shuffled.add(toString(instance));
+		}
+		assertFalse(expected.equals(shuffled));
+
+		// the same instances, in the same order on every replay
+		replay.restart();
+		List<String> again = new ArrayList<String>();
+		for (Instance instance : read(replay, NUM_INSTANCES)) {
+			again.add(toString(instance));
+		}
+		assertEquals(shuffled, again);
+		Collections.sort(expected);
+		Collections.sort(shuffled);
+		assertEquals(expected, shuffled);
+	}
+
+	@Test
+	public void testLearnerOnReplay() throws IOException {
+		File file = writeStream(newDriftingStream());
+		RandomRBFGeneratorDrift source = newDriftingStream();
+		BinaryFileStream replay = new BinaryFileStream(file.getPath());
+		Classifier expected = new HoeffdingTree();
+		expected.setModelContext(source.getHeader());
+		expected.prepareForUse();
+		Classifier actual = new HoeffdingTree();
+		actual.setModelContext(replay.getHeader());
+		actual.prepareForUse();
+		while (source.hasMoreInstances() && replay.hasMoreInstances()) {
+			Instance instance = source.nextInstance().getData();
+			Instance replayed = replay.nextInstance().getData();
+			assertArrayEquals(expected.getVotesForInstance(instance), actual.getVotesForInstance(replayed), 0.0);
+			expected.trainOnInstance(instance);
+			actual.trainOnInstance(replayed);
+		}
+		assertFalse(replay.hasMoreInstances());
+		assertEquals(((HoeffdingTree) expected).getNodeCount(), ((HoeffdingTree) actual).getNodeCount());
+	}
+}
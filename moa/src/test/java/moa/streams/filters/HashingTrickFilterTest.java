@@ -0,0 +1,100 @@
+package moa.streams.filters;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.SparseInstance;
+
+import moa.streams.CachedInstancesStream;
+import moa.streams.generators.TextGenerator;
+
+/**
+ * Test HashingTrickFilter against the dense hashing of hashVector, on text
+ * input stored densely, as TextGenerator emits it, and sparsely.
+ */
+public class HashingTrickFilterTest {
+
+	/**
+	 * Generates tweets, stored as TextGenerator emits them or as sparse
+	 * instances holding the words and the class only.
+	 */
+	static Instances generate(int numAtts, int numInstances, boolean sparse) {
+		TextGenerator generator = new TextGenerator();
+		generator.numAttsOption.setValue(numAtts);
+		generator.prepareForUse();
+		InstancesHeader header = generator.getHeader();
+		Instances data = new Instances(header, numInstances);
+		for (int i = 0; i < numInstances; i++) {
+			Instance inst = generator.nextInstance().getData();
+			data.add(sparse ? sparseCopy(inst, header) : inst);
+		}
+		return data;
+	}
+
+	static Instance sparseCopy(Instance inst, InstancesHeader header) {
+		int numValues = 0;
+		for (int j = 0; j < inst.numAttributes(); j++) {
+			if (inst.value(j) != 0 || j == inst.classIndex()) {
+				numValues++;
+			}
+		}
+		double[] values = new double[numValues];
+		int[] indices = new int[numValues];
+		numValues = 0;
+		for (int j = 0; j < inst.numAttributes(); j++) {
+			if (inst.value(j) != 0 || j == inst.classIndex()) {
+				values[numValues] = inst.value(j);
+				indices[numValues++] = j;
+			}
+		}
+		Instance copy = new SparseInstance(1.0, values, indices, inst.numAttributes());
+		copy.setDataset(header);
+		return copy;
+	}
+
+	static HashingTrickFilter newFilter(Instances data, int dim) {
+		HashingTrickFilter filter = new HashingTrickFilter();
+		filter.dim.setValue(dim);
+		CachedInstancesStream stream = new CachedInstancesStream(data);
+		filter.setInputStream(stream);
+		filter.prepareForUse();
+		filter.setInputStream(stream);
+		return filter;
+	}
+
+	@Test
+	public void testSameAsDenseHashing() {
+		int[] numAtts = {100, 1000, 10000};
+		int[] dims = {10, 1 << 10, 1 << 14};
+		for (boolean sparse : new boolean[]{false, true}) {
+			for (int a : numAtts) {
+				Instances data = generate(a, 200, sparse);
+				for (int d : dims) {
+					HashingTrickFilter filter = newFilter(data, d);
+					for (int i = 0; i < data.numInstances(); i++) {
+						Instance inst = data.instance(i);
+						Instance hashed = filter.nextInstance().getData();
+						Instance expected = filter.transformedInstance(inst,
+								filter.hashVector(inst, d, Hashing.murmur3_128()));
+						String message = (sparse ? "sparse" : "dense") + " a=" + a + " d=" + d + " instance " + i;
+						assertTrue(message, hashed instanceof SparseInstance);
+						assertEquals(message, expected.numAttributes(), hashed.numAttributes());
+						assertEquals(message, expected.classValue(), hashed.classValue(), 0.0);
+						for (int j = 0; j < expected.numAttributes(); j++) {
+							assertEquals(message + " attribute " + j, expected.value(j), hashed.value(j), 0.0);
+						}
+						// only the non-zero buckets and the class are stored
+						for (int j = 0; j < hashed.numValues(); j++) {
+							assertTrue(message, hashed.valueSparse(j) != 0 || hashed.index(j) == hashed.classIndex());
+						}
+					}
+				}
+			}
+		}
+	}
+}
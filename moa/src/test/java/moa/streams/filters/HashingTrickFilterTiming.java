@@ -0,0 +1,64 @@
+package moa.streams.filters;
+
+import java.lang.management.ManagementFactory;
+
+import com.google.common.hash.Hashing;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Times HashingTrickFilter against the previous dense hashing, hashVector
+ * and transformedInstance, on text input stored densely and sparsely.
+ * Reports instances per second and bytes allocated per output instance.
+ * Run with the test classpath; the first round warms up.
+ */
+public class HashingTrickFilterTiming {
+
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		int[] numAtts = {1000, 10000, 100000};
+		int[] dims = {1 << 10, 1 << 14, 1 << 20};
+		long sink = 0;
+		for (boolean sparse : new boolean[]{false, true}) {
+			for (int a : numAtts) {
+				// TextGenerator stores every attribute, so keep the dense input small
+				Instances data = HashingTrickFilterTest.generate(a, sparse ? 20000 : 20000000 / a, sparse);
+				for (int d : dims) {
+					// the dense hashing allocates two double[d] per instance
+					int numDense = Math.min(data.numInstances(), d >= 1 << 20 ? 500 : 20000);
+					for (int round = 0; round < 3; round++) {
+						// the first instance builds the header and the hashes
+						HashingTrickFilter dense = HashingTrickFilterTest.newFilter(data, d);
+						dense.nextInstance();
+						long bytes = threads.getThreadAllocatedBytes(thread);
+						long start = System.nanoTime();
+						for (int i = 1; i < numDense; i++) {
+							Instance inst = data.instance(i);
+							sink += dense.transformedInstance(inst,
+									dense.hashVector(inst, d, Hashing.murmur3_128())).numValues();
+						}
+						double denseRate = (numDense - 1) / ((System.nanoTime() - start) / 1e9);
+						double denseBytes = (threads.getThreadAllocatedBytes(thread) - bytes) / (double) (numDense - 1);
+
+						HashingTrickFilter filter = HashingTrickFilterTest.newFilter(data, d);
+						filter.nextInstance();
+						bytes = threads.getThreadAllocatedBytes(thread);
+						start = System.nanoTime();
+						for (int i = 1; i < data.numInstances(); i++) {
+							sink += filter.nextInstance().getData().numValues();
+						}
+						double rate = (data.numInstances() - 1) / ((System.nanoTime() - start) / 1e9);
+						double filterBytes = (threads.getThreadAllocatedBytes(thread) - bytes) / (double) (data.numInstances() - 1);
+						if (round > 0) {
+							System.out.printf("%s a=%d d=2^%d: dense %.0f inst/s %.0f B/inst, filter %.0f inst/s %.0f B/inst%n",
+									sparse ? "sparse" : "dense", a, Integer.numberOfTrailingZeros(d),
+									denseRate, denseBytes, rate, filterBytes);
+						}
+					}
+				}
+			}
+		}
+		System.out.println(sink);
+	}
+}
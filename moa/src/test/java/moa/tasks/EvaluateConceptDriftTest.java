@@ -0,0 +1,83 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import moa.evaluation.preview.LearningCurve;
+import moa.streams.clustering.ClusterEvent;
+
+/**
+ * Test that EvaluateConceptDrift reports the same changes whether it feeds
+ * the change detector one instance at a time or in chunks.
+ */
+public class EvaluateConceptDriftTest {
+
+	private static class Run {
+		List<Long> detections = new ArrayList<Long>();
+		List<Double> detectedChanges = new ArrayList<Double>();
+		List<Double> learnedInstances = new ArrayList<Double>();
+	}
+
+	private static Run run(String detector, String stream, int limit, int chunkSize) {
+		EvaluateConceptDrift task = new EvaluateConceptDrift();
+		task.learnerOption.setValueViaCLIString("ChangeDetectorLearner -d " + detector);
+		task.streamOption.setValueViaCLIString(stream);
+		task.instanceLimitOption.setValue(limit);
+		task.sampleFrequencyOption.setValue(1000);
+		task.chunkSizeOption.setValue(chunkSize);
+		task.prepareForUse();
+		LearningCurve curve = (LearningCurve) task.doTask();
+
+		Run run = new Run();
+		for (ClusterEvent event : task.getEventsList()) {
+			if (event.getType().equals("Detected Change")) {
+				run.detections.add(event.getTimestamp());
+			}
+		}
+		int detected = -1;
+		int learned = -1;
+		for (int i = 0; i < curve.getMeasurementNameCount(); i++) {
+			if (curve.getMeasurementName(i).equals("detected changes")) {
+				detected = i;
+			} else if (curve.getMeasurementName(i).equals("learned instances")) {
+				learned = i;
+			}
+		}
+		for (int entry = 0; entry < curve.numEntries(); entry++) {
+			run.detectedChanges.add(curve.getMeasurement(entry, detected));
+			run.learnedInstances.add(curve.getMeasurement(entry, learned));
+		}
+		return run;
+	}
+
+	private static void check(String detector, String stream) {
+		Run expected = run(detector, stream, 20000, 1);
+		assertFalse(expected.detections.isEmpty());
+		assertEquals(20, expected.detectedChanges.size());
+		for (int chunkSize : new int[] { 2, 7, 1000, 30000 }) {
+			Run actual = run(detector, stream, 20000, chunkSize);
+			assertEquals(detector + " " + chunkSize, expected.detections, actual.detections);
+			assertEquals(detector + " " + chunkSize, expected.detectedChanges, actual.detectedChanges);
+			assertEquals(detector + " " + chunkSize, expected.learnedInstances, actual.learnedInstances);
+		}
+	}
+
+	@Test
+	public void testDDM() {
+		check("DDM", "AbruptChangeGenerator -p 5000");
+	}
+
+	@Test
+	public void testPageHinkleyDM() {
+		check("PageHinkleyDM", "GradualChangeGenerator -b -p 5000");
+	}
+
+	@Test
+	public void testADWINChangeDetector() {
+		check("ADWINChangeDetector", "AbruptChangeGenerator -b -p 5000");
+	}
+}